@@ -0,0 +1,166 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Compares a JMH JSON result file with a baseline produced the same way on the same hardware. A benchmark regresses
+ * when its score is worse than the baseline score by more than the tolerance (0.10 = 10%). Lower is better for the
+ * time based modes, higher is better for throughput.
+ * <p>
+ * Every benchmark in the result needs an entry with a score in the baseline, a benchmark that isn't covered fails the
+ * comparison.
+ * <p>
+ * Usage: BaselineComparator &lt;baseline.json&gt; &lt;result.json&gt; [tolerance]
+ */
+public class BaselineComparator {
+
+  private static final double DEFAULT_TOLERANCE = 0.10;
+
+  private final double tolerance;
+
+  public BaselineComparator( double tolerance ) {
+    this.tolerance = tolerance;
+  }
+
+  public static void main( String[] args ) throws Exception {
+    if ( args.length < 2 ) {
+      System.err.println( "Usage: BaselineComparator <baseline.json> <result.json> [tolerance]" );
+      System.exit( 2 );
+    }
+    File baselineFile = new File( args[ 0 ] );
+    File resultFile = new File( args[ 1 ] );
+    double tolerance = args.length > 2 ? Double.parseDouble( args[ 2 ] ) : DEFAULT_TOLERANCE;
+
+    if ( !baselineFile.exists() ) {
+      System.out.println( "No baseline found at " + baselineFile + ", skipping the comparison. "
+        + "Copy " + resultFile + " there to make it the baseline for this machine." );
+      return;
+    }
+
+    List<String> regressions = new BaselineComparator( tolerance ).compare( read( baselineFile ), read( resultFile ) );
+    if ( !regressions.isEmpty() ) {
+      for ( String regression : regressions ) {
+        System.err.println( regression );
+      }
+      System.exit( 1 );
+    }
+  }
+
+  /**
+   * @return a description of every benchmark in the result that regressed compared to the baseline.
+   */
+  public List<String> compare( Map<String, Score> baseline, Map<String, Score> result ) {
+    List<String> regressions = new ArrayList<>();
+    for ( Map.Entry<String, Score> entry : result.entrySet() ) {
+      Score before = baseline.get( entry.getKey() );
+      Score after = entry.getValue();
+      if ( before == null ) {
+        regressions.add( "MISSING " + entry.getKey() + " has no entry in the baseline" );
+        continue;
+      }
+      if ( before.value == null || before.value == 0.0 ) {
+        regressions.add( "MISSING " + entry.getKey() + " has no score in the baseline" );
+        continue;
+      }
+      double change = ( after.value - before.value ) / before.value;
+      if ( after.higherIsBetter() ) {
+        change = -change;
+      }
+      String line = String.format( "%s: %.3f -> %.3f %s (%+.1f%%)", entry.getKey(), before.value, after.value,
+        after.unit, change * 100 );
+      if ( change > tolerance ) {
+        regressions.add( "REGRESSION " + line );
+      } else {
+        System.out.println( line );
+      }
+    }
+    return regressions;
+  }
+
+  /**
+   * Read a JMH JSON result file.
+   *
+   * @return the primary scores by benchmark name and parameters.
+   */
+  public static Map<String, Score> read( File file ) throws IOException, ParseException {
+    Map<String, Score> scores = new HashMap<>();
+    try ( Reader reader = new InputStreamReader( Files.newInputStream( file.toPath() ), StandardCharsets.UTF_8 ) ) {
+      JSONArray results = (JSONArray) new JSONParser().parse( reader );
+      for ( Object object : results ) {
+        JSONObject result = (JSONObject) object;
+        JSONObject primaryMetric = (JSONObject) result.get( "primaryMetric" );
+        String key = result.get( "benchmark" ) + getParameters( (JSONObject) result.get( "params" ) );
+        Number score = (Number) primaryMetric.get( "score" );
+        scores.put( key, new Score( (String) result.get( "mode" ), score == null ? null : score.doubleValue(),
+          (String) primaryMetric.get( "scoreUnit" ) ) );
+      }
+    }
+    return scores;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private static String getParameters( JSONObject params ) {
+    if ( params == null || params.isEmpty() ) {
+      return "";
+    }
+    // Sorted so that the key doesn't depend on the order in the file
+    //
+    return new TreeMap<String, Object>( params ).toString();
+  }
+
+  /**
+   * The primary score of one benchmark.
+   */
+  public static class Score {
+    private final String mode;
+    private final Double value;
+    private final String unit;
+
+    public Score( String mode, Double value, String unit ) {
+      this.mode = mode;
+      this.value = value;
+      this.unit = unit;
+    }
+
+    public boolean higherIsBetter() {
+      return "thrpt".equals( mode );
+    }
+  }
+}
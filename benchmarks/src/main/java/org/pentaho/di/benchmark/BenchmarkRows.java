@@ -0,0 +1,80 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * The rows used throughout the benchmarks: a mix of the common data types with a low cardinality key.
+ */
+final class BenchmarkRows {
+
+  static final String ID = "id";
+  static final String KEY = "key";
+  static final String NAME = "name";
+  static final String AMOUNT = "amount";
+  static final String PRICE = "price";
+  static final String CREATED = "created";
+  static final String ACTIVE = "active";
+
+  static final int NR_OF_KEYS = 1000;
+
+  private static final long START_DATE = 1500000000000L;
+
+  private BenchmarkRows() {
+  }
+
+  static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( ID ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( KEY ) );
+    rowMeta.addValueMeta( new ValueMetaString( NAME ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( AMOUNT ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( PRICE ) );
+    rowMeta.addValueMeta( new ValueMetaDate( CREATED ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( ACTIVE ) );
+    return rowMeta;
+  }
+
+  static Object[] createRow( long id ) {
+    long key = ( id * 7919L ) % NR_OF_KEYS;
+    return new Object[] {
+      id,
+      key,
+      "customer-" + key,
+      id * 1.25d,
+      BigDecimal.valueOf( id, 2 ),
+      new Date( START_DATE + id * 1000L ),
+      ( id & 1 ) == 0, };
+  }
+}
@@ -0,0 +1,129 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.plugins.StepPluginType;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.injector.InjectorMeta;
+
+/**
+ * Builds and runs the small transformations used by the step benchmarks: rows are injected into one or more injector
+ * steps, flow through the step under test and end up in a dummy step.
+ */
+final class BenchmarkTransformations {
+
+  static final String INJECTOR = "injector";
+  static final String OUTPUT = "output";
+
+  private BenchmarkTransformations() {
+  }
+
+  /**
+   * Rows to inject into an injector step.
+   */
+  static final class Injection {
+    private final String stepName;
+    private final RowMetaInterface rowMeta;
+    private final Object[][] rows;
+
+    Injection( String stepName, RowMetaInterface rowMeta, Object[][] rows ) {
+      this.stepName = stepName;
+      this.rowMeta = rowMeta;
+      this.rows = rows;
+    }
+  }
+
+  static void init() throws KettleException {
+    KettleEnvironment.init( false );
+  }
+
+  static StepMeta createStep( String name, StepMetaInterface meta ) {
+    String id = PluginRegistry.getInstance().getPluginId( StepPluginType.class, meta );
+    return new StepMeta( id, name, meta );
+  }
+
+  static StepMeta createInjector( String name ) {
+    return createStep( name, new InjectorMeta() );
+  }
+
+  static StepMeta createOutput() {
+    return createStep( OUTPUT, new DummyTransMeta() );
+  }
+
+  /**
+   * Create a transformation injector -> step -> output.
+   */
+  static TransMeta createTransformation( String name, StepMetaInterface meta ) {
+    TransMeta transMeta = new TransMeta();
+    StepMeta injector = createInjector( INJECTOR );
+    StepMeta step = createStep( name, meta );
+    StepMeta output = createOutput();
+    transMeta.addStep( injector );
+    transMeta.addStep( step );
+    transMeta.addStep( output );
+    transMeta.addTransHop( new TransHopMeta( injector, step ) );
+    transMeta.addTransHop( new TransHopMeta( step, output ) );
+    return transMeta;
+  }
+
+  /**
+   * Run the transformation, injecting the rows into the injector steps in the given order.
+   *
+   * @return the number of rows that arrived in the output step.
+   */
+  static long execute( TransMeta transMeta, Injection... injections ) throws KettleException {
+    Trans trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.ERROR );
+    trans.prepareExecution( null );
+
+    RowProducer[] producers = new RowProducer[ injections.length ];
+    for ( int i = 0; i < injections.length; i++ ) {
+      producers[ i ] = trans.addRowProducer( injections[ i ].stepName, 0 );
+    }
+    trans.startThreads();
+
+    for ( int i = 0; i < injections.length; i++ ) {
+      for ( Object[] row : injections[ i ].rows ) {
+        producers[ i ].putRow( injections[ i ].rowMeta, row );
+      }
+      producers[ i ].finished();
+    }
+    trans.waitUntilFinished();
+
+    if ( trans.getErrors() > 0 ) {
+      throw new KettleException( "Benchmark transformation finished with errors" );
+    }
+    return trans.getStepInterface( OUTPUT, 0 ).getLinesRead();
+  }
+}
@@ -0,0 +1,127 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.steps.csvinput.CsvInputMeta;
+import org.pentaho.di.trans.steps.textfileinput.TextFileInputField;
+
+/**
+ * Reading and parsing a delimited file with the CSV file input step, with and without lazy conversion.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class CsvInputBenchmark {
+
+  private static final int NR_OF_ROWS = 100000;
+
+  @Param( { "false", "true" } )
+  public boolean lazyConversion;
+
+  private File file;
+  private TransMeta transMeta;
+
+  @Setup
+  public void setUp() throws KettleException, IOException {
+    BenchmarkTransformations.init();
+
+    file = File.createTempFile( "csv-input-benchmark", ".csv" );
+    try ( PrintWriter writer = new PrintWriter( file, StandardCharsets.UTF_8.name() ) ) {
+      writer.println( "id,key,name,amount" );
+      for ( long id = 0; id < NR_OF_ROWS; id++ ) {
+        Object[] row = BenchmarkRows.createRow( id );
+        writer.println( String.format( Locale.US, "%d,%d,\"%s\",%.2f", row[ 0 ], row[ 1 ], row[ 2 ], row[ 3 ] ) );
+      }
+    }
+
+    CsvInputMeta meta = new CsvInputMeta();
+    meta.setDefault();
+    meta.setFilename( file.getAbsolutePath() );
+    meta.setDelimiter( "," );
+    meta.setEnclosure( "\"" );
+    meta.setHeaderPresent( true );
+    meta.setBufferSize( "50000" );
+    meta.setLazyConversionActive( lazyConversion );
+    meta.setInputFields( new TextFileInputField[] {
+      createField( BenchmarkRows.ID, ValueMetaInterface.TYPE_INTEGER, "#" ),
+      createField( BenchmarkRows.KEY, ValueMetaInterface.TYPE_INTEGER, "#" ),
+      createField( BenchmarkRows.NAME, ValueMetaInterface.TYPE_STRING, null ),
+      createField( BenchmarkRows.AMOUNT, ValueMetaInterface.TYPE_NUMBER, "#.##" ), } );
+
+    transMeta = new TransMeta();
+    StepMeta input = BenchmarkTransformations.createStep( "csv", meta );
+    StepMeta output = BenchmarkTransformations.createOutput();
+    transMeta.addStep( input );
+    transMeta.addStep( output );
+    transMeta.addTransHop( new TransHopMeta( input, output ) );
+  }
+
+  private static TextFileInputField createField( String name, int type, String format ) {
+    TextFileInputField field = new TextFileInputField( name, -1, -1 );
+    field.setType( type );
+    field.setFormat( format );
+    field.setDecimalSymbol( "." );
+    field.setGroupSymbol( "," );
+    field.setTrimType( ValueMetaInterface.TRIM_TYPE_NONE );
+    return field;
+  }
+
+  @TearDown
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public long read() throws KettleException {
+    return BenchmarkTransformations.execute( transMeta );
+  }
+}
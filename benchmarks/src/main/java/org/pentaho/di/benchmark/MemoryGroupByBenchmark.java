@@ -0,0 +1,88 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
+
+/**
+ * Hash aggregation of unsorted rows: sum, maximum and count per key.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class MemoryGroupByBenchmark {
+
+  private static final int NR_OF_ROWS = 100000;
+
+  private TransMeta transMeta;
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+
+  @Setup
+  public void setUp() throws KettleException {
+    BenchmarkTransformations.init();
+
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.setDefault();
+    meta.allocate( 1, 3 );
+    meta.setGroupField( new String[] { BenchmarkRows.KEY } );
+    meta.setAggregateField( new String[] { "sum_amount", "max_price", "nr_of_rows" } );
+    meta.setSubjectField( new String[] { BenchmarkRows.AMOUNT, BenchmarkRows.PRICE, BenchmarkRows.ID } );
+    meta.setAggregateType( new int[] {
+      MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_MAX, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL, } );
+    meta.setValueField( new String[] { null, null, null } );
+    transMeta = BenchmarkTransformations.createTransformation( "group by", meta );
+
+    rowMeta = BenchmarkRows.createRowMeta();
+    rows = new Object[ NR_OF_ROWS ][];
+    for ( int i = 0; i < NR_OF_ROWS; i++ ) {
+      rows[ i ] = BenchmarkRows.createRow( i );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public long groupBy() throws KettleException {
+    return BenchmarkTransformations.execute( transMeta,
+      new BenchmarkTransformations.Injection( BenchmarkTransformations.INJECTOR, rowMeta, rows ) );
+  }
+}
@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogLevel;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.partition.PartitionSchema;
+import org.pentaho.di.trans.ModPartitioner;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepPartitioningMeta;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+
+/**
+ * The cost of BaseStep.putRow() and putRows() for the different ways of sending rows to the next step: a single
+ * target, round robin distribution, copying to every target and partitioning. The output row sets are drained by the
+ * benchmark thread so that no step threads are involved.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class PutRowBenchmark {
+
+  private static final int NR_OF_ROWS = 1000;
+  private static final int NR_OF_TARGETS = 4;
+
+  @Param( { "single", "distribute", "copy", "partition" } )
+  public String mode;
+
+  @Param( { "false", "true" } )
+  public boolean ringBuffer;
+
+  private Trans trans;
+  private StepInterface source;
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+
+  @Setup
+  public void setUp() throws KettleException {
+    BenchmarkTransformations.init();
+
+    TransMeta transMeta = new TransMeta();
+    transMeta.setSizeRowset( NR_OF_ROWS * 2 );
+    transMeta.setUsingRingBufferRowSets( ringBuffer );
+
+    StepMeta sourceMeta = BenchmarkTransformations.createStep( "source", new DummyTransMeta() );
+    StepMeta targetMeta = BenchmarkTransformations.createStep( "target", new DummyTransMeta() );
+    switch ( mode ) {
+      case "distribute":
+        targetMeta.setCopies( NR_OF_TARGETS );
+        break;
+      case "copy":
+        targetMeta.setCopies( NR_OF_TARGETS );
+        sourceMeta.setDistributes( false );
+        break;
+      case "partition":
+        PartitionSchema partitionSchema =
+          new PartitionSchema( "benchmark", Arrays.asList( "P1", "P2", "P3", "P4" ) );
+        transMeta.getPartitionSchemas().add( partitionSchema );
+        StepPartitioningMeta partitioningMeta = new StepPartitioningMeta( "ModPartitioner", partitionSchema );
+        ( (ModPartitioner) partitioningMeta.getPartitioner() ).setFieldName( BenchmarkRows.KEY );
+        targetMeta.setStepPartitioningMeta( partitioningMeta );
+        break;
+      default:
+        break;
+    }
+    transMeta.addStep( sourceMeta );
+    transMeta.addStep( targetMeta );
+    transMeta.addTransHop( new TransHopMeta( sourceMeta, targetMeta ) );
+
+    trans = new Trans( transMeta );
+    trans.setLogLevel( LogLevel.ERROR );
+    trans.prepareExecution( null );
+    // The step threads are not started but putRow() waits until the transformation runs
+    trans.setRunning( true );
+    source = trans.getStepInterface( "source", 0 );
+
+    rowMeta = BenchmarkRows.createRowMeta();
+    rows = new Object[ NR_OF_ROWS ][];
+    for ( int i = 0; i < NR_OF_ROWS; i++ ) {
+      rows[ i ] = BenchmarkRows.createRow( i );
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    trans.stopAll();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public long putRow() throws KettleException {
+    for ( Object[] row : rows ) {
+      source.putRow( rowMeta, row );
+    }
+    return drain();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public long putRows() throws KettleException {
+    source.putRows( rowMeta, rows, NR_OF_ROWS );
+    return drain();
+  }
+
+  private long drain() {
+    long nrRows = 0;
+    for ( RowSet rowSet : source.getOutputRowSets() ) {
+      while ( rowSet.getRowImmediate() != null ) {
+        nrRows++;
+      }
+    }
+    return nrRows;
+  }
+}
@@ -0,0 +1,99 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Serialization of rows as done by sort and group by temp files, clustered sockets and serialized data sets.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class RowMetaBenchmark {
+
+  private static final int NR_OF_ROWS = 1000;
+
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+  private byte[] serialized;
+  private ByteArrayOutputStream bytes;
+
+  @Setup
+  public void setUp() throws KettleException {
+    rowMeta = BenchmarkRows.createRowMeta();
+    rows = new Object[ NR_OF_ROWS ][];
+    for ( int i = 0; i < NR_OF_ROWS; i++ ) {
+      rows[ i ] = BenchmarkRows.createRow( i );
+    }
+
+    bytes = new ByteArrayOutputStream( NR_OF_ROWS * 128 );
+    DataOutputStream outputStream = new DataOutputStream( bytes );
+    for ( Object[] row : rows ) {
+      rowMeta.writeData( outputStream, row );
+    }
+    serialized = bytes.toByteArray();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public int writeData() throws KettleException {
+    bytes.reset();
+    DataOutputStream outputStream = new DataOutputStream( bytes );
+    for ( Object[] row : rows ) {
+      rowMeta.writeData( outputStream, row );
+    }
+    return bytes.size();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public void readData( Blackhole blackhole ) throws Exception {
+    DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( serialized ) );
+    for ( int i = 0; i < NR_OF_ROWS; i++ ) {
+      blackhole.consume( rowMeta.readData( inputStream ) );
+    }
+  }
+}
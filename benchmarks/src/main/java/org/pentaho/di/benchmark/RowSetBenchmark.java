@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.BlockingBatchingRowSet;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RingBufferRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.RowSetWaitStrategy;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Hand-off of rows over a hop: one thread produces rows into the row set, the benchmark thread consumes them.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class RowSetBenchmark {
+
+  private static final int NR_OF_ROWS = 100000;
+
+  @Param( { "blocking", "batching", "ringbuffer" } )
+  public String rowSetType;
+
+  @Param( { "10000" } )
+  public int rowSetSize;
+
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+  private ExecutorService producer;
+
+  @Setup
+  public void setUp() {
+    rowMeta = BenchmarkRows.createRowMeta();
+    rows = new Object[ NR_OF_ROWS ][];
+    for ( int i = 0; i < NR_OF_ROWS; i++ ) {
+      rows[ i ] = BenchmarkRows.createRow( i );
+    }
+    producer = Executors.newSingleThreadExecutor();
+  }
+
+  @TearDown
+  public void tearDown() {
+    producer.shutdownNow();
+  }
+
+  private RowSet createRowSet() {
+    switch ( rowSetType ) {
+      case "batching":
+        return new BlockingBatchingRowSet( rowSetSize );
+      case "ringbuffer":
+        return new RingBufferRowSet( rowSetSize, RowSetWaitStrategy.PARK );
+      default:
+        return new BlockingRowSet( rowSetSize );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public long handOff() throws Exception {
+    final RowSet rowSet = createRowSet();
+    Future<?> done = producer.submit( new Runnable() {
+      @Override
+      public void run() {
+        for ( Object[] row : rows ) {
+          while ( !rowSet.putRow( rowMeta, row ) ) {
+            // The consumer is too slow: try again
+          }
+        }
+        rowSet.setDone();
+      }
+    } );
+
+    long checksum = 0;
+    int nrRows = 0;
+    while ( nrRows < NR_OF_ROWS ) {
+      Object[] row = rowSet.getRowWait( Const.TIMEOUT_GET_MILLIS, TimeUnit.MILLISECONDS );
+      if ( row != null ) {
+        checksum += (Long) row[ 0 ];
+        nrRows++;
+      }
+    }
+    done.get();
+    return checksum;
+  }
+}
@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.steps.sort.SortRowsMeta;
+
+/**
+ * Sorting rows on a low cardinality key, either in memory or spilling sorted runs to (compressed) temp files which are
+ * merged afterwards.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class SortRowsBenchmark {
+
+  private static final int NR_OF_ROWS = 100000;
+
+  /**
+   * The number of rows kept in memory: a sort size below the number of rows forces the use of temp files.
+   */
+  @Param( { "1000000", "10000" } )
+  public String sortSize;
+
+  @Param( { "false", "true" } )
+  public boolean compress;
+
+  private TransMeta transMeta;
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+
+  @Setup
+  public void setUp() throws KettleException {
+    BenchmarkTransformations.init();
+
+    SortRowsMeta meta = new SortRowsMeta();
+    meta.setDefault();
+    meta.allocate( 2 );
+    meta.setFieldName( new String[] { BenchmarkRows.KEY, BenchmarkRows.ID } );
+    meta.setAscending( new boolean[] { true, true } );
+    meta.setCaseSensitive( new boolean[] { true, true } );
+    meta.setSortSize( sortSize );
+    meta.setCompressFiles( compress );
+    transMeta = BenchmarkTransformations.createTransformation( "sort", meta );
+
+    rowMeta = BenchmarkRows.createRowMeta();
+    rows = new Object[ NR_OF_ROWS ][];
+    for ( int i = 0; i < NR_OF_ROWS; i++ ) {
+      rows[ i ] = BenchmarkRows.createRow( i );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public long sort() throws KettleException {
+    return BenchmarkTransformations.execute( transMeta,
+      new BenchmarkTransformations.Injection( BenchmarkTransformations.INJECTOR, rowMeta, rows ) );
+  }
+}
@@ -0,0 +1,123 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.trans.TransHopMeta;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+import org.pentaho.di.trans.steps.streamlookup.StreamLookupMeta;
+
+/**
+ * Looking up a value for every row in an in-memory index built from the lookup stream, for each of the index types
+ * Stream Lookup supports.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class StreamLookupBenchmark {
+
+  private static final int NR_OF_ROWS = 100000;
+  private static final String LOOKUP_INJECTOR = "lookup injector";
+  private static final String CODE = "code";
+
+  @Param( { "hash", "preserve-memory", "sorted-list", "integer-pair" } )
+  public String mode;
+
+  private TransMeta transMeta;
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+  private RowMetaInterface lookupRowMeta;
+  private Object[][] lookupRows;
+
+  @Setup
+  public void setUp() throws KettleException {
+    BenchmarkTransformations.init();
+
+    StreamLookupMeta meta = new StreamLookupMeta();
+    meta.setDefault();
+    meta.allocate( 1, 1 );
+    meta.setKeystream( new String[] { BenchmarkRows.KEY } );
+    meta.setKeylookup( new String[] { BenchmarkRows.KEY } );
+    meta.setValue( new String[] { CODE } );
+    meta.setValueName( new String[] { CODE } );
+    meta.setValueDefaultType( new int[] { ValueMetaInterface.TYPE_INTEGER } );
+    meta.setMemoryPreservationActive( !"hash".equals( mode ) );
+    meta.setUsingSortedList( "sorted-list".equals( mode ) );
+    meta.setUsingIntegerPair( "integer-pair".equals( mode ) );
+
+    transMeta = BenchmarkTransformations.createTransformation( "lookup", meta );
+    StepMeta lookupInjector = BenchmarkTransformations.createInjector( LOOKUP_INJECTOR );
+    transMeta.addStep( lookupInjector );
+    transMeta.addTransHop( new TransHopMeta( lookupInjector, transMeta.findStep( "lookup" ) ) );
+    StreamInterface infoStream = meta.getStepIOMeta().getInfoStreams().get( 0 );
+    infoStream.setSubject( LOOKUP_INJECTOR );
+    meta.searchInfoAndTargetSteps( transMeta.getSteps() );
+
+    rowMeta = BenchmarkRows.createRowMeta();
+    rows = new Object[ NR_OF_ROWS ][];
+    for ( int i = 0; i < NR_OF_ROWS; i++ ) {
+      rows[ i ] = BenchmarkRows.createRow( i );
+    }
+
+    lookupRowMeta = new RowMeta();
+    lookupRowMeta.addValueMeta( new ValueMetaInteger( BenchmarkRows.KEY ) );
+    lookupRowMeta.addValueMeta( new ValueMetaInteger( CODE ) );
+    lookupRows = new Object[ BenchmarkRows.NR_OF_KEYS ][];
+    for ( int i = 0; i < BenchmarkRows.NR_OF_KEYS; i++ ) {
+      lookupRows[ i ] = new Object[] { (long) i, i * 10L };
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_ROWS )
+  public long lookup() throws KettleException {
+    // The lookup rows are read first, the main stream is blocked until then.
+    //
+    return BenchmarkTransformations.execute( transMeta,
+      new BenchmarkTransformations.Injection( LOOKUP_INJECTOR, lookupRowMeta, lookupRows ),
+      new BenchmarkTransformations.Injection( BenchmarkTransformations.INJECTOR, rowMeta, rows ) );
+  }
+}
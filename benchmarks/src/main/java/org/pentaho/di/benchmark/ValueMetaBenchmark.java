@@ -0,0 +1,110 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * The value level operations used by sorting, grouping, lookups and (lazy) conversion.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Thread )
+public class ValueMetaBenchmark {
+
+  private static final int NR_OF_VALUES = 1024;
+
+  @Param( { BenchmarkRows.KEY, BenchmarkRows.NAME, BenchmarkRows.AMOUNT, BenchmarkRows.PRICE,
+    BenchmarkRows.CREATED } )
+  public String field;
+
+  private ValueMetaInterface valueMeta;
+  private ValueMetaInterface stringMeta;
+  private Object[] values;
+  private Object[] strings;
+
+  @Setup
+  public void setUp() throws KettleException {
+    RowMetaInterface rowMeta = BenchmarkRows.createRowMeta();
+    int index = rowMeta.indexOfValue( field );
+    valueMeta = rowMeta.getValueMeta( index );
+    stringMeta = new ValueMetaString( field );
+
+    values = new Object[ NR_OF_VALUES ];
+    strings = new Object[ NR_OF_VALUES ];
+    for ( int i = 0; i < NR_OF_VALUES; i++ ) {
+      values[ i ] = BenchmarkRows.createRow( i )[ index ];
+      strings[ i ] = valueMeta.getString( values[ i ] );
+      valueMeta.convertData( stringMeta, strings[ i ] ); // fail early if the round trip doesn't work
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_VALUES )
+  public int compare() throws KettleException {
+    int result = 0;
+    for ( int i = 1; i < NR_OF_VALUES; i++ ) {
+      result += valueMeta.compare( values[ i - 1 ], values[ i ] );
+    }
+    return result + valueMeta.compare( values[ NR_OF_VALUES - 1 ], values[ 0 ] );
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_VALUES )
+  public int hashCodes() throws KettleException {
+    int result = 0;
+    for ( Object value : values ) {
+      result = 31 * result + valueMeta.hashCode( value );
+    }
+    return result;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( NR_OF_VALUES )
+  public void convertData( Blackhole blackhole ) throws KettleException {
+    for ( Object string : strings ) {
+      blackhole.consume( valueMeta.convertData( stringMeta, string ) );
+    }
+  }
+}
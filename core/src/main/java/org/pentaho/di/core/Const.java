@@ -143,6 +143,11 @@ public class Const {
    */
   public static final int ROWS_IN_ROWSET = 10000;
 
+  /**
+   * Maximum number of rows handed over at once by steps that read and write blocks of rows
+   */
+  public static final int ROWS_IN_BATCH = 500;
+
   /**
    * Fetch size in rows when querying a database
    */
@@ -755,6 +760,29 @@ public class Const {
    */
   public static final String KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO = "KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO";
 
+  /**
+   * System wide flag to let Group by and Select values work on blocks of rows column by column, on primitive values and
+   * dictionary encoded strings, and Calculator and Filter rows do simple Integer and Number calculations and conditions
+   * for blocks of rows, when the fields involved allow it. Set to "Y" to enable.
+   */
+  public static final String KETTLE_COLUMNAR_ROW_BATCHES = "KETTLE_COLUMNAR_ROW_BATCHES";
+
+  /**
+   * The compression provider used by the Sort rows step for compressed temporary files, GZip by default.
+   */
+  public static final String KETTLE_SORT_ROWS_COMPRESSION = "KETTLE_SORT_ROWS_COMPRESSION";
+
+  /**
+   * The number of sorted runs the Sort rows step can sort and write to temporary files in the background while it keeps
+   * on reading rows. Every run holds a full sort buffer in memory. 0 (the default) sorts on the step thread.
+   */
+  public static final String KETTLE_SORT_ROWS_PARALLEL_RUNS = "KETTLE_SORT_ROWS_PARALLEL_RUNS";
+
+  /**
+   * The maximum number of temporary files the Sort rows step merges at once, more files are merged in several passes.
+   */
+  public static final String KETTLE_SORT_ROWS_MERGE_WIDTH = "KETTLE_SORT_ROWS_MERGE_WIDTH";
+
   /**
    * This flag will prevent Kettle from converting {@code null} strings to empty strings in {@link org.pentaho.di.core.row.value.ValueMetaBase}
    * The default value is {@code false}.
@@ -877,12 +905,77 @@ public class Const {
    */
   public static final String KETTLE_CARTE_OBJECT_TIMEOUT_MINUTES = "KETTLE_CARTE_OBJECT_TIMEOUT_MINUTES";
 
+  /**
+   * The number of minutes a shared lookup cache no step is attached to stays in memory, warm for the next
+   * transformation. 0 removes it as soon as the last step detaches, a negative value keeps it forever. The default
+   * value is 10.
+   */
+  public static final String KETTLE_SHARED_LOOKUP_CACHE_IDLE_MINUTES = "KETTLE_SHARED_LOOKUP_CACHE_IDLE_MINUTES";
+
+  /**
+   * The priority class of a transformation or job executed on a Carte server with a limited number of execution slots:
+   * HIGH, NORMAL or LOW. Waiting transformations and jobs with a higher priority are started first. The default is
+   * NORMAL.
+   */
+  public static final String KETTLE_CARTE_EXECUTION_PRIORITY = "KETTLE_CARTE_EXECUTION_PRIORITY";
+
+  /**
+   * The memory (in MB) a transformation or job is expected to use on a Carte server with an execution memory budget.
+   * The default is the default_memory_mb of the execution_queue in the Carte configuration.
+   */
+  public static final String KETTLE_CARTE_EXECUTION_MEMORY_MB = "KETTLE_CARTE_EXECUTION_MEMORY_MB";
+
   /**
    * System wide parameter: the maximum number of step performance snapshots to keep in memory. Set to 0 to keep all
    * snapshots indefinitely (default)
    */
   public static final String KETTLE_STEP_PERFORMANCE_SNAPSHOT_LIMIT = "KETTLE_STEP_PERFORMANCE_SNAPSHOT_LIMIT";
 
+  /**
+   * System wide parameter: the memory (in MB) the steps of a transformation can use to buffer rows before they spill to
+   * disk, for transformations that don't set a memory limit themselves. Empty or 0 means no limit (default)
+   */
+  public static final String KETTLE_TRANS_MEMORY_LIMIT = "KETTLE_TRANS_MEMORY_LIMIT";
+
+  /**
+   * System wide parameter: how the steps of a transformation are executed: "thread" (one thread per step copy,
+   * default), "virtual" (one virtual thread per step copy, Java 21 or later) or "pooled" (a pool of worker threads per
+   * transformation)
+   */
+  public static final String KETTLE_STEP_EXECUTION_MODE = "KETTLE_STEP_EXECUTION_MODE";
+
+  /**
+   * System wide parameter: the number of worker threads of the step pools. The default is the number of available
+   * processors
+   */
+  public static final String KETTLE_STEP_POOL_SIZE = "KETTLE_STEP_POOL_SIZE";
+
+  /**
+   * System wide parameter: the maximum number of threads of the step pool shared by the cooperative single threaded
+   * executors. The default is the pool size plus 256
+   */
+  public static final String KETTLE_STEP_POOL_MAX_SIZE = "KETTLE_STEP_POOL_MAX_SIZE";
+
+  /**
+   * How single threaded (sub-)transformations run a batch of rows: "serial" (every step in turn on the calling thread,
+   * default) or "cooperative" (the steps with work to do on the shared step pool, linear chains of steps fused)
+   */
+  public static final String KETTLE_SINGLE_THREADED_SCHEDULER = "KETTLE_SINGLE_THREADED_SCHEDULER";
+
+  /**
+   * Set this variable to Y to send the rows of all the remote steps between two slave servers of a clustered
+   * transformation over one multiplexed connection, in compressed blocks, instead of a socket per hop. Hops with
+   * encrypted streams keep their own socket. The default is N.
+   */
+  public static final String KETTLE_CLUSTER_SOCKETS_MULTIPLEXED = "KETTLE_CLUSTER_SOCKETS_MULTIPLEXED";
+
+  /**
+   * Set this variable to Y to hand out the input of the CSV Input, Text File Input and Table Input steps of a clustered
+   * transformation in chunks from the master, so that slave servers that finish early pull more work instead of
+   * waiting for the slowest one. The default is N: every step copy reads a fixed share of the input.
+   */
+  public static final String KETTLE_CLUSTER_DYNAMIC_SPLITS = "KETTLE_CLUSTER_DYNAMIC_SPLITS";
+
   /**
    * A variable to configure the maximum number of job trackers kept in memory.
    */
@@ -966,6 +1059,11 @@ public class Const {
    */
   public static final String XML_FILE_KETTLE_PARTITION_PLUGINS = "kettle-partition-plugins.xml";
 
+  /**
+   * The XML file that contains the list of native row distribution plugins
+   */
+  public static final String XML_FILE_KETTLE_ROW_DISTRIBUTION_PLUGINS = "kettle-row-distribution-plugins.xml";
+
   /**
    * The name of the environment variable that will contain the alternative location of the kettle-job-entries.xml file
    */
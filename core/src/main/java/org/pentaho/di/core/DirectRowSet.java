@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A row set between two steps that run on the same thread. The rows are not buffered for another thread to pick up:
+ * every time rows are put in the row set the consumer is called right away to process them. The row set never blocks
+ * and is not thread safe, the producer and the consumer have to run on the same thread.
+ */
+public class DirectRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  /**
+   * Processes the rows in a direct row set as soon as they arrive.
+   */
+  public interface Consumer {
+
+    /**
+     * Process the rows in the row set. Called on the thread of the producer, every time rows were put in the row set.
+     */
+    void consume();
+  }
+
+  private final ArrayDeque<Object[]> buffer;
+  private Consumer consumer;
+  private boolean consuming;
+
+  public DirectRowSet() {
+    buffer = new ArrayDeque<Object[]>();
+  }
+
+  /**
+   * @param consumer
+   *          the consumer to call when rows arrive, without a consumer the rows are kept until they are read.
+   */
+  public void setConsumer( Consumer consumer ) {
+    this.consumer = consumer;
+  }
+
+  public Consumer getConsumer() {
+    return consumer;
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    this.rowMeta = rowMeta;
+    buffer.add( rowData );
+    consume();
+    return true;
+  }
+
+  @Override
+  public int putRows( RowMetaInterface rowMeta, Object[][] rows, int offset, int nrRows ) {
+    this.rowMeta = rowMeta;
+    for ( int i = 0; i < nrRows; i++ ) {
+      buffer.add( rows[ offset + i ] );
+    }
+    consume();
+    return nrRows;
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    return putRow( rowMeta, rowData );
+  }
+
+  private void consume() {
+    // A consumer that puts rows back in front of itself doesn't get called recursively, it finds the rows on its own
+    //
+    if ( consumer != null && !consuming ) {
+      consuming = true;
+      try {
+        consumer.consume();
+      } finally {
+        consuming = false;
+      }
+    }
+  }
+
+  @Override
+  public Object[] getRow() {
+    return buffer.poll();
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return buffer.poll();
+  }
+
+  @Override
+  public int getRowsImmediate( Object[][] rows, int offset, int max ) {
+    int nrRows = 0;
+    Object[] row;
+    while ( nrRows < max && ( row = buffer.poll() ) != null ) {
+      rows[ offset + nrRows++ ] = row;
+    }
+    return nrRows;
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    return buffer.poll();
+  }
+
+  @Override
+  public int size() {
+    return buffer.size();
+  }
+
+  @Override
+  public void clear() {
+    buffer.clear();
+    done.set( false );
+  }
+}
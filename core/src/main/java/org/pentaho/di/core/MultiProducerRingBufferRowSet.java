@@ -0,0 +1,195 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A lock-free, bounded row set for any number of producing threads and exactly one consuming thread (multiple
+ * producers, single consumer). Use this one when several threads can write into the same row set, for example a row
+ * producer that is shared by multiple threads feeding a transformation.<br>
+ * <br>
+ * Producers claim a slot by advancing the tail sequence with a compare-and-set and then publish the row in the slot.
+ * The consumer takes a row as soon as the slot at the head sequence is filled. When the buffer is full or empty the
+ * calling thread backs off according to the configured {@link RowSetWaitStrategy} until the timeout expires.
+ *
+ * @see RingBufferRowSet
+ */
+public class MultiProducerRingBufferRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+  private final AtomicReferenceArray<Object[]> buffer;
+  private final int mask;
+  private final int capacity;
+
+  private final PaddedSequence head;
+  private final PaddedSequence tail;
+
+  private final RowSetWaitStrategy waitStrategy;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new multi-producer ring buffer row set using the {@link RowSetWaitStrategy#PARK} wait strategy.
+   *
+   * @param maxSize
+   *          the capacity, rounded up to the next power of 2
+   */
+  public MultiProducerRingBufferRowSet( int maxSize ) {
+    this( maxSize, RowSetWaitStrategy.PARK );
+  }
+
+  /**
+   * Create a new multi-producer ring buffer row set.
+   *
+   * @param maxSize
+   *          the capacity, rounded up to the next power of 2
+   * @param waitStrategy
+   *          the way to wait when the buffer is full or empty
+   */
+  public MultiProducerRingBufferRowSet( int maxSize, RowSetWaitStrategy waitStrategy ) {
+    super();
+
+    capacity = RingBufferRowSet.roundUpToPowerOfTwo( maxSize );
+    mask = capacity - 1;
+    buffer = new AtomicReferenceArray<Object[]>( capacity );
+
+    head = new PaddedSequence( 0L );
+    tail = new PaddedSequence( 0L );
+
+    this.waitStrategy = waitStrategy == null ? RowSetWaitStrategy.PARK : waitStrategy;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    if ( rowData == null ) {
+      return false;
+    }
+
+    long deadline = 0L;
+    int counter = 0;
+    while ( true ) {
+      long sequence = tail.get();
+      if ( sequence - head.get() < capacity ) {
+        if ( tail.compareAndSet( sequence, sequence + 1 ) ) {
+          // The consumer clears the slot before it advances the head so the slot is free.
+          //
+          buffer.lazySet( (int) sequence & mask, rowData );
+          return true;
+        }
+        // Lost the race against another producer: try again right away.
+        //
+        continue;
+      }
+
+      if ( counter == 0 ) {
+        deadline = System.nanoTime() + tu.toNanos( time );
+      } else if ( System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted() ) {
+        return false;
+      }
+      counter = waitStrategy.idle( counter );
+    }
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long sequence = head.get();
+    int index = (int) sequence & mask;
+    Object[] row = buffer.get( index );
+    if ( row == null ) {
+      // Empty, or a producer claimed the slot but did not publish the row yet.
+      //
+      return null;
+    }
+    buffer.lazySet( index, null );
+    head.lazySet( sequence + 1 );
+    return row;
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    Object[] row = getRowImmediate();
+    if ( row != null ) {
+      return row;
+    }
+
+    long deadline = System.nanoTime() + tu.toNanos( timeout );
+    int counter = 0;
+    while ( row == null ) {
+      if ( System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted() ) {
+        return null;
+      }
+      counter = waitStrategy.idle( counter );
+      row = getRowImmediate();
+    }
+    return row;
+  }
+
+  @Override
+  public int size() {
+    long h = head.get();
+    return (int) Math.max( 0L, tail.get() - h );
+  }
+
+  /**
+   * @return the maximum number of rows this row set can hold.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the wait strategy used when the buffer is full or empty.
+   */
+  public RowSetWaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * Clear this row set. This is only safe when no other thread is reading from or writing to it.
+   */
+  @Override
+  public void clear() {
+    for ( int i = 0; i < capacity; i++ ) {
+      buffer.set( i, null );
+    }
+    head.lazySet( tail.get() );
+    done.set( false );
+  }
+}
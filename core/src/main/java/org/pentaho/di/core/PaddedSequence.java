@@ -0,0 +1,70 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A sequence counter padded on both sides so that the producer and consumer counters of a ring buffer row set never
+ * end up on the same cache line (false sharing). Fields of a super class are laid out before the fields of a sub
+ * class, hence the small class hierarchy.
+ */
+@SuppressWarnings( "unused" )
+class PaddedSequence extends PaddedSequenceValue {
+  protected long p9, p10, p11, p12, p13, p14, p15;
+
+  PaddedSequence( long initialValue ) {
+    super( initialValue );
+  }
+}
+
+@SuppressWarnings( "unused" )
+class PaddedSequenceLeft {
+  protected long p1, p2, p3, p4, p5, p6, p7;
+}
+
+class PaddedSequenceValue extends PaddedSequenceLeft {
+  private static final AtomicLongFieldUpdater<PaddedSequenceValue> UPDATER =
+    AtomicLongFieldUpdater.newUpdater( PaddedSequenceValue.class, "value" );
+
+  protected volatile long value;
+
+  PaddedSequenceValue( long initialValue ) {
+    value = initialValue;
+  }
+
+  long get() {
+    return value;
+  }
+
+  /**
+   * Store the value with release semantics only: cheaper than a volatile write and enough for a single writer.
+   */
+  void lazySet( long newValue ) {
+    UPDATER.lazySet( this, newValue );
+  }
+
+  boolean compareAndSet( long expect, long update ) {
+    return UPDATER.compareAndSet( this, expect, update );
+  }
+}
@@ -22,27 +22,36 @@
 
 package org.pentaho.di.core;
 
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.pentaho.di.core.row.RowMetaInterface;
 
 /**
  * A simplified rowset for steps for single threaded execution. This row set has no limited size.
+ * <p>
+ * One step can hand over rows while the next one reads them: the cooperative executor runs the steps of a single
+ * threaded transformation on several workers. The size is kept separately since counting a concurrent queue is slow.
  *
  * @author matt
  */
 public class QueueRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
 
-  private LinkedList<Object[]> buffer;
+  private ConcurrentLinkedQueue<Object[]> buffer;
+  private AtomicInteger bufferSize;
 
   public QueueRowSet() {
-    buffer = new LinkedList<Object[]>();
+    buffer = new ConcurrentLinkedQueue<Object[]>();
+    bufferSize = new AtomicInteger();
   }
 
   @Override
   public Object[] getRow() {
-    Object[] retRow = buffer.pollFirst();
+    Object[] retRow = buffer.poll();
+    if ( retRow != null ) {
+      bufferSize.decrementAndGet();
+    }
     return retRow;
   }
 
@@ -60,6 +69,7 @@ public class QueueRowSet extends BaseRowSet implements Comparable<RowSet>, RowSe
   public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
     this.rowMeta = rowMeta;
     buffer.add( rowData );
+    bufferSize.incrementAndGet();
     return true;
   }
 
@@ -70,12 +80,14 @@ public class QueueRowSet extends BaseRowSet implements Comparable<RowSet>, RowSe
 
   @Override
   public int size() {
-    return buffer.size();
+    return bufferSize.get();
   }
 
   @Override
   public void clear() {
-    buffer.clear();
+    while ( buffer.poll() != null ) {
+      bufferSize.decrementAndGet();
+    }
     done.set( false );
   }
 
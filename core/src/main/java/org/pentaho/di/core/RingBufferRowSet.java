@@ -0,0 +1,280 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A lock-free, bounded row set for exactly one producing and one consuming thread (single producer, single consumer).
+ * This is the case for every regular hop between two step copies: each row set has one origin and one destination
+ * copy.<br>
+ * <br>
+ * Rows are kept in a power-of-two sized ring buffer. The producer only writes the tail sequence and the consumer only
+ * writes the head sequence, so neither side ever takes a lock. When the buffer is full or empty the calling thread
+ * backs off according to the configured {@link RowSetWaitStrategy} until the timeout expires.<br>
+ * <br>
+ * If more than one thread can put rows into the row set, use {@link MultiProducerRingBufferRowSet} instead.
+ */
+public class RingBufferRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+  protected final Object[][] buffer;
+  protected final int mask;
+  protected final int capacity;
+
+  protected final PaddedSequence head;
+  protected final PaddedSequence tail;
+
+  /** The last head sequence seen by the producer, only accessed by the producer thread. */
+  protected long headCache;
+
+  /** The last tail sequence seen by the consumer, only accessed by the consumer thread. */
+  protected long tailCache;
+
+  protected final RowSetWaitStrategy waitStrategy;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new ring buffer row set using the {@link RowSetWaitStrategy#PARK} wait strategy.
+   *
+   * @param maxSize
+   *          the capacity, rounded up to the next power of 2
+   */
+  public RingBufferRowSet( int maxSize ) {
+    this( maxSize, RowSetWaitStrategy.PARK );
+  }
+
+  /**
+   * Create a new ring buffer row set.
+   *
+   * @param maxSize
+   *          the capacity, rounded up to the next power of 2
+   * @param waitStrategy
+   *          the way to wait when the buffer is full or empty
+   */
+  public RingBufferRowSet( int maxSize, RowSetWaitStrategy waitStrategy ) {
+    super();
+
+    capacity = roundUpToPowerOfTwo( maxSize );
+    mask = capacity - 1;
+    buffer = new Object[capacity][];
+
+    head = new PaddedSequence( 0L );
+    tail = new PaddedSequence( 0L );
+
+    this.waitStrategy = waitStrategy == null ? RowSetWaitStrategy.PARK : waitStrategy;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  static int roundUpToPowerOfTwo( int size ) {
+    if ( size <= 1 ) {
+      return 1;
+    }
+    if ( size > ( 1 << 30 ) ) {
+      return 1 << 30;
+    }
+    return Integer.highestOneBit( size - 1 ) << 1;
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    this.rowMeta = rowMeta;
+    if ( rowData == null ) {
+      return false;
+    }
+
+    long sequence = tail.get();
+    if ( sequence - headCache >= capacity ) {
+      headCache = head.get();
+      if ( sequence - headCache >= capacity ) {
+        if ( !waitForSpace( sequence, tu.toNanos( time ) ) ) {
+          return false;
+        }
+      }
+    }
+
+    buffer[ (int) sequence & mask ] = rowData;
+    tail.lazySet( sequence + 1 );
+    return true;
+  }
+
+  /**
+   * Put as many of the rows as fit in the buffer and publish them all at once.
+   */
+  @Override
+  public int putRows( RowMetaInterface rowMeta, Object[][] rows, int offset, int nrRows ) {
+    this.rowMeta = rowMeta;
+    if ( nrRows <= 0 ) {
+      return 0;
+    }
+
+    long sequence = tail.get();
+    if ( sequence - headCache >= capacity ) {
+      headCache = head.get();
+      if ( sequence - headCache >= capacity ) {
+        if ( !waitForSpace( sequence, TimeUnit.MILLISECONDS.toNanos( timeoutPut ) ) ) {
+          return 0;
+        }
+      }
+    }
+
+    int free = (int) ( capacity - ( sequence - headCache ) );
+    int accepted = 0;
+    while ( accepted < nrRows && accepted < free ) {
+      Object[] rowData = rows[ offset + accepted ];
+      if ( rowData == null ) {
+        break;
+      }
+      buffer[ (int) ( sequence + accepted ) & mask ] = rowData;
+      accepted++;
+    }
+    tail.lazySet( sequence + accepted );
+    return accepted;
+  }
+
+  private boolean waitForSpace( long sequence, long timeoutNanos ) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    int counter = 0;
+    while ( sequence - headCache >= capacity ) {
+      if ( System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted() ) {
+        return false;
+      }
+      counter = waitStrategy.idle( counter );
+      headCache = head.get();
+    }
+    return true;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long sequence = head.get();
+    if ( sequence >= tailCache ) {
+      tailCache = tail.get();
+      if ( sequence >= tailCache ) {
+        return null;
+      }
+    }
+    return take( sequence );
+  }
+
+  /**
+   * Take all available rows (up to max) and release their slots at once.
+   */
+  @Override
+  public int getRowsImmediate( Object[][] rows, int offset, int max ) {
+    long sequence = head.get();
+    if ( tailCache - sequence < max ) {
+      tailCache = tail.get();
+    }
+    int nrRows = (int) Math.min( max, tailCache - sequence );
+    if ( nrRows <= 0 ) {
+      return 0;
+    }
+    for ( int i = 0; i < nrRows; i++ ) {
+      int index = (int) ( sequence + i ) & mask;
+      rows[ offset + i ] = buffer[ index ];
+      buffer[ index ] = null; // prevent any hold-up to GC
+    }
+    head.lazySet( sequence + nrRows );
+    return nrRows;
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    Object[] row = getRowImmediate();
+    if ( row != null ) {
+      return row;
+    }
+
+    long deadline = System.nanoTime() + tu.toNanos( timeout );
+    int counter = 0;
+    long sequence = head.get();
+    while ( sequence >= tailCache ) {
+      if ( System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted() ) {
+        return null;
+      }
+      counter = waitStrategy.idle( counter );
+      tailCache = tail.get();
+    }
+    return take( sequence );
+  }
+
+  private Object[] take( long sequence ) {
+    int index = (int) sequence & mask;
+    Object[] row = buffer[ index ];
+    buffer[ index ] = null; // prevent any hold-up to GC
+    head.lazySet( sequence + 1 );
+    return row;
+  }
+
+  @Override
+  public int size() {
+    // Read the head first: that way the result is never negative.
+    //
+    long h = head.get();
+    return (int) ( tail.get() - h );
+  }
+
+  /**
+   * @return the maximum number of rows this row set can hold.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the wait strategy used when the buffer is full or empty.
+   */
+  public RowSetWaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * Clear this row set. This is only safe when no other thread is reading from or writing to it.
+   */
+  @Override
+  public void clear() {
+    for ( int i = 0; i < capacity; i++ ) {
+      buffer[ i ] = null;
+    }
+    long sequence = tail.get();
+    head.lazySet( sequence );
+    headCache = sequence;
+    tailCache = sequence;
+    done.set( false );
+  }
+}
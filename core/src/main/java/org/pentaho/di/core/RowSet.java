@@ -56,6 +56,29 @@ public interface RowSet {
    */
   boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu );
 
+  /**
+   * Offer a block of rows to this rowset. If the buffer is full, wait (block) for a small period of time for room to
+   * become available. Rows are accepted in order: if not all rows fit, the first ones are kept and the caller has to
+   * offer the remaining ones again.
+   *
+   * @param rowMeta
+   *          The description of the row data
+   * @param rows
+   *          the rows of data
+   * @param offset
+   *          the index of the first row in the rows array to offer
+   * @param nrRows
+   *          the number of rows to offer
+   * @return the number of rows that were accepted, 0 if the buffer stayed full.
+   */
+  default int putRows( RowMetaInterface rowMeta, Object[][] rows, int offset, int nrRows ) {
+    int accepted = 0;
+    while ( accepted < nrRows && putRow( rowMeta, rows[ offset + accepted ] ) ) {
+      accepted++;
+    }
+    return accepted;
+  }
+
   /**
    * Get a row from the input buffer, it blocks for a short period until a new row becomes available. Otherwise, it
    * returns null.
@@ -71,6 +94,26 @@ public interface RowSet {
    */
   Object[] getRowImmediate();
 
+  /**
+   * Get the rows that are available in the buffer immediately, without waiting.
+   *
+   * @param rows
+   *          the array to store the rows in
+   * @param offset
+   *          the index in the rows array to store the first row at
+   * @param max
+   *          the maximum number of rows to get
+   * @return the number of rows that were stored in the rows array, 0 if no row was available.
+   */
+  default int getRowsImmediate( Object[][] rows, int offset, int max ) {
+    int nrRows = 0;
+    Object[] row;
+    while ( nrRows < max && ( row = getRowImmediate() ) != null ) {
+      rows[ offset + nrRows++ ] = row;
+    }
+    return nrRows;
+  }
+
   /**
    * get the first row in the list immediately if it is available or wait until timeout
    *
@@ -0,0 +1,111 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Describes how a lock-free row set waits when its buffer is full (producer side) or empty (consumer side).
+ * <p>
+ * Spinning gives the lowest hand-off latency but burns a core per waiting step. Yielding gives the CPU back to the
+ * scheduler after a short spin. Parking escalates from spinning to yielding to sleeping in small, growing slices which
+ * is the right choice when there are more step threads than cores.
+ *
+ * @see RingBufferRowSet
+ * @see MultiProducerRingBufferRowSet
+ */
+public enum RowSetWaitStrategy {
+
+  /** Busy-spin until the buffer becomes available. */
+  SPIN( "spin" ),
+
+  /** Spin for a little while, then yield the CPU. */
+  YIELD( "yield" ),
+
+  /** Spin, then yield, then park the thread for increasing periods of time. */
+  PARK( "park" );
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 200;
+  private static final long MAX_PARK_NANOS = 1000000L; // 1ms
+
+  private final String code;
+
+  RowSetWaitStrategy( String code ) {
+    this.code = code;
+  }
+
+  /**
+   * @return the code used to store this strategy in the transformation metadata.
+   */
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * Wait a little bit. The counter is the number of times the caller already waited for the current operation, it
+   * allows the strategy to back off further on every attempt.
+   *
+   * @param counter
+   *          the number of previous (unsuccessful) attempts, starting at 0.
+   * @return the counter to pass on the next call.
+   */
+  public int idle( int counter ) {
+    switch ( this ) {
+      case SPIN:
+        break;
+      case YIELD:
+        if ( counter >= SPIN_TRIES ) {
+          Thread.yield();
+        }
+        break;
+      default:
+        if ( counter >= SPIN_TRIES + YIELD_TRIES ) {
+          int shift = Math.min( 10, counter - SPIN_TRIES - YIELD_TRIES );
+          LockSupport.parkNanos( Math.min( MAX_PARK_NANOS, 1000L << shift ) );
+        } else if ( counter >= SPIN_TRIES ) {
+          Thread.yield();
+        }
+        break;
+    }
+    return counter == Integer.MAX_VALUE ? counter : counter + 1;
+  }
+
+  /**
+   * Find the wait strategy with the given code. The lookup is case insensitive.
+   *
+   * @param code
+   *          the code to look for
+   * @return the matching strategy or {@link #PARK} if nothing matched.
+   */
+  public static RowSetWaitStrategy getWaitStrategyByCode( String code ) {
+    if ( code != null ) {
+      for ( RowSetWaitStrategy strategy : values() ) {
+        if ( strategy.code.equalsIgnoreCase( code ) ) {
+          return strategy;
+        }
+      }
+    }
+    return PARK;
+  }
+}
@@ -0,0 +1,69 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.cache;
+
+/**
+ * Describes which entries a {@link LookupCache} evicts when it is full.
+ */
+public enum CachePolicy {
+
+  /** Evict the least recently used entry. */
+  LRU( "lru" ),
+
+  /**
+   * Window TinyLFU: new entries go to a small LRU window, from there they are only admitted to the main cache if they
+   * are used more frequently than the entry they would replace. This keeps one-off keys from flushing the hot ones.
+   */
+  TINY_LFU( "tinylfu" );
+
+  private final String code;
+
+  CachePolicy( String code ) {
+    this.code = code;
+  }
+
+  /**
+   * @return the code used to store this policy in the step metadata.
+   */
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * Find the cache policy with the given code. The lookup is case insensitive.
+   *
+   * @param code
+   *          the code to look for
+   * @return the matching policy or null if nothing matched.
+   */
+  public static CachePolicy getPolicyByCode( String code ) {
+    if ( code != null ) {
+      for ( CachePolicy policy : values() ) {
+        if ( policy.code.equalsIgnoreCase( code ) ) {
+          return policy;
+        }
+      }
+    }
+    return null;
+  }
+}
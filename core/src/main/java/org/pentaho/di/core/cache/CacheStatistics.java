@@ -0,0 +1,129 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.cache;
+
+/**
+ * An immutable snapshot of the counters of a {@link LookupCache}.
+ */
+public class CacheStatistics {
+
+  public static final CacheStatistics EMPTY = new CacheStatistics( 0L, 0L, 0L, 0L, 0L, 0L, 0L );
+
+  private final long hits;
+  private final long misses;
+  private final long negativeHits;
+  private final long evictions;
+  private final long expirations;
+  private final long entries;
+  private final long weight;
+
+  public CacheStatistics( long hits, long misses, long negativeHits, long evictions, long expirations, long entries,
+                          long weight ) {
+    this.hits = hits;
+    this.misses = misses;
+    this.negativeHits = negativeHits;
+    this.evictions = evictions;
+    this.expirations = expirations;
+    this.entries = entries;
+    this.weight = weight;
+  }
+
+  /**
+   * @return the number of lookups that found a value
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of lookups that found nothing in the cache
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of lookups that found a cached miss, these are counted as hits as well
+   */
+  public long getNegativeHits() {
+    return negativeHits;
+  }
+
+  /**
+   * @return the number of entries that were removed to stay within the bounds of the cache
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the number of entries that were removed because they outlived the time to live
+   */
+  public long getExpirations() {
+    return expirations;
+  }
+
+  /**
+   * @return the number of entries in the cache
+   */
+  public long getEntries() {
+    return entries;
+  }
+
+  /**
+   * @return the estimated size of the cache in bytes
+   */
+  public long getWeight() {
+    return weight;
+  }
+
+  /**
+   * @return the fraction of the lookups that were served by the cache, 0 if there were no lookups
+   */
+  public double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0.0 : (double) hits / lookups;
+  }
+
+  /**
+   * Adds up the counters of two caches, for example of the copies of a step.
+   *
+   * @param other
+   *          the statistics to add, can be null
+   * @return the combined statistics
+   */
+  public CacheStatistics plus( CacheStatistics other ) {
+    if ( other == null ) {
+      return this;
+    }
+    return new CacheStatistics( hits + other.hits, misses + other.misses, negativeHits + other.negativeHits,
+      evictions + other.evictions, expirations + other.expirations, entries + other.entries, weight + other.weight );
+  }
+
+  @Override
+  public String toString() {
+    return "hits=" + hits + ", misses=" + misses + ", negative hits=" + negativeHits + ", evictions=" + evictions
+      + ", expirations=" + expirations + ", entries=" + entries + ", bytes=" + weight
+      + ", hit rate=" + Math.round( 1000.0 * getHitRate() ) / 10.0 + "%";
+  }
+}
@@ -0,0 +1,130 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.cache;
+
+/**
+ * A count-min sketch with 4-bit counters that estimates how often a key was used recently. The counters are halved
+ * every time the number of increments reaches ten times the capacity so that old popularity fades away.
+ * <p>
+ * Sixteen counters are packed in every long. A key uses four counters in the same group of four, picked by four
+ * different hash functions, its frequency is the smallest of them.
+ */
+class FrequencySketch {
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+  private static final int MAX_TABLE_SIZE = 1 << 26;
+
+  private long[] table;
+  private int tableMask;
+  private int sampleSize;
+  private int size;
+
+  FrequencySketch( long capacity ) {
+    ensureCapacity( capacity );
+  }
+
+  /**
+   * Grows the sketch so that it can tell apart the frequencies of the given number of keys. The collected counts are
+   * lost when the sketch grows.
+   */
+  void ensureCapacity( long capacity ) {
+    int tableSize = (int) Math.min( MAX_TABLE_SIZE, Math.max( 16L, Long.highestOneBit( capacity - 1 ) << 1 ) );
+    if ( table != null && table.length >= tableSize ) {
+      return;
+    }
+    table = new long[ tableSize ];
+    tableMask = tableSize - 1;
+    sampleSize = (int) Math.min( Integer.MAX_VALUE / 10, 10L * tableSize );
+    size = 0;
+  }
+
+  int getCapacity() {
+    return table.length;
+  }
+
+  /**
+   * @return the estimated number of times the key was used recently, at most 15.
+   */
+  int frequency( Object key ) {
+    int hash = spread( key.hashCode() );
+    int start = ( hash & 3 ) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for ( int i = 0; i < 4; i++ ) {
+      int index = indexOf( hash, i );
+      int count = (int) ( ( table[ index ] >>> ( ( start + i ) << 2 ) ) & 0xfL );
+      frequency = Math.min( frequency, count );
+    }
+    return frequency;
+  }
+
+  /**
+   * Counts one more use of the key.
+   */
+  void increment( Object key ) {
+    int hash = spread( key.hashCode() );
+    int start = ( hash & 3 ) << 2;
+    boolean added = false;
+    for ( int i = 0; i < 4; i++ ) {
+      added |= incrementAt( indexOf( hash, i ), start + i );
+    }
+    if ( added && ++size >= sampleSize ) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt( int index, int counter ) {
+    int offset = counter << 2;
+    long mask = 0xfL << offset;
+    if ( ( table[ index ] & mask ) != mask ) {
+      table[ index ] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Halves all the counters.
+   */
+  private void reset() {
+    int odd = 0;
+    for ( int i = 0; i < table.length; i++ ) {
+      odd += Long.bitCount( table[ i ] & ONE_MASK );
+      table[ i ] = ( table[ i ] >>> 1 ) & RESET_MASK;
+    }
+    size = ( size >>> 1 ) - ( odd >>> 2 );
+  }
+
+  private int indexOf( int hash, int i ) {
+    long h = ( hash + SEEDS[ i ] ) * SEEDS[ i ];
+    h += h >>> 32;
+    return ( (int) h ) & tableMask;
+  }
+
+  private static int spread( int x ) {
+    x = ( ( x >>> 16 ) ^ x ) * 0x45d9f3b;
+    x = ( ( x >>> 16 ) ^ x ) * 0x45d9f3b;
+    return ( x >>> 16 ) ^ x;
+  }
+}
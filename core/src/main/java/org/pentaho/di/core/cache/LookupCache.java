@@ -0,0 +1,465 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.cache;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bounded key/value cache for lookup steps. The cache is bounded by a number of entries, by an estimated size in
+ * bytes or both. Entries are evicted according to a {@link CachePolicy} and can expire after a time to live.
+ * <p>
+ * Besides values the cache can remember misses: keys that are known not to have a value. A lookup of such a key
+ * returns {@link #MISSING} so that the caller doesn't have to go to the database again.
+ * <p>
+ * The cache is synchronized so that it can be shared, the methods are cheap enough to not make this a bottleneck.
+ *
+ * @param <K>
+ *          the key type, it needs proper equals() and hashCode() methods
+ * @param <V>
+ *          the value type
+ */
+public class LookupCache<K, V> {
+
+  /**
+   * Estimates the number of bytes an entry takes on the heap.
+   */
+  public interface Weigher<K, V> {
+    /**
+     * @param key
+     *          the key of the entry
+     * @param value
+     *          the value of the entry or null for a cached miss
+     * @return the estimated size of the key and the value in bytes
+     */
+    long weigh( K key, V value );
+  }
+
+  /** The value returned by {@link #get(Object)} for a key that is known to have no value */
+  public static final Object MISSING = new Object();
+
+  /** The estimated overhead of an entry: the node and the hash map entry */
+  static final long ENTRY_OVERHEAD = 80L;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private static final class Node<K, V> {
+    private final K key;
+    private V value;
+    private boolean missing;
+    private long weight;
+    private long expiresAt;
+    private int queue;
+    private Node<K, V> previous;
+    private Node<K, V> next;
+
+    private Node( K key ) {
+      this.key = key;
+    }
+  }
+
+  /** A doubly linked list of nodes, least recently used first */
+  private static final class Queue<K, V> {
+    private Node<K, V> head;
+    private Node<K, V> tail;
+    private long entries;
+    private long weight;
+
+    private void add( Node<K, V> node ) {
+      node.previous = tail;
+      node.next = null;
+      if ( tail == null ) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+      entries++;
+      weight += node.weight;
+    }
+
+    private void remove( Node<K, V> node ) {
+      if ( node.previous == null ) {
+        head = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+      if ( node.next == null ) {
+        tail = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      entries--;
+      weight -= node.weight;
+    }
+
+    private void moveToTail( Node<K, V> node ) {
+      if ( node != tail ) {
+        remove( node );
+        add( node );
+      }
+    }
+
+    private void clear() {
+      head = null;
+      tail = null;
+      entries = 0;
+      weight = 0;
+    }
+  }
+
+  private final CachePolicy policy;
+  private final long maxEntries;
+  private final long maxWeight;
+  private final long timeToLiveNanos;
+  private final Weigher<K, V> weigher;
+
+  private final Map<K, Node<K, V>> map = new HashMap<>();
+  private final Queue<K, V> window = new Queue<>();
+  private final Queue<K, V> probation = new Queue<>();
+  private final Queue<K, V> protectedQueue = new Queue<>();
+  private final FrequencySketch sketch;
+
+  private long hits;
+  private long misses;
+  private long negativeHits;
+  private long evictions;
+  private long expirations;
+
+  /**
+   * Creates a new cache.
+   *
+   * @param policy
+   *          the eviction policy
+   * @param maxEntries
+   *          the maximum number of entries, 0 or less for no limit
+   * @param maxWeight
+   *          the maximum estimated size in bytes, 0 or less for no limit
+   * @param timeToLiveMillis
+   *          the time after which entries expire, 0 or less to keep them until they are evicted
+   * @param weigher
+   *          estimates the size of the entries, can be null when there is no size limit
+   */
+  public LookupCache( CachePolicy policy, long maxEntries, long maxWeight, long timeToLiveMillis,
+                      Weigher<K, V> weigher ) {
+    if ( maxWeight > 0 && weigher == null ) {
+      throw new IllegalArgumentException( "A weigher is needed to limit the size of the cache in bytes" );
+    }
+    this.policy = policy == null ? CachePolicy.LRU : policy;
+    this.maxEntries = Math.max( 0L, maxEntries );
+    this.maxWeight = Math.max( 0L, maxWeight );
+    this.timeToLiveNanos = timeToLiveMillis > 0 ? timeToLiveMillis * 1000000L : 0L;
+    this.weigher = weigher;
+    this.sketch = this.policy == CachePolicy.TINY_LFU ? new FrequencySketch( this.maxEntries > 0 ? this.maxEntries
+      : 1024L ) : null;
+  }
+
+  /**
+   * Looks up a key.
+   *
+   * @param key
+   *          the key to look up
+   * @return the cached value, {@link #MISSING} if the key is known to have no value or null if the key is not in the
+   *         cache
+   */
+  public synchronized Object get( K key ) {
+    if ( sketch != null ) {
+      sketch.increment( key );
+    }
+    Node<K, V> node = map.get( key );
+    if ( node != null && timeToLiveNanos > 0 && node.expiresAt - System.nanoTime() < 0 ) {
+      removeNode( node );
+      expirations++;
+      node = null;
+    }
+    if ( node == null ) {
+      misses++;
+      return null;
+    }
+    hits++;
+    onAccess( node );
+    if ( node.missing ) {
+      negativeHits++;
+      return MISSING;
+    }
+    return node.value;
+  }
+
+  /**
+   * Stores a value in the cache, replacing the value or miss that was there.
+   */
+  public synchronized void put( K key, V value ) {
+    store( key, value, false );
+  }
+
+  /**
+   * Remembers that the key has no value.
+   */
+  public synchronized void putMissing( K key ) {
+    store( key, null, true );
+  }
+
+  /**
+   * Removes a key from the cache.
+   */
+  public synchronized void invalidate( K key ) {
+    Node<K, V> node = map.get( key );
+    if ( node != null ) {
+      removeNode( node );
+    }
+  }
+
+  /**
+   * Removes all the entries from the cache, the statistics are kept.
+   */
+  public synchronized void invalidateAll() {
+    map.clear();
+    window.clear();
+    probation.clear();
+    protectedQueue.clear();
+  }
+
+  /**
+   * @return the number of entries in the cache
+   */
+  public synchronized int size() {
+    return map.size();
+  }
+
+  /**
+   * @return a snapshot of the counters of this cache
+   */
+  public synchronized CacheStatistics getStatistics() {
+    return new CacheStatistics( hits, misses, negativeHits, evictions, expirations, map.size(), getWeight() );
+  }
+
+  public CachePolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Returns a {@link Map} backed by this cache, for code that used a plain map as its cache. Lookups through the map
+   * count in the statistics, cached misses are left out and the entry set is a snapshot.
+   *
+   * @return a map view of this cache
+   */
+  public Map<K, V> asMap() {
+    return new MapView();
+  }
+
+  private long getWeight() {
+    return window.weight + probation.weight + protectedQueue.weight;
+  }
+
+  private void store( K key, V value, boolean missing ) {
+    if ( sketch != null ) {
+      sketch.increment( key );
+    }
+    Node<K, V> node = map.get( key );
+    long weight = weigher == null ? 0L : ENTRY_OVERHEAD + weigher.weigh( key, value );
+    if ( node == null ) {
+      node = new Node<>( key );
+      node.value = value;
+      node.missing = missing;
+      node.weight = weight;
+      node.queue = WINDOW;
+      map.put( key, node );
+      window.add( node );
+      if ( sketch != null && map.size() > sketch.getCapacity() ) {
+        sketch.ensureCapacity( 2L * map.size() );
+      }
+    } else {
+      Queue<K, V> queue = queueOf( node );
+      queue.weight += weight - node.weight;
+      node.value = value;
+      node.missing = missing;
+      node.weight = weight;
+      onAccess( node );
+    }
+    if ( timeToLiveNanos > 0 ) {
+      node.expiresAt = System.nanoTime() + timeToLiveNanos;
+    }
+    evict();
+  }
+
+  private Queue<K, V> queueOf( Node<K, V> node ) {
+    switch ( node.queue ) {
+      case PROBATION:
+        return probation;
+      case PROTECTED:
+        return protectedQueue;
+      default:
+        return window;
+    }
+  }
+
+  private void onAccess( Node<K, V> node ) {
+    if ( node.queue == PROBATION ) {
+      // Used again: promote it to the protected part of the main cache
+      //
+      probation.remove( node );
+      node.queue = PROTECTED;
+      protectedQueue.add( node );
+      while ( protectedQueue.head != null && isOver( protectedQueue, 0.8 * 0.99 ) ) {
+        Node<K, V> demoted = protectedQueue.head;
+        protectedQueue.remove( demoted );
+        demoted.queue = PROBATION;
+        probation.add( demoted );
+      }
+    } else {
+      queueOf( node ).moveToTail( node );
+    }
+  }
+
+  private void removeNode( Node<K, V> node ) {
+    map.remove( node.key );
+    queueOf( node ).remove( node );
+  }
+
+  private boolean isOver( Queue<K, V> queue, double fraction ) {
+    return ( maxEntries > 0 && queue.entries > Math.max( 1L, (long) ( fraction * maxEntries ) ) )
+      || ( maxWeight > 0 && queue.weight > Math.max( 1L, (long) ( fraction * maxWeight ) ) );
+  }
+
+  private boolean isFull() {
+    return ( maxEntries > 0 && map.size() > maxEntries ) || ( maxWeight > 0 && getWeight() > maxWeight );
+  }
+
+  private void evict() {
+    if ( policy == CachePolicy.LRU ) {
+      while ( isFull() && window.head != null ) {
+        evict( window.head );
+      }
+      return;
+    }
+
+    // Move the overflow of the window to the main cache, these are the candidates for admission
+    //
+    Node<K, V> candidate = null;
+    while ( window.head != null && isOver( window, 0.01 ) ) {
+      Node<K, V> node = window.head;
+      window.remove( node );
+      node.queue = PROBATION;
+      probation.add( node );
+      if ( candidate == null ) {
+        candidate = node;
+      }
+    }
+
+    // While the cache is too large, a candidate only stays if it is used more often than the probation victim
+    //
+    while ( isFull() ) {
+      Node<K, V> victim = probation.head;
+      if ( victim == null ) {
+        victim = protectedQueue.head != null ? protectedQueue.head : window.head;
+        if ( victim == null ) {
+          return;
+        }
+        evict( victim );
+      } else if ( candidate == null || candidate == victim ) {
+        if ( candidate == victim ) {
+          candidate = candidate.next;
+        }
+        evict( victim );
+      } else if ( sketch.frequency( candidate.key ) > sketch.frequency( victim.key ) ) {
+        evict( victim );
+      } else {
+        Node<K, V> rejected = candidate;
+        candidate = candidate.next;
+        evict( rejected );
+      }
+    }
+  }
+
+  private void evict( Node<K, V> node ) {
+    removeNode( node );
+    evictions++;
+  }
+
+  private final class MapView extends AbstractMap<K, V> {
+    @SuppressWarnings( "unchecked" )
+    @Override
+    public V get( Object key ) {
+      Object value = LookupCache.this.get( (K) key );
+      return value == MISSING ? null : (V) value;
+    }
+
+    @Override
+    public boolean containsKey( Object key ) {
+      return get( key ) != null;
+    }
+
+    @Override
+    public V put( K key, V value ) {
+      synchronized ( LookupCache.this ) {
+        Node<K, V> node = map.get( key );
+        V previous = node == null || node.missing ? null : node.value;
+        store( key, value, false );
+        return previous;
+      }
+    }
+
+    @Override
+    public V remove( Object key ) {
+      synchronized ( LookupCache.this ) {
+        Node<K, V> node = map.get( key );
+        if ( node == null ) {
+          return null;
+        }
+        removeNode( node );
+        return node.missing ? null : node.value;
+      }
+    }
+
+    @Override
+    public int size() {
+      return LookupCache.this.size();
+    }
+
+    @Override
+    public void clear() {
+      invalidateAll();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+      synchronized ( LookupCache.this ) {
+        Map<K, V> entries = new LinkedHashMap<>();
+        for ( Node<K, V> node : map.values() ) {
+          if ( !node.missing ) {
+            entries.put( node.key, node.value );
+          }
+        }
+        return Collections.unmodifiableMap( entries ).entrySet();
+      }
+    }
+  }
+}
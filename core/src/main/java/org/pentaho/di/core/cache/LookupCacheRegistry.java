@@ -0,0 +1,367 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.EnvUtil;
+
+/**
+ * A registry of lookup caches shared by all the transformations running in the same JVM, typically a Carte server.
+ * Steps that look up the same data attach to the same cache instead of each loading a private copy.
+ * <p>
+ * A shared cache is registered under a name and a signature. The name identifies what is cached, for example the
+ * connection, table and key columns, and is what is used to invalidate caches. The signature holds everything else
+ * that changes the cached values (return fields, defaults, ...) so that steps only share a cache when they would
+ * have stored exactly the same rows.
+ * <p>
+ * Every invalidation empties the cache and increments its version. Steps that loaded the complete table up front use
+ * {@link Entry#isComplete()} to find out that they need to load it again.
+ * <p>
+ * A cache no step is attached to stays registered for a while and is removed after that, see
+ * {@link Const#KETTLE_SHARED_LOOKUP_CACHE_IDLE_MINUTES}.
+ */
+public class LookupCacheRegistry {
+
+  /** The default number of minutes a cache no step is attached to stays registered */
+  public static final int DEFAULT_IDLE_MINUTES = 10;
+
+  /** The time to wait before loading all the rows again after a load failed, doubled for every failure in a row */
+  static final long MIN_LOAD_RETRY_DELAY = 1000L;
+
+  /** The maximum time to wait before loading all the rows again after a load failed */
+  static final long MAX_LOAD_RETRY_DELAY = 5 * 60 * 1000L;
+
+  private static final LookupCacheRegistry instance = new LookupCacheRegistry();
+
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final long idleTime;
+
+  /**
+   * A shared cache and its bookkeeping.
+   */
+  public static class Entry {
+    private final String name;
+    private final String signature;
+    private final LookupCache<?, ?> cache;
+    private final long created;
+    private volatile long version;
+    private volatile boolean complete;
+    private volatile long lastInvalidated;
+    private volatile int attached;
+    private volatile long detached;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private volatile long nextLoadTime;
+    private int loadFailures;
+
+    Entry( String name, String signature, LookupCache<?, ?> cache ) {
+      this.name = name;
+      this.signature = signature;
+      this.cache = cache;
+      this.created = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the name of the cache, shared by all caches of the same data
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the signature of the cache, what sets it apart from other caches with the same name
+     */
+    public String getSignature() {
+      return signature;
+    }
+
+    /**
+     * @return the shared cache
+     */
+    @SuppressWarnings( "unchecked" )
+    public <K, V> LookupCache<K, V> getCache() {
+      return (LookupCache<K, V>) cache;
+    }
+
+    /**
+     * @return the version of the cache, incremented on every invalidation
+     */
+    public long getVersion() {
+      return version;
+    }
+
+    /**
+     * @return true if the cache holds all the rows of the looked up table, false if it's being filled on demand
+     */
+    public boolean isComplete() {
+      return complete;
+    }
+
+    /**
+     * Flags the cache as holding all the rows, unless it was invalidated in the mean time.
+     *
+     * @param loadedVersion
+     *          the version of the cache when loading started
+     * @return true if the cache was flagged as complete
+     */
+    public synchronized boolean setComplete( long loadedVersion ) {
+      if ( version != loadedVersion ) {
+        return false;
+      }
+      complete = true;
+      return true;
+    }
+
+    /**
+     * Start loading all the rows into the cache, unless it is complete, another step is loading it or the last load
+     * failed too recently. Never waits: a step that doesn't get to load the rows looks them up in the database.
+     *
+     * @return true if the caller has to load all the rows and call {@link #endLoad(long, boolean)} afterwards
+     */
+    public boolean tryStartLoad() {
+      if ( complete || System.currentTimeMillis() < nextLoadTime || !loading.compareAndSet( false, true ) ) {
+        return false;
+      }
+      if ( complete ) {
+        // Another step finished loading in the mean time
+        //
+        loading.set( false );
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * End loading all the rows, started with {@link #tryStartLoad()}. After a failure the next load is delayed.
+     *
+     * @param loadedVersion
+     *          the version of the cache when loading started
+     * @param success
+     *          true if all the rows were loaded
+     * @return true if the cache was flagged as complete
+     */
+    public boolean endLoad( long loadedVersion, boolean success ) {
+      try {
+        if ( !success ) {
+          loadFailures++;
+          long delay = MIN_LOAD_RETRY_DELAY << Math.min( loadFailures - 1, 16 );
+          nextLoadTime = System.currentTimeMillis() + Math.min( delay, MAX_LOAD_RETRY_DELAY );
+          return false;
+        }
+        loadFailures = 0;
+        nextLoadTime = 0L;
+        return setComplete( loadedVersion );
+      } finally {
+        loading.set( false );
+      }
+    }
+
+    /**
+     * @return the time the cache was created
+     */
+    public long getCreated() {
+      return created;
+    }
+
+    /**
+     * @return the time the cache was last invalidated or 0 if it never was
+     */
+    public long getLastInvalidated() {
+      return lastInvalidated;
+    }
+
+    /**
+     * @return the number of steps currently using the cache
+     */
+    public int getAttached() {
+      return attached;
+    }
+
+    /**
+     * @return the statistics of the cache
+     */
+    public CacheStatistics getStatistics() {
+      return cache.getStatistics();
+    }
+
+    synchronized void invalidate() {
+      complete = false;
+      version++;
+      lastInvalidated = System.currentTimeMillis();
+      cache.invalidateAll();
+    }
+  }
+
+  LookupCacheRegistry() {
+    this( Const.toLong( EnvUtil.getSystemProperty( Const.KETTLE_SHARED_LOOKUP_CACHE_IDLE_MINUTES ),
+      DEFAULT_IDLE_MINUTES ) * 60000L );
+  }
+
+  /**
+   * @param idleTime
+   *          the time in ms a cache no step is attached to stays registered, negative to keep it forever
+   */
+  LookupCacheRegistry( long idleTime ) {
+    this.idleTime = idleTime;
+  }
+
+  public static LookupCacheRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Attach to the shared cache with the given name and signature, creating it if there is none yet.
+   *
+   * @param name
+   *          the name of the cache
+   * @param signature
+   *          what sets this cache apart from other caches with the same name
+   * @param factory
+   *          creates the cache when it isn't registered yet
+   * @return the registered cache
+   */
+  public synchronized Entry attach( String name, String signature, Supplier<LookupCache<?, ?>> factory ) {
+    evictIdle( System.currentTimeMillis() );
+    String key = getKey( name, signature );
+    Entry entry = entries.get( key );
+    if ( entry == null ) {
+      entry = new Entry( name, signature, factory.get() );
+      entries.put( key, entry );
+    }
+    entry.attached++;
+    return entry;
+  }
+
+  /**
+   * Detach a step from a shared cache. The cache stays registered, warm for the next user, until it was idle for too
+   * long.
+   *
+   * @param entry
+   *          the cache the step attached to
+   */
+  public synchronized void detach( Entry entry ) {
+    if ( entry.attached > 0 ) {
+      entry.attached--;
+    }
+    long now = System.currentTimeMillis();
+    if ( entry.attached == 0 ) {
+      entry.detached = now;
+    }
+    evictIdle( now );
+  }
+
+  /**
+   * Remove the caches no step was attached to for longer than the idle time.
+   *
+   * @return the number of caches that were removed
+   */
+  public synchronized int evictIdle() {
+    return evictIdle( System.currentTimeMillis() );
+  }
+
+  synchronized int evictIdle( long now ) {
+    if ( idleTime < 0 ) {
+      return 0;
+    }
+    int count = 0;
+    Iterator<Entry> iterator = entries.values().iterator();
+    while ( iterator.hasNext() ) {
+      Entry entry = iterator.next();
+      if ( entry.attached == 0 && now - entry.detached >= idleTime ) {
+        entry.invalidate();
+        iterator.remove();
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Invalidate all the caches with the given name.
+   *
+   * @param name
+   *          the name of the caches to invalidate or null to invalidate all caches
+   * @return the number of caches that were invalidated
+   */
+  public synchronized int invalidate( String name ) {
+    int count = 0;
+    for ( Entry entry : entries.values() ) {
+      if ( name == null || name.equals( entry.getName() ) ) {
+        entry.invalidate();
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Remove all the caches with the given name from the registry. Steps that are still using them keep doing so until
+   * they finish but new steps will start with a new, empty, cache.
+   *
+   * @param name
+   *          the name of the caches to remove or null to remove all caches
+   * @return the number of caches that were removed
+   */
+  public synchronized int remove( String name ) {
+    int count = 0;
+    Iterator<Entry> iterator = entries.values().iterator();
+    while ( iterator.hasNext() ) {
+      Entry entry = iterator.next();
+      if ( name == null || name.equals( entry.getName() ) ) {
+        entry.invalidate();
+        iterator.remove();
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the registered caches sorted by name
+   */
+  public synchronized List<Entry> getEntries() {
+    evictIdle( System.currentTimeMillis() );
+    List<Entry> list = new ArrayList<>( entries.values() );
+    Collections.sort( list, new Comparator<Entry>() {
+      @Override
+      public int compare( Entry one, Entry two ) {
+        int cmp = one.getName().compareTo( two.getName() );
+        return cmp != 0 ? cmp : one.getSignature().compareTo( two.getSignature() );
+      }
+    } );
+    return list;
+  }
+
+  private static String getKey( String name, String signature ) {
+    return name + '\n' + signature;
+  }
+}
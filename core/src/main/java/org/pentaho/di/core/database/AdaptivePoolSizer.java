@@ -0,0 +1,126 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Works out the maximum number of active connections of a pool from the contention measured on it.
+ * <p>
+ * The borrows are observed in windows of a fixed length. At the end of a window the pool grows by a quarter when at
+ * least one in ten borrows had to wait longer than {@link #CONTENDED_WAIT_NANOS} for a connection to be returned to
+ * the pool or when a borrow timed out. It shrinks by one connection when nobody had to wait and fewer connections
+ * were in use than allowed. The size never leaves the range between the configured size of the pool and the
+ * configured ceiling.
+ * <p>
+ * A pool is shared by all the transformations that use the same connection, so the contention of all of them is
+ * taken into account.
+ */
+public class AdaptivePoolSizer {
+
+  /**
+   * A borrow that waits longer than this for a connection to be returned to the pool counts as contended.
+   */
+  public static final long CONTENDED_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos( 10 );
+
+  public static final long DEFAULT_WINDOW_MILLIS = 5000L;
+
+  private final int minimumSize;
+  private final int maximumSize;
+  private final long windowNanos;
+
+  private long windowStart;
+  private int borrows;
+  private int contended;
+  private boolean starved;
+  private int peakActive;
+
+  /**
+   * @param minimumSize
+   *          the smallest maximum number of active connections, the configured size of the pool
+   * @param maximumSize
+   *          the largest maximum number of active connections
+   * @param windowMillis
+   *          the length of the measuring window in milliseconds
+   * @param now
+   *          the start of the first window, in {@link System#nanoTime()} terms
+   */
+  public AdaptivePoolSizer( int minimumSize, int maximumSize, long windowMillis, long now ) {
+    this.minimumSize = minimumSize;
+    this.maximumSize = Math.max( minimumSize, maximumSize );
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos( windowMillis );
+    this.windowStart = now;
+  }
+
+  public int getMinimumSize() {
+    return minimumSize;
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Record a borrow and, at the end of a window, size the pool.
+   *
+   * @param now
+   *          the time of the borrow, in {@link System#nanoTime()} terms
+   * @param waitNanos
+   *          how long the borrow waited for a connection to be returned to the pool, 0 if there was one to spare
+   * @param timedOut
+   *          true if no connection became available in time
+   * @param active
+   *          the number of connections in use after the borrow
+   * @param currentSize
+   *          the current maximum number of active connections
+   * @return the new maximum number of active connections, currentSize if it doesn't change
+   */
+  public synchronized int sample( long now, long waitNanos, boolean timedOut, int active, int currentSize ) {
+    borrows++;
+    if ( timedOut ) {
+      starved = true;
+    }
+    if ( timedOut || waitNanos > CONTENDED_WAIT_NANOS ) {
+      contended++;
+    }
+    peakActive = Math.max( peakActive, active );
+
+    if ( now - windowStart < windowNanos ) {
+      return currentSize;
+    }
+
+    int size = currentSize;
+    if ( starved || contended * 10 >= borrows ) {
+      size = Math.min( maximumSize, currentSize + Math.max( 1, currentSize / 4 ) );
+    } else if ( contended == 0 && peakActive < currentSize ) {
+      size = Math.max( minimumSize, currentSize - 1 );
+    }
+
+    windowStart = now;
+    borrows = 0;
+    contended = 0;
+    starved = false;
+    peakActive = 0;
+    return size;
+  }
+}
@@ -266,7 +266,19 @@ public abstract class BaseDatabaseMeta implements Cloneable, DatabaseInterfaceEx
       "logAbandoned", "false",
       "Flag to log stack traces for application code which abandoned a Statement or Connection.\n"
         + "Logging of abandoned Statements and Connections adds overhead for every Connection open or "
-        + "new Statement because a stack trace has to be generated." ), };
+        + "new Statement because a stack trace has to be generated." ),
+
+    new DatabaseConnectionPoolParameter(
+      "adaptiveSizing", "false",
+      "Let the pool grow beyond maxActive while borrowers have to wait for a connection "
+        + "and shrink back to maxActive when they don't.\n"
+        + "The pool grows when one in ten borrows waits longer than 10 milliseconds or when a borrow times out." ),
+    new DatabaseConnectionPoolParameter(
+      "adaptiveMaxActive", null,
+      "The largest number of active connections an adaptive pool can grow to, twice maxActive if not set." ),
+    new DatabaseConnectionPoolParameter(
+      "adaptiveInterval", "5000",
+      "The number of milliseconds between two size adjustments of an adaptive pool." ), };
 
   private static final String FIELDNAME_PROTECTOR = "_";
 
@@ -0,0 +1,177 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+/**
+ * An immutable snapshot of the state and the counters of a {@link MonitoredDataSource}.
+ */
+public class ConnectionPoolStatistics {
+
+  /**
+   * The upper bounds in milliseconds of the buckets of the borrow wait histogram. The last bucket of the histogram
+   * holds the borrows that took longer than the last bound.
+   */
+  public static final long[] WAIT_BUCKET_MILLIS = { 1L, 5L, 10L, 50L, 100L, 500L, 1000L, 5000L };
+
+  private final String name;
+  private final int active;
+  private final int idle;
+  private final int maxActive;
+  private final int waiting;
+  private final long borrows;
+  private final long timeouts;
+  private final long failures;
+  private final long totalWaitNanos;
+  private final long maxWaitNanos;
+  private final long[] waitHistogram;
+  private final long resizes;
+
+  public ConnectionPoolStatistics( String name, int active, int idle, int maxActive, int waiting, long borrows,
+                                   long timeouts, long failures, long totalWaitNanos, long maxWaitNanos,
+                                   long[] waitHistogram, long resizes ) {
+    this.name = name;
+    this.active = active;
+    this.idle = idle;
+    this.maxActive = maxActive;
+    this.waiting = waiting;
+    this.borrows = borrows;
+    this.timeouts = timeouts;
+    this.failures = failures;
+    this.totalWaitNanos = totalWaitNanos;
+    this.maxWaitNanos = maxWaitNanos;
+    this.waitHistogram = waitHistogram;
+    this.resizes = resizes;
+  }
+
+  /**
+   * @return the name of the pool: the connection name, database, host, port and partition
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of connections in use
+   */
+  public int getActive() {
+    return active;
+  }
+
+  /**
+   * @return the number of open connections waiting in the pool
+   */
+  public int getIdle() {
+    return idle;
+  }
+
+  /**
+   * @return the maximum number of connections in use at the same time
+   */
+  public int getMaxActive() {
+    return maxActive;
+  }
+
+  /**
+   * @return the number of threads waiting for a connection
+   */
+  public int getWaiting() {
+    return waiting;
+  }
+
+  /**
+   * @return the number of connections handed out
+   */
+  public long getBorrows() {
+    return borrows;
+  }
+
+  /**
+   * @return the number of borrows that gave up because no connection became available in time
+   */
+  public long getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * @return the number of borrows that failed for another reason, typically because the database refused to connect
+   */
+  public long getFailures() {
+    return failures;
+  }
+
+  /**
+   * @return the average time a successful borrow took in milliseconds, 0 if there were no borrows
+   */
+  public double getAverageWaitMillis() {
+    return borrows == 0 ? 0.0 : totalWaitNanos / 1000000.0 / borrows;
+  }
+
+  /**
+   * @return the longest time a borrow took in milliseconds
+   */
+  public double getMaxWaitMillis() {
+    return maxWaitNanos / 1000000.0;
+  }
+
+  /**
+   * @return the number of borrows per bucket of {@link #WAIT_BUCKET_MILLIS}, with one more bucket for the longer
+   *         waits
+   */
+  public long[] getWaitHistogram() {
+    return waitHistogram.clone();
+  }
+
+  /**
+   * @return the number of times adaptive sizing changed the maximum number of active connections
+   */
+  public long getResizes() {
+    return resizes;
+  }
+
+  /**
+   * @return the histogram as a compact string, for example "&lt;1ms:10 &lt;5ms:2 &gt;5000ms:0"
+   */
+  public String getWaitHistogramString() {
+    StringBuilder string = new StringBuilder();
+    for ( int i = 0; i < waitHistogram.length; i++ ) {
+      if ( i > 0 ) {
+        string.append( ' ' );
+      }
+      if ( i < WAIT_BUCKET_MILLIS.length ) {
+        string.append( '<' ).append( WAIT_BUCKET_MILLIS[ i ] );
+      } else {
+        string.append( '>' ).append( WAIT_BUCKET_MILLIS[ WAIT_BUCKET_MILLIS.length - 1 ] );
+      }
+      string.append( "ms:" ).append( waitHistogram[ i ] );
+    }
+    return string.toString();
+  }
+
+  @Override
+  public String toString() {
+    return name + ": active=" + active + ", idle=" + idle + ", max active=" + maxActive + ", waiting=" + waiting
+      + ", borrows=" + borrows + ", timeouts=" + timeouts + ", failures=" + failures
+      + ", average wait=" + Math.round( getAverageWaitMillis() * 10 ) / 10.0 + "ms"
+      + ", max wait=" + Math.round( getMaxWaitMillis() * 10 ) / 10.0 + "ms";
+  }
+}
@@ -35,8 +35,10 @@ import org.pentaho.di.i18n.BaseMessages;
 import javax.sql.DataSource;
 
 import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
@@ -65,6 +67,12 @@ public class ConnectionPoolUtil {
   public static final String REMOVE_ABANDONED = "removeAbandoned";
   public static final String REMOVE_ABANDONED_TIMEOUT = "removeAbandonedTimeout";
   public static final String LOG_ABANDONED = "logAbandoned";
+  /** Set to Y to let the pool grow while borrowers have to wait, see {@link AdaptivePoolSizer} */
+  public static final String ADAPTIVE_SIZING = "adaptiveSizing";
+  /** The upper bound of the maximum size of an adaptive pool, twice the maximum size by default */
+  public static final String ADAPTIVE_MAX_ACTIVE = "adaptiveMaxActive";
+  /** The interval in milliseconds at which an adaptive pool is resized */
+  public static final String ADAPTIVE_INTERVAL = "adaptiveInterval";
   private static Class<?> PKG = Database.class; // for i18n purposes, needed by Translator2!!
 
   private static ConcurrentMap<String, BasicDataSource> dataSources = new ConcurrentHashMap<String, BasicDataSource>();
@@ -155,6 +163,9 @@ public class ConnectionPoolUtil {
     Properties connectionPoolProperties = new Properties( databaseMeta.getConnectionPoolingProperties() );
     connectionPoolProperties = environmentSubstitute( connectionPoolProperties, databaseMeta );
     setPoolProperties( ds, connectionPoolProperties, initialSize, maximumSize );
+    if ( ds instanceof MonitoredDataSource ) {
+      setAdaptiveSizing( (MonitoredDataSource) ds, connectionPoolProperties );
+    }
     setCredentials( ds, databaseMeta, partitionId );
 
     // add url/driver class
@@ -286,6 +297,17 @@ public class ConnectionPoolUtil {
 
   }
 
+  private static void setAdaptiveSizing( MonitoredDataSource ds, Properties properties ) {
+    if ( !"Y".equalsIgnoreCase( properties.getProperty( ADAPTIVE_SIZING ) )
+      && !"true".equalsIgnoreCase( properties.getProperty( ADAPTIVE_SIZING ) ) ) {
+      return;
+    }
+    int maximumSize = Const.toInt( properties.getProperty( ADAPTIVE_MAX_ACTIVE ), ds.getMaxActive() * 2 );
+    long interval =
+      Const.toLong( properties.getProperty( ADAPTIVE_INTERVAL ), AdaptivePoolSizer.DEFAULT_WINDOW_MILLIS );
+    ds.enableAdaptiveSizing( maximumSize, interval );
+  }
+
   /**
    * This method verifies that it's possible to get connection fron a datasource
    *
@@ -320,7 +342,7 @@ public class ConnectionPoolUtil {
       log.logBasic( BaseMessages.getString( PKG, "Database.CreatingConnectionPool", databaseMeta.getName() ) );
     }
 
-    BasicDataSource ds = new BasicDataSource();
+    BasicDataSource ds = new MonitoredDataSource( buildPoolName( databaseMeta, partitionId ) );
     configureDataSource( ds, databaseMeta, partitionId, initialSize, maximumSize );
     // check if datasource is valid
     testDataSource( ds );
@@ -332,6 +354,19 @@ public class ConnectionPoolUtil {
     }
   }
 
+  /**
+   * @return the state and the counters of the connection pools of this JVM
+   */
+  public static List<ConnectionPoolStatistics> getPoolStatistics() {
+    List<ConnectionPoolStatistics> statistics = new ArrayList<>();
+    for ( BasicDataSource ds : dataSources.values() ) {
+      if ( ds instanceof MonitoredDataSource ) {
+        statistics.add( ( (MonitoredDataSource) ds ).getStatistics() );
+      }
+    }
+    return statistics;
+  }
+
   protected static String buildPoolName( DatabaseMeta dbMeta, String partitionId ) {
     return dbMeta.getName() + Const.NVL( dbMeta.getDatabaseName(), "" )
         + Const.NVL( dbMeta.getHostname(),  ""  ) + Const.NVL( dbMeta.getDatabasePortNumberString(),  ""  )
@@ -469,4 +469,14 @@ public class DB2DatabaseMeta extends BaseDatabaseMeta implements DatabaseInterfa
   public boolean supportsOptionsInURL() {
     return false;
   }
+
+  @Override
+  public boolean supportsBatchLookup() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsMultiColumnInList() {
+    return true;
+  }
 }
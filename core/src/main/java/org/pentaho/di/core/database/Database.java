@@ -91,7 +91,6 @@ import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.plugins.DatabasePluginType;
 import org.pentaho.di.core.plugins.PluginInterface;
 import org.pentaho.di.core.plugins.PluginRegistry;
-import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMeta;
@@ -155,6 +154,11 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
   private RowMetaInterface rowMeta;
 
+  /**
+   * Reads the rows of the last query, built once for its row metadata.
+   */
+  private ResultSetRowReader rowReader;
+
   private int written;
 
   private LogChannelInterface log;
@@ -468,7 +472,16 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
       if ( databaseMeta.getAccessType() == DatabaseMeta.TYPE_ACCESS_JNDI ) {
         this.connection = getDataSource( partitionId ).getConnection();
       } else if ( databaseMeta.isUsingConnectionPool() ) {
-        this.connection = getDataSource( partitionId ).getConnection();
+        DataSource pool = getDataSource( partitionId );
+        long startTime = System.currentTimeMillis();
+        this.connection = pool.getConnection();
+        if ( log.isGatheringMetrics() ) {
+          long time = System.currentTimeMillis() - startTime;
+          log.snap( Metrics.METRIC_DATABASE_POOL_WAIT_SUM_TIME, databaseMeta.getName(), time );
+          log.snap( Metrics.METRIC_DATABASE_POOL_WAIT_MIN_TIME, databaseMeta.getName(), time );
+          log.snap( Metrics.METRIC_DATABASE_POOL_WAIT_MAX_TIME, databaseMeta.getName(), time );
+          log.snap( Metrics.METRIC_DATABASE_POOL_WAIT_COUNT, databaseMeta.getName() );
+        }
         if ( getConnection().getAutoCommit() != isAutoCommit() ) {
           setAutoCommit( isAutoCommit() );
         }
@@ -2779,7 +2792,8 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   }
 
   /**
-   * Get a row from the resultset.
+   * Get a row from the resultset. The values are read with a {@link ResultSetRowReader} that is built for rowInfo on the
+   * first call and kept for as long as the same row metadata is passed in.
    *
    * @param rs The resultset to get the row from
    * @return one row or null if no row was found on the resultset or if an error occurred.
@@ -2790,20 +2804,15 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
 
     try {
 
-      int nrcols = rowInfo.size();
-      Object[] data = RowDataUtil.allocateRowData( nrcols );
+      if ( rowReader == null || !rowReader.isReaderFor( rowInfo ) ) {
+        rowReader = new ResultSetRowReader( databaseMeta, rowInfo );
+      }
 
       if ( rs.next() ) {
-        for ( int i = 0; i < nrcols; i++ ) {
-          ValueMetaInterface val = rowInfo.getValueMeta( i );
-
-          data[ i ] = databaseMeta.getValueFromResultSet( rs, val, i );
-        }
+        return rowReader.readRow( rs );
       } else {
-        data = null;
+        return null;
       }
-
-      return data;
     } catch ( Exception ex ) {
       throw new KettleDatabaseException( "Couldn't get row from result set", ex );
     } finally {
@@ -3161,6 +3170,33 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     }
   }
 
+  /**
+   * Execute a lookup query for many keys at once and return all the rows that were found. The return row metadata of
+   * this connection (see {@link #getReturnRowMeta()}) is left alone, so these lookups can be mixed with single row
+   * lookups on the same connection.
+   *
+   * @param ps the prepared lookup statement, with all parameters set
+   * @return the rows found, they all share the same row metadata
+   * @throws KettleDatabaseException
+   */
+  public List<RowMetaAndData> getLookupRows( PreparedStatement ps ) throws KettleDatabaseException {
+    log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_START, databaseMeta.getName() );
+    try ( ResultSet res = ps.executeQuery() ) {
+      RowMetaInterface resultMeta = getRowInfo( res.getMetaData(), databaseMeta.isMySQLVariant(), false );
+      List<RowMetaAndData> rows = new ArrayList<>();
+      Object[] row = getRow( res, null, resultMeta );
+      while ( row != null ) {
+        rows.add( new RowMetaAndData( resultMeta, row ) );
+        row = getRow( res, null, resultMeta );
+      }
+      return rows;
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Error looking up rows in database", ex );
+    } finally {
+      log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_STOP, databaseMeta.getName() );
+    }
+  }
+
   public DatabaseMetaData getDatabaseMetaData() throws KettleDatabaseException {
     if ( dbmd == null ) {
       try {
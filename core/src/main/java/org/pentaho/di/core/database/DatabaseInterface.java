@@ -1262,6 +1262,22 @@ public interface DatabaseInterface extends Cloneable {
     return "";
   }
 
+  /**
+   * @return true if the lookup of many keys can be combined into a single query: an IN list for a single key column or
+   *         a list of OR-ed conditions for compound keys. Used by the batched mode of the Database Lookup step.
+   */
+  default boolean supportsBatchLookup() {
+    return false;
+  }
+
+  /**
+   * @return true if the database accepts row value constructors in an IN list, for example
+   *         <code>WHERE (a, b) IN ((?, ?), (?, ?))</code>
+   */
+  default boolean supportsMultiColumnInList() {
+    return false;
+  }
+
   /**
    * Allows to get the column name for JDBC drivers with different behavior for aliases depending on the connector version.
    *
@@ -2306,6 +2306,11 @@ public class DatabaseMeta extends SharedObjectBase implements Cloneable, XMLInte
       r.addValue( par, ValueMetaInterface.TYPE_STRING, "supports batch updates" );
       r.addValue( val, ValueMetaInterface.TYPE_STRING, supportsBatchUpdates() ? "Y" : "N" );
       list.add( r );
+      // supports batched lookups
+      r = new RowMetaAndData();
+      r.addValue( par, ValueMetaInterface.TYPE_STRING, "supports batched lookups" );
+      r.addValue( val, ValueMetaInterface.TYPE_STRING, supportsBatchLookup() ? "Y" : "N" );
+      list.add( r );
       // supports boolean values
       r = new RowMetaAndData();
       r.addValue( par, ValueMetaInterface.TYPE_STRING, "supports boolean data type" );
@@ -2330,6 +2335,20 @@ public class DatabaseMeta extends SharedObjectBase implements Cloneable, XMLInte
     return databaseInterface.supportsBatchUpdates();
   }
 
+  /**
+   * @return true if the lookup of many keys can be combined into a single query with an IN list or OR-ed conditions.
+   */
+  public boolean supportsBatchLookup() {
+    return databaseInterface.supportsBatchLookup();
+  }
+
+  /**
+   * @return true if the database accepts row value constructors in an IN list: WHERE (a, b) IN ((?, ?), (?, ?))
+   */
+  public boolean supportsMultiColumnInList() {
+    return databaseInterface.supportsMultiColumnInList();
+  }
+
   /**
    * @return true if the database supports a boolean, bit, logical, ... datatype
    */
@@ -285,4 +285,13 @@ public class H2DatabaseMeta extends BaseDatabaseMeta implements DatabaseInterfac
     return false;
   }
 
+  @Override
+  public boolean supportsBatchLookup() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsMultiColumnInList() {
+    return true;
+  }
 }
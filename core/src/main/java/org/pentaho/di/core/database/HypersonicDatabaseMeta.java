@@ -303,4 +303,8 @@ public class HypersonicDatabaseMeta extends BaseDatabaseMeta implements Database
         + " FROM INFORMATION_SCHEMA.SYSTEM_SEQUENCES WHERE SEQUENCE_NAME = '" + sequenceName + "'";
   }
 
+  @Override
+  public boolean supportsBatchLookup() {
+    return true;
+  }
 }
@@ -540,4 +540,8 @@ public class MSSQLServerDatabaseMeta extends BaseDatabaseMeta implements Databas
     return 8000;
   }
 
+  @Override
+  public boolean supportsBatchLookup() {
+    return true;
+  }
 }
@@ -0,0 +1,194 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.dbcp.BasicDataSource;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A DBCP data source that measures how long it takes to borrow a connection and, optionally, sizes the pool after the
+ * contention it sees.
+ * <p>
+ * The counters are kept for the life time of the pool and can be read with {@link #getStatistics()}. They are listed
+ * by the /kettle/connectionPools servlet of Carte.
+ */
+public class MonitoredDataSource extends BasicDataSource {
+
+  private static final long[] WAIT_BUCKET_NANOS = new long[ ConnectionPoolStatistics.WAIT_BUCKET_MILLIS.length ];
+
+  static {
+    for ( int i = 0; i < WAIT_BUCKET_NANOS.length; i++ ) {
+      WAIT_BUCKET_NANOS[ i ] = TimeUnit.MILLISECONDS.toNanos( ConnectionPoolStatistics.WAIT_BUCKET_MILLIS[ i ] );
+    }
+  }
+
+  private final String poolName;
+
+  private final LongAdder borrows = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder totalWaitNanos = new LongAdder();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private final LongAdder[] waitHistogram = new LongAdder[ WAIT_BUCKET_NANOS.length + 1 ];
+  private final AtomicInteger waiting = new AtomicInteger();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final LongAdder resizes = new LongAdder();
+
+  private volatile AdaptivePoolSizer sizer;
+  private int baseMaxIdle;
+
+  /**
+   * @param poolName
+   *          the name under which the pool is reported, without credentials
+   */
+  public MonitoredDataSource( String poolName ) {
+    this.poolName = poolName;
+    for ( int i = 0; i < waitHistogram.length; i++ ) {
+      waitHistogram[ i ] = new LongAdder();
+    }
+  }
+
+  public String getPoolName() {
+    return poolName;
+  }
+
+  /**
+   * Let the pool grow beyond its configured maximum number of active connections when borrowers have to wait, and
+   * shrink back when they don't. The configured maximum is used as the lower bound, the number of idle connections
+   * kept is raised along with the size.
+   *
+   * @param maximumSize
+   *          the largest maximum number of active connections
+   * @param windowMillis
+   *          the interval in milliseconds at which the size is reconsidered
+   */
+  public synchronized void enableAdaptiveSizing( int maximumSize, long windowMillis ) {
+    baseMaxIdle = getMaxIdle();
+    sizer = new AdaptivePoolSizer( getMaxActive(), maximumSize, windowMillis, System.nanoTime() );
+  }
+
+  public AdaptivePoolSizer getAdaptivePoolSizer() {
+    return sizer;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    long start = System.nanoTime();
+    waiting.incrementAndGet();
+
+    // Only a borrow that finds all the connections in use, or other borrowers waiting for one, waits for the pool.
+    // Other borrows are slow because a connection is opened or validated, a larger pool wouldn't help them.
+    //
+    boolean exhausted = queued.get() > 0 || isExhausted();
+    if ( exhausted ) {
+      queued.incrementAndGet();
+    }
+    try {
+      Connection connection = borrowConnection();
+      long wait = System.nanoTime() - start;
+      recordWait( wait );
+      borrows.increment();
+      totalWaitNanos.add( wait );
+      adapt( exhausted ? wait : 0L, false );
+      return connection;
+    } catch ( SQLException e ) {
+      long wait = System.nanoTime() - start;
+      if ( e.getCause() instanceof NoSuchElementException ) {
+        // DBCP reports an exhausted pool and a borrow that waited too long with a NoSuchElementException
+        //
+        recordWait( wait );
+        timeouts.increment();
+        adapt( wait, true );
+      } else {
+        failures.increment();
+      }
+      throw e;
+    } finally {
+      waiting.decrementAndGet();
+      if ( exhausted ) {
+        queued.decrementAndGet();
+      }
+    }
+  }
+
+  @VisibleForTesting
+  Connection borrowConnection() throws SQLException {
+    return super.getConnection();
+  }
+
+  private boolean isExhausted() {
+    int maxActive = getMaxActive();
+    return maxActive > 0 && getNumActive() >= maxActive;
+  }
+
+  private void recordWait( long wait ) {
+    int bucket = 0;
+    while ( bucket < WAIT_BUCKET_NANOS.length && wait >= WAIT_BUCKET_NANOS[ bucket ] ) {
+      bucket++;
+    }
+    waitHistogram[ bucket ].increment();
+    maxWaitNanos.accumulateAndGet( wait, Math::max );
+  }
+
+  private void adapt( long wait, boolean timedOut ) {
+    AdaptivePoolSizer adaptivePoolSizer = sizer;
+    if ( adaptivePoolSizer == null ) {
+      return;
+    }
+    int currentSize = getMaxActive();
+    int size = adaptivePoolSizer.sample( System.nanoTime(), wait, timedOut, getNumActive(), currentSize );
+    if ( size != currentSize ) {
+      resize( size );
+    }
+  }
+
+  private synchronized void resize( int size ) {
+    if ( baseMaxIdle >= 0 ) {
+      setMaxIdle( baseMaxIdle + size - sizer.getMinimumSize() );
+    }
+    setMaxActive( size );
+    resizes.increment();
+  }
+
+  /**
+   * @return a snapshot of the state and the counters of the pool
+   */
+  public ConnectionPoolStatistics getStatistics() {
+    long[] histogram = new long[ waitHistogram.length ];
+    for ( int i = 0; i < histogram.length; i++ ) {
+      histogram[ i ] = waitHistogram[ i ].sum();
+    }
+    return new ConnectionPoolStatistics( poolName, getNumActive(), getNumIdle(), getMaxActive(), waiting.get(),
+      borrows.sum(), timeouts.sum(), failures.sum(), totalWaitNanos.sum(), maxWaitNanos.get(), histogram,
+      resizes.sum() );
+  }
+}
@@ -553,4 +553,14 @@ public class MySQLDatabaseMeta extends BaseDatabaseMeta implements DatabaseInter
       throw new KettleDatabaseException( String.format( "%s: %s", BaseMessages.getString( PKG, "MySQLDatabaseMeta.Exception.LegacyColumnNameException" ), e.getMessage() ), e );
     }
   }
+
+  @Override
+  public boolean supportsBatchLookup() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsMultiColumnInList() {
+    return true;
+  }
 }
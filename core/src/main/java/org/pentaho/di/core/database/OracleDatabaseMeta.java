@@ -668,4 +668,13 @@ public class OracleDatabaseMeta extends BaseDatabaseMeta implements DatabaseInte
     getAttributes().setProperty( STRICT_BIGNUMBER_INTERPRETATION, strictBigNumberInterpretation ? "Y" : "N" );
   }
 
+  @Override
+  public boolean supportsBatchLookup() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsMultiColumnInList() {
+    return true;
+  }
 }
@@ -572,4 +572,14 @@ public class PostgreSQLDatabaseMeta extends BaseDatabaseMeta implements Database
   public int getMaxTextFieldLength() {
     return GB_LIMIT;
   }
+
+  @Override
+  public boolean supportsBatchLookup() {
+    return true;
+  }
+
+  @Override
+  public boolean supportsMultiColumnInList() {
+    return true;
+  }
 }
@@ -0,0 +1,411 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import java.sql.Blob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.ColumnVector;
+import org.pentaho.di.core.row.batch.DoubleColumnVector;
+import org.pentaho.di.core.row.batch.LongColumnVector;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+
+/**
+ * Reads the rows of a result set into Object[] rows or column vectors.
+ * <p>
+ * {@link DatabaseMeta#getValueFromResultSet(ResultSet, ValueMetaInterface, int)} works out how to read a value for
+ * every value of every row: it goes through the database interface and the value metadata and switches on the type,
+ * the storage type and the database capabilities each time. This reader makes those decisions once per query and keeps
+ * one column reader per field that only calls the matching typed getter of the result set. Wide result sets no longer
+ * spend most of their time on dispatch.
+ * <p>
+ * The specialised readers do exactly what {@link ValueMetaBase#getValueFromResultSet(DatabaseInterface, ResultSet,
+ * int)} does. They are only used when neither the database interface nor the value metadata override the way values
+ * are read. Everything else, like the Netezza date workaround or the Timestamp and Internet Address types, goes through
+ * the generic call.
+ */
+public class ResultSetRowReader {
+
+  private final RowMetaInterface rowMeta;
+  private final int size;
+  private final ColumnReader[] readers;
+
+  /**
+   * Build a reader for the rows of a query.
+   *
+   * @param databaseMeta
+   *          the database the result set comes from
+   * @param rowMeta
+   *          the layout of the result set rows, as returned by {@link Database#getReturnRowMeta()}
+   */
+  public ResultSetRowReader( DatabaseMeta databaseMeta, RowMetaInterface rowMeta ) {
+    this.rowMeta = rowMeta;
+    this.size = rowMeta.size();
+    this.readers = new ColumnReader[ size ];
+
+    DatabaseInterface databaseInterface = databaseMeta.getDatabaseInterface();
+    boolean standardDatabase = isStandard( databaseInterface );
+    for ( int i = 0; i < size; i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      ColumnReader reader = null;
+      if ( standardDatabase && isStandard( valueMeta ) ) {
+        reader = createReader( databaseInterface, valueMeta, i + 1 );
+      }
+      if ( reader == null ) {
+        reader = new GenericReader( databaseMeta, valueMeta, i );
+      }
+      readers[ i ] = reader;
+    }
+  }
+
+  /**
+   * @return true if this reader was built for the given row metadata
+   */
+  public boolean isReaderFor( RowMetaInterface rowMeta ) {
+    return this.rowMeta == rowMeta && size == rowMeta.size();
+  }
+
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * Read the current row of the result set. The caller positions the cursor.
+   *
+   * @param rs
+   *          the result set, on the row to read
+   * @return the row data
+   * @throws KettleDatabaseException
+   *           in case a value can't be read
+   */
+  public Object[] readRow( ResultSet rs ) throws KettleDatabaseException {
+    Object[] data = RowDataUtil.allocateRowData( size );
+    int i = 0;
+    try {
+      for ( ; i < size; i++ ) {
+        data[ i ] = readers[ i ].read( rs );
+      }
+    } catch ( SQLException e ) {
+      throw new KettleDatabaseException( "Unable to get value '" + rowMeta.getValueMeta( i ).toStringMeta()
+        + "' from database resultset, index " + i, e );
+    }
+    return data;
+  }
+
+  /**
+   * Create empty column vectors for the fields of the result set, to be filled by
+   * {@link #readVectors(ResultSet, ColumnVector[])}.
+   *
+   * @param rows
+   *          the number of rows the vectors can hold
+   * @return one vector per field
+   */
+  public ColumnVector[] createVectors( int rows ) {
+    ColumnVector[] vectors = new ColumnVector[ size ];
+    for ( int i = 0; i < size; i++ ) {
+      vectors[ i ] = ColumnVector.create( rowMeta.getValueMeta( i ), rows );
+    }
+    return vectors;
+  }
+
+  /**
+   * Read the next rows of the result set straight into column vectors. Integer and Number fields go to the primitive
+   * vectors without boxing the values.
+   *
+   * @param rs
+   *          the result set, the cursor is moved with {@link ResultSet#next()}
+   * @param vectors
+   *          the vectors to fill, as created by {@link #createVectors(int)}
+   * @return the number of rows read, less than the size of the vectors once the result set is exhausted. The values of
+   *         the rows after that are left as they were.
+   * @throws KettleDatabaseException
+   *           in case the rows can't be read
+   */
+  public int readVectors( ResultSet rs, ColumnVector[] vectors ) throws KettleDatabaseException {
+    int capacity = vectors.length == 0 ? 0 : vectors[ 0 ].size();
+    int row = 0;
+    int i = 0;
+    try {
+      while ( row < capacity && rs.next() ) {
+        for ( i = 0; i < size; i++ ) {
+          readers[ i ].read( rs, vectors[ i ], row );
+        }
+        row++;
+      }
+    } catch ( SQLException e ) {
+      throw new KettleDatabaseException( "Unable to get value '" + rowMeta.getValueMeta( i ).toStringMeta()
+        + "' from database resultset, index " + i, e );
+    }
+    return row;
+  }
+
+  /**
+   * @return true if the database reads values the way {@link BaseDatabaseMeta} does
+   */
+  static boolean isStandard( DatabaseInterface databaseInterface ) {
+    if ( databaseInterface == null ) {
+      return false;
+    }
+    try {
+      return databaseInterface.getClass().getMethod( "getValueFromResultSet", ResultSet.class,
+        ValueMetaInterface.class, int.class ).getDeclaringClass() == BaseDatabaseMeta.class;
+    } catch ( NoSuchMethodException e ) {
+      return false;
+    }
+  }
+
+  /**
+   * @return true if the value metadata reads values the way {@link ValueMetaBase} does
+   */
+  static boolean isStandard( ValueMetaInterface valueMeta ) {
+    try {
+      return valueMeta.getClass().getMethod( "getValueFromResultSet", DatabaseInterface.class, ResultSet.class,
+        int.class ).getDeclaringClass() == ValueMetaBase.class;
+    } catch ( NoSuchMethodException e ) {
+      return false;
+    }
+  }
+
+  /**
+   * @return the specialised reader for the field or null if the generic call has to be used
+   */
+  private static ColumnReader createReader( DatabaseInterface databaseInterface, ValueMetaInterface valueMeta,
+    int column ) {
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return new BooleanReader( column );
+      case ValueMetaInterface.TYPE_NUMBER:
+        return new NumberReader( column );
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        return new BigNumberReader( column );
+      case ValueMetaInterface.TYPE_INTEGER:
+        return new IntegerReader( column );
+      case ValueMetaInterface.TYPE_STRING:
+        return valueMeta.isStorageBinaryString() ? new BytesReader( column ) : new StringReader( column );
+      case ValueMetaInterface.TYPE_BINARY:
+        return databaseInterface.supportsGetBlob() ? new BlobReader( column ) : new BytesReader( column );
+      case ValueMetaInterface.TYPE_DATE:
+        if ( valueMeta.getPrecision() != 1 && databaseInterface.supportsTimeStampToDateConversion() ) {
+          return new TimestampReader( column );
+        } else if ( databaseInterface instanceof NetezzaDatabaseMeta ) {
+          return null;
+        } else {
+          return new DateReader( column );
+        }
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Reads the value of one field from the current row of a result set.
+   */
+  private abstract static class ColumnReader {
+
+    /**
+     * @return the value of the field, null for a SQL NULL
+     */
+    abstract Object read( ResultSet rs ) throws SQLException, KettleDatabaseException;
+
+    void read( ResultSet rs, ColumnVector vector, int row ) throws SQLException, KettleDatabaseException {
+      vector.setObject( row, read( rs ) );
+    }
+  }
+
+  private static class GenericReader extends ColumnReader {
+    private final DatabaseMeta databaseMeta;
+    private final ValueMetaInterface valueMeta;
+    private final int index;
+
+    GenericReader( DatabaseMeta databaseMeta, ValueMetaInterface valueMeta, int index ) {
+      this.databaseMeta = databaseMeta;
+      this.valueMeta = valueMeta;
+      this.index = index;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws KettleDatabaseException {
+      return databaseMeta.getValueFromResultSet( rs, valueMeta, index );
+    }
+  }
+
+  private static class BooleanReader extends ColumnReader {
+    private final int column;
+
+    BooleanReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      boolean value = rs.getBoolean( column );
+      return rs.wasNull() ? null : Boolean.valueOf( value );
+    }
+  }
+
+  private static class NumberReader extends ColumnReader {
+    private final int column;
+
+    NumberReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      double value = rs.getDouble( column );
+      return rs.wasNull() ? null : Double.valueOf( value );
+    }
+
+    @Override
+    void read( ResultSet rs, ColumnVector vector, int row ) throws SQLException {
+      if ( vector instanceof DoubleColumnVector ) {
+        double value = rs.getDouble( column );
+        if ( rs.wasNull() ) {
+          vector.setNull( row );
+        } else {
+          ( (DoubleColumnVector) vector ).setDouble( row, value );
+        }
+      } else {
+        vector.setObject( row, read( rs ) );
+      }
+    }
+  }
+
+  private static class IntegerReader extends ColumnReader {
+    private final int column;
+
+    IntegerReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      long value = rs.getLong( column );
+      return rs.wasNull() ? null : Long.valueOf( value );
+    }
+
+    @Override
+    void read( ResultSet rs, ColumnVector vector, int row ) throws SQLException {
+      if ( vector instanceof LongColumnVector ) {
+        long value = rs.getLong( column );
+        if ( rs.wasNull() ) {
+          vector.setNull( row );
+        } else {
+          ( (LongColumnVector) vector ).setLong( row, value );
+        }
+      } else {
+        vector.setObject( row, read( rs ) );
+      }
+    }
+  }
+
+  private static class BigNumberReader extends ColumnReader {
+    private final int column;
+
+    BigNumberReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      Object value = rs.getBigDecimal( column );
+      return rs.wasNull() ? null : value;
+    }
+  }
+
+  private static class StringReader extends ColumnReader {
+    private final int column;
+
+    StringReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      Object value = rs.getString( column );
+      return rs.wasNull() ? null : value;
+    }
+  }
+
+  private static class BytesReader extends ColumnReader {
+    private final int column;
+
+    BytesReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      Object value = rs.getBytes( column );
+      return rs.wasNull() ? null : value;
+    }
+  }
+
+  private static class BlobReader extends ColumnReader {
+    private final int column;
+
+    BlobReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      Blob blob = rs.getBlob( column );
+      Object value = blob != null ? blob.getBytes( 1L, (int) blob.length() ) : null;
+      return rs.wasNull() ? null : value;
+    }
+  }
+
+  private static class TimestampReader extends ColumnReader {
+    private final int column;
+
+    TimestampReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      Object value = rs.getTimestamp( column );
+      return rs.wasNull() ? null : value;
+    }
+  }
+
+  private static class DateReader extends ColumnReader {
+    private final int column;
+
+    DateReader( int column ) {
+      this.column = column;
+    }
+
+    @Override
+    Object read( ResultSet rs ) throws SQLException {
+      Object value = rs.getDate( column );
+      return rs.wasNull() ? null : value;
+    }
+  }
+}
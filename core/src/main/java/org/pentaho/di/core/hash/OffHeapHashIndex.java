@@ -0,0 +1,241 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.core.hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * An open addressing hash index of serialized keys and values that lives outside of the Java heap. Keys and values are
+ * appended to large direct memory slabs, the slot table only keeps the hash code and the location of every record. This
+ * keeps the number of objects the garbage collector needs to look at constant, no matter how many rows are stored.
+ * <p>
+ * Keys are compared byte by byte so they need to be serialized in a consistent way, for example with
+ * {@link org.pentaho.di.core.row.RowMeta#extractData(org.pentaho.di.core.row.RowMetaInterface, Object[])}. The index is
+ * not thread safe.
+ */
+public class OffHeapHashIndex {
+
+  private static final int STANDARD_INDEX_SIZE = 512;
+  private static final float STANDARD_LOAD_FACTOR = 0.75f;
+
+  public static final int DEFAULT_SLAB_SIZE = 16 * 1024 * 1024;
+
+  // A slot holds the record location + 1 (0 means empty) followed by the hash code of the key
+  //
+  private static final int SLOT_SIZE = 12;
+  private static final int HASH_OFFSET = 8;
+
+  // A record holds the key length, the value length, the key and the value
+  //
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private final int slabSize;
+  private final List<ByteBuffer> slabs;
+  private ByteBuffer currentSlab;
+  private long slabMemory;
+
+  private OffHeapSlots slots;
+  private int size;
+  private int resizeThresHold;
+
+  /**
+   * Create a new off-heap hash index
+   *
+   * @param size
+   *          the initial number of slots in the index
+   * @param slabSize
+   *          the size of the memory blocks in which keys and values are stored
+   * @throws KettleValueException
+   *           in case the index can't be allocated
+   */
+  public OffHeapHashIndex( int size, int slabSize ) throws KettleValueException {
+    this.slabSize = slabSize;
+    this.slabs = new ArrayList<ByteBuffer>();
+    this.slots = new OffHeapSlots( OffHeapSlots.capacityFor( size ), SLOT_SIZE );
+    this.resizeThresHold = (int) ( slots.getCapacity() * STANDARD_LOAD_FACTOR );
+  }
+
+  public OffHeapHashIndex() throws KettleValueException {
+    this( STANDARD_INDEX_SIZE, DEFAULT_SLAB_SIZE );
+  }
+
+  /**
+   * @return the number of keys in the index
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the number of bytes of direct memory allocated by this index
+   */
+  public long getMemoryFootprint() {
+    return slots.getMemorySize() + slabMemory;
+  }
+
+  public byte[] get( byte[] key ) {
+    int hashCode = generateHashCode( key );
+    int mask = slots.getCapacity() - 1;
+    int slot = hashCode & mask;
+
+    long location = slots.getLong( slot, 0 );
+    while ( location != 0L ) {
+      if ( slots.getInt( slot, HASH_OFFSET ) == hashCode && equalsKey( location - 1, key ) ) {
+        return readValue( location - 1 );
+      }
+      slot = ( slot + 1 ) & mask;
+      location = slots.getLong( slot, 0 );
+    }
+    return null;
+  }
+
+  public void put( byte[] key, byte[] value ) throws KettleValueException {
+    int hashCode = generateHashCode( key );
+    int mask = slots.getCapacity() - 1;
+    int slot = hashCode & mask;
+
+    long location = slots.getLong( slot, 0 );
+    while ( location != 0L ) {
+      if ( slots.getInt( slot, HASH_OFFSET ) == hashCode && equalsKey( location - 1, key ) ) {
+        // Same key: overwrite the value in place if it fits, otherwise append a new record.
+        // The space of the old record is not reclaimed.
+        //
+        if ( !replaceValue( location - 1, value ) ) {
+          slots.putLong( slot, 0, append( key, value ) + 1 );
+        }
+        return;
+      }
+      slot = ( slot + 1 ) & mask;
+      location = slots.getLong( slot, 0 );
+    }
+
+    slots.putLong( slot, 0, append( key, value ) + 1 );
+    slots.putInt( slot, HASH_OFFSET, hashCode );
+
+    size++;
+    if ( size >= resizeThresHold ) {
+      resize();
+    }
+  }
+
+  private void resize() throws KettleValueException {
+    OffHeapSlots oldSlots = slots;
+    OffHeapSlots newSlots = new OffHeapSlots( oldSlots.getCapacity() * 2, SLOT_SIZE );
+    int mask = newSlots.getCapacity() - 1;
+
+    // The hash codes are kept in the slots so there is no need to look at the keys again
+    //
+    for ( int i = 0; i < oldSlots.getCapacity(); i++ ) {
+      long location = oldSlots.getLong( i, 0 );
+      if ( location != 0L ) {
+        int hashCode = oldSlots.getInt( i, HASH_OFFSET );
+        int slot = hashCode & mask;
+        while ( newSlots.getLong( slot, 0 ) != 0L ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        newSlots.putLong( slot, 0, location );
+        newSlots.putInt( slot, HASH_OFFSET, hashCode );
+      }
+    }
+
+    slots = newSlots;
+    resizeThresHold = (int) ( newSlots.getCapacity() * STANDARD_LOAD_FACTOR );
+  }
+
+  private long append( byte[] key, byte[] value ) {
+    int recordSize = RECORD_HEADER_SIZE + key.length + value.length;
+    if ( currentSlab == null || currentSlab.remaining() < recordSize ) {
+      currentSlab = ByteBuffer.allocateDirect( Math.max( slabSize, recordSize ) );
+      slabs.add( currentSlab );
+      slabMemory += currentSlab.capacity();
+    }
+    long location = ( (long) ( slabs.size() - 1 ) << 32 ) | currentSlab.position();
+    currentSlab.putInt( key.length );
+    currentSlab.putInt( value.length );
+    currentSlab.put( key );
+    currentSlab.put( value );
+    return location;
+  }
+
+  private boolean equalsKey( long location, byte[] key ) {
+    ByteBuffer slab = slabs.get( (int) ( location >>> 32 ) );
+    int offset = (int) location;
+    if ( slab.getInt( offset ) != key.length ) {
+      return false;
+    }
+    offset += RECORD_HEADER_SIZE;
+    for ( int i = 0; i < key.length; i++ ) {
+      if ( slab.get( offset + i ) != key[i] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private byte[] readValue( long location ) {
+    ByteBuffer slab = slabs.get( (int) ( location >>> 32 ) );
+    int offset = (int) location;
+    int keyLength = slab.getInt( offset );
+    byte[] value = new byte[slab.getInt( offset + 4 )];
+    offset += RECORD_HEADER_SIZE + keyLength;
+    for ( int i = 0; i < value.length; i++ ) {
+      value[i] = slab.get( offset + i );
+    }
+    return value;
+  }
+
+  private boolean replaceValue( long location, byte[] value ) {
+    ByteBuffer slab = slabs.get( (int) ( location >>> 32 ) );
+    int offset = (int) location;
+    if ( slab.getInt( offset + 4 ) != value.length ) {
+      return false;
+    }
+    offset += RECORD_HEADER_SIZE + slab.getInt( offset );
+    for ( int i = 0; i < value.length; i++ ) {
+      slab.put( offset + i, value[i] );
+    }
+    return true;
+  }
+
+  public static int generateHashCode( byte[] key ) {
+    int hash = 0x9747b28c;
+    for ( byte b : key ) {
+      hash = 31 * hash + b;
+    }
+    // Spread the bits: the slot is taken from the lower bits of the hash code
+    //
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
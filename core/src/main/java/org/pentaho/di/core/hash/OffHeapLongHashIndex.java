@@ -0,0 +1,158 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.core.hash;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * An open addressing long/long hash index that lives outside of the Java heap. Keys and values are stored as primitive
+ * longs directly in the slots so a lookup doesn't create any objects besides the returned value.
+ * <p>
+ * Like {@link LongHashIndex}, a null value can be stored and is returned as such. The index is not thread safe.
+ */
+public class OffHeapLongHashIndex {
+
+  private static final int STANDARD_INDEX_SIZE = 512;
+  private static final float STANDARD_LOAD_FACTOR = 0.75f;
+
+  // A slot holds the key, the value and a state byte
+  //
+  private static final int SLOT_SIZE = 17;
+  private static final int VALUE_OFFSET = 8;
+  private static final int STATE_OFFSET = 16;
+
+  private static final byte STATE_EMPTY = 0;
+  private static final byte STATE_VALUE = 1;
+  private static final byte STATE_NULL = 2;
+
+  private OffHeapSlots slots;
+  private int size;
+  private int resizeThresHold;
+
+  /**
+   * Create a new off-heap long/long hash index
+   *
+   * @param size
+   *          the initial number of slots in the index
+   * @throws KettleValueException
+   *           in case the index can't be allocated
+   */
+  public OffHeapLongHashIndex( int size ) throws KettleValueException {
+    this.slots = new OffHeapSlots( OffHeapSlots.capacityFor( size ), SLOT_SIZE );
+    this.resizeThresHold = (int) ( slots.getCapacity() * STANDARD_LOAD_FACTOR );
+  }
+
+  public OffHeapLongHashIndex() throws KettleValueException {
+    this( STANDARD_INDEX_SIZE );
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the number of bytes of direct memory allocated by this index
+   */
+  public long getMemoryFootprint() {
+    return slots.getMemorySize();
+  }
+
+  public Long get( long key ) {
+    int mask = slots.getCapacity() - 1;
+    int slot = generateHashCode( key ) & mask;
+
+    byte state = slots.get( slot, STATE_OFFSET );
+    while ( state != STATE_EMPTY ) {
+      if ( slots.getLong( slot, 0 ) == key ) {
+        return state == STATE_NULL ? null : slots.getLong( slot, VALUE_OFFSET );
+      }
+      slot = ( slot + 1 ) & mask;
+      state = slots.get( slot, STATE_OFFSET );
+    }
+    return null;
+  }
+
+  public void put( long key, Long value ) throws KettleValueException {
+    int mask = slots.getCapacity() - 1;
+    int slot = generateHashCode( key ) & mask;
+
+    boolean exists = false;
+    byte state = slots.get( slot, STATE_OFFSET );
+    while ( state != STATE_EMPTY ) {
+      if ( slots.getLong( slot, 0 ) == key ) {
+        exists = true;
+        break;
+      }
+      slot = ( slot + 1 ) & mask;
+      state = slots.get( slot, STATE_OFFSET );
+    }
+
+    slots.putLong( slot, 0, key );
+    slots.putLong( slot, VALUE_OFFSET, value == null ? 0L : value );
+    slots.put( slot, STATE_OFFSET, value == null ? STATE_NULL : STATE_VALUE );
+
+    if ( !exists ) {
+      size++;
+      if ( size >= resizeThresHold ) {
+        resize();
+      }
+    }
+  }
+
+  private void resize() throws KettleValueException {
+    OffHeapSlots oldSlots = slots;
+    OffHeapSlots newSlots = new OffHeapSlots( oldSlots.getCapacity() * 2, SLOT_SIZE );
+    int mask = newSlots.getCapacity() - 1;
+
+    for ( int i = 0; i < oldSlots.getCapacity(); i++ ) {
+      byte state = oldSlots.get( i, STATE_OFFSET );
+      if ( state != STATE_EMPTY ) {
+        long key = oldSlots.getLong( i, 0 );
+        int slot = generateHashCode( key ) & mask;
+        while ( newSlots.get( slot, STATE_OFFSET ) != STATE_EMPTY ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        newSlots.putLong( slot, 0, key );
+        newSlots.putLong( slot, VALUE_OFFSET, oldSlots.getLong( i, VALUE_OFFSET ) );
+        newSlots.put( slot, STATE_OFFSET, state );
+      }
+    }
+
+    slots = newSlots;
+    resizeThresHold = (int) ( newSlots.getCapacity() * STANDARD_LOAD_FACTOR );
+  }
+
+  public static int generateHashCode( long key ) {
+    // Consecutive keys are common (surrogate keys), mix all bits before taking the lower ones
+    //
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
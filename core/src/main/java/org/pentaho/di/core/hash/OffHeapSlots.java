@@ -0,0 +1,106 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.core.hash;
+
+import java.nio.ByteBuffer;
+
+import org.pentaho.di.core.exception.KettleValueException;
+
+/**
+ * A fixed size table of equally sized slots kept in direct (off-heap) memory. The table is split in segments so that it
+ * can grow beyond the 2GB limit of a single {@link ByteBuffer}.
+ */
+class OffHeapSlots {
+
+  private static final int SEGMENT_BITS = 22;
+  private static final int SEGMENT_MASK = ( 1 << SEGMENT_BITS ) - 1;
+
+  static final int MAX_CAPACITY = 1 << 30;
+
+  private final ByteBuffer[] segments;
+  private final int slotSize;
+  private final int capacity;
+
+  /**
+   * @param capacity
+   *          the number of slots, a power of 2
+   * @param slotSize
+   *          the size of a slot in bytes
+   * @throws KettleValueException
+   *           in case the table would get too large
+   */
+  OffHeapSlots( int capacity, int slotSize ) throws KettleValueException {
+    if ( capacity <= 0 || capacity > MAX_CAPACITY ) {
+      throw new KettleValueException( "Unable to allocate an off-heap hash index with " + capacity + " slots" );
+    }
+    this.capacity = capacity;
+    this.slotSize = slotSize;
+
+    int segmentSlots = Math.min( capacity, 1 << SEGMENT_BITS );
+    segments = new ByteBuffer[Math.max( 1, capacity >>> SEGMENT_BITS )];
+    for ( int i = 0; i < segments.length; i++ ) {
+      // allocateDirect() hands out zeroed memory: every slot starts out empty
+      //
+      segments[i] = ByteBuffer.allocateDirect( segmentSlots * slotSize );
+    }
+  }
+
+  static int capacityFor( int size ) {
+    int factor2Size = 1;
+    while ( factor2Size < size ) {
+      factor2Size <<= 1; // Multiply by 2
+    }
+    return factor2Size;
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  long getMemorySize() {
+    return (long) capacity * slotSize;
+  }
+
+  long getLong( int slot, int offset ) {
+    return segments[slot >>> SEGMENT_BITS].getLong( ( slot & SEGMENT_MASK ) * slotSize + offset );
+  }
+
+  void putLong( int slot, int offset, long value ) {
+    segments[slot >>> SEGMENT_BITS].putLong( ( slot & SEGMENT_MASK ) * slotSize + offset, value );
+  }
+
+  int getInt( int slot, int offset ) {
+    return segments[slot >>> SEGMENT_BITS].getInt( ( slot & SEGMENT_MASK ) * slotSize + offset );
+  }
+
+  void putInt( int slot, int offset, int value ) {
+    segments[slot >>> SEGMENT_BITS].putInt( ( slot & SEGMENT_MASK ) * slotSize + offset, value );
+  }
+
+  byte get( int slot, int offset ) {
+    return segments[slot >>> SEGMENT_BITS].get( ( slot & SEGMENT_MASK ) * slotSize + offset );
+  }
+
+  void put( int slot, int offset, byte value ) {
+    segments[slot >>> SEGMENT_BITS].put( ( slot & SEGMENT_MASK ) * slotSize + offset, value );
+  }
+}
@@ -94,6 +94,15 @@ public class Metrics implements MetricsInterface {
   public static Metrics METRIC_DATABASE_GET_ROW_MAX_TIME = new Metrics(
     MetricsSnapshotType.MAX, "METRIC_DATABASE_GET_ROW_MAX_TIME", "Get row from DB (max time)" );
 
+  public static Metrics METRIC_DATABASE_POOL_WAIT_COUNT = new Metrics(
+    MetricsSnapshotType.COUNT, "METRIC_DATABASE_POOL_WAIT_COUNT", "Borrow pooled connection (count)" );
+  public static Metrics METRIC_DATABASE_POOL_WAIT_SUM_TIME = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_DATABASE_POOL_WAIT_SUM_TIME", "Borrow pooled connection (total time)" );
+  public static Metrics METRIC_DATABASE_POOL_WAIT_MIN_TIME = new Metrics(
+    MetricsSnapshotType.MIN, "METRIC_DATABASE_POOL_WAIT_MIN_TIME", "Borrow pooled connection (min time)" );
+  public static Metrics METRIC_DATABASE_POOL_WAIT_MAX_TIME = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_DATABASE_POOL_WAIT_MAX_TIME", "Borrow pooled connection (max time)" );
+
   // Plugin registry...
   //
   public static Metrics METRIC_PLUGIN_REGISTRY_REGISTER_EXTENSIONS_START = new Metrics(
@@ -155,6 +164,19 @@ public class Metrics implements MetricsInterface {
     MetricsSnapshotType.COUNT, "METRIC_LOGGING_REGISTRY_GET_CHILDREN_COUNT",
     "Number of times retrieved log registry children" );
 
+  // Steps
+  //
+  public static Metrics METRIC_STEP_OFF_HEAP_INDEX_BYTES = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_STEP_OFF_HEAP_INDEX_BYTES", "Off-heap hash index size (bytes)" );
+  public static Metrics METRIC_STEP_LOOKUP_CACHE_HITS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_LOOKUP_CACHE_HITS", "Lookup cache hits" );
+  public static Metrics METRIC_STEP_LOOKUP_CACHE_MISSES = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_LOOKUP_CACHE_MISSES", "Lookup cache misses" );
+  public static Metrics METRIC_STEP_LOOKUP_CACHE_EVICTIONS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_LOOKUP_CACHE_EVICTIONS", "Lookup cache evictions" );
+  public static Metrics METRIC_STEP_LOOKUP_CACHE_BYTES = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_STEP_LOOKUP_CACHE_BYTES", "Lookup cache size (bytes)" );
+
   // Job
   //
   public static Metrics METRIC_JOB_START = new Metrics(
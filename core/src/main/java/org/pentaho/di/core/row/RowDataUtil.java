@@ -22,6 +22,10 @@
 
 package org.pentaho.di.core.row;
 
+import java.math.BigDecimal;
+
+import org.pentaho.di.core.util.HyperLogLog;
+
 /**
  * This class of static methods can be used to manipulate rows: add, delete, resize, etc... That way, when we want to go
  * for a metadata driven system with hiding deletes, over sized arrays etc, we can change these methods to find
@@ -202,4 +206,45 @@ public class RowDataUtil {
 
     return data;
   }
+
+  /**
+   * Estimate the number of bytes a row takes on the heap: the array itself and the values it refers to. The estimate
+   * is cheap rather than exact, it assumes a 64-bit JVM with compressed references.
+   *
+   * @param row
+   *          the row to estimate
+   * @return the estimated size in bytes
+   */
+  public static long estimateRowSize( Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    long size = 16L + 4L * row.length;
+    for ( Object value : row ) {
+      size += estimateValueSize( value );
+    }
+    return size;
+  }
+
+  private static long estimateValueSize( Object value ) {
+    if ( value == null || value instanceof Boolean ) {
+      return 0L; // nothing or a shared instance
+    }
+    if ( value instanceof String ) {
+      return 40L + 2L * ( (String) value ).length();
+    }
+    if ( value instanceof Long || value instanceof Double ) {
+      return 16L;
+    }
+    if ( value instanceof byte[] ) {
+      return 16L + ( (byte[]) value ).length;
+    }
+    if ( value instanceof BigDecimal ) {
+      return 40L + ( ( (BigDecimal) value ).precision() >> 1 );
+    }
+    if ( value instanceof HyperLogLog ) {
+      return 32L + ( (HyperLogLog) value ).getRegisterCount();
+    }
+    return 32L; // dates, timestamps and anything else
+  }
 }
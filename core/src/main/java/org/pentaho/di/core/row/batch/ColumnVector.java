@@ -0,0 +1,143 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.batch;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * One column of a {@link RowBatch}: the values of a single field for all the rows in the batch. Null values are kept
+ * in a bitmap so that the specialised subclasses can store their values in primitive arrays.
+ * <p>
+ * A value is null when the row holds a null reference. Type specific notions of null, like the empty string, are left
+ * to {@link ValueMetaInterface#isNull(Object)}.
+ */
+public abstract class ColumnVector {
+
+  protected final ValueMetaInterface valueMeta;
+  protected final int size;
+
+  private final long[] nulls;
+  private int nullCount;
+
+  protected ColumnVector( ValueMetaInterface valueMeta, int size ) {
+    this.valueMeta = valueMeta;
+    this.size = size;
+    this.nulls = new long[ ( size + 63 ) >>> 6 ];
+  }
+
+  /**
+   * Create an empty vector of the most compact kind for the given field: Integer and Number values in normal storage
+   * go to primitive vectors, Strings are dictionary encoded and everything else is kept as is.
+   *
+   * @param valueMeta
+   *          the field described by the vector
+   * @param size
+   *          the number of rows
+   * @return the new vector
+   */
+  public static ColumnVector create( ValueMetaInterface valueMeta, int size ) {
+    if ( valueMeta.isStorageNormal() ) {
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_INTEGER:
+          return new LongColumnVector( valueMeta, size );
+        case ValueMetaInterface.TYPE_NUMBER:
+          return new DoubleColumnVector( valueMeta, size );
+        case ValueMetaInterface.TYPE_STRING:
+          return new DictionaryColumnVector( valueMeta, size );
+        default:
+          break;
+      }
+    }
+    return new ObjectColumnVector( valueMeta, size );
+  }
+
+  /**
+   * Decode a column out of a block of rows.
+   *
+   * @param valueMeta
+   *          the field to decode
+   * @param rows
+   *          the rows, a row that is too short to hold the field gives a null value
+   * @param index
+   *          the index of the field in the rows
+   * @param size
+   *          the number of rows to decode
+   * @return the vector holding the values of the field
+   */
+  public static ColumnVector decode( ValueMetaInterface valueMeta, Object[][] rows, int index, int size ) {
+    ColumnVector vector = create( valueMeta, size );
+    for ( int i = 0; i < size; i++ ) {
+      Object[] row = rows[ i ];
+      vector.setObject( i, index < row.length ? row[ index ] : null );
+    }
+    return vector;
+  }
+
+  public ValueMetaInterface getValueMeta() {
+    return valueMeta;
+  }
+
+  /**
+   * @return the number of rows in this vector
+   */
+  public int size() {
+    return size;
+  }
+
+  public boolean isNull( int row ) {
+    return ( nulls[ row >>> 6 ] & ( 1L << row ) ) != 0;
+  }
+
+  public void setNull( int row ) {
+    long bit = 1L << row;
+    if ( ( nulls[ row >>> 6 ] & bit ) == 0 ) {
+      nulls[ row >>> 6 ] |= bit;
+      nullCount++;
+    }
+  }
+
+  protected void clearNull( int row ) {
+    long bit = 1L << row;
+    if ( ( nulls[ row >>> 6 ] & bit ) != 0 ) {
+      nulls[ row >>> 6 ] &= ~bit;
+      nullCount--;
+    }
+  }
+
+  /**
+   * @return true if at least one of the values is null
+   */
+  public boolean hasNulls() {
+    return nullCount > 0;
+  }
+
+  /**
+   * @return the value of the given row in the representation used in Object[] rows, null for a null value.
+   */
+  public abstract Object getObject( int row );
+
+  /**
+   * Set the value of a row from its representation in an Object[] row.
+   */
+  public abstract void setObject( int row, Object value );
+}
@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.batch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A column of String values, dictionary encoded: every distinct value is stored once and the rows refer to it by
+ * code. Equal codes mean equal values, so steps can compare or convert each distinct value only once.
+ */
+public class DictionaryColumnVector extends ColumnVector {
+
+  private final int[] codes;
+  private final List<String> dictionary;
+  private final Map<String, Integer> lookup;
+
+  public DictionaryColumnVector( ValueMetaInterface valueMeta, int size ) {
+    super( valueMeta, size );
+    codes = new int[ size ];
+    dictionary = new ArrayList<>();
+    lookup = new HashMap<>();
+  }
+
+  /**
+   * @return the dictionary code of the row, undefined for a null value.
+   */
+  public int getCode( int row ) {
+    return codes[ row ];
+  }
+
+  /**
+   * @return the codes of the rows, the entries of null values are undefined.
+   */
+  public int[] getCodes() {
+    return codes;
+  }
+
+  /**
+   * @return the number of distinct non-null values
+   */
+  public int getDictionarySize() {
+    return dictionary.size();
+  }
+
+  public String getDictionaryValue( int code ) {
+    return dictionary.get( code );
+  }
+
+  public String getString( int row ) {
+    return isNull( row ) ? null : dictionary.get( codes[ row ] );
+  }
+
+  public void setString( int row, String value ) {
+    Integer code = lookup.get( value );
+    if ( code == null ) {
+      code = dictionary.size();
+      dictionary.add( value );
+      lookup.put( value, code );
+    }
+    codes[ row ] = code;
+    clearNull( row );
+  }
+
+  @Override
+  public Object getObject( int row ) {
+    return getString( row );
+  }
+
+  @Override
+  public void setObject( int row, Object value ) {
+    if ( value == null ) {
+      setNull( row );
+    } else {
+      setString( row, (String) value );
+    }
+  }
+}
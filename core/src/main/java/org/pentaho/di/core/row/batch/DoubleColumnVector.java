@@ -0,0 +1,71 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.batch;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A column of Number values stored in a double[].
+ */
+public class DoubleColumnVector extends ColumnVector {
+
+  private final double[] values;
+
+  public DoubleColumnVector( ValueMetaInterface valueMeta, int size ) {
+    super( valueMeta, size );
+    values = new double[ size ];
+  }
+
+  /**
+   * @return the value of the row, undefined for a null value.
+   */
+  public double getDouble( int row ) {
+    return values[ row ];
+  }
+
+  public void setDouble( int row, double value ) {
+    values[ row ] = value;
+    clearNull( row );
+  }
+
+  /**
+   * @return the values, the entries of null values are undefined.
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  @Override
+  public Object getObject( int row ) {
+    return isNull( row ) ? null : Double.valueOf( values[ row ] );
+  }
+
+  @Override
+  public void setObject( int row, Object value ) {
+    if ( value == null ) {
+      setNull( row );
+    } else {
+      setDouble( row, (Double) value );
+    }
+  }
+}
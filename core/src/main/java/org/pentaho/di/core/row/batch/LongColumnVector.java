@@ -0,0 +1,71 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.batch;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
+
+/**
+ * A column of Integer values stored in a long[].
+ */
+public class LongColumnVector extends ColumnVector {
+
+  private final long[] values;
+
+  public LongColumnVector( ValueMetaInterface valueMeta, int size ) {
+    super( valueMeta, size );
+    values = new long[ size ];
+  }
+
+  /**
+   * @return the value of the row, undefined for a null value.
+   */
+  public long getLong( int row ) {
+    return values[ row ];
+  }
+
+  public void setLong( int row, long value ) {
+    values[ row ] = value;
+    clearNull( row );
+  }
+
+  /**
+   * @return the values, the entries of null values are undefined.
+   */
+  public long[] getValues() {
+    return values;
+  }
+
+  @Override
+  public Object getObject( int row ) {
+    return isNull( row ) ? null : Long.valueOf( values[ row ] );
+  }
+
+  @Override
+  public void setObject( int row, Object value ) {
+    if ( value == null ) {
+      setNull( row );
+    } else {
+      setLong( row, (Long) value );
+    }
+  }
+}
@@ -2,7 +2,7 @@
  *
  * Pentaho Data Integration
  *
- * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
  *
  *******************************************************************************
  *
@@ -20,17 +20,35 @@
  *
  ******************************************************************************/
 
-package org.pentaho.di.trans.steps.sort;
+package org.pentaho.di.core.row.batch;
+
+import org.pentaho.di.core.row.ValueMetaInterface;
 
 /**
- * Keeps track of which temporary file a row is coming from
+ * A column of values that don't have a specialised representation: dates, big numbers, booleans, binary strings from
+ * lazy conversion, etc. The values are kept exactly as they appear in the rows.
  */
-public class RowTempFile {
-  public Object[] row;
-  public int fileNumber;
+public class ObjectColumnVector extends ColumnVector {
+
+  private final Object[] values;
+
+  public ObjectColumnVector( ValueMetaInterface valueMeta, int size ) {
+    super( valueMeta, size );
+    values = new Object[ size ];
+  }
+
+  @Override
+  public Object getObject( int row ) {
+    return values[ row ];
+  }
 
-  public RowTempFile( Object[] row, int fileNumber ) {
-    this.row = row;
-    this.fileNumber = fileNumber;
+  @Override
+  public void setObject( int row, Object value ) {
+    values[ row ] = value;
+    if ( value == null ) {
+      setNull( row );
+    } else {
+      clearNull( row );
+    }
   }
 }
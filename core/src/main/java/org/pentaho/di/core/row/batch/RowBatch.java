@@ -0,0 +1,146 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.batch;
+
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A columnar view on a block of rows. Steps that work on a few numeric or string fields at a time can read those
+ * fields as {@link ColumnVector}s (long[] and double[] values, dictionary encoded strings, null bitmaps) instead of
+ * unboxing and type checking every value of every row.
+ * <p>
+ * The batch is backed by the Object[] rows that travel between the steps: columns are only decoded when they are asked
+ * for and only the columns that were replaced with {@link #setColumn(int, ColumnVector)} are written back, boxing just
+ * those values, when the rows are handed on with {@link #getRows()}. The values of the other fields stay untouched, so
+ * passing a batch to a step that doesn't know about batches costs nothing.
+ * <p>
+ * The row metadata may describe more fields than the rows hold, for instance to add calculated fields. The rows are
+ * resized when such a field is written back.
+ */
+public class RowBatch {
+
+  private final RowMetaInterface rowMeta;
+  private final Object[][] rows;
+  private final int size;
+  private final ColumnVector[] columns;
+  private final boolean[] modified;
+  private boolean dirty;
+
+  /**
+   * @param rowMeta
+   *          the layout of the rows
+   * @param rows
+   *          the rows backing the batch
+   * @param size
+   *          the number of rows in the batch, the first size entries of rows are used
+   */
+  public RowBatch( RowMetaInterface rowMeta, Object[][] rows, int size ) {
+    this.rowMeta = rowMeta;
+    this.rows = rows;
+    this.size = size;
+    this.columns = new ColumnVector[ rowMeta.size() ];
+    this.modified = new boolean[ rowMeta.size() ];
+  }
+
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * @return the number of rows in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get the values of a field, decoding them from the rows the first time around.
+   *
+   * @param index
+   *          the index of the field in the row metadata
+   * @return the column
+   */
+  public ColumnVector getColumn( int index ) {
+    ColumnVector column = columns[ index ];
+    if ( column == null ) {
+      column = ColumnVector.decode( rowMeta.getValueMeta( index ), rows, index, size );
+      columns[ index ] = column;
+    }
+    return column;
+  }
+
+  /**
+   * Replace the values of a field. The values are written to the rows by {@link #getRows()}.
+   *
+   * @param index
+   *          the index of the field in the row metadata
+   * @param column
+   *          the new values, one for each row in the batch
+   */
+  public void setColumn( int index, ColumnVector column ) {
+    if ( column.size() != size ) {
+      throw new IllegalArgumentException( "The column holds " + column.size() + " values, the batch has " + size
+        + " rows" );
+    }
+    columns[ index ] = column;
+    modified[ index ] = true;
+    dirty = true;
+  }
+
+  /**
+   * Get a row of the batch, with the replaced columns written back.
+   *
+   * @param row
+   *          the row number in the batch
+   * @return the row data
+   */
+  public Object[] getRow( int row ) {
+    return getRows()[ row ];
+  }
+
+  /**
+   * Write the replaced columns back to the rows.
+   *
+   * @return the rows backing this batch, only the first {@link #size()} entries are part of the batch.
+   */
+  public Object[][] getRows() {
+    if ( dirty ) {
+      int rowSize = rowMeta.size();
+      for ( int r = 0; r < size; r++ ) {
+        Object[] row = RowDataUtil.resizeArray( rows[ r ], rowSize );
+        for ( int c = 0; c < modified.length; c++ ) {
+          if ( modified[ c ] ) {
+            row[ c ] = columns[ c ].getObject( r );
+          }
+        }
+        rows[ r ] = row;
+      }
+      for ( int c = 0; c < modified.length; c++ ) {
+        modified[ c ] = false;
+      }
+      dirty = false;
+    }
+    return rows;
+  }
+}
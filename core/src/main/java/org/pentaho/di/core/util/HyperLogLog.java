@@ -0,0 +1,201 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * A HyperLogLog sketch: estimates the number of distinct values it has seen in a small, fixed amount of memory. Two
+ * sketches of the same precision can be merged, the result is the sketch of the union of the values. This makes it
+ * possible to count distinct values in parallel and combine the counts afterwards.
+ * <p>
+ * The standard error of the estimate is about 1.04 / sqrt(2^precision), 1.6% with the default precision of 12 which
+ * uses 4KB per sketch.
+ */
+public class HyperLogLog {
+  public static final int DEFAULT_PRECISION = 12;
+
+  private final int precision;
+  private final byte[] registers;
+
+  public HyperLogLog() {
+    this( DEFAULT_PRECISION );
+  }
+
+  /**
+   * @param precision
+   *          the number of bits used to pick a register, between 4 and 18
+   */
+  public HyperLogLog( int precision ) {
+    if ( precision < 4 || precision > 18 ) {
+      throw new IllegalArgumentException( "The precision of a HyperLogLog sketch must be between 4 and 18" );
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * @return the number of bytes used by the registers of this sketch
+   */
+  public int getRegisterCount() {
+    return registers.length;
+  }
+
+  /**
+   * Add a value to the sketch. Null values are ignored.
+   *
+   * @param value
+   *          the value to add
+   */
+  public void add( Object value ) {
+    if ( value != null ) {
+      addHash( hash( value ) );
+    }
+  }
+
+  /**
+   * Add a well distributed 64-bit hash of a value to the sketch.
+   *
+   * @param hash
+   *          the hash of the value
+   */
+  public void addHash( long hash ) {
+    int index = (int) ( hash >>> ( 64 - precision ) );
+    // The position of the first 1 bit in the remaining bits, the marker bit limits the rank
+    //
+    long remaining = ( hash << precision ) | ( 1L << ( precision - 1 ) );
+    byte rank = (byte) ( Long.numberOfLeadingZeros( remaining ) + 1 );
+    if ( rank > registers[index] ) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * Merge another sketch into this one.
+   *
+   * @param other
+   *          a sketch with the same precision
+   */
+  public void merge( HyperLogLog other ) {
+    if ( other.precision != precision ) {
+      throw new IllegalArgumentException( "Unable to merge HyperLogLog sketches with a different precision" );
+    }
+    for ( int i = 0; i < registers.length; i++ ) {
+      if ( other.registers[i] > registers[i] ) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct values added to this sketch
+   */
+  public long cardinality() {
+    int m = registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for ( byte register : registers ) {
+      sum += 1.0 / ( 1L << register );
+      if ( register == 0 ) {
+        zeros++;
+      }
+    }
+    double estimate = alpha( m ) * m * m / sum;
+
+    // Small cardinalities: linear counting is a lot more accurate
+    //
+    if ( estimate <= 2.5 * m && zeros > 0 ) {
+      estimate = m * Math.log( (double) m / zeros );
+    }
+    return Math.round( estimate );
+  }
+
+  private static double alpha( int m ) {
+    switch ( m ) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / ( 1 + 1.079 / m );
+    }
+  }
+
+  /**
+   * Calculate a 64-bit hash of a Kettle value. Values that are equal have the same hash, regardless of the instance.
+   *
+   * @param value
+   *          a non-null value
+   * @return a well distributed hash
+   */
+  public static long hash( Object value ) {
+    long h;
+    if ( value instanceof String ) {
+      h = hash( ( (String) value ).getBytes( StandardCharsets.UTF_8 ) );
+    } else if ( value instanceof byte[] ) {
+      h = hash( (byte[]) value );
+    } else if ( value instanceof Long ) {
+      h = (Long) value;
+    } else if ( value instanceof Double ) {
+      h = Double.doubleToLongBits( (Double) value );
+    } else if ( value instanceof Date ) {
+      h = ( (Date) value ).getTime();
+    } else if ( value instanceof BigDecimal ) {
+      h = ( (BigDecimal) value ).stripTrailingZeros().hashCode();
+    } else {
+      h = value.hashCode();
+    }
+    return mix( h );
+  }
+
+  private static long hash( byte[] bytes ) {
+    // FNV-1a, the result is scrambled by mix()
+    //
+    long h = 0xcbf29ce484222325L;
+    for ( byte b : bytes ) {
+      h ^= b & 0xff;
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /**
+   * The finalizer of MurmurHash3: every input bit affects every output bit.
+   */
+  private static long mix( long h ) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
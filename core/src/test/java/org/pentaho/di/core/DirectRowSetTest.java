@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+
+public class DirectRowSetTest {
+  private DirectRowSet rowSet;
+  private List<Object[]> consumed;
+
+  @Before
+  public void setup() {
+    rowSet = new DirectRowSet();
+    consumed = new ArrayList<Object[]>();
+  }
+
+  @Test
+  public void testWithoutConsumer() {
+    Object[] row = new Object[] { "a" };
+    rowSet.putRow( new RowMeta(), row );
+    assertEquals( 1, rowSet.size() );
+    assertSame( row, rowSet.getRow() );
+    assertNull( rowSet.getRowImmediate() );
+  }
+
+  @Test
+  public void testConsumerIsCalledForEveryPut() {
+    rowSet.setConsumer( new DirectRowSet.Consumer() {
+      @Override
+      public void consume() {
+        assertEquals( 1, rowSet.size() );
+        consumed.add( rowSet.getRow() );
+      }
+    } );
+    Object[] first = new Object[] { 1L };
+    Object[] second = new Object[] { 2L };
+    rowSet.putRow( new RowMeta(), first );
+    rowSet.putRow( new RowMeta(), second );
+
+    assertEquals( 2, consumed.size() );
+    assertSame( first, consumed.get( 0 ) );
+    assertSame( second, consumed.get( 1 ) );
+    assertEquals( 0, rowSet.size() );
+  }
+
+  @Test
+  public void testBlockIsHandedOverAtOnce() {
+    rowSet.setConsumer( new DirectRowSet.Consumer() {
+      @Override
+      public void consume() {
+        Object[][] rows = new Object[ 10 ][];
+        int nrRows = rowSet.getRowsImmediate( rows, 0, rows.length );
+        for ( int i = 0; i < nrRows; i++ ) {
+          consumed.add( rows[ i ] );
+        }
+      }
+    } );
+    Object[][] rows = new Object[][] { { 1L }, { 2L }, { 3L }, { 4L } };
+    assertEquals( 3, rowSet.putRows( new RowMeta(), rows, 1, 3 ) );
+
+    assertEquals( 3, consumed.size() );
+    assertSame( rows[ 1 ], consumed.get( 0 ) );
+    assertSame( rows[ 3 ], consumed.get( 2 ) );
+  }
+
+  @Test
+  public void testConsumerIsNotCalledRecursively() {
+    rowSet.setConsumer( new DirectRowSet.Consumer() {
+      @Override
+      public void consume() {
+        Object[] row = rowSet.getRow();
+        consumed.add( row );
+        if ( consumed.size() == 1 ) {
+          // Put a row back, it's picked up in the next round of this loop, not by a nested call
+          //
+          rowSet.putRow( new RowMeta(), new Object[] { "again" } );
+          assertEquals( 1, consumed.size() );
+          consumed.add( rowSet.getRow() );
+        }
+      }
+    } );
+    rowSet.putRow( new RowMeta(), new Object[] { "first" } );
+    assertEquals( 2, consumed.size() );
+    assertEquals( "again", consumed.get( 1 )[ 0 ] );
+  }
+}
@@ -0,0 +1,107 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MultiProducerRingBufferRowSetTest {
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rowMeta;
+  }
+
+  @Test
+  public void testPutAndGet() {
+    MultiProducerRingBufferRowSet rowSet = new MultiProducerRingBufferRowSet( 3, RowSetWaitStrategy.YIELD );
+    RowMetaInterface rowMeta = createRowMeta();
+
+    assertEquals( 4, rowSet.getCapacity() );
+    for ( long i = 0; i < 4; i++ ) {
+      assertTrue( rowSet.putRow( rowMeta, new Object[] { i } ) );
+    }
+    assertFalse( rowSet.putRowWait( rowMeta, new Object[] { 4L }, 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 4, rowSet.size() );
+
+    for ( long i = 0; i < 4; i++ ) {
+      assertEquals( i, rowSet.getRowImmediate()[0] );
+    }
+    assertNull( rowSet.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test( timeout = 30000 )
+  public void testMultipleProducers() throws Exception {
+    final MultiProducerRingBufferRowSet rowSet = new MultiProducerRingBufferRowSet( 64 );
+    final RowMetaInterface rowMeta = createRowMeta();
+    final int nrProducers = 4;
+    final int nrRows = 25000;
+
+    Thread[] producers = new Thread[nrProducers];
+    for ( int p = 0; p < nrProducers; p++ ) {
+      final long producerNr = p;
+      producers[p] = new Thread( new Runnable() {
+        @Override
+        public void run() {
+          for ( long i = 0; i < nrRows; i++ ) {
+            while ( !rowSet.putRow( rowMeta, new Object[] { producerNr, i } ) ) {
+              // retry
+            }
+          }
+        }
+      } );
+      producers[p].start();
+    }
+
+    // Rows of a single producer have to arrive in order.
+    //
+    long[] next = new long[nrProducers];
+    int received = 0;
+    while ( received < nrProducers * nrRows ) {
+      Object[] row = rowSet.getRow();
+      if ( row != null ) {
+        int producerNr = ( (Long) row[0] ).intValue();
+        assertEquals( next[producerNr]++, row[1] );
+        received++;
+      }
+    }
+    for ( Thread producer : producers ) {
+      producer.join();
+    }
+
+    assertEquals( 0, rowSet.size() );
+    for ( int p = 0; p < nrProducers; p++ ) {
+      assertEquals( nrRows, next[p] );
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferRowSetTest {
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rowMeta;
+  }
+
+  @Test
+  public void testCapacityIsRoundedUpToPowerOfTwo() {
+    assertEquals( 1, new RingBufferRowSet( 0 ).getCapacity() );
+    assertEquals( 8, new RingBufferRowSet( 8 ).getCapacity() );
+    assertEquals( 16384, new RingBufferRowSet( Const.ROWS_IN_ROWSET ).getCapacity() );
+  }
+
+  @Test
+  public void testPutAndGetKeepOrder() {
+    RingBufferRowSet rowSet = new RingBufferRowSet( 4, RowSetWaitStrategy.SPIN );
+    RowMetaInterface rowMeta = createRowMeta();
+
+    assertNull( rowSet.getRowImmediate() );
+    for ( long i = 0; i < 4; i++ ) {
+      assertTrue( rowSet.putRow( rowMeta, new Object[] { i } ) );
+    }
+    assertEquals( 4, rowSet.size() );
+    assertSame( rowMeta, rowSet.getRowMeta() );
+
+    // The buffer is full: the put has to time out.
+    //
+    assertFalse( rowSet.putRowWait( rowMeta, new Object[] { 4L }, 1, TimeUnit.MILLISECONDS ) );
+
+    for ( long i = 0; i < 4; i++ ) {
+      assertEquals( i, rowSet.getRowWait( 1, TimeUnit.MILLISECONDS )[0] );
+    }
+    assertEquals( 0, rowSet.size() );
+    assertNull( rowSet.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testPutRowsAndGetRowsImmediate() {
+    RingBufferRowSet rowSet = new RingBufferRowSet( 4 );
+    RowMetaInterface rowMeta = createRowMeta();
+    Object[][] rows = new Object[ 6 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = new Object[] { (long) i };
+    }
+
+    // Only the rows that fit are taken, starting at the offset
+    //
+    assertEquals( 4, rowSet.putRows( rowMeta, rows, 1, 5 ) );
+    assertEquals( 4, rowSet.size() );
+    assertSame( rowMeta, rowSet.getRowMeta() );
+
+    Object[][] read = new Object[ 8 ][];
+    assertEquals( 3, rowSet.getRowsImmediate( read, 2, 3 ) );
+    assertEquals( 1L, read[ 2 ][ 0 ] );
+    assertEquals( 3L, read[ 4 ][ 0 ] );
+    assertEquals( 1, rowSet.getRowsImmediate( read, 0, 8 ) );
+    assertEquals( 4L, read[ 0 ][ 0 ] );
+    assertEquals( 0, rowSet.getRowsImmediate( read, 0, 8 ) );
+  }
+
+  @Test
+  public void testNullRowIsRefused() {
+    RingBufferRowSet rowSet = new RingBufferRowSet( 4 );
+    assertFalse( rowSet.putRow( createRowMeta(), null ) );
+    assertEquals( 0, rowSet.size() );
+  }
+
+  @Test
+  public void testClear() {
+    RingBufferRowSet rowSet = new RingBufferRowSet( 4 );
+    rowSet.putRow( createRowMeta(), new Object[] { 1L } );
+    rowSet.setDone();
+
+    rowSet.clear();
+
+    assertEquals( 0, rowSet.size() );
+    assertFalse( rowSet.isDone() );
+    assertNull( rowSet.getRowImmediate() );
+  }
+
+  @Test( timeout = 30000 )
+  public void testProducerAndConsumerThreads() throws Exception {
+    // Spinning is left out on purpose: it needs a core per thread to make progress.
+    //
+    for ( RowSetWaitStrategy waitStrategy : new RowSetWaitStrategy[] { RowSetWaitStrategy.YIELD,
+      RowSetWaitStrategy.PARK } ) {
+      final RingBufferRowSet rowSet = new RingBufferRowSet( 16, waitStrategy );
+      final RowMetaInterface rowMeta = createRowMeta();
+      final int nrRows = 100000;
+
+      Thread producer = new Thread( new Runnable() {
+        @Override
+        public void run() {
+          for ( long i = 0; i < nrRows; i++ ) {
+            while ( !rowSet.putRow( rowMeta, new Object[] { i } ) ) {
+              // retry
+            }
+          }
+          rowSet.setDone();
+        }
+      } );
+      producer.start();
+
+      long expected = 0;
+      Object[] row = rowSet.getRow();
+      while ( row != null || !rowSet.isDone() || rowSet.size() > 0 ) {
+        if ( row != null ) {
+          assertEquals( expected++, row[0] );
+        }
+        row = rowSet.getRow();
+      }
+      producer.join();
+
+      assertEquals( waitStrategy.getCode(), nrRows, expected );
+    }
+  }
+}
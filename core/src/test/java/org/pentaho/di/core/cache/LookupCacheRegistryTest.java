@@ -0,0 +1,165 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LookupCacheRegistryTest {
+
+  private static final Supplier<LookupCache<?, ?>> FACTORY = new Supplier<LookupCache<?, ?>>() {
+    @Override
+    public LookupCache<?, ?> get() {
+      return new LookupCache<String, String>( CachePolicy.LRU, 0, 0, 0, null );
+    }
+  };
+
+  private LookupCacheRegistry registry;
+
+  @Before
+  public void setUp() {
+    registry = new LookupCacheRegistry();
+  }
+
+  @Test
+  public void stepsWithTheSameSignatureShareTheCache() {
+    LookupCacheRegistry.Entry one = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+    LookupCacheRegistry.Entry two = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+    LookupCacheRegistry.Entry other = registry.attach( "dwh:dim_customer[id]", "name,city", FACTORY );
+
+    assertSame( one, two );
+    assertNotSame( one, other );
+    assertEquals( 2, one.getAttached() );
+    assertEquals( 2, registry.getEntries().size() );
+
+    registry.detach( one );
+    registry.detach( two );
+    assertEquals( 0, one.getAttached() );
+    assertSame( one, registry.attach( "dwh:dim_customer[id]", "name", FACTORY ) );
+  }
+
+  @Test
+  public void invalidateEmptiesTheCachesWithTheName() {
+    LookupCacheRegistry.Entry customer = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+    LookupCacheRegistry.Entry product = registry.attach( "dwh:dim_product[id]", "name", FACTORY );
+    customer.<String, String>getCache().put( "1", "John" );
+    product.<String, String>getCache().put( "1", "Chair" );
+    assertTrue( customer.setComplete( customer.getVersion() ) );
+
+    assertEquals( 1, registry.invalidate( "dwh:dim_customer[id]" ) );
+
+    assertNull( customer.<String, String>getCache().get( "1" ) );
+    assertEquals( "Chair", product.<String, String>getCache().get( "1" ) );
+    assertEquals( 1L, customer.getVersion() );
+    assertFalse( customer.isComplete() );
+    assertTrue( customer.getLastInvalidated() > 0 );
+
+    assertEquals( 2, registry.invalidate( null ) );
+    assertNull( product.<String, String>getCache().get( "1" ) );
+  }
+
+  @Test
+  public void loadIsNotCompleteWhenInvalidatedWhileLoading() {
+    LookupCacheRegistry.Entry entry = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+    long version = entry.getVersion();
+    registry.invalidate( null );
+
+    assertFalse( entry.setComplete( version ) );
+    assertFalse( entry.isComplete() );
+  }
+
+  @Test
+  public void idleCachesAreRemoved() {
+    registry = new LookupCacheRegistry( 60000L );
+    LookupCacheRegistry.Entry entry = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+    registry.attach( "dwh:dim_product[id]", "name", FACTORY );
+    entry.<String, String>getCache().put( "1", "John" );
+
+    registry.detach( entry );
+    assertEquals( 0, registry.evictIdle() );
+    assertEquals( 2, registry.getEntries().size() );
+
+    // The product cache is still attached
+    //
+    assertEquals( 1, registry.evictIdle( System.currentTimeMillis() + 60000L ) );
+    assertEquals( 1, registry.getEntries().size() );
+    assertNull( entry.<String, String>getCache().get( "1" ) );
+    assertNotSame( entry, registry.attach( "dwh:dim_customer[id]", "name", FACTORY ) );
+  }
+
+  @Test
+  public void detachedCachesAreRemovedWithoutIdleTime() {
+    registry = new LookupCacheRegistry( 0L );
+    LookupCacheRegistry.Entry one = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+    LookupCacheRegistry.Entry two = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+
+    registry.detach( one );
+    assertEquals( 1, registry.getEntries().size() );
+    registry.detach( two );
+    assertEquals( 0, registry.getEntries().size() );
+  }
+
+  @Test
+  public void onlyOneStepLoadsAllRows() {
+    LookupCacheRegistry.Entry entry = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+
+    assertTrue( entry.tryStartLoad() );
+    assertFalse( entry.tryStartLoad() );
+    assertTrue( entry.endLoad( entry.getVersion(), true ) );
+    assertTrue( entry.isComplete() );
+
+    // Nothing to load until the next invalidation
+    //
+    assertFalse( entry.tryStartLoad() );
+    registry.invalidate( null );
+    assertTrue( entry.tryStartLoad() );
+  }
+
+  @Test
+  public void failedLoadIsNotRetriedRightAway() {
+    LookupCacheRegistry.Entry entry = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+
+    assertTrue( entry.tryStartLoad() );
+    assertFalse( entry.endLoad( entry.getVersion(), false ) );
+    assertFalse( entry.isComplete() );
+    assertFalse( entry.tryStartLoad() );
+  }
+
+  @Test
+  public void removedCachesAreRecreated() {
+    LookupCacheRegistry.Entry entry = registry.attach( "dwh:dim_customer[id]", "name", FACTORY );
+
+    assertEquals( 1, registry.remove( "dwh:dim_customer[id]" ) );
+    assertEquals( 0, registry.getEntries().size() );
+    assertNotSame( entry, registry.attach( "dwh:dim_customer[id]", "name", FACTORY ) );
+  }
+}
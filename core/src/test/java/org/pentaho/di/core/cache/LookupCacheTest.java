@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class LookupCacheTest {
+
+  private static final LookupCache.Weigher<String, String> WEIGHER = new LookupCache.Weigher<String, String>() {
+    @Override
+    public long weigh( String key, String value ) {
+      return 20L;
+    }
+  };
+
+  @Test
+  public void lruEvictsTheLeastRecentlyUsedEntry() {
+    LookupCache<String, String> cache = new LookupCache<>( CachePolicy.LRU, 2, 0, 0, null );
+    cache.put( "a", "1" );
+    cache.put( "b", "2" );
+    assertEquals( "1", cache.get( "a" ) );
+    cache.put( "c", "3" );
+
+    assertEquals( 2, cache.size() );
+    assertEquals( "1", cache.get( "a" ) );
+    assertNull( cache.get( "b" ) );
+    assertEquals( "3", cache.get( "c" ) );
+    assertEquals( 1L, cache.getStatistics().getEvictions() );
+  }
+
+  @Test
+  public void mapViewIsBackedByTheCache() {
+    LookupCache<String, String> cache = new LookupCache<>( CachePolicy.LRU, 2, 0, 0, null );
+    Map<String, String> map = cache.asMap();
+    assertNull( map.put( "a", "1" ) );
+    assertEquals( "1", map.put( "a", "2" ) );
+    cache.putMissing( "b" );
+
+    assertEquals( "2", map.get( "a" ) );
+    assertNull( map.get( "b" ) );
+    assertFalse( map.containsKey( "b" ) );
+    assertEquals( 1, map.entrySet().size() );
+
+    // the miss of b was used last, a is used again so that b is evicted
+    assertEquals( "2", map.get( "a" ) );
+    map.put( "c", "3" );
+    assertEquals( 2, map.size() );
+    assertNull( cache.get( "b" ) );
+    assertEquals( "2", map.remove( "a" ) );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void sizeInBytesIsBounded() {
+    long entryWeight = LookupCache.ENTRY_OVERHEAD + 20L;
+    LookupCache<String, String> cache = new LookupCache<>( CachePolicy.LRU, 0, 2 * entryWeight + 10, 0, WEIGHER );
+    for ( int i = 0; i < 10; i++ ) {
+      cache.put( "key" + i, "value" + i );
+    }
+
+    CacheStatistics statistics = cache.getStatistics();
+    assertEquals( 2L, statistics.getEntries() );
+    assertEquals( 2 * entryWeight, statistics.getWeight() );
+    assertEquals( 8L, statistics.getEvictions() );
+  }
+
+  @Test
+  public void tinyLfuKeepsFrequentlyUsedKeysDuringAScan() {
+    LookupCache<String, String> cache = new LookupCache<>( CachePolicy.TINY_LFU, 100, 0, 0, null );
+    for ( int round = 0; round < 5; round++ ) {
+      for ( int i = 0; i < 50; i++ ) {
+        if ( cache.get( "hot" + i ) == null ) {
+          cache.put( "hot" + i, "value" );
+        }
+      }
+    }
+    for ( int i = 0; i < 1000; i++ ) {
+      cache.put( "cold" + i, "value" );
+    }
+
+    int hot = 0;
+    for ( int i = 0; i < 50; i++ ) {
+      if ( cache.get( "hot" + i ) != null ) {
+        hot++;
+      }
+    }
+    assertTrue( "Only " + hot + " of the frequently used keys survived", hot >= 45 );
+    assertTrue( cache.size() <= 100 );
+  }
+
+  @Test
+  public void lruLosesFrequentlyUsedKeysDuringAScan() {
+    LookupCache<String, String> cache = new LookupCache<>( CachePolicy.LRU, 100, 0, 0, null );
+    for ( int i = 0; i < 50; i++ ) {
+      cache.put( "hot" + i, "value" );
+    }
+    for ( int i = 0; i < 1000; i++ ) {
+      cache.put( "cold" + i, "value" );
+    }
+    assertNull( cache.get( "hot0" ) );
+  }
+
+  @Test
+  public void missesAreRemembered() {
+    LookupCache<String, String> cache = new LookupCache<>( CachePolicy.TINY_LFU, 10, 0, 0, null );
+    assertNull( cache.get( "a" ) );
+    cache.putMissing( "a" );
+    assertSame( LookupCache.MISSING, cache.get( "a" ) );
+    cache.put( "a", "1" );
+    assertEquals( "1", cache.get( "a" ) );
+
+    CacheStatistics statistics = cache.getStatistics();
+    assertEquals( 2L, statistics.getHits() );
+    assertEquals( 1L, statistics.getMisses() );
+    assertEquals( 1L, statistics.getNegativeHits() );
+  }
+
+  @Test
+  public void entriesExpire() throws Exception {
+    LookupCache<String, String> cache = new LookupCache<>( CachePolicy.LRU, 10, 0, 1, null );
+    cache.put( "a", "1" );
+    Thread.sleep( 20 );
+    assertNull( cache.get( "a" ) );
+    assertEquals( 0, cache.size() );
+    assertEquals( 1L, cache.getStatistics().getExpirations() );
+  }
+
+  @Test
+  public void invalidateRemovesEntries() {
+    LookupCache<String, String> cache = new LookupCache<>( CachePolicy.TINY_LFU, 10, 0, 0, null );
+    cache.put( "a", "1" );
+    cache.put( "b", "2" );
+    cache.invalidate( "a" );
+    assertNull( cache.get( "a" ) );
+    assertEquals( "2", cache.get( "b" ) );
+    cache.invalidateAll();
+    assertEquals( 0, cache.size() );
+    assertNull( cache.get( "b" ) );
+  }
+
+  @Test
+  public void statisticsCanBeCombined() {
+    CacheStatistics one = new CacheStatistics( 3, 1, 0, 2, 0, 10, 100 );
+    CacheStatistics two = new CacheStatistics( 1, 3, 1, 0, 1, 5, 50 );
+    CacheStatistics sum = one.plus( two ).plus( null );
+    assertEquals( 4L, sum.getHits() );
+    assertEquals( 4L, sum.getMisses() );
+    assertEquals( 0.5, sum.getHitRate(), 0.0 );
+    assertEquals( 15L, sum.getEntries() );
+    assertEquals( 150L, sum.getWeight() );
+  }
+}
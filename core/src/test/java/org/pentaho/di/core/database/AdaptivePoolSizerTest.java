@@ -0,0 +1,74 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AdaptivePoolSizerTest {
+
+  private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos( 1000 );
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos( 50 );
+
+  @Test
+  public void keepsTheSizeWithinAWindow() {
+    AdaptivePoolSizer sizer = new AdaptivePoolSizer( 10, 20, 1000, 0L );
+    assertEquals( 10, sizer.sample( 1L, SLOW, false, 10, 10 ) );
+    assertEquals( 10, sizer.sample( 2L, SLOW, true, 10, 10 ) );
+  }
+
+  @Test
+  public void growsWhenBorrowersWait() {
+    AdaptivePoolSizer sizer = new AdaptivePoolSizer( 10, 20, 1000, 0L );
+    for ( int i = 0; i < 8; i++ ) {
+      sizer.sample( i, 0L, false, 10, 10 );
+    }
+    assertEquals( 12, sizer.sample( WINDOW, SLOW, false, 10, 10 ) );
+  }
+
+  @Test
+  public void growsOnATimeoutAndStopsAtTheCeiling() {
+    AdaptivePoolSizer sizer = new AdaptivePoolSizer( 10, 11, 1000, 0L );
+    for ( int i = 0; i < 100; i++ ) {
+      sizer.sample( i, 0L, false, 10, 10 );
+    }
+    sizer.sample( 100L, SLOW, true, 10, 10 );
+    assertEquals( 11, sizer.sample( WINDOW, 0L, false, 10, 10 ) );
+  }
+
+  @Test
+  public void shrinksBackWhenNobodyWaits() {
+    AdaptivePoolSizer sizer = new AdaptivePoolSizer( 10, 20, 1000, 0L );
+    assertEquals( 14, sizer.sample( WINDOW, 0L, false, 5, 15 ) );
+    assertEquals( 14, sizer.sample( WINDOW * 2, 0L, false, 14, 14 ) );
+  }
+
+  @Test
+  public void neverShrinksBelowTheConfiguredSize() {
+    AdaptivePoolSizer sizer = new AdaptivePoolSizer( 10, 20, 1000, 0L );
+    assertEquals( 10, sizer.sample( WINDOW, 0L, false, 1, 10 ) );
+  }
+}
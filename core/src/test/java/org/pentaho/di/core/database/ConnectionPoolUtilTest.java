@@ -48,6 +48,7 @@ import java.util.logging.Logger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import static org.mockito.Matchers.eq;
@@ -217,6 +218,44 @@ public class ConnectionPoolUtilTest implements Driver {
     verify( dataSource, never() ).setDriverClassLoader( any( ClassLoader.class ) );
   }
 
+  @Test
+  public void testPoolStatistics() throws Exception {
+    when( dbMeta.getName() ).thenReturn( "CP4" );
+    when( dbMeta.getPassword() ).thenReturn( PASSWORD );
+    when( dbMeta.getInitialPoolSize() ).thenReturn( 1 );
+    when( dbMeta.getMaximumPoolSize() ).thenReturn( 2 );
+    Connection conn = ConnectionPoolUtil.getConnection( logChannelInterface, dbMeta, "" );
+    assertNotNull( conn );
+
+    ConnectionPoolStatistics statistics = null;
+    for ( ConnectionPoolStatistics pool : ConnectionPoolUtil.getPoolStatistics() ) {
+      if ( pool.getName().startsWith( "CP4" ) ) {
+        statistics = pool;
+      }
+    }
+    assertNotNull( statistics );
+    // the pool is tested with one connection when it's created
+    assertEquals( 2, statistics.getBorrows() );
+    assertEquals( 1, statistics.getActive() );
+    assertEquals( 2, statistics.getMaxActive() );
+    assertEquals( 0, statistics.getTimeouts() );
+  }
+
+  @Test
+  public void testConfigureAdaptiveSizing() throws KettleDatabaseException {
+    Properties properties = new Properties();
+    properties.setProperty( ConnectionPoolUtil.ADAPTIVE_SIZING, "Y" );
+    properties.setProperty( ConnectionPoolUtil.ADAPTIVE_MAX_ACTIVE, "25" );
+    when( dbMeta.getConnectionPoolingProperties() ).thenReturn( properties );
+    MonitoredDataSource ds = new MonitoredDataSource( "CP5" );
+
+    ConnectionPoolUtil.configureDataSource( ds, dbMeta, "partId", INITIAL_SIZE, MAX_SIZE );
+
+    assertNotNull( ds.getAdaptivePoolSizer() );
+    assertEquals( MAX_SIZE, ds.getAdaptivePoolSizer().getMinimumSize() );
+    assertEquals( 25, ds.getAdaptivePoolSizer().getMaximumSize() );
+  }
+
   @Override
   public Connection connect( String url, Properties info ) throws SQLException {
     String password = info.getProperty( "password" );
@@ -0,0 +1,80 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+public class MonitoredDataSourceTest {
+
+  private static final long SLOW_MILLIS = 20L;
+
+  @Test
+  public void slowConnectionsDontGrowThePool() throws Exception {
+    MonitoredDataSource dataSource = createDataSource( 1 );
+
+    dataSource.getConnection();
+
+    assertEquals( 4, dataSource.getMaxActive() );
+    assertEquals( 1L, dataSource.getStatistics().getBorrows() );
+  }
+
+  @Test
+  public void waitingForAnExhaustedPoolGrowsIt() throws Exception {
+    MonitoredDataSource dataSource = createDataSource( 4 );
+
+    dataSource.getConnection();
+
+    assertEquals( 5, dataSource.getMaxActive() );
+  }
+
+  /**
+   * @param active the number of connections in use when a connection is borrowed
+   * @return a pool of 4 connections, growing up to 8, where every borrow takes a while
+   */
+  private MonitoredDataSource createDataSource( final int active ) {
+    MonitoredDataSource dataSource = new MonitoredDataSource( "test" ) {
+      @Override
+      Connection borrowConnection() throws SQLException {
+        try {
+          Thread.sleep( SLOW_MILLIS );
+        } catch ( InterruptedException e ) {
+          throw new SQLException( e );
+        }
+        return null;
+      }
+
+      @Override
+      public synchronized int getNumActive() {
+        return active;
+      }
+    };
+    dataSource.setMaxActive( 4 );
+    dataSource.enableAdaptiveSizing( 8, 0L );
+    return dataSource;
+  }
+}
@@ -0,0 +1,133 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.ColumnVector;
+import org.pentaho.di.core.row.batch.LongColumnVector;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+public class ResultSetRowReaderTest {
+
+  private RowMetaInterface rowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    return rowMeta;
+  }
+
+  private DatabaseMeta databaseMeta( DatabaseInterface databaseInterface ) {
+    DatabaseMeta databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.getDatabaseInterface() ).thenReturn( databaseInterface );
+    return databaseMeta;
+  }
+
+  @Test
+  public void testStandardDetection() {
+    assertTrue( ResultSetRowReader.isStandard( new H2DatabaseMeta() ) );
+    assertFalse( ResultSetRowReader.isStandard( new NeoviewDatabaseMeta() ) );
+    assertFalse( ResultSetRowReader.isStandard( (DatabaseInterface) null ) );
+    assertTrue( ResultSetRowReader.isStandard( new ValueMetaString( "s" ) ) );
+    assertFalse( ResultSetRowReader.isStandard( new ValueMetaTimestamp( "t" ) ) );
+  }
+
+  @Test
+  public void testReadRowWithTypedGetters() throws Exception {
+    DatabaseMeta databaseMeta = databaseMeta( new H2DatabaseMeta() );
+    ResultSet rs = mock( ResultSet.class );
+    when( rs.getLong( 1 ) ).thenReturn( 42L );
+    when( rs.getString( 2 ) ).thenReturn( null );
+    when( rs.getDouble( 3 ) ).thenReturn( 1.5 );
+    when( rs.wasNull() ).thenReturn( false, true, false );
+
+    ResultSetRowReader reader = new ResultSetRowReader( databaseMeta, rowMeta() );
+    Object[] row = reader.readRow( rs );
+
+    assertEquals( 42L, row[ 0 ] );
+    assertNull( row[ 1 ] );
+    assertEquals( 1.5, row[ 2 ] );
+    verify( databaseMeta, never() ).getValueFromResultSet( any( ResultSet.class ), any( ValueMetaInterface.class ),
+      anyInt() );
+  }
+
+  @Test
+  public void testOverridingDatabaseUsesGenericCall() throws Exception {
+    DatabaseMeta databaseMeta = databaseMeta( new NeoviewDatabaseMeta() );
+    RowMetaInterface rowMeta = rowMeta();
+    ResultSet rs = mock( ResultSet.class );
+    when( databaseMeta.getValueFromResultSet( rs, rowMeta.getValueMeta( 0 ), 0 ) ).thenReturn( 7L );
+
+    Object[] row = new ResultSetRowReader( databaseMeta, rowMeta ).readRow( rs );
+
+    assertEquals( 7L, row[ 0 ] );
+    verify( rs, never() ).getLong( anyInt() );
+  }
+
+  @Test
+  public void testReadVectors() throws Exception {
+    ResultSet rs = mock( ResultSet.class );
+    when( rs.next() ).thenReturn( true, true, false );
+    when( rs.getLong( 1 ) ).thenReturn( 1L, 0L );
+    when( rs.getString( 2 ) ).thenReturn( "a", "b" );
+    when( rs.getDouble( 3 ) ).thenReturn( 2.0, 3.0 );
+    when( rs.wasNull() ).thenReturn( false, false, false, true, false, false );
+
+    ResultSetRowReader reader = new ResultSetRowReader( databaseMeta( new H2DatabaseMeta() ), rowMeta() );
+    ColumnVector[] vectors = reader.createVectors( 4 );
+    assertEquals( 2, reader.readVectors( rs, vectors ) );
+
+    LongColumnVector ids = (LongColumnVector) vectors[ 0 ];
+    assertEquals( 1L, ids.getLong( 0 ) );
+    assertTrue( ids.isNull( 1 ) );
+    assertEquals( "b", vectors[ 1 ].getObject( 1 ) );
+    assertEquals( 3.0, vectors[ 2 ].getObject( 1 ) );
+  }
+
+  @Test
+  public void testIsReaderFor() {
+    RowMetaInterface rowMeta = rowMeta();
+    ResultSetRowReader reader = new ResultSetRowReader( databaseMeta( new H2DatabaseMeta() ), rowMeta );
+    assertTrue( reader.isReaderFor( rowMeta ) );
+    assertFalse( reader.isReaderFor( rowMeta() ) );
+  }
+}
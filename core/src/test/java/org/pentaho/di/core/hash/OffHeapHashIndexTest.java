@@ -0,0 +1,89 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.core.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+
+public class OffHeapHashIndexTest {
+
+  private static byte[] bytes( String s ) {
+    return s.getBytes( StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testPutAndGet() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex( 4, 1024 );
+    for ( int i = 0; i < 10000; i++ ) {
+      index.put( bytes( "key" + i ), bytes( "value" + i ) );
+    }
+    assertEquals( 10000, index.getSize() );
+    for ( int i = 0; i < 10000; i++ ) {
+      assertArrayEquals( bytes( "value" + i ), index.get( bytes( "key" + i ) ) );
+    }
+    assertNull( index.get( bytes( "key10000" ) ) );
+    assertNull( index.get( new byte[0] ) );
+  }
+
+  @Test
+  public void testReplaceValue() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex();
+    index.put( bytes( "a" ), bytes( "one" ) );
+    index.put( bytes( "a" ), bytes( "two" ) );
+    assertArrayEquals( bytes( "two" ), index.get( bytes( "a" ) ) );
+
+    index.put( bytes( "a" ), bytes( "three" ) );
+    assertArrayEquals( bytes( "three" ), index.get( bytes( "a" ) ) );
+    assertEquals( 1, index.getSize() );
+  }
+
+  @Test
+  public void testRecordLargerThanSlab() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex( 16, 64 );
+    byte[] value = new byte[1000];
+    value[999] = 42;
+    index.put( bytes( "small" ), bytes( "x" ) );
+    index.put( bytes( "large" ), value );
+    index.put( bytes( "next" ), bytes( "y" ) );
+
+    assertArrayEquals( value, index.get( bytes( "large" ) ) );
+    assertArrayEquals( bytes( "x" ), index.get( bytes( "small" ) ) );
+    assertArrayEquals( bytes( "y" ), index.get( bytes( "next" ) ) );
+  }
+
+  @Test
+  public void testMemoryFootprint() throws KettleValueException {
+    OffHeapHashIndex index = new OffHeapHashIndex( 16, 1024 );
+    assertEquals( 16 * 12, index.getMemoryFootprint() );
+    assertTrue( index.isEmpty() );
+
+    index.put( bytes( "a" ), bytes( "b" ) );
+    assertEquals( 16 * 12 + 1024, index.getMemoryFootprint() );
+  }
+}
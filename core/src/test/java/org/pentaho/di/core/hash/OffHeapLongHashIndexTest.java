@@ -0,0 +1,72 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.core.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+
+public class OffHeapLongHashIndexTest {
+
+  @Test
+  public void testPutAndGet() throws KettleValueException {
+    OffHeapLongHashIndex index = new OffHeapLongHashIndex( 4 );
+    for ( long i = -5000; i < 5000; i++ ) {
+      index.put( i, i * 3 );
+    }
+    assertEquals( 10000, index.getSize() );
+    for ( long i = -5000; i < 5000; i++ ) {
+      assertEquals( Long.valueOf( i * 3 ), index.get( i ) );
+    }
+    assertNull( index.get( 5000L ) );
+    assertNull( index.get( Long.MIN_VALUE ) );
+  }
+
+  @Test
+  public void testReplaceAndNullValues() throws KettleValueException {
+    OffHeapLongHashIndex index = new OffHeapLongHashIndex();
+    index.put( 0L, 1L );
+    index.put( 0L, 2L );
+    index.put( 7L, null );
+    assertEquals( Long.valueOf( 2L ), index.get( 0L ) );
+    assertNull( index.get( 7L ) );
+    assertEquals( 2, index.getSize() );
+
+    index.put( 7L, 0L );
+    assertEquals( Long.valueOf( 0L ), index.get( 7L ) );
+    assertEquals( 2, index.getSize() );
+  }
+
+  @Test
+  public void testMemoryFootprint() throws KettleValueException {
+    OffHeapLongHashIndex index = new OffHeapLongHashIndex( 16 );
+    assertTrue( index.isEmpty() );
+    assertEquals( 16 * 17, index.getMemoryFootprint() );
+    for ( long i = 0; i < 12; i++ ) {
+      index.put( i, i );
+    }
+    assertEquals( 32 * 17, index.getMemoryFootprint() );
+  }
+}
@@ -0,0 +1,145 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.batch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class RowBatchTest {
+
+  private RowMetaInterface rowMeta;
+  private Object[][] rows;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "amount" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+
+    rows = new Object[][] {
+      { 1L, 1.5, "A", new Date( 0L ) },
+      { null, 2.5, "B", null },
+      { 3L, null, "A", new Date( 1L ) },
+      { 4L, 4.5, null, null } };
+  }
+
+  @Test
+  public void testDecodeColumns() {
+    RowBatch batch = new RowBatch( rowMeta, rows, rows.length );
+    assertEquals( 4, batch.size() );
+
+    LongColumnVector ids = (LongColumnVector) batch.getColumn( 0 );
+    assertEquals( 1L, ids.getLong( 0 ) );
+    assertTrue( ids.isNull( 1 ) );
+    assertNull( ids.getObject( 1 ) );
+    assertEquals( 4L, ids.getLong( 3 ) );
+    assertTrue( ids.hasNulls() );
+
+    DoubleColumnVector amounts = (DoubleColumnVector) batch.getColumn( 1 );
+    assertEquals( 2.5, amounts.getDouble( 1 ), 0.0 );
+    assertTrue( amounts.isNull( 2 ) );
+
+    assertTrue( batch.getColumn( 3 ) instanceof ObjectColumnVector );
+    assertSame( rows[ 0 ][ 3 ], batch.getColumn( 3 ).getObject( 0 ) );
+
+    // Decoded only once
+    //
+    assertSame( ids, batch.getColumn( 0 ) );
+  }
+
+  @Test
+  public void testDictionaryEncoding() {
+    DictionaryColumnVector codes = (DictionaryColumnVector) new RowBatch( rowMeta, rows, rows.length ).getColumn( 2 );
+
+    assertEquals( 2, codes.getDictionarySize() );
+    assertEquals( codes.getCode( 0 ), codes.getCode( 2 ) );
+    assertFalse( codes.getCode( 0 ) == codes.getCode( 1 ) );
+    assertEquals( "B", codes.getDictionaryValue( codes.getCode( 1 ) ) );
+    assertEquals( "A", codes.getString( 2 ) );
+    assertTrue( codes.isNull( 3 ) );
+    assertNull( codes.getString( 3 ) );
+  }
+
+  @Test
+  public void testUntouchedRowsAreNotCopied() {
+    Object[] first = rows[ 0 ];
+    RowBatch batch = new RowBatch( rowMeta, rows, rows.length );
+    batch.getColumn( 0 );
+    batch.getColumn( 2 );
+
+    assertSame( rows, batch.getRows() );
+    assertSame( first, batch.getRow( 0 ) );
+    assertArrayEquals( new Object[] { 1L, 1.5, "A", new Date( 0L ) }, first );
+  }
+
+  @Test
+  public void testSetColumnWritesBack() {
+    RowMetaInterface outputMeta = rowMeta.clone();
+    outputMeta.addValueMeta( new ValueMetaInteger( "double_id" ) );
+
+    RowBatch batch = new RowBatch( outputMeta, rows, 3 );
+    LongColumnVector ids = (LongColumnVector) batch.getColumn( 0 );
+    LongColumnVector doubled = new LongColumnVector( outputMeta.getValueMeta( 4 ), 3 );
+    for ( int i = 0; i < 3; i++ ) {
+      if ( ids.isNull( i ) ) {
+        doubled.setNull( i );
+      } else {
+        doubled.setLong( i, ids.getLong( i ) * 2 );
+      }
+    }
+    batch.setColumn( 4, doubled );
+
+    Object[][] result = batch.getRows();
+    assertEquals( 2L, result[ 0 ][ 4 ] );
+    assertNull( result[ 1 ][ 4 ] );
+    assertEquals( 6L, result[ 2 ][ 4 ] );
+    assertEquals( "B", result[ 1 ][ 2 ] );
+
+    // The row past the batch size is left alone
+    //
+    assertEquals( 4, result[ 3 ].length );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testSetColumnOfWrongSize() {
+    RowBatch batch = new RowBatch( rowMeta, rows, rows.length );
+    batch.setColumn( 0, new LongColumnVector( rowMeta.getValueMeta( 0 ), 2 ) );
+  }
+}
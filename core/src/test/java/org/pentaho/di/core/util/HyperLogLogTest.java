@@ -0,0 +1,84 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HyperLogLogTest {
+
+  @Test
+  public void testEmpty() {
+    assertEquals( 0L, new HyperLogLog().cardinality() );
+  }
+
+  @Test
+  public void testSmallCardinalityIsExact() {
+    HyperLogLog hll = new HyperLogLog();
+    for ( int i = 0; i < 10; i++ ) {
+      hll.add( "value" + ( i % 5 ) );
+      hll.add( null );
+    }
+    assertEquals( 5L, hll.cardinality() );
+  }
+
+  @Test
+  public void testLargeCardinality() {
+    HyperLogLog hll = new HyperLogLog();
+    for ( long i = 0; i < 1000000; i++ ) {
+      hll.add( i );
+      hll.add( i );
+    }
+    assertWithin( 1000000L, hll.cardinality(), 0.05 );
+  }
+
+  @Test
+  public void testMerge() {
+    HyperLogLog first = new HyperLogLog();
+    HyperLogLog second = new HyperLogLog();
+    for ( long i = 0; i < 60000; i++ ) {
+      first.add( "key" + i );
+      second.add( "key" + ( i + 40000 ) );
+    }
+    first.merge( second );
+    assertWithin( 100000L, first.cardinality(), 0.05 );
+  }
+
+  @Test
+  public void testEqualValuesHaveEqualHashes() {
+    assertEquals( HyperLogLog.hash( "abc" ), HyperLogLog.hash( "abc".getBytes() ) );
+    assertEquals( HyperLogLog.hash( new String( "abc" ) ), HyperLogLog.hash( "abc" ) );
+    assertEquals( HyperLogLog.hash( Long.valueOf( 1000L ) ), HyperLogLog.hash( Long.valueOf( 1000L ) ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testMergeDifferentPrecision() {
+    new HyperLogLog( 10 ).merge( new HyperLogLog( 12 ) );
+  }
+
+  private static void assertWithin( long expected, long actual, double error ) {
+    assertTrue( "Estimate " + actual + " for " + expected, Math.abs( actual - expected ) <= expected * error );
+  }
+}
@@ -68,6 +68,7 @@ import org.pentaho.di.repository.RepositoryDirectoryInterface;
 import org.pentaho.di.repository.RepositoryElementInterface;
 import org.pentaho.di.repository.RepositoryObjectType;
 import org.pentaho.di.shared.SharedObjectInterface;
+import org.pentaho.di.trans.cluster.InputSplit;
 import org.pentaho.di.www.AllocateServerSocketServlet;
 import org.pentaho.di.www.CleanupTransServlet;
 import org.pentaho.di.www.GetJobStatusServlet;
@@ -75,6 +76,8 @@ import org.pentaho.di.www.GetPropertiesServlet;
 import org.pentaho.di.www.GetSlavesServlet;
 import org.pentaho.di.www.GetStatusServlet;
 import org.pentaho.di.www.GetTransStatusServlet;
+import org.pentaho.di.www.LookupCacheServlet;
+import org.pentaho.di.www.NextInputSplitServlet;
 import org.pentaho.di.www.NextSequenceValueServlet;
 import org.pentaho.di.www.PauseTransServlet;
 import org.pentaho.di.www.RegisterPackageServlet;
@@ -989,6 +992,20 @@ public class SlaveServer extends ChangedFlag implements Cloneable, SharedObjectI
     return WebResult.fromXMLString( xml );
   }
 
+  /**
+   * Invalidate the shared lookup caches with the given name on this slave server.
+   *
+   * @param cacheName the name of the caches to invalidate or null to invalidate all of them
+   * @return the result of the invalidation
+   */
+  public WebResult invalidateLookupCache( String cacheName ) throws Exception {
+    String xml =
+      execService( LookupCacheServlet.CONTEXT_PATH + "/?" + LookupCacheServlet.PARAM_ACTION + "="
+        + LookupCacheServlet.ACTION_INVALIDATE + "&" + LookupCacheServlet.PARAM_NAME + "="
+        + URLEncoder.encode( Const.NVL( cacheName, "" ), "UTF-8" ) + "&xml=Y" );
+    return WebResult.fromXMLString( xml );
+  }
+
   public WebResult pauseResumeTransformation( String transName, String carteObjectId ) throws Exception {
     String xml =
       execService( PauseTransServlet.CONTEXT_PATH + "/?name=" + URLEncoder.encode( transName, "UTF-8" ) + "&id="
@@ -1341,6 +1358,54 @@ public class SlaveServer extends ChangedFlag implements Cloneable, SharedObjectI
     }
   }
 
+  /**
+   * Get the next chunk of the input of a step in a clustered run from this (master) server.
+   *
+   * @param clusteredRunId
+   *          the ID of the clustered run
+   * @param name
+   *          the name of the input, usually the step name
+   * @param start
+   *          the first position of the input
+   * @param end
+   *          the position right after the input
+   * @param minChunkSize
+   *          the minimum size of a chunk
+   * @param consumers
+   *          the number of readers of the input across the cluster
+   * @return the next chunk or null if all of the input was handed out
+   * @throws KettleException
+   */
+  public InputSplit getNextInputSplit( String clusteredRunId, String name, long start, long end, long minChunkSize,
+    int consumers ) throws KettleException {
+    try {
+      String xml =
+        execService( NextInputSplitServlet.CONTEXT_PATH + "/" + "?" + NextInputSplitServlet.PARAM_ID + "="
+          + URLEncoder.encode( clusteredRunId, "UTF-8" ) + "&" + NextInputSplitServlet.PARAM_NAME + "="
+          + URLEncoder.encode( name, "UTF-8" ) + "&" + NextInputSplitServlet.PARAM_START + "=" + start + "&"
+          + NextInputSplitServlet.PARAM_END + "=" + end + "&" + NextInputSplitServlet.PARAM_CHUNK + "="
+          + minChunkSize + "&" + NextInputSplitServlet.PARAM_CONSUMERS + "=" + consumers );
+
+      Document doc = XMLHandler.loadXMLString( xml );
+      Node splitNode = XMLHandler.getSubNode( doc, NextInputSplitServlet.XML_TAG );
+      String errorString = XMLHandler.getTagValue( splitNode, NextInputSplitServlet.XML_TAG_ERROR );
+      if ( !Utils.isEmpty( errorString ) ) {
+        throw new KettleException( errorString );
+      }
+      String fromString = XMLHandler.getTagValue( splitNode, NextInputSplitServlet.XML_TAG_FROM );
+      if ( Utils.isEmpty( fromString ) ) {
+        return null;
+      }
+      return new InputSplit( Const.toLong( fromString, start ),
+        Const.toLong( XMLHandler.getTagValue( splitNode, NextInputSplitServlet.XML_TAG_TO ), end ),
+        Const.toLong( XMLHandler.getTagValue( splitNode, NextInputSplitServlet.XML_TAG_START ), start ),
+        Const.toLong( XMLHandler.getTagValue( splitNode, NextInputSplitServlet.XML_TAG_END ), end ) );
+    } catch ( Exception e ) {
+      throw new KettleException( "There was a problem retrieving the next chunk of input '" + name
+        + "' from server " + toString(), e );
+    }
+  }
+
   public SlaveServer getClient() {
     lock.readLock().lock();
     try {
@@ -0,0 +1,454 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.pentaho.di.core.DirectRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.trans.step.BaseStep;
+import org.pentaho.di.trans.step.StepExecutionMode;
+import org.pentaho.di.trans.step.StepExecutionPool;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+
+/**
+ * Runs the micro-batches of a single threaded transformation on the shared step pool instead of calling every step in
+ * turn on the calling thread.
+ * <p>
+ * A step is handed to a worker as soon as rows arrive on its input or when all the steps in front of it finished the
+ * batch, so independent branches run in parallel and a step never gets called just to find out it has nothing to do.
+ * Linear chains of steps (one step feeding the next, nothing else in between) are fused: the chain is scheduled as a
+ * single unit and the rows are pushed through it on the same worker. The steps of a chain hand over their rows with a
+ * {@link DirectRowSet}, the next step processes them as soon as they are put. Steps reading from an info stream (Stream Lookup
+ * and so on) wait until the steps in front of them completed the batch, like they do in the serial executor.
+ * <p>
+ * Every step is still called by one thread at a time, the row sets of the transformation must be thread safe.
+ *
+ * @see SingleThreadedTransExecutor#createExecutor(Trans)
+ */
+public class CooperativeTransExecutor extends SingleThreadedTransExecutor {
+
+  /** The maximum number of processRow() calls on a step without input before the rest of the chain gets a turn */
+  private static final int SOURCE_SLICE_SIZE = 500;
+
+  private final Executor executor;
+  private final List<StepNode> nodes;
+  private final List<StepChain> chains;
+
+  private final AtomicInteger inFlight;
+  private final AtomicReference<KettleException> failure;
+  private volatile boolean failed;
+  private volatile CountDownLatch finished;
+
+  public CooperativeTransExecutor( final Trans trans ) {
+    super( trans );
+
+    executor = StepExecutionPool.getExecutor( StepExecutionMode.POOLED );
+    inFlight = new AtomicInteger();
+    failure = new AtomicReference<KettleException>();
+
+    List<StepMetaDataCombi> steps = getSteps();
+    nodes = new ArrayList<StepNode>( steps.size() );
+    Map<String, StepNode> nodeMap = new HashMap<String, StepNode>();
+    for ( int s = 0; s < steps.size(); s++ ) {
+      StepNode node = new StepNode( steps.get( s ), getStepInfoRowSets( s ) );
+      nodes.add( node );
+      nodeMap.put( node.combi.stepname + "." + node.combi.copy, node );
+    }
+
+    // Wire the steps together following the row sets...
+    //
+    for ( StepNode node : nodes ) {
+      for ( RowSet rowSet : node.combi.step.getOutputRowSets() ) {
+        StepNode next = nodeMap.get( rowSet.getDestinationStepName() + "." + rowSet.getDestinationStepCopy() );
+        if ( next != null && next != node && !node.next.contains( next ) ) {
+          node.next.add( next );
+          next.previous.add( node );
+        }
+      }
+    }
+
+    // The steps are sorted from start to finish: a step joins the chain of the step in front of it when it's the only
+    // step in front of it and it's the only step that step feeds.
+    //
+    chains = new ArrayList<StepChain>();
+    for ( StepNode node : nodes ) {
+      StepNode previous = node.previous.size() == 1 ? node.previous.get( 0 ) : null;
+      if ( previous != null && previous.next.size() == 1 && node.infoRowSets.isEmpty() && previous.chain != null ) {
+        node.chain = previous.chain;
+      } else {
+        node.chain = new StepChain();
+        chains.add( node.chain );
+      }
+      node.chain.nodes.add( node );
+    }
+
+    // The steps of a chain run on the same worker: hand the rows to the next step of the chain right away, like the
+    // steps of a fused step chain do, instead of going through a queue that is safe for several threads
+    //
+    for ( StepChain chain : chains ) {
+      for ( int n = 1; n < chain.nodes.size(); n++ ) {
+        connectDirectly( chain.nodes.get( n - 1 ), chain.nodes.get( n ) );
+      }
+    }
+  }
+
+  /**
+   * Replace the row set between two steps of a chain by a {@link DirectRowSet} that calls the next step as soon as
+   * rows arrive. Steps that have more than the one row set between them keep their row sets.
+   */
+  private void connectDirectly( StepNode previous, final StepNode node ) {
+    StepInterface producer = previous.combi.step;
+    StepInterface consumer = node.combi.step;
+    List<RowSet> outputRowSets = producer.getOutputRowSets();
+    List<RowSet> inputRowSets = consumer.getInputRowSets();
+    if ( outputRowSets.size() != 1 || inputRowSets.size() != 1 || outputRowSets.get( 0 ) != inputRowSets.get( 0 )
+      || outputRowSets.get( 0 ).size() > 0 ) {
+      return;
+    }
+
+    RowSet rowSet = outputRowSets.get( 0 );
+    final DirectRowSet directRowSet = new DirectRowSet();
+    directRowSet.setThreadNameFromToCopy( rowSet.getOriginStepName(), rowSet.getOriginStepCopy(),
+      rowSet.getDestinationStepName(), rowSet.getDestinationStepCopy() );
+    directRowSet.setConsumer( new DirectRowSet.Consumer() {
+      @Override
+      public void consume() {
+        consumeRows( node, directRowSet );
+      }
+    } );
+
+    // A base step hands out copies of its row set lists
+    //
+    outputRowSets.set( 0, directRowSet );
+    inputRowSets.set( 0, directRowSet );
+    if ( producer instanceof BaseStep ) {
+      ( (BaseStep) producer ).setOutputRowSets( outputRowSets );
+    }
+    if ( consumer instanceof BaseStep ) {
+      ( (BaseStep) consumer ).setInputRowSets( inputRowSets );
+    }
+    List<RowSet> rowsets = getTrans().getRowsets();
+    int index = rowsets.indexOf( rowSet );
+    if ( index >= 0 ) {
+      rowsets.set( index, directRowSet );
+    }
+  }
+
+  /**
+   * Process the rows that a step in front of it in the chain just handed over, on the worker running the chain.
+   */
+  private void consumeRows( StepNode node, RowSet rowSet ) {
+    try {
+      while ( rowSet.size() > 0 && !node.stepDone && !failed ) {
+        processRow( node );
+      }
+    } catch ( KettleException e ) {
+      fail( e );
+    }
+  }
+
+  /**
+   * Push the rows on the input of the transformation through all the steps, running the steps that have work to do on
+   * the shared step pool. Returns when every step completed the batch.
+   *
+   * @return true if more iterations can be performed. False if this is not the case.
+   */
+  @Override
+  public boolean oneIteration() throws KettleException {
+    final Trans trans = getTrans();
+    if ( trans.isStopped() ) {
+      return false;
+    }
+
+    for ( StepNode node : nodes ) {
+      node.completed = node.done;
+      node.infoRead = false;
+      int pending = 0;
+      for ( StepNode previous : node.previous ) {
+        if ( !previous.done ) {
+          pending++;
+        }
+      }
+      node.pending.set( pending );
+    }
+    failed = false;
+    failure.set( null );
+
+    // Hold on to one in-flight count while the first chains are scheduled so that the batch can't finish early
+    //
+    finished = new CountDownLatch( 1 );
+    inFlight.set( 1 );
+    for ( StepChain chain : chains ) {
+      if ( chain.hasWork() ) {
+        schedule( chain );
+      }
+    }
+    taskFinished();
+
+    final CountDownLatch latch = finished;
+    try {
+      StepExecutionPool.block( new StepExecutionPool.Attempt<Boolean>() {
+        @Override
+        public Boolean get() throws InterruptedException {
+          latch.await();
+          return Boolean.TRUE;
+        }
+      } );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while waiting for the steps of transformation ["
+        + trans.getName() + "] to complete a batch", e );
+    }
+
+    if ( failure.get() != null ) {
+      throw failure.get();
+    }
+    if ( failed ) {
+      return false;
+    }
+
+    int nrDone = 0;
+    for ( StepNode node : nodes ) {
+      if ( node.done ) {
+        nrDone++;
+      }
+    }
+    return nrDone < nodes.size() && !trans.isStopped();
+  }
+
+  private void schedule( final StepChain chain ) {
+    if ( failed || !chain.scheduled.compareAndSet( false, true ) ) {
+      return;
+    }
+    inFlight.incrementAndGet();
+    try {
+      executor.execute( StepExecutionPool.wrap( chain.nodes.get( 0 ).combi.step.toString(), new Runnable() {
+        @Override
+        public void run() {
+          runChain( chain );
+        }
+      } ) );
+    } catch ( RuntimeException e ) {
+      chain.scheduled.set( false );
+      fail( new KettleException( "Unable to schedule step " + chain.nodes.get( 0 ).combi.stepname, e ) );
+      taskFinished();
+    }
+  }
+
+  private void runChain( StepChain chain ) {
+    try {
+      do {
+        // Push the rows through the chain for as long as one of the steps makes progress
+        //
+        boolean progress = true;
+        while ( progress && !failed && !getTrans().isStopped() ) {
+          progress = false;
+          for ( StepNode node : chain.nodes ) {
+            progress |= runStep( node );
+          }
+        }
+        chain.scheduled.set( false );
+
+        // Rows that arrived after the last look at the input of the chain are picked up by whoever gets to schedule the
+        // chain first: either a step in front of us or this worker.
+        //
+      } while ( !failed && !getTrans().isStopped() && chain.hasWork() && chain.scheduled.compareAndSet( false, true ) );
+    } catch ( KettleException e ) {
+      chain.scheduled.set( false );
+      fail( e );
+    } catch ( Throwable e ) {
+      chain.scheduled.set( false );
+      fail( new KettleException( e ) );
+    } finally {
+      taskFinished();
+    }
+  }
+
+  /**
+   * Give a step the chance to process the rows on its input.
+   *
+   * @return true if the step did something.
+   */
+  private boolean runStep( StepNode node ) throws KettleException {
+    if ( node.completed ) {
+      return false;
+    }
+    // Look at the steps in front of us before looking at the rows: they hand over their rows before they complete
+    //
+    boolean upstreamComplete = node.pending.get() == 0;
+    StepMetaDataCombi combi = node.combi;
+
+    if ( !node.infoRowSets.isEmpty() ) {
+      if ( !upstreamComplete ) {
+        return false;
+      }
+      if ( !node.infoRead ) {
+        node.infoRead = true;
+        for ( RowSet rowSet : node.infoRowSets ) {
+          boolean once = true;
+          while ( once || ( rowSet.size() > 0 && !node.stepDone ) ) {
+            once = false;
+            processRow( node );
+          }
+        }
+      }
+    }
+
+    List<RowSet> rowSets = combi.step.getInputRowSets();
+    if ( rowSets.isEmpty() ) {
+      // No input: read all the rows (Table Input, Text File Input, ...), one slice at a time
+      //
+      for ( int i = 0; i < SOURCE_SLICE_SIZE && !node.stepDone && !failed && !getTrans().isStopped(); i++ ) {
+        processRow( node );
+      }
+      if ( !node.stepDone && !getTrans().isStopped() ) {
+        signalNext( node );
+        return true;
+      }
+    } else {
+      // Since we can't be sure that the step actually reads from the row sets where we measure rows,
+      // we simply count the total nr of rows on input. The steps will find the rows in either row set.
+      //
+      int nrRows = getTotalRows( rowSets );
+      if ( nrRows > 0 ) {
+        for ( int i = 0; i < nrRows && !failed; i++ ) {
+          processRow( node );
+        }
+        signalNext( node );
+        return true;
+      }
+      if ( !upstreamComplete ) {
+        return false;
+      }
+    }
+
+    // Signal the step that a batch of rows has passed for this iteration (sort rows and all)
+    //
+    combi.step.batchComplete();
+    node.done = node.stepDone;
+    node.completed = true;
+
+    for ( StepNode next : node.next ) {
+      next.pending.decrementAndGet();
+    }
+    signalNext( node );
+    return true;
+  }
+
+  private void processRow( StepNode node ) throws KettleException {
+    node.stepDone = !node.combi.step.processRow( node.combi.meta, node.combi.data );
+    if ( node.combi.step.getErrors() > 0 ) {
+      failed = true;
+    }
+  }
+
+  private void signalNext( StepNode node ) {
+    for ( StepNode next : node.next ) {
+      if ( next.chain != node.chain ) {
+        schedule( next.chain );
+      }
+    }
+  }
+
+  private void fail( KettleException e ) {
+    failure.compareAndSet( null, e );
+    failed = true;
+  }
+
+  private void taskFinished() {
+    if ( inFlight.decrementAndGet() == 0 ) {
+      finished.countDown();
+    }
+  }
+
+  /**
+   * @return the number of step chains the steps were fused into
+   */
+  public int getNrChains() {
+    return chains.size();
+  }
+
+  private static final class StepNode {
+    private final StepMetaDataCombi combi;
+    private final List<RowSet> infoRowSets;
+    private final List<StepNode> previous = new ArrayList<StepNode>();
+    private final List<StepNode> next = new ArrayList<StepNode>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private StepChain chain;
+
+    // Only touched by the worker running the chain, or by the caller in between batches
+    //
+    private boolean stepDone;
+    private boolean infoRead;
+    private volatile boolean done;
+    private volatile boolean completed;
+
+    private StepNode( StepMetaDataCombi combi, List<RowSet> infoRowSets ) {
+      this.combi = combi;
+      this.infoRowSets = infoRowSets;
+    }
+
+    private boolean hasWork() {
+      if ( completed ) {
+        return false;
+      }
+      if ( pending.get() == 0 ) {
+        return true;
+      }
+      if ( !infoRowSets.isEmpty() ) {
+        return false;
+      }
+      for ( RowSet rowSet : combi.step.getInputRowSets() ) {
+        if ( rowSet.size() > 0 ) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class StepChain {
+    private final List<StepNode> nodes = new ArrayList<StepNode>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private boolean hasWork() {
+      for ( StepNode node : nodes ) {
+        if ( node.hasWork() ) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,417 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.exception.KettleXMLException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.w3c.dom.Node;
+
+/**
+ * Partitions rows on the hash of one or more key fields.
+ * <p>
+ * The key values are hashed the way they are stored: integers and dates as longs, strings as their UTF-8 bytes.
+ * Strings that are stored as binary strings in UTF-8, as read by the lazy conversion of the input steps, are hashed
+ * without converting them to a String first. A value hashes the same way whatever its storage type so that rows
+ * coming from different steps end up in the same partition. Empty strings hash like nulls.
+ * <p>
+ * With consistent hashing the hash is mapped to a partition with the jump consistent hash of Lamping and Veach. When
+ * partitions are added to the end of the partition schema only the rows that move to the new partitions change
+ * partition, about 1 in n for the n-th partition, instead of nearly all of them with the remainder of division.
+ */
+public class HashPartitioner extends BasePartitioner {
+
+  private static final int INITIAL_BUFFER_SIZE = 256;
+
+  private static final ThreadLocal<byte[][]> UTF8_BUFFER = new ThreadLocal<byte[][]>() {
+    @Override
+    protected byte[][] initialValue() {
+      return new byte[][] { new byte[ INITIAL_BUFFER_SIZE ] };
+    }
+  };
+
+  private String[] fieldNames;
+  private PartitionHashFunction hashFunction;
+  private boolean consistent;
+
+  /**
+   * The key fields looked up in the last row metadata seen, shared by the step copies that partition with this
+   * instance. Rows coming from different steps can store the same field differently, the key fields are looked up
+   * again when the row metadata changes.
+   */
+  private volatile KeyLayout keyLayout;
+
+  public HashPartitioner() {
+    super();
+    fieldNames = new String[ 0 ];
+    hashFunction = PartitionHashFunction.MURMUR3;
+    consistent = true;
+  }
+
+  public Partitioner getInstance() {
+    Partitioner partitioner = new HashPartitioner();
+    partitioner.setId( getId() );
+    partitioner.setDescription( getDescription() );
+    return partitioner;
+  }
+
+  public HashPartitioner clone() {
+    HashPartitioner hashPartitioner = (HashPartitioner) super.clone();
+    hashPartitioner.fieldNames = fieldNames.clone();
+    hashPartitioner.hashFunction = hashFunction;
+    hashPartitioner.consistent = consistent;
+
+    return hashPartitioner;
+  }
+
+  public String getDialogClassName() {
+    return "org.pentaho.di.ui.trans.dialog.HashPartitionerDialog";
+  }
+
+  @Override
+  public void init( RowMetaInterface rowMeta ) throws KettleException {
+    super.init( rowMeta );
+
+    getKeyFields( rowMeta );
+  }
+
+  private KeyField[] getKeyFields( RowMetaInterface rowMeta ) throws KettleException {
+    KeyLayout layout = keyLayout;
+    if ( layout == null || layout.rowMeta != rowMeta ) {
+      if ( fieldNames.length == 0 ) {
+        throw new KettleStepException( "No fields to partition on were specified" );
+      }
+      KeyField[] fields = new KeyField[ fieldNames.length ];
+      for ( int i = 0; i < fieldNames.length; i++ ) {
+        int index = rowMeta.indexOfValue( fieldNames[ i ] );
+        if ( index < 0 ) {
+          throw new KettleStepException( "Unable to find partitioning field name ["
+            + fieldNames[ i ] + "] in the output row..." + rowMeta );
+        }
+        fields[ i ] = new KeyField( index, isRawUtf8( rowMeta.getValueMeta( index ) ) );
+      }
+      layout = new KeyLayout( rowMeta, fields );
+      keyLayout = layout;
+    }
+    return layout.fields;
+  }
+
+  public int getPartition( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    super.init( rowMeta );
+
+    return toPartition( hash( rowMeta, row, getKeyFields( rowMeta ), UTF8_BUFFER.get() ) );
+  }
+
+  /**
+   * Calculates the partitions of a block of rows. The key fields and the buffer used to encode strings are looked up
+   * once for the whole block, nothing is allocated per row.
+   */
+  @Override
+  public void getPartitions( RowMetaInterface rowMeta, Object[][] rows, int nrRows, int[] partitions )
+    throws KettleException {
+    super.init( rowMeta );
+
+    KeyField[] fields = getKeyFields( rowMeta );
+    byte[][] buffer = UTF8_BUFFER.get();
+    for ( int i = 0; i < nrRows; i++ ) {
+      partitions[ i ] = toPartition( hash( rowMeta, rows[ i ], fields, buffer ) );
+    }
+  }
+
+  private int toPartition( int hash ) {
+    if ( consistent ) {
+      return jumpConsistentHash( hash * 0x9E3779B97F4A7C15L, nrPartitions );
+    }
+    return ( hash & Integer.MAX_VALUE ) % nrPartitions;
+  }
+
+  /**
+   * Jump consistent hash, "A Fast, Minimal Memory, Consistent Hash Algorithm" by John Lamping and Eric Veach.
+   *
+   * @param key
+   *          the 64-bit key to map
+   * @param nrBuckets
+   *          the number of buckets, at least 1
+   * @return the bucket of the key, between 0 and nrBuckets-1
+   */
+  static int jumpConsistentHash( long key, int nrBuckets ) {
+    long bucket = -1;
+    long jump = 0;
+    while ( jump < nrBuckets ) {
+      bucket = jump;
+      key = key * 2862933555777941757L + 1;
+      jump = (long) ( ( bucket + 1 ) * ( (double) ( 1L << 31 ) / (double) ( ( key >>> 33 ) + 1 ) ) );
+    }
+    return (int) bucket;
+  }
+
+  int hash( RowMetaInterface rowMeta, Object[] row, KeyField[] fields, byte[][] buffer ) throws KettleException {
+    int hash = 0;
+    for ( KeyField field : fields ) {
+      hash = hashValue( rowMeta.getValueMeta( field.index ), row[ field.index ], field.rawUtf8, buffer, hash );
+    }
+    return hash;
+  }
+
+  private int hashValue( ValueMetaInterface valueMeta, Object valueData, boolean rawUtf8, byte[][] buffer,
+    int seed ) throws KettleException {
+    if ( valueData == null ) {
+      return hashNull( buffer, seed );
+    }
+
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_STRING:
+        if ( rawUtf8 ) {
+          byte[] bytes = (byte[]) valueData;
+          return hashFunction.hashBytes( bytes, 0, bytes.length, seed );
+        }
+        String string;
+        if ( valueMeta.isStorageNormal() && valueMeta.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE ) {
+          string = (String) valueData;
+        } else {
+          string = valueMeta.getString( valueData );
+        }
+        if ( string == null ) {
+          return hashNull( buffer, seed );
+        }
+        int length = encodeUtf8( string, buffer );
+        return hashFunction.hashBytes( buffer[ 0 ], 0, length, seed );
+
+      case ValueMetaInterface.TYPE_INTEGER:
+        Long integer = valueMeta.isStorageNormal() ? (Long) valueData : valueMeta.getInteger( valueData );
+        return integer == null ? hashNull( buffer, seed ) : hashFunction.hashLong( integer, seed );
+
+      case ValueMetaInterface.TYPE_NUMBER:
+        Double number = valueMeta.getNumber( valueData );
+        if ( number == null ) {
+          return hashNull( buffer, seed );
+        }
+        // -0.0 and 0.0 are the same key
+        //
+        return hashFunction.hashLong( Double.doubleToLongBits( number + 0.0d ), seed );
+
+      case ValueMetaInterface.TYPE_DATE:
+      case ValueMetaInterface.TYPE_TIMESTAMP:
+        Date date = valueMeta.getDate( valueData );
+        return date == null ? hashNull( buffer, seed ) : hashFunction.hashLong( date.getTime(), seed );
+
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        Boolean bool = valueMeta.getBoolean( valueData );
+        return bool == null ? hashNull( buffer, seed ) : hashFunction.hashLong( bool ? 1L : 0L, seed );
+
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+        // The scale of a big number depends on where it came from, 1.50 and 1.5 are the same key
+        //
+        BigDecimal bigNumber = valueMeta.getBigNumber( valueData );
+        return bigNumber == null ? hashNull( buffer, seed )
+          : hashFunction.hashLong( bigNumber.stripTrailingZeros().hashCode(), seed );
+
+      case ValueMetaInterface.TYPE_BINARY:
+        byte[] binary = valueMeta.getBinary( valueData );
+        return binary == null ? hashNull( buffer, seed ) : hashFunction.hashBytes( binary, 0, binary.length, seed );
+
+      default:
+        return hashFunction.hashLong( valueMeta.hashCode( valueData ), seed );
+    }
+  }
+
+  private int hashNull( byte[][] buffer, int seed ) {
+    return hashFunction.hashBytes( buffer[ 0 ], 0, 0, seed );
+  }
+
+  /**
+   * Encode a string in UTF-8 in the first element of the buffer, growing it when needed.
+   *
+   * @return the number of bytes written
+   */
+  static int encodeUtf8( String string, byte[][] buffer ) {
+    int nrChars = string.length();
+    byte[] bytes = buffer[ 0 ];
+    if ( bytes.length < nrChars * 3 ) {
+      bytes = new byte[ Math.max( nrChars * 3, bytes.length * 2 ) ];
+      buffer[ 0 ] = bytes;
+    }
+
+    int length = 0;
+    for ( int i = 0; i < nrChars; i++ ) {
+      char c = string.charAt( i );
+      if ( c < 0x80 ) {
+        bytes[ length++ ] = (byte) c;
+      } else if ( c < 0x800 ) {
+        bytes[ length++ ] = (byte) ( 0xc0 | ( c >> 6 ) );
+        bytes[ length++ ] = (byte) ( 0x80 | ( c & 0x3f ) );
+      } else if ( Character.isHighSurrogate( c ) && i + 1 < nrChars
+        && Character.isLowSurrogate( string.charAt( i + 1 ) ) ) {
+        int codePoint = Character.toCodePoint( c, string.charAt( ++i ) );
+        bytes[ length++ ] = (byte) ( 0xf0 | ( codePoint >> 18 ) );
+        bytes[ length++ ] = (byte) ( 0x80 | ( ( codePoint >> 12 ) & 0x3f ) );
+        bytes[ length++ ] = (byte) ( 0x80 | ( ( codePoint >> 6 ) & 0x3f ) );
+        bytes[ length++ ] = (byte) ( 0x80 | ( codePoint & 0x3f ) );
+      } else if ( Character.isSurrogate( c ) ) {
+        // An unpaired surrogate, replaced the way String.getBytes() does
+        //
+        bytes[ length++ ] = (byte) '?';
+      } else {
+        bytes[ length++ ] = (byte) ( 0xe0 | ( c >> 12 ) );
+        bytes[ length++ ] = (byte) ( 0x80 | ( ( c >> 6 ) & 0x3f ) );
+        bytes[ length++ ] = (byte) ( 0x80 | ( c & 0x3f ) );
+      }
+    }
+    return length;
+  }
+
+  /**
+   * The bytes of a binary string can be hashed as they are when they hold the UTF-8 encoding of the string value:
+   * nothing is trimmed and the encoding is UTF-8.
+   */
+  static boolean isRawUtf8( ValueMetaInterface valueMeta ) {
+    if ( valueMeta.getType() != ValueMetaInterface.TYPE_STRING || !valueMeta.isStorageBinaryString() ) {
+      return false;
+    }
+    ValueMetaInterface storageMeta = valueMeta.getStorageMetadata();
+    if ( storageMeta == null || valueMeta.getTrimType() != ValueMetaInterface.TRIM_TYPE_NONE
+      || storageMeta.getTrimType() != ValueMetaInterface.TRIM_TYPE_NONE ) {
+      return false;
+    }
+    return isUtf8( valueMeta.getStringEncoding() ) && isUtf8( storageMeta.getStringEncoding() );
+  }
+
+  private static boolean isUtf8( String encoding ) {
+    try {
+      Charset charset = Utils.isEmpty( encoding ) ? Charset.defaultCharset() : Charset.forName( encoding );
+      return StandardCharsets.UTF_8.equals( charset );
+    } catch ( IllegalArgumentException e ) {
+      return false;
+    }
+  }
+
+  public String getDescription() {
+    String description = "Hash partitioner";
+    if ( fieldNames.length > 0 ) {
+      description += "(" + String.join( ", ", fieldNames ) + ")";
+    }
+    return description;
+  }
+
+  public String getXML() {
+    StringBuilder xml = new StringBuilder( 200 );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "hash_function", hashFunction.getCode() ) );
+    xml.append( "           " ).append( XMLHandler.addTagValue( "consistent", consistent ) );
+    xml.append( "           " ).append( XMLHandler.openTag( "fields" ) ).append( Const.CR );
+    for ( String fieldName : fieldNames ) {
+      xml.append( "             " ).append( XMLHandler.addTagValue( "field_name", fieldName ) );
+    }
+    xml.append( "           " ).append( XMLHandler.closeTag( "fields" ) ).append( Const.CR );
+    return xml.toString();
+  }
+
+  public void loadXML( Node partitioningMethodNode ) throws KettleXMLException {
+    hashFunction =
+      PartitionHashFunction.getHashFunctionByCode( XMLHandler.getTagValue( partitioningMethodNode, "hash_function" ) );
+    consistent = !"N".equalsIgnoreCase( XMLHandler.getTagValue( partitioningMethodNode, "consistent" ) );
+    Node fieldsNode = XMLHandler.getSubNode( partitioningMethodNode, "fields" );
+    int nrFields = XMLHandler.countNodes( fieldsNode, "field_name" );
+    fieldNames = new String[ nrFields ];
+    for ( int i = 0; i < nrFields; i++ ) {
+      fieldNames[ i ] = XMLHandler.getNodeValue( XMLHandler.getSubNodeByNr( fieldsNode, "field_name", i ) );
+    }
+    keyLayout = null;
+  }
+
+  public void saveRep( Repository rep, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_HASH_FUNCTION", hashFunction.getCode() );
+    rep.saveStepAttribute( id_transformation, id_step, "PARTITIONING_CONSISTENT", consistent );
+    for ( int i = 0; i < fieldNames.length; i++ ) {
+      rep.saveStepAttribute( id_transformation, id_step, i, "PARTITIONING_FIELDNAME", fieldNames[ i ] );
+    }
+  }
+
+  public void loadRep( Repository rep, ObjectId id_step ) throws KettleException {
+    String hashFunctionCode = rep.getStepAttributeString( id_step, "PARTITIONING_HASH_FUNCTION" );
+    hashFunction = PartitionHashFunction.getHashFunctionByCode( hashFunctionCode );
+    consistent = rep.getStepAttributeBoolean( id_step, 0, "PARTITIONING_CONSISTENT", true );
+    int nrFields = rep.countNrStepAttributes( id_step, "PARTITIONING_FIELDNAME" );
+    fieldNames = new String[ nrFields ];
+    for ( int i = 0; i < nrFields; i++ ) {
+      fieldNames[ i ] = rep.getStepAttributeString( id_step, i, "PARTITIONING_FIELDNAME" );
+    }
+    keyLayout = null;
+  }
+
+  public String[] getFieldNames() {
+    return fieldNames;
+  }
+
+  public void setFieldNames( String[] fieldNames ) {
+    this.fieldNames = fieldNames == null ? new String[ 0 ] : fieldNames;
+    keyLayout = null;
+  }
+
+  public PartitionHashFunction getHashFunction() {
+    return hashFunction;
+  }
+
+  public void setHashFunction( PartitionHashFunction hashFunction ) {
+    this.hashFunction = hashFunction == null ? PartitionHashFunction.MURMUR3 : hashFunction;
+  }
+
+  public boolean isConsistent() {
+    return consistent;
+  }
+
+  public void setConsistent( boolean consistent ) {
+    this.consistent = consistent;
+  }
+
+  private static final class KeyLayout {
+    private final RowMetaInterface rowMeta;
+    private final KeyField[] fields;
+
+    private KeyLayout( RowMetaInterface rowMeta, KeyField[] fields ) {
+      this.rowMeta = rowMeta;
+      this.fields = fields;
+    }
+  }
+
+  static final class KeyField {
+    final int index;
+    final boolean rawUtf8;
+
+    KeyField( int index, boolean rawUtf8 ) {
+      this.index = index;
+      this.rawUtf8 = rawUtf8;
+    }
+  }
+}
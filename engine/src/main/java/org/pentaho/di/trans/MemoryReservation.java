@@ -0,0 +1,123 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+/**
+ * The memory a single step reserved from the budget of its transformation. The step allocates the estimated size of
+ * the rows it keeps and releases it when the rows are written to disk or passed on. To keep the contention on the
+ * shared budget low, memory is reserved from the {@link TransMemoryManager} in chunks.
+ * <p>
+ * This class is not thread-safe, every step (copy) has its own reservation.
+ */
+public class MemoryReservation {
+  static final long CHUNK_SIZE = 1024L * 1024L;
+
+  private final TransMemoryManager manager;
+  private final String owner;
+  private long used;
+  private long reserved;
+
+  MemoryReservation( TransMemoryManager manager, String owner ) {
+    this.manager = manager;
+    this.owner = owner;
+  }
+
+  /**
+   * @return a reservation that is not limited, for steps running without a transformation memory manager.
+   */
+  public static MemoryReservation unlimited() {
+    return new MemoryReservation( null, null );
+  }
+
+  /**
+   * @return true if allocations can be refused
+   */
+  public boolean isLimited() {
+    return manager != null && manager.isLimited();
+  }
+
+  /**
+   * Account for the given number of bytes. The bytes are counted even if the allocation is refused: the caller already
+   * holds the data, it is expected to spill and release it.
+   *
+   * @param bytes
+   *          the estimated size of the data the step keeps in memory
+   * @return true if the memory fits in the budget, false if the step should spill
+   */
+  public boolean allocate( long bytes ) {
+    if ( manager == null ) {
+      return true;
+    }
+    used += bytes;
+    if ( used <= reserved ) {
+      return true;
+    }
+    long chunk = Math.max( CHUNK_SIZE, used - reserved );
+    if ( manager.reserve( chunk ) ) {
+      reserved += chunk;
+      return true;
+    }
+    // Maybe there is still room for exactly what we need
+    //
+    if ( manager.reserve( used - reserved ) ) {
+      reserved = used;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Give back part of the memory, the data was written to disk or passed on.
+   *
+   * @param bytes
+   *          the number of bytes to release
+   */
+  public void release( long bytes ) {
+    if ( manager == null ) {
+      return;
+    }
+    used = Math.max( 0, used - bytes );
+    if ( reserved > used ) {
+      manager.release( reserved - used );
+      reserved = used;
+    }
+  }
+
+  /**
+   * Give back all the memory of this reservation.
+   */
+  public void releaseAll() {
+    release( used );
+  }
+
+  /**
+   * @return the number of bytes allocated
+   */
+  public long getUsed() {
+    return used;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+}
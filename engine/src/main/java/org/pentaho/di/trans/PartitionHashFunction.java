@@ -0,0 +1,249 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+/**
+ * The 32-bit hash functions the hash partitioner can use. Both work on a range of bytes, so that values stored as
+ * binary strings can be hashed as they are, and on a long, hashed as its 8 bytes in little endian order.
+ * <p>
+ * The seed lets the hash of one field feed into the hash of the next one, which is how keys of several fields are
+ * hashed.
+ */
+public enum PartitionHashFunction {
+
+  /**
+   * MurmurHash3, the x86 32-bit variant.
+   */
+  MURMUR3( "murmur3", "Murmur3" ) {
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    @Override
+    public int hashBytes( byte[] bytes, int offset, int length, int seed ) {
+      int h1 = seed;
+      int end = offset + ( length & ~3 );
+      for ( int i = offset; i < end; i += 4 ) {
+        h1 = mixH1( h1, mixK1( getInt( bytes, i ) ) );
+      }
+
+      int k1 = 0;
+      switch ( length & 3 ) {
+        case 3:
+          k1 ^= ( bytes[ end + 2 ] & 0xff ) << 16;
+          // fall through
+        case 2:
+          k1 ^= ( bytes[ end + 1 ] & 0xff ) << 8;
+          // fall through
+        case 1:
+          k1 ^= bytes[ end ] & 0xff;
+          h1 ^= mixK1( k1 );
+          break;
+        default:
+          break;
+      }
+      return fmix( h1, length );
+    }
+
+    @Override
+    public int hashLong( long value, int seed ) {
+      int h1 = mixH1( seed, mixK1( (int) value ) );
+      h1 = mixH1( h1, mixK1( (int) ( value >>> 32 ) ) );
+      return fmix( h1, 8 );
+    }
+
+    private int mixK1( int k1 ) {
+      k1 *= C1;
+      k1 = Integer.rotateLeft( k1, 15 );
+      return k1 * C2;
+    }
+
+    private int mixH1( int h1, int k1 ) {
+      h1 ^= k1;
+      h1 = Integer.rotateLeft( h1, 13 );
+      return h1 * 5 + 0xe6546b64;
+    }
+
+    private int fmix( int h1, int length ) {
+      h1 ^= length;
+      h1 ^= h1 >>> 16;
+      h1 *= 0x85ebca6b;
+      h1 ^= h1 >>> 13;
+      h1 *= 0xc2b2ae35;
+      return h1 ^ ( h1 >>> 16 );
+    }
+  },
+
+  /**
+   * xxHash, the 32-bit variant.
+   */
+  XXHASH( "xxhash", "xxHash" ) {
+    private static final int P1 = 0x9E3779B1;
+    private static final int P2 = 0x85EBCA77;
+    private static final int P3 = 0xC2B2AE3D;
+    private static final int P4 = 0x27D4EB2F;
+    private static final int P5 = 0x165667B1;
+
+    @Override
+    public int hashBytes( byte[] bytes, int offset, int length, int seed ) {
+      int end = offset + length;
+      int i = offset;
+      int h32;
+      if ( length >= 16 ) {
+        int v1 = seed + P1 + P2;
+        int v2 = seed + P2;
+        int v3 = seed;
+        int v4 = seed - P1;
+        int limit = end - 16;
+        do {
+          v1 = round( v1, getInt( bytes, i ) );
+          v2 = round( v2, getInt( bytes, i + 4 ) );
+          v3 = round( v3, getInt( bytes, i + 8 ) );
+          v4 = round( v4, getInt( bytes, i + 12 ) );
+          i += 16;
+        } while ( i <= limit );
+        h32 = Integer.rotateLeft( v1, 1 ) + Integer.rotateLeft( v2, 7 ) + Integer.rotateLeft( v3, 12 )
+          + Integer.rotateLeft( v4, 18 );
+      } else {
+        h32 = seed + P5;
+      }
+      h32 += length;
+
+      for ( ; i + 4 <= end; i += 4 ) {
+        h32 = mixWord( h32, getInt( bytes, i ) );
+      }
+      for ( ; i < end; i++ ) {
+        h32 += ( bytes[ i ] & 0xff ) * P5;
+        h32 = Integer.rotateLeft( h32, 11 ) * P1;
+      }
+      return avalanche( h32 );
+    }
+
+    @Override
+    public int hashLong( long value, int seed ) {
+      int h32 = seed + P5 + 8;
+      h32 = mixWord( h32, (int) value );
+      h32 = mixWord( h32, (int) ( value >>> 32 ) );
+      return avalanche( h32 );
+    }
+
+    private int round( int acc, int lane ) {
+      acc += lane * P2;
+      acc = Integer.rotateLeft( acc, 13 );
+      return acc * P1;
+    }
+
+    private int mixWord( int h32, int word ) {
+      h32 += word * P3;
+      return Integer.rotateLeft( h32, 17 ) * P4;
+    }
+
+    private int avalanche( int h32 ) {
+      h32 ^= h32 >>> 15;
+      h32 *= P2;
+      h32 ^= h32 >>> 13;
+      h32 *= P3;
+      return h32 ^ ( h32 >>> 16 );
+    }
+  };
+
+  private final String code;
+  private final String description;
+
+  PartitionHashFunction( String code, String description ) {
+    this.code = code;
+    this.description = description;
+  }
+
+  /**
+   * Hash a range of bytes.
+   *
+   * @param bytes
+   *          the bytes to hash
+   * @param offset
+   *          the index of the first byte to hash
+   * @param length
+   *          the number of bytes to hash
+   * @param seed
+   *          the seed, the hash of the previous key field or 0
+   * @return the hash
+   */
+  public abstract int hashBytes( byte[] bytes, int offset, int length, int seed );
+
+  /**
+   * Hash a long, giving the same result as hashing its 8 bytes in little endian order.
+   *
+   * @param value
+   *          the value to hash
+   * @param seed
+   *          the seed, the hash of the previous key field or 0
+   * @return the hash
+   */
+  public abstract int hashLong( long value, int seed );
+
+  public String getCode() {
+    return code;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * Look up a hash function by its code.
+   *
+   * @param code
+   *          the code to look up
+   * @return the hash function with the given code or Murmur3 if there is no such function
+   */
+  public static PartitionHashFunction getHashFunctionByCode( String code ) {
+    for ( PartitionHashFunction hashFunction : values() ) {
+      if ( hashFunction.code.equalsIgnoreCase( code ) ) {
+        return hashFunction;
+      }
+    }
+    return MURMUR3;
+  }
+
+  public static String[] getDescriptions() {
+    PartitionHashFunction[] hashFunctions = values();
+    String[] descriptions = new String[ hashFunctions.length ];
+    for ( int i = 0; i < hashFunctions.length; i++ ) {
+      descriptions[ i ] = hashFunctions[ i ].description;
+    }
+    return descriptions;
+  }
+
+  public static PartitionHashFunction getHashFunctionByDescription( String description ) {
+    for ( PartitionHashFunction hashFunction : values() ) {
+      if ( hashFunction.description.equalsIgnoreCase( description ) ) {
+        return hashFunction;
+      }
+    }
+    return MURMUR3;
+  }
+
+  private static int getInt( byte[] bytes, int index ) {
+    return ( bytes[ index ] & 0xff ) | ( ( bytes[ index + 1 ] & 0xff ) << 8 ) | ( ( bytes[ index + 2 ] & 0xff ) << 16 )
+      | ( ( bytes[ index + 3 ] & 0xff ) << 24 );
+  }
+}
@@ -119,6 +119,28 @@ public interface Partitioner {
    */
   public int getPartition( RowMetaInterface rowMeta, Object[] r ) throws KettleException;
 
+  /**
+   * Gets the partitions of a block of rows. Partitioners that can look up what they need once for the whole block
+   * override this, by default every row is partitioned on its own.
+   *
+   * @param rowMeta
+   *          the row meta
+   * @param rows
+   *          the rows
+   * @param nrRows
+   *          the number of rows to partition, starting with the first row in the rows array
+   * @param partitions
+   *          receives the partition of every row, at least nrRows long
+   * @throws KettleException
+   *           the kettle exception
+   */
+  public default void getPartitions( RowMetaInterface rowMeta, Object[][] rows, int nrRows, int[] partitions )
+    throws KettleException {
+    for ( int i = 0; i < nrRows; i++ ) {
+      partitions[ i ] = getPartition( rowMeta, rows[ i ] );
+    }
+  }
+
   /**
    * Sets the meta.
    *
@@ -25,6 +25,7 @@ package org.pentaho.di.trans;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
@@ -77,6 +78,23 @@ public class SingleThreadedTransExecutor {
 
   }
 
+  /**
+   * Create the executor for a single threaded transformation. Variable KETTLE_SINGLE_THREADED_SCHEDULER decides whether
+   * the steps are called in turn on the calling thread ("serial", the default) or run on the shared step pool
+   * ("cooperative").
+   *
+   * @param trans
+   *          the single threaded transformation to execute
+   * @return the executor
+   */
+  public static SingleThreadedTransExecutor createExecutor( final Trans trans ) {
+    String scheduler = trans.getVariable( Const.KETTLE_SINGLE_THREADED_SCHEDULER );
+    if ( "cooperative".equalsIgnoreCase( Const.trim( scheduler ) ) ) {
+      return new CooperativeTransExecutor( trans );
+    }
+    return new SingleThreadedTransExecutor( trans );
+  }
+
   /**
    * Sort the steps from start to finish...
    */
@@ -381,6 +399,22 @@ public class SingleThreadedTransExecutor {
     return nrDone < steps.size() && !trans.isStopped();
   }
 
+  /**
+   * @return the steps of the transformation, sorted from start to finish
+   */
+  protected List<StepMetaDataCombi> getSteps() {
+    return steps;
+  }
+
+  /**
+   * @param index
+   *          the index of the step in the sorted list of steps
+   * @return the row sets the step reads its info streams from
+   */
+  protected List<RowSet> getStepInfoRowSets( int index ) {
+    return stepInfoRowSets.get( index );
+  }
+
   protected int getTotalRows( List<RowSet> rowSets ) {
     int total = 0;
     for ( RowSet rowSet : rowSets ) {
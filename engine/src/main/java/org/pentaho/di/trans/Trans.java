@@ -34,14 +34,18 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.Queue;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -61,6 +65,7 @@ import org.pentaho.di.cluster.SlaveServer;
 import org.pentaho.di.core.BlockingBatchingRowSet;
 import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.DirectRowSet;
 import org.pentaho.di.core.database.ConnectionPoolUtil;
 import org.pentaho.di.core.util.ConnectionUtil;
 import org.pentaho.di.core.util.Utils;
@@ -68,7 +73,9 @@ import org.pentaho.di.core.Counter;
 import org.pentaho.di.core.ExecutorInterface;
 import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.MultiProducerRingBufferRowSet;
 import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
@@ -131,9 +138,12 @@ import org.pentaho.di.trans.cluster.TransSplitter;
 import org.pentaho.di.trans.performance.StepPerformanceSnapShot;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
+import org.pentaho.di.trans.step.FusedStepChain;
 import org.pentaho.di.trans.step.RunThread;
 import org.pentaho.di.trans.step.StepAdapter;
 import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepExecutionMode;
+import org.pentaho.di.trans.step.StepExecutionPool;
 import org.pentaho.di.trans.step.StepInitThread;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepListener;
@@ -288,6 +298,31 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   private List<StepMetaDataCombi> steps;
 
+  /**
+   * The memory budget of the steps that buffer rows.
+   */
+  private TransMemoryManager memoryManager;
+
+  /**
+   * How the step copies are run, null to use the KETTLE_STEP_EXECUTION_MODE variable.
+   */
+  private StepExecutionMode stepExecutionMode;
+
+  /**
+   * The executor of the step copies, null if every step copy gets a thread of its own.
+   */
+  private Executor stepExecutor;
+
+  /**
+   * The steps that run on the thread of the step in front of them, see {@link TransMeta#isUsingStepFusion()}.
+   */
+  private Set<StepMeta> fusedSteps;
+
+  /**
+   * The chains of fused steps, by their first step.
+   */
+  private Map<StepMeta, FusedStepChain> fusedStepChains;
+
   /**
    * Indicates if the result rows have been set
    */
@@ -819,6 +854,25 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     transMeta.activateParameters();
     ConnectionUtil.init( transMeta );
 
+    // The memory the sorting and grouping steps can use to buffer rows
+    //
+    String memoryLimit = environmentSubstitute( transMeta.getMemoryLimit() );
+    if ( Utils.isEmpty( memoryLimit ) ) {
+      memoryLimit = EnvUtil.getSystemProperty( Const.KETTLE_TRANS_MEMORY_LIMIT );
+    }
+    memoryManager = new TransMemoryManager( TransMemoryManager.parseLimit( environmentSubstitute( memoryLimit ) ) );
+
+    // How the step copies are run: a thread each, a virtual thread each or on a step pool of this transformation
+    //
+    StepExecutionMode executionMode = stepExecutionMode;
+    if ( executionMode == null ) {
+      executionMode = StepExecutionMode.getStepExecutionModeByCode(
+        environmentSubstitute( EnvUtil.getSystemProperty( Const.KETTLE_STEP_EXECUTION_MODE ) ) );
+    }
+    if ( executionMode == StepExecutionMode.VIRTUAL && !StepExecutionPool.isVirtualThreadsAvailable() ) {
+      log.logBasic( BaseMessages.getString( PKG, "Trans.Log.VirtualThreadsNotAvailable" ) );
+    }
+
     if ( transMeta.getName() == null ) {
       if ( transMeta.getFilename() != null ) {
         log.logBasic( BaseMessages.getString( PKG, "Trans.Log.DispacthingStartedForFilename", transMeta
@@ -877,6 +931,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     rowsets = new ArrayList<>();
 
     List<StepMeta> hopsteps = transMeta.getTransHopSteps( false );
+    fusedSteps = findFusedSteps( hopsteps );
 
     if ( log.isDetailed() ) {
       log.logDetailed( BaseMessages.getString( PKG, "Trans.Log.FoundDefferentSteps", String.valueOf( hopsteps
@@ -966,7 +1021,15 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                 //
                 Boolean batchingRowSet =
                   ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
-                if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
+                if ( fusedSteps.contains( nextStep ) ) {
+                  // The next step runs on the thread of this one, hand over the rows directly
+                  //
+                  rowSet = new DirectRowSet();
+                } else if ( transMeta.isUsingRingBufferRowSets() ) {
+                  // Every hop between two step copies has exactly one writer and one reader
+                  //
+                  rowSet = new RingBufferRowSet( transMeta.getSizeRowset(), transMeta.getRowSetWaitStrategy() );
+                } else if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
                   rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
                 } else {
                   rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
@@ -1015,7 +1078,12 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           // distribution...
           for ( int s = 0; s < thisCopies; s++ ) {
             for ( int t = 0; t < nextCopies; t++ ) {
-              BlockingRowSet rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+              RowSet rowSet;
+              if ( transMeta.isUsingRingBufferRowSets() ) {
+                rowSet = new RingBufferRowSet( transMeta.getSizeRowset(), transMeta.getRowSetWaitStrategy() );
+              } else {
+                rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+              }
               rowSet.setThreadNameFromToCopy( thisStep.getName(), s, nextStep.getName(), t );
               rowsets.add( rowSet );
               if ( log.isDetailed() ) {
@@ -1076,7 +1144,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
           // don't share. Each copy of the step has its own variables.
           //
           step.initializeVariablesFrom( this );
-          step.setUsingThreadPriorityManagment( transMeta.isUsingThreadPriorityManagment() );
+          // Ring buffer row sets do their own back-off, no need to throttle the steps on top of that
+          //
+          step.setUsingThreadPriorityManagment( transMeta.isUsingThreadPriorityManagment()
+            && !transMeta.isUsingRingBufferRowSets() );
 
           // Pass the connected repository & metaStore to the steps runtime
           //
@@ -1132,6 +1203,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       }
     }
 
+    // Chain the fused steps to the steps in front of them
+    //
+    fusedStepChains = createFusedStepChains();
+
     // Now (optionally) write start log record!
     // Make sure we synchronize appropriately to avoid duplicate batch IDs.
     //
@@ -1220,8 +1295,13 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       log.logDetailed( BaseMessages.getString( PKG, "Trans.Log.InitialisingSteps", String.valueOf( steps.size() ) ) );
     }
 
+    // The pool can give every step copy a thread: the step copies waiting on each other never stall it
+    //
+    stepExecutor = StepExecutionPool.createExecutor( executionMode, steps.size() );
+
     StepInitThread[] initThreads = new StepInitThread[ steps.size() ];
     Thread[] threads = new Thread[ steps.size() ];
+    final CountDownLatch initLatch = stepExecutor == null ? null : new CountDownLatch( steps.size() );
 
     // Initialize all the threads...
     //
@@ -1232,21 +1312,48 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       // Init all steps at once, but ALL steps need to finish before we can
       // continue properly!
       //
-      initThreads[ i ] = new StepInitThread( sid, log );
+      final StepInitThread initThread = new StepInitThread( sid, log );
+      initThreads[ i ] = initThread;
+      String threadName = "init of " + sid.stepname + "." + sid.copy;
 
       // Put it in a separate thread!
       //
-      threads[ i ] = new Thread( initThreads[ i ] );
-      threads[ i ].setName( "init of " + sid.stepname + "." + sid.copy + " (" + threads[ i ].getName() + ")" );
+      if ( stepExecutor == null ) {
+        threads[ i ] = new Thread( initThread );
+        threads[ i ].setName( threadName + " (" + threads[ i ].getName() + ")" );
+      }
 
       ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeInitialize.id, initThreads[ i ] );
 
-      threads[ i ].start();
+      if ( stepExecutor == null ) {
+        threads[ i ].start();
+      } else {
+        stepExecutor.execute( StepExecutionPool.wrap( threadName, () -> {
+          try {
+            initThread.run();
+          } finally {
+            initLatch.countDown();
+          }
+        } ) );
+      }
+    }
+
+    if ( initLatch != null ) {
+      try {
+        StepExecutionPool.block( () -> {
+          initLatch.await();
+          return null;
+        } );
+      } catch ( InterruptedException e ) {
+        throw new KettleException( "Interrupted while waiting for the steps to initialize", e );
+      }
     }
 
     for ( int i = 0; i < threads.length; i++ ) {
       try {
-        threads[ i ].join();
+        if ( threads[ i ] != null ) {
+          threads[ i ].join();
+        }
         ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepAfterInitialize.id, initThreads[ i ] );
       } catch ( Exception ex ) {
         log.logError( "Error with init thread: " + ex.getMessage(), ex.getMessage() );
@@ -1530,9 +1637,9 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         //
         for ( int i = 0; i < steps.size(); i++ ) {
           final StepMetaDataCombi combi = steps.get( i );
-          RunThread runThread = new RunThread( combi );
-          Thread thread = new Thread( runThread );
-          thread.setName( getName() + " - " + combi.stepname );
+          FusedStepChain fusedStepChain = fusedStepChains.get( combi.stepMeta );
+          Runnable runThread = fusedStepChain != null ? fusedStepChain : new RunThread( combi );
+          String threadName = getName() + " - " + combi.stepname;
           ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
           // Call an extension point at the end of the step
           //
@@ -1549,7 +1656,17 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
           } );
 
-          thread.start();
+          if ( fusedSteps.contains( combi.stepMeta ) ) {
+            continue; // runs on the thread of the first step of its chain
+          }
+
+          if ( stepExecutor == null ) {
+            Thread thread = new Thread( runThread );
+            thread.setName( threadName );
+            thread.start();
+          } else {
+            stepExecutor.execute( StepExecutionPool.wrap( threadName, runThread ) );
+          }
         }
         break;
 
@@ -1642,6 +1759,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   protected void fireTransFinishedListeners() throws KettleException {
     setLoggingObjectInUse( false );
+    StepExecutionPool.shutdown( stepExecutor );
     // PDI-5229 sync added
     synchronized ( transListeners ) {
       if ( transListeners.size() == 0 ) {
@@ -1766,6 +1884,80 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         .getLinesUpdated() ), String.valueOf( si.getErrors() ) ) );
   }
 
+  /**
+   * Find the steps that can run on the thread of the step in front of them: linear chains of single copy, unpartitioned
+   * steps without error handling that support step fusion.
+   *
+   * @param hopsteps
+   *          the steps of the transformation
+   * @return the steps to fuse with the step in front of them, empty if step fusion isn't used.
+   */
+  private Set<StepMeta> findFusedSteps( List<StepMeta> hopsteps ) {
+    Set<StepMeta> fused = new HashSet<>();
+    if ( !transMeta.isUsingStepFusion() || transMeta.getTransformationType() != TransMeta.TransformationType.Normal ) {
+      return fused;
+    }
+    for ( StepMeta stepMeta : hopsteps ) {
+      List<StepMeta> previousSteps = transMeta.findPreviousSteps( stepMeta );
+      if ( previousSteps.size() == 1 && isFusible( previousSteps.get( 0 ), stepMeta ) ) {
+        fused.add( stepMeta );
+      }
+    }
+    return fused;
+  }
+
+  private boolean isFusible( StepMeta previous, StepMeta stepMeta ) {
+    return stepMeta.getStepMetaInterface().supportsStepFusion()
+      && transMeta.findNextSteps( previous ).size() == 1
+      && previous.getCopies() == 1 && stepMeta.getCopies() == 1
+      && !previous.isPartitioned() && !stepMeta.isPartitioned() && previous.getTargetStepPartitioningMeta() == null
+      && !previous.isDoingErrorHandling() && !stepMeta.isDoingErrorHandling()
+      && !previous.isMapping() && !stepMeta.isMapping()
+      && previous.getRemoteOutputSteps().isEmpty() && stepMeta.getRemoteInputSteps().isEmpty()
+      && stepMeta.getStepMetaInterface().getStepIOMeta().getInfoStreams().isEmpty();
+  }
+
+  private Map<StepMeta, FusedStepChain> createFusedStepChains() {
+    Map<StepMeta, FusedStepChain> chains = new HashMap<>();
+    if ( fusedSteps.isEmpty() ) {
+      return chains;
+    }
+
+    Map<StepMeta, StepMetaDataCombi> combis = new HashMap<>();
+    for ( StepMetaDataCombi combi : steps ) {
+      combis.put( combi.stepMeta, combi );
+    }
+    for ( StepMetaDataCombi head : steps ) {
+      if ( fusedSteps.contains( head.stepMeta ) ) {
+        continue;
+      }
+      FusedStepChain chain = null;
+      StepMetaDataCombi last = head;
+      List<StepMeta> nextSteps = transMeta.findNextSteps( last.stepMeta );
+      while ( nextSteps.size() == 1 && fusedSteps.contains( nextSteps.get( 0 ) ) ) {
+        StepMetaDataCombi next = combis.get( nextSteps.get( 0 ) );
+        RowSet rowSet = findRowSet( last.stepname, 0, next.stepname, 0 );
+        if ( chain == null ) {
+          chain = new FusedStepChain( head );
+        }
+        chain.addStep( next, (DirectRowSet) rowSet );
+        last = next;
+        nextSteps = transMeta.findNextSteps( last.stepMeta );
+      }
+      if ( chain != null ) {
+        chains.put( head.stepMeta, chain );
+        if ( log.isDetailed() ) {
+          StringBuilder names = new StringBuilder();
+          for ( StepMetaDataCombi combi : chain.getSteps() ) {
+            names.append( names.length() == 0 ? "" : " -> " ).append( combi.stepname );
+          }
+          log.logDetailed( BaseMessages.getString( PKG, "Trans.Log.FusedSteps", names.toString() ) );
+        }
+      }
+    }
+    return chains;
+  }
+
   /**
    * Waits until all RunThreads have finished.
    */
@@ -1776,7 +1968,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       }
       boolean wait = true;
       while ( wait ) {
-        wait = transFinishedBlockingQueue.poll( 1, TimeUnit.DAYS ) == null;
+        wait = StepExecutionPool.block( () -> transFinishedBlockingQueue.poll( 1, TimeUnit.DAYS ) ) == null;
         if ( wait ) {
           // poll returns immediately - this was hammering the CPU with poll checks. Added
           // a sleep to let the CPU breathe
@@ -3268,6 +3460,33 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     return steps;
   }
 
+  /**
+   * Gets the memory budget of the steps that buffer rows, available once the execution is prepared.
+   *
+   * @return the memory manager, null before the execution is prepared
+   */
+  public TransMemoryManager getMemoryManager() {
+    return memoryManager;
+  }
+
+  /**
+   * Gets how the step copies are run.
+   *
+   * @return the step execution mode, null if the KETTLE_STEP_EXECUTION_MODE variable decides
+   */
+  public StepExecutionMode getStepExecutionMode() {
+    return stepExecutionMode;
+  }
+
+  /**
+   * Sets how the step copies are run. This needs to be set before the execution is prepared.
+   *
+   * @param stepExecutionMode the step execution mode, null to let the KETTLE_STEP_EXECUTION_MODE variable decide
+   */
+  public void setStepExecutionMode( StepExecutionMode stepExecutionMode ) {
+    this.stepExecutionMode = stepExecutionMode;
+  }
+
   protected void setSteps( List<StepMetaDataCombi> steps ) {
     this.steps = steps;
   }
@@ -3439,7 +3658,13 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     RowSet rowSet;
     switch ( transMeta.getTransformationType() ) {
       case Normal:
-        rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+        if ( transMeta.isUsingRingBufferRowSets() ) {
+          // A row producer can be shared by several threads so we can't rely on a single writer here
+          //
+          rowSet = new MultiProducerRingBufferRowSet( transMeta.getSizeRowset(), transMeta.getRowSetWaitStrategy() );
+        } else {
+          rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
+        }
         break;
       case SerialSingleThreaded:
         rowSet = new SingleRowRowSet();
@@ -3821,6 +4046,12 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                 variables.put( Const.INTERNAL_VARIABLE_SLAVE_SERVER_NAME, slaves[ index ].getName() );
                 variables.put( Const.INTERNAL_VARIABLE_CLUSTER_SIZE, Integer.toString( slaves.length ) );
                 variables.put( Const.INTERNAL_VARIABLE_CLUSTER_MASTER, "N" );
+                if ( transSplitter.isDynamicSplitting() ) {
+                  // The slaves pull the input of their steps from the master, per clustered run
+                  //
+                  variables.put( Const.KETTLE_CLUSTER_DYNAMIC_SPLITS, "Y" );
+                  variables.put( Const.INTERNAL_VARIABLE_CLUSTER_RUN_ID, transSplitter.getClusteredRunId() );
+                }
 
                 // Parameters override the variables but they need to pass over the configuration too...
                 //
@@ -4160,9 +4391,12 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         log.logError( "Unable to contact master server '" + masterServer.getName()
           + "' to clean up master transformation", e );
       }
+    }
 
-      // Also de-allocate all ports used for this clustered transformation on the master.
-      //
+    // Also de-allocate all ports used for this clustered transformation on the master.
+    // This removes the input split queues of the run on the master as well.
+    //
+    if ( masterTransMeta != null && ( masterTransMeta.nrSteps() > 0 || transSplitter.isDynamicSplitting() ) ) {
       try {
         // Deallocate all ports belonging to this clustered run, not anything else
         //
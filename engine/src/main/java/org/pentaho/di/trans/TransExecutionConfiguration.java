@@ -53,6 +53,7 @@ import org.pentaho.di.repository.RepositoriesMeta;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryMeta;
 import org.pentaho.di.trans.debug.TransDebugMeta;
+import org.pentaho.di.trans.step.StepExecutionMode;
 import org.w3c.dom.Node;
 
 public class TransExecutionConfiguration implements ExecutionConfiguration {
@@ -97,6 +98,8 @@ public class TransExecutionConfiguration implements ExecutionConfiguration {
   private String runConfiguration;
   private boolean logRemoteExecutionLocally;
 
+  private StepExecutionMode stepExecutionMode;
+
   public TransExecutionConfiguration() {
     executingLocally = true;
 
@@ -524,6 +527,9 @@ public class TransExecutionConfiguration implements ExecutionConfiguration {
       xml.append( "    " ).append( XMLHandler.addTagValue( "passedBatchId", passedBatchId ) );
     }
     xml.append( "    " ).append( XMLHandler.addTagValue( "run_configuration", runConfiguration ) );
+    if ( stepExecutionMode != null ) {
+      xml.append( "    " ).append( XMLHandler.addTagValue( "step_execution_mode", stepExecutionMode.getCode() ) );
+    }
 
     // The source rows...
     //
@@ -624,6 +630,8 @@ public class TransExecutionConfiguration implements ExecutionConfiguration {
       passedBatchId = Long.parseLong( sPassedBatchId );
     }
     runConfiguration = XMLHandler.getTagValue( trecNode, "run_configuration" );
+    stepExecutionMode =
+      StepExecutionMode.getStepExecutionModeByCode( XMLHandler.getTagValue( trecNode, "step_execution_mode" ) );
 
     Node resultNode = XMLHandler.getSubNode( trecNode, Result.XML_TAG );
     if ( resultNode != null ) {
@@ -854,4 +862,19 @@ public class TransExecutionConfiguration implements ExecutionConfiguration {
   public void setLogRemoteExecutionLocally( boolean logRemoteExecutionLocally ) {
     this.logRemoteExecutionLocally = logRemoteExecutionLocally;
   }
+
+  /**
+   * @return how the step copies are run, null if the KETTLE_STEP_EXECUTION_MODE variable decides
+   */
+  public StepExecutionMode getStepExecutionMode() {
+    return stepExecutionMode;
+  }
+
+  /**
+   * @param stepExecutionMode
+   *          how the step copies are run, null to let the KETTLE_STEP_EXECUTION_MODE variable decide
+   */
+  public void setStepExecutionMode( StepExecutionMode stepExecutionMode ) {
+    this.stepExecutionMode = stepExecutionMode;
+  }
 }
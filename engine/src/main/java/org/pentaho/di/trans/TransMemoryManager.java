@@ -0,0 +1,127 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out the memory budget of a transformation to the steps that buffer rows: Sort rows, Group by, Memory group
+ * by... These steps estimate the size of the rows they keep and reserve that many bytes through a
+ * {@link MemoryReservation}. When a reservation is refused they spill to disk (or fail) deterministically, no matter
+ * how much heap the other transformations running in the same JVM happen to use at that moment.
+ * <p>
+ * The budget is set with the memory limit of the transformation or with the KETTLE_TRANS_MEMORY_LIMIT variable. Without
+ * a limit every reservation succeeds and the steps fall back to their own heuristics.
+ *
+ * @see TransMeta#getMemoryLimit()
+ */
+public class TransMemoryManager {
+
+  private final long limit;
+  private final AtomicLong reserved = new AtomicLong();
+
+  /**
+   * @param limit
+   *          the number of bytes the steps of the transformation can reserve together, 0 or less for no limit.
+   */
+  public TransMemoryManager( long limit ) {
+    this.limit = limit;
+  }
+
+  /**
+   * @return true if the steps are limited in the memory they can reserve
+   */
+  public boolean isLimited() {
+    return limit > 0;
+  }
+
+  /**
+   * @return the number of bytes the steps can reserve together, 0 or less for no limit.
+   */
+  public long getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return the number of bytes currently reserved by the steps
+   */
+  public long getReserved() {
+    return reserved.get();
+  }
+
+  /**
+   * Try to reserve a number of bytes.
+   *
+   * @param bytes
+   *          the number of bytes to reserve
+   * @return true if the bytes are reserved, false if that would go over the limit.
+   */
+  boolean reserve( long bytes ) {
+    if ( !isLimited() ) {
+      reserved.addAndGet( bytes );
+      return true;
+    }
+    long current;
+    do {
+      current = reserved.get();
+      if ( current + bytes > limit ) {
+        return false;
+      }
+    } while ( !reserved.compareAndSet( current, current + bytes ) );
+    return true;
+  }
+
+  void release( long bytes ) {
+    reserved.addAndGet( -bytes );
+  }
+
+  /**
+   * Create a reservation for a step, starting empty.
+   *
+   * @param owner
+   *          the name of the owner, for logging
+   * @return the new reservation
+   */
+  public MemoryReservation createReservation( String owner ) {
+    return new MemoryReservation( this, owner );
+  }
+
+  /**
+   * Parse a memory limit in megabytes.
+   *
+   * @param megabytes
+   *          the limit in megabytes
+   * @return the limit in bytes, 0 if the limit is empty or invalid
+   */
+  public static long parseLimit( String megabytes ) {
+    long limit = 0;
+    if ( megabytes != null ) {
+      try {
+        limit = Long.parseLong( megabytes.trim() );
+      } catch ( NumberFormatException e ) {
+        limit = 0;
+      }
+    }
+    return Math.max( 0, limit ) * 1024L * 1024L;
+  }
+}
@@ -44,6 +44,7 @@ import org.pentaho.di.core.Props;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RowSetWaitStrategy;
 import org.pentaho.di.core.SQLStatement;
 import org.pentaho.di.core.attributes.AttributesUtil;
 import org.pentaho.di.core.database.Database;
@@ -235,6 +236,18 @@ public class TransMeta extends AbstractMeta
   /** The time (in nanoseconds) to wait when the input buffer is full. */
   protected int sleepTimeFull;
 
+  /** Whether the hops between steps use lock-free ring buffer row sets instead of blocking queues. */
+  protected boolean usingRingBufferRowSets;
+
+  /** The way the ring buffer row sets wait when they are full or empty. */
+  protected RowSetWaitStrategy rowSetWaitStrategy;
+
+  /** Whether linear chains of row-by-row steps run on a single thread, handing over the rows directly. */
+  protected boolean usingStepFusion;
+
+  /** The memory (in MB) the steps of the transformation can use to buffer rows, empty for no limit. */
+  protected String memoryLimit;
+
   /** The previous result. */
   protected Result previousResult;
 
@@ -662,6 +675,10 @@ public class TransMeta extends AbstractMeta
     sizeRowset = Const.ROWS_IN_ROWSET;
     sleepTimeEmpty = Const.TIMEOUT_GET_MILLIS;
     sleepTimeFull = Const.TIMEOUT_PUT_MILLIS;
+    usingRingBufferRowSets = false;
+    rowSetWaitStrategy = RowSetWaitStrategy.PARK;
+    usingStepFusion = false;
+    memoryLimit = null;
 
     maxDateConnection = null;
     maxDateTable = null;
@@ -2478,6 +2495,10 @@ public class TransMeta extends AbstractMeta
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "sleep_time_empty", sleepTimeEmpty ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "sleep_time_full", sleepTimeFull ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "ring_buffer_rowsets", usingRingBufferRowSets ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "rowset_wait_strategy", rowSetWaitStrategy.getCode() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "step_fusion", usingStepFusion ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "memory_limit", memoryLimit ) );
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "unique_connections", usingUniqueConnections ) );
 
@@ -3391,6 +3412,11 @@ public class TransMeta extends AbstractMeta
         sleepTimeEmpty =
             Const.toInt( XMLHandler.getTagValue( infonode, "sleep_time_empty" ), Const.TIMEOUT_GET_MILLIS );
         sleepTimeFull = Const.toInt( XMLHandler.getTagValue( infonode, "sleep_time_full" ), Const.TIMEOUT_PUT_MILLIS );
+        usingRingBufferRowSets = "Y".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "ring_buffer_rowsets" ) );
+        rowSetWaitStrategy =
+            RowSetWaitStrategy.getWaitStrategyByCode( XMLHandler.getTagValue( infonode, "rowset_wait_strategy" ) );
+        usingStepFusion = "Y".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "step_fusion" ) );
+        memoryLimit = XMLHandler.getTagValue( infonode, "memory_limit" );
         usingUniqueConnections = "Y".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "unique_connections" ) );
 
         feedbackShown = !"N".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "feedback_shown" ) );
@@ -5179,6 +5205,85 @@ public class TransMeta extends AbstractMeta
     this.sleepTimeFull = sleepTimeFull;
   }
 
+  /**
+   * Checks whether the hops of this transformation use lock-free ring buffer row sets.
+   *
+   * @return true if ring buffer row sets are used, false if the classic blocking row sets are used.
+   */
+  public boolean isUsingRingBufferRowSets() {
+    return usingRingBufferRowSets;
+  }
+
+  /**
+   * Sets whether the hops of this transformation use lock-free ring buffer row sets.
+   *
+   * @param usingRingBufferRowSets
+   *          true to use ring buffer row sets, false to use the classic blocking row sets.
+   */
+  public void setUsingRingBufferRowSets( boolean usingRingBufferRowSets ) {
+    this.usingRingBufferRowSets = usingRingBufferRowSets;
+  }
+
+  /**
+   * Gets the way the ring buffer row sets wait while they are full or empty.
+   *
+   * @return the row set wait strategy
+   */
+  public RowSetWaitStrategy getRowSetWaitStrategy() {
+    return rowSetWaitStrategy;
+  }
+
+  /**
+   * Sets the way the ring buffer row sets wait while they are full or empty.
+   *
+   * @param rowSetWaitStrategy
+   *          the row set wait strategy, null means {@link RowSetWaitStrategy#PARK}.
+   */
+  public void setRowSetWaitStrategy( RowSetWaitStrategy rowSetWaitStrategy ) {
+    this.rowSetWaitStrategy = rowSetWaitStrategy == null ? RowSetWaitStrategy.PARK : rowSetWaitStrategy;
+  }
+
+  /**
+   * Checks whether linear chains of row-by-row steps are fused: the steps of a chain run on the thread of the first
+   * step and the rows are handed over directly instead of through a row set and another thread.
+   *
+   * @return true if steps are fused, false if every step copy runs on its own.
+   * @see org.pentaho.di.trans.step.StepMetaInterface#supportsStepFusion()
+   */
+  public boolean isUsingStepFusion() {
+    return usingStepFusion;
+  }
+
+  /**
+   * Sets whether linear chains of row-by-row steps are fused.
+   *
+   * @param usingStepFusion
+   *          true to fuse steps, false to run every step copy on its own.
+   */
+  public void setUsingStepFusion( boolean usingStepFusion ) {
+    this.usingStepFusion = usingStepFusion;
+  }
+
+  /**
+   * Gets the memory limit of the transformation: the number of megabytes the steps can use together to buffer rows
+   * (sorting, grouping...) before they spill to disk. Variables are allowed.
+   *
+   * @return the memory limit in MB, empty or null for no limit.
+   */
+  public String getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  /**
+   * Sets the memory limit of the transformation.
+   *
+   * @param memoryLimit
+   *          the memory limit in MB, empty or null for no limit.
+   */
+  public void setMemoryLimit( String memoryLimit ) {
+    this.memoryLimit = memoryLimit;
+  }
+
   /**
    * This method asks all steps in the transformation whether or not the specified database connection is used. The
    * connection is used in the transformation if any of the steps uses it or if it is being used to log to.
@@ -6384,6 +6489,10 @@ public class TransMeta extends AbstractMeta
         .append( this.getSizeRowset() )
         .append( this.getSleepTimeEmpty() )
         .append( this.getSleepTimeFull() )
+        .append( this.isUsingRingBufferRowSets() )
+        .append( this.getRowSetWaitStrategy() )
+        .append( this.isUsingStepFusion() )
+        .append( this.getMemoryLimit() )
         .append( this.isUsingUniqueConnections() )
         .append( this.isFeedbackShown() )
         .append( this.getFeedbackSize() )
@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import org.pentaho.di.cluster.ClusterSchema;
+import org.pentaho.di.cluster.SlaveServer;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * The slave side of the dynamic input splits of a clustered transformation: a step copy asks the master for the next
+ * chunk of its input whenever it is done with the previous one, see {@link Const#KETTLE_CLUSTER_DYNAMIC_SPLITS}.
+ */
+public class DynamicInputSplits {
+
+  private final BaseStep step;
+  private final SlaveServer master;
+  private final String clusteredRunId;
+  private final String name;
+  private final long start;
+  private final long end;
+  private final long minChunkSize;
+  private final int consumers;
+
+  private DynamicInputSplits( BaseStep step, SlaveServer master, String clusteredRunId, String name, long start,
+    long end, long minChunkSize, int consumers ) {
+    this.step = step;
+    this.master = master;
+    this.clusteredRunId = clusteredRunId;
+    this.name = name;
+    this.start = start;
+    this.end = end;
+    this.minChunkSize = minChunkSize;
+    this.consumers = consumers;
+  }
+
+  /**
+   * @return true if the given step runs on a slave server of a clustered transformation with dynamic input splits
+   */
+  public static boolean isEnabled( BaseStep step ) {
+    return step.getClusterSize() > 0
+      && "Y".equalsIgnoreCase( step.getVariable( Const.KETTLE_CLUSTER_DYNAMIC_SPLITS, "N" ) )
+      && !Utils.isEmpty( step.getVariable( Const.INTERNAL_VARIABLE_CLUSTER_RUN_ID ) );
+  }
+
+  /**
+   * Get the dynamic input splits of a step.
+   *
+   * @param step
+   *          the step copy reading the input
+   * @param start
+   *          the first position of the input
+   * @param end
+   *          the position right after the input
+   * @param minChunkSize
+   *          the minimum size of a chunk
+   * @param nrReaders
+   *          the number of threads of every step copy asking for chunks
+   * @return the input splits to read from or null if the step should read its fixed share of the input
+   * @throws KettleException
+   *           in case no master server can be found
+   */
+  public static DynamicInputSplits create( BaseStep step, long start, long end, long minChunkSize, int nrReaders )
+    throws KettleException {
+    if ( !isEnabled( step ) ) {
+      return null;
+    }
+    ClusterSchema clusterSchema = step.getStepMeta().getClusterSchema();
+    if ( clusterSchema == null ) {
+      clusterSchema = step.getTransMeta().findFirstUsedClusterSchema();
+    }
+    if ( clusterSchema == null ) {
+      return null;
+    }
+    SlaveServer master = (SlaveServer) clusterSchema.findMaster().clone();
+    master.shareVariablesWith( step );
+
+    int consumers = step.getUniqueStepCountAcrossSlaves() * Math.max( 1, nrReaders );
+    return new DynamicInputSplits( step, master, step.getVariable( Const.INTERNAL_VARIABLE_CLUSTER_RUN_ID ),
+      step.getStepname(), start, end, minChunkSize, consumers );
+  }
+
+  /**
+   * @return the next chunk of the input or null if all of it was handed out
+   * @throws KettleException
+   *           in case the master can't be reached
+   */
+  public synchronized InputSplit next() throws KettleException {
+    InputSplit split = master.getNextInputSplit( clusteredRunId, name, start, end, minChunkSize, consumers );
+    if ( split != null && step.isDetailed() ) {
+      step.logDetailed( "Reading chunk " + split + " of the input, handed out by master " + master.getName() );
+    }
+    return split;
+  }
+
+  public int getConsumers() {
+    return consumers;
+  }
+}
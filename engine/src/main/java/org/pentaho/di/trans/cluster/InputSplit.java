@@ -0,0 +1,87 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+/**
+ * A chunk [from, to[ of the input of a step, handed out by an {@link InputSplitQueue}. The chunks of a queue together
+ * cover its whole domain [start, end[.
+ */
+public class InputSplit {
+
+  private final long from;
+  private final long to;
+  private final long start;
+  private final long end;
+
+  public InputSplit( long from, long to, long start, long end ) {
+    this.from = from;
+    this.to = to;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @return the first position of the chunk
+   */
+  public long getFrom() {
+    return from;
+  }
+
+  /**
+   * @return the position right after the chunk
+   */
+  public long getTo() {
+    return to;
+  }
+
+  /**
+   * @return the first position of the whole domain
+   */
+  public long getStart() {
+    return start;
+  }
+
+  /**
+   * @return the position right after the whole domain
+   */
+  public long getEnd() {
+    return end;
+  }
+
+  public long getSize() {
+    return to - from;
+  }
+
+  public boolean isFirst() {
+    return from == start;
+  }
+
+  public boolean isLast() {
+    return to == end;
+  }
+
+  @Override
+  public String toString() {
+    return "[" + from + ", " + to + "[ of [" + start + ", " + end + "[";
+  }
+}
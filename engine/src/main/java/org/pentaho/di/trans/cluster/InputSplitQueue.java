@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+/**
+ * Hands out the input of a step in chunks to the step copies of a clustered transformation, in the order they ask.
+ * <p>
+ * The chunks get smaller as the input runs out: every chunk is the remaining input divided by twice the number of
+ * consumers, but never less than the minimum chunk size. The first chunks are large so that few requests are needed,
+ * the last ones are small so that all the consumers finish at about the same time.
+ */
+public class InputSplitQueue {
+
+  private final String name;
+  private final long start;
+  private final long end;
+  private final long minChunkSize;
+  private final int consumers;
+
+  private long next;
+  private int nrSplits;
+
+  /**
+   * @param name
+   *          the name of the input, usually the name of the step
+   * @param start
+   *          the first position of the input
+   * @param end
+   *          the position right after the input
+   * @param minChunkSize
+   *          the minimum size of a chunk, at least 1
+   * @param consumers
+   *          the number of step copies reading the input, at least 1
+   */
+  public InputSplitQueue( String name, long start, long end, long minChunkSize, int consumers ) {
+    this.name = name;
+    this.start = start;
+    this.end = Math.max( start, end );
+    this.minChunkSize = Math.max( 1L, minChunkSize );
+    this.consumers = Math.max( 1, consumers );
+    this.next = start;
+  }
+
+  /**
+   * @return the next chunk of the input or null if all of it was handed out
+   */
+  public synchronized InputSplit nextSplit() {
+    long remaining = end - next;
+    if ( remaining <= 0 ) {
+      return null;
+    }
+    long size = Math.max( minChunkSize, ( remaining + 2L * consumers - 1 ) / ( 2L * consumers ) );
+    long from = next;
+    next = size >= remaining ? end : from + size;
+    nrSplits++;
+    return new InputSplit( from, next, start, end );
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getEnd() {
+    return end;
+  }
+
+  public synchronized long getRemaining() {
+    return end - next;
+  }
+
+  public synchronized int getNrSplits() {
+    return nrSplits;
+  }
+}
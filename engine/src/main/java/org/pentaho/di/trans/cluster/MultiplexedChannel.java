@@ -0,0 +1,231 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * One hop between a remote output step and a remote input step, carried over a {@link MultiplexedConnection} together
+ * with the other hops between the same two servers.
+ * <p>
+ * The receiving side grants the sending side credits, one per block it is prepared to buffer. The sender spends a
+ * credit for every block of rows and waits when it has none left, the receiver hands a credit back when the rows of a
+ * block were consumed. A slow step therefore only holds up its own hop, never the connection it shares with the
+ * others.
+ * <p>
+ * The buffers blocks are received in are taken from a small pool per channel and given back once the block was read,
+ * so that nothing is allocated per block once the hop is up to speed.
+ */
+public class MultiplexedChannel {
+
+  /**
+   * A frame received on this channel.
+   */
+  public static final class Frame {
+    private final byte type;
+    private final byte[] data;
+    private final int length;
+
+    Frame( byte type, byte[] data, int length ) {
+      this.type = type;
+      this.data = data;
+      this.length = length;
+    }
+
+    public byte getType() {
+      return type;
+    }
+
+    public byte[] getData() {
+      return data;
+    }
+
+    public int getLength() {
+      return length;
+    }
+  }
+
+  private final MultiplexedConnection connection;
+  private final int id;
+  private final String key;
+
+  private final Deque<Frame> received = new ArrayDeque<Frame>();
+  private final Deque<byte[]> freeBuffers = new ArrayDeque<byte[]>();
+
+  private int credits;
+  private boolean closed;
+
+  MultiplexedChannel( MultiplexedConnection connection, int id, String key, int credits ) {
+    this.connection = connection;
+    this.id = id;
+    this.key = key;
+    this.credits = credits;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  public MultiplexedConnection getConnection() {
+    return connection;
+  }
+
+  // Sending side
+  //
+
+  /**
+   * Wait for a credit to send a block.
+   *
+   * @param timeoutMillis
+   *          the time to wait at most
+   * @return true if a credit was taken, false if none came in time
+   * @throws IOException
+   *           when the connection failed
+   */
+  public synchronized boolean awaitCredit( long timeoutMillis ) throws IOException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while ( credits == 0 ) {
+      connection.checkFailure();
+      long wait = deadline - System.currentTimeMillis();
+      if ( wait <= 0 ) {
+        return false;
+      }
+      try {
+        wait( wait );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    connection.checkFailure();
+    credits--;
+    return true;
+  }
+
+  /**
+   * Send the layout of the rows, before the first block.
+   */
+  public void sendMeta( byte[] data, int length ) throws IOException {
+    connection.writeFrame( id, MultiplexedConnection.FRAME_META, data, length );
+  }
+
+  /**
+   * Send a block of rows. A credit must have been taken with {@link #awaitCredit(long)} first.
+   */
+  public void sendData( byte[] data, int length ) throws IOException {
+    connection.writeFrame( id, MultiplexedConnection.FRAME_DATA, data, length );
+  }
+
+  /**
+   * Tell the receiving side that no more rows will come.
+   */
+  public void sendClose() throws IOException {
+    connection.writeFrame( id, MultiplexedConnection.FRAME_CLOSE, null, 0 );
+  }
+
+  synchronized void addCredits( int nrCredits ) {
+    credits += nrCredits;
+    notifyAll();
+  }
+
+  // Receiving side
+  //
+
+  /**
+   * Take the next frame that came in.
+   *
+   * @param timeoutMillis
+   *          the time to wait at most
+   * @return the frame or null if none came in time
+   * @throws IOException
+   *           when the connection failed before the sending side closed the channel
+   */
+  public synchronized Frame take( long timeoutMillis ) throws IOException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while ( received.isEmpty() ) {
+      if ( closed ) {
+        return null;
+      }
+      connection.checkFailure();
+      long wait = deadline - System.currentTimeMillis();
+      if ( wait <= 0 ) {
+        return null;
+      }
+      try {
+        wait( wait );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+    return received.poll();
+  }
+
+  /**
+   * Give the buffer of a frame back once it was read. For a block of rows this grants the sending side a new credit.
+   */
+  public void release( Frame frame ) throws IOException {
+    synchronized ( this ) {
+      if ( frame.data != null ) {
+        freeBuffers.push( frame.data );
+      }
+    }
+    if ( frame.type == MultiplexedConnection.FRAME_DATA ) {
+      connection.writeCredits( id, 1 );
+    }
+  }
+
+  /**
+   * Get a buffer to receive a frame of the given length in, a pooled one if one is big enough.
+   */
+  synchronized byte[] borrowBuffer( int length ) {
+    byte[] buffer = freeBuffers.poll();
+    if ( buffer == null || buffer.length < length ) {
+      buffer = new byte[ Math.max( length, buffer == null ? 0 : buffer.length * 2 ) ];
+    }
+    return buffer;
+  }
+
+  synchronized void received( Frame frame ) {
+    if ( frame.type == MultiplexedConnection.FRAME_CLOSE ) {
+      closed = true;
+    }
+    received.add( frame );
+    notifyAll();
+  }
+
+  synchronized void connectionFailed() {
+    notifyAll();
+  }
+
+  @Override
+  public String toString() {
+    return key + " (#" + id + ")";
+  }
+}
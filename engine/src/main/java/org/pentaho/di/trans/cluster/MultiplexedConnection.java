@@ -0,0 +1,301 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A TCP connection between two servers that carries the rows of all the hops between the remote steps of a clustered
+ * transformation on these servers, one {@link MultiplexedChannel} per hop.
+ * <p>
+ * Every frame starts with a header of 9 bytes: the channel id (int), the frame type (byte) and the length of the
+ * payload (int). Header and payload are written in one gathering write, straight from the buffer they were encoded
+ * in. Frames are read by a thread per connection that hands them to their channel.
+ * <p>
+ * The receiving side of a hop opens the channel: it picks the channel id, names the hop and grants the first credits.
+ */
+public class MultiplexedConnection {
+
+  /** Open a channel: receiver to sender, the initial credits (int) followed by the name of the hop in UTF-8 */
+  public static final byte FRAME_OPEN = 1;
+
+  /** Grant credits: receiver to sender, the number of credits (int) */
+  public static final byte FRAME_CREDIT = 2;
+
+  /** The layout of the rows: sender to receiver, written with RowMetaInterface.writeMeta() */
+  public static final byte FRAME_META = 3;
+
+  /** A block of rows: sender to receiver, see RowBlockWriter */
+  public static final byte FRAME_DATA = 4;
+
+  /** The end of the rows: sender to receiver, no payload */
+  public static final byte FRAME_CLOSE = 5;
+
+  private static final int HEADER_SIZE = 9;
+
+  /**
+   * Receives the channels the other side opens.
+   */
+  interface ChannelListener {
+    void channelOpened( MultiplexedChannel channel );
+  }
+
+  private final SocketChannel socketChannel;
+  private final String name;
+  private final ChannelListener listener;
+
+  private final Map<Integer, MultiplexedChannel> channels = new ConcurrentHashMap<Integer, MultiplexedChannel>();
+  private final AtomicInteger nextChannelId = new AtomicInteger();
+  private final AtomicInteger references = new AtomicInteger();
+
+  private final Object writeLock = new Object();
+  private final ByteBuffer writeHeader = ByteBuffer.allocate( HEADER_SIZE + 4 );
+  private final ByteBuffer[] writeBuffers = new ByteBuffer[ 2 ];
+
+  private volatile IOException failure;
+
+  MultiplexedConnection( SocketChannel socketChannel, String name, ChannelListener listener ) throws IOException {
+    this.socketChannel = socketChannel;
+    this.name = name;
+    this.listener = listener;
+    socketChannel.configureBlocking( true );
+    socketChannel.socket().setTcpNoDelay( true );
+  }
+
+  void start() {
+    Thread reader = new Thread( this::readFrames, "Multiplexed connection reader " + name );
+    reader.setDaemon( true );
+    reader.start();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getNrChannels() {
+    return channels.size();
+  }
+
+  /**
+   * Open a channel to receive the rows of a hop.
+   *
+   * @param key
+   *          the name of the hop, the same on both sides
+   * @param credits
+   *          the number of blocks that may be on their way at the same time
+   * @return the channel
+   * @throws IOException
+   */
+  public MultiplexedChannel openChannel( String key, int credits ) throws IOException {
+    MultiplexedChannel channel = new MultiplexedChannel( this, nextChannelId.incrementAndGet(), key, 0 );
+    channels.put( channel.getId(), channel );
+
+    byte[] name = key.getBytes( StandardCharsets.UTF_8 );
+    byte[] payload = new byte[ 4 + name.length ];
+    putInt( payload, 0, credits );
+    System.arraycopy( name, 0, payload, 4, name.length );
+    writeFrame( channel.getId(), FRAME_OPEN, payload, payload.length );
+    return channel;
+  }
+
+  void writeFrame( int channelId, byte type, byte[] payload, int length ) throws IOException {
+    checkFailure();
+    synchronized ( writeLock ) {
+      writeHeader.clear();
+      writeHeader.putInt( channelId ).put( type ).putInt( length ).flip();
+      writeBuffers[ 0 ] = writeHeader;
+      writeBuffers[ 1 ] = payload == null ? ByteBuffer.allocate( 0 ) : ByteBuffer.wrap( payload, 0, length );
+      try {
+        while ( writeBuffers[ 1 ].hasRemaining() || writeHeader.hasRemaining() ) {
+          socketChannel.write( writeBuffers );
+        }
+      } catch ( IOException e ) {
+        fail( e );
+        throw e;
+      } finally {
+        writeBuffers[ 1 ] = null;
+      }
+    }
+  }
+
+  void writeCredits( int channelId, int credits ) throws IOException {
+    checkFailure();
+    synchronized ( writeLock ) {
+      writeHeader.clear();
+      writeHeader.putInt( channelId ).put( FRAME_CREDIT ).putInt( 4 ).putInt( credits ).flip();
+      try {
+        while ( writeHeader.hasRemaining() ) {
+          socketChannel.write( writeHeader );
+        }
+      } catch ( IOException e ) {
+        fail( e );
+        throw e;
+      }
+    }
+  }
+
+  private void readFrames() {
+    ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE );
+    try {
+      while ( true ) {
+        header.clear();
+        if ( !readFully( header, true ) ) {
+          break;
+        }
+        header.flip();
+        int channelId = header.getInt();
+        byte type = header.get();
+        int length = header.getInt();
+
+        MultiplexedChannel channel = channels.get( channelId );
+        switch ( type ) {
+          case FRAME_OPEN:
+            byte[] open = readPayload( new byte[ length ], length );
+            int credits = getInt( open, 0 );
+            String key = new String( open, 4, length - 4, StandardCharsets.UTF_8 );
+            channel = new MultiplexedChannel( this, channelId, key, credits );
+            channels.put( channelId, channel );
+            if ( listener != null ) {
+              listener.channelOpened( channel );
+            }
+            break;
+          case FRAME_CREDIT:
+            byte[] credit = readPayload( new byte[ length ], length );
+            if ( channel != null ) {
+              channel.addCredits( getInt( credit, 0 ) );
+            }
+            break;
+          case FRAME_META:
+          case FRAME_DATA:
+          case FRAME_CLOSE:
+            if ( channel == null ) {
+              throw new IOException( "Received a frame for unknown channel #" + channelId + " on " + name );
+            }
+            byte[] data = length == 0 ? null : readPayload( channel.borrowBuffer( length ), length );
+            if ( type == FRAME_CLOSE ) {
+              channels.remove( channelId );
+            }
+            channel.received( new MultiplexedChannel.Frame( type, data, length ) );
+            break;
+          default:
+            throw new IOException( "Unknown frame type " + type + " received on " + name );
+        }
+      }
+      fail( new EOFException( "Connection " + name + " was closed by the other side" ) );
+    } catch ( IOException e ) {
+      fail( e );
+    } finally {
+      closeSocket();
+    }
+  }
+
+  private byte[] readPayload( byte[] buffer, int length ) throws IOException {
+    readFully( ByteBuffer.wrap( buffer, 0, length ), false );
+    return buffer;
+  }
+
+  /**
+   * @return false if the connection was closed before the first byte
+   */
+  private boolean readFully( ByteBuffer buffer, boolean endAllowed ) throws IOException {
+    boolean first = true;
+    while ( buffer.hasRemaining() ) {
+      if ( socketChannel.read( buffer ) < 0 ) {
+        if ( first && endAllowed ) {
+          return false;
+        }
+        throw new EOFException( "Connection " + name + " was closed in the middle of a frame" );
+      }
+      first = false;
+    }
+    return true;
+  }
+
+  public boolean isFailed() {
+    return failure != null;
+  }
+
+  void checkFailure() throws IOException {
+    IOException e = failure;
+    if ( e != null ) {
+      throw new IOException( "Multiplexed connection " + name + " failed", e );
+    }
+  }
+
+  private void fail( IOException e ) {
+    if ( failure == null ) {
+      failure = e;
+    }
+    for ( MultiplexedChannel channel : channels.values() ) {
+      channel.connectionFailed();
+    }
+  }
+
+  void acquire() {
+    references.incrementAndGet();
+  }
+
+  /**
+   * @return true if this was the last reference
+   */
+  boolean release() {
+    return references.decrementAndGet() <= 0;
+  }
+
+  void close() {
+    fail( new EOFException( "Connection " + name + " was closed" ) );
+    closeSocket();
+  }
+
+  private void closeSocket() {
+    try {
+      socketChannel.close();
+    } catch ( IOException e ) {
+      // Ignore, we're done with it
+    }
+  }
+
+  static void putInt( byte[] buffer, int offset, int value ) {
+    buffer[ offset ] = (byte) ( value >>> 24 );
+    buffer[ offset + 1 ] = (byte) ( value >>> 16 );
+    buffer[ offset + 2 ] = (byte) ( value >>> 8 );
+    buffer[ offset + 3 ] = (byte) value;
+  }
+
+  static int getInt( byte[] buffer, int offset ) {
+    return ( ( buffer[ offset ] & 0xff ) << 24 ) | ( ( buffer[ offset + 1 ] & 0xff ) << 16 )
+      | ( ( buffer[ offset + 2 ] & 0xff ) << 8 ) | ( buffer[ offset + 3 ] & 0xff );
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
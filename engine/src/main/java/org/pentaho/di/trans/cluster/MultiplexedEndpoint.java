@@ -0,0 +1,139 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.pentaho.di.www.SocketRepository;
+
+/**
+ * The server socket the remote output steps of a server send their rows from, shared by all the hops to one other
+ * server. The server on the other side connects once and opens a channel for every hop over that connection.
+ */
+public class MultiplexedEndpoint implements MultiplexedConnection.ChannelListener {
+
+  private final int port;
+  private final ServerSocket serverSocket;
+  private final SocketRepository socketRepository;
+  private final Map<String, MultiplexedChannel> openedChannels = new HashMap<String, MultiplexedChannel>();
+  private int references;
+
+  MultiplexedEndpoint( int port, ServerSocket serverSocket, SocketRepository socketRepository ) {
+    this.port = port;
+    this.serverSocket = serverSocket;
+    this.socketRepository = socketRepository;
+  }
+
+  void start() {
+    Thread acceptor = new Thread( this::acceptConnections, "Multiplexed endpoint on port " + port );
+    acceptor.setDaemon( true );
+    acceptor.start();
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public ServerSocket getServerSocket() {
+    return serverSocket;
+  }
+
+  private void acceptConnections() {
+    ServerSocketChannel serverChannel = serverSocket.getChannel();
+    try {
+      while ( serverChannel.isOpen() ) {
+        SocketChannel socketChannel = serverChannel.accept();
+        MultiplexedConnection connection =
+          new MultiplexedConnection( socketChannel, "port " + port + " <-- " + socketChannel.getRemoteAddress(), this );
+        connection.start();
+      }
+    } catch ( IOException e ) {
+      // The server socket was closed, we're done
+    }
+  }
+
+  @Override
+  public synchronized void channelOpened( MultiplexedChannel channel ) {
+    openedChannels.put( channel.getKey(), channel );
+    notifyAll();
+  }
+
+  /**
+   * Wait for the other side to open the channel of a hop.
+   *
+   * @param key
+   *          the name of the hop
+   * @param timeoutMillis
+   *          the time to wait at most
+   * @return the channel or null if it wasn't opened in time
+   */
+  public synchronized MultiplexedChannel awaitChannel( String key, long timeoutMillis ) {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    MultiplexedChannel channel = openedChannels.remove( key );
+    while ( channel == null ) {
+      long wait = deadline - System.currentTimeMillis();
+      if ( wait <= 0 ) {
+        return null;
+      }
+      try {
+        wait( wait );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      channel = openedChannels.remove( key );
+    }
+    return channel;
+  }
+
+  synchronized void acquire() {
+    references++;
+  }
+
+  /**
+   * @return true if this was the last reference
+   */
+  synchronized boolean release() {
+    return --references <= 0;
+  }
+
+  /**
+   * Stop accepting connections and give the port back to the socket repository. The connections that were accepted
+   * stay open until the other side closes them.
+   */
+  void close() {
+    try {
+      serverSocket.close();
+      if ( socketRepository != null ) {
+        socketRepository.releaseSocket( port );
+      }
+    } catch ( IOException e ) {
+      // Ignore, we're done with it
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.pentaho.di.www.SocketRepository;
+
+/**
+ * Keeps the multiplexed endpoints and connections of this JVM, so that all the remote steps exchanging rows between the
+ * same two servers share one server socket and one connection.
+ * <p>
+ * An endpoint or connection stays open as long as a remote step uses it. The connection is closed by the receiving
+ * side once its last hop is finished, the sending side closes its end when it sees the connection close.
+ */
+public class MultiplexedTransport {
+
+  /**
+   * The number of blocks of rows a hop can have on its way before the sending side waits for the receiving side.
+   */
+  public static final int INITIAL_CREDITS = 4;
+
+  private static final MultiplexedTransport instance = new MultiplexedTransport();
+
+  private final Map<Integer, MultiplexedEndpoint> endpoints = new HashMap<Integer, MultiplexedEndpoint>();
+  private final Map<String, MultiplexedConnection> connections = new HashMap<String, MultiplexedConnection>();
+
+  public static MultiplexedTransport getInstance() {
+    return instance;
+  }
+
+  /**
+   * Get the endpoint on a port, opening its server socket the first time.
+   *
+   * @param port
+   *          the port to listen on
+   * @param socketRepository
+   *          the socket repository to get the server socket from
+   * @param user
+   *          a description of the user of the server socket
+   * @return the endpoint, to be given back with {@link #releaseEndpoint(MultiplexedEndpoint)}
+   * @throws IOException
+   */
+  public synchronized MultiplexedEndpoint openEndpoint( int port, SocketRepository socketRepository, String user )
+    throws IOException {
+    MultiplexedEndpoint endpoint = endpoints.get( port );
+    if ( endpoint == null ) {
+      ServerSocket serverSocket = socketRepository.openServerSocketChannel( port, user );
+      endpoint = new MultiplexedEndpoint( port, serverSocket, socketRepository );
+      endpoint.start();
+      endpoints.put( port, endpoint );
+    }
+    endpoint.acquire();
+    return endpoint;
+  }
+
+  public synchronized void releaseEndpoint( MultiplexedEndpoint endpoint ) {
+    if ( endpoint.release() && endpoints.get( endpoint.getPort() ) == endpoint ) {
+      endpoints.remove( endpoint.getPort() );
+      endpoint.close();
+    }
+  }
+
+  /**
+   * Get the connection to a server socket, connecting the first time.
+   *
+   * @param hostname
+   *          the host to connect to
+   * @param port
+   *          the port to connect to
+   * @param timeoutMillis
+   *          the connection time-out
+   * @return the connection, to be given back with {@link #releaseConnection(MultiplexedConnection)}
+   * @throws IOException
+   */
+  public synchronized MultiplexedConnection connect( String hostname, int port, int timeoutMillis )
+    throws IOException {
+    String key = hostname + ":" + port;
+    MultiplexedConnection connection = connections.get( key );
+    if ( connection == null || connection.isFailed() ) {
+      SocketChannel socketChannel = SocketChannel.open();
+      try {
+        socketChannel.socket().connect( new InetSocketAddress( hostname, port ), timeoutMillis );
+      } catch ( IOException e ) {
+        socketChannel.close();
+        throw e;
+      }
+      connection = new MultiplexedConnection( socketChannel, key, null );
+      connection.start();
+      connections.put( key, connection );
+    }
+    connection.acquire();
+    return connection;
+  }
+
+  public synchronized void releaseConnection( MultiplexedConnection connection ) {
+    if ( connection.release() && connections.get( connection.getName() ) == connection ) {
+      connections.remove( connection.getName() );
+      connection.close();
+    }
+  }
+}
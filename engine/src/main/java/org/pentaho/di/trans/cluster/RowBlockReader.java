@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Reads the rows of the blocks written by {@link RowBlockWriter}. Uncompressed blocks are read straight from the buffer
+ * they were received in, compressed blocks are decompressed in a buffer that is kept from block to block.
+ */
+public class RowBlockReader {
+
+  /**
+   * A byte array input stream that can be pointed at another buffer.
+   */
+  private static final class BlockInputStream extends ByteArrayInputStream {
+    BlockInputStream() {
+      super( new byte[ 0 ] );
+    }
+
+    void setBuffer( byte[] buffer, int offset, int length ) {
+      this.buf = buffer;
+      this.pos = offset;
+      this.count = offset + length;
+      this.mark = offset;
+    }
+  }
+
+  private final BlockInputStream block = new BlockInputStream();
+  private final DataInputStream dataInputStream = new DataInputStream( block );
+  private byte[] uncompressed = new byte[ 0 ];
+
+  /**
+   * Start reading a block.
+   *
+   * @param data
+   *          the buffer holding the block
+   * @param length
+   *          the length of the block
+   * @return the number of rows in the block
+   */
+  public int open( byte[] data, int length ) throws IOException {
+    int nrRows = MultiplexedConnection.getInt( data, 0 );
+    int rawLength = MultiplexedConnection.getInt( data, 4 );
+    int offset = RowBlockWriter.BLOCK_HEADER_SIZE;
+    if ( rawLength > 0 ) {
+      if ( uncompressed.length < rawLength ) {
+        uncompressed = new byte[ rawLength ];
+      }
+      Snappy.uncompress( data, offset, length - offset, uncompressed, 0 );
+      block.setBuffer( uncompressed, 0, rawLength );
+    } else {
+      block.setBuffer( data, offset, length - offset );
+    }
+    return nrRows;
+  }
+
+  /**
+   * Read the next row of the block that was opened.
+   */
+  public Object[] readRow( RowMetaInterface rowMeta ) throws KettleException {
+    try {
+      return rowMeta.readData( dataInputStream );
+    } catch ( SocketTimeoutException e ) {
+      // Can't happen, the block is in memory
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * Read the layout of the rows sent before the first block.
+   */
+  public static RowMetaInterface readMeta( byte[] data, int length ) throws KettleException {
+    try {
+      return new RowMeta( new DataInputStream( new ByteArrayInputStream( data, 0, length ) ) );
+    } catch ( SocketTimeoutException e ) {
+      throw new KettleException( e );
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Collects rows in their binary form, as written by {@link RowMetaInterface#writeData(DataOutputStream, Object[])},
+ * into blocks that are sent over a {@link MultiplexedChannel} in one frame.
+ * <p>
+ * A block starts with the number of rows (int) and the length of the rows before compression (int), 0 if the block is
+ * not compressed. Blocks are compressed with Snappy one at a time, so the receiver can decompress every block on its
+ * own. A block that doesn't get smaller is sent as it is. The buffers are kept from block to block.
+ */
+public class RowBlockWriter {
+
+  static final int BLOCK_HEADER_SIZE = 8;
+
+  private static final byte[] EMPTY_HEADER = new byte[ BLOCK_HEADER_SIZE ];
+
+  /**
+   * A byte array output stream that gives access to its buffer, so that a block is sent without copying it.
+   */
+  private static final class BlockOutputStream extends ByteArrayOutputStream {
+    BlockOutputStream( int size ) {
+      super( size );
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
+  private final boolean compressing;
+  private final BlockOutputStream rows;
+  private final DataOutputStream dataOutputStream;
+  private byte[] compressed;
+  private int nrRows;
+
+  private byte[] block;
+  private int blockLength;
+
+  public RowBlockWriter( int initialSize, boolean compressing ) {
+    this.compressing = compressing;
+    rows = new BlockOutputStream( Math.max( initialSize, 1024 ) );
+    dataOutputStream = new DataOutputStream( rows );
+    compressed = new byte[ 0 ];
+    reset();
+  }
+
+  /**
+   * Add a row to the block.
+   */
+  public void addRow( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    rowMeta.writeData( dataOutputStream, row );
+    nrRows++;
+  }
+
+  public int getNrRows() {
+    return nrRows;
+  }
+
+  /**
+   * @return the number of bytes of the rows in the block, before compression
+   */
+  public int size() {
+    return rows.size() - BLOCK_HEADER_SIZE;
+  }
+
+  /**
+   * Finish the block, after which {@link #getBlock()} and {@link #getBlockLength()} give the bytes to send.
+   */
+  public void finish() throws IOException {
+    dataOutputStream.flush();
+    byte[] buffer = rows.getBuffer();
+    int rawLength = size();
+
+    if ( compressing ) {
+      int maxLength = BLOCK_HEADER_SIZE + Snappy.maxCompressedLength( rawLength );
+      if ( compressed.length < maxLength ) {
+        compressed = new byte[ maxLength ];
+      }
+      int compressedLength = Snappy.compress( buffer, BLOCK_HEADER_SIZE, rawLength, compressed, BLOCK_HEADER_SIZE );
+      if ( compressedLength < rawLength ) {
+        MultiplexedConnection.putInt( compressed, 0, nrRows );
+        MultiplexedConnection.putInt( compressed, 4, rawLength );
+        block = compressed;
+        blockLength = BLOCK_HEADER_SIZE + compressedLength;
+        return;
+      }
+    }
+
+    MultiplexedConnection.putInt( buffer, 0, nrRows );
+    MultiplexedConnection.putInt( buffer, 4, 0 );
+    block = buffer;
+    blockLength = BLOCK_HEADER_SIZE + rawLength;
+  }
+
+  public byte[] getBlock() {
+    return block;
+  }
+
+  public int getBlockLength() {
+    return blockLength;
+  }
+
+  /**
+   * Start a new block.
+   */
+  public void reset() {
+    rows.reset();
+    // Room for the block header, filled in when the block is finished
+    //
+    rows.write( EMPTY_HEADER, 0, BLOCK_HEADER_SIZE );
+    nrRows = 0;
+    block = null;
+    blockLength = 0;
+  }
+
+  /**
+   * Write the layout of the rows to a buffer, to be sent before the first block.
+   *
+   * @return the serialized row metadata
+   */
+  public static byte[] writeMeta( RowMetaInterface rowMeta ) throws KettleException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream( bytes );
+    rowMeta.writeMeta( out );
+    try {
+      out.flush();
+    } catch ( IOException e ) {
+      throw new KettleException( "Unable to serialize the row metadata", e );
+    }
+    return bytes.toByteArray();
+  }
+}
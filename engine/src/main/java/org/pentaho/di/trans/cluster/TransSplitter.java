@@ -22,6 +22,7 @@
 
 package org.pentaho.di.trans.cluster;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.pentaho.di.cluster.ClusterSchema;
 import org.pentaho.di.cluster.SlaveServer;
 import org.pentaho.di.core.Const;
@@ -74,6 +75,9 @@ public class TransSplitter {
   private static final int FANOUT = 30;
   private static final int SPLIT = 120;
 
+  /** The step name the shared port of the multiplexed hops between two slave servers is allocated for */
+  private static final String MULTIPLEXED_STEP_NAME = "*";
+
   private TransMeta originalTransformation;
   private Map<SlaveServer, TransMeta> slaveTransMap;
   private TransMeta masterTransMeta;
@@ -89,6 +93,8 @@ public class TransSplitter {
     new SlaveStepCopyPartitionDistribution();
   private int socketsBufferSize;
   private boolean compressingSocketStreams;
+  private boolean multiplexingSocketStreams;
+  private boolean dynamicSplitting;
 
   private Map<String, Integer> portCache;
 
@@ -195,6 +201,10 @@ public class TransSplitter {
           Const.toInt(
             originalTransformation.environmentSubstitute( clusterSchema.getSocketsBufferSize() ), 50000 );
         compressingSocketStreams = clusterSchema.isSocketsCompressed();
+        multiplexingSocketStreams =
+          "Y".equalsIgnoreCase( originalTransformation.getVariable( Const.KETTLE_CLUSTER_SOCKETS_MULTIPLEXED, "N" ) );
+        dynamicSplitting =
+          "Y".equalsIgnoreCase( originalTransformation.getVariable( Const.KETTLE_CLUSTER_DYNAMIC_SPLITS, "N" ) );
 
         // Validate the number of slaves. We need at least one to have a valid cluster
         //
@@ -278,6 +288,26 @@ public class TransSplitter {
     return port;
   }
 
+  /**
+   * Get the port for the rows between two remote steps. When the socket streams are multiplexed all the hops from one
+   * slave server to another share a single port, otherwise every hop gets a port of its own. Encrypted hops are never
+   * multiplexed, the remote steps open a socket per hop for them.
+   *
+   * @param encrypted
+   *          true if the rows of the hop are encrypted
+   * @return the port to use for that step/slaveserver/cluster combination
+   */
+  @VisibleForTesting
+  int getRemoteStepPort( ClusterSchema clusterSchema, boolean encrypted, SlaveServer sourceSlave,
+    String sourceStepName, int sourceStepCopy, SlaveServer targetSlave, String targetStepName, int targetStepCopy )
+    throws Exception {
+    if ( multiplexingSocketStreams && !encrypted ) {
+      return getPort( clusterSchema, sourceSlave, MULTIPLEXED_STEP_NAME, 0, targetSlave, MULTIPLEXED_STEP_NAME, 0 );
+    }
+    return getPort(
+      clusterSchema, sourceSlave, sourceStepName, sourceStepCopy, targetSlave, targetStepName, targetStepCopy );
+  }
+
   public String createPortCacheKey( SlaveServer sourceSlave, String sourceStepName, int sourceStepCopy,
     SlaveServer targetSlave, String targetStepName, int targetStepCopy ) {
     return clusteredRunId
@@ -486,6 +516,9 @@ public class TransSplitter {
           masterTransMeta.getLogChannel().logError( "Error happenned during encryption initialization", ex );
         }
       }
+      // The remote steps only encrypt the rows when they got a key
+      //
+      boolean encrypted = encrypt && transformationKey != null;
 
       for ( int r = 0; r < referenceSteps.length; r++ ) {
         StepMeta referenceStep = referenceSteps[r];
@@ -592,8 +625,8 @@ public class TransSplitter {
                     // So the source is the slave server, the target the master.
                     //
                     int port =
-                      getPort(
-                        clusterSchema, sourceSlaveServer, slaveStep.getName(), sourceCopyNr,
+                      getRemoteStepPort(
+                        clusterSchema, encrypted, sourceSlaveServer, slaveStep.getName(), sourceCopyNr,
                         masterSlaveServer, masterStep.getName(), masterStepCopyNr );
 
                     RemoteStep remoteMasterStep =
@@ -604,6 +637,7 @@ public class TransSplitter {
                         socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
+                    remoteMasterStep.setMultiplexingStreams( multiplexingSocketStreams );
                     remoteMasterStep.setKey( transformationKey );
                     masterStep.getRemoteInputSteps().add( remoteMasterStep );
 
@@ -615,6 +649,7 @@ public class TransSplitter {
                         socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
+                    remoteSlaveStep.setMultiplexingStreams( multiplexingSocketStreams );
                     remoteSlaveStep.setKey( transformationKey );
                     slaveStep.getRemoteOutputSteps().add( remoteSlaveStep );
 
@@ -738,8 +773,8 @@ public class TransSplitter {
                     // So the IP address should be the same, in this case, the master...
                     //
                     int port =
-                      getPort(
-                        clusterSchema, masterSlaveServer, sourceStep.getName(), masterStepCopyNr,
+                      getRemoteStepPort(
+                        clusterSchema, encrypted, masterSlaveServer, sourceStep.getName(), masterStepCopyNr,
                         targetSlaveServer, referenceStep.getName(), targetCopyNr );
 
                     RemoteStep remoteMasterStep =
@@ -750,6 +785,7 @@ public class TransSplitter {
                           .getName(), socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
+                    remoteMasterStep.setMultiplexingStreams( multiplexingSocketStreams );
                     remoteMasterStep.setKey( transformationKey );
                     sourceStep.getRemoteOutputSteps().add( remoteMasterStep );
 
@@ -761,6 +797,7 @@ public class TransSplitter {
                           .getName(), socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
+                    remoteSlaveStep.setMultiplexingStreams( multiplexingSocketStreams );
                     remoteSlaveStep.setKey( transformationKey );
                     targetStep.getRemoteInputSteps().add( remoteSlaveStep );
 
@@ -953,8 +990,8 @@ public class TransSplitter {
                               // That's why it's OK to generate all combinations.
                               //
                               int outPort =
-                                getPort(
-                                  clusterSchema, targetSlaveServer, sourceStep.getName(), sourceCopyNr,
+                                getRemoteStepPort(
+                                  clusterSchema, encrypted, targetSlaveServer, sourceStep.getName(), sourceCopyNr,
                                   sourceSlaveServer, targetStep.getName(), targetCopyNr );
                               RemoteStep remoteOutputStep =
                                 new RemoteStep(
@@ -964,6 +1001,7 @@ public class TransSplitter {
                                     .getName(), socketsBufferSize, compressingSocketStreams,
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteOutputStep.setEncryptingStreams( encrypt );
+                              remoteOutputStep.setMultiplexingStreams( multiplexingSocketStreams );
                               remoteOutputStep.setKey( transformationKey );
                               sourceStep.getRemoteOutputSteps().add( remoteOutputStep );
 
@@ -971,8 +1009,8 @@ public class TransSplitter {
                               // What we need to do now is link all the OTHER slaves up to them.
                               //
                               int inPort =
-                                getPort(
-                                  clusterSchema, sourceSlaveServer, sourceStep.getName(), sourceCopyNr,
+                                getRemoteStepPort(
+                                  clusterSchema, encrypted, sourceSlaveServer, sourceStep.getName(), sourceCopyNr,
                                   targetSlaveServer, targetStep.getName(), targetCopyNr );
                               RemoteStep remoteInputStep =
                                 new RemoteStep(
@@ -982,6 +1020,7 @@ public class TransSplitter {
                                     .getName(), socketsBufferSize, compressingSocketStreams,
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteInputStep.setEncryptingStreams( encrypt );
+                              remoteInputStep.setMultiplexingStreams( multiplexingSocketStreams );
                               remoteInputStep.setKey( transformationKey );
                               targetStep.getRemoteInputSteps().add( remoteInputStep );
                             }
@@ -1593,4 +1632,11 @@ public class TransSplitter {
   public String getClusteredRunId() {
     return clusteredRunId;
   }
+
+  /**
+   * @return true if the slave servers pull the input of their steps from the master in chunks
+   */
+  public boolean isDynamicSplitting() {
+    return dynamicSplitting;
+  }
 }
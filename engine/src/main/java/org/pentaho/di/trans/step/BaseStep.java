@@ -39,6 +39,7 @@ import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -53,6 +54,7 @@ import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.cache.CacheStatistics;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleRowException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -62,10 +64,12 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.logging.LoggingObjectType;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.core.row.value.ValueMetaDate;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
@@ -78,8 +82,10 @@ import org.pentaho.di.repository.ObjectRevision;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryDirectory;
 import org.pentaho.di.trans.BasePartitioner;
+import org.pentaho.di.trans.MemoryReservation;
 import org.pentaho.di.trans.SlaveStepCopyPartitionDistribution;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMemoryManager;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.cluster.TransSplitter;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
@@ -167,7 +173,24 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private Trans trans;
 
-  private final Object statusCountersLock = new Object();
+  /**
+   * The status counters are updated lock-free: they are changed by the step thread for every row while the
+   * monitoring (step status, performance snapshots, Carte) only needs to read the latest value.
+   */
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_READ =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesRead" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_WRITTEN =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesWritten" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_INPUT =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesInput" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_OUTPUT =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesOutput" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_UPDATED =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesUpdated" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_SKIPPED =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesSkipped" );
+  private static final AtomicLongFieldUpdater<BaseStep> LINES_REJECTED =
+    AtomicLongFieldUpdater.newUpdater( BaseStep.class, "linesRejected" );
 
   /**
    * nr of lines read from previous step(s)
@@ -175,7 +198,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesRead()}, {@link #incrementLinesRead()}, or {@link #decrementLinesRead()}
    */
   @Deprecated
-  public long linesRead;
+  public volatile long linesRead;
 
   /**
    * nr of lines written to next step(s)
@@ -183,7 +206,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesWritten()}, {@link #incrementLinesWritten()}, or {@link #decrementLinesWritten()}
    */
   @Deprecated
-  public long linesWritten;
+  public volatile long linesWritten;
 
   /**
    * nr of lines read from file or database
@@ -191,7 +214,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesInput()} or {@link #incrementLinesInput()}
    */
   @Deprecated
-  public long linesInput;
+  public volatile long linesInput;
 
   /**
    * nr of lines written to file or database
@@ -199,7 +222,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesOutput()} or {@link #incrementLinesOutput()}
    */
   @Deprecated
-  public long linesOutput;
+  public volatile long linesOutput;
 
   /**
    * nr of updates in a database table or file
@@ -207,7 +230,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesUpdated()} or {@link #incrementLinesUpdated()}
    */
   @Deprecated
-  public long linesUpdated;
+  public volatile long linesUpdated;
 
   /**
    * nr of lines skipped
@@ -215,7 +238,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesSkipped()} or {@link #incrementLinesSkipped()}
    */
   @Deprecated
-  public long linesSkipped;
+  public volatile long linesSkipped;
 
   /**
    * total sleep time in ns caused by an empty input buffer (previous step is slow)
@@ -223,7 +246,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesRejected()} or {@link #incrementLinesRejected()}
    */
   @Deprecated
-  public long linesRejected;
+  public volatile long linesRejected;
 
   private boolean distributed;
 
@@ -231,7 +254,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private RowDistributionInterface rowDistribution;
 
-  private long errors;
+  private volatile long errors;
 
   private StepMeta[] nextSteps;
 
@@ -368,6 +391,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private RowSet[] partitionNrRowSetList;
 
+  /**
+   * The partitions of the rows of the last block that was partitioned, reused from block to block.
+   */
+  private int[] partitionNrs;
+
   /**
    * A list of server sockets that need to be closed during transformation cleanup.
    */
@@ -449,6 +477,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   private RowHandler rowHandler;
 
+  /**
+   * Whether or not a subclass overrides putRow() or getRow(): determined on first use.
+   * In that case the blocks of rows are handed over one row at a time to keep the override in the loop.
+   */
+  private Boolean putRowOverridden;
+  private Boolean getRowOverridden;
+
   /**
    * This is the base step that forms that basis for all steps. You can derive from this class to implement your own
    * steps.
@@ -488,15 +523,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     init = false;
 
-    synchronized ( statusCountersLock ) {
-      linesRead = 0L; // new AtomicLong(0L); // Keep some statistics!
-      linesWritten = 0L; // new AtomicLong(0L);
-      linesUpdated = 0L; // new AtomicLong(0L);
-      linesSkipped = 0L; // new AtomicLong(0L);
-      linesRejected = 0L; // new AtomicLong(0L);
-      linesInput = 0L; // new AtomicLong(0L);
-      linesOutput = 0L; // new AtomicLong(0L);
-    }
+    linesRead = 0L; // Keep some statistics!
+    linesWritten = 0L;
+    linesUpdated = 0L;
+    linesSkipped = 0L;
+    linesRejected = 0L;
+    linesInput = 0L;
+    linesOutput = 0L;
 
     inputRowSets = null;
     outputRowSets = null;
@@ -822,6 +855,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    CacheStatistics cacheStatistics = getLookupCacheStatistics();
+    if ( cacheStatistics != null && log != null ) {
+      log.snap( Metrics.METRIC_STEP_LOOKUP_CACHE_HITS, getStepname(), cacheStatistics.getHits() );
+      log.snap( Metrics.METRIC_STEP_LOOKUP_CACHE_MISSES, getStepname(), cacheStatistics.getMisses() );
+      log.snap( Metrics.METRIC_STEP_LOOKUP_CACHE_EVICTIONS, getStepname(), cacheStatistics.getEvictions() );
+      log.snap( Metrics.METRIC_STEP_LOOKUP_CACHE_BYTES, getStepname(), cacheStatistics.getWeight() );
+    }
     setLoggingObjectInUse(false);
     sdi.setStatus( StepExecutionStatus.STATUS_DISPOSED );
   }
@@ -917,9 +957,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return linesRead;
-    }
+    return linesRead;
   }
 
   /**
@@ -928,9 +966,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRead;
-    }
+    return LINES_READ.incrementAndGet( this );
+  }
+
+  /**
+   * Increments the number of lines read from previous steps
+   *
+   * @param nrLines the number of lines to add
+   * @return Returns the new value
+   */
+  public long addLinesRead( long nrLines ) {
+    return LINES_READ.addAndGet( this, nrLines );
   }
 
   /**
@@ -939,18 +985,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return --linesRead;
-    }
+    return LINES_READ.decrementAndGet( this );
   }
 
   /**
    * @param newLinesReadValue the new number of lines read from previous steps
    */
   public void setLinesRead( long newLinesReadValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRead = newLinesReadValue;
-    }
+    linesRead = newLinesReadValue;
   }
 
   /**
@@ -958,9 +1000,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return linesInput;
-    }
+    return linesInput;
   }
 
   /**
@@ -969,18 +1009,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesInput;
-    }
+    return LINES_INPUT.incrementAndGet( this );
   }
 
   /**
    * @param newLinesInputValue the new number of lines read from an input source: database, file, socket, etc.
    */
   public void setLinesInput( long newLinesInputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesInput = newLinesInputValue;
-    }
+    linesInput = newLinesInputValue;
   }
 
   /**
@@ -988,9 +1024,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return linesOutput;
-    }
+    return linesOutput;
   }
 
   /**
@@ -999,18 +1033,24 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesOutput;
-    }
+    return LINES_OUTPUT.incrementAndGet( this );
+  }
+
+  /**
+   * Increments the number of lines written to an output target: database, file, socket, etc.
+   *
+   * @param nrLines the number of lines to add
+   * @return the new incremented value
+   */
+  public long addLinesOutput( long nrLines ) {
+    return LINES_OUTPUT.addAndGet( this, nrLines );
   }
 
   /**
    * @param newLinesOutputValue the new number of lines written to an output target: database, file, socket, etc.
    */
   public void setLinesOutput( long newLinesOutputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesOutput = newLinesOutputValue;
-    }
+    linesOutput = newLinesOutputValue;
   }
 
   /**
@@ -1018,9 +1058,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return linesWritten;
-    }
+    return linesWritten;
   }
 
   /**
@@ -1029,9 +1067,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return ++linesWritten;
-    }
+    return LINES_WRITTEN.incrementAndGet( this );
+  }
+
+  /**
+   * Increments the number of lines written to next steps
+   *
+   * @param nrLines the number of lines to add
+   * @return Returns the new value
+   */
+  public long addLinesWritten( long nrLines ) {
+    return LINES_WRITTEN.addAndGet( this, nrLines );
   }
 
   /**
@@ -1040,18 +1086,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return --linesWritten;
-    }
+    return LINES_WRITTEN.decrementAndGet( this );
   }
 
   /**
    * @param newLinesWrittenValue the new number of lines written to next steps
    */
   public void setLinesWritten( long newLinesWrittenValue ) {
-    synchronized ( statusCountersLock ) {
-      linesWritten = newLinesWrittenValue;
-    }
+    linesWritten = newLinesWrittenValue;
   }
 
   /**
@@ -1059,9 +1101,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return linesUpdated;
-    }
+    return linesUpdated;
   }
 
   /**
@@ -1070,18 +1110,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return ++linesUpdated;
-    }
+    return LINES_UPDATED.incrementAndGet( this );
   }
 
   /**
    * @param newLinesUpdatedValue the new number of lines updated in an output target: database, file, socket, etc.
    */
   public void setLinesUpdated( long newLinesUpdatedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesUpdated = newLinesUpdatedValue;
-    }
+    linesUpdated = newLinesUpdatedValue;
   }
 
   /**
@@ -1089,9 +1125,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return linesRejected;
-    }
+    return linesRejected;
   }
 
   /**
@@ -1100,9 +1134,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRejected;
-    }
+    return LINES_REJECTED.incrementAndGet( this );
   }
 
   /**
@@ -1110,18 +1142,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void setLinesRejected( long newLinesRejectedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRejected = newLinesRejectedValue;
-    }
+    linesRejected = newLinesRejectedValue;
   }
 
   /**
    * @return the number of lines skipped
    */
   public long getLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return linesSkipped;
-    }
+    return linesSkipped;
   }
 
   /**
@@ -1130,18 +1158,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return ++linesSkipped;
-    }
+    return LINES_SKIPPED.incrementAndGet( this );
   }
 
   /**
    * @param newLinesSkippedValue lines number of lines skipped
    */
   public void setLinesSkipped( long newLinesSkippedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesSkipped = newLinesSkippedValue;
-    }
+    linesSkipped = newLinesSkippedValue;
   }
 
   /*
@@ -1246,6 +1270,20 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     return trans;
   }
 
+  /**
+   * Create a reservation on the memory budget of the transformation, for steps that buffer rows. The reservation is not
+   * limited if the transformation has no memory limit.
+   *
+   * @return the memory reservation of this step copy
+   */
+  public MemoryReservation createMemoryReservation() {
+    TransMemoryManager memoryManager = trans == null ? null : trans.getMemoryManager();
+    if ( memoryManager == null ) {
+      return MemoryReservation.unlimited();
+    }
+    return memoryManager.createReservation( getStepname() + "." + getCopy() );
+  }
+
 
   /**
    * putRow is used to copy a row, to the alternate rowset(s) This should get priority over everything else!
@@ -1257,6 +1295,57 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void putRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    verifyFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRow( rowMeta, row );
+  }
+
+  /**
+   * putRows is used to send a block of rows to the next step(s) at once. The rows are distributed or copied to the
+   * output rowsets in the same way as with {@link #putRow(RowMetaInterface, Object[])}, but the per-row overhead is
+   * only paid once per block.
+   *
+   * @param rowMeta The row meta-data of the rows
+   * @param rows    The rows to put to the destination rowset(s)
+   * @param nrRows  The number of rows to put, starting with the first row in the rows array
+   * @throws KettleStepException
+   */
+  @Override
+  public void putRows( RowMetaInterface rowMeta, Object[][] rows, int nrRows ) throws KettleStepException {
+    if ( isPutRowOverridden() ) {
+      // Respect subclasses that intercept the rows one by one
+      //
+      for ( int i = 0; i < nrRows; i++ ) {
+        putRow( rowMeta, rows[ i ] );
+      }
+      return;
+    }
+    verifyFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRows( rowMeta, rows, nrRows );
+  }
+
+  private boolean isPutRowOverridden() {
+    if ( putRowOverridden == null ) {
+      putRowOverridden = isOverridden( "putRow", RowMetaInterface.class, Object[].class );
+    }
+    return putRowOverridden;
+  }
+
+  private boolean isGetRowOverridden() {
+    if ( getRowOverridden == null ) {
+      getRowOverridden = isOverridden( "getRow" );
+    }
+    return getRowOverridden;
+  }
+
+  private boolean isOverridden( String methodName, Class<?>... parameterTypes ) {
+    try {
+      return getClass().getMethod( methodName, parameterTypes ).getDeclaringClass() != BaseStep.class;
+    } catch ( NoSuchMethodException e ) {
+      return false;
+    }
+  }
+
+  private void verifyFieldNamesAndTypes( RowMetaInterface rowMeta ) throws KettleStepException {
     if ( rowMeta != null ) {
       if ( !allowEmptyFieldNamesAndTypes ) {
         // check row meta for empty field name (BACKLOG-18004)
@@ -1270,10 +1359,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         }
       }
     }
-    getRowHandler().putRow( rowMeta, row );
   }
 
-  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+  /**
+   * Stall while the step is paused and wait until all the step threads have been started.
+   *
+   * @return false if the step was stopped and no more rows should be put.
+   */
+  private boolean waitUntilReadyToPutRows() throws KettleStepException {
     // Are we pausing the step? If so, stall forever...
     //
     while ( paused.get() && !stopped.get() ) {
@@ -1292,7 +1385,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopPuttingARow" ) );
       }
       stopAll();
-      return;
+      return false;
     }
 
     // Have all threads started?
@@ -1309,7 +1402,10 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       }
       this.checkTransRunning = true;
     }
+    return true;
+  }
 
+  private void fireRowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
     // call all row listeners...
     //
     for ( RowListener listener : rowListeners ) {
@@ -1325,6 +1421,14 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         throw new KettleStepException( "Unable to clone row while adding rows to the terminator rows.", e );
       }
     }
+  }
+
+  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    if ( !waitUntilReadyToPutRows() ) {
+      return;
+    }
+
+    fireRowWrittenEvent( rowMeta, row );
 
     outputRowSetsLock.readLock().lock();
     try {
@@ -1337,29 +1441,100 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         return; // we're done here!
       }
 
-      // Repartitioning happens when the current step is not partitioned, but the next one is.
-      // That means we need to look up the partitioning information in the next step..
-      // If there are multiple steps, we need to look at the first (they should be all the same)
-      //
-      switch ( repartitioning ) {
-        case StepPartitioningMeta.PARTITIONING_METHOD_NONE:
-          noPartitioning( rowMeta, row );
-          break;
+      putRowToOutputRowSets( rowMeta, row );
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+  }
 
-        case StepPartitioningMeta.PARTITIONING_METHOD_SPECIAL:
-          specialPartitioning( rowMeta, row );
-          break;
-        case StepPartitioningMeta.PARTITIONING_METHOD_MIRROR:
-          mirrorPartitioning( rowMeta, row );
-          break;
-        default:
-          throw new KettleStepException( "Internal error: invalid repartitioning type: " + repartitioning );
+  private void handlePutRows( RowMetaInterface rowMeta, Object[][] rows, int nrRows ) throws KettleStepException {
+    if ( nrRows <= 0 || !waitUntilReadyToPutRows() ) {
+      return;
+    }
+
+    for ( int i = 0; i < nrRows; i++ ) {
+      fireRowWrittenEvent( rowMeta, rows[ i ] );
+    }
+
+    outputRowSetsLock.readLock().lock();
+    try {
+      if ( outputRowSets.isEmpty() ) {
+        // No more output rowsets!
+        // Still update the nr of lines written.
+        //
+        addLinesWritten( nrRows );
+        return;
+      }
+
+      if ( repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_NONE && distributed
+        && rowDistribution != null ) {
+        // Plugin defined row distribution, it gets to place the whole block
+        //
+        rowDistribution.distributeRows( rowMeta, rows, nrRows, this );
+        addLinesWritten( nrRows );
+        return;
+      }
+
+      if ( repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_SPECIAL ) {
+        specialPartitioning( rowMeta, rows, nrRows );
+        return;
+      }
+
+      if ( repartitioning != StepPartitioningMeta.PARTITIONING_METHOD_NONE
+        || ( distributed && outputRowSets.size() > 1 ) ) {
+        // Partitioning and distribution decide per row where it goes.
+        //
+        for ( int i = 0; i < nrRows; i++ ) {
+          putRowToOutputRowSets( rowMeta, rows[ i ] );
+        }
+        return;
+      }
+
+      // Copy the block to the other output rowsets...
+      //
+      for ( int r = 1; r < outputRowSets.size(); r++ ) { // start at 1
+        Object[][] copies = new Object[ nrRows ][];
+        try {
+          for ( int i = 0; i < nrRows; i++ ) {
+            copies[ i ] = rowMeta.cloneRow( rows[ i ] );
+          }
+        } catch ( KettleValueException e ) {
+          throw new KettleStepException( "Unable to clone row while copying rows to multiple target steps", e );
+        }
+        putRowsToRowSet( outputRowSets.get( r ), rowMeta, copies, nrRows );
+        addLinesWritten( nrRows );
       }
+
+      // ... and put the original rows in the first one
+      //
+      putRowsToRowSet( outputRowSets.get( 0 ), rowMeta, rows, nrRows );
+      addLinesWritten( nrRows );
     } finally {
       outputRowSetsLock.readLock().unlock();
     }
   }
 
+  private void putRowToOutputRowSets( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    // Repartitioning happens when the current step is not partitioned, but the next one is.
+    // That means we need to look up the partitioning information in the next step..
+    // If there are multiple steps, we need to look at the first (they should be all the same)
+    //
+    switch ( repartitioning ) {
+      case StepPartitioningMeta.PARTITIONING_METHOD_NONE:
+        noPartitioning( rowMeta, row );
+        break;
+
+      case StepPartitioningMeta.PARTITIONING_METHOD_SPECIAL:
+        specialPartitioning( rowMeta, row );
+        break;
+      case StepPartitioningMeta.PARTITIONING_METHOD_MIRROR:
+        mirrorPartitioning( rowMeta, row );
+        break;
+      default:
+        throw new KettleStepException( "Internal error: invalid repartitioning type: " + repartitioning );
+    }
+  }
+
   /**
    * Copy always to all target steps/copies
    */
@@ -1369,7 +1544,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
   }
 
-  private void specialPartitioning( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+  private StepPartitioningMeta lookupNextStepPartitioningMeta() {
     if ( nextStepPartitioningMeta == null ) {
       // Look up the partitioning of the next step.
       // This is the case for non-clustered partitioning...
@@ -1382,15 +1557,44 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       // TODO: throw exception if we're not partitioning yet.
       // For now it throws a NP Exception.
     }
+    return nextStepPartitioningMeta;
+  }
 
+  private void specialPartitioning( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
     int partitionNr;
     try {
-      partitionNr = nextStepPartitioningMeta.getPartition( rowMeta, row );
+      partitionNr = lookupNextStepPartitioningMeta().getPartition( rowMeta, row );
+    } catch ( KettleException e ) {
+      throw new KettleStepException(
+        "Unable to convert a value to integer while calculating the partition number", e );
+    }
+
+    specialPartitioning( rowMeta, row, partitionNr );
+  }
+
+  /**
+   * Partition a block of rows: the partitioner calculates the partitions of all the rows in one go before they are put
+   * in the row sets.
+   */
+  private void specialPartitioning( RowMetaInterface rowMeta, Object[][] rows, int nrRows )
+    throws KettleStepException {
+    if ( partitionNrs == null || partitionNrs.length < nrRows ) {
+      partitionNrs = new int[ nrRows ];
+    }
+    try {
+      lookupNextStepPartitioningMeta().getPartitions( rowMeta, rows, nrRows, partitionNrs );
     } catch ( KettleException e ) {
       throw new KettleStepException(
         "Unable to convert a value to integer while calculating the partition number", e );
     }
 
+    for ( int i = 0; i < nrRows; i++ ) {
+      specialPartitioning( rowMeta, rows[ i ], partitionNrs[ i ] );
+    }
+  }
+
+  private void specialPartitioning( RowMetaInterface rowMeta, Object[] row, int partitionNr )
+    throws KettleStepException {
     RowSet selectedRowSet = null;
 
     if ( clusteredPartitioningFirst ) {
@@ -1602,13 +1806,82 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       toBeSent = metaFromRs;
     }
 
-    while ( !rs.putRow( toBeSent, row ) ) {
+    while ( !putRowWaiting( rs, toBeSent, row ) ) {
       if ( isStopped() && !safeStopped.get() ) {
         return;
       }
     }
   }
 
+  /**
+   * Put a row in a row set, waiting a while if the row set is full. On the shared step pool the pool is told about the
+   * wait so that it can run the consuming step in the meantime.
+   *
+   * @return true if the row was put in the row set
+   */
+  private boolean putRowWaiting( final RowSet rs, final RowMetaInterface rowMeta, final Object[] row ) {
+    if ( !StepExecutionPool.isWorkerThread() ) {
+      return rs.putRow( rowMeta, row );
+    }
+    if ( rs.putRowWait( rowMeta, row, 0, TimeUnit.MILLISECONDS ) ) {
+      return true;
+    }
+    try {
+      return StepExecutionPool.block( () -> rs.putRow( rowMeta, row ) );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Get a row from a row set, waiting for at most the given time if the row set is empty. On the shared step pool the
+   * pool is told about the wait so that it can run the producing step in the meantime.
+   *
+   * @return the row or null if no row arrived in time
+   */
+  private Object[] getRowWaiting( final RowSet rs, final long timeout, final TimeUnit unit ) {
+    if ( !StepExecutionPool.isWorkerThread() ) {
+      return rs.getRowWait( timeout, unit );
+    }
+    Object[] row = rs.getRowImmediate();
+    if ( row != null ) {
+      return row;
+    }
+    try {
+      return StepExecutionPool.block( () -> rs.getRowWait( timeout, unit ) );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  private void putRowsToRowSet( RowSet rs, RowMetaInterface rowMeta, Object[][] rows, int nrRows ) {
+    RowMetaInterface toBeSent;
+    RowMetaInterface metaFromRs = rs.getRowMeta();
+    if ( metaFromRs == null ) {
+      // RowSet is not initialised so far
+      toBeSent = rowMeta.clone();
+    } else {
+      // use the existing
+      toBeSent = metaFromRs;
+    }
+
+    int offset = 0;
+    while ( offset < nrRows ) {
+      int accepted = rs.putRows( toBeSent, rows, offset, nrRows - offset );
+      if ( accepted == 0 && putRowWaiting( rs, toBeSent, rows[ offset ] ) ) {
+        // The row set didn't take the block, it did take the next row on its own.
+        //
+        accepted = 1;
+      }
+      offset += accepted;
+      if ( offset < nrRows && isStopped() && !safeStopped.get() ) {
+        return;
+      }
+    }
+  }
+
   /**
    * putRowTo is used to put a row in a certain specific RowSet.
    *
@@ -1830,6 +2103,87 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     return getRowHandler().getRow();
   }
 
+  /**
+   * Get a block of rows from the input rowsets. This method waits for the first row just like {@link #getRow()} does
+   * and then adds the rows that are available in the same input rowset right away, up to the given maximum.
+   *
+   * @param max the maximum number of rows to return
+   * @return a block of at least one row or null if there are no more rows to be expected.
+   * @throws KettleException
+   */
+  @Override
+  public Object[][] getRows( int max ) throws KettleException {
+    if ( isGetRowOverridden() ) {
+      // Respect subclasses that provide their own rows one by one
+      //
+      Object[] row = getRow();
+      return row == null ? null : new Object[][] { row };
+    }
+    return getRowHandler().getRows( max );
+  }
+
+  /**
+   * Get a block of rows from the input rowsets as a columnar batch, see {@link #getRows(int)}. The batch is a view on
+   * the rows as they were received: the columns are decoded on demand.
+   *
+   * @param max the maximum number of rows in the batch
+   * @return a batch of at least one row or null if there are no more rows to be expected.
+   * @throws KettleException
+   */
+  public RowBatch getRowBatch( int max ) throws KettleException {
+    Object[][] rows = getRows( max );
+    return rows == null ? null : new RowBatch( getInputRowMeta(), rows, rows.length );
+  }
+
+  /**
+   * Put the rows of a columnar batch on the output rowsets, see {@link #putRows(RowMetaInterface, Object[][], int)}.
+   * The columns that were replaced in the batch are written to the rows first, next steps receive plain rows.
+   *
+   * @param rowMeta the metadata of the rows
+   * @param batch   the batch to send
+   * @throws KettleStepException
+   */
+  public void putRowBatch( RowMetaInterface rowMeta, RowBatch batch ) throws KettleStepException {
+    putRows( rowMeta, batch.getRows(), batch.size() );
+  }
+
+  private Object[][] handleGetRows( int max ) throws KettleException {
+    Object[] row = handleGetRow();
+    if ( row == null ) {
+      return null;
+    }
+
+    Object[][] rows = new Object[ Math.max( 1, max ) ][];
+    rows[ 0 ] = row;
+    int nrRows = 1;
+
+    if ( max > 1 && !stopped.get() ) {
+      inputRowSetsLock.readLock().lock();
+      try {
+        // Keep reading from the row set the first row came from, the rows have the same layout.
+        //
+        if ( !inputRowSets.isEmpty() ) {
+          nrRows += currentInputStream().getRowsImmediate( rows, 1, max - 1 );
+        }
+      } finally {
+        inputRowSetsLock.readLock().unlock();
+      }
+
+      if ( nrRows > 1 ) {
+        addLinesRead( nrRows - 1 );
+        blockPointer += nrRows - 1;
+
+        for ( int i = 1; i < nrRows; i++ ) {
+          for ( RowListener listener : rowListeners ) {
+            listener.rowReadEvent( inputRowMeta, rows[ i ] );
+          }
+        }
+      }
+    }
+
+    return nrRows == rows.length ? rows : Arrays.copyOf( rows, nrRows );
+  }
+
 
   private Object[] handleGetRow() throws KettleException {
 
@@ -1921,7 +2275,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         // Timeout immediately if nothing is there to read.
         // We will then switch to the next row set to read from...
         //
-        row = inputRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        row = getRowWaiting( inputRowSet, 1, TimeUnit.MILLISECONDS );
         if ( row != null ) {
           incrementLinesRead();
           blockPointer++;
@@ -2261,7 +2615,8 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     //
     rowData = rowSet.getRow();
     while ( rowData == null && !rowSet.isDone() && !stopped.get() ) {
-      rowData = rowSet.getRow();
+      rowData = StepExecutionPool.isWorkerThread()
+        ? getRowWaiting( rowSet, Const.TIMEOUT_GET_MILLIS, TimeUnit.MILLISECONDS ) : rowSet.getRow();
 
       // Verify deadlocks!
       //
@@ -3389,22 +3744,21 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * Log summary.
    */
   public void logSummary() {
-    synchronized ( statusCountersLock ) {
-      long li = getLinesInput();
-      long lo = getLinesOutput();
-      long lr = getLinesRead();
-      long lw = getLinesWritten();
-      long lu = getLinesUpdated();
-      long lj = getLinesRejected();
-      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
-        logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      } else {
-        logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      }
+    long li = getLinesInput();
+    long lo = getLinesOutput();
+    long lr = getLinesRead();
+    long lw = getLinesWritten();
+    long lu = getLinesUpdated();
+    long lj = getLinesRejected();
+    long le = getErrors();
+    if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || le > 0 ) {
+      logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( le + lj ) ) );
+    } else {
+      logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( le + lj ) ) );
     }
   }
 
@@ -3739,6 +4093,21 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       && ( lines % getTransMeta().getFeedbackSize() ) == 0;
   }
 
+  /**
+   * Same as {@link #checkFeedback(long)} for steps that process blocks of rows: the number of lines doesn't grow one
+   * by one so we check whether a feedback boundary was crossed.
+   *
+   * @param previousLines the number of lines before the block was processed
+   * @param lines         the number of lines after the block was processed
+   * @return true if feedback should be given
+   */
+  protected boolean checkFeedback( long previousLines, long lines ) {
+    int feedbackSize = getTransMeta().getFeedbackSize();
+    return getTransMeta().isFeedbackShown()
+      && ( lines > 0 ) && ( feedbackSize > 0 )
+      && ( lines / feedbackSize ) > ( previousLines / feedbackSize );
+  }
+
   /**
    * @return the rowMeta
    */
@@ -4416,6 +4785,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       handlePutRow( rowMeta, row );
     }
 
+    @Override public void putRows( RowMetaInterface rowMeta, Object[][] rows, int nrRows )
+      throws KettleStepException {
+      handlePutRows( rowMeta, rows, nrRows );
+    }
+
+    @Override public Object[][] getRows( int max ) throws KettleException {
+      return handleGetRows( max );
+    }
+
     @Override public void putError( RowMetaInterface rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                                     String fieldNames, String errorCodes ) throws KettleStepException {
       handlePutError( rowMeta, row, nrErrors, errorDescriptions, fieldNames, errorCodes );
@@ -0,0 +1,157 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pentaho.di.core.DirectRowSet;
+
+/**
+ * Runs a linear chain of steps on a single thread. The first step of the chain runs like any other step, the steps
+ * after it are called by the {@link DirectRowSet} in front of them every time rows arrive. The steps still read and
+ * write their rows through getRow() and putRow() so the rows read and written, the row listeners and the status of
+ * every step are kept like they are for a step running on its own.
+ *
+ * @see org.pentaho.di.trans.TransMeta#isUsingStepFusion()
+ */
+public class FusedStepChain implements Runnable {
+
+  private final StepMetaDataCombi head;
+  private final List<FusedStep> fusedSteps;
+
+  /**
+   * @param head
+   *          the first step of the chain, the one that gets a thread
+   */
+  public FusedStepChain( StepMetaDataCombi head ) {
+    this.head = head;
+    this.fusedSteps = new ArrayList<FusedStep>();
+  }
+
+  /**
+   * Add the next step to the chain.
+   *
+   * @param combi
+   *          the step
+   * @param rowSet
+   *          the row set between the last step of the chain and this one
+   */
+  public void addStep( StepMetaDataCombi combi, DirectRowSet rowSet ) {
+    FusedStep fusedStep = new FusedStep( combi, rowSet );
+    rowSet.setConsumer( fusedStep );
+
+    // The input never fills up, no need to throttle
+    //
+    combi.step.setUsingThreadPriorityManagment( false );
+    fusedSteps.add( fusedStep );
+  }
+
+  /**
+   * @return the steps of the chain, from start to finish
+   */
+  public List<StepMetaDataCombi> getSteps() {
+    List<StepMetaDataCombi> steps = new ArrayList<StepMetaDataCombi>();
+    steps.add( head );
+    for ( FusedStep fusedStep : fusedSteps ) {
+      steps.add( fusedStep.combi );
+    }
+    return steps;
+  }
+
+  @Override
+  public void run() {
+    // The fused steps have to be ready before the first rows arrive
+    //
+    for ( FusedStep fusedStep : fusedSteps ) {
+      fusedStep.start();
+    }
+
+    new RunThread( head ).run();
+
+    // The first step is done: let the others process the end of their input (or notice the transformation stopped)
+    //
+    for ( FusedStep fusedStep : fusedSteps ) {
+      fusedStep.finish();
+    }
+  }
+
+  private static final class FusedStep implements DirectRowSet.Consumer {
+    private final StepMetaDataCombi combi;
+    private final DirectRowSet rowSet;
+    private final RunThread runThread;
+    private boolean processing;
+
+    private FusedStep( StepMetaDataCombi combi, DirectRowSet rowSet ) {
+      this.combi = combi;
+      this.rowSet = rowSet;
+      this.runThread = new RunThread( combi );
+    }
+
+    private void start() {
+      try {
+        runThread.start();
+        processing = true;
+      } catch ( Throwable t ) {
+        runThread.handleError( t );
+      }
+    }
+
+    @Override
+    public void consume() {
+      try {
+        while ( processing && rowSet.size() > 0 ) {
+          if ( !combi.step.processRow( combi.meta, combi.data ) || combi.step.isStopped() ) {
+            processing = false;
+          }
+        }
+      } catch ( Throwable t ) {
+        processing = false;
+        runThread.handleError( t );
+      }
+
+      // Nobody is going to read the rows anymore
+      //
+      if ( !processing ) {
+        while ( rowSet.getRow() != null ) {
+          // Skip the row
+        }
+      }
+    }
+
+    private void finish() {
+      try {
+        while ( processing && combi.step.processRow( combi.meta, combi.data ) ) {
+          if ( combi.step.isStopped() ) {
+            break;
+          }
+        }
+      } catch ( Throwable t ) {
+        runThread.handleError( t );
+      } finally {
+        processing = false;
+        runThread.finish();
+      }
+    }
+  }
+}
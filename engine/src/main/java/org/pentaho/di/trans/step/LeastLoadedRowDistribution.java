@@ -0,0 +1,64 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.pentaho.di.core.RowSet;
+
+/**
+ * Sends every row to the output row set with the fewest rows in it, looking at all of them. The scan starts at a random
+ * row set so that row sets that are equally filled are picked in turn.
+ */
+public class LeastLoadedRowDistribution extends LoadAwareRowDistribution {
+
+  public static final String CODE = "LeastLoaded";
+
+  @Override
+  public String getCode() {
+    return CODE;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Least loaded";
+  }
+
+  @Override
+  protected RowSet selectRowSet( List<RowSet> rowSets ) {
+    int nrRowSets = rowSets.size();
+    int start = nrRowSets == 1 ? 0 : ThreadLocalRandom.current().nextInt( nrRowSets );
+    RowSet selected = rowSets.get( start );
+    int lowest = selected.size();
+    for ( int i = 1; i < nrRowSets && lowest > 0; i++ ) {
+      RowSet rowSet = rowSets.get( ( start + i ) % nrRowSets );
+      int size = rowSet.size();
+      if ( size < lowest ) {
+        selected = rowSet;
+        lowest = size;
+      }
+    }
+    return selected;
+  }
+}
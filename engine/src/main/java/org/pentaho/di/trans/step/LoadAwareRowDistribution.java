@@ -0,0 +1,100 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.gui.PrimitiveGCInterface.EImage;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Base class of the row distributions that send rows to the output row set with the fewest rows waiting in it.
+ * <p>
+ * Round robin distribution hands every target step copy the same number of rows. When the cost of a row varies, for
+ * instance with lookups against a web service or a database, the copy that drew the slow rows holds everybody up while
+ * the others are idle. Sending a row to the row set that is the least filled gives it to the copy that is keeping up
+ * best.
+ * <p>
+ * The same instance is used by all the copies of a step, so the distributions keep no state.
+ */
+public abstract class LoadAwareRowDistribution implements RowDistributionInterface {
+
+  /**
+   * Pick the row set the next row goes to.
+   *
+   * @param rowSets
+   *          the output row sets of the step, at least one
+   * @return the selected row set
+   */
+  protected abstract RowSet selectRowSet( List<RowSet> rowSets );
+
+  @Override
+  public void distributeRow( RowMetaInterface rowMeta, Object[] row, StepInterface stepInterface )
+    throws KettleStepException {
+    List<RowSet> rowSets = stepInterface.getOutputRowSets();
+    RowSet rowSet = selectRowSet( rowSets );
+    while ( !rowSet.putRow( getRowMeta( rowSet, rowMeta ), row ) ) {
+      if ( stepInterface.isStopped() ) {
+        return;
+      }
+      // The row set stayed full, look again: another copy may have caught up in the meantime.
+      //
+      rowSet = selectRowSet( rowSets );
+    }
+  }
+
+  /**
+   * Place a block of rows. The rows go to the least filled row set for as long as it takes them, the rest of the block
+   * is placed after looking at the row sets again.
+   */
+  @Override
+  public void distributeRows( RowMetaInterface rowMeta, Object[][] rows, int nrRows, StepInterface stepInterface )
+    throws KettleStepException {
+    List<RowSet> rowSets = stepInterface.getOutputRowSets();
+    int offset = 0;
+    while ( offset < nrRows ) {
+      RowSet rowSet = selectRowSet( rowSets );
+      RowMetaInterface toBeSent = getRowMeta( rowSet, rowMeta );
+      int accepted = rowSet.putRows( toBeSent, rows, offset, nrRows - offset );
+      if ( accepted == 0 && rowSet.putRow( toBeSent, rows[ offset ] ) ) {
+        accepted = 1;
+      }
+      offset += accepted;
+      if ( offset < nrRows && stepInterface.isStopped() ) {
+        return;
+      }
+    }
+  }
+
+  private RowMetaInterface getRowMeta( RowSet rowSet, RowMetaInterface rowMeta ) {
+    RowMetaInterface metaFromRs = rowSet.getRowMeta();
+    return metaFromRs != null ? metaFromRs : rowMeta.clone();
+  }
+
+  @Override
+  public EImage getDistributionImage() {
+    return EImage.LOAD_BALANCE;
+  }
+}
@@ -0,0 +1,65 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.pentaho.di.core.RowSet;
+
+/**
+ * Sends every row to the less filled of two output row sets picked at random. Looking at two row sets instead of all
+ * of them keeps the cost of a row constant for steps with many target copies while balancing almost as well as a full
+ * scan.
+ */
+public class PowerOfTwoChoicesRowDistribution extends LoadAwareRowDistribution {
+
+  public static final String CODE = "PowerOfTwoChoices";
+
+  @Override
+  public String getCode() {
+    return CODE;
+  }
+
+  @Override
+  public String getDescription() {
+    return "Power of two choices";
+  }
+
+  @Override
+  protected RowSet selectRowSet( List<RowSet> rowSets ) {
+    int nrRowSets = rowSets.size();
+    if ( nrRowSets == 1 ) {
+      return rowSets.get( 0 );
+    }
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt( nrRowSets );
+    int second = random.nextInt( nrRowSets - 1 );
+    if ( second >= first ) {
+      second++;
+    }
+    RowSet one = rowSets.get( first );
+    RowSet other = rowSets.get( second );
+    return other.size() < one.size() ? other : one;
+  }
+}
@@ -54,6 +54,12 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.core.xml.XMLInterface;
+import org.pentaho.di.trans.cluster.MultiplexedChannel;
+import org.pentaho.di.trans.cluster.MultiplexedConnection;
+import org.pentaho.di.trans.cluster.MultiplexedEndpoint;
+import org.pentaho.di.trans.cluster.MultiplexedTransport;
+import org.pentaho.di.trans.cluster.RowBlockReader;
+import org.pentaho.di.trans.cluster.RowBlockWriter;
 import org.pentaho.di.www.SocketRepository;
 import org.w3c.dom.Node;
 
@@ -71,6 +77,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
   private static final long TIMEOUT_IN_SECONDS = 30;
 
+  /** The time in ms to wait for a channel, credit or block before checking if the step was stopped */
+  private static final long MULTIPLEXED_POLL_MILLIS = 250;
+
+  /** The minimum number of bytes of rows in a block sent over a multiplexed channel */
+  private static final int MIN_BLOCK_SIZE = 4096;
+
   /** The target or source slave server with which we're exchanging data */
   private String targetSlaveServerName;
 
@@ -116,6 +128,10 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
   private GZIPInputStream gzipInputStream;
 
+  /** Send the rows over the connection shared by all the remote steps between the same two servers */
+  private boolean multiplexingStreams;
+  private MultiplexedEndpoint endpoint;
+
   private BufferedInputStream bufferedInputStream;
 
   protected BufferedOutputStream bufferedOutputStream;
@@ -180,6 +196,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     xml.append( XMLHandler.addTagValue( "port", port, false ) );
     xml.append( XMLHandler.addTagValue( "buffer_size", bufferSize, false ) );
     xml.append( XMLHandler.addTagValue( "compressed_streams", compressingStreams, false ) );
+    xml.append( XMLHandler.addTagValue( "multiplexed_streams", multiplexingStreams, false ) );
 
     xml.append( XMLHandler.addTagValue( "source_step_name", sourceStep, false ) );
     xml.append( XMLHandler.addTagValue( "source_step_copy", sourceStepCopyNr, false ) );
@@ -213,6 +230,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     port = XMLHandler.getTagValue( node, "port" );
     bufferSize = Integer.parseInt( XMLHandler.getTagValue( node, "buffer_size" ) );
     compressingStreams = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "compressed_streams" ) );
+    multiplexingStreams = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "multiplexed_streams" ) );
 
     sourceStep = XMLHandler.getTagValue( node, "source_step_name" );
     sourceStepCopyNr = Integer.parseInt( XMLHandler.getTagValue( node, "source_step_copy" ) );
@@ -290,6 +308,15 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     int portNumber = Integer.parseInt( baseStep.environmentSubstitute( port ) );
 
     SocketRepository socketRepository = baseStep.getSocketRepository();
+    if ( isMultiplexed() ) {
+      // The server socket is shared by all the hops to the same server: it is given back to the socket repository
+      // when the last of them is done, not by the step.
+      //
+      endpoint = MultiplexedTransport.getInstance().openEndpoint( portNumber, socketRepository,
+        baseStep.getTransMeta().getName() + " - multiplexed" );
+      serverSocket = endpoint.getServerSocket();
+      return;
+    }
     serverSocket =
       socketRepository.openServerSocket( portNumber, baseStep.getTransMeta().getName()
         + " - " + baseStep.toString() );
@@ -341,6 +368,11 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     rowSet.setThreadNameFromToCopy( sourceStep, sourceStepCopyNr, targetStep, targetStepCopyNr );
     rowSet.setRemoteSlaveServerName( targetSlaveServerName );
 
+    if ( isMultiplexed() ) {
+      new Thread( () -> writeMultiplexed( rowSet ) ).start();
+      return rowSet;
+    }
+
     // Start a thread that will read out the output row set and send the data over the wire...
     // This will make everything else transparent, copying, distributing, including partitioning, etc.
     //
@@ -476,10 +508,107 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     return rowSet;
   }
 
+  /**
+   * @return true if the rows go over a multiplexed connection. Encrypted streams always get a socket of their own.
+   */
+  private boolean isMultiplexed() {
+    return multiplexingStreams && !( encryptingStreams && key != null );
+  }
+
+  /**
+   * @return the name of the hop, the same on both servers
+   */
+  private String getChannelKey() {
+    return sourceSlaveServerName + "/" + sourceStep + "." + sourceStepCopyNr + " --> "
+      + targetSlaveServerName + "/" + targetStep + "." + targetStepCopyNr;
+  }
+
+  /**
+   * Send the rows of the row set in blocks over the channel the remote input step opens on the shared endpoint.
+   */
+  private void writeMultiplexed( BlockingRowSet rowSet ) {
+    MultiplexedChannel channel = null;
+    try {
+      String channelKey = getChannelKey();
+      while ( channel == null && !baseStep.isStopped() ) {
+        channel = endpoint.awaitChannel( channelKey, MULTIPLEXED_POLL_MILLIS );
+      }
+      if ( channel == null ) {
+        return;
+      }
+      baseStep.logBasic( "Multiplexed channel " + channel + " opened on port [" + port + "]" );
+
+      int blockSize = Math.max( bufferSize, MIN_BLOCK_SIZE );
+      RowBlockWriter writer = new RowBlockWriter( blockSize, compressingStreams );
+
+      // get a row of data...
+      Object[] rowData = baseStep.getRowFrom( rowSet );
+      if ( rowData != null ) {
+        byte[] meta = RowBlockWriter.writeMeta( rowSet.getRowMeta() );
+        channel.sendMeta( meta, meta.length );
+      }
+
+      while ( rowData != null && !baseStep.isStopped() ) {
+        // It's too confusing to count these twice, so decrement
+        baseStep.decrementLinesRead();
+        baseStep.decrementLinesWritten();
+
+        writer.addRow( rowSet.getRowMeta(), rowData );
+        baseStep.incrementLinesOutput();
+
+        // Send the block when it's full or when no more rows are waiting, so rows never wait for a full block
+        //
+        if ( writer.size() >= blockSize || ( rowSet.size() == 0 && !rowSet.isDone() ) ) {
+          sendBlock( channel, writer );
+        }
+        rowData = baseStep.getRowFrom( rowSet );
+      }
+      if ( writer.getNrRows() > 0 && !baseStep.isStopped() ) {
+        sendBlock( channel, writer );
+      }
+    } catch ( Exception e ) {
+      baseStep.logError( "Error writing to remote step", e );
+      baseStep.setErrors( 1 );
+      baseStep.stopAll();
+    } finally {
+      if ( channel != null ) {
+        try {
+          channel.sendClose();
+        } catch ( IOException e ) {
+          if ( !baseStep.isStopped() ) {
+            baseStep.logError( "Error closing multiplexed channel " + channel, e );
+            baseStep.setErrors( 1L );
+            baseStep.stopAll();
+          }
+        }
+      }
+      releaseEndpoint();
+    }
+  }
+
+  private void sendBlock( MultiplexedChannel channel, RowBlockWriter writer ) throws IOException {
+    writer.finish();
+    while ( !channel.awaitCredit( MULTIPLEXED_POLL_MILLIS ) ) {
+      if ( baseStep.isStopped() ) {
+        return;
+      }
+    }
+    channel.sendData( writer.getBlock(), writer.getBlockLength() );
+    writer.reset();
+  }
+
+  private synchronized void releaseEndpoint() {
+    if ( endpoint != null ) {
+      MultiplexedTransport.getInstance().releaseEndpoint( endpoint );
+      endpoint = null;
+    }
+  }
+
   /**
    * Close left-over sockets, streams and so on.
    */
   public void cleanup() {
+    releaseEndpoint();
     if ( socket != null && socket.isConnected() && !socket.isClosed() ) {
       try {
         if ( socket != null && !socket.isOutputShutdown() ) {
@@ -559,6 +688,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     final int portNumber = Integer.parseInt( baseStep.environmentSubstitute( port ) );
     final String realHostname = baseStep.environmentSubstitute( hostname );
 
+    if ( isMultiplexed() ) {
+      final MultiplexedChannel channel = openReaderChannel( realHostname, portNumber );
+      new Thread( () -> readMultiplexed( channel, rowSet ) ).start();
+      return rowSet;
+    }
+
     // Connect to the server socket (started during BaseStep.init())
     // Because the accept() call on the server socket can be called after we
     // reached this code
@@ -786,6 +921,103 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     return rowSet;
   }
 
+  /**
+   * Connect to the endpoint of the server the rows come from, sharing the connection with the other remote steps
+   * reading from that server, and open the channel of this hop.
+   */
+  private MultiplexedChannel openReaderChannel( String realHostname, int portNumber ) throws KettleException {
+    long startTime = System.currentTimeMillis();
+    Exception lastException = null;
+    while ( TIMEOUT_IN_SECONDS > ( System.currentTimeMillis() - startTime ) / 1000 && !baseStep.isStopped() ) {
+      MultiplexedConnection connection = null;
+      try {
+        baseStep.logDetailed( "Opening multiplexed connection to server ["
+          + Const.NVL( realHostname, "" ) + ":" + port + "]" );
+        connection = MultiplexedTransport.getInstance().connect( realHostname, portNumber, 5000 );
+        MultiplexedChannel channel = connection.openChannel( getChannelKey(), MultiplexedTransport.INITIAL_CREDITS );
+        baseStep.logDetailed( "Opened multiplexed channel " + channel + " to read rows from remote step on server "
+          + realHostname + " port " + portNumber );
+        return channel;
+      } catch ( Exception e ) {
+        lastException = e;
+        if ( connection != null ) {
+          MultiplexedTransport.getInstance().releaseConnection( connection );
+        }
+      }
+      try {
+        Thread.sleep( MULTIPLEXED_POLL_MILLIS );
+      } catch ( InterruptedException e ) {
+        throw new KettleException( "Interrupted while trying to connect to server socket: " + e.toString() );
+      }
+    }
+    if ( lastException != null ) {
+      baseStep.logError( "Error initialising step: " + lastException.toString() );
+      throw new KettleException( "Unable to open socket to server " + realHostname + " port " + portNumber,
+        lastException );
+    }
+    throw new KettleException( "Unable to connect to the SocketWriter in the " + TIMEOUT_IN_SECONDS
+      + "s timeout period." );
+  }
+
+  /**
+   * Read the blocks of rows coming in on the channel into the row set.
+   */
+  private void readMultiplexed( MultiplexedChannel channel, BlockingRowSet rowSet ) {
+    try {
+      RowBlockReader reader = new RowBlockReader();
+      RowMetaInterface rowMeta = null;
+      boolean closed = false;
+      while ( !closed && !baseStep.isStopped() ) {
+        MultiplexedChannel.Frame frame = channel.take( MULTIPLEXED_POLL_MILLIS );
+        if ( frame == null ) {
+          continue;
+        }
+        try {
+          switch ( frame.getType() ) {
+            case MultiplexedConnection.FRAME_META:
+              rowMeta = RowBlockReader.readMeta( frame.getData(), frame.getLength() );
+              break;
+            case MultiplexedConnection.FRAME_DATA:
+              int nrRows = reader.open( frame.getData(), frame.getLength() );
+              for ( int i = 0; i < nrRows && !baseStep.isStopped(); i++ ) {
+                Object[] rowData = reader.readRow( rowMeta );
+                baseStep.incrementLinesInput();
+                baseStep.decrementLinesRead();
+
+                if ( baseStep.log.isDebug() ) {
+                  baseStep.logDebug( "Received row from remote step: " + rowMeta.getString( rowData ) );
+                }
+
+                baseStep.putRowTo( rowMeta, rowData, rowSet );
+                baseStep.decrementLinesWritten();
+              }
+              break;
+            case MultiplexedConnection.FRAME_CLOSE:
+              closed = true;
+              break;
+            default:
+              break;
+          }
+        } finally {
+          channel.release( frame );
+        }
+      }
+      if ( baseStep.log.isDebug() ) {
+        baseStep.logDebug( "Finished reading from remote step over multiplexed channel " + channel );
+      }
+    } catch ( Exception e ) {
+      baseStep.logError( "Error reading from multiplexed channel to remote step", e );
+      baseStep.setErrors( 1 );
+      baseStep.stopAll();
+    } finally {
+      MultiplexedTransport.getInstance().releaseConnection( channel.getConnection() );
+    }
+
+    // signal baseStep that nothing else comes from this step.
+    //
+    rowSet.setDone();
+  }
+
   /**
    * @return the sourceStep
    */
@@ -963,4 +1195,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     this.key = key;
   }
 
+  public boolean isMultiplexingStreams() {
+    return multiplexingStreams;
+  }
+
+  public void setMultiplexingStreams( boolean multiplexingStreams ) {
+    this.multiplexingStreams = multiplexingStreams;
+  }
+
 }
@@ -51,6 +51,27 @@ public interface RowDistributionInterface {
    */
   public void distributeRow( RowMetaInterface rowMeta, Object[] row, StepInterface stepInterface ) throws KettleStepException;
 
+  /**
+   * Distribute a block of rows in the step. The default implementation distributes the rows one by one, distributions
+   * that can keep a block together override it.
+   *
+   * @param rowMeta
+   *          the meta-data of the rows to distribute
+   * @param rows
+   *          the rows to distribute
+   * @param nrRows
+   *          the number of rows to distribute, starting with the first row in the rows array
+   * @param stepInterface
+   *          The step to distribute the rows in
+   * @throws KettleStepException
+   */
+  public default void distributeRows( RowMetaInterface rowMeta, Object[][] rows, int nrRows,
+    StepInterface stepInterface ) throws KettleStepException {
+    for ( int i = 0; i < nrRows; i++ ) {
+      distributeRow( rowMeta, rows[ i ], stepInterface );
+    }
+  }
+
   /**
    * Which mini-icon needs to be shown on the hop?
    *
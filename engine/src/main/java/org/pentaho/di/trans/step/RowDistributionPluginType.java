@@ -25,6 +25,7 @@ package org.pentaho.di.trans.step;
 import java.lang.annotation.Annotation;
 import java.util.Map;
 
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettlePluginException;
 import org.pentaho.di.core.plugins.BasePluginType;
 import org.pentaho.di.core.plugins.PluginAnnotationType;
@@ -54,12 +55,19 @@ public class RowDistributionPluginType extends BasePluginType implements PluginT
     return pluginType;
   }
 
-  /**
-   * Scan & register internal row distribution plugins
-   */
   @Override
-  protected void registerNatives() throws KettlePluginException {
-    // None at this moment
+  protected String getXmlPluginFile() {
+    return Const.XML_FILE_KETTLE_ROW_DISTRIBUTION_PLUGINS;
+  }
+
+  @Override
+  protected String getMainTag() {
+    return "row-distributions";
+  }
+
+  @Override
+  protected String getSubTag() {
+    return "row-distribution";
   }
 
   @Override
@@ -0,0 +1,77 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.trans.step;
+
+/**
+ * Describes how the step copies of a transformation are run.
+ * <p>
+ * The classic way is to give every step copy its own platform thread. That is the fastest for a few large
+ * transformations but a server running hundreds of small transformations at the same time ends up with tens of
+ * thousands of threads. Virtual threads (Java 21 or later) and the step pools avoid that.
+ *
+ * @see StepExecutionPool
+ */
+public enum StepExecutionMode {
+
+  /** One platform thread per step copy. */
+  THREAD( "thread" ),
+
+  /** One virtual thread per step copy, falls back to {@link #POOLED} on Java versions without virtual threads. */
+  VIRTUAL( "virtual" ),
+
+  /**
+   * The step copies are run by a pool of worker threads of the transformation. The pool adds threads while step copies
+   * wait for rows, up to one per step copy.
+   */
+  POOLED( "pooled" );
+
+  private final String code;
+
+  StepExecutionMode( String code ) {
+    this.code = code;
+  }
+
+  /**
+   * @return the code used to store this mode in the execution configuration.
+   */
+  public String getCode() {
+    return code;
+  }
+
+  /**
+   * Find the execution mode with the given code. The lookup is case insensitive.
+   *
+   * @param code
+   *          the code to look for
+   * @return the matching mode or null if nothing matched.
+   */
+  public static StepExecutionMode getStepExecutionModeByCode( String code ) {
+    if ( code != null ) {
+      for ( StepExecutionMode mode : values() ) {
+        if ( mode.code.equalsIgnoreCase( code.trim() ) ) {
+          return mode;
+        }
+      }
+    }
+    return null;
+  }
+}
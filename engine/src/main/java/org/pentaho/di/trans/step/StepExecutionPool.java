@@ -0,0 +1,272 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.trans.step;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.EnvUtil;
+
+/**
+ * The executors that run the step copies of a transformation in the {@link StepExecutionMode#VIRTUAL} and
+ * {@link StepExecutionMode#POOLED} modes.
+ * <p>
+ * Every transformation gets a work stealing pool of its own, see {@link #createExecutor(StepExecutionMode, int)}. Its
+ * size ({@link Const#KETTLE_STEP_POOL_SIZE}) is the number of step copies that are running at the same time: a step
+ * that has to wait for a full or an empty row set tells the pool with {@link #block(Attempt)}, and the pool starts a
+ * compensating thread to run one of the other step copies in the meantime. Without that, a pool full of consumers
+ * waiting for producers that didn't get a thread would never make progress. The pool can grow to one thread per step
+ * copy of the transformation, so every step copy it waits on gets to run, however many transformations are running.
+ * <p>
+ * The cooperative single threaded executor runs on a pool shared by all transformations in the JVM, see
+ * {@link #getExecutor(StepExecutionMode)}. Its steps don't wait for row sets, they return and get scheduled again when
+ * rows arrive. The number of threads of that pool is capped by {@link Const#KETTLE_STEP_POOL_MAX_SIZE}.
+ */
+public final class StepExecutionPool {
+
+  /**
+   * A (blocking) attempt to hand over rows.
+   */
+  public interface Attempt<T> {
+    T get() throws InterruptedException;
+  }
+
+  /**
+   * The number of threads the pool can add to the pool size by default, like the default of a {@link ForkJoinPool}.
+   */
+  static final int DEFAULT_SPARE_THREADS = 256;
+
+  private static final long IDLE_THREAD_KEEP_ALIVE_SECONDS = 60L;
+
+  private static ForkJoinPool pool;
+  private static ExecutorService virtualThreadExecutor;
+  private static boolean virtualThreadsChecked;
+
+  private StepExecutionPool() {
+  }
+
+  /**
+   * Get the shared executor to run tasks with that don't wait for each other.
+   *
+   * @param mode
+   *          the execution mode
+   * @return the executor or null if every step copy gets its own platform thread.
+   */
+  public static synchronized Executor getExecutor( StepExecutionMode mode ) {
+    if ( mode == StepExecutionMode.VIRTUAL && isVirtualThreadsAvailable() ) {
+      return virtualThreadExecutor;
+    }
+    if ( mode == StepExecutionMode.VIRTUAL || mode == StepExecutionMode.POOLED ) {
+      if ( pool == null ) {
+        pool = createPool();
+      }
+      return pool;
+    }
+    return null;
+  }
+
+  /**
+   * Create the executor to run the step copies of a transformation with. Hand it to {@link #shutdown(Executor)} once
+   * the transformation is finished.
+   *
+   * @param mode
+   *          the execution mode
+   * @param nrStepCopies
+   *          the number of step copies of the transformation
+   * @return the executor or null if every step copy gets its own platform thread.
+   */
+  public static Executor createExecutor( StepExecutionMode mode, int nrStepCopies ) {
+    if ( mode == StepExecutionMode.VIRTUAL && isVirtualThreadsAvailable() ) {
+      return virtualThreadExecutor;
+    }
+    if ( mode == StepExecutionMode.VIRTUAL || mode == StepExecutionMode.POOLED ) {
+      int size = Math.max( 1, Math.min( getPoolSize(), nrStepCopies ) );
+      return createPool( size, nrStepCopies );
+    }
+    return null;
+  }
+
+  /**
+   * Shut down an executor created by {@link #createExecutor(StepExecutionMode, int)}. The step copies it runs still
+   * finish.
+   *
+   * @param executor
+   *          the executor, null is allowed
+   */
+  public static synchronized void shutdown( Executor executor ) {
+    if ( executor instanceof ForkJoinPool && executor != pool ) {
+      ( (ForkJoinPool) executor ).shutdown();
+    }
+  }
+
+  /**
+   * @return true if this Java runtime can create virtual threads (Java 21 or later)
+   */
+  public static synchronized boolean isVirtualThreadsAvailable() {
+    if ( !virtualThreadsChecked ) {
+      virtualThreadsChecked = true;
+      try {
+        // Virtual threads came with Java 21, look the factory up at runtime to keep running on older releases
+        //
+        virtualThreadExecutor =
+          (ExecutorService) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+      } catch ( Exception e ) {
+        virtualThreadExecutor = null;
+      }
+    }
+    return virtualThreadExecutor != null;
+  }
+
+  private static int getPoolSize() {
+    int size = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_STEP_POOL_SIZE ), 0 );
+    if ( size <= 0 ) {
+      size = Runtime.getRuntime().availableProcessors();
+    }
+    return size;
+  }
+
+  private static ForkJoinPool createPool() {
+    int size = getPoolSize();
+    int maxSize = Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_STEP_POOL_MAX_SIZE ), 0 );
+    if ( maxSize <= 0 ) {
+      maxSize = size + DEFAULT_SPARE_THREADS;
+    }
+    return createPool( size, maxSize );
+  }
+
+  /**
+   * Create a step pool.
+   *
+   * @param size
+   *          the number of step copies running at the same time
+   * @param maxSize
+   *          the maximum number of threads, including the threads compensating for waiting step copies
+   * @return the pool
+   */
+  static ForkJoinPool createPool( int size, int maxSize ) {
+    final AtomicInteger threadNr = new AtomicInteger();
+    ForkJoinPool.ForkJoinWorkerThreadFactory factory = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread( ForkJoinPool forkJoinPool ) {
+        ForkJoinWorkerThread thread = new StepWorkerThread( forkJoinPool );
+        thread.setName( "Step pool worker " + threadNr.incrementAndGet() );
+        return thread;
+      }
+    };
+    // FIFO scheduling: a step copy runs until it's done, it doesn't fork sub-tasks.
+    // Once the pool has maxSize threads a waiting step copy keeps its thread instead of failing (saturate).
+    //
+    return new ForkJoinPool( size, factory, null, true, size, Math.max( size, maxSize ), 1, p -> true,
+      IDLE_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS );
+  }
+
+  /**
+   * Wrap a task so that it runs with the given thread name and with the context class loader of the caller, like a
+   * thread started by the caller would.
+   *
+   * @param name
+   *          the name of the thread while running the task
+   * @param task
+   *          the task to run
+   * @return the wrapped task
+   */
+  public static Runnable wrap( final String name, final Runnable task ) {
+    final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    return new Runnable() {
+      @Override
+      public void run() {
+        Thread thread = Thread.currentThread();
+        String originalName = thread.getName();
+        ClassLoader originalClassLoader = thread.getContextClassLoader();
+        thread.setName( name );
+        thread.setContextClassLoader( classLoader );
+        try {
+          task.run();
+        } finally {
+          thread.setName( originalName );
+          thread.setContextClassLoader( originalClassLoader );
+        }
+      }
+    };
+  }
+
+  /**
+   * @return true if the current thread is a worker of a step pool
+   */
+  public static boolean isWorkerThread() {
+    return Thread.currentThread() instanceof StepWorkerThread;
+  }
+
+  /**
+   * Make an attempt that might block for a while. On a worker of a step pool the pool is told about it so that it can
+   * run another step copy in the meantime, as long as the pool is below its maximum number of threads. On any other
+   * thread the attempt is simply made.
+   *
+   * @param attempt
+   *          the attempt to make
+   * @return the result of the attempt
+   * @throws InterruptedException
+   *           when the thread was interrupted while waiting
+   */
+  public static <T> T block( Attempt<T> attempt ) throws InterruptedException {
+    if ( !isWorkerThread() ) {
+      return attempt.get();
+    }
+    AttemptBlocker<T> blocker = new AttemptBlocker<T>( attempt );
+    ForkJoinPool.managedBlock( blocker );
+    return blocker.result;
+  }
+
+  private static final class StepWorkerThread extends ForkJoinWorkerThread {
+    private StepWorkerThread( ForkJoinPool pool ) {
+      super( pool );
+    }
+  }
+
+  private static final class AttemptBlocker<T> implements ForkJoinPool.ManagedBlocker {
+    private final Attempt<T> attempt;
+    private T result;
+    private boolean attempted;
+
+    private AttemptBlocker( Attempt<T> attempt ) {
+      this.attempt = attempt;
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+      result = attempt.get();
+      attempted = true;
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return attempted;
+    }
+  }
+}
@@ -29,6 +29,7 @@ import java.util.Map;
 
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.cache.CacheStatistics;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.logging.HasLogChannelInterface;
@@ -289,6 +290,38 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   Object[] getRow() throws KettleException;
 
+  /**
+   * Put a block of rows on the destination rowsets. Steps that process rows in blocks use this method to avoid paying
+   * the per-row overhead of {@link #putRow(RowMetaInterface, Object[])}. By default the rows are handed over one by
+   * one.
+   *
+   * @param rowMeta
+   *          The description of the rows
+   * @param rows
+   *          The rows to send to the destination steps
+   * @param nrRows
+   *          The number of rows to send, starting with the first row in the rows array
+   */
+  default void putRows( RowMetaInterface rowMeta, Object[][] rows, int nrRows ) throws KettleException {
+    for ( int i = 0; i < nrRows; i++ ) {
+      putRow( rowMeta, rows[ i ] );
+    }
+  }
+
+  /**
+   * Get a block of rows from the source step(s). At least one row is returned unless there is no more input. The
+   * rows that are available right away are added to the block, up to the maximum given. By default a block of a single
+   * row is returned.
+   *
+   * @param max
+   *          The maximum number of rows to return
+   * @return a block of rows from the source step(s) or null if no more rows are to be expected.
+   */
+  default Object[][] getRows( int max ) throws KettleException {
+    Object[] row = getRow();
+    return row == null ? null : new Object[][] { row };
+  }
+
   /**
    * Signal output done to destination steps
    */
@@ -493,6 +526,13 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   void setCurrentInputRowSetNr( int index );
 
+  /**
+   * @return the counters of the lookup cache of this step or null if the step doesn't cache lookups
+   */
+  default CacheStatistics getLookupCacheStatistics() {
+    return null;
+  }
+
   default Collection<StepStatus> subStatuses() {
     return Collections.emptyList();
   }
@@ -756,6 +756,18 @@ public interface StepMetaInterface {
     return false;
   }
 
+  /**
+   * True if the step can be fused with the step in front of it: it has no state that spans rows, it reads exactly one
+   * row (or block of rows) per call of processRow() and it doesn't wait for anything but its input. A fused step runs
+   * on the thread of the step in front of it, which hands over every row directly.
+   *
+   * @return true if the step supports step fusion, false otherwise
+   * @see TransMeta#isUsingStepFusion()
+   */
+  default boolean supportsStepFusion() {
+    return false;
+  }
+
   /**
    * Allows for someone to fetch the related TransMeta object. Returns null if not found (or not implemented)
    * @param stepMeta StepMetaInterface object
@@ -22,6 +22,7 @@
 
 package org.pentaho.di.trans.step;
 
+import java.util.Arrays;
 import java.util.List;
 
 import org.pentaho.di.core.Const;
@@ -324,6 +325,15 @@ public class StepPartitioningMeta implements XMLInterface, Cloneable {
     return 0;
   }
 
+  public void getPartitions( RowMetaInterface rowMeta, Object[][] rows, int nrRows, int[] partitions )
+    throws KettleException {
+    if ( partitioner != null ) {
+      partitioner.getPartitions( rowMeta, rows, nrRows, partitions );
+    } else {
+      Arrays.fill( partitions, 0, nrRows, 0 );
+    }
+  }
+
   public Partitioner getPartitioner() {
     return partitioner;
   }
@@ -30,9 +30,11 @@ import java.util.LinkedList;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 import org.owasp.encoder.Encode;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.cache.CacheStatistics;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -61,6 +63,7 @@ public class StepStatus {
   private boolean stopped;
   private boolean paused;
   private long accumlatedRuntime;
+  private CacheStatistics cacheStatistics;
 
   private RowMetaInterface sampleRowMeta;
   private List<Object[]> sampleRows;
@@ -109,6 +112,11 @@ public class StepStatus {
       baseStep.isRunning() ? "   " + baseStep.rowsetInputSize() + "/" + baseStep.rowsetOutputSize() : "-";
     this.stopped = baseStep.isStopped();
     this.paused = baseStep.isPaused();
+
+    CacheStatistics stepCacheStatistics = baseStep.getLookupCacheStatistics();
+    if ( stepCacheStatistics != null ) {
+      this.cacheStatistics = stepCacheStatistics.plus( cacheStatistics );
+    }
   }
 
   public String getHTMLTableRow( boolean urlInStepname ) {
@@ -141,6 +149,15 @@ public class StepStatus {
       xml.append( XMLHandler.addTagValue( "priority", priority, false ) );
       xml.append( XMLHandler.addTagValue( "stopped", stopped, false ) );
       xml.append( XMLHandler.addTagValue( "paused", paused, false ) );
+      if ( cacheStatistics != null ) {
+        xml.append( XMLHandler.addTagValue( "cacheHits", cacheStatistics.getHits(), false ) );
+        xml.append( XMLHandler.addTagValue( "cacheMisses", cacheStatistics.getMisses(), false ) );
+        xml.append( XMLHandler.addTagValue( "cacheNegativeHits", cacheStatistics.getNegativeHits(), false ) );
+        xml.append( XMLHandler.addTagValue( "cacheEvictions", cacheStatistics.getEvictions(), false ) );
+        xml.append( XMLHandler.addTagValue( "cacheExpirations", cacheStatistics.getExpirations(), false ) );
+        xml.append( XMLHandler.addTagValue( "cacheEntries", cacheStatistics.getEntries(), false ) );
+        xml.append( XMLHandler.addTagValue( "cacheBytes", cacheStatistics.getWeight(), false ) );
+      }
 
       if ( sampleRowMeta != null ) {
         xml.append( XMLHandler.openTag( "samples" ) );
@@ -182,6 +199,16 @@ public class StepStatus {
     priority = XMLHandler.getTagValue( node, "priority" );
     stopped = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "stopped" ) );
     paused = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "paused" ) );
+    if ( XMLHandler.getTagValue( node, "cacheHits" ) != null ) {
+      cacheStatistics = new CacheStatistics(
+        Const.toLong( XMLHandler.getTagValue( node, "cacheHits" ), 0L ),
+        Const.toLong( XMLHandler.getTagValue( node, "cacheMisses" ), 0L ),
+        Const.toLong( XMLHandler.getTagValue( node, "cacheNegativeHits" ), 0L ),
+        Const.toLong( XMLHandler.getTagValue( node, "cacheEvictions" ), 0L ),
+        Const.toLong( XMLHandler.getTagValue( node, "cacheExpirations" ), 0L ),
+        Const.toLong( XMLHandler.getTagValue( node, "cacheEntries" ), 0L ),
+        Const.toLong( XMLHandler.getTagValue( node, "cacheBytes" ), 0L ) );
+    }
 
     Node samplesNode = XMLHandler.getSubNode( node, "samples" );
     if ( samplesNode != null ) {
@@ -508,4 +535,16 @@ public class StepStatus {
     this.sampleRows = sampleRows;
   }
 
+  /**
+   * @return the lookup cache counters of the step or null if the step doesn't cache lookups
+   */
+  @XmlTransient
+  public CacheStatistics getCacheStatistics() {
+    return cacheStatistics;
+  }
+
+  public void setCacheStatistics( CacheStatistics cacheStatistics ) {
+    this.cacheStatistics = cacheStatistics;
+  }
+
 }
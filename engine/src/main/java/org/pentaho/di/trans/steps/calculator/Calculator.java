@@ -25,6 +25,7 @@ package org.pentaho.di.trans.steps.calculator;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileNotFoundException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -72,8 +73,9 @@ public class Calculator extends BaseStep implements StepInterface {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
-    Object[] r = getRow(); // get row, set busy!
-    if ( r == null ) { // no more input to be expected...
+    long previousLinesRead = getLinesRead();
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // get rows, set busy!
+    if ( rows == null ) { // no more input to be expected...
       setOutputDone();
       data.clearValuesMetaMapping();
       return false;
@@ -153,34 +155,63 @@ public class Calculator extends BaseStep implements StepInterface {
       for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
         data.getTempIndexes()[i] = tempIndexes.get( i );
       }
-    }
 
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
-        + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
+      if ( data.isColumnar() ) {
+        data.setColumnar( !log.isRowLevel() && isBlockCalculation( getInputRowMeta() ) );
+      }
     }
 
-    try {
-      Object[] row = calcFields( getInputRowMeta(), r );
-      putRow( data.getOutputRowMeta(), row ); // copy row to possible alternate rowset(s).
+    if ( data.isColumnar() ) {
+      putRows( data.getOutputRowMeta(), calcFieldsInBlock( getInputRowMeta(), rows ), rows.length );
+      if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+        }
+      }
+      return true;
+    }
 
+    Object[][] outputRows = new Object[ rows.length ][];
+    int nrOutputRows = 0;
+    for ( int i = 0; i < rows.length; i++ ) {
+      Object[] r = rows[ i ];
       if ( log.isRowLevel() ) {
-        logRowlevel( "Wrote row #" + getLinesWritten() + " : " + getInputRowMeta().getString( r ) );
+        logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
+          + ( previousLinesRead + i + 1 ) + " : " + getInputRowMeta().getString( r ) );
       }
-      if ( checkFeedback( getLinesRead() ) ) {
-        if ( log.isBasic() ) {
-          logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+
+      try {
+        Object[] row = calcFields( getInputRowMeta(), r );
+        outputRows[ nrOutputRows++ ] = row;
+
+        if ( log.isRowLevel() ) {
+          logRowlevel( "Wrote row #" + ( getLinesWritten() + nrOutputRows ) + " : "
+            + getInputRowMeta().getString( r ) );
         }
+      } catch ( KettleFileNotFoundException e ) {
+        if ( meta.isFailIfNoFile() ) {
+          // Send on the rows calculated so far, just like they would have been one by one.
+          //
+          putRows( data.getOutputRowMeta(), outputRows, nrOutputRows );
+          logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
+          setErrors( getErrors() + 1 );
+          return false;
+        }
+      } catch ( KettleException e ) {
+        // Pass on the rows before the failing one, as they would have been one by one
+        //
+        putRows( data.getOutputRowMeta(), outputRows, nrOutputRows );
+        logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
+        throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
       }
-    } catch ( KettleFileNotFoundException e ) {
-      if ( meta.isFailIfNoFile() ) {
-        logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
-        setErrors( getErrors() + 1 );
-        return false;
+    }
+
+    putRows( data.getOutputRowMeta(), outputRows, nrOutputRows ); // copy rows to possible alternate rowset(s).
+
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
       }
-    } catch ( KettleException e ) {
-      logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
-      throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
     }
     return true;
   }
@@ -654,11 +685,106 @@ public class Calculator extends BaseStep implements StepInterface {
     return RowDataUtil.removeItems( calcData, data.getTempIndexes() );
   }
 
+  /**
+   * The calculations can be done for a block of rows at once when they are all simple arithmetic on Integer or Number
+   * fields of the same type, giving a result of that type: no conversions, no errors and no nulls other than null
+   * arguments.
+   */
+  private boolean isBlockCalculation( RowMetaInterface inputRowMeta ) {
+    for ( int i = 0; i < meta.getCalculation().length; i++ ) {
+      CalculatorMetaFunction fn = meta.getCalculation()[i];
+      FieldIndexes indexes = data.getFieldIndexes()[i];
+      ValueMetaInterface targetMeta = data.getCalcRowMeta().getValueMeta( inputRowMeta.size() + i );
+      ValueMetaInterface metaA = data.getCalcRowMeta().getValueMeta( indexes.indexA );
+
+      switch ( fn.getCalcType() ) {
+        case CalculatorMetaFunction.CALC_ADD:
+        case CalculatorMetaFunction.CALC_SUBTRACT:
+        case CalculatorMetaFunction.CALC_MULTIPLY:
+          if ( Utils.isEmpty( fn.getFieldB() ) ) {
+            return false;
+          }
+          ValueMetaInterface metaB = data.getCalcRowMeta().getValueMeta( indexes.indexB );
+          if ( metaB.getType() != metaA.getType() || !metaB.isStorageNormal() ) {
+            return false;
+          }
+          break;
+        case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+        case CalculatorMetaFunction.CALC_SQUARE:
+          break;
+        default:
+          return false;
+      }
+      if ( ( !metaA.isInteger() && !metaA.isNumber() ) || !metaA.isStorageNormal()
+        || targetMeta.getType() != metaA.getType() ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Do the simple calculations for a block of rows, straight on the Integer and Number values in the rows: they are
+   * boxed in the rows anyway, so they are not unboxed into columns first. The outcome is the same as calling
+   * {@link #calcFields(RowMetaInterface, Object[])} for every row.
+   *
+   * @return the rows including the calculations, excluding the temporary values
+   */
+  private Object[][] calcFieldsInBlock( RowMetaInterface inputRowMeta, Object[][] rows ) {
+    int calcRowSize = data.getCalcRowMeta().size();
+    CalculatorMetaFunction[] calculations = meta.getCalculation();
+
+    for ( int r = 0; r < rows.length; r++ ) {
+      Object[] row = RowDataUtil.resizeArray( rows[r], calcRowSize );
+      for ( int i = 0, index = inputRowMeta.size(); i < calculations.length; i++, index++ ) {
+        int calcType = calculations[i].getCalcType();
+        FieldIndexes indexes = data.getFieldIndexes()[i];
+        Object a = row[indexes.indexA];
+        Object b = a;
+        if ( calcType != CalculatorMetaFunction.CALC_COPY_OF_FIELD && calcType != CalculatorMetaFunction.CALC_SQUARE ) {
+          b = row[indexes.indexB];
+        }
+
+        if ( a == null || b == null ) {
+          row[index] = null;
+        } else if ( calcType == CalculatorMetaFunction.CALC_COPY_OF_FIELD ) {
+          row[index] = a;
+        } else if ( a instanceof Long ) {
+          long valueA = (Long) a;
+          long valueB = (Long) b;
+          if ( calcType == CalculatorMetaFunction.CALC_ADD ) {
+            row[index] = valueA + valueB;
+          } else if ( calcType == CalculatorMetaFunction.CALC_SUBTRACT ) {
+            row[index] = valueA - valueB;
+          } else {
+            row[index] = valueA * valueB;
+          }
+        } else {
+          double valueA = (Double) a;
+          double valueB = (Double) b;
+          if ( calcType == CalculatorMetaFunction.CALC_ADD ) {
+            row[index] = valueA + valueB;
+          } else if ( calcType == CalculatorMetaFunction.CALC_SUBTRACT ) {
+            row[index] = valueA - valueB;
+          } else {
+            row[index] = valueA * valueB;
+          }
+        }
+      }
+      rows[r] = RowDataUtil.removeItems( row, data.getTempIndexes() );
+    }
+    return rows;
+  }
+
   @Override
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
-    return super.init( smi, sdi );
+    if ( super.init( smi, sdi ) ) {
+      data.setColumnar( "Y".equalsIgnoreCase( getVariable( Const.KETTLE_COLUMNAR_ROW_BATCHES, "N" ) ) );
+      return true;
+    }
+    return false;
   }
 }
@@ -445,4 +445,9 @@ public class ConstantMeta extends BaseStepMeta implements StepMetaInterface {
   public StepDataInterface getStepData() {
     return new ConstantData();
   }
+
+  @Override
+  public boolean supportsStepFusion() {
+    return true;
+  }
 }
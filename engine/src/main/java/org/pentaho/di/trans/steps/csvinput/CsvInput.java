@@ -52,6 +52,8 @@ import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.cluster.DynamicInputSplits;
+import org.pentaho.di.trans.cluster.InputSplit;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
@@ -72,6 +74,11 @@ import org.pentaho.di.trans.steps.textfileinput.TextFileInputMeta;
 public class CsvInput extends BaseStep implements StepInterface {
   private static Class<?> PKG = CsvInput.class; // for i18n purposes, needed by Translator2!!
 
+  /**
+   * The smallest range of the files the master hands out when reading with dynamic input splits.
+   */
+  private static final long DYNAMIC_SPLIT_MIN_CHUNK_SIZE = 16L * 1024 * 1024;
+
   private CsvInputMeta meta;
   private CsvInputData data;
 
@@ -134,18 +141,22 @@ public class CsvInput extends BaseStep implements StepInterface {
 
       // Open the next file...
       //
-      if ( !openNextFile() ) {
+      if ( !openNextFile() && !nextInputSplit() ) {
         setOutputDone();
         return false; // nothing to see here, move along...
       }
     }
 
     // If we are running in parallel, make sure we don't read too much in this step copy...
+    // With dynamic input splits we continue with the next chunk the master hands out, skipping the chunks that end
+    // before the partial row at their start.
     //
     if ( data.parallel ) {
-      if ( data.totalBytesRead >= data.blockToRead ) {
-        setOutputDone(); // stop reading
-        return false;
+      while ( data.totalBytesRead >= data.blockToRead ) {
+        if ( !nextInputSplit() ) {
+          setOutputDone(); // stop reading
+          return false;
+        }
       }
     }
 
@@ -153,7 +164,7 @@ public class CsvInput extends BaseStep implements StepInterface {
       Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
       // no more input to be expected...
       if ( outputRowData == null ) {
-        if ( openNextFile() ) {
+        if ( openNextFile() || nextInputSplit() ) {
           return true; // try again on the next loop...
         } else {
           setOutputDone(); // last file, end here
@@ -204,6 +215,19 @@ public class CsvInput extends BaseStep implements StepInterface {
         data.totalFileSize += size;
       }
 
+      // In a clustered transformation with dynamic input splits the master hands out the ranges to read.
+      //
+      data.inputSplits = DynamicInputSplits.create( this, 0L, data.totalFileSize, DYNAMIC_SPLIT_MIN_CHUNK_SIZE, 1 );
+      if ( data.inputSplits != null ) {
+        InputSplit split = data.inputSplits.next();
+        if ( split == null ) {
+          data.filenr = data.filenames.length; // nothing left to read
+        } else {
+          positionAt( split.getFrom(), split.getSize() );
+        }
+        return;
+      }
+
       // Now we can determine the range to read.
       //
       // For example, the total file size is 50000, spread over 5 files of 10000
@@ -212,57 +236,99 @@ public class CsvInput extends BaseStep implements StepInterface {
       //
       // The size of the block to read (25000 in the example) :
       //
-      data.blockToRead = Math.round( (double) data.totalFileSize / (double) data.totalNumberOfSteps );
+      long blockToRead = Math.round( (double) data.totalFileSize / (double) data.totalNumberOfSteps );
 
       // Now we calculate the position to read (0 and 25000 in our sample) :
       //
-      data.startPosition = data.blockToRead * data.stepNumber;
-      data.endPosition = data.startPosition + data.blockToRead;
-
-      // Determine the start file number (0 or 2 in our sample) :
-      // >0<,1000,>2000<,3000,4000
-      //
-      long totalFileSize = 0L;
-      for ( int i = 0; i < data.fileSizes.size(); i++ ) {
-        long size = data.fileSizes.get( i );
+      positionAt( blockToRead * data.stepNumber, blockToRead );
+    } catch ( Exception e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "CsvInput.Exception.ErrorPreparingParallelRun" ), e );
+    }
+  }
 
-        // Start of file range: totalFileSize
-        // End of file range: totalFileSize+size
+  /**
+   * Determine the file and the position in that file to start reading a range of the files from.
+   *
+   * @param startPosition
+   *          the position of the range in all the files together
+   * @param blockToRead
+   *          the size of the range
+   */
+  private void positionAt( long startPosition, long blockToRead ) {
+    data.blockToRead = blockToRead;
+    data.startPosition = startPosition;
+    data.endPosition = data.startPosition + data.blockToRead;
+    data.totalBytesRead = 0L;
+
+    // Determine the start file number (0 or 2 in our sample) :
+    // >0<,1000,>2000<,3000,4000
+    //
+    long totalFileSize = 0L;
+    for ( int i = 0; i < data.fileSizes.size(); i++ ) {
+      long size = data.fileSizes.get( i );
 
-        if ( data.startPosition >= totalFileSize && data.startPosition < totalFileSize + size ) {
-          // This is the file number to start reading from...
-          //
-          data.filenr = i;
+      // Start of file range: totalFileSize
+      // End of file range: totalFileSize+size
 
-          // remember where we started to read to allow us to know that we have to skip the header row in the next files
-          // (if any)
-          //
-          data.startFilenr = i;
+      if ( data.startPosition >= totalFileSize && data.startPosition < totalFileSize + size ) {
+        // This is the file number to start reading from...
+        //
+        data.filenr = i;
 
-          // How many bytes do we skip in that first file?
-          //
-          if ( data.startPosition == 0 ) {
-            data.bytesToSkipInFirstFile = 0L;
-          } else {
-            data.bytesToSkipInFirstFile = data.startPosition - totalFileSize;
-          }
+        // remember where we started to read to allow us to know that we have to skip the header row in the next files
+        // (if any)
+        //
+        data.startFilenr = i;
 
-          break;
+        // How many bytes do we skip in that first file?
+        //
+        if ( data.startPosition == 0 ) {
+          data.bytesToSkipInFirstFile = 0L;
+        } else {
+          data.bytesToSkipInFirstFile = data.startPosition - totalFileSize;
         }
-        totalFileSize += size;
+
+        break;
       }
+      totalFileSize += size;
+    }
 
-      if ( data.filenames.length > 0 ) {
-        logBasic( BaseMessages.getString(
-          PKG, "CsvInput.Log.ParallelFileNrAndPositionFeedback", data.filenames[ data.filenr ], Long
-            .toString( data.fileSizes.get( data.filenr ) ), Long.toString( data.bytesToSkipInFirstFile ), Long
-            .toString( data.blockToRead ) ) );
+    if ( data.filenames.length > 0 ) {
+      String feedback = BaseMessages.getString(
+        PKG, "CsvInput.Log.ParallelFileNrAndPositionFeedback", data.filenames[ data.filenr ], Long
+          .toString( data.fileSizes.get( data.filenr ) ), Long.toString( data.bytesToSkipInFirstFile ), Long
+          .toString( data.blockToRead ) );
+      if ( data.inputSplits == null ) {
+        logBasic( feedback );
+      } else if ( log.isDetailed() ) {
+        logDetailed( feedback );
       }
-    } catch ( Exception e ) {
-      throw new KettleException( BaseMessages.getString( PKG, "CsvInput.Exception.ErrorPreparingParallelRun" ), e );
     }
   }
 
+  /**
+   * Continue with the next chunk of the files the master hands out, if we read with dynamic input splits.
+   *
+   * @return true if a file was opened at the start of the next chunk, false if there is nothing left to read
+   */
+  private boolean nextInputSplit() throws KettleException {
+    if ( data.inputSplits == null ) {
+      return false;
+    }
+    InputSplit split = data.inputSplits.next();
+    while ( split != null ) {
+      // The bytes in the buffer were read ahead in the previous chunk
+      //
+      data.discardBuffer();
+      positionAt( split.getFrom(), split.getSize() );
+      if ( openNextFile() ) {
+        return true;
+      }
+      split = data.inputSplits.next();
+    }
+    return false;
+  }
+
   private void getFilenamesFromPreviousSteps() throws KettleException {
     List<String> filenames = new ArrayList<>();
     boolean firstRow = true;
@@ -367,13 +433,13 @@ public class CsvInput extends BaseStep implements StepInterface {
             // in parallel mode we don't support new lines inside field data so it's safe to fast forward until we find a new line.
             // when a newline is found we need to check for an additional new line character, while in unix systems it's just a single '\n',
             // on windows systems, it's a sequence of '\r' and '\n'. finally we set the start of the buffer to the end buffer position.
-            while ( !data.newLineFound() ) {
-              data.moveEndBufferPointer();
+            // The last row of the file doesn't have to end with a new line: stop at the end of the file.
+            boolean endOfFile = false;
+            while ( !endOfFile && !data.newLineFound() ) {
+              endOfFile = data.moveEndBufferPointer();
             }
 
-            data.moveEndBufferPointer();
-
-            if ( data.newLineFound() ) {
+            if ( !endOfFile && !data.moveEndBufferPointer() && data.newLineFound() ) {
               data.moveEndBufferPointer();
             }
           }
@@ -30,6 +30,7 @@ import java.util.List;
 
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.cluster.DynamicInputSplits;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.steps.textfileinput.EncodingType;
@@ -73,6 +74,8 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
 
   public long totalBytesRead;
 
+  public DynamicInputSplits inputSplits;
+
   public boolean parallel;
   public int filenameFieldIndex;
   public int rownumFieldIndex;
@@ -279,6 +282,15 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
     }
   }
 
+  /**
+   * Forget the bytes read ahead in the buffer, to continue reading at another position of the file channel.
+   */
+  void discardBuffer() {
+    startBuffer = 0;
+    endBuffer = 0;
+    bufferSize = 0;
+  }
+
   int getStartBuffer() {
     return startBuffer;
   }
@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.cache.CachePolicy;
+import org.pentaho.di.core.cache.CacheStatistics;
+import org.pentaho.di.core.cache.LookupCache;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * A cache for lookups with "=" conditions only, bounded by a number of rows and/or an estimated size in memory. Rows
+ * are evicted according to a {@link CachePolicy}, can expire and misses can be cached too.
+ */
+public class BoundedCache implements DatabaseLookupData.Cache {
+
+  private static final LookupCache.Weigher<RowMetaAndData, Object[]> ROW_WEIGHER =
+    new LookupCache.Weigher<RowMetaAndData, Object[]>() {
+      @Override
+      public long weigh( RowMetaAndData key, Object[] value ) {
+        return RowDataUtil.estimateRowSize( key.getData() ) + RowDataUtil.estimateRowSize( value );
+      }
+    };
+
+  private final DatabaseLookupData data;
+  private final LookupCache<RowMetaAndData, Object[]> cache;
+
+  /**
+   * @param data the step data
+   * @param policy the eviction policy
+   * @param maxRows the maximum number of rows, 0 for no limit
+   * @param maxBytes the maximum estimated size in bytes, 0 for no limit
+   * @param timeToLiveMillis the time after which rows expire, 0 to keep them
+   */
+  public BoundedCache( DatabaseLookupData data, CachePolicy policy, long maxRows, long maxBytes,
+                       long timeToLiveMillis ) {
+    this( data, newLookupCache( policy, maxRows, maxBytes, timeToLiveMillis ) );
+  }
+
+  /**
+   * @param data the step data
+   * @param cache the (shared) cache to keep the rows in
+   */
+  public BoundedCache( DatabaseLookupData data, LookupCache<RowMetaAndData, Object[]> cache ) {
+    this.data = data;
+    this.cache = cache;
+  }
+
+  /**
+   * Creates a cache for rows, weighed by their estimated size in memory.
+   */
+  public static LookupCache<RowMetaAndData, Object[]> newLookupCache( CachePolicy policy, long maxRows, long maxBytes,
+                                                                      long timeToLiveMillis ) {
+    return new LookupCache<>( policy, maxRows, maxBytes, timeToLiveMillis, ROW_WEIGHER );
+  }
+
+  @Override
+  public Object[] getRowFromCache( RowMetaInterface lookupMeta, Object[] lookupRow ) throws KettleException {
+    Object row = cache.get( new RowMetaAndData( data.lookupMeta, lookupRow ) );
+    if ( row == LookupCache.MISSING ) {
+      return MISSING;
+    }
+    return (Object[]) row;
+  }
+
+  @Override
+  public void storeRowInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow,
+                               Object[] add ) {
+    cache.put( new RowMetaAndData( lookupMeta, lookupRow ), add );
+  }
+
+  @Override
+  public void storeMissInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow ) {
+    cache.putMissing( new RowMetaAndData( lookupMeta, lookupRow ) );
+  }
+
+  @Override
+  public CacheStatistics getStatistics() {
+    return cache.getStatistics();
+  }
+}
@@ -22,11 +22,21 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.cache.CachePolicy;
+import org.pentaho.di.core.cache.CacheStatistics;
+import org.pentaho.di.core.cache.LookupCacheRegistry;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.database.Database;
@@ -61,6 +71,12 @@ import com.google.common.annotations.VisibleForTesting;
 public class DatabaseLookup extends BaseStep implements StepInterface {
   private static Class<?> PKG = DatabaseLookupMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** The maximum number of keys in one batch lookup query, Oracle doesn't allow more in an IN list */
+  static final int MAX_BATCH_QUERY_KEYS = 1000;
+
+  /** The maximum number of parameters in one batch lookup query, SQL Server doesn't allow a lot more */
+  static final int MAX_BATCH_QUERY_PARAMETERS = 2000;
+
   private DatabaseLookupMeta meta;
   private DatabaseLookupData data;
 
@@ -78,8 +94,53 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
    */
   @VisibleForTesting
   synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+    Object[] lookupRow = getLookupRow( inputRowMeta, row );
 
+    Object[] add;
+    boolean cache_now = false;
+    boolean cacheHit = false;
+
+    // First, check if we looked up before
+    if ( meta.isCached() ) {
+      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
+      cacheHit = add != null;
+      if ( add == DatabaseLookupData.Cache.MISSING ) {
+        add = null; // we already know that nothing matches
+      }
+    } else {
+      add = null;
+    }
+
+    if ( add == null && !cacheHit ) {
+      if ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition
+        || isSharedCacheIncomplete() ) { // do not go to the database when all rows are in (exception LIKE operator)
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
+            + meta.getStreamKeyField1().length
+            + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
+            + data.lookupMeta.getString( lookupRow ) );
+        }
+
+        data.db.setValuesLookup( data.lookupMeta, lookupRow );
+        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+        cache_now = true;
+      }
+    }
+
+    // Only verify the data types if the data comes from the DB, NOT when we have a cache hit
+    // In that case, we already know the data type is OK.
+    if ( add != null && !cacheHit ) {
+      incrementLines();
+      convertReturnedValues( data.db.getReturnRowMeta(), add );
+    }
+
+    return addLookupResult( inputRowMeta, row, lookupRow, add, cache_now );
+  }
+
+  /**
+   * Builds the row with the values to look up, converted to the data types of the key fields in the table.
+   */
+  private Object[] getLookupRow( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
     Object[] lookupRow = new Object[ data.lookupMeta.size() ];
     int lookupIndex = 0;
 
@@ -118,40 +179,45 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
 
-    Object[] add;
-    boolean cache_now = false;
-    boolean cacheHit = false;
-
-    // First, check if we looked up before
-    if ( meta.isCached() ) {
-      add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
-      if ( add != null ) {
-        cacheHit = true;
-      }
-    } else {
-      add = null;
-    }
+  /**
+   * Converts the values returned by the database to the data types of the return fields, if needed.
+   *
+   * @param returnedMeta the metadata of the values as returned by the database
+   * @param add the returned values, converted in place
+   */
+  private void convertReturnedValues( RowMetaInterface returnedMeta, Object[] add ) throws KettleException {
+    int[] types = meta.getReturnValueDefaultType();
 
-    if ( add == null ) {
-      if ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) { // do not go to the
-        // database when all rows
-        // are in (exception LIKE
-        // operator)
-        if ( log.isRowLevel() ) {
-          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow1" )
-            + meta.getStreamKeyField1().length
-            + BaseMessages.getString( PKG, "DatabaseLookup.Log.AddedValuesToLookupRow2" )
-            + data.lookupMeta.getString( lookupRow ) );
-        }
+    // The assumption here is that the types are in the same order
+    // as the returned lookup row, but since we make the lookup row
+    // that should not be a problem.
+    //
+    for ( int i = 0; i < types.length; i++ ) {
+      ValueMetaInterface returned = returnedMeta.getValueMeta( i );
+      ValueMetaInterface expected = data.returnMeta.getValueMeta( i );
 
-        data.db.setValuesLookup( data.lookupMeta, lookupRow );
-        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
-        cache_now = true;
+      if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
+        // Set the type to the default return type
+        add[ i ] = expected.convertData( returned, add[ i ] );
       }
     }
+  }
 
+  /**
+   * Adds the looked up values (or the defaults if nothing was found) to the input row and caches them if needed.
+   *
+   * @return the output row or null if the row was eaten or sent to error handling
+   */
+  private Object[] addLookupResult( RowMetaInterface inputRowMeta, Object[] row, Object[] lookupRow, Object[] add,
+                                    boolean cacheNow ) throws KettleException {
     if ( add == null ) { // nothing was found, unknown code: add default values
+      if ( cacheNow && isStoringInCache() && meta.isCachingMisses()
+        && ( meta.isEatingRowOnLookupFailure() || getStepMeta().isDoingErrorHandling() ) ) {
+        data.cache.storeMissInCache( meta, data.lookupMeta, lookupRow );
+      }
       if ( meta.isEatingRowOnLookupFailure() ) {
         return null;
       }
@@ -179,36 +245,16 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.FoundResultsAfterLookup" )
           + Arrays.toString( add ) );
       }
-
-      // Only verify the data types if the data comes from the DB, NOT when we have a cache hit
-      // In that case, we already know the data type is OK.
-      if ( !cacheHit ) {
-        incrementLines();
-        int[] types = meta.getReturnValueDefaultType();
-
-        // The assumption here is that the types are in the same order
-        // as the returned lookup row, but since we make the lookup row
-        // that should not be a problem.
-        //
-        for ( int i = 0; i < types.length; i++ ) {
-          ValueMetaInterface returned = data.db.getReturnRowMeta().getValueMeta( i );
-          ValueMetaInterface expected = data.returnMeta.getValueMeta( i );
-
-          if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
-            // Set the type to the default return type
-            add[ i ] = expected.convertData( returned, add[ i ] );
-          }
-        }
-      }
     }
 
     // Store in cache if we need to!
     // If we already loaded all data into the cache, storing more makes no sense.
     //
-    if ( meta.isCached() && cache_now && !meta.isLoadingAllDataInCache() && data.allEquals ) {
+    if ( cacheNow && isStoringInCache() ) {
       data.cache.storeRowInCache( meta, data.lookupMeta, lookupRow, add );
     }
 
+    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
     for ( int i = 0; i < data.returnMeta.size(); i++ ) {
       outputRow[ inputRowMeta.size() + i ] = add[ i ];
     }
@@ -216,6 +262,302 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return outputRow;
   }
 
+  private boolean isStoringInCache() {
+    return meta.isCached() && !meta.isLoadingAllDataInCache() && data.allEquals;
+  }
+
+  /**
+   * Looks up the values for a batch of rows. The distinct keys that are not in the cache are looked up with as few
+   * queries as possible.
+   *
+   * @param inputRowMeta the metadata of the input rows
+   * @param rows the input rows
+   * @return the output rows in the order of the input rows, null for rows that were eaten or sent to error handling
+   */
+  @VisibleForTesting
+  synchronized Object[][] lookupBatch( RowMetaInterface inputRowMeta, List<Object[]> rows ) throws KettleException {
+    Object[][] lookupRows = new Object[ rows.size() ][];
+    RowMetaAndData[] keys = new RowMetaAndData[ rows.size() ];
+    Object[][] results = new Object[ rows.size() ][];
+    boolean[] cacheHit = new boolean[ rows.size() ];
+    boolean[] cacheNow = new boolean[ rows.size() ];
+
+    // The distinct keys we need to go to the database for, in the order we first saw them
+    //
+    Map<RowMetaAndData, Object[]> missing = new LinkedHashMap<>();
+    for ( int i = 0; i < rows.size(); i++ ) {
+      lookupRows[ i ] = getLookupRow( inputRowMeta, rows.get( i ) );
+      if ( meta.isCached() ) {
+        results[ i ] = data.cache.getRowFromCache( data.lookupMeta, lookupRows[ i ] );
+      }
+      cacheHit[ i ] = results[ i ] != null;
+      if ( results[ i ] == DatabaseLookupData.Cache.MISSING ) {
+        results[ i ] = null;
+      }
+      if ( !cacheHit[ i ] ) {
+        keys[ i ] = new RowMetaAndData( data.batchKeyMeta, getBatchKey( lookupRows[ i ] ) );
+        if ( !missing.containsKey( keys[ i ] ) ) {
+          missing.put( keys[ i ], lookupRows[ i ] );
+          cacheNow[ i ] = true;
+        }
+      }
+    }
+
+    Map<RowMetaAndData, Object[]> found = new HashMap<>();
+    List<Map.Entry<RowMetaAndData, Object[]>> entries = new ArrayList<>( missing.entrySet() );
+    for ( int from = 0; from < entries.size(); from += data.batchQuerySize ) {
+      lookupChunk( entries.subList( from, Math.min( entries.size(), from + data.batchQuerySize ) ), found );
+    }
+
+    Object[][] outputRows = new Object[ rows.size() ][];
+    for ( int i = 0; i < rows.size(); i++ ) {
+      Object[] add = cacheHit[ i ] ? results[ i ] : found.get( keys[ i ] );
+      outputRows[ i ] = addLookupResult( inputRowMeta, rows.get( i ), lookupRows[ i ], add, cacheNow[ i ] );
+    }
+    return outputRows;
+  }
+
+  /**
+   * Converts a lookup row to the normal storage type so that it can be compared with the keys returned by the database.
+   */
+  private Object[] getBatchKey( Object[] lookupRow ) throws KettleException {
+    Object[] key = new Object[ data.batchKeyMeta.size() ];
+    for ( int i = 0; i < key.length; i++ ) {
+      key[ i ] = data.batchKeyMeta.getValueMeta( i ).convertData( data.lookupMeta.getValueMeta( i ), lookupRow[ i ] );
+    }
+    return key;
+  }
+
+  /**
+   * Looks up at most {@code batchQuerySize} distinct keys with one execution of the batch statement.
+   *
+   * @param keys the distinct keys to look up with their lookup rows
+   * @param found the map to add the values that were found to
+   */
+  private void lookupChunk( List<Map.Entry<RowMetaAndData, Object[]>> keys, Map<RowMetaAndData, Object[]> found )
+    throws KettleException {
+    int nrKeys = data.batchKeyMeta.size();
+
+    // Pad the list with the last key so that we can always use the same prepared statement
+    //
+    int index = 1;
+    for ( int i = 0; i < data.batchQuerySize; i++ ) {
+      Object[] key = keys.get( Math.min( i, keys.size() - 1 ) ).getKey().getData();
+      for ( int k = 0; k < nrKeys; k++ ) {
+        data.db.setValue( data.batchStatement, data.batchKeyMeta.getValueMeta( k ), key[ k ], index++ );
+      }
+    }
+
+    Set<RowMetaAndData> requested = new HashSet<>();
+    for ( Map.Entry<RowMetaAndData, Object[]> key : keys ) {
+      requested.add( key.getKey() );
+    }
+
+    boolean unmatched = false;
+    RowMetaInterface returnedMeta = null;
+    for ( RowMetaAndData resultRow : data.db.getLookupRows( data.batchStatement ) ) {
+      RowMetaInterface resultMeta = resultRow.getRowMeta();
+      Object[] key = new Object[ nrKeys ];
+      for ( int k = 0; k < nrKeys; k++ ) {
+        key[ k ] =
+          data.batchKeyMeta.getValueMeta( k ).convertData( resultMeta.getValueMeta( k ), resultRow.getData()[ k ] );
+      }
+      RowMetaAndData lookupKey = new RowMetaAndData( data.batchKeyMeta, key );
+      if ( !requested.contains( lookupKey ) ) {
+        // The database considers this key equal to one we asked for while we don't (case insensitive collation,
+        // padded CHAR columns, decimals with a different scale, ...)
+        //
+        unmatched = true;
+        continue;
+      }
+      if ( found.containsKey( lookupKey ) ) {
+        if ( meta.isFailingOnMultipleResults() ) {
+          throw new KettleDatabaseException(
+            "Only 1 row was expected as a result of a lookup, and at least 2 were found!" );
+        }
+        continue;
+      }
+      if ( returnedMeta == null ) {
+        returnedMeta = new RowMeta();
+        for ( int i = nrKeys; i < resultMeta.size(); i++ ) {
+          returnedMeta.addValueMeta( resultMeta.getValueMeta( i ) );
+        }
+      }
+      Object[] add = new Object[ resultMeta.size() - nrKeys ];
+      System.arraycopy( resultRow.getData(), nrKeys, add, 0, add.length );
+      incrementLines();
+      convertReturnedValues( returnedMeta, add );
+      found.put( lookupKey, add );
+    }
+
+    // Keys we could not match ourselves are looked up one by one to get exactly the same results as without batching
+    //
+    if ( unmatched ) {
+      for ( Map.Entry<RowMetaAndData, Object[]> key : keys ) {
+        if ( !found.containsKey( key.getKey() ) ) {
+          data.db.setValuesLookup( data.lookupMeta, key.getValue() );
+          Object[] add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+          if ( add != null ) {
+            incrementLines();
+            convertReturnedValues( data.db.getReturnRowMeta(), add );
+            found.put( key.getKey(), add );
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds the query that looks up {@code querySize} keys at once. Depending on the database and the number of key
+   * fields this is a list of values, a list of row values or a list of conditions.
+   */
+  @VisibleForTesting
+  String getBatchLookupSql( DatabaseMeta databaseMeta, int querySize ) {
+    String[] keyFields = meta.getTableKeyField();
+    StringBuilder keyList = new StringBuilder();
+    for ( int i = 0; i < keyFields.length; i++ ) {
+      keyList.append( i == 0 ? "" : ", " ).append( databaseMeta.quoteField( keyFields[ i ] ) );
+    }
+
+    StringBuilder sql = new StringBuilder( "SELECT " ).append( keyList );
+    for ( String returnField : meta.getReturnValueField() ) {
+      sql.append( ", " ).append( databaseMeta.quoteField( returnField ) );
+    }
+    sql.append( " FROM " ).append( databaseMeta.getQuotedSchemaTableCombination(
+      environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ) ) );
+    sql.append( " WHERE " );
+
+    if ( keyFields.length == 1 || databaseMeta.supportsMultiColumnInList() ) {
+      StringBuilder values = new StringBuilder( "?" );
+      for ( int i = 1; i < keyFields.length; i++ ) {
+        values.append( ", ?" );
+      }
+      boolean rowValues = keyFields.length > 1;
+      sql.append( rowValues ? "( " + keyList + " )" : keyList ).append( " IN ( " );
+      for ( int i = 0; i < querySize; i++ ) {
+        sql.append( i == 0 ? "" : ", " ).append( rowValues ? "( " + values + " )" : values );
+      }
+      sql.append( " )" );
+    } else {
+      for ( int i = 0; i < querySize; i++ ) {
+        sql.append( i == 0 ? "( " : " OR ( " );
+        for ( int k = 0; k < keyFields.length; k++ ) {
+          sql.append( k == 0 ? "" : " AND " ).append( databaseMeta.quoteField( keyFields[ k ] ) ).append( " = ?" );
+        }
+        sql.append( " )" );
+      }
+    }
+
+    if ( !Utils.isEmpty( meta.getOrderByClause() ) ) {
+      sql.append( " ORDER BY " ).append( meta.getOrderByClause() );
+    }
+    return sql.toString();
+  }
+
+  /**
+   * Sees if the keys can be looked up in batches and prepares the batch statement if so.
+   */
+  private void initBatchLookup() throws KettleException {
+    data.batchLookupSize = 0;
+    if ( meta.getBatchLookupSize() <= 1 ) {
+      return;
+    }
+
+    DatabaseMeta databaseMeta = meta.getDatabaseMeta();
+    boolean possible = databaseMeta.supportsBatchLookup() && data.lookupMeta.size() == data.conditions.length
+      && !( meta.isCached() && meta.isLoadingAllDataInCache() );
+    for ( int i = 0; i < data.conditions.length && possible; i++ ) {
+      possible = data.conditions[ i ] == DatabaseLookupMeta.CONDITION_EQ && data.keynrs[ i ] >= 0;
+    }
+    if ( !possible ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchLookupNotPossible" ) );
+      }
+      return;
+    }
+
+    data.batchKeyMeta = new RowMeta();
+    for ( ValueMetaInterface valueMeta : data.lookupMeta.getValueMetaList() ) {
+      ValueMetaInterface keyMeta = valueMeta.clone();
+      keyMeta.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+      keyMeta.setStorageMetadata( null );
+      data.batchKeyMeta.addValueMeta( keyMeta );
+    }
+
+    data.batchQuerySize = Math.max( 1, Math.min( meta.getBatchLookupSize(),
+      Math.min( MAX_BATCH_QUERY_KEYS, MAX_BATCH_QUERY_PARAMETERS / data.batchKeyMeta.size() ) ) );
+    String sql = getBatchLookupSql( databaseMeta, data.batchQuerySize );
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchLookup", meta.getBatchLookupSize(), sql ) );
+    }
+    data.batchStatement = data.db.prepareSQL( sql );
+    data.batchRows = new ArrayList<>( meta.getBatchLookupSize() );
+    data.batchLookupSize = meta.getBatchLookupSize();
+  }
+
+  /**
+   * Looks up the rows of a batch that failed one by one, so that only the rows that fail go to the error handling.
+   *
+   * @param rows the input rows of the batch
+   * @param e the reason the batch failed
+   * @return the output rows in the order of the input rows, null for rows that were eaten or sent to error handling
+   */
+  private Object[][] lookupRowByRow( List<Object[]> rows, KettleException e ) throws KettleException {
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchLookupFailed", e.getMessage() ) );
+    }
+    Object[][] outputRows = new Object[ rows.size() ][];
+    for ( int i = 0; i < rows.size(); i++ ) {
+      try {
+        outputRows[ i ] = lookupValues( getInputRowMeta(), rows.get( i ) );
+      } catch ( KettleException re ) {
+        putError( getInputRowMeta(), rows.get( i ), 1, re.getMessage(), null, "DBLOOKUPD001" );
+      }
+    }
+    return outputRows;
+  }
+
+  /**
+   * Looks up the buffered rows and passes them on.
+   *
+   * @return false if the step needs to stop
+   */
+  private boolean processBatch() throws KettleException {
+    List<Object[]> rows = new ArrayList<>( data.batchRows );
+    data.batchRows.clear();
+
+    Object[][] outputRows;
+    try {
+      outputRows = lookupBatch( getInputRowMeta(), rows );
+    } catch ( KettleException e ) {
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        outputRows = lookupRowByRow( rows, e );
+      } else {
+        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
+          + e.getMessage() );
+        setErrors( 1 );
+        stopAll();
+        setOutputDone(); // signal end to receiver(s)
+        return false;
+      }
+    }
+
+    for ( int i = 0; i < outputRows.length; i++ ) {
+      if ( outputRows[ i ] != null ) {
+        putRow( data.outputRowMeta, outputRows[ i ] );
+
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "DatabaseLookup.Log.WroteRowToNextStep" )
+            + getInputRowMeta().getString( rows.get( i ) ) );
+        }
+        if ( checkFeedback( getLinesRead() ) ) {
+          logBasic( "linenr " + getLinesRead() );
+        }
+      }
+    }
+    return true;
+  }
+
   @VisibleForTesting
   boolean isTimelessMask( String dateMask ) {
     if ( dateMask == null ) {
@@ -355,15 +697,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
   @Override
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    meta = (DatabaseLookupMeta) smi;
+    data = (DatabaseLookupData) sdi;
+
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchRows != null && !data.batchRows.isEmpty() && !processBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
 
-    meta = (DatabaseLookupMeta) smi;
-    data = (DatabaseLookupData) sdi;
-
     if ( first ) {
       first = false;
 
@@ -414,7 +759,7 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       }
 
       if ( meta.isCached() ) {
-        data.cache = DefaultCache.newCache( data, meta.getCacheSize() );
+        data.cache = newCache();
       }
 
       determineFieldsTypesQueryingDb();
@@ -427,10 +772,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
 
       // If the user selected to load all data into the cache at startup, that's what we do now...
       //
-      if ( meta.isCached() && meta.isLoadingAllDataInCache() ) {
+      if ( meta.isCached() && meta.isLoadingAllDataInCache() && data.sharedCache == null ) {
         loadAllTableDataIntoTheCache();
       }
 
+      initBatchLookup();
+    }
+
+    // A shared cache with all the rows is (re)loaded by the first step that needs it after an invalidation, the
+    // other steps look up their rows in the database in the mean time
+    //
+    if ( isSharedCacheIncomplete() ) {
+      loadSharedCache();
     }
 
     if ( log.isRowLevel() ) {
@@ -438,6 +791,14 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         + getInputRowMeta().getString( r ) );
     }
 
+    if ( data.batchLookupSize > 0 ) {
+      data.batchRows.add( r );
+      if ( data.batchRows.size() >= data.batchLookupSize ) {
+        return processBatch();
+      }
+      return true;
+    }
+
     try {
       // add new lookup values to the row
       Object[] outputRow = lookupValues( getInputRowMeta(), r );
@@ -470,6 +831,129 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Creates the cache. Lookups with only "=" conditions that are not loaded up front can use a cache with an eviction
+   * policy, the others keep the rows in order of arrival. The former can also share their cache with the other
+   * transformations in this JVM.
+   */
+  private DatabaseLookupData.Cache newCache() throws KettleException {
+    CachePolicy policy = CachePolicy.getPolicyByCode( environmentSubstitute( meta.getCachePolicy() ) );
+    if ( meta.isSharedCache() && data.allEquals ) {
+      return attachSharedCache( policy != null ? policy : CachePolicy.LRU );
+    }
+    if ( policy != null && data.allEquals && !meta.isLoadingAllDataInCache() ) {
+      return new BoundedCache( data, policy, meta.getCacheSize(), meta.getCacheMaxMemory() * 1024L * 1024L,
+        meta.getCacheTimeToLive() * 1000L );
+    }
+    return DefaultCache.newCache( data, meta.getCacheSize() );
+  }
+
+  /**
+   * Attaches to the cache shared by all the steps in this JVM that do the same lookup, creating it if needed. A cache
+   * that holds all the rows of the table is never bounded.
+   */
+  private DatabaseLookupData.Cache attachSharedCache( final CachePolicy policy ) throws KettleException {
+    final boolean loadAll = meta.isLoadingAllDataInCache();
+    final long maxRows = loadAll ? 0L : meta.getCacheSize();
+    final long maxBytes = loadAll ? 0L : meta.getCacheMaxMemory() * 1024L * 1024L;
+    final long timeToLive = loadAll ? 0L : meta.getCacheTimeToLive() * 1000L;
+
+    data.sharedCache = LookupCacheRegistry.getInstance().attach( getSharedCacheName(), getSharedCacheSignature(),
+      () -> BoundedCache.newLookupCache( policy, maxRows, maxBytes, timeToLive ) );
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.SharedCache", data.sharedCache.getName(),
+        data.sharedCache.getVersion(), data.sharedCache.getAttached() ) );
+    }
+    return new BoundedCache( data, data.sharedCache.<RowMetaAndData, Object[]>getCache() );
+  }
+
+  /**
+   * @return the name of the shared cache: the connection, table and key columns, used to invalidate it
+   */
+  @VisibleForTesting
+  String getSharedCacheName() {
+    StringBuilder name = new StringBuilder( meta.getDatabaseMeta().getName() ).append( ':' );
+    String schemaName = environmentSubstitute( meta.getSchemaName() );
+    if ( !Utils.isEmpty( schemaName ) ) {
+      name.append( schemaName ).append( '.' );
+    }
+    name.append( environmentSubstitute( meta.getTablename() ) ).append( '[' );
+    for ( int i = 0; i < meta.getTableKeyField().length; i++ ) {
+      if ( i > 0 ) {
+        name.append( ',' );
+      }
+      name.append( meta.getTableKeyField()[ i ] );
+    }
+    return name.append( ']' ).toString();
+  }
+
+  /**
+   * @return everything besides the name that determines the rows in the cache: the database, the conditions, the
+   *         returned fields with their defaults and the bounds of the cache
+   */
+  @VisibleForTesting
+  String getSharedCacheSignature() throws KettleException {
+    DatabaseMeta dbMeta = meta.getDatabaseMeta();
+    StringBuilder signature = new StringBuilder( environmentSubstitute( dbMeta.getURL() ) );
+    signature.append( ' ' ).append( environmentSubstitute( dbMeta.getUsername() ) );
+    signature.append( ' ' ).append( Arrays.toString( meta.getKeyCondition() ) );
+    for ( int i = 0; i < meta.getReturnValueField().length; i++ ) {
+      signature.append( ' ' ).append( meta.getReturnValueField()[ i ] )
+        .append( '=' ).append( meta.getReturnValueDefault()[ i ] )
+        .append( ':' ).append( meta.getReturnValueDefaultType()[ i ] );
+    }
+    signature.append( " order by " ).append( meta.getOrderByClause() );
+    signature.append( meta.isFailingOnMultipleResults() ? " fail on multiple" : "" );
+    if ( meta.isLoadingAllDataInCache() ) {
+      signature.append( " all rows" );
+    } else {
+      CachePolicy policy = CachePolicy.getPolicyByCode( environmentSubstitute( meta.getCachePolicy() ) );
+      signature.append( " cache " ).append( ( policy != null ? policy : CachePolicy.LRU ).getCode() )
+        .append( ' ' ).append( meta.getCacheSize() ).append( " rows " ).append( meta.getCacheMaxMemory() )
+        .append( " MB ttl " ).append( meta.getCacheTimeToLive() ).append( 's' );
+    }
+    return signature.toString();
+  }
+
+  private boolean isSharedCacheIncomplete() {
+    return data.sharedCache != null && meta.isLoadingAllDataInCache() && !data.sharedCache.isComplete();
+  }
+
+  /**
+   * Loads all the rows of the table into the shared cache, unless another step is doing so or the last load failed
+   * too recently. Rows are looked up in the database as long as the cache isn't complete, so a failed load doesn't
+   * stop the step.
+   */
+  private void loadSharedCache() {
+    LookupCacheRegistry.Entry entry = data.sharedCache;
+    if ( !entry.tryStartLoad() ) {
+      return;
+    }
+    long version = entry.getVersion();
+    boolean success = false;
+    try {
+      loadAllTableDataIntoTheCache();
+      success = true;
+    } catch ( KettleException e ) {
+      logError( BaseMessages.getString( PKG, "DatabaseLookup.Log.SharedCacheLoadFailed", entry.getName() ), e );
+    } finally {
+      if ( entry.endLoad( version, success ) && log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.SharedCacheLoaded", entry.getName(),
+          entry.getVersion() ) );
+      }
+    }
+  }
+
+  @Override
+  public CacheStatistics getLookupCacheStatistics() {
+    DatabaseLookupData stepData = data;
+    if ( stepData == null ) {
+      return null;
+    }
+    DatabaseLookupData.Cache cache = stepData.cache;
+    return cache != null ? cache.getStatistics() : stepData.cacheStatistics;
+  }
+
   private void loadAllTableDataIntoTheCache() throws KettleException {
     DatabaseMeta dbMeta = meta.getDatabaseMeta();
 
@@ -652,12 +1136,34 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     data = (DatabaseLookupData) sdi;
 
     if ( data.db != null ) {
+      if ( data.batchStatement != null ) {
+        try {
+          data.db.closePreparedStatement( data.batchStatement );
+        } catch ( KettleDatabaseException e ) {
+          logError( "Unable to close the batch lookup statement", e );
+        }
+        data.batchStatement = null;
+      }
       data.db.disconnect();
     }
 
+    // Keep the counters of the cache for the step status and metrics
+    //
+    if ( data.cache != null ) {
+      data.cacheStatistics = data.cache.getStatistics();
+      if ( data.cacheStatistics != null && log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.CacheStatistics", data.cacheStatistics ) );
+      }
+    }
+
     // Recover memory immediately, allow in-memory data to be garbage collected
+    // A shared cache stays warm in the registry for the next transformation.
     //
     data.cache = null;
+    if ( data.sharedCache != null ) {
+      LookupCacheRegistry.getInstance().detach( data.sharedCache );
+      data.sharedCache = null;
+    }
 
     super.dispose( smi, sdi );
   }
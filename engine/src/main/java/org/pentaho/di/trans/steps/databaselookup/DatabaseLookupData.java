@@ -22,6 +22,11 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import org.pentaho.di.core.cache.CacheStatistics;
+import org.pentaho.di.core.cache.LookupCacheRegistry;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -49,6 +54,15 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public int[] conditions;
   public boolean hasDBCondition;
 
+  public int batchLookupSize; // 0 when looking up row by row
+  public int batchQuerySize; // nr of keys in one batch query
+  public List<Object[]> batchRows;
+  public RowMetaInterface batchKeyMeta;
+  public PreparedStatement batchStatement;
+
+  public CacheStatistics cacheStatistics; // the final counters of the cache, kept after it is released
+  public LookupCacheRegistry.Entry sharedCache; // the shared cache the step attached to, if any
+
   public DatabaseLookupData() {
     super();
 
@@ -59,6 +73,11 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
    * Cache for {@code DatabaseLookup} step.
    */
   public interface Cache {
+    /**
+     * Returned by {@link #getRowFromCache(RowMetaInterface, Object[])} when it is known that nothing matches.
+     */
+    Object[] MISSING = new Object[ 0 ];
+
     /**
      * Returns the very first data row that matches all conditions or {@code null} if none has been found.
      * Note, cache should keep the order in which elements were put into it.
@@ -79,5 +98,22 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
      * @param add         tuple of data
      */
     void storeRowInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow, Object[] add );
+
+    /**
+     * Remembers that nothing matches {@code lookupRow}. Caches that can't do this ignore it.
+     *
+     * @param meta        step's meta
+     * @param lookupMeta  {@code lookupRow}'s meta
+     * @param lookupRow   tuple of keys
+     */
+    default void storeMissInCache( DatabaseLookupMeta meta, RowMetaInterface lookupMeta, Object[] lookupRow ) {
+    }
+
+    /**
+     * @return the hit, miss and eviction counters of the cache or {@code null} if it doesn't keep them
+     */
+    default CacheStatistics getStatistics() {
+      return null;
+    }
   }
 }
@@ -126,6 +126,24 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
   /** Have the lookup eat the incoming row when nothing gets found */
   private boolean eatingRowOnLookupFailure;
 
+  /** Look up the keys of this many rows with a single query, 0 or 1 to look up row by row */
+  private int batchLookupSize;
+
+  /** The eviction policy of the cache (see CachePolicy), empty to keep the first rows up to the cache size */
+  private String cachePolicy;
+
+  /** Limit the estimated size of the cache to this many MB, 0 for no limit */
+  private int cacheMaxMemory;
+
+  /** Forget cached values after this many seconds, 0 to keep them */
+  private int cacheTimeToLive;
+
+  /** Also remember the keys that were not found */
+  private boolean cachingMisses;
+
+  /** Use a cache shared with the other transformations running in the same JVM (Carte server) */
+  private boolean sharedCache;
+
   public DatabaseLookupMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -160,6 +178,96 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     this.cacheSize = cacheSize;
   }
 
+  /**
+   * @return the number of rows for which the keys are looked up with a single query.
+   */
+  public int getBatchLookupSize() {
+    return batchLookupSize;
+  }
+
+  /**
+   * @param batchLookupSize
+   *          the number of rows for which the keys are looked up with a single query, 0 or 1 to look up row by row.
+   */
+  public void setBatchLookupSize( int batchLookupSize ) {
+    this.batchLookupSize = batchLookupSize;
+  }
+
+  /**
+   * @return the code of the eviction policy of the cache, empty to keep the first rows up to the cache size.
+   */
+  public String getCachePolicy() {
+    return cachePolicy;
+  }
+
+  /**
+   * @param cachePolicy
+   *          the code of the eviction policy of the cache, empty to keep the first rows up to the cache size.
+   */
+  public void setCachePolicy( String cachePolicy ) {
+    this.cachePolicy = cachePolicy;
+  }
+
+  /**
+   * @return the maximum estimated size of the cache in MB, 0 for no limit.
+   */
+  public int getCacheMaxMemory() {
+    return cacheMaxMemory;
+  }
+
+  /**
+   * @param cacheMaxMemory
+   *          the maximum estimated size of the cache in MB, 0 for no limit.
+   */
+  public void setCacheMaxMemory( int cacheMaxMemory ) {
+    this.cacheMaxMemory = cacheMaxMemory;
+  }
+
+  /**
+   * @return the number of seconds after which cached values are forgotten, 0 to keep them.
+   */
+  public int getCacheTimeToLive() {
+    return cacheTimeToLive;
+  }
+
+  /**
+   * @param cacheTimeToLive
+   *          the number of seconds after which cached values are forgotten, 0 to keep them.
+   */
+  public void setCacheTimeToLive( int cacheTimeToLive ) {
+    this.cacheTimeToLive = cacheTimeToLive;
+  }
+
+  /**
+   * @return true if the keys that were not found are cached as well.
+   */
+  public boolean isCachingMisses() {
+    return cachingMisses;
+  }
+
+  /**
+   * @param cachingMisses
+   *          true to cache the keys that were not found as well.
+   */
+  public void setCachingMisses( boolean cachingMisses ) {
+    this.cachingMisses = cachingMisses;
+  }
+
+  /**
+   * @return true if the cache is shared with the steps of other transformations doing the same lookup.
+   */
+  public boolean isSharedCache() {
+    return sharedCache;
+  }
+
+  /**
+   * @param sharedCache
+   *          true to share the cache with the steps of other transformations doing the same lookup.
+   */
+  public void setSharedCache( boolean sharedCache ) {
+    this.sharedCache = sharedCache;
+  }
+
   /**
    * @return Returns the database.
    */
@@ -397,6 +505,12 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       loadingAllDataInCache = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "cache_load_all" ) );
       csize = XMLHandler.getTagValue( stepnode, "cache_size" );
       cacheSize = Const.toInt( csize, 0 );
+      batchLookupSize = Const.toInt( XMLHandler.getTagValue( stepnode, "batch_lookup_size" ), 0 );
+      cachePolicy = XMLHandler.getTagValue( stepnode, "cache_policy" );
+      cacheMaxMemory = Const.toInt( XMLHandler.getTagValue( stepnode, "cache_max_memory" ), 0 );
+      cacheTimeToLive = Const.toInt( XMLHandler.getTagValue( stepnode, "cache_ttl" ), 0 );
+      cachingMisses = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "cache_misses" ) );
+      sharedCache = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "cache_shared" ) );
       schemaName = XMLHandler.getTagValue( stepnode, "lookup", "schema" );
       tablename = XMLHandler.getTagValue( stepnode, "lookup", "table" );
 
@@ -451,6 +565,12 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     databaseMeta = null;
     cached = false;
     cacheSize = 0;
+    batchLookupSize = 0;
+    cachePolicy = null;
+    cacheMaxMemory = 0;
+    cacheTimeToLive = 0;
+    cachingMisses = false;
+    sharedCache = false;
     schemaName = "";
     tablename = BaseMessages.getString( PKG, "DatabaseLookupMeta.Default.TableName" );
 
@@ -516,6 +636,12 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache", cached ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache_load_all", loadingAllDataInCache ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache_size", cacheSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "batch_lookup_size", batchLookupSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "cache_policy", cachePolicy ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "cache_max_memory", cacheMaxMemory ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "cache_ttl", cacheTimeToLive ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "cache_misses", cachingMisses ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "cache_shared", sharedCache ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( "      " ).append( XMLHandler.addTagValue( "schema", schemaName ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "table", tablename ) );
@@ -555,6 +681,12 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       cached = rep.getStepAttributeBoolean( id_step, "cache" );
       loadingAllDataInCache = rep.getStepAttributeBoolean( id_step, "cache_load_all" );
       cacheSize = (int) rep.getStepAttributeInteger( id_step, "cache_size" );
+      batchLookupSize = (int) rep.getStepAttributeInteger( id_step, "batch_lookup_size" );
+      cachePolicy = rep.getStepAttributeString( id_step, "cache_policy" );
+      cacheMaxMemory = (int) rep.getStepAttributeInteger( id_step, "cache_max_memory" );
+      cacheTimeToLive = (int) rep.getStepAttributeInteger( id_step, "cache_ttl" );
+      cachingMisses = rep.getStepAttributeBoolean( id_step, "cache_misses" );
+      sharedCache = rep.getStepAttributeBoolean( id_step, "cache_shared" );
       schemaName = rep.getStepAttributeString( id_step, "lookup_schema" );
       tablename = rep.getStepAttributeString( id_step, "lookup_table" );
       orderByClause = rep.getStepAttributeString( id_step, "lookup_orderby" );
@@ -593,6 +725,12 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       rep.saveStepAttribute( id_transformation, id_step, "cache", cached );
       rep.saveStepAttribute( id_transformation, id_step, "cache_load_all", loadingAllDataInCache );
       rep.saveStepAttribute( id_transformation, id_step, "cache_size", cacheSize );
+      rep.saveStepAttribute( id_transformation, id_step, "batch_lookup_size", batchLookupSize );
+      rep.saveStepAttribute( id_transformation, id_step, "cache_policy", cachePolicy );
+      rep.saveStepAttribute( id_transformation, id_step, "cache_max_memory", cacheMaxMemory );
+      rep.saveStepAttribute( id_transformation, id_step, "cache_ttl", cacheTimeToLive );
+      rep.saveStepAttribute( id_transformation, id_step, "cache_misses", cachingMisses );
+      rep.saveStepAttribute( id_transformation, id_step, "cache_shared", sharedCache );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_schema", schemaName );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_table", tablename );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_orderby", orderByClause );
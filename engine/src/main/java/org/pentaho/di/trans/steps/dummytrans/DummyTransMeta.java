@@ -122,4 +122,9 @@ public class DummyTransMeta extends BaseStepMeta implements StepMetaInterface {
     return new DummyTransData();
   }
 
+  @Override
+  public boolean supportsStepFusion() {
+    return true;
+  }
+
 }
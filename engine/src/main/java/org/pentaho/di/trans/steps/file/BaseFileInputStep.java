@@ -42,6 +42,8 @@ import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.cluster.DynamicInputSplits;
+import org.pentaho.di.trans.cluster.InputSplit;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepMeta;
@@ -131,6 +133,19 @@ public abstract class BaseFileInputStep<M extends BaseFileInputMeta<?, ?, ?>, D
       }
     }
 
+    // With dynamic input splits the slaves share the files: the master hands them out, one or more at a time.
+    // Files are never split themselves since compressed files can't be read from the middle.
+    //
+    if ( !meta.inputFiles.acceptingFilenames ) {
+      try {
+        data.inputSplits = DynamicInputSplits.create( this, 0L, data.files.nrOfFiles(), 1L, 1 );
+      } catch ( KettleException e ) {
+        logError( "Unable to read the files with dynamic input splits", e );
+        return false;
+      }
+      data.inputSplitEnd = 0;
+    }
+
     return init();
   }
 
@@ -140,6 +155,10 @@ public abstract class BaseFileInputStep<M extends BaseFileInputMeta<?, ?, ?>, D
    * This method will support different parallelization methods later.
    */
   protected boolean openNextFile() {
+    if ( data.inputSplits != null && data.currentFileIndex >= data.inputSplitEnd && !nextInputSplit() ) {
+      // all files handed out by the master were processed
+      return false;
+    }
     try {
       if ( data.currentFileIndex >= data.files.nrOfFiles() ) {
         // all files already processed
@@ -184,6 +203,28 @@ public abstract class BaseFileInputStep<M extends BaseFileInputMeta<?, ?, ?>, D
     return true;
   }
 
+  /**
+   * Continue with the next files the master hands out, if we read with dynamic input splits.
+   *
+   * @return false if there are no files left to read
+   */
+  private boolean nextInputSplit() {
+    try {
+      InputSplit split = data.inputSplits.next();
+      if ( split == null ) {
+        return false;
+      }
+      data.currentFileIndex = (int) split.getFrom();
+      data.inputSplitEnd = (int) split.getTo();
+      return true;
+    } catch ( KettleException e ) {
+      stopAll();
+      setErrors( getErrors() + 1 );
+      logError( "Unable to get the next files to read from the master", e );
+      return false;
+    }
+  }
+
   protected boolean handleOpenFileException( Exception e ) {
     String errorMsg =
       "Couldn't open file #" + data.currentFileIndex + " : " + data.file.getName().getFriendlyURI();
@@ -29,6 +29,7 @@ import java.util.Map;
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.fileinput.FileInputList;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.cluster.DynamicInputSplits;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.errorhandling.FileErrorHandler;
 
@@ -49,6 +50,10 @@ public class BaseFileInputStepData extends BaseStepData {
   public int currentFileIndex;
   public FileObject file;
 
+  /** The files handed out by the master of a clustered transformation, the current chunk ends at inputSplitEnd. */
+  public DynamicInputSplits inputSplits;
+  public int inputSplitEnd;
+
   /** Reader for current file. */
   public IBaseFileInputReader reader;
 
@@ -24,10 +24,13 @@ package org.pentaho.di.trans.steps.filterrows;
 
 import java.util.List;
 
+import org.pentaho.di.core.Condition;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaAndData;
+import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -74,8 +77,9 @@ public class FilterRows extends BaseStep implements StepInterface {
 
     boolean keep;
 
-    Object[] r = getRow(); // Get next usable row from input rowset(s)!
-    if ( r == null ) { // no more input to be expected...
+    long previousLinesRead = getLinesRead();
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // Get next usable rows from input rowset(s)!
+    if ( rows == null ) { // no more input to be expected...
 
       setOutputDone();
       return false;
@@ -90,6 +94,10 @@ public class FilterRows extends BaseStep implements StepInterface {
       // if filter refers to non-existing fields, throw exception
       checkNonExistingFields();
 
+      if ( data.columnar ) {
+        data.columnarFieldIndex = getColumnarFieldIndex( meta.getCondition(), getInputRowMeta() );
+      }
+
       // Cache the position of the RowSet for the output.
       //
       if ( data.chosesTargetSteps ) {
@@ -116,30 +124,42 @@ public class FilterRows extends BaseStep implements StepInterface {
       }
     }
 
-    keep = keepRow( getInputRowMeta(), r ); // Keep this row?
     if ( !data.chosesTargetSteps ) {
-      if ( keep ) {
-        putRow( data.outputRowMeta, r ); // copy row to output rowset(s);
+      // Keep the rows that pass in front of the block and send those on in one go
+      //
+      int nrKept = 0;
+      if ( data.columnarFieldIndex >= 0 ) {
+        nrKept = keepRows( rows );
+      } else {
+        for ( Object[] r : rows ) {
+          if ( keepRow( getInputRowMeta(), r ) ) { // Keep this row?
+            rows[ nrKept++ ] = r;
+          }
+        }
       }
+      putRows( data.outputRowMeta, rows, nrKept ); // copy rows to output rowset(s);
     } else {
-      if ( keep ) {
-        if ( data.trueRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to true  :" + data.trueStepname + " : " + getInputRowMeta().getString( r ) );
+      for ( Object[] r : rows ) {
+        keep = keepRow( getInputRowMeta(), r ); // Keep this row?
+        if ( keep ) {
+          if ( data.trueRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to true  :" + data.trueStepname + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.trueRowSet );
           }
-          putRowTo( data.outputRowMeta, r, data.trueRowSet );
-        }
-      } else {
-        if ( data.falseRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to false :" + data.falseStepname + " : " + getInputRowMeta().getString( r ) );
+        } else {
+          if ( data.falseRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to false :" + data.falseStepname + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.falseRowSet );
           }
-          putRowTo( data.outputRowMeta, r, data.falseRowSet );
         }
       }
     }
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "FilterRows.Log.LineNumber" ) + getLinesRead() );
       }
@@ -148,6 +168,101 @@ public class FilterRows extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * The condition can be evaluated for a block of rows at once when it compares an Integer or Number field with a
+   * constant of the same type.
+   *
+   * @return the index of the field to compare or -1 if the condition needs to be evaluated row by row.
+   */
+  private int getColumnarFieldIndex( Condition condition, RowMetaInterface rowMeta ) {
+    if ( !condition.isAtomic() || !Utils.isEmpty( condition.getRightValuename() ) ) {
+      return -1;
+    }
+    switch ( condition.getFunction() ) {
+      case Condition.FUNC_EQUAL:
+      case Condition.FUNC_NOT_EQUAL:
+      case Condition.FUNC_SMALLER:
+      case Condition.FUNC_SMALLER_EQUAL:
+      case Condition.FUNC_LARGER:
+      case Condition.FUNC_LARGER_EQUAL:
+        break;
+      default:
+        return -1;
+    }
+    ValueMetaAndData exact = condition.getRightExact();
+    if ( Utils.isEmpty( condition.getLeftValuename() ) || exact == null || exact.getValueMeta() == null
+      || exact.getValueData() == null ) {
+      return -1;
+    }
+    int index = rowMeta.indexOfValue( condition.getLeftValuename() );
+    if ( index < 0 ) {
+      return -1;
+    }
+    ValueMetaInterface fieldMeta = rowMeta.getValueMeta( index );
+    ValueMetaInterface exactMeta = exact.getValueMeta();
+    if ( ( !fieldMeta.isInteger() && !fieldMeta.isNumber() ) || fieldMeta.getType() != exactMeta.getType()
+      || !fieldMeta.isStorageNormal() || !exactMeta.isStorageNormal() || fieldMeta.isSortedDescending() ) {
+      return -1;
+    }
+    return index;
+  }
+
+  /**
+   * Evaluate the condition on the values of a field in a block of rows, the same way {@link Condition#evaluate}
+   * compares the values (a null value is smaller than any other value), and move the rows to keep to the front of the
+   * block. The values are compared as they are in the rows, the rows are passed on as they are anyway.
+   *
+   * @return the number of rows to keep
+   */
+  private int keepRows( Object[][] rows ) throws KettleException {
+    Condition condition = meta.getCondition();
+    ValueMetaAndData exact = condition.getRightExact();
+    int function = condition.getFunction();
+    boolean nullIsFalse = ( function == Condition.FUNC_SMALLER || function == Condition.FUNC_SMALLER_EQUAL )
+      && "Y".equalsIgnoreCase( System.getProperty( Const.KETTLE_FILTER_TREAT_NULLS_AS_NOT_ZERO, "N" ) );
+
+    int index = data.columnarFieldIndex;
+    boolean isInteger = getInputRowMeta().getValueMeta( index ).isInteger();
+    long longConstant = isInteger ? exact.getValueMeta().getInteger( exact.getValueData() ) : 0L;
+    double doubleConstant = isInteger ? 0.0 : exact.getValueMeta().getNumber( exact.getValueData() );
+    int nrKept = 0;
+    for ( Object[] row : rows ) {
+      Object value = index < row.length ? row[ index ] : null;
+      int cmp;
+      if ( value == null ) {
+        cmp = -1;
+      } else if ( isInteger ) {
+        cmp = Long.compare( (Long) value, longConstant );
+      } else {
+        cmp = Double.compare( (Double) value, doubleConstant );
+      }
+      if ( matches( function, cmp, value == null && nullIsFalse ) != condition.isNegated() ) {
+        rows[ nrKept++ ] = row;
+      }
+    }
+    return nrKept;
+  }
+
+  private static boolean matches( int function, int cmp, boolean forceFalse ) {
+    if ( forceFalse ) {
+      return false;
+    }
+    switch ( function ) {
+      case Condition.FUNC_EQUAL:
+        return cmp == 0;
+      case Condition.FUNC_NOT_EQUAL:
+        return cmp != 0;
+      case Condition.FUNC_SMALLER:
+        return cmp < 0;
+      case Condition.FUNC_SMALLER_EQUAL:
+        return cmp <= 0;
+      case Condition.FUNC_LARGER:
+        return cmp > 0;
+      default:
+        return cmp >= 0;
+    }
+  }
+
   /**
    * @see StepInterface#init(org.pentaho.di.trans.step.StepMetaInterface , org.pentaho.di.trans.step.StepDataInterface)
    */
@@ -166,6 +281,8 @@ public class FilterRows extends BaseStep implements StepInterface {
 
       data.chosesTargetSteps =
         targetStreams.get( 0 ).getStepMeta() != null || targetStreams.get( 1 ).getStepMeta() != null;
+      data.columnar = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_COLUMNAR_ROW_BATCHES, "N" ) );
+      data.columnarFieldIndex = -1;
       return true;
     }
     return false;
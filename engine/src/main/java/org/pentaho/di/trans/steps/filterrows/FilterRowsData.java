@@ -41,6 +41,12 @@ public class FilterRowsData extends BaseStepData implements StepDataInterface {
   public String trueStepname;
   public String falseStepname;
 
+  /** Evaluate the condition for a block of rows at once when the condition allows it */
+  public boolean columnar;
+
+  /** The index of the field the condition can be evaluated on for a block of rows, -1 if it can't */
+  public int columnarFieldIndex = -1;
+
   public FilterRowsData() {
     super();
   }
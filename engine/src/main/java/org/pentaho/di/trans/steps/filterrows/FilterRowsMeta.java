@@ -338,6 +338,11 @@ public class FilterRowsMeta extends BaseStepMeta implements StepMetaInterface {
     return new FilterRowsData();
   }
 
+  @Override
+  public boolean supportsStepFusion() {
+    return true;
+  }
+
   /**
    * Returns the Input/Output metadata for this step.
    */
@@ -327,6 +327,11 @@ public class GetVariableMeta extends BaseStepMeta implements StepMetaInterface {
     return new GetVariableData();
   }
 
+  @Override
+  public boolean supportsStepFusion() {
+    return true;
+  }
+
   public static class FieldDefinition implements Cloneable {
 
     @Injection( name = "FIELDNAME", group = "FIELDS" )
@@ -48,6 +48,10 @@ import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueDataUtil;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.ColumnVector;
+import org.pentaho.di.core.row.batch.DoubleColumnVector;
+import org.pentaho.di.core.row.batch.LongColumnVector;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
@@ -93,6 +97,10 @@ public class GroupBy extends BaseStep implements StepInterface {
     meta = (GroupByMeta) smi;
     data = (GroupByData) sdi;
 
+    if ( data.columnar && !first && !data.newBatch ) {
+      return processRowBatch();
+    }
+
     Object[] r = getRow(); // get row!
 
     if ( first ) {
@@ -184,6 +192,10 @@ public class GroupBy extends BaseStep implements StepInterface {
       // Initialize the group metadata
       //
       initGroupMeta( data.inputRowMeta );
+
+      if ( data.columnar ) {
+        data.columnar = r != null && isColumnarAggregation();
+      }
     }
 
     if ( first || data.newBatch ) {
@@ -252,6 +264,7 @@ public class GroupBy extends BaseStep implements StepInterface {
           row = getRowFromBuffer();
         }
         closeInput();
+        data.memory.releaseAll();
       } else {
         Object[] result = buildResult( data.previous );
         if ( result != null ) {
@@ -272,6 +285,190 @@ public class GroupBy extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * The rows can be aggregated column by column when only the group and the aggregates are passed on and all the
+   * aggregates are sums, averages, minimums or maximums of Integer or Number fields or counts.
+   */
+  private boolean isColumnarAggregation() {
+    if ( meta.passAllRows() ) {
+      return false;
+    }
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      switch ( meta.getAggregateType()[ i ] ) {
+        case GroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case GroupByMeta.TYPE_GROUP_COUNT_ANY:
+          break;
+        case GroupByMeta.TYPE_GROUP_MIN:
+          if ( minNullIsValued ) {
+            return false;
+          }
+          // fall through
+        case GroupByMeta.TYPE_GROUP_SUM:
+        case GroupByMeta.TYPE_GROUP_AVERAGE:
+        case GroupByMeta.TYPE_GROUP_MAX:
+          ValueMetaInterface subjMeta = data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] );
+          if ( ( !subjMeta.isInteger() && !subjMeta.isNumber() ) || !subjMeta.isStorageNormal()
+            || subjMeta.isSortedDescending() ) {
+            return false;
+          }
+          break;
+        default:
+          return false;
+      }
+    }
+    data.longAggregates = new long[ data.subjectnrs.length ];
+    data.doubleAggregates = new double[ data.subjectnrs.length ];
+    data.hasAggregate = new boolean[ data.subjectnrs.length ];
+    return true;
+  }
+
+  /**
+   * Process a block of rows, aggregating the subjects on long[] and double[] values. This gives the same result as
+   * processing the rows one by one: the last row of the block is left in data.previous for the next call to aggregate,
+   * data.agg and data.counts hold the aggregates of the rows before it.
+   */
+  private boolean processRowBatch() throws KettleException {
+    long previousLinesRead = getLinesRead();
+    RowBatch batch = getRowBatch( Const.ROWS_IN_BATCH );
+    if ( batch == null ) { // no more input to be expected...
+      handleLastOfGroup();
+      setOutputDone();
+      return false;
+    }
+
+    Object[][] rows = batch.getRows();
+    ColumnVector[] subjects = new ColumnVector[ data.subjectnrs.length ];
+    for ( int i = 0; i < subjects.length; i++ ) {
+      int aggType = meta.getAggregateType()[ i ];
+      if ( aggType != GroupByMeta.TYPE_GROUP_COUNT_ALL && aggType != GroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+        subjects[ i ] = batch.getColumn( data.subjectnrs[ i ] );
+      }
+    }
+
+    // The previous row came with an earlier block
+    //
+    calcAggregate( data.previous );
+    if ( !sameGroup( data.previous, rows[ 0 ] ) ) {
+      putGroupResult( data.previous, rows[ 0 ] );
+    }
+    loadAggregates();
+
+    for ( int r = 1; r < batch.size(); r++ ) {
+      calcAggregate( subjects, rows, r - 1 );
+      if ( !sameGroup( rows[ r - 1 ], rows[ r ] ) ) {
+        storeAggregates();
+        putGroupResult( rows[ r - 1 ], rows[ r ] );
+        loadAggregates();
+      }
+    }
+    storeAggregates();
+
+    data.previous = data.inputRowMeta.cloneRow( rows[ batch.size() - 1 ] );
+
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "GroupBy.LineNumber" ) + getLinesRead() );
+      }
+    }
+
+    return true;
+  }
+
+  private void putGroupResult( Object[] lastOfGroup, Object[] firstOfNextGroup ) throws KettleException {
+    Object[] result = buildResult( lastOfGroup );
+    if ( result != null ) {
+      putRow( data.groupAggMeta, result );
+    }
+    newAggregate( firstOfNextGroup );
+  }
+
+  private void calcAggregate( ColumnVector[] subjects, Object[][] rows, int row ) {
+    for ( int i = 0; i < subjects.length; i++ ) {
+      int aggType = meta.getAggregateType()[ i ];
+      if ( aggType == GroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+        data.counts[ i ]++;
+        continue;
+      }
+      if ( aggType == GroupByMeta.TYPE_GROUP_COUNT_ALL ) {
+        if ( !data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] ).isNull( rows[ row ][ data.subjectnrs[ i ] ] ) ) {
+          data.counts[ i ]++;
+        }
+        continue;
+      }
+
+      ColumnVector subject = subjects[ i ];
+      if ( subject.isNull( row ) ) {
+        continue;
+      }
+      if ( aggType == GroupByMeta.TYPE_GROUP_AVERAGE ) {
+        data.counts[ i ]++;
+      }
+      boolean has = data.hasAggregate[ i ];
+      if ( subject instanceof LongColumnVector ) {
+        long value = ( (LongColumnVector) subject ).getLong( row );
+        long agg = data.longAggregates[ i ];
+        switch ( aggType ) {
+          case GroupByMeta.TYPE_GROUP_MIN:
+            data.longAggregates[ i ] = has && agg <= value ? agg : value;
+            break;
+          case GroupByMeta.TYPE_GROUP_MAX:
+            data.longAggregates[ i ] = has && agg >= value ? agg : value;
+            break;
+          default:
+            data.longAggregates[ i ] = has ? agg + value : value;
+            break;
+        }
+      } else {
+        double value = ( (DoubleColumnVector) subject ).getDouble( row );
+        double agg = data.doubleAggregates[ i ];
+        switch ( aggType ) {
+          case GroupByMeta.TYPE_GROUP_MIN:
+            data.doubleAggregates[ i ] = has && Double.compare( value, agg ) >= 0 ? agg : value;
+            break;
+          case GroupByMeta.TYPE_GROUP_MAX:
+            data.doubleAggregates[ i ] = has && Double.compare( value, agg ) <= 0 ? agg : value;
+            break;
+          default:
+            data.doubleAggregates[ i ] = has ? agg + value : value;
+            break;
+        }
+      }
+      data.hasAggregate[ i ] = true;
+    }
+  }
+
+  /**
+   * Move the sums, minimums and maximums from data.agg to the primitive aggregates.
+   */
+  private void loadAggregates() {
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      Object value = data.agg[ i ];
+      data.hasAggregate[ i ] = value != null;
+      if ( value instanceof Long ) {
+        data.longAggregates[ i ] = (Long) value;
+      } else if ( value instanceof Double ) {
+        data.doubleAggregates[ i ] = (Double) value;
+      }
+    }
+  }
+
+  /**
+   * Move the primitive sums, minimums and maximums back to data.agg.
+   */
+  private void storeAggregates() {
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      int aggType = meta.getAggregateType()[ i ];
+      if ( data.hasAggregate[ i ] && aggType != GroupByMeta.TYPE_GROUP_COUNT_ALL
+        && aggType != GroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+        if ( data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] ).isInteger() ) {
+          data.agg[ i ] = data.longAggregates[ i ];
+        } else {
+          data.agg[ i ] = data.doubleAggregates[ i ];
+        }
+      }
+    }
+  }
+
   private void handleLastOfGroup() throws KettleException {
     if ( meta.passAllRows() ) {
       // ALL ROWS
@@ -307,6 +504,7 @@ public class GroupBy extends BaseStep implements StepInterface {
         row = getRowFromBuffer();
       }
       closeInput();
+      data.memory.releaseAll();
     } else {
       // JUST THE GROUP + AGGREGATE
 
@@ -787,22 +985,14 @@ public class GroupBy extends BaseStep implements StepInterface {
   // Method is defined as package-protected in order to be accessible by unit tests
   void addToBuffer( Object[] row ) throws KettleFileException {
     data.bufferList.add( row );
-    if ( data.bufferList.size() > 5000 && data.rowsOnFile == 0 ) {
-      String pathToTmp = environmentSubstitute( getMeta().getDirectory() );
-      try {
-        File ioFile = new File( pathToTmp );
-        if ( !ioFile.exists() ) {
-          // try to resolve as Apache VFS file
-          pathToTmp = retrieveVfsPath( pathToTmp );
-        }
-        data.tempFile = File.createTempFile( getMeta().getPrefix(), ".tmp", new File( pathToTmp ) );
-        data.fosToTempFile = new FileOutputStream( data.tempFile );
-        data.dosToTempFile = new DataOutputStream( data.fosToTempFile );
-        data.firstRead = true;
-      } catch ( IOException e ) {
-        throw new KettleFileException( BaseMessages.getString( PKG, "GroupBy.Exception.UnableToCreateTemporaryFile" ),
-            e );
+    if ( data.memory.isLimited() ) {
+      // The transformation has a memory budget: keep the group in memory as long as the budget allows it
+      //
+      if ( !data.memory.allocate( RowDataUtil.estimateRowSize( row ) ) ) {
+        spillBuffer();
       }
+    } else if ( data.bufferList.size() > 5000 && data.rowsOnFile == 0 ) {
+      openTempFile();
       // OK, save the oldest rows to disk!
       Object[] oldest = data.bufferList.get( 0 );
       data.inputRowMeta.writeData( data.dosToTempFile, oldest );
@@ -811,6 +1001,45 @@ public class GroupBy extends BaseStep implements StepInterface {
     }
   }
 
+  private void openTempFile() throws KettleFileException {
+    if ( data.tempFile != null ) {
+      // The rows of a previous group were read back already
+      //
+      data.tempFile.delete();
+    }
+    String pathToTmp = environmentSubstitute( getMeta().getDirectory() );
+    try {
+      File ioFile = new File( pathToTmp );
+      if ( !ioFile.exists() ) {
+        // try to resolve as Apache VFS file
+        pathToTmp = retrieveVfsPath( pathToTmp );
+      }
+      data.tempFile = File.createTempFile( getMeta().getPrefix(), ".tmp", new File( pathToTmp ) );
+      data.fosToTempFile = new FileOutputStream( data.tempFile );
+      data.dosToTempFile = new DataOutputStream( data.fosToTempFile );
+      data.firstRead = true;
+    } catch ( IOException e ) {
+      throw new KettleFileException( BaseMessages.getString( PKG, "GroupBy.Exception.UnableToCreateTemporaryFile" ),
+          e );
+    }
+  }
+
+  /**
+   * Move all the buffered rows of the current group to the temporary file and give their memory back. The rows on file
+   * are always older than the rows in the buffer so the read order is preserved.
+   */
+  private void spillBuffer() throws KettleFileException {
+    if ( data.dosToTempFile == null ) {
+      openTempFile();
+    }
+    for ( Object[] bufferedRow : data.bufferList ) {
+      data.inputRowMeta.writeData( data.dosToTempFile, bufferedRow );
+    }
+    data.rowsOnFile += data.bufferList.size();
+    data.bufferList.clear();
+    data.memory.releaseAll();
+  }
+
   // Method is defined as public in order to be accessible by unit tests
   public String retrieveVfsPath( String pathToTmp ) throws KettleFileException {
     FileObject vfsFile = KettleVFS.getFileObject( pathToTmp );
@@ -896,6 +1125,10 @@ public class GroupBy extends BaseStep implements StepInterface {
 
       data.rowsOnFile = 0;
 
+      data.memory = createMemoryReservation();
+
+      data.columnar = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_COLUMNAR_ROW_BATCHES, "N" ) );
+
       return true;
     }
     return false;
@@ -918,6 +1151,7 @@ public class GroupBy extends BaseStep implements StepInterface {
             BaseMessages.getString( PKG, "GroupBy.Exception.UnableToDeleteTemporaryFile", data.tempFile.getPath() ) );
       }
     }
+    data.memory.releaseAll();
 
     super.dispose( smi, sdi );
   }
@@ -33,6 +33,7 @@ import java.util.Set;
 
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.MemoryReservation;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -103,10 +104,28 @@ public class GroupByData extends BaseStepData implements StepDataInterface {
 
   public boolean newBatch;
 
+  /**
+   * Aggregate blocks of rows column by column, on primitive values
+   */
+  public boolean columnar;
+
+  /**
+   * The running sum, minimum or maximum of the Integer and Number subjects while aggregating column by column
+   */
+  public long[] longAggregates;
+  public double[] doubleAggregates;
+  public boolean[] hasAggregate;
+
+  /**
+   * The memory used by the rows of the current group, only limited when the transformation has a memory budget
+   */
+  public MemoryReservation memory;
+
   public GroupByData() {
     super();
 
     previous = null;
+    memory = MemoryReservation.unlimited();
   }
 
 }
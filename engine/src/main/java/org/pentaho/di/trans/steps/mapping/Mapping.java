@@ -303,7 +303,8 @@ public class Mapping extends BaseStep implements StepInterface {
         break;
 
       case SingleThreaded:
-        mappingData.singleThreadedTransExcecutor = new SingleThreadedTransExecutor( mappingData.getMappingTrans() );
+        mappingData.singleThreadedTransExcecutor =
+          SingleThreadedTransExecutor.createExecutor( mappingData.getMappingTrans() );
         if ( !mappingData.singleThreadedTransExcecutor.init() ) {
           throw new KettleException( BaseMessages.getString( PKG,
               "Mapping.Exception.UnableToInitSingleThreadedTransformation" ) );
@@ -22,17 +22,26 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.math.stat.descriptive.rank.Percentile;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.HyperLogLog;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
@@ -43,6 +52,7 @@ import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.core.row.value.ValueMetaNumber;
 import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.vfs.KettleVFS;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -52,6 +62,7 @@ import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.SpillFile;
 
 /**
  * Groups information based on aggregation rules. (sum, count, ...)
@@ -62,6 +73,14 @@ import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
 public class MemoryGroupBy extends BaseStep implements StepInterface {
   private static Class<?> PKG = MemoryGroupByMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /**
+   * The groups that don't fit in memory are spread over this many partitions, using the next bits of the hash code on
+   * every level of recursion.
+   */
+  static final int SPILL_PARTITION_BITS = 4;
+  static final int SPILL_PARTITIONS = 1 << SPILL_PARTITION_BITS;
+  static final int MAX_SPILL_DEPTH = 32 / SPILL_PARTITION_BITS;
+
   private MemoryGroupByMeta meta;
 
   private MemoryGroupByData data;
@@ -86,7 +105,9 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     Object[] r = getRow(); // get row!
 
     if ( first ) {
-      if ( ( r == null ) && ( !meta.isAlwaysGivingBackOneRow() ) ) {
+      // A combined copy without rows still has to finish with the other copies, it might send out the result
+      //
+      if ( ( r == null ) && ( !meta.isAlwaysGivingBackOneRow() ) && data.combiner == null ) {
         setOutputDone();
         return false;
       }
@@ -121,7 +142,8 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       data.groupnrs = new int[meta.getGroupField().length];
 
       // If the step does not receive any rows, we can not lookup field position indexes
-      if ( r != null ) {
+      // unless the copies are combined: the other copies did receive rows with this layout
+      if ( r != null || data.combiner != null ) {
         for ( int i = 0; i < meta.getSubjectField().length; i++ ) {
           if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY ) {
             data.subjectnrs[i] = 0;
@@ -200,36 +222,54 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   }
 
   private void handleLastOfGroup() throws KettleException {
-    // Dump the content of the map...
+    publishAggregates();
+    long nrGroups = data.map.size();
+
+    // Now aggregate the rows of the groups that didn't fit in memory, one partition at a time.
+    // A partition can be split up again when it doesn't fit in memory either.
     //
-    for ( HashEntry entry : data.map.keySet() ) {
-      Aggregate aggregate = data.map.get( entry );
-      Object[] aggregateResult = getAggregateResult( aggregate );
+    closeSpillFiles();
+    while ( !data.spilledPartitions.isEmpty() ) {
+      SpillFile partition = data.spilledPartitions.pop();
+      data.map.clear();
+      data.memory.releaseAll();
+      data.spillDepth = partition.depth;
+
+      aggregatePartition( partition );
+      publishAggregates();
+      nrGroups += data.map.size();
+      closeSpillFiles();
+    }
+    data.spillDepth = 0;
 
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
+    // Only now that the groups of all the partitions are published do we know if there were any
+    //
+    boolean noGroups = nrGroups == 0;
+
+    if ( data.combiner != null ) {
+      // Only the last copy to finish sends out the merged aggregates
+      //
+      if ( !data.combiner.copyFinished() ) {
+        return;
       }
-      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
+      synchronized ( data.combiner ) {
+        noGroups = data.combiner.getAggregates().isEmpty();
+        putAggregates( data.combiner.getAggregates() );
+        data.combiner.getAggregates().clear();
       }
-      putRow( data.outputRowMeta, outputRowData );
     }
 
     // What if we always need to give back one row?
     // This means we give back 0 for count all, count distinct, null for everything else
     //
-    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
+    if ( noGroups && meta.isAlwaysGivingBackOneRow() ) {
       Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
       int index = 0;
       for ( int i = 0; i < data.groupMeta.size(); i++ ) {
         outputRowData[index++] = null;
       }
       for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        if ( meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
-          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY
-          || meta.getAggregateType()[i] == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT ) {
+        if ( MemoryGroupByMeta.isCountType( meta.getAggregateType()[i] ) ) {
           outputRowData[index++] = Long.valueOf( 0L );
         } else {
           outputRowData[index++] = null;
@@ -239,6 +279,50 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Send out the aggregates in the hash table or, when the step copies are combined, merge them with the aggregates
+   * of the other copies.
+   */
+  private void publishAggregates() throws KettleException {
+    if ( data.combiner == null ) {
+      putAggregates( data.map );
+      return;
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.CombiningCopies", data.map.size() ) );
+    }
+    synchronized ( data.combiner ) {
+      Map<HashEntry, Aggregate> merged = data.combiner.getAggregates();
+      for ( Map.Entry<HashEntry, Aggregate> entry : data.map.entrySet() ) {
+        Aggregate aggregate = merged.get( entry.getKey() );
+        if ( aggregate == null ) {
+          merged.put( entry.getKey(), entry.getValue() );
+        } else {
+          mergeAggregate( aggregate, entry.getValue() );
+        }
+      }
+    }
+  }
+
+  private void putAggregates( Map<HashEntry, Aggregate> map ) throws KettleException {
+    // Dump the content of the map...
+    //
+    for ( HashEntry entry : map.keySet() ) {
+      Aggregate aggregate = map.get( entry );
+      Object[] aggregateResult = getAggregateResult( aggregate );
+
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
+      }
+      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
+      }
+      putRow( data.outputRowMeta, outputRowData );
+    }
+  }
+
   @VisibleForTesting
   void updateValueMeta() throws KettleException {
 
@@ -270,11 +354,35 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     Aggregate aggregate = data.map.get( entry );
     if ( aggregate == null ) {
+      if ( data.spillStreams != null ) {
+        // The hash table is full: the rows of new groups are aggregated later on
+        //
+        spillRow( entry, r );
+        return;
+      }
+
       // Create a new value...
       //
       aggregate = new Aggregate();
       newAggregate( r, aggregate );
 
+      // Every group stays in memory until the end of the input: stay within the budget of the transformation.
+      // Once the budget is used up, the rows of new groups are partitioned to disk.
+      // The first group is always kept, otherwise a partition is split up again without making any progress.
+      //
+      long size = RowDataUtil.estimateRowSize( groupData ) + RowDataUtil.estimateRowSize( aggregate.agg );
+      if ( !data.memory.allocate( size ) && !data.map.isEmpty() && data.spillDepth < MAX_SPILL_DEPTH ) {
+        data.memory.release( size );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.SpillingGroups", data.map.size(),
+            data.spillDepth ) );
+        }
+        data.spillFiles = new SpillFile[SPILL_PARTITIONS];
+        data.spillStreams = new DataOutputStream[SPILL_PARTITIONS];
+        spillRow( entry, r );
+        return;
+      }
+
       // Store it in the map!
       //
       data.map.put( entry, aggregate );
@@ -341,6 +449,11 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
           }
           aggregate.counts[i] = aggregate.distinctObjs[i].size();
           break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+          if ( !subjMeta.isNull( subj ) ) {
+            ( (HyperLogLog) value ).add( subjMeta.convertToNormalStorageType( subj ) );
+          }
+          break;
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
           if ( !subjMeta.isNull( subj ) ) {
             aggregate.counts[i]++;
@@ -412,6 +525,162 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * Merge the partial aggregate of a group, calculated over other rows, into an aggregate of the same group.
+   *
+   * @param target
+   *          the aggregate to merge into
+   * @param source
+   *          the partial aggregate to merge
+   * @throws KettleValueException
+   */
+  @SuppressWarnings( "unchecked" )
+  void mergeAggregate( Aggregate target, Aggregate source ) throws KettleValueException {
+    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
+      ValueMetaInterface valueMeta = data.aggMeta.getValueMeta( i );
+      Object value = target.agg[i];
+      Object other = source.agg[i];
+
+      switch ( meta.getAggregateType()[i] ) {
+        case MemoryGroupByMeta.TYPE_GROUP_SUM:
+          target.agg[i] = ValueDataUtil.sum( valueMeta, value, valueMeta, other );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+          target.agg[i] = ValueDataUtil.sum( valueMeta, value, valueMeta, other );
+          target.counts[i] += source.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN:
+        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
+          ( (List<Double>) value ).addAll( (List<Double>) other );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
+          // Combine the running means and sums of squared differences (Chan et al.)
+          //
+          long n1 = target.counts[i];
+          long n2 = source.counts[i];
+          if ( n2 == 0 ) {
+            break;
+          }
+          if ( n1 == 0 ) {
+            target.agg[i] = other;
+            target.mean[i] = source.mean[i];
+            target.counts[i] = n2;
+            break;
+          }
+          double n = n1 + n2;
+          double delta = source.mean[i] - target.mean[i];
+          target.mean[i] += delta * n2 / n;
+          target.agg[i] = (Double) value + (Double) other + delta * delta * n1 * n2 / n;
+          target.counts[i] = n1 + n2;
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
+          if ( source.distinctObjs != null && source.distinctObjs[i] != null ) {
+            if ( target.distinctObjs == null ) {
+              target.distinctObjs = new Set[meta.getSubjectField().length];
+            }
+            if ( target.distinctObjs[i] == null ) {
+              target.distinctObjs[i] = source.distinctObjs[i];
+            } else {
+              target.distinctObjs[i].addAll( source.distinctObjs[i] );
+            }
+            target.counts[i] = target.distinctObjs[i].size();
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+          ( (HyperLogLog) value ).merge( (HyperLogLog) other );
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+          target.counts[i] += source.counts[i];
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          boolean valueIsNull = valueMeta.isNull( value );
+          boolean otherIsNull = valueMeta.isNull( other );
+          if ( minNullIsValued || ( !valueIsNull && !otherIsNull ) ) {
+            if ( valueMeta.compare( other, value ) < 0 ) {
+              target.agg[i] = other;
+            }
+          } else if ( valueIsNull && !otherIsNull ) {
+            target.agg[i] = other;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          if ( valueMeta.compare( other, value ) > 0 ) {
+            target.agg[i] = other;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /**
+   * Write a row of a group that is not in the hash table to its partition on disk. The partition is picked with the
+   * bits of the (scrambled) hash code that belong to the current level of recursion, so the groups of a partition are
+   * spread evenly over the partitions of the next level.
+   */
+  private void spillRow( HashEntry entry, Object[] r ) throws KettleFileException {
+    int hash = entry.hashCode() * 0x9E3779B9;
+    int partition = ( hash >>> ( 32 - ( data.spillDepth + 1 ) * SPILL_PARTITION_BITS ) ) & ( SPILL_PARTITIONS - 1 );
+    if ( data.spillStreams[partition] == null ) {
+      try {
+        // Transformations saved before the directory option used the system temporary directory
+        //
+        String directory = environmentSubstitute( meta.getDirectory() );
+        if ( Utils.isEmpty( directory ) ) {
+          directory = System.getProperty( "java.io.tmpdir" );
+        }
+        String prefix = Utils.isEmpty( meta.getPrefix() ) ? "memgrp" : environmentSubstitute( meta.getPrefix() );
+        FileObject file = KettleVFS.createTempFile( prefix, ".tmp", directory, getTransMeta() );
+        data.spillFiles[partition] = new SpillFile( file, data.spillDepth + 1 );
+        data.spillStreams[partition] =
+          new DataOutputStream( new BufferedOutputStream( KettleVFS.getOutputStream( file, false ), 50000 ) );
+      } catch ( IOException e ) {
+        throw new KettleFileException( BaseMessages.getString(
+          PKG, "MemoryGroupBy.Exception.UnableToCreateTemporaryFile" ), e );
+      }
+    }
+    data.inputRowMeta.writeData( data.spillStreams[partition], r );
+    data.spillFiles[partition].rows++;
+  }
+
+  /**
+   * Close the partitions of the current level and queue them for aggregation.
+   */
+  private void closeSpillFiles() throws KettleFileException {
+    if ( data.spillStreams == null ) {
+      return;
+    }
+    for ( int i = 0; i < data.spillStreams.length; i++ ) {
+      if ( data.spillStreams[i] != null ) {
+        try {
+          data.spillStreams[i].close();
+        } catch ( IOException e ) {
+          throw new KettleFileException(
+            BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToCloseInputStream" ), e );
+        }
+        data.spilledPartitions.push( data.spillFiles[i] );
+      }
+    }
+    data.spillFiles = null;
+    data.spillStreams = null;
+  }
+
+  private void aggregatePartition( SpillFile partition ) throws KettleException {
+    try ( DataInputStream inputStream =
+      new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( partition.file ), 50000 ) ) ) {
+      for ( long i = 0; i < partition.rows; i++ ) {
+        addToAggregate( data.inputRowMeta.readData( inputStream ) );
+      }
+    } catch ( IOException e ) {
+      throw new KettleFileException( BaseMessages.getString(
+        PKG, "MemoryGroupBy.Exception.UnableToReadBackRowFromTemporaryFile" ), e );
+    } finally {
+      data.deleteSpillFile( partition );
+    }
+  }
+
   /**
    * Used for junits in MemoryGroupByNewAggregateTest
    *
@@ -452,6 +721,10 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
         case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
           vMeta = new ValueMetaInteger( meta.getAggregateField()[i] );
           break;
+        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+          vMeta = new ValueMetaInteger( meta.getAggregateField()[i] );
+          v = new HyperLogLog();
+          break;
         case MemoryGroupByMeta.TYPE_GROUP_SUM:
         case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
           vMeta = !compatibilityMode && subjMeta.isNumeric() ? subjMeta.clone() : new ValueMetaNumber();
@@ -479,9 +752,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
           throw new KettleException( "Unknown data type for aggregation : " + meta.getAggregateField()[i] );
       }
 
-      if ( meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL
-        && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT
-        && meta.getAggregateType()[i] != MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY ) {
+      if ( !MemoryGroupByMeta.isCountType( meta.getAggregateType()[i] ) ) {
         vMeta.setLength( subjMeta.getLength(), subjMeta.getPrecision() );
       }
       if ( aggregate == null ) {
@@ -548,6 +819,9 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
           case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
             ag = aggregate.counts[i];
             break;
+          case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX:
+            ag = ( (HyperLogLog) ag ).cardinality();
+            break;
           case MemoryGroupByMeta.TYPE_GROUP_MIN:
             break;
           case MemoryGroupByMeta.TYPE_GROUP_MAX:
@@ -583,6 +857,27 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.map = new HashMap<HashEntry, Aggregate>( 5000 );
+      data.memory = createMemoryReservation();
+
+      if ( meta.isCombiningCopies() ) {
+        for ( int i = 0; i < meta.getAggregateType().length; i++ ) {
+          if ( !MemoryGroupByMeta.isMergeable( meta.getAggregateType()[i] ) ) {
+            logError( BaseMessages.getString( PKG, "MemoryGroupBy.Log.AggregateNotMergeable",
+              meta.getAggregateField()[i] ) );
+            return false;
+          }
+        }
+        int copies = getTrans().findStepInterfaces( getStepname() ).size();
+        if ( copies > 1 && data.memory.isLimited() ) {
+          // The merged aggregates of all the copies are kept in memory until the last copy is done, they can't spill
+          //
+          logError( BaseMessages.getString( PKG, "MemoryGroupBy.Log.CombiningWithMemoryLimit" ) );
+          return false;
+        }
+        if ( copies > 1 ) {
+          data.combiner = MemoryGroupByCombiner.getCombiner( getTrans(), getStepname(), copies );
+        }
+      }
       return true;
     }
     return false;
@@ -590,6 +885,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    ( (MemoryGroupByData) sdi ).deleteSpillFiles();
     super.dispose( smi, sdi );
     ( (MemoryGroupByData) sdi ).clear();
   }
@@ -603,6 +899,7 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
     // Clear the complete cache...
     //
     data.map.clear();
+    data.memory.releaseAll();
 
     data.newBatch = true;
   }
@@ -0,0 +1,86 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByData.HashEntry;
+
+/**
+ * Merges the partial aggregates of the copies of a Memory Group By step. Every copy aggregates the rows it receives
+ * and merges its hash table into the combiner when its input is done. The last copy to finish sends out the result.
+ * <p>
+ * The merged aggregates are only accessed while holding the lock on the combiner. They stay in memory until the last
+ * copy is done and are not accounted for in a memory budget, that is why the copies of a transformation with a memory
+ * limit can't be combined.
+ */
+public class MemoryGroupByCombiner {
+  private final Map<HashEntry, Aggregate> aggregates = new HashMap<>();
+  private int runningCopies;
+
+  public MemoryGroupByCombiner( int copies ) {
+    this.runningCopies = copies;
+  }
+
+  /**
+   * Find the combiner shared by the copies of a step in a transformation, create it for the first copy asking for it.
+   *
+   * @param trans
+   *          the transformation the copies run in
+   * @param stepname
+   *          the name of the step
+   * @param copies
+   *          the number of copies of the step
+   * @return the combiner of the step copies
+   */
+  public static MemoryGroupByCombiner getCombiner( Trans trans, String stepname, int copies ) {
+    Map<String, Object> extensionData = trans.getExtensionDataMap();
+    String key = MemoryGroupByCombiner.class.getName() + ":" + stepname;
+    synchronized ( extensionData ) {
+      MemoryGroupByCombiner combiner = (MemoryGroupByCombiner) extensionData.get( key );
+      if ( combiner == null ) {
+        combiner = new MemoryGroupByCombiner( copies );
+        extensionData.put( key, combiner );
+      }
+      return combiner;
+    }
+  }
+
+  /**
+   * @return the merged aggregates, only to be used while holding the lock on this combiner.
+   */
+  public Map<HashEntry, Aggregate> getAggregates() {
+    return aggregates;
+  }
+
+  /**
+   * Signal that a copy merged all its aggregates.
+   *
+   * @return true if this was the last copy running, it should send out the merged aggregates.
+   */
+  public synchronized boolean copyFinished() {
+    return --runningCopies == 0;
+  }
+}
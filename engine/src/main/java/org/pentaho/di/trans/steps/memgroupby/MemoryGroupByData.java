@@ -22,11 +22,18 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.MemoryReservation;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -75,6 +82,20 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
     }
   }
 
+  /**
+   * A partition of rows written to disk because their groups didn't fit in memory
+   */
+  public static class SpillFile {
+    public final FileObject file;
+    public final int depth;
+    public long rows;
+
+    public SpillFile( FileObject file, int depth ) {
+      this.file = file;
+      this.depth = depth;
+    }
+  }
+
   public HashMap<HashEntry, Aggregate> map;
 
   public RowMetaInterface aggMeta;
@@ -99,9 +120,33 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  /**
+   * The memory used by the groups in the hash map, only limited when the transformation has a memory budget
+   */
+  public MemoryReservation memory;
+
+  /**
+   * The partitions being written while the hash table is full, null as long as all groups fit in memory
+   */
+  public SpillFile[] spillFiles;
+  public DataOutputStream[] spillStreams;
+
+  /**
+   * The partitions waiting to be aggregated and the level of recursion of the partition being aggregated
+   */
+  public Deque<SpillFile> spilledPartitions;
+  public int spillDepth;
+
+  /**
+   * Merges the aggregates of all step copies, null unless the copies are combined
+   */
+  public MemoryGroupByCombiner combiner;
+
   public MemoryGroupByData() {
     super();
 
+    memory = MemoryReservation.unlimited();
+    spilledPartitions = new ArrayDeque<>();
   }
 
   public HashEntry getHashEntry( Object[] groupData ) {
@@ -113,5 +158,40 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
    */
   public void clear() {
     map = new HashMap<MemoryGroupByData.HashEntry, Aggregate>();
+    memory.releaseAll();
+  }
+
+  /**
+   * Close and remove the partitions that were not aggregated yet, the step was stopped or failed.
+   */
+  public void deleteSpillFiles() {
+    if ( spillStreams != null ) {
+      for ( int i = 0; i < spillStreams.length; i++ ) {
+        if ( spillStreams[i] != null ) {
+          try {
+            spillStreams[i].close();
+          } catch ( IOException e ) {
+            // Ignore, the file is removed anyway
+          }
+          deleteSpillFile( spillFiles[i] );
+        }
+      }
+      spillFiles = null;
+      spillStreams = null;
+    }
+    if ( spilledPartitions != null ) {
+      for ( SpillFile partition : spilledPartitions ) {
+        deleteSpillFile( partition );
+      }
+      spilledPartitions.clear();
+    }
+  }
+
+  public void deleteSpillFile( SpillFile partition ) {
+    try {
+      partition.file.delete();
+    } catch ( FileSystemException e ) {
+      // Ignore, it's a temporary file
+    }
   }
 }
@@ -99,10 +99,13 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
 
   public static final int TYPE_GROUP_COUNT_ANY = 16;
 
+  public static final int TYPE_GROUP_COUNT_DISTINCT_APPROX = 17;
+
   public static final String[] typeGroupCode = /* WARNING: DO NOT TRANSLATE THIS. WE ARE SERIOUS, DON'T TRANSLATE! */
   {
     "-", "SUM", "AVERAGE", "MEDIAN", "PERCENTILE", "MIN", "MAX", "COUNT_ALL", "CONCAT_COMMA", "FIRST", "LAST",
-    "FIRST_INCL_NULL", "LAST_INCL_NULL", "STD_DEV", "CONCAT_STRING", "COUNT_DISTINCT", "COUNT_ANY", };
+    "FIRST_INCL_NULL", "LAST_INCL_NULL", "STD_DEV", "CONCAT_STRING", "COUNT_DISTINCT", "COUNT_ANY",
+    "COUNT_DISTINCT_APPROX", };
 
   public static final String[] typeGroupLongDesc = {
     "-", BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.SUM" ),
@@ -120,7 +123,8 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.STANDARD_DEVIATION" ),
     BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.CONCAT_STRING" ),
     BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_DISTINCT" ),
-    BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_ANY" ), };
+    BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_ANY" ),
+    BaseMessages.getString( PKG, "MemoryGroupByMeta.TypeGroupLongDesc.COUNT_DISTINCT_APPROX" ), };
 
   @Injection( name = "GROUPFIELD", group = "FIELDS" )
   /** Fields to group over */
@@ -146,6 +150,18 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   /** Flag to indicate that we always give back one row. Defaults to true for existing transformations. */
   private boolean alwaysGivingBackOneRow;
 
+  @Injection( name = "COMBINECOPIES", group = "FIELDS" )
+  /** Flag to indicate that the copies of the step merge their partial aggregates into one result */
+  private boolean combiningCopies;
+
+  @Injection( name = "DIRECTORY" )
+  /** Directory to write the groups to that don't fit in the memory budget */
+  private String directory;
+
+  @Injection( name = "FILE_PREFIX" )
+  /** Prefix of the temporary files */
+  private String prefix;
+
   public MemoryGroupByMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -275,8 +291,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
         subjectField[i] = XMLHandler.getTagValue( fnode, "subject" );
         aggregateType[i] = getType( XMLHandler.getTagValue( fnode, "type" ) );
 
-        if ( aggregateType[i] == TYPE_GROUP_COUNT_ALL
-          || aggregateType[i] == TYPE_GROUP_COUNT_DISTINCT || aggregateType[i] == TYPE_GROUP_COUNT_ANY ) {
+        if ( isCountType( aggregateType[i] ) ) {
           hasNumberOfValues = true;
         }
 
@@ -289,6 +304,9 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       } else {
         alwaysGivingBackOneRow = "Y".equalsIgnoreCase( giveBackRow );
       }
+      combiningCopies = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "combine_copies" ) );
+      directory = XMLHandler.getTagValue( stepnode, "directory" );
+      prefix = XMLHandler.getTagValue( stepnode, "prefix" );
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnableToLoadStepInfoFromXML" ), e );
@@ -325,6 +343,9 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
 
   @Override
   public void setDefault() {
+    directory = "%%java.io.tmpdir%%";
+    prefix = "memgrp";
+
     int sizegroup = 0;
     int nrfields = 0;
 
@@ -372,6 +393,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
             value_type = subj.getType();
             break;
           case TYPE_GROUP_COUNT_DISTINCT:
+          case TYPE_GROUP_COUNT_DISTINCT_APPROX:
           case TYPE_GROUP_COUNT_ALL:
           case TYPE_GROUP_COUNT_ANY:
             value_type = ValueMetaInterface.TYPE_INTEGER;
@@ -399,8 +421,7 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
             break;
         }
 
-        if ( aggregateType[i] == TYPE_GROUP_COUNT_ALL
-          || aggregateType[i] == TYPE_GROUP_COUNT_DISTINCT || aggregateType[i] == TYPE_GROUP_COUNT_ANY ) {
+        if ( isCountType( aggregateType[i] ) ) {
           length = ValueMetaInterface.DEFAULT_INTEGER_LENGTH;
           precision = 0;
         } else if ( aggregateType[i] == TYPE_GROUP_SUM
@@ -445,6 +466,9 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     StringBuilder retval = new StringBuilder( 500 );
 
     retval.append( "      " ).append( XMLHandler.addTagValue( "give_back_row", alwaysGivingBackOneRow ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "combine_copies", combiningCopies ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "directory", directory ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "prefix", prefix ) );
 
     retval.append( "      <group>" ).append( Const.CR );
     for ( int i = 0; i < groupField.length; i++ ) {
@@ -486,14 +510,16 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
         subjectField[i] = rep.getStepAttributeString( id_step, i, "aggregate_subject" );
         aggregateType[i] = getType( rep.getStepAttributeString( id_step, i, "aggregate_type" ) );
 
-        if ( aggregateType[i] == TYPE_GROUP_COUNT_ALL
-          || aggregateType[i] == TYPE_GROUP_COUNT_DISTINCT || aggregateType[i] == TYPE_GROUP_COUNT_ANY ) {
+        if ( isCountType( aggregateType[i] ) ) {
           hasNumberOfValues = true;
         }
         valueField[i] = rep.getStepAttributeString( id_step, i, "aggregate_value_field" );
       }
 
       alwaysGivingBackOneRow = rep.getStepAttributeBoolean( id_step, 0, "give_back_row", hasNumberOfValues );
+      combiningCopies = rep.getStepAttributeBoolean( id_step, 0, "combine_copies", false );
+      directory = rep.getStepAttributeString( id_step, "directory" );
+      prefix = rep.getStepAttributeString( id_step, "prefix" );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnexpectedErrorInReadingStepInfoFromRepository" ), e );
@@ -504,6 +530,9 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
     try {
       rep.saveStepAttribute( id_transformation, id_step, "give_back_row", alwaysGivingBackOneRow );
+      rep.saveStepAttribute( id_transformation, id_step, "combine_copies", combiningCopies );
+      rep.saveStepAttribute( id_transformation, id_step, "directory", directory );
+      rep.saveStepAttribute( id_transformation, id_step, "prefix", prefix );
 
       for ( int i = 0; i < groupField.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "group_name", groupField[i] );
@@ -539,6 +568,23 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
           PKG, "MemoryGroupByMeta.CheckResult.NoInputError" ), stepMeta );
       remarks.add( cr );
     }
+
+    if ( combiningCopies ) {
+      for ( int i = 0; i < aggregateType.length; i++ ) {
+        if ( !isMergeable( aggregateType[i] ) ) {
+          cr =
+            new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString(
+              PKG, "MemoryGroupByMeta.CheckResult.AggregateNotMergeable", aggregateField[i] ), stepMeta );
+          remarks.add( cr );
+        }
+      }
+      if ( !Utils.isEmpty( transMeta.getMemoryLimit() ) ) {
+        cr =
+          new CheckResult( CheckResultInterface.TYPE_RESULT_ERROR, BaseMessages.getString(
+            PKG, "MemoryGroupByMeta.CheckResult.CombiningWithMemoryLimit" ), stepMeta );
+        remarks.add( cr );
+      }
+    }
   }
 
   @Override
@@ -567,6 +613,84 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  /**
+   * @return the directory to write the groups to that don't fit in the memory budget
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param directory
+   *          the directory to write the groups to that don't fit in the memory budget
+   */
+  public void setDirectory( String directory ) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return the prefix of the temporary files
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * @param prefix
+   *          the prefix of the temporary files
+   */
+  public void setPrefix( String prefix ) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * @return true if the copies of this step each aggregate part of the rows and merge their partial aggregates into
+   *         one result. This gives the same result as a single copy, without partitioning the rows on the group first.
+   *         The merged aggregates can't spill to disk, so the copies can't be combined when the transformation has a
+   *         memory limit.
+   */
+  public boolean isCombiningCopies() {
+    return combiningCopies;
+  }
+
+  /**
+   * @param combiningCopies
+   *          true if the copies of this step should merge their partial aggregates into one result
+   */
+  public void setCombiningCopies( boolean combiningCopies ) {
+    this.combiningCopies = combiningCopies;
+  }
+
+  /**
+   * @param aggregateType
+   *          the type of aggregate
+   * @return true if the aggregate is a number of values, 0 for no values at all
+   */
+  public static boolean isCountType( int aggregateType ) {
+    return aggregateType == TYPE_GROUP_COUNT_ALL || aggregateType == TYPE_GROUP_COUNT_DISTINCT
+      || aggregateType == TYPE_GROUP_COUNT_ANY || aggregateType == TYPE_GROUP_COUNT_DISTINCT_APPROX;
+  }
+
+  /**
+   * @param aggregateType
+   *          the type of aggregate
+   * @return true if partial aggregates of this type, calculated over different sets of rows, can be merged. The first,
+   *         last and concatenation aggregates depend on the order of the rows and can't be merged.
+   */
+  public static boolean isMergeable( int aggregateType ) {
+    switch ( aggregateType ) {
+      case TYPE_GROUP_FIRST:
+      case TYPE_GROUP_LAST:
+      case TYPE_GROUP_FIRST_INCL_NULL:
+      case TYPE_GROUP_LAST_INCL_NULL:
+      case TYPE_GROUP_CONCAT_COMMA:
+      case TYPE_GROUP_CONCAT_STRING:
+        return false;
+      default:
+        return true;
+    }
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
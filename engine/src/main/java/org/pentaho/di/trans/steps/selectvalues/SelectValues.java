@@ -36,6 +36,9 @@ import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.batch.DictionaryColumnVector;
+import org.pentaho.di.core.row.batch.ObjectColumnVector;
+import org.pentaho.di.core.row.batch.RowBatch;
 import org.pentaho.di.core.util.EnvUtil;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
@@ -307,12 +310,23 @@ public class SelectValues extends BaseStep implements StepInterface {
           valueMeta.setCurrencySymbol( change.getCurrencySymbol() );
         }
       }
+
+      if ( data.columnar ) {
+        data.columnarMeta = new boolean[ data.metanrs.length ];
+        for ( int i = 0; i < data.metanrs.length; i++ ) {
+          data.columnarMeta[ i ] = isColumnarConversion( meta.getMeta()[ i ],
+            rowMeta.getValueMeta( data.metanrs[ i ] ), data.metadataRowMeta.getValueMeta( data.metanrs[ i ] ) );
+        }
+      }
     }
 
     //
     // Change the data too
     //
     for ( int i = 0; i < data.metanrs.length; i++ ) {
+      if ( data.columnarMeta != null && data.columnarMeta[ i ] ) {
+        continue; // converted per block of rows in convertColumns()
+      }
       int index = data.metanrs[ i ];
       ValueMetaInterface fromMeta = rowMeta.getValueMeta( index );
       ValueMetaInterface toMeta = data.metadataRowMeta.getValueMeta( index );
@@ -336,27 +350,91 @@ public class SelectValues extends BaseStep implements StepInterface {
     return rowData;
   }
 
+  /**
+   * Strings converted to numbers or booleans can be converted column by column: every distinct String value in a
+   * block of rows is converted only once.
+   */
+  private boolean isColumnarConversion( SelectMetadataChange change, ValueMetaInterface fromMeta,
+                                        ValueMetaInterface toMeta ) {
+    if ( change.getType() == ValueMetaInterface.TYPE_NONE || !fromMeta.isString() || !fromMeta.isStorageNormal() ) {
+      return false;
+    }
+    switch ( toMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+      case ValueMetaInterface.TYPE_NUMBER:
+      case ValueMetaInterface.TYPE_BIGNUMBER:
+      case ValueMetaInterface.TYPE_BOOLEAN:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Change the data of the fields that are converted column by column, see {@link #isColumnarConversion}.
+   *
+   * @param rows the rows, laid out as described by data.deselectRowMeta
+   * @param size the number of rows to convert
+   * @return the converted rows
+   * @throws KettleConversionException
+   */
+  private Object[][] convertColumns( Object[][] rows, int size ) throws KettleException {
+    if ( data.columnarMeta == null || size == 0 ) {
+      return rows;
+    }
+    RowBatch batch = new RowBatch( data.deselectRowMeta, rows, size );
+    for ( int i = 0; i < data.metanrs.length; i++ ) {
+      if ( !data.columnarMeta[ i ] ) {
+        continue;
+      }
+      int index = data.metanrs[ i ];
+      ValueMetaInterface fromMeta = data.deselectRowMeta.getValueMeta( index );
+      ValueMetaInterface toMeta = data.metadataRowMeta.getValueMeta( index );
+      DictionaryColumnVector strings = (DictionaryColumnVector) batch.getColumn( index );
+
+      Object[] values = new Object[ strings.getDictionarySize() ];
+      Object nullValue = null;
+      int code = 0;
+      try {
+        for ( ; code < values.length; code++ ) {
+          values[ code ] = toMeta.convertData( fromMeta, strings.getDictionaryValue( code ) );
+        }
+        if ( strings.hasNulls() ) {
+          nullValue = toMeta.convertData( fromMeta, null );
+        }
+      } catch ( KettleValueException e ) {
+        // Report the first row holding the value that failed to convert
+        //
+        int row = 0;
+        while ( row < size - 1 && ( code < values.length
+          ? strings.isNull( row ) || strings.getCode( row ) != code : !strings.isNull( row ) ) ) {
+          row++;
+        }
+        throw new KettleConversionException( e.getMessage(), Collections.<Exception>singletonList( e ),
+          Collections.singletonList( toMeta ), rows[ row ] );
+      }
+
+      ObjectColumnVector converted = new ObjectColumnVector( toMeta, size );
+      for ( int row = 0; row < size; row++ ) {
+        converted.setObject( row, strings.isNull( row ) ? nullValue : values[ strings.getCode( row ) ] );
+      }
+      batch.setColumn( index, converted );
+    }
+    return batch.getRows();
+  }
+
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     meta = (SelectValuesMeta) smi;
     data = (SelectValuesData) sdi;
 
-    Object[] rowData = getRow(); // get row from rowset, wait for our turn, indicate busy!
-    if ( rowData == null ) { // no more input to be expected...
+    long previousLinesRead = getLinesRead();
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // get rows from rowset, wait for our turn, indicate busy!
+    if ( rows == null ) { // no more input to be expected...
 
       setOutputDone();
       return false;
     }
 
-    Object[] rowCopy = null;
-    if ( getStepMeta().isDoingErrorHandling() ) {
-      rowCopy = getInputRowMeta().cloneRow( rowData );
-    }
-
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousStep" )
-        + getInputRowMeta().getString( rowData ) );
-    }
-
     if ( first ) {
       first = false;
 
@@ -368,48 +446,68 @@ public class SelectValues extends BaseStep implements StepInterface {
       meta.getMetadataFields( data.metadataRowMeta, getStepname(), this );
     }
 
-    try {
-      Object[] outputData = rowData;
-
-      if ( data.select ) {
-        outputData = selectValues( getInputRowMeta(), outputData );
-      }
-      if ( data.deselect ) {
-        outputData = removeValues( data.selectRowMeta, outputData );
-      }
-      if ( data.metadata ) {
-        outputData = metadataValues( data.deselectRowMeta, outputData );
-      }
-
-      if ( outputData == null ) {
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+    Object[][] outputRows = new Object[ rows.length ][];
+    int nrOutputRows = 0;
+    for ( Object[] rowData : rows ) {
+      Object[] rowCopy = null;
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        rowCopy = getInputRowMeta().cloneRow( rowData );
       }
 
-      // Send the row on its way
-      //
-      putRow( data.metadataRowMeta, outputData );
       if ( log.isRowLevel() ) {
-        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextStep" )
-          + data.metadataRowMeta.getString( outputData ) );
+        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousStep" )
+          + getInputRowMeta().getString( rowData ) );
       }
 
-    } catch ( KettleException e ) {
-      if ( getStepMeta().isDoingErrorHandling() ) {
-        String field;
-        if ( e instanceof KettleConversionException ) {
-          List<ValueMetaInterface> fields = ( (KettleConversionException) e ).getFields();
-          field = fields.isEmpty() ? null : fields.get( 0 ).getName();
+      try {
+        Object[] outputData = rowData;
+
+        if ( data.select ) {
+          outputData = selectValues( getInputRowMeta(), outputData );
+        }
+        if ( data.deselect ) {
+          outputData = removeValues( data.selectRowMeta, outputData );
+        }
+        if ( data.metadata ) {
+          outputData = metadataValues( data.deselectRowMeta, outputData );
+        }
+
+        if ( outputData == null ) {
+          putRows( data.metadataRowMeta, convertColumns( outputRows, nrOutputRows ), nrOutputRows );
+          setOutputDone(); // signal end to receiver(s)
+          return false;
+        }
+
+        outputRows[ nrOutputRows++ ] = outputData;
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextStep" )
+            + data.metadataRowMeta.getString( outputData ) );
+        }
+
+      } catch ( KettleException e ) {
+        if ( getStepMeta().isDoingErrorHandling() ) {
+          String field;
+          if ( e instanceof KettleConversionException ) {
+            List<ValueMetaInterface> fields = ( (KettleConversionException) e ).getFields();
+            field = fields.isEmpty() ? null : fields.get( 0 ).getName();
+          } else {
+            field = null;
+          }
+          putError( getInputRowMeta(), rowCopy, 1, e.getMessage(), field, "SELECT001" );
         } else {
-          field = null;
+          // Pass on the rows before the failing one, as they would have been one by one
+          //
+          putRows( data.metadataRowMeta, convertColumns( outputRows, nrOutputRows ), nrOutputRows );
+          throw e;
         }
-        putError( getInputRowMeta(), rowCopy, 1, e.getMessage(), field, "SELECT001" );
-      } else {
-        throw e;
       }
     }
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    // Send the rows on their way
+    //
+    putRows( data.metadataRowMeta, convertColumns( outputRows, nrOutputRows ), nrOutputRows );
+
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
       logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + getLinesRead() );
     }
 
@@ -439,6 +537,12 @@ public class SelectValues extends BaseStep implements StepInterface {
         data.metadata = true;
       }
 
+      // Converting column by column moves conversion errors away from the row, so only do it without error handling
+      //
+      data.columnar = "Y".equalsIgnoreCase( getVariable( Const.KETTLE_COLUMNAR_ROW_BATCHES, "N" ) )
+        && !getStepMeta().isDoingErrorHandling() && !log.isRowLevel();
+      data.columnarMeta = null;
+
       boolean atLeastOne = data.select || data.deselect || data.metadata;
       if ( !atLeastOne ) {
         setErrors( 1 );
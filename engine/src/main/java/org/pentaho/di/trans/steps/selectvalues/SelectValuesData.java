@@ -50,4 +50,7 @@ public class SelectValuesData extends BaseStepData implements StepDataInterface
   public boolean select; // "normal" selection of fields.
   public boolean deselect; // de-select mode
   public boolean metadata; // change meta-data (rename & change length/precision)
+
+  public boolean columnar; // convert the meta-data of blocks of rows column by column
+  public boolean[] columnarMeta; // the meta-data changes that are converted column by column
 }
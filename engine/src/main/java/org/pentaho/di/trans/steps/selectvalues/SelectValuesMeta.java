@@ -817,6 +817,11 @@ public class SelectValuesMeta extends BaseStepMeta implements StepMetaInterface
     return new SelectValuesData();
   }
 
+  @Override
+  public boolean supportsStepFusion() {
+    return true;
+  }
+
   /**
    * @return the selectingAndSortingUnspecifiedFields
    */
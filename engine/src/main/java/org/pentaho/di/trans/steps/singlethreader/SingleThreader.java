@@ -220,7 +220,7 @@ public class SingleThreader extends BaseStep implements StepInterface {
     singleThreaderData.mappingTrans.startThreads();
 
     // Create the executor...
-    singleThreaderData.executor = new SingleThreadedTransExecutor( singleThreaderData.mappingTrans );
+    singleThreaderData.executor = SingleThreadedTransExecutor.createExecutor( singleThreaderData.mappingTrans );
 
     // We launch the transformation in the processRow when the first row is received.
     // This will allow the correct variables to be passed.
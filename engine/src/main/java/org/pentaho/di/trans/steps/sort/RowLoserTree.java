@@ -0,0 +1,123 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.Comparator;
+
+/**
+ * A tournament (loser) tree to merge k sorted runs of rows. Every internal node remembers the loser of the match
+ * played there, the overall winner is kept at the top. Replacing the winner with the next row of its run only replays
+ * the matches on the path from that run to the top: log2(k) comparisons per row, independent of the number of runs
+ * that are still open.
+ * <p>
+ * On equal rows the run with the lowest number wins, so rows keep the order of the runs they come from.
+ */
+public class RowLoserTree {
+  private final Comparator<Object[]> comparator;
+  private final Object[][] heads; // the current row of every run, null once the run is exhausted
+  private final int[] tree; // tree[0] is the winner, tree[1..k-1] the losers of the matches
+
+  /**
+   * @param comparator
+   *          the sort order
+   * @param heads
+   *          the first row of every run, null for an empty run
+   */
+  public RowLoserTree( Comparator<Object[]> comparator, Object[][] heads ) {
+    this.comparator = comparator;
+    this.heads = heads;
+    this.tree = new int[ Math.max( 1, heads.length ) ];
+    if ( heads.length == 0 ) {
+      tree[ 0 ] = -1;
+    } else {
+      tree[ 0 ] = play( 1 );
+    }
+  }
+
+  /**
+   * The leaves (runs) are numbered k..2k-1, the internal nodes 1..k-1 and node n plays the winners of 2n and 2n+1.
+   *
+   * @return the winner of the sub tree at the given node
+   */
+  private int play( int node ) {
+    int k = heads.length;
+    if ( node >= k ) {
+      return node - k;
+    }
+    int left = play( 2 * node );
+    int right = play( 2 * node + 1 );
+    if ( beats( left, right ) ) {
+      tree[ node ] = right;
+      return left;
+    } else {
+      tree[ node ] = left;
+      return right;
+    }
+  }
+
+  private boolean beats( int a, int b ) {
+    if ( heads[ a ] == null ) {
+      return false;
+    }
+    if ( heads[ b ] == null ) {
+      return true;
+    }
+    int cmp = comparator.compare( heads[ a ], heads[ b ] );
+    return cmp < 0 || ( cmp == 0 && a < b );
+  }
+
+  /**
+   * @return the number of the run holding the smallest row, -1 when all runs are exhausted
+   */
+  public int getWinner() {
+    int winner = tree[ 0 ];
+    return winner < 0 || heads[ winner ] == null ? -1 : winner;
+  }
+
+  /**
+   * @return the smallest row, null when all runs are exhausted
+   */
+  public Object[] getWinnerRow() {
+    int winner = getWinner();
+    return winner < 0 ? null : heads[ winner ];
+  }
+
+  /**
+   * Replace the smallest row with the next row of the same run and look for the new winner.
+   *
+   * @param row
+   *          the next row of the winning run, null if the run is exhausted
+   */
+  public void replaceWinner( Object[] row ) {
+    int winner = tree[ 0 ];
+    heads[ winner ] = row;
+    for ( int node = ( winner + heads.length ) >>> 1; node > 0; node >>>= 1 ) {
+      if ( beats( tree[ node ], winner ) ) {
+        int loser = winner;
+        winner = tree[ node ];
+        tree[ node ] = loser;
+      }
+    }
+    tree[ 0 ] = winner;
+  }
+}
@@ -31,18 +31,26 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.compress.CompressionInputStream;
+import org.pentaho.di.core.compress.CompressionOutputStream;
+import org.pentaho.di.core.compress.CompressionProviderFactory;
+import org.pentaho.di.core.compress.gzip.GZIPCompressionProvider;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.vfs.KettleVFS;
@@ -64,6 +72,8 @@ import org.pentaho.di.trans.step.StepMetaInterface;
 public class SortRows extends BaseStep implements StepInterface {
   private static Class<?> PKG = SortRows.class; // for i18n
 
+  private static final String GZIP_COMPRESSION = "GZip";
+
   private SortRowsMeta meta;
   private SortRowsData data;
 
@@ -87,29 +97,36 @@ public class SortRows extends BaseStep implements StepInterface {
     // Save row
     data.buffer.add( r );
 
-    // Check the free memory every 1000 rows...
+    // With a memory budget we know when the buffer is too big, otherwise check the free memory every 1000 rows
     //
-    data.freeCounter++;
-    if ( data.sortSize <= 0 && data.freeCounter >= 1000 ) {
-      data.freeMemoryPct = Const.getPercentageFreeMemory();
-      data.freeCounter = 0;
+    boolean outOfMemory;
+    if ( data.memory.isLimited() ) {
+      long rowSize = RowDataUtil.estimateRowSize( r );
+      data.bufferBytes += rowSize;
+      outOfMemory = !data.memory.allocate( rowSize ) && data.buffer.size() >= data.minSortSize;
+    } else {
+      data.freeCounter++;
+      if ( data.sortSize <= 0 && data.freeCounter >= 1000 ) {
+        data.freeMemoryPct = Const.getPercentageFreeMemory();
+        data.freeCounter = 0;
 
-      if ( log.isDetailed() ) {
-        data.memoryReporting++;
-        if ( data.memoryReporting >= 10 ) {
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
+        if ( log.isDetailed() ) {
+          data.memoryReporting++;
+          if ( data.memoryReporting >= 10 ) {
+            if ( log.isDetailed() ) {
+              logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
+            }
+            data.memoryReporting = 0;
           }
-          data.memoryReporting = 0;
         }
       }
+      outOfMemory =
+          data.freeMemoryPctLimit > 0 && data.freeMemoryPct < data.freeMemoryPctLimit
+              && data.buffer.size() >= data.minSortSize;
     }
 
     // Buffer is full: sort & dump to disk
-    boolean doSort = data.buffer.size() == data.sortSize;
-    doSort |=
-        data.freeMemoryPctLimit > 0 && data.freeMemoryPct < data.freeMemoryPctLimit
-            && data.buffer.size() >= data.minSortSize;
+    boolean doSort = data.buffer.size() == data.sortSize || outOfMemory;
     if ( log.isDebug() ) {
       this.logDebug( BaseMessages.getString( PKG, "SortRows.Debug.StartDumpToDisk", data.freeMemoryPct, data.buffer
           .size() ) );
@@ -128,93 +145,62 @@ public class SortRows extends BaseStep implements StepInterface {
       return;
     }
 
-    // First sort the rows in buffer[]
-    quickSort( data.buffer );
-
-    // Then write them to disk...
-    DataOutputStream dos;
-    GZIPOutputStream gzos;
-    int p;
-
+    final List<Object[]> rows = data.buffer;
+    final FileObject fileObject;
     try {
-      FileObject fileObject =
+      fileObject =
           KettleVFS.createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ),
               getTransMeta() );
+    } catch ( Exception e ) {
+      throw new KettleException( "Error processing temp-file!", e );
+    }
+    data.files.add( fileObject ); // Remember the files!
 
-      data.files.add( fileObject ); // Remember the files!
-      OutputStream outputStream = KettleVFS.getOutputStream( fileObject, false );
-      if ( data.compressFiles ) {
-        gzos = new GZIPOutputStream( new BufferedOutputStream( outputStream ) );
-        dos = new DataOutputStream( gzos );
-      } else {
-        dos = new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
-        gzos = null;
-      }
+    if ( data.sortSize < 0 && !data.memory.isLimited() ) {
+      if ( rows.size() > data.minSortSize ) {
+        data.minSortSize = rows.size(); // if we did it once, we can do
+                                        // it again.
 
-      // Just write the data, nothing else
-      List<Integer> duplicates = new ArrayList<Integer>();
-      Object[] previousRow = null;
-      if ( meta.isOnlyPassingUniqueRows() ) {
-        int index = 0;
-        while ( index < data.buffer.size() ) {
-          Object[] row = data.buffer.get( index );
-          if ( previousRow != null ) {
-            int result = data.outputRowMeta.compare( row, previousRow, data.fieldnrs );
-            if ( result == 0 ) {
-              duplicates.add( index );
-              if ( log.isRowLevel() ) {
-                logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
-                    .getString( row ) ) );
-              }
-            }
-          }
-          index++;
-          previousRow = row;
-        }
+        // Memory usage goes up over time, even with garbage collection
+        // We need pointers, file handles, etc.
+        // As such, we're going to lower the min sort size a bit
+        //
+        data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
       }
+    }
 
-      // How many records do we have left?
-      data.bufferSizes.add( data.buffer.size() - duplicates.size() );
-
-      int duplicatesIndex = 0;
-      for ( p = 0; p < data.buffer.size(); p++ ) {
-        boolean skip = false;
-        if ( duplicatesIndex < duplicates.size() ) {
-          if ( p == duplicates.get( duplicatesIndex ) ) {
-            skip = true;
-            duplicatesIndex++;
-          }
-        }
-        if ( !skip ) {
-          data.outputRowMeta.writeData( dos, data.buffer.get( p ) );
-        }
+    if ( data.parallelRuns > 0 ) {
+      // Sort and write the run in the background while we keep on reading rows in a new buffer.
+      // Wait for the oldest run if there are too many in progress, every one of them holds a full buffer.
+      //
+      waitForRuns( data.parallelRuns - 1 );
+      if ( data.runPool == null ) {
+        data.runPool = new ForkJoinPool( data.parallelRuns );
       }
-
-      if ( data.sortSize < 0 ) {
-        if ( data.buffer.size() > data.minSortSize ) {
-          data.minSortSize = data.buffer.size(); // if we did it once, we can do
-                                                 // it again.
-
-          // Memory usage goes up over time, even with garbage collection
-          // We need pointers, file handles, etc.
-          // As such, we're going to lower the min sort size a bit
-          //
-          data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
+      data.pendingRuns.add( data.runPool.submit( new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return writeRun( rows, fileObject );
         }
+      } ) );
+      data.pendingRunBytes.add( data.bufferBytes );
+      data.buffer = new ArrayList<Object[]>( Math.max( 5000, rows.size() ) );
+    } else {
+      quickSort( rows );
+      try {
+        data.bufferSizes.add( writeRun( rows, fileObject ) );
+      } catch ( Exception e ) {
+        throw new KettleException( "Error processing temp-file!", e );
       }
-
       // Clear the list
-      data.buffer.clear();
-
-      // Close temp-file
-      dos.close(); // close data stream
-      if ( gzos != null ) {
-        gzos.close(); // close gzip stream
-      }
-      outputStream.close(); // close file stream
+      rows.clear();
+      data.memory.release( data.bufferBytes );
+    }
+    data.bufferBytes = 0L;
 
-      // How much memory do we have left?
-      //
+    // How much memory do we have left?
+    //
+    if ( !data.memory.isLimited() ) {
       data.freeMemoryPct = Const.getPercentageFreeMemory();
       data.freeCounter = 0;
       if ( data.sortSize <= 0 ) {
@@ -222,69 +208,213 @@ public class SortRows extends BaseStep implements StepInterface {
           logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
         }
       }
-
-    } catch ( Exception e ) {
-      throw new KettleException( "Error processing temp-file!", e );
     }
 
     data.getBufferIndex = 0;
   }
 
-  private DataInputStream getDataInputStream( GZIPInputStream gzipInputStream ) {
-    DataInputStream result = new DataInputStream( gzipInputStream );
-    data.gzis.add( gzipInputStream );
-    return result;
-  }
-
-  // get sorted rows from available files in iterative manner.
-  // that means call to this method will continue to return rows
-  // till all temp files will not be read to the end.
-  Object[] getBuffer() throws KettleValueException {
-    Object[] retval;
+  /**
+   * Write a sorted run of rows to a temporary file, leaving out the duplicates if only unique rows are passed.
+   *
+   * @return the number of rows written
+   */
+  @VisibleForTesting
+  int writeRun( List<Object[]> rows, FileObject fileObject ) throws KettleException, IOException {
+    if ( data.parallelRuns > 0 ) {
+      sort( rows );
+    }
 
-    // Open all files at once and read one row from each file...
-    if ( data.files.size() > 0 && ( data.dis.size() == 0 || data.fis.size() == 0 ) ) {
-      if ( log.isBasic() ) {
-        logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
+    DataOutputStream dos = openOutputStream( fileObject );
+    try {
+      int written = 0;
+      Object[] previousRow = null;
+      for ( Object[] row : rows ) {
+        if ( meta.isOnlyPassingUniqueRows() && previousRow != null
+            && data.outputRowMeta.compare( row, previousRow, data.fieldnrs ) == 0 ) {
+          if ( log.isRowLevel() ) {
+            logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
+                .getString( row ) ) );
+          }
+        } else {
+          data.outputRowMeta.writeData( dos, row );
+          written++;
+        }
+        previousRow = row;
       }
+      return written;
+    } finally {
+      dos.close(); // also closes the compression and file streams
+    }
+  }
 
+  /**
+   * Wait until no more than the given number of runs are being sorted and written in the background.
+   */
+  private void waitForRuns( int maxPending ) throws KettleException {
+    while ( data.pendingRuns.size() > maxPending ) {
+      Future<Integer> run = data.pendingRuns.remove( 0 );
+      data.memory.release( data.pendingRunBytes.remove( 0 ) );
       try {
-        for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
-          FileObject fileObject = data.files.get( f );
+        data.bufferSizes.add( run.get() );
+      } catch ( ExecutionException e ) {
+        throw new KettleException( "Error processing temp-file!", e.getCause() );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new KettleException( "Error processing temp-file!", e );
+      }
+    }
+  }
+
+  private DataOutputStream openOutputStream( FileObject fileObject ) throws IOException, KettleFileException {
+    OutputStream outputStream = KettleVFS.getOutputStream( fileObject, false );
+    if ( data.compressionProvider != null ) {
+      CompressionOutputStream cos =
+          data.compressionProvider.createOutputStream( new BufferedOutputStream( outputStream, 50000 ) );
+      cos.addEntry( fileObject.getName().getBaseName(), null );
+      return new DataOutputStream( new BufferedOutputStream( cos, 50000 ) );
+    }
+    return new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
+  }
+
+  private DataInputStream openInputStream( FileObject fileObject ) throws IOException, KettleFileException {
+    InputStream fi = KettleVFS.getInputStream( fileObject );
+    data.fis.add( fi );
+    if ( data.compressionProvider != null ) {
+      CompressionInputStream cis = data.compressionProvider.createInputStream( new BufferedInputStream( fi, 50000 ) );
+      cis.nextEntry();
+      return new DataInputStream( new BufferedInputStream( cis, 50000 ) );
+    }
+    return new DataInputStream( new BufferedInputStream( fi, 50000 ) );
+  }
+
+  /**
+   * Read the next row of a temporary file.
+   *
+   * @return the row or null at the end of the file
+   */
+  private Object[] readRow( DataInputStream di ) throws KettleValueException {
+    try {
+      return data.outputRowMeta.readData( di );
+    } catch ( KettleFileException fe ) { // empty file or EOF mostly
+      return null;
+    } catch ( SocketTimeoutException e ) {
+      throw new KettleValueException( e ); // should never happen on local files
+    }
+  }
+
+  /**
+   * Open the temporary files and read the first row of every file. If there are more files than we want to have open
+   * at the same time, the oldest files are merged into bigger ones first.
+   */
+  private void openTempFiles() throws KettleException {
+    while ( data.files.size() > data.mergeWidth && !isStopped() ) {
+      mergeTempFiles( data.mergeWidth );
+    }
+
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
+    }
+    data.mergeTree = new RowLoserTree( data.rowComparator, openRuns( data.files ) );
+  }
+
+  /**
+   * Open the given files for reading.
+   *
+   * @return the first row of every file
+   */
+  private Object[][] openRuns( List<FileObject> files ) throws KettleException {
+    Object[][] heads = new Object[ files.size() ][];
+    try {
+      for ( int f = 0; f < files.size() && !isStopped(); f++ ) {
+        FileObject fileObject = files.get( f );
+        if ( log.isDetailed() ) {
           String filename = KettleVFS.getFilename( fileObject );
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
-          }
-          InputStream fi = KettleVFS.getInputStream( fileObject );
-          DataInputStream di;
-          data.fis.add( fi );
-          if ( data.compressFiles ) {
-            di = getDataInputStream( new GZIPInputStream( new BufferedInputStream( fi ) ) );
-          } else {
-            di = new DataInputStream( new BufferedInputStream( fi, 50000 ) );
-          }
-          data.dis.add( di );
+          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
+          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
+              filename, data.bufferSizes.get( f ) ) );
+        }
+        DataInputStream di = openInputStream( fileObject );
+        data.dis.add( di );
+        heads[f] = readRow( di );
+      }
+    } catch ( IOException e ) {
+      throw new KettleException( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
+    }
+    return heads;
+  }
 
-          // How long is the buffer?
-          int buffersize = data.bufferSizes.get( f );
+  /**
+   * One pass of a multi-pass merge: merge the oldest temporary files into a new one, added at the end of the list.
+   */
+  @VisibleForTesting
+  void mergeTempFiles( int nrFiles ) throws KettleException {
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.MergingTempFiles", nrFiles, data.mergeWidth ) );
+    }
+    List<FileObject> files = new ArrayList<FileObject>( data.files.subList( 0, nrFiles ) );
+    try {
+      RowLoserTree tree = new RowLoserTree( data.rowComparator, openRuns( files ) );
 
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
-                filename, buffersize ) );
-          }
+      FileObject fileObject =
+          KettleVFS.createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ),
+              getTransMeta() );
+      data.files.add( fileObject );
 
-          if ( buffersize > 0 ) {
-            Object[] row = data.outputRowMeta.readData( di );
-            data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
-          }
+      int written = 0;
+      DataOutputStream dos = openOutputStream( fileObject );
+      try {
+        for ( int f = tree.getWinner(); f >= 0 && !isStopped(); f = tree.getWinner() ) {
+          data.outputRowMeta.writeData( dos, tree.getWinnerRow() );
+          written++;
+          tree.replaceWinner( readRow( data.dis.get( f ) ) );
         }
+      } finally {
+        dos.close();
+      }
+      data.bufferSizes.add( written );
+    } catch ( IOException e ) {
+      throw new KettleException( "Error processing temp-file!", e );
+    } finally {
+      closeTempFiles();
+    }
 
-        // Sort the data row buffer
-        Collections.sort( data.tempRows, data.comparator );
-      } catch ( Exception e ) {
-        logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
+    for ( FileObject file : files ) {
+      deleteTempFile( file );
+    }
+    data.files.subList( 0, nrFiles ).clear();
+    data.bufferSizes.subList( 0, nrFiles ).clear();
+  }
+
+  private void closeTempFiles() {
+    for ( DataInputStream dis : data.dis ) {
+      BaseStep.closeQuietly( dis );
+    }
+    data.dis.clear();
+    for ( InputStream is : data.fis ) {
+      BaseStep.closeQuietly( is );
+    }
+    data.fis.clear();
+  }
+
+  private void deleteTempFile( FileObject fileToDelete ) {
+    try {
+      if ( fileToDelete != null && fileToDelete.exists() ) {
+        fileToDelete.delete();
       }
+    } catch ( FileSystemException e ) {
+      logError( e.getLocalizedMessage(), e );
+    }
+  }
+
+  // get sorted rows from available files in iterative manner.
+  // that means call to this method will continue to return rows
+  // till all temp files will not be read to the end.
+  Object[] getBuffer() throws KettleException {
+    Object[] retval;
+
+    // Open all files at once and read one row from each file...
+    if ( data.files.size() > 0 && data.mergeTree == null ) {
+      openTempFiles();
     }
 
     if ( data.files.size() == 0 ) {
@@ -297,49 +427,22 @@ public class SortRows extends BaseStep implements StepInterface {
         retval = null;
       }
     } else {
-      // read from disk processing
-
-      if ( data.rowbuffer.size() == 0 ) {
+      // read from disk processing: the merge tree knows which of the files has the smallest row
+      //
+      int smallest = data.mergeTree.getWinner();
+      if ( smallest < 0 ) {
         retval = null;
       } else {
-        // We now have "filenr" rows waiting: which one is the smallest?
-        //
-        if ( log.isRowLevel() ) {
-          for ( int i = 0; i < data.rowbuffer.size() && !isStopped(); i++ ) {
-            Object[] b = data.rowbuffer.get( i );
-            logRowlevel( BaseMessages
-                .getString( PKG, "SortRows.RowLevel.PrintRow", i, data.outputRowMeta.getString( b ) ) );
-          }
-        }
-
-        RowTempFile rowTempFile = data.tempRows.remove( 0 );
-        retval = rowTempFile.row;
-        int smallest = rowTempFile.fileNumber;
+        retval = data.mergeTree.getWinnerRow();
 
         // now get another Row for position smallest
-
-        FileObject file = data.files.get( smallest );
-        DataInputStream di = data.dis.get( smallest );
-        InputStream fi = data.fis.get( smallest );
-
-        try {
-          Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
-
-          int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
-          if ( index < 0 ) {
-            data.tempRows.add( index * ( -1 ) - 1, extra );
-          } else {
-            data.tempRows.add( index, extra );
-          }
-        } catch ( KettleFileException fe ) { // empty file or EOF mostly
-          GZIPInputStream gzfi = ( data.compressFiles ) ? data.gzis.get( smallest ) : null;
+        //
+        Object[] row = readRow( data.dis.get( smallest ) );
+        if ( row == null ) {
+          FileObject file = data.files.get( smallest );
           try {
-            di.close();
-            fi.close();
-            if ( gzfi != null ) {
-              gzfi.close();
-            }
+            data.dis.get( smallest ).close();
+            data.fis.get( smallest ).close();
             file.delete();
           } catch ( IOException e ) {
             logError( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", smallest, file.toString() ) );
@@ -347,26 +450,8 @@ public class SortRows extends BaseStep implements StepInterface {
             stopAll();
             return null;
           }
-
-          data.files.remove( smallest );
-          data.dis.remove( smallest );
-          data.fis.remove( smallest );
-
-          if ( gzfi != null ) {
-            data.gzis.remove( smallest );
-          }
-
-          // Also update all file numbers in in data.tempRows if they are larger
-          // than smallest.
-          //
-          for ( RowTempFile rtf : data.tempRows ) {
-            if ( rtf.fileNumber > smallest ) {
-              rtf.fileNumber--;
-            }
-          }
-        } catch ( SocketTimeoutException e ) {
-          throw new KettleValueException( e ); // should never happen on local files
         }
+        data.mergeTree.replaceWinner( row );
       }
     }
     return retval;
@@ -418,7 +503,6 @@ public class SortRows extends BaseStep implements StepInterface {
       // Metadata
       data.outputRowMeta = inputRowMeta.clone();
       meta.getFields( data.outputRowMeta, getStepname(), null, null, this, repository, metaStore );
-      data.comparator = new RowTemapFileComparator( data.outputRowMeta, data.fieldnrs );
 
       for ( int i = 0; i < fieldNames.length; i++ ) {
         data.fieldnrs[i] = inputRowMeta.indexOfValue( fieldNames[i] );
@@ -560,7 +644,8 @@ public class SortRows extends BaseStep implements StepInterface {
 
     data.sortSize = Const.toInt( environmentSubstitute( meta.getSortSize() ), -1 );
     data.freeMemoryPctLimit = Const.toInt( meta.getFreeMemoryLimit(), -1 );
-    if ( data.sortSize <= 0 && data.freeMemoryPctLimit <= 0 ) {
+    data.memory = createMemoryReservation();
+    if ( data.sortSize <= 0 && data.freeMemoryPctLimit <= 0 && !data.memory.isLimited() ) {
       // Prefer the memory limit as it should never fail
       //
       data.freeMemoryPctLimit = 25;
@@ -570,13 +655,20 @@ public class SortRows extends BaseStep implements StepInterface {
     //
     data.buffer = new ArrayList<Object[]>( 5000 );
 
-    // Buffer for reading from disk
-    //
-    data.rowbuffer = new ArrayList<Object[]>( 5000 );
-
     data.compressFiles = getBooleanValueOfVariable( meta.getCompressFilesVariable(), meta.getCompressFiles() );
+    data.compressionProvider = null;
+    if ( data.compressFiles ) {
+      String compression = getVariable( Const.KETTLE_SORT_ROWS_COMPRESSION, GZIP_COMPRESSION );
+      data.compressionProvider = CompressionProviderFactory.getInstance().getCompressionProviderByName( compression );
+      if ( data.compressionProvider == null || !data.compressionProvider.supportsInput()
+          || !data.compressionProvider.supportsOutput() ) {
+        logError( BaseMessages.getString( PKG, "SortRows.Error.UnknownCompression", compression ) );
+        data.compressionProvider = new GZIPCompressionProvider();
+      }
+    }
 
-    data.tempRows = new ArrayList<RowTempFile>();
+    data.parallelRuns = Math.max( 0, Const.toInt( getVariable( Const.KETTLE_SORT_ROWS_PARALLEL_RUNS ), 0 ) );
+    data.mergeWidth = Math.max( 2, Const.toInt( getVariable( Const.KETTLE_SORT_ROWS_MERGE_WIDTH ), 128 ) );
 
     data.minSortSize = 5000;
 
@@ -585,6 +677,10 @@ public class SortRows extends BaseStep implements StepInterface {
 
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( data.runPool != null ) {
+      data.runPool.shutdownNow();
+      data.runPool = null;
+    }
     clearBuffers();
     super.dispose( smi, sdi );
   }
@@ -594,31 +690,28 @@ public class SortRows extends BaseStep implements StepInterface {
     // Clean out the sort buffer
     data.buffer.clear();
     data.getBufferIndex = 0;
-    data.rowbuffer.clear();
 
-    // close any open DataInputStream objects
-    if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
-      for ( DataInputStream dis : data.dis ) {
-        BaseStep.closeQuietly( dis );
-      }
-    }
-    // close any open InputStream objects
-    if ( ( data.fis != null ) && ( data.fis.size() > 0 ) ) {
-      for ( InputStream is : data.fis ) {
-        BaseStep.closeQuietly( is );
-      }
+    // runs that are still being written in the background are of no use anymore
+    for ( Future<Integer> run : data.pendingRuns ) {
+      run.cancel( false );
     }
+    data.pendingRuns.clear();
+    data.pendingRunBytes.clear();
+
+    // give back the memory of the buffered rows
+    data.memory.releaseAll();
+    data.bufferBytes = 0L;
+
+    // close any open DataInputStream and InputStream objects
+    closeTempFiles();
+    data.mergeTree = null;
+
     // remove temp files
-    for ( int f = 0; f < data.files.size(); f++ ) {
-      FileObject fileToDelete = data.files.get( f );
-      try {
-        if ( fileToDelete != null && fileToDelete.exists() ) {
-          fileToDelete.delete();
-        }
-      } catch ( FileSystemException e ) {
-        logError( e.getLocalizedMessage(), e );
-      }
+    for ( FileObject fileToDelete : data.files ) {
+      deleteTempFile( fileToDelete );
     }
+    data.files.clear();
+    data.bufferSizes.clear();
   }
 
   /**
@@ -626,7 +719,7 @@ public class SortRows extends BaseStep implements StepInterface {
    */
   void quickSort( List<Object[]> elements ) throws KettleException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      sort( elements );
 
       long nrConversions = 0L;
       for ( ValueMetaInterface valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -650,10 +743,22 @@ public class SortRows extends BaseStep implements StepInterface {
     setOutputDone();
   }
 
+  /**
+   * Sort the rows with a parallel merge sort on the fork-join pool, this is a stable sort just like Collections.sort()
+   */
+  private void sort( List<Object[]> elements ) {
+    Object[][] rows = elements.toArray( new Object[elements.size()][] );
+    Arrays.parallelSort( rows, data.rowComparator );
+    for ( int i = 0; i < rows.length; i++ ) {
+      elements.set( i, rows[i] );
+    }
+  }
+
   private void preSortBeforeFlush() throws KettleException {
     if ( data.files.size() > 0 ) {
       // dump to dist and then read from disk
       sortExternalRows();
+      waitForRuns( 0 );
     } else {
       // sort in memory
       quickSort( data.buffer );
@@ -687,22 +792,6 @@ public class SortRows extends BaseStep implements StepInterface {
     }
   }
 
-  private class RowTemapFileComparator extends SortRowsComparator implements Comparator<RowTempFile> {
-    RowTemapFileComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
-      super( rowMeta, fieldNrs );
-    }
-
-    @Override
-    public int compare( RowTempFile o1, RowTempFile o2 ) {
-      try {
-        return rowMeta.compare( o1.row, o2.row, fieldNrs );
-      } catch ( KettleValueException e ) {
-        logError( "Error comparing rows: " + e.toString() );
-        return 0;
-      }
-    }
-  }
-
   private class RowObjectArrayComparator extends SortRowsComparator implements Comparator<Object[]> {
     RowObjectArrayComparator( RowMetaInterface rowMeta, int[] fieldNrs ) {
       super( rowMeta, fieldNrs );
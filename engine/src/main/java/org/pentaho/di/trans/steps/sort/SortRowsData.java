@@ -27,10 +27,13 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.compress.CompressionProvider;
 import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.MemoryReservation;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
 
@@ -44,23 +47,32 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int getBufferIndex;
 
   public List<InputStream> fis;
-  public List<GZIPInputStream> gzis;
   public List<DataInputStream> dis;
-  public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
-  // To store rows and file references
-  public List<RowTempFile> tempRows;
+  // The k-way merge of the temporary files
+  public RowLoserTree mergeTree;
+  public int mergeWidth; // the maximum number of files merged at once
+
+  // Sorting and writing temporary files in the background
+  public int parallelRuns;
+  public ExecutorService runPool;
+  public List<Future<Integer>> pendingRuns;
+
+  // The memory budget of the buffered rows
+  public MemoryReservation memory;
+  public long bufferBytes; // the estimated size of the rows in the buffer
+  public List<Long> pendingRunBytes; // the estimated size of the runs written in the background
 
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
   public RowMetaInterface outputRowMeta;
   public int sortSize;
   public boolean compressFiles;
+  public CompressionProvider compressionProvider;
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
-  Comparator<RowTempFile> comparator;
   Comparator<Object[]> rowComparator;
 
   public int freeCounter;
@@ -81,9 +93,11 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
 
     files = new ArrayList<FileObject>();
     fis = new ArrayList<InputStream>();
-    gzis = new ArrayList<GZIPInputStream>();
     dis = new ArrayList<DataInputStream>();
     bufferSizes = new ArrayList<Integer>();
+    pendingRuns = new ArrayList<Future<Integer>>();
+    pendingRunBytes = new ArrayList<Long>();
+    memory = MemoryReservation.unlimited();
 
     previous = null; // Heroic
   }
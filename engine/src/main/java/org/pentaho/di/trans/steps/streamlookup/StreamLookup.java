@@ -32,6 +32,9 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
+import org.pentaho.di.core.hash.OffHeapLongHashIndex;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -218,6 +221,14 @@ public class StreamLookup extends BaseStep implements StepInterface {
       rowData = getRowFrom( rowSet );
     }
 
+    long offHeapBytes = data.getOffHeapMemoryFootprint();
+    if ( offHeapBytes > 0L ) {
+      log.snap( Metrics.METRIC_STEP_OFF_HEAP_INDEX_BYTES, getStepname(), offHeapBytes );
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "StreamLookup.Log.OffHeapIndexSize", offHeapBytes ) );
+      }
+    }
+
     return true;
   }
 
@@ -319,7 +330,20 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
           Long key = keyMeta.getInteger( keyData, 0 );
           Long value = valueMeta.getInteger( valueData, 0 );
-          data.longIndex.put( key, value );
+          if ( meta.isUsingOffHeapIndex() ) {
+            if ( data.offHeapLongIndex == null ) {
+              data.offHeapLongIndex = new OffHeapLongHashIndex();
+            }
+            data.offHeapLongIndex.put( key, value );
+          } else {
+            data.longIndex.put( key, value );
+          }
+        } else if ( meta.isUsingOffHeapIndex() ) {
+          if ( data.offHeapIndex == null ) {
+            data.offHeapIndex = new OffHeapHashIndex();
+          }
+          data.offHeapIndex
+            .put( RowMeta.extractData( keyMeta, keyData ), RowMeta.extractData( valueMeta, valueData ) );
         } else {
           if ( data.hashIndex == null ) {
             data.hashIndex = new ByteArrayHashIndex( keyMeta );
@@ -348,14 +372,30 @@ public class StreamLookup extends BaseStep implements StepInterface {
         return keyValue.getValue();
       } else {
         if ( meta.isUsingIntegerPair() ) {
-          Long value = data.longIndex.get( keyMeta.getInteger( keyData, 0 ) );
+          Long value;
+          if ( meta.isUsingOffHeapIndex() ) {
+            if ( data.offHeapLongIndex == null ) {
+              return null;
+            }
+            value = data.offHeapLongIndex.get( keyMeta.getInteger( keyData, 0 ) );
+          } else {
+            value = data.longIndex.get( keyMeta.getInteger( keyData, 0 ) );
+          }
           if ( value == null ) {
             return null;
           }
           return new Object[] { value, };
         } else {
           try {
-            byte[] value = data.hashIndex.get( RowMeta.extractData( keyMeta, keyData ) );
+            byte[] value;
+            if ( meta.isUsingOffHeapIndex() ) {
+              if ( data.offHeapIndex == null ) {
+                return null;
+              }
+              value = data.offHeapIndex.get( RowMeta.extractData( keyMeta, keyData ) );
+            } else {
+              value = data.hashIndex.get( RowMeta.extractData( keyMeta, keyData ) );
+            }
             if ( value == null ) {
               return null;
             }
@@ -483,6 +523,8 @@ public class StreamLookup extends BaseStep implements StepInterface {
     data.list = null;
     data.hashIndex = null;
     data.longIndex = null;
+    data.offHeapIndex = null;
+    data.offHeapLongIndex = null;
 
     super.dispose( smi, sdi );
   }
@@ -32,6 +32,8 @@ import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
 import org.pentaho.di.core.hash.LongHashIndex;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
+import org.pentaho.di.core.hash.OffHeapLongHashIndex;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -74,6 +76,10 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
   public ByteArrayHashIndex hashIndex;
   public LongHashIndex longIndex;
 
+  /** The off-heap variants of the indexes above, allocated when the first lookup row arrives */
+  public OffHeapHashIndex offHeapIndex;
+  public OffHeapLongHashIndex offHeapLongIndex;
+
   public RowMetaInterface lookupMeta;
 
   public RowMetaInterface infoMeta;
@@ -110,4 +116,17 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
     };
   }
 
+  /**
+   * @return the number of bytes of direct memory held by the off-heap indexes
+   */
+  public long getOffHeapMemoryFootprint() {
+    long bytes = 0L;
+    if ( offHeapIndex != null ) {
+      bytes += offHeapIndex.getMemoryFootprint();
+    }
+    if ( offHeapLongIndex != null ) {
+      bytes += offHeapLongIndex.getMemoryFootprint();
+    }
+    return bytes;
+  }
 }
@@ -667,6 +667,11 @@ public class StringOperationsMeta extends BaseStepMeta implements StepMetaInterf
     return new StringOperationsData();
   }
 
+  @Override
+  public boolean supportsStepFusion() {
+    return true;
+  }
+
   @Override
   public boolean supportsErrorHandling() {
     return true;
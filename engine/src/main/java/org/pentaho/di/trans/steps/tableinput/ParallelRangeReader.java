@@ -0,0 +1,284 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableinput;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * Reads a number of range queries at the same time, each over its own connection, and hands the rows over to the
+ * step thread through a bounded queue. Every connection reads the next query as soon as it is done with the previous
+ * one, until there are no queries left.
+ */
+public class ParallelRangeReader {
+
+  /**
+   * Hands out the range queries to the connections.
+   */
+  public interface QuerySource {
+    /**
+     * @return the next range query to read or null if there are no more
+     */
+    String nextQuery() throws KettleException;
+  }
+
+  private static final Object[] END_OF_RANGE = new Object[ 0 ];
+  private static final long POLL_MILLIS = 100L;
+
+  private final BaseStep step;
+  private final DatabaseMeta databaseMeta;
+  private final QuerySource querySource;
+  private final int nrConnections;
+  private final RowMetaInterface parametersMeta;
+  private final Object[] parameters;
+  private final boolean lazyConversion;
+  private final BlockingQueue<Object[]> queue;
+
+  private final List<Database> databases = new ArrayList<>();
+  private final List<Thread> threads = new ArrayList<>();
+  private volatile RowMetaInterface rowMeta;
+  private volatile Throwable error;
+  private volatile boolean stopped;
+  private int running;
+
+  /**
+   * @param step the step reading the ranges
+   * @param databaseMeta the database to connect to
+   * @param queries the range queries, read over a connection each
+   * @param parametersMeta the metadata of the query parameters, empty if there are none
+   * @param parameters the query parameters
+   * @param lazyConversion true to read the data lazily
+   * @param queueSize the maximum number of rows waiting to be processed
+   */
+  public ParallelRangeReader( BaseStep step, DatabaseMeta databaseMeta, List<String> queries,
+                              RowMetaInterface parametersMeta, Object[] parameters, boolean lazyConversion,
+                              int queueSize ) {
+    this( step, databaseMeta, getQuerySource( queries ), queries.size(), parametersMeta, parameters, lazyConversion,
+      queueSize );
+  }
+
+  /**
+   * @param step the step reading the ranges
+   * @param databaseMeta the database to connect to
+   * @param querySource hands out the range queries
+   * @param nrConnections the number of connections to read the queries over
+   * @param parametersMeta the metadata of the query parameters, empty if there are none
+   * @param parameters the query parameters
+   * @param lazyConversion true to read the data lazily
+   * @param queueSize the maximum number of rows waiting to be processed
+   */
+  public ParallelRangeReader( BaseStep step, DatabaseMeta databaseMeta, QuerySource querySource, int nrConnections,
+                              RowMetaInterface parametersMeta, Object[] parameters, boolean lazyConversion,
+                              int queueSize ) {
+    this.step = step;
+    this.databaseMeta = databaseMeta;
+    this.querySource = querySource;
+    this.nrConnections = Math.max( 1, nrConnections );
+    this.parametersMeta = parametersMeta;
+    this.parameters = parameters;
+    this.lazyConversion = lazyConversion;
+    this.queue = new ArrayBlockingQueue<>( Math.max( 1, queueSize ) );
+  }
+
+  private static QuerySource getQuerySource( List<String> queries ) {
+    final Iterator<String> iterator = new ArrayList<>( queries ).iterator();
+    return new QuerySource() {
+      @Override
+      public String nextQuery() {
+        return iterator.hasNext() ? iterator.next() : null;
+      }
+    };
+  }
+
+  /**
+   * Opens the connections and starts reading the ranges.
+   */
+  public synchronized void start() throws KettleDatabaseException {
+    for ( int i = 0; i < nrConnections; i++ ) {
+      Database db = new Database( step, databaseMeta );
+      db.shareVariablesWith( step );
+      databases.add( db );
+      db.connect( step.getPartitionID() );
+    }
+    for ( int i = 0; i < nrConnections; i++ ) {
+      final Database db = databases.get( i );
+      Thread thread = new Thread( new Runnable() {
+        @Override
+        public void run() {
+          readRanges( db );
+        }
+      }, step.getStepname() + " - range reader " + ( i + 1 ) );
+      thread.setDaemon( true );
+      threads.add( thread );
+    }
+    running = threads.size();
+    for ( Thread thread : threads ) {
+      thread.start();
+    }
+  }
+
+  private void readRanges( Database db ) {
+    try {
+      String query = nextQuery();
+      while ( query != null && readRange( db, query ) ) {
+        query = nextQuery();
+      }
+    } catch ( Throwable e ) {
+      if ( !stopped && error == null ) {
+        error = e;
+      }
+    } finally {
+      hand( END_OF_RANGE );
+    }
+  }
+
+  private String nextQuery() throws KettleException {
+    if ( stopped ) {
+      return null;
+    }
+    synchronized ( querySource ) {
+      return querySource.nextQuery();
+    }
+  }
+
+  /**
+   * @return false if reading was stopped
+   */
+  private boolean readRange( Database db, String query ) throws KettleException {
+    ResultSet rs = db.openQuery( query, parametersMeta.isEmpty() ? null : parametersMeta,
+      parametersMeta.isEmpty() ? null : parameters, ResultSet.FETCH_FORWARD, lazyConversion );
+    try {
+      if ( rowMeta == null ) {
+        rowMeta = db.getReturnRowMeta();
+      }
+      Object[] row = db.getRow( rs, lazyConversion );
+      while ( row != null ) {
+        if ( !hand( row ) ) {
+          return false;
+        }
+        row = db.getRow( rs, lazyConversion );
+      }
+      return true;
+    } finally {
+      db.closeQuery( rs );
+    }
+  }
+
+  private boolean hand( Object[] row ) {
+    try {
+      while ( !stopped ) {
+        if ( queue.offer( row, POLL_MILLIS, TimeUnit.MILLISECONDS ) ) {
+          return true;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  /**
+   * Waits for the next row of any of the ranges.
+   *
+   * @return the next row or null when all the ranges were read or reading was stopped
+   * @throws KettleException when reading one of the ranges failed
+   */
+  public Object[] getRow() throws KettleException {
+    while ( running > 0 && !stopped && !step.isStopped() ) {
+      if ( error != null ) {
+        throw new KettleException( error );
+      }
+      Object[] row;
+      try {
+        row = queue.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+      if ( row == END_OF_RANGE ) {
+        running--;
+      } else if ( row != null ) {
+        return row;
+      }
+    }
+    if ( error != null ) {
+      throw new KettleException( error );
+    }
+    return null;
+  }
+
+  /**
+   * @return the metadata of the rows, available once the first row was returned
+   */
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * Cancels the running queries.
+   */
+  public void cancel() {
+    stopped = true;
+    for ( Database db : databases ) {
+      try {
+        db.cancelQuery();
+      } catch ( KettleDatabaseException e ) {
+        step.logError( "Unable to cancel the range query", e );
+      }
+    }
+  }
+
+  /**
+   * Stops reading and closes the connections.
+   */
+  public synchronized void close() {
+    if ( running > 0 ) {
+      cancel();
+    }
+    stopped = true;
+    for ( Thread thread : threads ) {
+      try {
+        thread.join();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    for ( Database db : databases ) {
+      db.disconnect();
+    }
+    threads.clear();
+    databases.clear();
+  }
+}
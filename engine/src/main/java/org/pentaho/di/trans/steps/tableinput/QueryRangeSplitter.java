@@ -0,0 +1,152 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableinput;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.pentaho.di.core.database.DatabaseMeta;
+
+/**
+ * Splits a query in range queries on a numeric column so that the ranges can be read in parallel. The query is
+ * wrapped in a sub-query and every range adds a condition on the split column, the first range also reads the rows
+ * where the column is null. Together the ranges always return all the rows of the query, the minimum and maximum
+ * values only determine how evenly they are spread.
+ */
+public class QueryRangeSplitter {
+
+  static final String ALIAS = "pdi_range";
+
+  /** A query on a single table: SELECT ... FROM table [alias] [WHERE ...] [ORDER BY ...] */
+  private static final Pattern SINGLE_TABLE = Pattern.compile(
+    "^\\s*SELECT\\s.+?\\sFROM\\s+([\\w$#\".`\\[\\]]+)(?:\\s+(?:AS\\s+)?(?!WHERE\\b|ORDER\\b)\\w+)?"
+      + "\\s*(?:WHERE\\s.*|ORDER\\s+BY\\s.*)?$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL );
+
+  private static final Pattern TRAILING_ORDER_BY =
+    Pattern.compile( "\\s+ORDER\\s+BY\\s+[^()]*$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL );
+
+  private final DatabaseMeta databaseMeta;
+  private final String sql;
+  private final String column;
+
+  /**
+   * @param databaseMeta the database the query runs on
+   * @param sql the query to split
+   * @param column the numeric column to split the query on, as it is named in the result of the query
+   */
+  public QueryRangeSplitter( DatabaseMeta databaseMeta, String sql, String column ) {
+    this.databaseMeta = databaseMeta;
+    this.sql = removeOrderBy( sql );
+    this.column = databaseMeta.quoteField( column );
+  }
+
+  /**
+   * @return the query returning the minimum and maximum value of the split column
+   */
+  public String getMinMaxQuery() {
+    return "SELECT MIN(" + column + "), MAX(" + column + ") FROM (" + sql + ") " + ALIAS;
+  }
+
+  /**
+   * Splits the query in ranges of about the same width between the minimum and maximum value.
+   *
+   * @param min the minimum value of the split column
+   * @param max the maximum value of the split column
+   * @param ranges the number of ranges wanted
+   * @param integer true if the column only contains whole numbers, ranges are split on whole numbers as well
+   * @return the range queries, less than asked for when there are not enough distinct values
+   */
+  public List<String> getRangeQueries( BigDecimal min, BigDecimal max, int ranges, boolean integer ) {
+    List<BigDecimal> boundaries = new ArrayList<>();
+    BigDecimal width = max.subtract( min );
+    for ( int i = 1; i < ranges; i++ ) {
+      BigDecimal boundary = min.add( width.multiply( BigDecimal.valueOf( i ) )
+        .divide( BigDecimal.valueOf( ranges ), MathContext.DECIMAL64 ) );
+      if ( integer ) {
+        boundary = boundary.setScale( 0, RoundingMode.CEILING );
+      }
+      if ( boundary.compareTo( min ) > 0 && ( boundaries.isEmpty()
+        || boundary.compareTo( boundaries.get( boundaries.size() - 1 ) ) > 0 ) ) {
+        boundaries.add( boundary );
+      }
+    }
+
+    List<String> queries = new ArrayList<>();
+    for ( int i = 0; i <= boundaries.size(); i++ ) {
+      queries.add( getRangeQuery( i == 0 ? null : boundaries.get( i - 1 ),
+        i == boundaries.size() ? null : boundaries.get( i ) ) );
+    }
+    return queries;
+  }
+
+  /**
+   * Gets the query for one range of the split column.
+   *
+   * @param from the lowest value of the range or null for the first range, which also reads the nulls
+   * @param to the value right after the range or null for the last range
+   * @return the range query, the original query if the range is both the first and the last one
+   */
+  public String getRangeQuery( BigDecimal from, BigDecimal to ) {
+    if ( from == null && to == null ) {
+      return sql;
+    }
+    String prefix = "SELECT * FROM (" + sql + ") " + ALIAS + " WHERE ";
+    if ( from == null ) {
+      return prefix + column + " < " + to.toPlainString() + " OR " + column + " IS NULL";
+    }
+    if ( to == null ) {
+      return prefix + column + " >= " + from.toPlainString();
+    }
+    return prefix + column + " >= " + from.toPlainString() + " AND " + column + " < " + to.toPlainString();
+  }
+
+  /**
+   * Finds the table a query reads from, for a query on a single table.
+   *
+   * @return the name of the table without quotes or schema or null if the query reads from more than one table
+   */
+  public static String getTableName( String sql ) {
+    if ( sql == null ) {
+      return null;
+    }
+    Matcher matcher = SINGLE_TABLE.matcher( sql );
+    if ( !matcher.matches() ) {
+      return null;
+    }
+    String table = matcher.group( 1 );
+    table = table.substring( table.lastIndexOf( '.' ) + 1 );
+    return table.replaceAll( "[\"`\\[\\]]", "" );
+  }
+
+  /**
+   * The order of the rows is lost when reading ranges in parallel and some databases don't allow sorted sub-queries.
+   */
+  static String removeOrderBy( String sql ) {
+    return TRAILING_ORDER_BY.matcher( sql.trim() ).replaceFirst( "" );
+  }
+}
@@ -22,10 +22,17 @@
 
 package org.pentaho.di.trans.steps.tableinput;
 
+import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.RowMetaAndData;
@@ -39,6 +46,8 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.cluster.DynamicInputSplits;
+import org.pentaho.di.trans.cluster.InputSplit;
 import org.pentaho.di.trans.step.*;
 
 /**
@@ -136,10 +145,20 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
           return false; // stop immediately, nothing to do here.
         }
 
-        boolean success = doQuery( parametersMeta, parameters );
+        boolean success;
+        if ( meta.isParallelRead() && !meta.isExecuteEachInputRow() ) {
+          success = startParallelRead( parametersMeta, parameters );
+        } else {
+          success = doQuery( parametersMeta, parameters );
+        }
         if ( !success ) {
           return false;
         }
+        if ( data.rangeReader != null ) {
+          return readRangeRow();
+        }
+      } else if ( data.rangeReader != null ) {
+        return readRangeRow();
       } else {
         if ( data.thisrow != null ) { // We can expect more rows
 
@@ -220,16 +239,22 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
     }
   }
 
-  private boolean doQuery( RowMetaInterface parametersMeta, Object[] parameters ) throws KettleDatabaseException {
-    boolean success = true;
-
-    // Open the query with the optional parameters received from the source steps.
-    String sql = null;
+  private String getSQL() {
     if ( meta.isVariableReplacementActive() ) {
-      sql = environmentSubstitute( meta.getSQL() );
+      return environmentSubstitute( meta.getSQL() );
     } else {
-      sql = meta.getSQL();
+      return meta.getSQL();
     }
+  }
+
+  private boolean doQuery( RowMetaInterface parametersMeta, Object[] parameters ) throws KettleDatabaseException {
+    // Open the query with the optional parameters received from the source steps.
+    return doQuery( getSQL(), parametersMeta, parameters );
+  }
+
+  private boolean doQuery( String sql, RowMetaInterface parametersMeta, Object[] parameters )
+    throws KettleDatabaseException {
+    boolean success = true;
 
     if ( log.isDetailed() ) {
       logDetailed( BaseMessages.getString( PKG, "TableInput.Log.SqlQuery", sql ) );
@@ -270,12 +295,323 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
     return success;
   }
 
+  /**
+   * Splits the query in ranges of the split column: one range per connection of every step copy. This copy reads its
+   * own ranges, over extra connections if there is more than one. When the query can't be split the first copy reads
+   * everything. With dynamic input splits in a cluster the ranges are handed out by the master instead.
+   *
+   * @return false if the query couldn't be opened
+   */
+  private boolean startParallelRead( RowMetaInterface parametersMeta, Object[] parameters ) throws KettleException {
+    int connections = Math.max( 1, Const.toInt( environmentSubstitute( meta.getParallelConnections() ), 1 ) );
+    if ( getTransMeta().isUsingUniqueConnections() && connections > 1 ) {
+      logBasic( BaseMessages.getString( PKG, "TableInput.Log.ParallelReadUniqueConnections" ) );
+      connections = 1;
+    }
+
+    int clusterCopies = getUniqueStepCountAcrossSlaves();
+    if ( DynamicInputSplits.isEnabled( this ) && clusterCopies * connections > 1 ) {
+      SplitDomain domain = getSharedSplitDomain( parametersMeta, parameters );
+      if ( domain != null && domain.isWholeNumbers() ) {
+        long start = domain.min.longValueExact();
+        long end = domain.max.longValueExact() + 1;
+        long minChunkSize = Math.max( 1L, ( end - start ) / ( 16L * clusterCopies * connections ) );
+        DynamicInputSplits splits = DynamicInputSplits.create( this, start, end, minChunkSize, connections );
+        if ( splits != null ) {
+          return startDynamicRead( splits, domain, connections, parametersMeta, parameters );
+        }
+      } else if ( domain != null ) {
+        logBasic( BaseMessages.getString( PKG, "TableInput.Log.DynamicSplitsNeedInteger", domain.column ) );
+      }
+    }
+
+    List<String> ranges = getCopyRangeQueries( parametersMeta, parameters, connections );
+    if ( ranges.isEmpty() ) {
+      return true; // nothing to read, data.thisrow stays null
+    }
+    if ( ranges.size() == 1 ) {
+      return doQuery( ranges.get( 0 ), parametersMeta, parameters );
+    }
+
+    if ( log.isDetailed() ) {
+      for ( String range : ranges ) {
+        logDetailed( BaseMessages.getString( PKG, "TableInput.Log.SqlQuery", range ) );
+      }
+    }
+    data.rangeReader = new ParallelRangeReader( this, meta.getDatabaseMeta(), new ArrayList<>( ranges ),
+      parametersMeta, parameters, meta.isLazyConversionActive(), getTransMeta().getSizeRowset() );
+    data.rangeReader.start();
+    return true;
+  }
+
+  /**
+   * Reads the ranges the master of the cluster hands out, as long as there are any left. The connections of every
+   * copy ask for the next range as soon as they are done with the previous one.
+   */
+  private boolean startDynamicRead( DynamicInputSplits splits, SplitDomain domain, int connections,
+    RowMetaInterface parametersMeta, Object[] parameters ) throws KettleException {
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "TableInput.Log.DynamicRead", domain.column, domain.min, domain.max ) );
+    }
+
+    data.rangeReader = new ParallelRangeReader( this, meta.getDatabaseMeta(),
+      getDynamicQuerySource( splits, domain.splitter ), connections, parametersMeta, parameters,
+      meta.isLazyConversionActive(), getTransMeta().getSizeRowset() );
+    data.rangeReader.start();
+    return true;
+  }
+
+  /**
+   * Turns the chunks of the split column the master hands out into range queries. The first and last range also read
+   * the values outside of the domain: the nulls and the rows added since the domain was determined.
+   *
+   * @param splits
+   *          the chunks of the split column, between its minimum value and its maximum value plus one
+   * @param splitter
+   *          the splitter of the query on the split column
+   * @return the source of the range queries, until the master has no chunks left
+   */
+  @VisibleForTesting
+  ParallelRangeReader.QuerySource getDynamicQuerySource( final DynamicInputSplits splits,
+    final QueryRangeSplitter splitter ) {
+    return new ParallelRangeReader.QuerySource() {
+      @Override
+      public String nextQuery() throws KettleException {
+        InputSplit split = splits.next();
+        if ( split == null ) {
+          return null;
+        }
+        String query = splitter.getRangeQuery( split.isFirst() ? null : BigDecimal.valueOf( split.getFrom() ),
+          split.isLast() ? null : BigDecimal.valueOf( split.getTo() ) );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "TableInput.Log.SqlQuery", query ) );
+        }
+        return query;
+      }
+    };
+  }
+
+  /**
+   * Gets the ranges this copy reads. The ranges are split over the copies of the step in this transformation, all
+   * copies use the same split domain so that together they read every row exactly once. Without dynamic input splits
+   * the step copies on other slave servers of a cluster read all the rows as well, like they do without parallel
+   * reading: they can't agree on the domain.
+   *
+   * @param connections
+   *          the number of connections of every copy
+   * @return the range queries to read, empty if there is nothing to read for this copy
+   */
+  @VisibleForTesting
+  List<String> getCopyRangeQueries( RowMetaInterface parametersMeta, Object[] parameters, int connections )
+    throws KettleException {
+    int copies = Math.max( 1, getTrans().findStepInterfaces( getStepname() ).size() );
+    int copyNr = getCopy();
+
+    SplitDomain domain = copies * connections > 1 ? getSharedSplitDomain( parametersMeta, parameters ) : null;
+    List<String> ranges = getRangeQueries( domain, copies * connections );
+    if ( ranges.size() == 1 ) {
+      // No split: the first copy reads everything
+      //
+      return copyNr == 0 ? ranges : Collections.<String>emptyList();
+    }
+
+    // Every copy reads the same number of ranges, the last one possibly less
+    //
+    int perCopy = ( ranges.size() + copies - 1 ) / copies;
+    return ranges.subList( Math.min( ranges.size(), copyNr * perCopy ),
+      Math.min( ranges.size(), ( copyNr + 1 ) * perCopy ) );
+  }
+
+  /**
+   * Splits the query in ranges between the minimum and maximum value of the split column.
+   *
+   * @return the range queries or just the original query if it can't be split
+   */
+  private List<String> getRangeQueries( SplitDomain domain, int nrRanges ) {
+    List<String> ranges = new ArrayList<>();
+    if ( domain == null ) {
+      ranges.add( getSQL() );
+      return ranges;
+    }
+    ranges = domain.splitter.getRangeQueries( domain.min, domain.max, nrRanges, domain.integer );
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "TableInput.Log.ParallelRead", ranges.size(), domain.column,
+        domain.min, domain.max ) );
+    }
+    return ranges;
+  }
+
+  /**
+   * Determines the split domain once for all the copies of the step in this transformation: the first copy to get here
+   * queries it, the others wait for it and use the same one. Copies that each queried the minimum and maximum value
+   * themselves could get different values while rows are added or removed and read some rows twice or not at all.
+   *
+   * @return the split column and its range or null if the query can't be split
+   */
+  private SplitDomain getSharedSplitDomain( RowMetaInterface parametersMeta, Object[] parameters )
+    throws KettleException {
+    Map<String, Object> extensionData = getTrans().getExtensionDataMap();
+    String key = SharedSplitDomain.class.getName() + ":" + getStepname();
+    SharedSplitDomain shared;
+    synchronized ( extensionData ) {
+      shared = (SharedSplitDomain) extensionData.get( key );
+      if ( shared == null ) {
+        shared = new SharedSplitDomain();
+        extensionData.put( key, shared );
+      }
+    }
+    synchronized ( shared ) {
+      if ( !shared.determined ) {
+        shared.domain = getSplitDomain( parametersMeta, parameters );
+        shared.determined = true;
+      }
+      return shared.domain;
+    }
+  }
+
+  /**
+   * The split domain of the copies of a step, determined by the first copy that needs it.
+   */
+  private static class SharedSplitDomain {
+    private boolean determined;
+    private SplitDomain domain;
+  }
+
+  /**
+   * Determines the column to split the query on and its range. The split column is the one from the step or the
+   * numeric primary key of the table for a query on a single table.
+   *
+   * @return the split column and its range or null if the query can't be split
+   */
+  private SplitDomain getSplitDomain( RowMetaInterface parametersMeta, Object[] parameters ) throws KettleException {
+    String sql = getSQL();
+    if ( Const.toInt( environmentSubstitute( meta.getRowLimit() ), 0 ) > 0 ) {
+      return null;
+    }
+
+    String column = environmentSubstitute( meta.getSplitColumn() );
+    if ( Utils.isEmpty( column ) ) {
+      column = getPrimaryKeyColumn( sql );
+      if ( column == null ) {
+        logBasic( BaseMessages.getString( PKG, "TableInput.Log.NoSplitColumn" ) );
+        return null;
+      }
+    }
+
+    QueryRangeSplitter splitter = new QueryRangeSplitter( meta.getDatabaseMeta(), sql, column );
+    String minMaxSql = splitter.getMinMaxQuery();
+    RowMetaInterface minMaxMeta;
+    Object[] minMax;
+    try {
+      ResultSet rs = data.db.openQuery( minMaxSql, parametersMeta.isEmpty() ? null : parametersMeta,
+        parametersMeta.isEmpty() ? null : parameters, ResultSet.FETCH_FORWARD, false );
+      try {
+        minMax = data.db.getRow( rs );
+        minMaxMeta = data.db.getReturnRowMeta();
+      } finally {
+        data.db.closeQuery( rs );
+      }
+    } catch ( KettleDatabaseException e ) {
+      logError( BaseMessages.getString( PKG, "TableInput.Log.SplitColumnError", column, e.getMessage() ) );
+      return null;
+    }
+
+    ValueMetaInterface minMeta = minMaxMeta == null ? null : minMaxMeta.getValueMeta( 0 );
+    if ( minMeta == null || !minMeta.isNumeric() ) {
+      logBasic( BaseMessages.getString( PKG, "TableInput.Log.SplitColumnNotNumeric", column ) );
+      return null;
+    }
+    BigDecimal min = minMax == null ? null : minMeta.getBigNumber( minMax[ 0 ] );
+    BigDecimal max = minMax == null ? null : minMaxMeta.getValueMeta( 1 ).getBigNumber( minMax[ 1 ] );
+    if ( min == null || max == null ) {
+      // No rows: a single range reads whatever is there by the time the query runs
+      //
+      return new SplitDomain( splitter, column, BigDecimal.ZERO, BigDecimal.ZERO, true );
+    }
+    return new SplitDomain( splitter, column, min, max, minMeta.isInteger() );
+  }
+
+  /**
+   * The column a query is split on with its minimum and maximum value.
+   */
+  private static class SplitDomain {
+    private static final BigDecimal LIMIT = BigDecimal.valueOf( Long.MAX_VALUE / 4 );
+
+    private final QueryRangeSplitter splitter;
+    private final String column;
+    private final BigDecimal min;
+    private final BigDecimal max;
+    private final boolean integer;
+
+    SplitDomain( QueryRangeSplitter splitter, String column, BigDecimal min, BigDecimal max, boolean integer ) {
+      this.splitter = splitter;
+      this.column = column;
+      this.min = min;
+      this.max = max;
+      this.integer = integer;
+    }
+
+    /**
+     * @return true if the column holds whole numbers that can be handed out as ranges of longs
+     */
+    boolean isWholeNumbers() {
+      return integer && min.abs().compareTo( LIMIT ) < 0 && max.abs().compareTo( LIMIT ) < 0;
+    }
+  }
+
+  /**
+   * @return the single numeric primary key column of the table the query reads from or null if there isn't one
+   */
+  private String getPrimaryKeyColumn( String sql ) throws KettleDatabaseException {
+    String table = QueryRangeSplitter.getTableName( sql );
+    if ( table == null ) {
+      return null;
+    }
+    for ( String name : new String[] { table, table.toUpperCase(), table.toLowerCase() } ) {
+      String[] keys = data.db.getPrimaryKeyColumnNames( name );
+      if ( keys.length == 1 ) {
+        return keys[ 0 ];
+      }
+      if ( keys.length > 1 ) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private boolean readRangeRow() throws KettleException {
+    Object[] row = data.rangeReader.getRow();
+    if ( row == null ) {
+      setOutputDone(); // signal end to receiver(s)
+      return false;
+    }
+    if ( data.rowMeta == null ) {
+      data.rowMeta = data.rangeReader.getRowMeta();
+      for ( ValueMetaInterface valueMeta : data.rowMeta.getValueMetaList() ) {
+        valueMeta.setOrigin( getStepname() );
+      }
+    }
+    incrementLinesInput();
+    putRow( data.rowMeta, row ); // fill the rowset(s). (wait for empty)
+
+    if ( checkFeedback( getLinesInput() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "TableInput.Log.LineNumber", String.valueOf( getLinesInput() ) ) );
+      }
+    }
+    return true;
+  }
+
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     dbLock.lock();
     try {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "TableInput.Log.FinishedReadingQuery" ) );
       }
+      if ( data.rangeReader != null ) {
+        data.rangeReader.close();
+        data.rangeReader = null;
+      }
       try {
         closePreviousQuery();
       } catch ( KettleException e ) {
@@ -307,6 +643,9 @@ public class TableInput extends BaseDatabaseStep implements StepInterface {
         data.db.cancelQuery();
         data.isCanceled = true;
       }
+      if ( data.rangeReader != null ) {
+        data.rangeReader.cancel();
+      }
     } finally {
       dbLock.unlock();
     }
@@ -44,6 +44,7 @@ public class TableInputData extends BaseDatabaseStepData implements StepDataInte
   public RowSet rowSet;
   public boolean isCanceled;
   public StreamInterface infoStream;
+  public ParallelRangeReader rangeReader; // reads the ranges of a parallel read over extra connections
 
   public TableInputData() {
     super();
@@ -96,6 +96,18 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
 
   private RowMetaInterface cachedRowMeta;
 
+  /** Split the query in ranges of a numeric column and read them over several connections at once */
+  @Injection( name = "PARALLEL_READ" )
+  private boolean parallelRead;
+
+  /** The column to split the query on, the primary key of the table is used when empty */
+  @Injection( name = "SPLIT_COLUMN" )
+  private String splitColumn;
+
+  /** The number of connections each copy of the step reads ranges over */
+  @Injection( name = "PARALLEL_CONNECTIONS" )
+  private String parallelConnections;
+
   public TableInputMeta() {
     super();
   }
@@ -190,6 +202,9 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       variableReplacementActive = "Y".equals( XMLHandler.getTagValue( stepnode, "variables_active" ) );
       lazyConversionActive = "Y".equals( XMLHandler.getTagValue( stepnode, "lazy_conversion_active" ) );
       cachedRowMetaActive = "Y".equals( XMLHandler.getTagValue( stepnode, "cached_row_meta_active" ) );
+      parallelRead = "Y".equals( XMLHandler.getTagValue( stepnode, "parallel_read" ) );
+      splitColumn = XMLHandler.getTagValue( stepnode, "split_column" );
+      parallelConnections = XMLHandler.getTagValue( stepnode, "parallel_connections" );
       cachedRowMeta = new RowMeta( XMLHandler.getSubNode( stepnode, RowMeta.XML_META_TAG ) );
 
     } catch ( Exception e ) {
@@ -201,6 +216,9 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
     databaseMeta = null;
     sql = "SELECT <values> FROM <table name> WHERE <conditions>";
     rowLimit = "0";
+    parallelRead = false;
+    splitColumn = null;
+    parallelConnections = "1";
   }
 
   protected Database getDatabase() {
@@ -309,6 +327,9 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
     retval.append( "    " + XMLHandler.addTagValue( "variables_active", variableReplacementActive ) );
     retval.append( "    " + XMLHandler.addTagValue( "lazy_conversion_active", lazyConversionActive ) );
     retval.append( "    " + XMLHandler.addTagValue( "cached_row_meta_active", cachedRowMetaActive ) );
+    retval.append( "    " + XMLHandler.addTagValue( "parallel_read", parallelRead ) );
+    retval.append( "    " + XMLHandler.addTagValue( "split_column", splitColumn ) );
+    retval.append( "    " + XMLHandler.addTagValue( "parallel_connections", parallelConnections ) );
     storeCachedRowMeta( retval );
     return retval.toString();
   }
@@ -362,6 +383,9 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       variableReplacementActive = rep.getStepAttributeBoolean( id_step, "variables_active" );
       lazyConversionActive = rep.getStepAttributeBoolean( id_step, "lazy_conversion_active" );
       cachedRowMetaActive = rep.getStepAttributeBoolean( id_step, "cached_row_meta_active" );
+      parallelRead = rep.getStepAttributeBoolean( id_step, "parallel_read" );
+      splitColumn = rep.getStepAttributeString( id_step, "split_column" );
+      parallelConnections = rep.getStepAttributeString( id_step, "parallel_connections" );
 
       String sRowMeta = rep.getStepAttributeString( id_step, RowMeta.XML_META_TAG );
       if ( sRowMeta != null ) {
@@ -388,6 +412,9 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
       rep.saveStepAttribute( id_transformation, id_step, "variables_active", variableReplacementActive );
       rep.saveStepAttribute( id_transformation, id_step, "lazy_conversion_active", lazyConversionActive );
       rep.saveStepAttribute( id_transformation, id_step, "cached_row_meta_active", cachedRowMetaActive );
+      rep.saveStepAttribute( id_transformation, id_step, "parallel_read", parallelRead );
+      rep.saveStepAttribute( id_transformation, id_step, "split_column", splitColumn );
+      rep.saveStepAttribute( id_transformation, id_step, "parallel_connections", parallelConnections );
       if ( cachedRowMeta != null ) {
         rep.saveStepAttribute( id_transformation, id_step, RowMeta.XML_META_TAG, cachedRowMeta.getMetaXML() );
       }
@@ -613,6 +640,48 @@ public class TableInputMeta extends BaseDatabaseStepMeta implements StepMetaInte
     this.cachedRowMetaActive = cachedRowMetaActive;
   }
 
+  /**
+   * @return true if the query is split in ranges that are read in parallel
+   */
+  public boolean isParallelRead() {
+    return parallelRead;
+  }
+
+  /**
+   * @param parallelRead true to split the query in ranges that are read in parallel
+   */
+  public void setParallelRead( boolean parallelRead ) {
+    this.parallelRead = parallelRead;
+  }
+
+  /**
+   * @return the numeric column to split the query on or null to use the primary key of the table
+   */
+  public String getSplitColumn() {
+    return splitColumn;
+  }
+
+  /**
+   * @param splitColumn the numeric column to split the query on or null to use the primary key of the table
+   */
+  public void setSplitColumn( String splitColumn ) {
+    this.splitColumn = splitColumn;
+  }
+
+  /**
+   * @return the number of connections each step copy reads ranges over, can contain variables
+   */
+  public String getParallelConnections() {
+    return parallelConnections;
+  }
+
+  /**
+   * @param parallelConnections the number of connections each step copy reads ranges over
+   */
+  public void setParallelConnections( String parallelConnections ) {
+    this.parallelConnections = parallelConnections;
+  }
+
   /**
    * @return the cachedRowMetaActive
    */
@@ -67,12 +67,16 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     meta = (TableOutputMeta) smi;
     data = (TableOutputData) sdi;
 
-    Object[] r = getRow(); // this also waits for a previous step to be finished.
-    if ( r == null ) { // no more input to be expected...
+    long previousLinesRead = getLinesRead();
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // this also waits for a previous step to be finished.
+    if ( rows == null ) { // no more input to be expected...
       // truncate the table if there are no rows at all coming into this step
       if ( first && meta.truncateTable() ) {
         truncateTable();
       }
+      if ( data.batchWriter != null ) {
+        flushPipelinedBatches();
+      }
       return false;
     }
 
@@ -81,6 +85,9 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       if ( meta.truncateTable() ) {
         truncateTable();
       }
+      if ( data.batchWriter != null ) {
+        openBatchWriter();
+      }
       data.outputRowMeta = getInputRowMeta().clone();
       meta.getFields( data.outputRowMeta, getStepname(), null, null, this, repository, metaStore );
 
@@ -117,19 +124,24 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       }
     }
 
+    Object[][] outputRows = new Object[ rows.length ][];
+    int nrOutputRows = 0;
     try {
-      Object[] outputRowData = writeToTable( getInputRowMeta(), r );
-      if ( outputRowData != null ) {
-        putRow( data.outputRowMeta, outputRowData ); // in case we want it go further...
-        incrementLinesOutput();
-      }
-
-      if ( checkFeedback( getLinesRead() ) ) {
-        if ( log.isBasic() ) {
-          logBasic( "linenr " + getLinesRead() );
+      for ( Object[] r : rows ) {
+        Object[] outputRowData = writeToTable( getInputRowMeta(), r );
+        if ( outputRowData != null ) {
+          outputRows[ nrOutputRows++ ] = outputRowData;
         }
       }
+      if ( data.batchWriter != null ) {
+        processWrittenBatches();
+      }
     } catch ( KettleException e ) {
+      // The rows written before the error are sent on like they would have been one at a time
+      //
+      putRows( data.outputRowMeta, outputRows, nrOutputRows );
+      addLinesOutput( nrOutputRows );
+
       logError( "Because of an error, this step can't continue: ", e );
       setErrors( 1 );
       stopAll();
@@ -137,6 +149,15 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       return false;
     }
 
+    putRows( data.outputRowMeta, outputRows, nrOutputRows ); // in case we want it go further...
+    addLinesOutput( nrOutputRows );
+
+    if ( checkFeedback( previousLinesRead, getLinesRead() ) ) {
+      if ( log.isBasic() ) {
+        logBasic( "linenr " + getLinesRead() );
+      }
+    }
+
     return true;
   }
 
@@ -235,6 +256,13 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       throw new KettleStepException( "The tablename is not defined (empty)" );
     }
 
+    if ( data.batchWriter != null ) {
+      // The row is passed on once the batch it is part of has been committed
+      //
+      addToPipelinedBatch( tableName, insertRowData, outputRowData );
+      return null;
+    }
+
     insertStatement = data.preparedStatements.get( tableName );
     if ( insertStatement == null ) {
       String sql =
@@ -332,16 +360,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       } else {
         data.db.clearBatch( insertStatement );
         data.db.rollback();
-        StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
-        msg.append( Const.CR );
-        msg.append( "Errors encountered (first 10):" ).append( Const.CR );
-        for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
-          Exception exception = be.getExceptionsList().get( x );
-          if ( exception.getMessage() != null ) {
-            msg.append( exception.getMessage() ).append( Const.CR );
-          }
-        }
-        throw new KettleException( msg.toString(), be );
+        throw new KettleException( getBatchErrorMessage( tableName, be ), be );
       }
     } catch ( KettleDatabaseException dbe ) {
       if ( getStepMeta().isDoingErrorHandling() ) {
@@ -427,14 +446,157 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return log.isRowLevel();
   }
 
+  private String getBatchErrorMessage( String tableName, KettleDatabaseBatchException be ) {
+    StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
+    msg.append( Const.CR );
+    msg.append( "Errors encountered (first 10):" ).append( Const.CR );
+    for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
+      Exception exception = be.getExceptionsList().get( x );
+      if ( exception.getMessage() != null ) {
+        msg.append( exception.getMessage() ).append( Const.CR );
+      }
+    }
+    return msg.toString();
+  }
+
+  private void openBatchWriter() throws KettleException {
+    if ( !data.db.getUseBatchInsert( true ) ) {
+      logBasic( BaseMessages.getString( PKG, "TableOutput.Log.PipelinedWritesDisabled" ) );
+      data.batchWriter = null;
+      return;
+    }
+    // The writers use their own connections: they should not wait for the truncate to be committed
+    //
+    if ( meta.truncateTable() ) {
+      data.db.commit( true );
+    }
+    data.batchWriter.open();
+  }
+
+  private void addToPipelinedBatch( String tableName, Object[] insertRowData, Object[] outputRowData )
+    throws KettleException {
+    TableOutputBatchWriter.Batch batch = data.pipelinedBatches.get( tableName );
+    if ( batch == null ) {
+      String sql = data.insertStatements.get( tableName );
+      if ( sql == null ) {
+        sql =
+          data.db.getInsertStatement( environmentSubstitute( meta.getSchemaName() ), tableName, data.insertRowMeta );
+        if ( log.isDetailed() ) {
+          logDetailed( "Prepared statement : " + sql );
+        }
+        data.insertStatements.put( tableName, sql );
+      }
+      batch = new TableOutputBatchWriter.Batch( tableName, sql, data.insertRowMeta, data.commitSize );
+      data.pipelinedBatches.put( tableName, batch );
+    }
+    batch.addRow( insertRowData, outputRowData );
+    if ( isRowLevel() ) {
+      logRowlevel( "Queued row: " + data.insertRowMeta.getString( insertRowData ) );
+    }
+
+    if ( batch.size() >= data.commitSize ) {
+      data.pipelinedBatches.remove( tableName );
+      writePipelinedBatch( batch );
+    }
+  }
+
+  /**
+   * Hand over a batch to the writers. If they don't take it, the rows of the batch would be lost: the step fails,
+   * unless it was stopped.
+   */
+  private void writePipelinedBatch( TableOutputBatchWriter.Batch batch ) throws KettleException {
+    if ( !data.batchWriter.write( batch ) ) {
+      if ( isStopped() ) {
+        logBasic( BaseMessages.getString( PKG, "TableOutput.Log.PipelinedBatchDropped",
+          String.valueOf( batch.size() ), batch.getTableName() ) );
+      } else {
+        throw new KettleException( BaseMessages.getString( PKG, "TableOutput.Exception.PipelinedBatchNotWritten",
+          String.valueOf( batch.size() ), batch.getTableName() ) );
+      }
+    }
+  }
+
+  /**
+   * Pass on the rows of the batches that were executed in the meantime, without waiting for the others.
+   */
+  private void processWrittenBatches() throws KettleException {
+    TableOutputBatchWriter.Batch batch;
+    while ( ( batch = data.batchWriter.poll() ) != null ) {
+      processWrittenBatch( batch );
+    }
+  }
+
+  /**
+   * Hand over the batches that are not full yet and wait until all batches are executed.
+   */
+  private void flushPipelinedBatches() throws KettleException {
+    for ( TableOutputBatchWriter.Batch batch : data.pipelinedBatches.values() ) {
+      writePipelinedBatch( batch );
+    }
+    data.pipelinedBatches.clear();
+
+    TableOutputBatchWriter.Batch batch;
+    while ( ( batch = data.batchWriter.take() ) != null ) {
+      processWrittenBatch( batch );
+    }
+  }
+
+  private void processWrittenBatch( TableOutputBatchWriter.Batch batch ) throws KettleException {
+    String tableName = batch.getTableName();
+
+    // Rows with values that could not be set on the statement never made it into the batch
+    //
+    for ( int i = 0; i < batch.getRejectedRows().size(); i++ ) {
+      Object[] row = batch.getRejectedRows().get( i );
+      KettleDatabaseException dbe = batch.getRejectedExceptions().get( i );
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        putError( data.outputRowMeta, row, 1L, dbe.toString(), null, "TOP001" );
+      } else if ( meta.ignoreErrors() ) {
+        if ( data.warnings < 20 && log.isBasic() ) {
+          logBasic( "WARNING: Couldn't insert row into table: "
+            + data.outputRowMeta.getString( row ) + Const.CR + dbe.getMessage() );
+        }
+        data.warnings++;
+      } else {
+        setErrors( getErrors() + 1 );
+        throw new KettleException( "Error inserting row into table ["
+          + tableName + "] with values: " + data.outputRowMeta.getString( row ), dbe );
+      }
+    }
+
+    if ( batch.getException() != null ) {
+      throw new KettleException( "Unexpected error writing a batch of rows into table [" + tableName + "]",
+        batch.getException() );
+    }
+
+    KettleDatabaseBatchException be = batch.getBatchException();
+    if ( be != null ) {
+      if ( getStepMeta().isDoingErrorHandling() ) {
+        processBatchException( be.toString(), be.getUpdateCounts(), be.getExceptionsList(), batch.getBatchedRows() );
+      } else {
+        throw new KettleException( getBatchErrorMessage( tableName, be ), be );
+      }
+    } else {
+      for ( Object[] row : batch.getBatchedRows() ) {
+        putRow( data.outputRowMeta, row );
+        incrementLinesOutput();
+      }
+    }
+  }
+
   private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList ) throws KettleException {
+    processBatchException( errorMessage, updateCounts, exceptionsList, data.batchBuffer );
+  }
+
+  private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList,
+    List<Object[]> batchBuffer ) throws KettleException {
     // There was an error with the commit
     // We should put all the failing rows out there...
     //
     if ( updateCounts != null ) {
       int errNr = 0;
       for ( int i = 0; i < updateCounts.length; i++ ) {
-        Object[] row = data.batchBuffer.get( i );
+        Object[] row = batchBuffer.get( i );
         if ( updateCounts[i] > 0 ) {
           // send the error foward
           putRow( data.outputRowMeta, row );
@@ -453,14 +615,14 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       // If we don't have update counts, it probably means the DB doesn't support it.
       // In this case we don't have a choice but to consider all inserted rows to be error rows.
       //
-      for ( int i = 0; i < data.batchBuffer.size(); i++ ) {
-        Object[] row = data.batchBuffer.get( i );
+      for ( int i = 0; i < batchBuffer.size(); i++ ) {
+        Object[] row = batchBuffer.get( i );
         putError( data.outputRowMeta, row, 1L, errorMessage, null, "TOP0003" );
       }
     }
 
     // Clear the buffer afterwards...
-    data.batchBuffer.clear();
+    batchBuffer.clear();
   }
 
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
@@ -494,6 +656,17 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
             && data.commitSize > 0 && !meta.isReturningGeneratedKeys()
             && !getTransMeta().isUsingUniqueConnections() && !data.useSafePoints;
 
+        // Execute the batches in the background, optionally over more than one connection
+        //
+        if ( data.batchMode && meta.isPipelinedBatchWrites() ) {
+          int nrWriters = Const.toInt( environmentSubstitute( meta.getBatchWriterConnections() ), 1 );
+          data.batchWriter = new TableOutputBatchWriter( this, data.databaseMeta, nrWriters, data.commitSize,
+            getStepMeta().isDoingErrorHandling() );
+          if ( log.isDetailed() ) {
+            logDetailed( BaseMessages.getString( PKG, "TableOutput.Log.PipelinedWrites", nrWriters ) );
+          }
+        }
+
         // Per PDI-6211 : give a warning that batch mode operation in combination with step error handling can lead to
         // incorrectly processed rows.
         if ( getStepMeta().isDoingErrorHandling() && !dbInterface.supportsErrorHandlingOnBatchUpdates() ) {
@@ -553,6 +726,12 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
 
     if ( data.db != null ) {
       try {
+        if ( data.batchWriter != null ) {
+          // Normally all batches are written by now, unless we stopped because of an error
+          //
+          data.batchWriter.close( getErrors() > 0 || isStopped() );
+          data.batchWriter = null;
+        }
         for ( String schemaTable : data.preparedStatements.keySet() ) {
           // Get a commit counter per prepared statement to keep track of separate tables, etc.
           //
@@ -0,0 +1,394 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseBatchException;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.BaseStep;
+
+/**
+ * Executes the insert batches of a Table Output step in the background. The step keeps filling the next batch while
+ * the previous one is sent to the database. Every writer thread has its own connection and commits the batches it
+ * executes, with more than one connection the batches are loaded in parallel.
+ * <p>
+ * The step hands over full batches with {@link #write(Batch)} and picks up the executed batches with {@link #poll()}
+ * or {@link #take()}. Rows are only passed on (or sent to error handling) by the step thread itself.
+ *
+ * @since 9.6
+ */
+public class TableOutputBatchWriter {
+
+  private static final long WAIT_MILLIS = 100L;
+
+  /**
+   * A batch of rows for a single table, executed and committed as a whole by one of the writer threads.
+   */
+  public static class Batch {
+    private final String tableName;
+    private final String sql;
+    private final RowMetaInterface insertRowMeta;
+    private final List<Object[]> insertRows;
+    private final List<Object[]> outputRows;
+
+    private final List<Object[]> batchedRows;
+    private final List<Object[]> rejectedRows;
+    private final List<KettleDatabaseException> rejectedExceptions;
+    private KettleDatabaseBatchException batchException;
+    private KettleException exception;
+
+    public Batch( String tableName, String sql, RowMetaInterface insertRowMeta, int capacity ) {
+      this.tableName = tableName;
+      this.sql = sql;
+      this.insertRowMeta = insertRowMeta;
+      this.insertRows = new ArrayList<>( capacity );
+      this.outputRows = new ArrayList<>( capacity );
+      this.batchedRows = new ArrayList<>( capacity );
+      this.rejectedRows = new ArrayList<>();
+      this.rejectedExceptions = new ArrayList<>();
+    }
+
+    public void addRow( Object[] insertRow, Object[] outputRow ) {
+      insertRows.add( insertRow );
+      outputRows.add( outputRow );
+    }
+
+    public int size() {
+      return insertRows.size();
+    }
+
+    public String getTableName() {
+      return tableName;
+    }
+
+    /**
+     * @return the output rows that were added to the JDBC batch, in the order of the update counts.
+     */
+    public List<Object[]> getBatchedRows() {
+      return batchedRows;
+    }
+
+    /**
+     * @return the output rows for which the values could not be set on the prepared statement.
+     */
+    public List<Object[]> getRejectedRows() {
+      return rejectedRows;
+    }
+
+    public List<KettleDatabaseException> getRejectedExceptions() {
+      return rejectedExceptions;
+    }
+
+    /**
+     * @return the exception thrown executing the batch or null if the batch was committed.
+     */
+    public KettleDatabaseBatchException getBatchException() {
+      return batchException;
+    }
+
+    /**
+     * @return an unexpected error that made the whole batch fail or null.
+     */
+    public KettleException getException() {
+      return exception;
+    }
+  }
+
+  private static final Batch END_OF_BATCHES = new Batch( null, null, null, 0 );
+
+  private final BaseStep step;
+  private final DatabaseMeta databaseMeta;
+  private final int nrConnections;
+  private final int commitSize;
+  private final boolean doingErrorHandling;
+
+  private final BlockingQueue<Batch> queue;
+  private final BlockingQueue<Batch> executed;
+  private final AtomicInteger nrPending;
+  private final List<Thread> threads;
+  private final List<Database> databases;
+
+  private volatile boolean aborted;
+
+  /**
+   * @param step
+   *          the step the rows are written for, used for logging, variables and the partition ID.
+   * @param databaseMeta
+   *          the database to connect to
+   * @param nrConnections
+   *          the number of writer threads, each with its own connection
+   * @param commitSize
+   *          the commit size of the step
+   * @param doingErrorHandling
+   *          true if the good rows of a failing batch need to be committed so that the bad ones can be sent to error
+   *          handling, false to roll back the batch.
+   */
+  public TableOutputBatchWriter( BaseStep step, DatabaseMeta databaseMeta, int nrConnections, int commitSize,
+    boolean doingErrorHandling ) {
+    this.step = step;
+    this.databaseMeta = databaseMeta;
+    this.nrConnections = Math.max( 1, nrConnections );
+    this.commitSize = commitSize;
+    this.doingErrorHandling = doingErrorHandling;
+
+    // One batch waiting per connection next to the ones being executed keeps every connection busy
+    //
+    this.queue = new ArrayBlockingQueue<>( this.nrConnections );
+    this.executed = new LinkedBlockingQueue<>();
+    this.nrPending = new AtomicInteger();
+    this.threads = new ArrayList<>( this.nrConnections );
+    this.databases = new ArrayList<>( this.nrConnections );
+  }
+
+  /**
+   * Connect to the database and start the writer threads.
+   *
+   * @throws KettleDatabaseException
+   *           in case a connection could not be made.
+   */
+  public void open() throws KettleDatabaseException {
+    for ( int i = 0; i < nrConnections; i++ ) {
+      Database db = createDatabase();
+      databases.add( db );
+      db.connect( step.getPartitionID() );
+      db.setCommit( commitSize );
+    }
+    for ( int i = 0; i < nrConnections; i++ ) {
+      final Database db = databases.get( i );
+      Thread thread = new Thread( new Runnable() {
+        @Override
+        public void run() {
+          writeBatches( db );
+        }
+      }, step.getStepname() + " - batch writer " + ( i + 1 ) );
+      thread.setDaemon( true );
+      threads.add( thread );
+      thread.start();
+    }
+  }
+
+  /**
+   * Hand over a full batch to the writers. This blocks while all connections are busy and a batch is already waiting
+   * for each of them.
+   *
+   * @param batch
+   *          the batch to execute
+   * @return false if the step was stopped or the writer aborted before the batch could be handed over.
+   */
+  public boolean write( Batch batch ) {
+    nrPending.incrementAndGet();
+    try {
+      while ( !queue.offer( batch, WAIT_MILLIS, TimeUnit.MILLISECONDS ) ) {
+        if ( aborted || step.isStopped() ) {
+          nrPending.decrementAndGet();
+          return false;
+        }
+      }
+      return true;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      nrPending.decrementAndGet();
+      return false;
+    }
+  }
+
+  /**
+   * @return the next executed batch or null if none is available right now.
+   */
+  public Batch poll() {
+    Batch batch = executed.poll();
+    if ( batch != null ) {
+      nrPending.decrementAndGet();
+    }
+    return batch;
+  }
+
+  /**
+   * Wait for the next executed batch.
+   *
+   * @return the next executed batch or null if there are no more batches pending or the step was stopped.
+   */
+  public Batch take() {
+    try {
+      while ( nrPending.get() > 0 ) {
+        Batch batch = executed.poll( WAIT_MILLIS, TimeUnit.MILLISECONDS );
+        if ( batch != null ) {
+          nrPending.decrementAndGet();
+          return batch;
+        }
+        if ( aborted || step.isStopped() ) {
+          return null;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+
+  /**
+   * @return the number of batches handed over that were not picked up yet.
+   */
+  public int getNrPending() {
+    return nrPending.get();
+  }
+
+  /**
+   * Stop the writer threads and disconnect. Batches still waiting in the queue are only executed if we don't abort.
+   *
+   * @param abort
+   *          true to drop the waiting batches and roll back the work in progress.
+   */
+  public void close( boolean abort ) {
+    if ( abort ) {
+      aborted = true;
+      queue.clear();
+    }
+    try {
+      for ( int i = 0; i < threads.size(); i++ ) {
+        queue.put( END_OF_BATCHES );
+      }
+      for ( Thread thread : threads ) {
+        thread.join();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    for ( Database db : databases ) {
+      if ( abort ) {
+        rollback( db );
+      }
+      db.disconnect();
+    }
+    threads.clear();
+    databases.clear();
+  }
+
+  Database createDatabase() {
+    Database db = new Database( step, databaseMeta );
+    db.shareVariablesWith( step );
+    return db;
+  }
+
+  private void writeBatches( Database db ) {
+    Map<String, PreparedStatement> statements = new HashMap<>();
+    Map<String, RowMetaInterface> rowMetas = new HashMap<>();
+    try {
+      while ( true ) {
+        Batch batch = queue.take();
+        if ( batch == END_OF_BATCHES ) {
+          break;
+        }
+        if ( !aborted ) {
+          executeBatch( db, statements, rowMetas, batch );
+        }
+        executed.add( batch );
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } finally {
+      for ( PreparedStatement statement : statements.values() ) {
+        try {
+          db.closePreparedStatement( statement );
+        } catch ( KettleDatabaseException e ) {
+          step.logError( "Unexpected error closing a prepared statement of the batch writer.", e );
+        }
+      }
+    }
+  }
+
+  private void executeBatch( Database db, Map<String, PreparedStatement> statements,
+    Map<String, RowMetaInterface> rowMetas, Batch batch ) {
+    PreparedStatement statement = null;
+    try {
+      statement = statements.get( batch.sql );
+      if ( statement == null ) {
+        statement = db.prepareSQL( batch.sql );
+        statements.put( batch.sql, statement );
+        // Value metadata is not guaranteed to be thread safe: each connection gets its own copy
+        //
+        rowMetas.put( batch.sql, batch.insertRowMeta.clone() );
+      }
+      RowMetaInterface rowMeta = rowMetas.get( batch.sql );
+
+      for ( int i = 0; i < batch.insertRows.size(); i++ ) {
+        try {
+          db.setValues( rowMeta, batch.insertRows.get( i ), statement );
+          statement.addBatch();
+          batch.batchedRows.add( batch.outputRows.get( i ) );
+        } catch ( KettleDatabaseException e ) {
+          batch.rejectedRows.add( batch.outputRows.get( i ) );
+          batch.rejectedExceptions.add( e );
+        }
+      }
+      if ( !batch.batchedRows.isEmpty() ) {
+        statement.executeBatch();
+      }
+      db.commit();
+      statement.clearBatch();
+    } catch ( SQLException ex ) {
+      batch.batchException = Database.createKettleDatabaseBatchException( "Error updating batch", ex );
+      try {
+        db.clearBatch( statement );
+        if ( doingErrorHandling ) {
+          db.commit( true );
+        } else {
+          db.rollback();
+        }
+      } catch ( KettleDatabaseException e ) {
+        batch.exception = e;
+      }
+    } catch ( KettleException e ) {
+      batch.exception = e;
+      rollback( db );
+    } catch ( RuntimeException e ) {
+      // Report it with the batch: the step would wait forever for the batches of a writer thread that died
+      //
+      batch.exception = new KettleException( e );
+      rollback( db );
+    }
+  }
+
+  private void rollback( Database db ) {
+    try {
+      db.rollback();
+    } catch ( KettleDatabaseException e ) {
+      step.logError( "Unexpected error rolling back the batch writer connection.", e );
+    }
+  }
+}
@@ -78,6 +78,15 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
   public int commitSize;
 
+  /** Executes the batches in the background when the writes are pipelined, null otherwise */
+  public TableOutputBatchWriter batchWriter;
+
+  /** The batch being filled per table when the writes are pipelined */
+  public Map<String, TableOutputBatchWriter.Batch> pipelinedBatches;
+
+  /** The insert statement per table when the writes are pipelined */
+  public Map<String, String> insertStatements;
+
   public TableOutputData() {
     super();
 
@@ -92,6 +101,8 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
     batchBuffer = new ArrayList<Object[]>();
     commitCounterMap = new HashMap<String, Integer>();
+    pipelinedBatches = new HashMap<String, TableOutputBatchWriter.Batch>();
+    insertStatements = new HashMap<String, String>();
 
     releaseSavepoint = true;
   }
@@ -108,6 +108,15 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
   }
   private boolean useBatchUpdate;
 
+  @Injection( name = "PIPELINED_BATCH_WRITES" )
+  public void metaSetPipelinedBatchWrites( String value ) {
+    setPipelinedBatchWrites( "Y".equalsIgnoreCase( value ) );
+  }
+  private boolean pipelinedBatchWrites;
+
+  /** The number of connections executing the batches in pipelined mode */
+  @Injection( name = "BATCH_WRITER_CONNECTIONS" )
+  private String batchWriterConnections;
 
   @Injection( name = "PARTITION_OVER_TABLES" )
   public void metaSetPartitionOverTables( String value ) {
@@ -296,6 +305,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     super(); // allocate BaseStepMeta
     useBatchUpdate = true;
     commitSize = "1000";
+    batchWriterConnections = "1";
 
     fieldStream = new String[ 0 ];
     fieldDatabase = new String[ 0 ];
@@ -447,6 +457,36 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     return useBatchUpdate;
   }
 
+  /**
+   * @return true if the batches are executed in the background while the step fills the next one. Only used in batch
+   *         update mode.
+   */
+  public boolean isPipelinedBatchWrites() {
+    return pipelinedBatchWrites;
+  }
+
+  /**
+   * @param pipelinedBatchWrites true to execute the batches in the background while the step fills the next one.
+   */
+  public void setPipelinedBatchWrites( boolean pipelinedBatchWrites ) {
+    this.pipelinedBatchWrites = pipelinedBatchWrites;
+  }
+
+  /**
+   * @return the number of connections (and threads) executing the batches in pipelined mode.
+   */
+  public String getBatchWriterConnections() {
+    return batchWriterConnections;
+  }
+
+  /**
+   * @param batchWriterConnections the number of connections (and threads) executing the batches in pipelined mode.
+   *                               With more than one connection the batches are committed independently.
+   */
+  public void setBatchWriterConnections( String batchWriterConnections ) {
+    this.batchWriterConnections = batchWriterConnections;
+  }
+
   private void readData( Node stepnode, List<? extends SharedObjectInterface> databases ) throws KettleXMLException {
     try {
       String con = XMLHandler.getTagValue( stepnode, "connection" );
@@ -457,6 +497,8 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       truncateTable = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "truncate" ) );
       ignoreErrors = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "ignore_errors" ) );
       useBatchUpdate = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_batch" ) );
+      pipelinedBatchWrites = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "pipelined_batch" ) );
+      batchWriterConnections = Const.NVL( XMLHandler.getTagValue( stepnode, "batch_writers" ), "1" );
 
       // If not present it will be false to be compatible with pre-v3.2
       specifyFields = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "specify_fields" ) );
@@ -493,6 +535,8 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     databaseMeta = null;
     tableName = "";
     commitSize = "1000";
+    pipelinedBatchWrites = false;
+    batchWriterConnections = "1";
 
     partitioningEnabled = false;
     partitioningMonthly = true;
@@ -515,6 +559,8 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     retval.append( "    " + XMLHandler.addTagValue( "truncate", truncateTable ) );
     retval.append( "    " + XMLHandler.addTagValue( "ignore_errors", ignoreErrors ) );
     retval.append( "    " + XMLHandler.addTagValue( "use_batch", useBatchUpdate ) );
+    retval.append( "    " + XMLHandler.addTagValue( "pipelined_batch", pipelinedBatchWrites ) );
+    retval.append( "    " + XMLHandler.addTagValue( "batch_writers", batchWriterConnections ) );
     retval.append( "    " + XMLHandler.addTagValue( "specify_fields", specifyFields ) );
 
     retval.append( "    " + XMLHandler.addTagValue( "partitioning_enabled", partitioningEnabled ) );
@@ -552,6 +598,8 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       truncateTable = rep.getStepAttributeBoolean( id_step, "truncate" );
       ignoreErrors = rep.getStepAttributeBoolean( id_step, "ignore_errors" );
       useBatchUpdate = rep.getStepAttributeBoolean( id_step, "use_batch" );
+      pipelinedBatchWrites = rep.getStepAttributeBoolean( id_step, "pipelined_batch" );
+      batchWriterConnections = Const.NVL( rep.getStepAttributeString( id_step, "batch_writers" ), "1" );
       specifyFields = rep.getStepAttributeBoolean( id_step, "specify_fields" );
 
       partitioningEnabled = rep.getStepAttributeBoolean( id_step, "partitioning_enabled" );
@@ -591,6 +639,8 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       rep.saveStepAttribute( id_transformation, id_step, "truncate", truncateTable );
       rep.saveStepAttribute( id_transformation, id_step, "ignore_errors", ignoreErrors );
       rep.saveStepAttribute( id_transformation, id_step, "use_batch", useBatchUpdate );
+      rep.saveStepAttribute( id_transformation, id_step, "pipelined_batch", pipelinedBatchWrites );
+      rep.saveStepAttribute( id_transformation, id_step, "batch_writers", batchWriterConnections );
       rep.saveStepAttribute( id_transformation, id_step, "specify_fields", specifyFields );
 
       rep.saveStepAttribute( id_transformation, id_step, "partitioning_enabled", partitioningEnabled );
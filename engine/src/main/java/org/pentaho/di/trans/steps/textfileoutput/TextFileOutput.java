@@ -440,7 +440,8 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       meta.setEncoding( CharsetToolkit.getDefaultSystemCharset().name() );
     }
 
-    Object[] row = getRow(); // This also waits for a row to be finished.
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // This also waits for a row to be finished.
+    Object[] row = rows == null ? null : rows[ 0 ];
 
     if ( first ) {
 
@@ -459,7 +460,15 @@ public class TextFileOutput extends BaseStep implements StepInterface {
       }
     }
 
-    return writeRowTo( row );
+    if ( rows == null ) {
+      return writeRowTo( null );
+    }
+    for ( Object[] r : rows ) {
+      if ( !writeRowTo( r ) ) {
+        return false;
+      }
+    }
+    return true;
   }
 
   protected boolean writeRowTo( Object[] row ) throws KettleException {
@@ -311,6 +311,11 @@ public class ValueMapperMeta extends BaseStepMeta implements StepMetaInterface {
     return new ValueMapperData();
   }
 
+  @Override
+  public boolean supportsStepFusion() {
+    return true;
+  }
+
   /**
    * @return Returns the fieldToUse.
    */
@@ -33,6 +33,7 @@ import org.pentaho.di.cluster.SlaveServer;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.cache.LookupCacheRegistry;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannel;
@@ -70,6 +71,12 @@ public class CarteSingleton {
     transformationMap.setSlaveServerConfig( config );
     jobMap = new JobMap();
     jobMap.setSlaveServerConfig( config );
+
+    // Transformations and jobs share the execution slots and memory of this server
+    //
+    ExecutionQueue executionQueue = new ExecutionQueue( config );
+    transformationMap.setExecutionQueue( executionQueue );
+    jobMap.setExecutionQueue( executionQueue );
     detections = new ArrayList<SlaveServerDetection>();
     socketRepository = new SocketRepository( log );
 
@@ -202,6 +209,13 @@ public class CarteSingleton {
                 }
               }
 
+              // And the shared lookup caches no transformation used for a while...
+              //
+              int nrCaches = LookupCacheRegistry.getInstance().evictIdle();
+              if ( nrCaches > 0 ) {
+                log.logDetailed( "Cleaned up " + nrCaches + " idle shared lookup cache(s)" );
+              }
+
             } finally {
               busy.set( false );
             }
@@ -185,6 +185,9 @@ public class CleanupTransServlet extends BaseHttpServlet implements CartePluginI
       boolean error = false;
 
       getTransformationMap().deallocateServerSocketPorts( transName, id );
+      if ( !Utils.isEmpty( id ) ) {
+        getTransformationMap().removeInputSplitQueues( id );
+      }
       message = BaseMessages.getString( PKG, "TransStatusServlet.Log.TransServerSocketPortsReleased", transName );
 
       if ( !onlySockets ) {
@@ -0,0 +1,248 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.owasp.encoder.Encode;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.database.ConnectionPoolStatistics;
+import org.pentaho.di.core.database.ConnectionPoolUtil;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Lists the database connection pools of the server with their usage and the time it takes to borrow a connection.
+ */
+public class ConnectionPoolServlet extends BaseHttpServlet implements CartePluginInterface {
+  private static Class<?> PKG = ConnectionPoolServlet.class; // for i18n purposes, needed by Translator2!!
+
+  private static final long serialVersionUID = 3170294573630912644L;
+
+  public static final String CONTEXT_PATH = "/kettle/connectionPools";
+
+  public static final String XML_TAG = "connection_pools";
+  public static final String XML_TAG_POOL = "connection_pool";
+
+  public ConnectionPoolServlet() {
+  }
+
+  /**
+<div id="mindtouch">
+    <h1>/kettle/connectionPools</h1>
+    <a name="GET"></a>
+    <h2>GET</h2>
+    <p>Lists the database connection pools of the server. The transformations running on the server share a pool
+  when they use the same pooled connection. For every pool the number of active, idle and waiting connections is
+  shown together with the number of borrows, timeouts and a histogram of the time it took to borrow a connection.
+  A pool that has adaptive sizing enabled shows how often it was resized.</p>
+
+    <p><b>Example Request:</b><br />
+    <pre function="syntax.xml">
+    GET /kettle/connectionPools/?xml=Y
+    </pre>
+
+    </p>
+    <h3>Parameters</h3>
+    <table class="pentaho-table">
+    <tbody>
+    <tr>
+      <th>name</th>
+      <th>description</th>
+      <th>type</th>
+    </tr>
+    <tr>
+    <td>xml</td>
+    <td>Boolean flag which sets the output format required. Use <code>Y</code> to receive XML response.</td>
+    <td>boolean, optional</td>
+    </tr>
+    </tbody>
+    </table>
+
+  <h3>Response Body</h3>
+
+  <table class="pentaho-table">
+    <tbody>
+      <tr>
+        <td align="right">element:</td>
+        <td>(custom)</td>
+      </tr>
+      <tr>
+        <td align="right">media types:</td>
+        <td>text/xml, text/html</td>
+      </tr>
+    </tbody>
+  </table>
+    <p>The list of connection pools with their statistics.</p>
+
+    <p><b>Example Response:</b></p>
+  <pre function="syntax.xml">
+  <?xml version="1.0" encoding="UTF-8"?>
+  <connection_pools>
+    <connection_pool>
+      <name>dwhdwhdb.example.com5432</name>
+      <active>10</active>
+      <idle>0</idle>
+      <max_active>10</max_active>
+      <waiting>3</waiting>
+      <borrows>5120</borrows>
+      <timeouts>2</timeouts>
+      <failures>0</failures>
+      <average_wait_ms>12.5</average_wait_ms>
+      <max_wait_ms>30000.0</max_wait_ms>
+      <wait_histogram>&lt;1ms:4800 &lt;5ms:120 &lt;10ms:40 &lt;50ms:100 &lt;100ms:40 &lt;500ms:18 &lt;1000ms:2
+        &lt;5000ms:0 &gt;5000ms:2</wait_histogram>
+      <resizes>0</resizes>
+    </connection_pool>
+  </connection_pools>
+  </pre>
+
+    <h3>Status Codes</h3>
+    <table class="pentaho-table">
+  <tbody>
+    <tr>
+      <th>code</th>
+      <th>description</th>
+    </tr>
+    <tr>
+      <td>200</td>
+      <td>Request was processed.</td>
+    </tr>
+  </tbody>
+</table>
+</div>
+  */
+  public void doGet( HttpServletRequest request, HttpServletResponse response ) throws ServletException,
+    IOException {
+    if ( isJettyMode() && !request.getContextPath().startsWith( CONTEXT_PATH ) ) {
+      return;
+    }
+
+    if ( log.isDebug() ) {
+      logDebug( toString() );
+    }
+
+    boolean useXML = "Y".equalsIgnoreCase( request.getParameter( "xml" ) );
+
+    response.setStatus( HttpServletResponse.SC_OK );
+    if ( useXML ) {
+      response.setContentType( "text/xml" );
+      response.setCharacterEncoding( Const.XML_ENCODING );
+    } else {
+      response.setContentType( "text/html;charset=UTF-8" );
+      response.setCharacterEncoding( "UTF-8" );
+    }
+
+    PrintWriter out = response.getWriter();
+    List<ConnectionPoolStatistics> pools = ConnectionPoolUtil.getPoolStatistics();
+    if ( useXML ) {
+      out.print( XMLHandler.getXMLHeader( Const.XML_ENCODING ) );
+      out.print( getXML( pools ) );
+    } else {
+      printHTML( out, pools );
+    }
+  }
+
+  static String getXML( List<ConnectionPoolStatistics> pools ) {
+    StringBuilder xml = new StringBuilder();
+    xml.append( XMLHandler.openTag( XML_TAG ) ).append( Const.CR );
+    for ( ConnectionPoolStatistics pool : pools ) {
+      xml.append( "  " ).append( XMLHandler.openTag( XML_TAG_POOL ) ).append( Const.CR );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "name", pool.getName() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "active", pool.getActive() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "idle", pool.getIdle() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "max_active", pool.getMaxActive() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "waiting", pool.getWaiting() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "borrows", pool.getBorrows() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "timeouts", pool.getTimeouts() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "failures", pool.getFailures() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "average_wait_ms", pool.getAverageWaitMillis() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "max_wait_ms", pool.getMaxWaitMillis() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "wait_histogram", pool.getWaitHistogramString() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "resizes", pool.getResizes() ) );
+      xml.append( "  " ).append( XMLHandler.closeTag( XML_TAG_POOL ) ).append( Const.CR );
+    }
+    xml.append( XMLHandler.closeTag( XML_TAG ) ).append( Const.CR );
+    return xml.toString();
+  }
+
+  private void printHTML( PrintWriter out, List<ConnectionPoolStatistics> pools ) {
+    String title = BaseMessages.getString( PKG, "ConnectionPoolServlet.Title" );
+    out.println( "<HTML>" );
+    out.println( "<HEAD>" );
+    out.println( "<TITLE>" + Encode.forHtml( title ) + "</TITLE>" );
+    out.println( "<META http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">" );
+    out.println( "</HEAD>" );
+    out.println( "<BODY>" );
+    out.println( "<H1>" + Encode.forHtml( title ) + "</H1>" );
+    if ( pools.isEmpty() ) {
+      out.println( "<H3>" + Encode.forHtml( BaseMessages.getString( PKG, "ConnectionPoolServlet.NoPools" ) )
+        + "</H3>" );
+    } else {
+      out.println( "<TABLE border=\"1\">" );
+      out.println( "<TR><TH>Name</TH><TH>Active</TH><TH>Idle</TH><TH>Max active</TH><TH>Waiting</TH>"
+        + "<TH>Borrows</TH><TH>Timeouts</TH><TH>Failures</TH><TH>Average wait</TH><TH>Max wait</TH>"
+        + "<TH>Wait histogram</TH><TH>Resizes</TH></TR>" );
+      for ( ConnectionPoolStatistics pool : pools ) {
+        out.println( "<TR>"
+          + "<TD>" + Encode.forHtml( pool.getName() ) + "</TD>"
+          + "<TD>" + pool.getActive() + "</TD>"
+          + "<TD>" + pool.getIdle() + "</TD>"
+          + "<TD>" + pool.getMaxActive() + "</TD>"
+          + "<TD>" + pool.getWaiting() + "</TD>"
+          + "<TD>" + pool.getBorrows() + "</TD>"
+          + "<TD>" + pool.getTimeouts() + "</TD>"
+          + "<TD>" + pool.getFailures() + "</TD>"
+          + "<TD>" + String.format( "%.1f ms", pool.getAverageWaitMillis() ) + "</TD>"
+          + "<TD>" + String.format( "%.1f ms", pool.getMaxWaitMillis() ) + "</TD>"
+          + "<TD>" + Encode.forHtml( pool.getWaitHistogramString() ) + "</TD>"
+          + "<TD>" + pool.getResizes() + "</TD>"
+          + "</TR>" );
+      }
+      out.println( "</TABLE>" );
+    }
+    out.print( "<a href=\"" + convertContextPath( GetStatusServlet.CONTEXT_PATH ) + "\">"
+      + BaseMessages.getString( PKG, "TransStatusServlet.BackToStatusPage" ) + "</a><br>" );
+    out.println( "</BODY>" );
+    out.println( "</HTML>" );
+  }
+
+  public String toString() {
+    return "Database connection pools";
+  }
+
+  public String getService() {
+    return CONTEXT_PATH + " (" + toString() + ")";
+  }
+
+  public String getContextPath() {
+    return CONTEXT_PATH;
+  }
+
+}
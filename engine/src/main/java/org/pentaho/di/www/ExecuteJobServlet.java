@@ -310,7 +310,10 @@ public class ExecuteJobServlet extends BaseHttpServlet implements CartePluginInt
 
     try {
       runJob( job );
-      WebResult webResult = new WebResult( WebResult.STRING_OK, "Job started", carteObjectId );
+      ExecutionQueue executionQueue = getJobMap().getExecutionQueue();
+      int position = executionQueue == null ? 0 : executionQueue.getPosition( carteObjectId );
+      String started = position > 0 ? "Job queued at position " + position : "Job started";
+      WebResult webResult = new WebResult( WebResult.STRING_OK, started, carteObjectId );
       out.println( webResult.getXML() );
       out.flush();
 
@@ -399,10 +402,22 @@ public class ExecuteJobServlet extends BaseHttpServlet implements CartePluginInt
     return CONTEXT_PATH + " (" + toString() + ")";
   }
 
-  protected void runJob( Job job ) {
-    // Execute the job...
+  protected void runJob( final Job job ) throws KettleException {
+    final ExecutionQueue executionQueue = getJobMap().getExecutionQueue();
+    if ( executionQueue == null ) {
+      job.start();
+      return;
+    }
+
+    // Start the job now if there is an execution slot, otherwise as soon as one is released
     //
-    job.start();
+    final String id = job.getContainerObjectId();
+    job.addJobListener( new JobAdapter() {
+      @Override public void jobFinished( Job job ) {
+        executionQueue.release( id );
+      }
+    } );
+    executionQueue.submit( id, job.getJobname(), job, ticket -> job.start() );
   }
 
   public String getContextPath() {
@@ -425,9 +425,23 @@ public class ExecuteTransServlet extends BaseHttpServlet implements CartePluginI
   }
 
   protected void executeTrans( Trans trans ) throws KettleException {
-    trans.prepareExecution( null );
-    trans.startThreads();
-    trans.waitUntilFinished();
+    // Wait for an execution slot first: the client is waiting for the output anyway
+    //
+    ExecutionQueue executionQueue = getTransformationMap().getExecutionQueue();
+    ExecutionQueue.Ticket ticket = null;
+    if ( executionQueue != null ) {
+      ticket = executionQueue.submitAndWait( trans.getContainerObjectId(), trans.getName(), trans );
+    }
+
+    try {
+      trans.prepareExecution( null );
+      trans.startThreads();
+      trans.waitUntilFinished();
+    } finally {
+      if ( ticket != null ) {
+        executionQueue.release( ticket.getId() );
+      }
+    }
   }
 
   public String getContextPath() {
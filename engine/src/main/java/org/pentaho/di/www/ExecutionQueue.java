@@ -0,0 +1,454 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.variables.VariableSpace;
+
+/**
+ * Decides when the transformations and jobs handed to a Carte server are started. A server has a number of execution
+ * slots and a memory budget: a transformation or job is started when a slot is free and its memory fits in what is left
+ * of the budget, otherwise it waits in the queue until running ones finish. Waiting transformations and jobs are
+ * started by priority class, then in the order they arrived. The first one in the queue is never passed by one that
+ * happens to fit, so a big job can't be starved by a stream of small ones.
+ * <p>
+ * When nothing is running, the first one in the queue is always started, even if it needs more memory than the budget.
+ * Without slots and without a budget everything is started immediately.
+ * <p>
+ * The parts of a clustered transformation connect to each other's sockets, so they can't wait for each other in the
+ * queue: they are {@link #admit(String, String, VariableSpace) admitted} right away, but take a slot and their memory
+ * like the others. A job that runs transformations or jobs on its own server keeps its slot while they wait, so the
+ * number of slots needs to leave room for them.
+ */
+public class ExecutionQueue {
+
+  public enum Priority {
+    HIGH, NORMAL, LOW;
+
+    /**
+     * @return the priority with the given name, NORMAL if the name is empty or unknown
+     */
+    public static Priority getPriority( String name ) {
+      if ( !Utils.isEmpty( name ) ) {
+        for ( Priority priority : values() ) {
+          if ( priority.name().equalsIgnoreCase( name.trim() ) ) {
+            return priority;
+          }
+        }
+      }
+      return NORMAL;
+    }
+  }
+
+  /**
+   * Called when a transformation or job is allowed to start.
+   */
+  public interface Admission {
+    void admitted( Ticket ticket ) throws KettleException;
+  }
+
+  /**
+   * A transformation or job in the queue, waiting or running.
+   */
+  public static class Ticket {
+    private final String id;
+    private final String name;
+    private final Priority priority;
+    private final int memoryMb;
+    private final long sequence;
+    private final long queuedTime;
+    private final Admission admission;
+    private volatile long admittedTime;
+    private volatile boolean cancelled;
+
+    Ticket( String id, String name, Priority priority, int memoryMb, long sequence, Admission admission ) {
+      this.id = id;
+      this.name = name;
+      this.priority = priority;
+      this.memoryMb = memoryMb;
+      this.sequence = sequence;
+      this.admission = admission;
+      this.queuedTime = System.currentTimeMillis();
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Priority getPriority() {
+      return priority;
+    }
+
+    public int getMemoryMb() {
+      return memoryMb;
+    }
+
+    public boolean isAdmitted() {
+      return admittedTime > 0;
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    /**
+     * @return the time waited in the queue (ms), up to now if the ticket is still waiting
+     */
+    public long getWaitTime() {
+      long until = admittedTime > 0 ? admittedTime : System.currentTimeMillis();
+      return until - queuedTime;
+    }
+  }
+
+  private static final Comparator<Ticket> ORDER =
+    Comparator.comparing( Ticket::getPriority ).thenComparingLong( ticket -> ticket.sequence );
+
+  private final int maxConcurrent;
+  private final int maxMemoryMb;
+  private final int defaultMemoryMb;
+
+  private final PriorityQueue<Ticket> waiting = new PriorityQueue<Ticket>( ORDER );
+  private final Map<String, Ticket> running = new LinkedHashMap<String, Ticket>();
+  private int usedMemoryMb;
+  private long nextSequence;
+
+  /**
+   * An execution queue that starts everything immediately.
+   */
+  public ExecutionQueue() {
+    this( 0, 0, 0 );
+  }
+
+  /**
+   * @param maxConcurrent
+   *          the number of transformations and jobs running at the same time, 0 for no limit
+   * @param maxMemoryMb
+   *          the memory (MB) all running transformations and jobs together may use, 0 for no limit
+   * @param defaultMemoryMb
+   *          the memory (MB) of a transformation or job that doesn't specify it
+   */
+  public ExecutionQueue( int maxConcurrent, int maxMemoryMb, int defaultMemoryMb ) {
+    this.maxConcurrent = Math.max( 0, maxConcurrent );
+    this.maxMemoryMb = Math.max( 0, maxMemoryMb );
+    this.defaultMemoryMb = Math.max( 0, defaultMemoryMb );
+  }
+
+  public ExecutionQueue( SlaveServerConfig config ) {
+    this( config.getMaxConcurrentExecutions(), config.getMaxExecutionMemoryMb(), config.getDefaultExecutionMemoryMb() );
+  }
+
+  /**
+   * Queue a transformation or job, taking its priority and memory from the variables
+   * {@link Const#KETTLE_CARTE_EXECUTION_PRIORITY} and {@link Const#KETTLE_CARTE_EXECUTION_MEMORY_MB}.
+   *
+   * @see #submit(String, String, Priority, int, Admission)
+   */
+  public Ticket submit( String id, String name, VariableSpace space, Admission admission ) throws KettleException {
+    return submit( id, name, getPriority( space ), getMemoryMb( space ), admission );
+  }
+
+  /**
+   * Queue a transformation or job and wait until it is allowed to start. The ticket needs to be released with
+   * {@link #release(String)} once the transformation or job has finished.
+   *
+   * @return the admitted ticket
+   * @throws KettleException
+   *           if it was taken out of the queue while waiting, or the wait was interrupted
+   */
+  public Ticket submitAndWait( String id, String name, VariableSpace space ) throws KettleException {
+    Ticket ticket = submit( id, name, space, null );
+    try {
+      if ( !awaitAdmission( ticket ) ) {
+        throw new KettleException( "'" + name + "' was removed while waiting in the execution queue" );
+      }
+    } catch ( InterruptedException e ) {
+      release( id );
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+    return ticket;
+  }
+
+  /**
+   * Start a transformation or job right away, whatever is running already. It takes a slot and its memory like the
+   * others, so the waiting ones start later. Used for the parts of a clustered transformation, which can't wait for
+   * each other.
+   * <p>
+   * The ticket needs to be released with {@link #release(String)} once the transformation or job has finished.
+   *
+   * @return the admitted ticket
+   */
+  public synchronized Ticket admit( String id, String name, VariableSpace space ) {
+    Ticket previous = running.remove( id );
+    if ( previous != null ) {
+      usedMemoryMb -= previous.memoryMb;
+    }
+    cancelWaiting( id );
+    int memoryMb = getMemoryMb( space );
+    Ticket ticket = new Ticket( id, name, getPriority( space ), memoryMb < 0 ? defaultMemoryMb : memoryMb,
+      nextSequence++, null );
+    ticket.admittedTime = System.currentTimeMillis();
+    running.put( id, ticket );
+    usedMemoryMb += ticket.memoryMb;
+    return ticket;
+  }
+
+  private static Priority getPriority( VariableSpace space ) {
+    return Priority.getPriority( space.getVariable( Const.KETTLE_CARTE_EXECUTION_PRIORITY ) );
+  }
+
+  private static int getMemoryMb( VariableSpace space ) {
+    return Const.toInt( space.getVariable( Const.KETTLE_CARTE_EXECUTION_MEMORY_MB ), -1 );
+  }
+
+  /**
+   * Queue a transformation or job. If it can start right away, the admission is called by the calling thread and
+   * exceptions it throws are passed on. Otherwise it is called from a thread of its own once running transformations
+   * and jobs are released, and exceptions are logged.
+   * <p>
+   * Every ticket needs to be released with {@link #release(String)} once the transformation or job has finished.
+   *
+   * @param id
+   *          the Carte object ID of the transformation or job
+   * @param name
+   *          the name of the transformation or job
+   * @param priority
+   *          the priority class
+   * @param memoryMb
+   *          the memory (MB) it is expected to use, a negative value for the default
+   * @param admission
+   *          what to do when it is allowed to start, or null to wait with {@link #awaitAdmission(Ticket)}
+   * @return the ticket
+   */
+  public Ticket submit( String id, String name, Priority priority, int memoryMb, Admission admission )
+    throws KettleException {
+    List<Ticket> admitted;
+    Ticket ticket;
+    synchronized ( this ) {
+      // A transformation that is started again gets a new ticket
+      //
+      Ticket previous = running.remove( id );
+      if ( previous != null ) {
+        usedMemoryMb -= previous.memoryMb;
+      }
+      cancelWaiting( id );
+      ticket = new Ticket( id, name, priority, memoryMb < 0 ? defaultMemoryMb : memoryMb, nextSequence++, admission );
+      waiting.add( ticket );
+      admitted = admitWaiting();
+    }
+    for ( Ticket other : admitted ) {
+      if ( other == ticket ) {
+        admitNow( ticket );
+      } else {
+        admitLater( other );
+      }
+    }
+    return ticket;
+  }
+
+  private void admitNow( Ticket ticket ) throws KettleException {
+    if ( ticket.admission != null ) {
+      try {
+        ticket.admission.admitted( ticket );
+      } catch ( KettleException | RuntimeException e ) {
+        release( ticket.id );
+        throw e;
+      }
+    }
+  }
+
+  private void admitLater( final Ticket ticket ) {
+    if ( ticket.admission == null ) {
+      return;
+    }
+    Thread thread = new Thread( () -> {
+      try {
+        ticket.admission.admitted( ticket );
+      } catch ( Exception e ) {
+        LogChannel.GENERAL.logError( "Unable to start '" + ticket.name + "' (" + ticket.id
+          + ") after waiting in the execution queue", e );
+        release( ticket.id );
+      }
+    }, "Carte execution queue: " + ticket.name );
+    thread.setDaemon( true );
+    thread.start();
+  }
+
+  /**
+   * Move the tickets that fit from the head of the queue to the running ones.
+   *
+   * @return the tickets that were admitted, in order
+   */
+  private List<Ticket> admitWaiting() {
+    List<Ticket> admitted = new ArrayList<Ticket>();
+    Ticket head = waiting.peek();
+    while ( head != null && fits( head ) ) {
+      waiting.poll();
+      head.admittedTime = System.currentTimeMillis();
+      running.put( head.id, head );
+      usedMemoryMb += head.memoryMb;
+      admitted.add( head );
+      head = waiting.peek();
+    }
+    if ( !admitted.isEmpty() ) {
+      notifyAll();
+    }
+    return admitted;
+  }
+
+  private boolean fits( Ticket ticket ) {
+    if ( running.isEmpty() ) {
+      return true;
+    }
+    if ( maxConcurrent > 0 && running.size() >= maxConcurrent ) {
+      return false;
+    }
+    return maxMemoryMb <= 0 || usedMemoryMb + ticket.memoryMb <= maxMemoryMb;
+  }
+
+  /**
+   * Wait until a ticket that was submitted without an admission is allowed to start.
+   *
+   * @return true if the ticket was admitted, false if it was cancelled
+   */
+  public synchronized boolean awaitAdmission( Ticket ticket ) throws InterruptedException {
+    while ( !ticket.isAdmitted() && !ticket.cancelled ) {
+      wait();
+    }
+    return ticket.isAdmitted();
+  }
+
+  /**
+   * Give back the slot and memory of a finished transformation or job and start the waiting ones that now fit. Releasing
+   * a ticket that is still waiting cancels it. Releasing an unknown ID does nothing.
+   */
+  public void release( String id ) {
+    List<Ticket> admitted;
+    synchronized ( this ) {
+      Ticket ticket = running.remove( id );
+      if ( ticket != null ) {
+        usedMemoryMb -= ticket.memoryMb;
+      } else {
+        cancelWaiting( id );
+      }
+      admitted = admitWaiting();
+    }
+    for ( Ticket ticket : admitted ) {
+      admitLater( ticket );
+    }
+  }
+
+  /**
+   * Take a transformation or job out of the queue if it is still waiting. Running ones are left alone.
+   */
+  public synchronized void cancel( String id ) {
+    cancelWaiting( id );
+  }
+
+  private void cancelWaiting( String id ) {
+    for ( Ticket ticket : waiting ) {
+      if ( ticket.id.equals( id ) ) {
+        waiting.remove( ticket );
+        ticket.cancelled = true;
+        notifyAll();
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return the waiting or running ticket with the given Carte object ID, or null
+   */
+  public synchronized Ticket getTicket( String id ) {
+    Ticket ticket = running.get( id );
+    if ( ticket == null ) {
+      for ( Ticket other : waiting ) {
+        if ( other.id.equals( id ) ) {
+          return other;
+        }
+      }
+    }
+    return ticket;
+  }
+
+  /**
+   * @return the position (1 is next) of a waiting transformation or job, 0 if it isn't waiting
+   */
+  public synchronized int getPosition( String id ) {
+    Ticket ticket = null;
+    for ( Ticket other : waiting ) {
+      if ( other.id.equals( id ) ) {
+        ticket = other;
+        break;
+      }
+    }
+    if ( ticket == null ) {
+      return 0;
+    }
+    int position = 1;
+    for ( Ticket other : waiting ) {
+      if ( ORDER.compare( other, ticket ) < 0 ) {
+        position++;
+      }
+    }
+    return position;
+  }
+
+  public synchronized int getNrWaiting() {
+    return waiting.size();
+  }
+
+  public synchronized int getNrRunning() {
+    return running.size();
+  }
+
+  public synchronized int getUsedMemoryMb() {
+    return usedMemoryMb;
+  }
+
+  public int getMaxConcurrent() {
+    return maxConcurrent;
+  }
+
+  public int getMaxMemoryMb() {
+    return maxMemoryMb;
+  }
+
+  public int getDefaultMemoryMb() {
+    return defaultMemoryMb;
+  }
+}
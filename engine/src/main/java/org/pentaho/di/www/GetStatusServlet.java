@@ -220,6 +220,16 @@ public class GetStatusServlet extends BaseHttpServlet implements CartePluginInte
 
       getSystemInfo( serverStatus );
 
+      ExecutionQueue transQueue = getTransformationMap().getExecutionQueue();
+      ExecutionQueue jobQueue = getJobMap().getExecutionQueue();
+      if ( transQueue != null ) {
+        serverStatus.setRunningExecutions( transQueue.getNrRunning() );
+        serverStatus.setQueuedExecutions( transQueue.getNrWaiting() );
+        serverStatus.setMaxConcurrentExecutions( transQueue.getMaxConcurrent() );
+        serverStatus.setUsedExecutionMemoryMb( transQueue.getUsedMemoryMb() );
+        serverStatus.setMaxExecutionMemoryMb( transQueue.getMaxMemoryMb() );
+      }
+
       for ( CarteObjectEntry entry : transEntries ) {
         Trans trans = getTransformationMap().getTransformation( entry );
         if ( trans != null ) {
@@ -227,6 +237,11 @@ public class GetStatusServlet extends BaseHttpServlet implements CartePluginInte
           SlaveServerTransStatus sstatus = new SlaveServerTransStatus( entry.getName(), entry.getId(), status );
           sstatus.setLogDate( trans.getLogDate() );
           sstatus.setPaused( trans.isPaused() );
+          ExecutionQueue.Ticket ticket = transQueue == null ? null : transQueue.getTicket( entry.getId() );
+          if ( ticket != null ) {
+            sstatus.setQueuePosition( transQueue.getPosition( entry.getId() ) );
+            sstatus.setQueueWaitTime( ticket.getWaitTime() );
+          }
           serverStatus.getTransStatusList().add( sstatus );
         }
       }
@@ -237,6 +252,11 @@ public class GetStatusServlet extends BaseHttpServlet implements CartePluginInte
           String status = job.getStatus();
           SlaveServerJobStatus jobStatus = new SlaveServerJobStatus( entry.getName(), entry.getId(), status );
           jobStatus.setLogDate( job.getLogDate() );
+          ExecutionQueue.Ticket ticket = jobQueue == null ? null : jobQueue.getTicket( entry.getId() );
+          if ( ticket != null ) {
+            jobStatus.setQueuePosition( jobQueue.getPosition( entry.getId() ) );
+            jobStatus.setQueueWaitTime( ticket.getWaitTime() );
+          }
           serverStatus.getJobStatusList().add( jobStatus );
         }
       }
@@ -46,9 +46,12 @@ public class JobMap {
 
   private SlaveServerConfig slaveServerConfig;
 
+  private ExecutionQueue executionQueue;
+
   public JobMap() {
     jobMap = new HashMap<>();
     configurationMap = new HashMap<>();
+    executionQueue = new ExecutionQueue();
   }
 
   public synchronized void addJob( String jobName, String carteObjectId, Job job, JobConfiguration jobConfiguration ) {
@@ -114,6 +117,7 @@ public class JobMap {
   public synchronized void removeJob( CarteObjectEntry entry ) {
     jobMap.remove( entry );
     configurationMap.remove( entry );
+    executionQueue.cancel( entry.getId() );
   }
 
   public synchronized List<CarteObjectEntry> getJobObjects() {
@@ -159,6 +163,21 @@ public class JobMap {
     this.slaveServerConfig = slaveServerConfig;
   }
 
+  /**
+   * @return the queue that decides when the jobs of this server are started
+   */
+  public ExecutionQueue getExecutionQueue() {
+    return executionQueue;
+  }
+
+  /**
+   * @param executionQueue
+   *          the queue that decides when the jobs of this server are started
+   */
+  public void setExecutionQueue( ExecutionQueue executionQueue ) {
+    this.executionQueue = executionQueue;
+  }
+
   /**
    * Find a job using the container/carte object ID.
    *
@@ -0,0 +1,295 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.owasp.encoder.Encode;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.cache.CacheStatistics;
+import org.pentaho.di.core.cache.LookupCacheRegistry;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Lists and invalidates the lookup caches that are shared by the transformations running on this server.
+ */
+public class LookupCacheServlet extends BaseHttpServlet implements CartePluginInterface {
+  private static Class<?> PKG = LookupCacheServlet.class; // for i18n purposes, needed by Translator2!!
+
+  private static final long serialVersionUID = -4871906284753460182L;
+
+  public static final String CONTEXT_PATH = "/kettle/lookupCache";
+
+  public static final String PARAM_NAME = "name";
+  public static final String PARAM_ACTION = "action";
+
+  public static final String ACTION_INVALIDATE = "invalidate";
+  public static final String ACTION_REMOVE = "remove";
+
+  public static final String XML_TAG = "lookup_caches";
+  public static final String XML_TAG_CACHE = "lookup_cache";
+
+  public LookupCacheServlet() {
+  }
+
+  /**
+<div id="mindtouch">
+    <h1>/kettle/lookupCache</h1>
+    <a name="GET"></a>
+    <h2>GET</h2>
+    <p>Lists the shared lookup caches of the server or invalidates them.
+  Steps that share their lookup cache attach to a cache named after the connection, table and key columns,
+  for example <code>dwh:public.dim_customer[customer_id]</code>. Invalidating a cache empties it, steps that
+  loaded all rows up front load them again.</p>
+
+    <p><b>Example Request:</b><br />
+    <pre function="syntax.xml">
+    GET /kettle/lookupCache/?action=invalidate&name=dwh:public.dim_customer[customer_id]&xml=Y
+    </pre>
+
+    </p>
+    <h3>Parameters</h3>
+    <table class="pentaho-table">
+    <tbody>
+    <tr>
+      <th>name</th>
+      <th>description</th>
+      <th>type</th>
+    </tr>
+    <tr>
+    <td>action</td>
+    <td><code>invalidate</code> to empty the caches, <code>remove</code> to remove them from the server.
+  Leave it out to list the caches.</td>
+    <td>query, optional</td>
+    </tr>
+    <tr>
+    <td>name</td>
+    <td>Name of the caches to invalidate or remove, all caches if it is left out.</td>
+    <td>query, optional</td>
+    </tr>
+    <tr>
+    <td>xml</td>
+    <td>Boolean flag which sets the output format required. Use <code>Y</code> to receive XML response.</td>
+    <td>boolean, optional</td>
+    </tr>
+    </tbody>
+    </table>
+
+  <h3>Response Body</h3>
+
+  <table class="pentaho-table">
+    <tbody>
+      <tr>
+        <td align="right">element:</td>
+        <td>(custom)</td>
+      </tr>
+      <tr>
+        <td align="right">media types:</td>
+        <td>text/xml, text/html</td>
+      </tr>
+    </tbody>
+  </table>
+    <p>The list of caches with their version and statistics or, for an action, the number of affected caches.</p>
+
+    <p><b>Example Response:</b></p>
+  <pre function="syntax.xml">
+  <?xml version="1.0" encoding="UTF-8"?>
+  <webresult>
+    <result>OK</result>
+    <message>1 lookup cache(s) invalidated</message>
+    <id/>
+  </webresult>
+  </pre>
+
+    <h3>Status Codes</h3>
+    <table class="pentaho-table">
+  <tbody>
+    <tr>
+      <th>code</th>
+      <th>description</th>
+    </tr>
+    <tr>
+      <td>200</td>
+      <td>Request was processed.</td>
+    </tr>
+    <tr>
+      <td>400</td>
+      <td>The action is unknown.</td>
+    </tr>
+  </tbody>
+</table>
+</div>
+  */
+  public void doGet( HttpServletRequest request, HttpServletResponse response ) throws ServletException,
+    IOException {
+    if ( isJettyMode() && !request.getContextPath().startsWith( CONTEXT_PATH ) ) {
+      return;
+    }
+
+    if ( log.isDebug() ) {
+      logDebug( toString() );
+    }
+
+    String name = Const.NVL( request.getParameter( PARAM_NAME ), "" );
+    String action = request.getParameter( PARAM_ACTION );
+    boolean useXML = "Y".equalsIgnoreCase( request.getParameter( "xml" ) );
+
+    response.setStatus( HttpServletResponse.SC_OK );
+    if ( useXML ) {
+      response.setContentType( "text/xml" );
+      response.setCharacterEncoding( Const.XML_ENCODING );
+    } else {
+      response.setContentType( "text/html;charset=UTF-8" );
+      response.setCharacterEncoding( "UTF-8" );
+    }
+
+    PrintWriter out = response.getWriter();
+    LookupCacheRegistry registry = LookupCacheRegistry.getInstance();
+    String names = Utils.isEmpty( name ) ? null : name;
+
+    if ( Utils.isEmpty( action ) ) {
+      if ( useXML ) {
+        out.print( XMLHandler.getXMLHeader( Const.XML_ENCODING ) );
+        out.print( getXML( registry.getEntries() ) );
+      } else {
+        printHTML( out, registry.getEntries(), null );
+      }
+      return;
+    }
+
+    String message;
+    if ( ACTION_INVALIDATE.equalsIgnoreCase( action ) ) {
+      message = BaseMessages.getString( PKG, "LookupCacheServlet.Invalidated", registry.invalidate( names ) );
+    } else if ( ACTION_REMOVE.equalsIgnoreCase( action ) ) {
+      message = BaseMessages.getString( PKG, "LookupCacheServlet.Removed", registry.remove( names ) );
+    } else {
+      response.setStatus( HttpServletResponse.SC_BAD_REQUEST );
+      message = BaseMessages.getString( PKG, "LookupCacheServlet.UnknownAction", action );
+      if ( useXML ) {
+        out.print( XMLHandler.getXMLHeader( Const.XML_ENCODING ) );
+        out.print( new WebResult( WebResult.STRING_ERROR, message ).getXML() );
+      } else {
+        printHTML( out, registry.getEntries(), message );
+      }
+      return;
+    }
+
+    logBasic( message + ( names == null ? "" : " [" + names + "]" ) );
+    if ( useXML ) {
+      out.print( XMLHandler.getXMLHeader( Const.XML_ENCODING ) );
+      out.print( new WebResult( WebResult.STRING_OK, message ).getXML() );
+    } else {
+      printHTML( out, registry.getEntries(), message );
+    }
+  }
+
+  static String getXML( List<LookupCacheRegistry.Entry> entries ) {
+    StringBuilder xml = new StringBuilder();
+    xml.append( XMLHandler.openTag( XML_TAG ) ).append( Const.CR );
+    for ( LookupCacheRegistry.Entry entry : entries ) {
+      CacheStatistics statistics = entry.getStatistics();
+      xml.append( "  " ).append( XMLHandler.openTag( XML_TAG_CACHE ) ).append( Const.CR );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "name", entry.getName() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "signature", entry.getSignature() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "version", entry.getVersion() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "complete", entry.isComplete() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "attached", entry.getAttached() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "created", new Date( entry.getCreated() ) ) );
+      if ( entry.getLastInvalidated() > 0 ) {
+        xml.append( "    " ).append( XMLHandler.addTagValue( "invalidated", new Date( entry.getLastInvalidated() ) ) );
+      }
+      xml.append( "    " ).append( XMLHandler.addTagValue( "entries", statistics.getEntries() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "bytes", statistics.getWeight() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "hits", statistics.getHits() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "misses", statistics.getMisses() ) );
+      xml.append( "    " ).append( XMLHandler.addTagValue( "evictions", statistics.getEvictions() ) );
+      xml.append( "  " ).append( XMLHandler.closeTag( XML_TAG_CACHE ) ).append( Const.CR );
+    }
+    xml.append( XMLHandler.closeTag( XML_TAG ) ).append( Const.CR );
+    return xml.toString();
+  }
+
+  private void printHTML( PrintWriter out, List<LookupCacheRegistry.Entry> entries, String message ) {
+    String title = BaseMessages.getString( PKG, "LookupCacheServlet.Title" );
+    out.println( "<HTML>" );
+    out.println( "<HEAD>" );
+    out.println( "<TITLE>" + Encode.forHtml( title ) + "</TITLE>" );
+    out.println( "<META http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">" );
+    out.println( "</HEAD>" );
+    out.println( "<BODY>" );
+    out.println( "<H1>" + Encode.forHtml( title ) + "</H1>" );
+    if ( message != null ) {
+      out.println( "<H3>" + Encode.forHtml( message ) + "</H3>" );
+    }
+    out.println( "<TABLE border=\"1\">" );
+    out.println( "<TR><TH>Name</TH><TH>Version</TH><TH>Complete</TH><TH>Steps</TH><TH>Entries</TH><TH>Bytes</TH>"
+      + "<TH>Hit rate</TH><TH>Evictions</TH><TH>Invalidated</TH><TH></TH></TR>" );
+    for ( LookupCacheRegistry.Entry entry : entries ) {
+      CacheStatistics statistics = entry.getStatistics();
+      String invalidated = entry.getLastInvalidated() > 0
+        ? XMLHandler.date2string( new Date( entry.getLastInvalidated() ) ) : "-";
+      out.println( "<TR>"
+        + "<TD title=\"" + Encode.forHtmlAttribute( entry.getSignature() ) + "\">"
+        + Encode.forHtml( entry.getName() ) + "</TD>"
+        + "<TD>" + entry.getVersion() + "</TD>"
+        + "<TD>" + ( entry.isComplete() ? "Y" : "N" ) + "</TD>"
+        + "<TD>" + entry.getAttached() + "</TD>"
+        + "<TD>" + statistics.getEntries() + "</TD>"
+        + "<TD>" + statistics.getWeight() + "</TD>"
+        + "<TD>" + String.format( "%.1f%%", statistics.getHitRate() * 100 ) + "</TD>"
+        + "<TD>" + statistics.getEvictions() + "</TD>"
+        + "<TD>" + invalidated + "</TD>"
+        + "<TD><a href=\"" + convertContextPath( CONTEXT_PATH ) + "?" + PARAM_ACTION + "=" + ACTION_INVALIDATE
+        + "&" + PARAM_NAME + "=" + Encode.forUriComponent( entry.getName() ) + "\">"
+        + BaseMessages.getString( PKG, "LookupCacheServlet.Invalidate" ) + "</a></TD>"
+        + "</TR>" );
+    }
+    out.println( "</TABLE>" );
+    out.print( "<a href=\"" + convertContextPath( GetStatusServlet.CONTEXT_PATH ) + "\">"
+      + BaseMessages.getString( PKG, "TransStatusServlet.BackToStatusPage" ) + "</a><br>" );
+    out.println( "</BODY>" );
+    out.println( "</HTML>" );
+  }
+
+  public String toString() {
+    return "Shared lookup caches";
+  }
+
+  public String getService() {
+    return CONTEXT_PATH + " (" + toString() + ")";
+  }
+
+  public String getContextPath() {
+    return CONTEXT_PATH;
+  }
+
+}
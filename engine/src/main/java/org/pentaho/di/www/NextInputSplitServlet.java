@@ -0,0 +1,222 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.core.xml.XMLHandler;
+import org.pentaho.di.trans.cluster.InputSplit;
+import org.pentaho.di.trans.cluster.InputSplitQueue;
+
+/**
+ * Hands out the input of the steps of a clustered transformation in chunks. The master keeps a queue per step and
+ * clustered run, the step copies on the slave servers pull the next chunk whenever they are done with the previous one.
+ */
+public class NextInputSplitServlet extends BaseHttpServlet implements CartePluginInterface {
+  private static final long serialVersionUID = 6502379648071720412L;
+
+  public static final String CONTEXT_PATH = "/kettle/nextInputSplit";
+
+  public static final String PARAM_ID = "id";
+  public static final String PARAM_NAME = "name";
+  public static final String PARAM_START = "start";
+  public static final String PARAM_END = "end";
+  public static final String PARAM_CHUNK = "chunk";
+  public static final String PARAM_CONSUMERS = "consumers";
+
+  public static final String XML_TAG = "split";
+  public static final String XML_TAG_FROM = "from";
+  public static final String XML_TAG_TO = "to";
+  public static final String XML_TAG_START = "start";
+  public static final String XML_TAG_END = "end";
+  public static final String XML_TAG_ERROR = "error";
+
+  public NextInputSplitServlet() {
+  }
+
+  public NextInputSplitServlet( TransformationMap transformationMap ) {
+    super( transformationMap );
+  }
+
+  /**
+<div id="mindtouch">
+    <h1>/kettle/nextInputSplit</h1>
+    <a name="GET"></a>
+    <h2>GET</h2>
+    <p>Hands out the next chunk of the input of a step in a clustered run.
+  The queue of chunks is created by the first request for a step and clustered run, with the start and end of that
+  request. Chunks get smaller as the input runs out. The queues of a clustered run are removed when its server
+  sockets are cleaned up.</p>
+
+    <p><b>Example Request:</b><br />
+    <pre function="syntax.xml">
+    GET /kettle/nextInputSplit?id=c8b0a3e4-2a4d-4bd5-a1d0-6b4d2c1f5a10&name=CSV%20file%20input&start=0&end=1073741824&chunk=16777216&consumers=4
+    </pre>
+
+    </p>
+    <h3>Parameters</h3>
+    <table class="pentaho-table">
+    <tbody>
+    <tr>
+      <th>name</th>
+      <th>description</th>
+      <th>type</th>
+    </tr>
+    <tr>
+    <td>id</td>
+    <td>The ID of the clustered run.</td>
+    <td>query</td>
+    </tr>
+    <tr>
+    <td>name</td>
+    <td>The name of the input, usually the name of the step.</td>
+    <td>query</td>
+    </tr>
+    <tr>
+    <td>start</td>
+    <td>The first position of the input.</td>
+    <td>integer</td>
+    </tr>
+    <tr>
+    <td>end</td>
+    <td>The position right after the input.</td>
+    <td>integer</td>
+    </tr>
+    <tr>
+    <td>chunk</td>
+    <td>(optional) The minimum size of a chunk. 1 is used by default.</td>
+    <td>integer, optional</td>
+    </tr>
+    <tr>
+    <td>consumers</td>
+    <td>(optional) The number of readers of the input across the cluster. 1 is used by default.</td>
+    <td>integer, optional</td>
+    </tr>
+    </tbody>
+    </table>
+
+  <h3>Response Body</h3>
+
+  <table class="pentaho-table">
+    <tbody>
+      <tr>
+        <td align="right">media types:</td>
+        <td>text/xml</td>
+      </tr>
+    </tbody>
+  </table>
+    <p>Response XML containing the chunk and the whole input. An empty split means all the input was handed out.</p>
+
+    <p><b>Example Response:</b></p>
+  <pre function="syntax.xml">
+  <split><from>0</from><to>134217728</to><start>0</start><end>1073741824</end></split>
+  </pre>
+
+    <h3>Status Codes</h3>
+    <table class="pentaho-table">
+  <tbody>
+    <tr>
+      <th>code</th>
+      <th>description</th>
+    </tr>
+    <tr>
+      <td>200</td>
+      <td>Request was processed.</td>
+    </tr>
+    <tr>
+      <td>400</td>
+      <td>A parameter is missing or invalid.</td>
+    </tr>
+  </tbody>
+</table>
+</div>
+  */
+  public void doGet( HttpServletRequest request, HttpServletResponse response ) throws ServletException,
+    IOException {
+    if ( isJettyMode() && !request.getContextPath().startsWith( CONTEXT_PATH ) ) {
+      return;
+    }
+
+    if ( log.isDebug() ) {
+      logDebug( toString() );
+    }
+
+    String id = request.getParameter( PARAM_ID );
+    String name = request.getParameter( PARAM_NAME );
+    long start = Const.toLong( request.getParameter( PARAM_START ), -1L );
+    long end = Const.toLong( request.getParameter( PARAM_END ), -1L );
+    long chunk = Const.toLong( request.getParameter( PARAM_CHUNK ), 1L );
+    int consumers = Const.toInt( request.getParameter( PARAM_CONSUMERS ), 1 );
+
+    response.setStatus( HttpServletResponse.SC_OK );
+    response.setContentType( "text/xml" );
+    response.setCharacterEncoding( Const.XML_ENCODING );
+
+    PrintWriter out = response.getWriter();
+    out.println( XMLHandler.getXMLHeader( Const.XML_ENCODING ) );
+    out.println( XMLHandler.openTag( XML_TAG ) );
+
+    try {
+      if ( Utils.isEmpty( id ) || Utils.isEmpty( name ) || start < 0 || end < start ) {
+        response.setStatus( HttpServletResponse.SC_BAD_REQUEST );
+        out.println( XMLHandler.addTagValue( XML_TAG_ERROR, "Please specify the clustered run ID, the name and a "
+          + "valid start and end of the input to split." ) );
+      } else {
+        InputSplitQueue queue = getTransformationMap().getInputSplitQueue( id, name, start, end, chunk, consumers );
+        InputSplit split = queue.nextSplit();
+        if ( split != null ) {
+          out.println( XMLHandler.addTagValue( XML_TAG_FROM, split.getFrom() ) );
+          out.println( XMLHandler.addTagValue( XML_TAG_TO, split.getTo() ) );
+          out.println( XMLHandler.addTagValue( XML_TAG_START, split.getStart() ) );
+          out.println( XMLHandler.addTagValue( XML_TAG_END, split.getEnd() ) );
+        }
+      }
+    } catch ( Exception e ) {
+      response.setStatus( HttpServletResponse.SC_BAD_REQUEST );
+      out.println( XMLHandler.addTagValue( XML_TAG_ERROR, "Error handing out the next chunk of input '" + name
+        + "': " + Const.getStackTracker( e ) ) );
+    }
+
+    out.println( XMLHandler.closeTag( XML_TAG ) );
+  }
+
+  public String toString() {
+    return "Hand out the next chunk of the input of a step in a clustered run.";
+  }
+
+  public String getService() {
+    return CONTEXT_PATH + " (" + toString() + ")";
+  }
+
+  public String getContextPath() {
+    return CONTEXT_PATH;
+  }
+
+}
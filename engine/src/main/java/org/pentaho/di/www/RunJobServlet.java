@@ -270,6 +270,7 @@ public class RunJobServlet extends BaseHttpServlet implements CartePluginInterfa
 
       JobMap jobMap = getJobMap();
 
+      job.setContainerObjectId( carteObjectId );
       jobMap.addJob( job.getJobname(), carteObjectId, job, jobConfiguration );
 
 
@@ -287,7 +288,10 @@ public class RunJobServlet extends BaseHttpServlet implements CartePluginInterfa
       try {
         runJob( job );
 
-        WebResult webResult = new WebResult( WebResult.STRING_OK, "Job started", carteObjectId );
+        ExecutionQueue executionQueue = jobMap.getExecutionQueue();
+        int position = executionQueue == null ? 0 : executionQueue.getPosition( carteObjectId );
+        String started = position > 0 ? "Job queued at position " + position : "Job started";
+        WebResult webResult = new WebResult( WebResult.STRING_OK, started, carteObjectId );
         out.println( webResult.getXML() );
         out.flush();
 
@@ -319,10 +323,22 @@ public class RunJobServlet extends BaseHttpServlet implements CartePluginInterfa
     }
   }
 
-  protected void runJob( Job job ) {
-    // Execute the transformation...
+  protected void runJob( final Job job ) throws KettleException {
+    final ExecutionQueue executionQueue = getJobMap().getExecutionQueue();
+    if ( executionQueue == null ) {
+      job.start();
+      return;
+    }
+
+    // Start the job now if there is an execution slot, otherwise as soon as one is released
     //
-    job.start();
+    final String id = job.getContainerObjectId();
+    job.addJobListener( new JobAdapter() {
+      public void jobFinished( Job job ) {
+        executionQueue.release( id );
+      }
+    } );
+    executionQueue.submit( id, job.getJobname(), job, ticket -> job.start() );
   }
 
   private JobMeta loadJob( Repository repository, String job ) throws KettleException {
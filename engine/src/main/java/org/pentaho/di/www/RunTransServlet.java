@@ -45,6 +45,7 @@ import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryDirectory;
 import org.pentaho.di.repository.RepositoryDirectoryInterface;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
 import org.pentaho.di.trans.TransConfiguration;
 import org.pentaho.di.trans.TransExecutionConfiguration;
 import org.pentaho.di.trans.TransMeta;
@@ -248,9 +249,28 @@ public class RunTransServlet extends BaseHttpServlet implements CartePluginInter
       logBasic( message );
 
       try {
+        // Wait for an execution slot first: the steps are looked at right after the start
+        //
+        final ExecutionQueue executionQueue = getTransformationMap().getExecutionQueue();
+        if ( executionQueue != null ) {
+          executionQueue.submitAndWait( carteObjectId, trans.getName(), trans );
+          trans.addTransListener( new TransAdapter() {
+            @Override public void transFinished( Trans trans ) {
+              executionQueue.release( carteObjectId );
+            }
+          } );
+        }
+
         // Execute the transformation...
         //
-        trans.execute( null );
+        try {
+          trans.execute( null );
+        } catch ( KettleException | RuntimeException e ) {
+          if ( executionQueue != null ) {
+            executionQueue.release( carteObjectId );
+          }
+          throw e;
+        }
 
         finishProcessing( trans, out );
 
@@ -68,6 +68,10 @@ public class SlaveServerConfig {
   public static final String XML_TAG_ACCEPTORS = "acceptors";
   public static final String XML_TAG_ACCEPT_QUEUE_SIZE = "acceptQueueSize";
   public static final String XML_TAG_LOW_RES_MAX_IDLE_TIME = "lowResourcesMaxIdleTime";
+  public static final String XML_TAG_EXECUTION_QUEUE = "execution_queue";
+  public static final String XML_TAG_MAX_CONCURRENT = "max_concurrent";
+  public static final String XML_TAG_MAX_MEMORY_MB = "max_memory_mb";
+  public static final String XML_TAG_DEFAULT_MEMORY_MB = "default_memory_mb";
 
   private List<SlaveServer> masters;
 
@@ -83,6 +87,12 @@ public class SlaveServerConfig {
 
   private int objectTimeoutMinutes;
 
+  private int maxConcurrentExecutions;
+
+  private int maxExecutionMemoryMb;
+
+  private int defaultExecutionMemoryMb;
+
   private String filename;
 
   private List<DatabaseMeta> databases;
@@ -163,6 +173,14 @@ public class SlaveServerConfig {
     XMLHandler.addTagValue( "max_log_timeout_minutes", maxLogTimeoutMinutes );
     XMLHandler.addTagValue( "object_timeout_minutes", objectTimeoutMinutes );
 
+    if ( maxConcurrentExecutions > 0 || maxExecutionMemoryMb > 0 ) {
+      xml.append( XMLHandler.openTag( XML_TAG_EXECUTION_QUEUE ) );
+      xml.append( XMLHandler.addTagValue( XML_TAG_MAX_CONCURRENT, maxConcurrentExecutions ) );
+      xml.append( XMLHandler.addTagValue( XML_TAG_MAX_MEMORY_MB, maxExecutionMemoryMb ) );
+      xml.append( XMLHandler.addTagValue( XML_TAG_DEFAULT_MEMORY_MB, defaultExecutionMemoryMb ) );
+      xml.append( XMLHandler.closeTag( XML_TAG_EXECUTION_QUEUE ) );
+    }
+
     xml.append( XMLHandler.openTag( XML_TAG_SEQUENCES ) );
     for ( SlaveSequence slaveSequence : slaveSequences ) {
       xml.append( XMLHandler.openTag( SlaveSequence.XML_TAG ) );
@@ -217,6 +235,16 @@ public class SlaveServerConfig {
     maxLogTimeoutMinutes = Const.toInt( XMLHandler.getTagValue( node, "max_log_timeout_minutes" ), 0 );
     objectTimeoutMinutes = Const.toInt( XMLHandler.getTagValue( node, "object_timeout_minutes" ), 0 );
 
+    // The execution slots and memory budget of this server
+    //
+    Node executionQueueNode = XMLHandler.getSubNode( node, XML_TAG_EXECUTION_QUEUE );
+    if ( executionQueueNode != null ) {
+      maxConcurrentExecutions = Const.toInt( XMLHandler.getTagValue( executionQueueNode, XML_TAG_MAX_CONCURRENT ), 0 );
+      maxExecutionMemoryMb = Const.toInt( XMLHandler.getTagValue( executionQueueNode, XML_TAG_MAX_MEMORY_MB ), 0 );
+      defaultExecutionMemoryMb =
+        Const.toInt( XMLHandler.getTagValue( executionQueueNode, XML_TAG_DEFAULT_MEMORY_MB ), 0 );
+    }
+
     // Read sequence information
     //
     List<Node> dbNodes = XMLHandler.getNodes( node, DatabaseMeta.XML_TAG );
@@ -477,6 +505,51 @@ public class SlaveServerConfig {
     this.maxLogLines = maxLogLines;
   }
 
+  /**
+   * @return the number of transformations and jobs this server runs at the same time, 0 for no limit
+   */
+  public int getMaxConcurrentExecutions() {
+    return maxConcurrentExecutions;
+  }
+
+  /**
+   * @param maxConcurrentExecutions
+   *          the number of transformations and jobs this server runs at the same time, 0 for no limit
+   */
+  public void setMaxConcurrentExecutions( int maxConcurrentExecutions ) {
+    this.maxConcurrentExecutions = maxConcurrentExecutions;
+  }
+
+  /**
+   * @return the memory (MB) the running transformations and jobs together may use, 0 for no limit
+   */
+  public int getMaxExecutionMemoryMb() {
+    return maxExecutionMemoryMb;
+  }
+
+  /**
+   * @param maxExecutionMemoryMb
+   *          the memory (MB) the running transformations and jobs together may use, 0 for no limit
+   */
+  public void setMaxExecutionMemoryMb( int maxExecutionMemoryMb ) {
+    this.maxExecutionMemoryMb = maxExecutionMemoryMb;
+  }
+
+  /**
+   * @return the memory (MB) of a transformation or job that doesn't set KETTLE_CARTE_EXECUTION_MEMORY_MB
+   */
+  public int getDefaultExecutionMemoryMb() {
+    return defaultExecutionMemoryMb;
+  }
+
+  /**
+   * @param defaultExecutionMemoryMb
+   *          the memory (MB) of a transformation or job that doesn't set KETTLE_CARTE_EXECUTION_MEMORY_MB
+   */
+  public void setDefaultExecutionMemoryMb( int defaultExecutionMemoryMb ) {
+    this.defaultExecutionMemoryMb = defaultExecutionMemoryMb;
+  }
+
   /**
    * @return the maxLogTimeoutMinutes
    */
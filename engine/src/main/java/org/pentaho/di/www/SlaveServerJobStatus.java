@@ -47,6 +47,8 @@ public class SlaveServerJobStatus {
   private int firstLoggingLineNr;
   private int lastLoggingLineNr;
   private Date logDate;
+  private int queuePosition;
+  private long queueWaitTime;
 
   private Result result;
 
@@ -78,6 +80,8 @@ public class SlaveServerJobStatus {
     xml.append( "  " ).append( XMLHandler.addTagValue( "logging_string", XMLHandler.buildCDATA( loggingString ) ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "first_log_line_nr", firstLoggingLineNr ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "last_log_line_nr", lastLoggingLineNr ) );
+    xml.append( "  " ).append( XMLHandler.addTagValue( "queue_position", queuePosition ) );
+    xml.append( "  " ).append( XMLHandler.addTagValue( "queue_wait_time", queueWaitTime ) );
 
     if ( result != null ) {
       String resultXML = sendResultXmlWithStatus ? result.getXML() : result.getBasicXml();
@@ -98,6 +102,8 @@ public class SlaveServerJobStatus {
     logDate = XMLHandler.stringToDate( XMLHandler.getTagValue( jobStatusNode, "log_date" ) );
     firstLoggingLineNr = Const.toInt( XMLHandler.getTagValue( jobStatusNode, "first_log_line_nr" ), 0 );
     lastLoggingLineNr = Const.toInt( XMLHandler.getTagValue( jobStatusNode, "last_log_line_nr" ), 0 );
+    queuePosition = Const.toInt( XMLHandler.getTagValue( jobStatusNode, "queue_position" ), 0 );
+    queueWaitTime = Const.toLong( XMLHandler.getTagValue( jobStatusNode, "queue_wait_time" ), 0L );
 
     String loggingString64 = XMLHandler.getTagValue( jobStatusNode, "logging_string" );
 
@@ -273,6 +279,36 @@ public class SlaveServerJobStatus {
     this.logDate = logDate;
   }
 
+  /**
+   * @return the position (1 is next) in the execution queue of the server, 0 if it isn't waiting
+   */
+  public int getQueuePosition() {
+    return queuePosition;
+  }
+
+  /**
+   * @param queuePosition
+   *          the position (1 is next) in the execution queue of the server, 0 if it isn't waiting
+   */
+  public void setQueuePosition( int queuePosition ) {
+    this.queuePosition = queuePosition;
+  }
+
+  /**
+   * @return the time (ms) spent in the execution queue of the server, up to now if it is still waiting
+   */
+  public long getQueueWaitTime() {
+    return queueWaitTime;
+  }
+
+  /**
+   * @param queueWaitTime
+   *          the time (ms) spent in the execution queue of the server, up to now if it is still waiting
+   */
+  public void setQueueWaitTime( long queueWaitTime ) {
+    this.queueWaitTime = queueWaitTime;
+  }
+
   /**
    * @return the id
    */
@@ -59,6 +59,16 @@ public class SlaveServerStatus {
 
   private String osArchitecture;
 
+  private int runningExecutions;
+
+  private int queuedExecutions;
+
+  private int maxConcurrentExecutions;
+
+  private int usedExecutionMemoryMb;
+
+  private int maxExecutionMemoryMb;
+
   public SlaveServerStatus() {
     transStatusList = new ArrayList<SlaveServerTransStatus>();
     jobStatusList = new ArrayList<SlaveServerJobStatus>();
@@ -102,6 +112,12 @@ public class SlaveServerStatus {
     xml.append( XMLHandler.addTagValue( "os_version", osVersion ) );
     xml.append( XMLHandler.addTagValue( "os_arch", osArchitecture ) );
 
+    xml.append( XMLHandler.addTagValue( "executions_running", runningExecutions ) );
+    xml.append( XMLHandler.addTagValue( "executions_queued", queuedExecutions ) );
+    xml.append( XMLHandler.addTagValue( "executions_max", maxConcurrentExecutions ) );
+    xml.append( XMLHandler.addTagValue( "execution_memory_used_mb", usedExecutionMemoryMb ) );
+    xml.append( XMLHandler.addTagValue( "execution_memory_max_mb", maxExecutionMemoryMb ) );
+
     xml.append( "  <transstatuslist>" ).append( Const.CR );
     for ( int i = 0; i < transStatusList.size(); i++ ) {
       SlaveServerTransStatus transStatus = transStatusList.get( i );
@@ -141,6 +157,12 @@ public class SlaveServerStatus {
     osVersion = XMLHandler.getTagValue( statusNode, "os_version" );
     osArchitecture = XMLHandler.getTagValue( statusNode, "os_arch" );
 
+    runningExecutions = Const.toInt( XMLHandler.getTagValue( statusNode, "executions_running" ), 0 );
+    queuedExecutions = Const.toInt( XMLHandler.getTagValue( statusNode, "executions_queued" ), 0 );
+    maxConcurrentExecutions = Const.toInt( XMLHandler.getTagValue( statusNode, "executions_max" ), 0 );
+    usedExecutionMemoryMb = Const.toInt( XMLHandler.getTagValue( statusNode, "execution_memory_used_mb" ), 0 );
+    maxExecutionMemoryMb = Const.toInt( XMLHandler.getTagValue( statusNode, "execution_memory_max_mb" ), 0 );
+
     Node listTransNode = XMLHandler.getSubNode( statusNode, "transstatuslist" );
     Node listJobsNode = XMLHandler.getSubNode( statusNode, "jobstatuslist" );
 
@@ -352,4 +374,59 @@ public class SlaveServerStatus {
   public String getOsArchitecture() {
     return osArchitecture;
   }
+
+  /**
+   * @return the number of transformations and jobs started through the execution queue that are still running
+   */
+  public int getRunningExecutions() {
+    return runningExecutions;
+  }
+
+  public void setRunningExecutions( int runningExecutions ) {
+    this.runningExecutions = runningExecutions;
+  }
+
+  /**
+   * @return the number of transformations and jobs waiting for an execution slot
+   */
+  public int getQueuedExecutions() {
+    return queuedExecutions;
+  }
+
+  public void setQueuedExecutions( int queuedExecutions ) {
+    this.queuedExecutions = queuedExecutions;
+  }
+
+  /**
+   * @return the number of execution slots of the server, 0 for no limit
+   */
+  public int getMaxConcurrentExecutions() {
+    return maxConcurrentExecutions;
+  }
+
+  public void setMaxConcurrentExecutions( int maxConcurrentExecutions ) {
+    this.maxConcurrentExecutions = maxConcurrentExecutions;
+  }
+
+  /**
+   * @return the memory (MB) claimed by the running transformations and jobs
+   */
+  public int getUsedExecutionMemoryMb() {
+    return usedExecutionMemoryMb;
+  }
+
+  public void setUsedExecutionMemoryMb( int usedExecutionMemoryMb ) {
+    this.usedExecutionMemoryMb = usedExecutionMemoryMb;
+  }
+
+  /**
+   * @return the execution memory budget (MB) of the server, 0 for no limit
+   */
+  public int getMaxExecutionMemoryMb() {
+    return maxExecutionMemoryMb;
+  }
+
+  public void setMaxExecutionMemoryMb( int maxExecutionMemoryMb ) {
+    this.maxExecutionMemoryMb = maxExecutionMemoryMb;
+  }
 }
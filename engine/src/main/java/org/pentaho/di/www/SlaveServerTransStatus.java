@@ -65,6 +65,10 @@ public class SlaveServerTransStatus {
 
   private boolean paused;
 
+  private int queuePosition;
+
+  private long queueWaitTime;
+
   public SlaveServerTransStatus() {
     stepStatusList = new ArrayList<StepStatus>();
   }
@@ -96,6 +100,8 @@ public class SlaveServerTransStatus {
     xml.append( "  " ).append( XMLHandler.addTagValue( "error_desc", errorDescription ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "log_date", XMLHandler.date2string( logDate ) ) );
     xml.append( "  " ).append( XMLHandler.addTagValue( "paused", paused ) );
+    xml.append( "  " ).append( XMLHandler.addTagValue( "queue_position", queuePosition ) );
+    xml.append( "  " ).append( XMLHandler.addTagValue( "queue_wait_time", queueWaitTime ) );
 
     xml.append( "  " ).append( XMLHandler.openTag( "stepstatuslist" ) ).append( Const.CR );
     for ( int i = 0; i < stepStatusList.size(); i++ ) {
@@ -127,6 +133,8 @@ public class SlaveServerTransStatus {
     errorDescription = XMLHandler.getTagValue( transStatusNode, "error_desc" );
     logDate = XMLHandler.stringToDate( XMLHandler.getTagValue( transStatusNode, "log_date" ) );
     paused = "Y".equalsIgnoreCase( XMLHandler.getTagValue( transStatusNode, "paused" ) );
+    queuePosition = Const.toInt( XMLHandler.getTagValue( transStatusNode, "queue_position" ), 0 );
+    queueWaitTime = Const.toLong( XMLHandler.getTagValue( transStatusNode, "queue_wait_time" ), 0L );
 
     Node statusListNode = XMLHandler.getSubNode( transStatusNode, "stepstatuslist" );
     int nr = XMLHandler.countNodes( statusListNode, StepStatus.XML_TAG );
@@ -349,6 +357,36 @@ public class SlaveServerTransStatus {
     this.paused = paused;
   }
 
+  /**
+   * @return the position (1 is next) in the execution queue of the server, 0 if it isn't waiting
+   */
+  public int getQueuePosition() {
+    return queuePosition;
+  }
+
+  /**
+   * @param queuePosition
+   *          the position (1 is next) in the execution queue of the server, 0 if it isn't waiting
+   */
+  public void setQueuePosition( int queuePosition ) {
+    this.queuePosition = queuePosition;
+  }
+
+  /**
+   * @return the time (ms) spent in the execution queue of the server, up to now if it is still waiting
+   */
+  public long getQueueWaitTime() {
+    return queueWaitTime;
+  }
+
+  /**
+   * @param queueWaitTime
+   *          the time (ms) spent in the execution queue of the server, up to now if it is still waiting
+   */
+  public void setQueueWaitTime( long queueWaitTime ) {
+    this.queueWaitTime = queueWaitTime;
+  }
+
   /**
    * @return the lastLoggingLineNr
    */
@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.net.BindException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -52,8 +53,8 @@ public class SocketRepository {
     socketMap = new HashMap<Integer, SocketRepositoryEntry>();
   }
 
-  private ServerSocket createServerSocket( int port ) throws IOException {
-    ServerSocket serverSocket = new ServerSocket();
+  private ServerSocket createServerSocket( int port, boolean channel ) throws IOException {
+    ServerSocket serverSocket = channel ? ServerSocketChannel.open().socket() : new ServerSocket();
     serverSocket.setPerformancePreferences( 1, 2, 3 ); // order of importance: bandwidth, latency, connection time
     serverSocket.setReuseAddress( true );
 
@@ -100,11 +101,23 @@ public class SocketRepository {
   }
 
   public synchronized ServerSocket openServerSocket( int port, String user ) throws IOException {
+    return openServerSocket( port, user, false );
+  }
+
+  /**
+   * Open a server socket that has a {@link ServerSocketChannel}, for the connections that are read and written with
+   * NIO.
+   */
+  public synchronized ServerSocket openServerSocketChannel( int port, String user ) throws IOException {
+    return openServerSocket( port, user, true );
+  }
+
+  private ServerSocket openServerSocket( int port, String user, boolean channel ) throws IOException {
 
     SocketRepositoryEntry entry = socketMap.get( port );
     if ( entry == null ) {
 
-      ServerSocket serverSocket = createServerSocket( port );
+      ServerSocket serverSocket = createServerSocket( port, channel );
       entry = new SocketRepositoryEntry( port, serverSocket, true, user );
 
       // Store the entry in the map too!
@@ -117,8 +130,11 @@ public class SocketRepository {
       if ( entry.isInUse() ) {
         throw new IOException( "Server socket on port " + port + " is already in use by [" + entry.getUser() + "]" );
       }
+      if ( channel && entry.getServerSocket().getChannel() == null ) {
+        entry.getServerSocket().close();
+      }
       if ( entry.getServerSocket().isClosed() ) {
-        entry.setServerSocket( createServerSocket( port ) );
+        entry.setServerSocket( createServerSocket( port, channel ) );
       }
       entry.setInUse( true );
     }
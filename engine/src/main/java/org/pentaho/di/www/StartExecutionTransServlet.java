@@ -37,6 +37,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
 
 
 public class StartExecutionTransServlet extends BaseHttpServlet implements CartePluginInterface {
@@ -196,8 +197,18 @@ public class StartExecutionTransServlet extends BaseHttpServlet implements Carte
         if ( trans.isReadyToStart() ) {
           startThreads( trans );
 
+          ExecutionQueue executionQueue = getTransformationMap().getExecutionQueue();
+          int position = executionQueue == null ? 0 : executionQueue.getPosition( trans.getContainerObjectId() );
+          String queued = position > 0 ? BaseMessages.getString( PKG, "StartTransServlet.Log.TransQueued", transName,
+            String.valueOf( position ) ) : null;
           if ( useXML ) {
-            out.println( WebResult.OK.getXML() );
+            out.println( queued == null ? WebResult.OK.getXML() : new WebResult( WebResult.STRING_OK, queued ).getXML() );
+          } else if ( queued != null ) {
+            out.println( "<H1>" + Encode.forHtml( queued ) + "</H1>" );
+            out.println( "<a href=\""
+              + convertContextPath( GetTransStatusServlet.CONTEXT_PATH ) + "?name="
+              + URLEncoder.encode( transName, "UTF-8" ) + "&id=" + URLEncoder.encode( id, "UTF-8" )
+              + "\">Back to the transformation status page</a><p>" );
           } else {
             out
               .println( "<H1>Transformation "
@@ -261,8 +272,34 @@ public class StartExecutionTransServlet extends BaseHttpServlet implements Carte
     return CONTEXT_PATH + " (" + toString() + ")";
   }
 
-  protected void startThreads( Trans trans ) throws KettleException {
-    trans.startThreads();
+  protected void startThreads( final Trans trans ) throws KettleException {
+    final ExecutionQueue executionQueue = getTransformationMap().getExecutionQueue();
+    if ( executionQueue == null ) {
+      trans.startThreads();
+      return;
+    }
+
+    final String id = trans.getContainerObjectId();
+    trans.addTransListener( new TransAdapter() {
+      @Override public void transFinished( Trans trans ) {
+        executionQueue.release( id );
+      }
+    } );
+    if ( trans.getTransMeta().isSlaveTransformation() ) {
+      // The parts of a clustered transformation wait for each other's sockets: start now, but take a slot
+      //
+      executionQueue.admit( id, trans.getName(), trans );
+      try {
+        trans.startThreads();
+      } catch ( KettleException | RuntimeException e ) {
+        executionQueue.release( id );
+        throw e;
+      }
+    } else {
+      // Start now if there is an execution slot, otherwise as soon as one is released
+      //
+      executionQueue.submit( id, trans.getName(), trans, ticket -> trans.startThreads() );
+    }
   }
 
   public String getContextPath() {
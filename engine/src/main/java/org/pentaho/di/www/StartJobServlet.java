@@ -42,6 +42,7 @@ import org.pentaho.di.core.logging.SimpleLoggingObject;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.job.Job;
+import org.pentaho.di.job.JobAdapter;
 import org.pentaho.di.job.JobConfiguration;
 import org.pentaho.di.www.cache.CarteStatusCache;
 
@@ -294,9 +295,17 @@ public class StartJobServlet extends BaseHttpServlet implements CartePluginInter
           }
         }
 
+        // Queue it under the ID of the entry, the one StopJobServlet cancels
+        //
+        job.setContainerObjectId( id );
         runJob( job );
 
         String message = BaseMessages.getString( PKG, "StartJobServlet.Log.JobStarted", jobName );
+        ExecutionQueue executionQueue = getJobMap().getExecutionQueue();
+        int position = executionQueue == null ? 0 : executionQueue.getPosition( job.getContainerObjectId() );
+        if ( position > 0 ) {
+          message = BaseMessages.getString( PKG, "StartJobServlet.Log.JobQueued", jobName, String.valueOf( position ) );
+        }
         if ( useXML ) {
           out.println( new WebResult( WebResult.STRING_OK, message, id ).getXML() );
         } else {
@@ -347,8 +356,22 @@ public class StartJobServlet extends BaseHttpServlet implements CartePluginInter
     return CONTEXT_PATH + " (" + toString() + ")";
   }
 
-  protected void runJob( Job job ) throws KettleException {
-    job.start(); // runs the thread in the background...
+  protected void runJob( final Job job ) throws KettleException {
+    final ExecutionQueue executionQueue = getJobMap().getExecutionQueue();
+    if ( executionQueue == null ) {
+      job.start(); // runs the thread in the background...
+      return;
+    }
+
+    // Start the job now if there is an execution slot, otherwise as soon as one is released
+    //
+    final String id = job.getContainerObjectId();
+    job.addJobListener( new JobAdapter() {
+      public void jobFinished( Job job ) {
+        executionQueue.release( id );
+      }
+    } );
+    executionQueue.submit( id, job.getJobname(), job, ticket -> job.start() );
   }
 
   public String getContextPath() {
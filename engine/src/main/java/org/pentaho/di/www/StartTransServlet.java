@@ -43,6 +43,7 @@ import org.pentaho.di.core.logging.SimpleLoggingObject;
 import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
 import org.pentaho.di.trans.TransConfiguration;
 import org.pentaho.di.trans.TransExecutionConfiguration;
 import org.pentaho.di.www.cache.CarteStatusCache;
@@ -226,6 +227,7 @@ public class StartTransServlet extends BaseHttpServlet implements CartePluginInt
           trans.setReplayDate( executionConfiguration.getReplayDate() );
           trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
           trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
+          trans.setStepExecutionMode( executionConfiguration.getStepExecutionMode() );
           trans.injectVariables( executionConfiguration.getVariables() );
           trans.setPreviousResult( executionConfiguration.getPreviousResult() );
         }
@@ -247,6 +249,12 @@ public class StartTransServlet extends BaseHttpServlet implements CartePluginInt
         executeTrans( trans );
 
         String message = BaseMessages.getString( PKG, "StartTransServlet.Log.TransStarted", transName );
+        ExecutionQueue executionQueue = getTransformationMap().getExecutionQueue();
+        int position = executionQueue == null ? 0 : executionQueue.getPosition( trans.getContainerObjectId() );
+        if ( position > 0 ) {
+          message = BaseMessages.getString( PKG, "StartTransServlet.Log.TransQueued", transName,
+            String.valueOf( position ) );
+        }
         if ( useXML ) {
           out.println( new WebResult( WebResult.STRING_OK, message ).getXML() );
         } else {
@@ -297,8 +305,22 @@ public class StartTransServlet extends BaseHttpServlet implements CartePluginInt
     return CONTEXT_PATH + " (" + toString() + ")";
   }
 
-  protected void executeTrans( Trans trans ) throws KettleException {
-    trans.execute( null );
+  protected void executeTrans( final Trans trans ) throws KettleException {
+    final ExecutionQueue executionQueue = getTransformationMap().getExecutionQueue();
+    if ( executionQueue == null ) {
+      trans.execute( null );
+      return;
+    }
+
+    // Start now if there is an execution slot, otherwise as soon as one is released
+    //
+    final String id = trans.getContainerObjectId();
+    trans.addTransListener( new TransAdapter() {
+      @Override public void transFinished( Trans trans ) {
+        executionQueue.release( id );
+      }
+    } );
+    executionQueue.submit( id, trans.getName(), trans, ticket -> trans.execute( null ) );
   }
 
   public String getContextPath() {
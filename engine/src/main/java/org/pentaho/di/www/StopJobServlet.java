@@ -191,6 +191,12 @@ public class StopJobServlet extends BaseHttpServlet implements CartePluginInterf
       }
 
       if ( job != null ) {
+        // Don't start it later if it is still waiting for an execution slot
+        //
+        ExecutionQueue executionQueue = getJobMap().getExecutionQueue();
+        if ( executionQueue != null ) {
+          executionQueue.cancel( entry.getId() );
+        }
         job.stopAll();
 
         String message = BaseMessages.getString( PKG, "JobStatusServlet.Log.JobStopRequested", jobName );
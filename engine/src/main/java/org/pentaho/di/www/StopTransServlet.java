@@ -197,6 +197,12 @@ public class StopTransServlet extends BaseHttpServlet implements CartePluginInte
       }
 
       if ( trans != null ) {
+        // Don't start it later if it is still waiting for an execution slot
+        //
+        ExecutionQueue executionQueue = getTransformationMap().getExecutionQueue();
+        if ( executionQueue != null ) {
+          executionQueue.cancel( entry.getId() );
+        }
         if ( inputOnly ) {
           trans.safeStop();
         } else {
@@ -38,6 +38,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransConfiguration;
+import org.pentaho.di.trans.cluster.InputSplitQueue;
 
 /**
  * This is a map between the transformation name and the (running/waiting/finished) transformation.
@@ -50,11 +51,17 @@ public class TransformationMap {
 
   private final Map<String, List<SocketPortAllocation>> hostServerSocketPortsMap;
 
+  private final Map<String, InputSplitQueue> inputSplitQueues;
+
   private SlaveServerConfig slaveServerConfig;
 
+  private ExecutionQueue executionQueue;
+
   public TransformationMap() {
     transMap = new ConcurrentHashMap<>();
     hostServerSocketPortsMap = new ConcurrentHashMap<>();
+    inputSplitQueues = new ConcurrentHashMap<>();
+    executionQueue = new ExecutionQueue();
   }
 
   /**
@@ -136,6 +143,7 @@ public class TransformationMap {
    */
   public void removeTransformation( CarteObjectEntry entry ) {
     transMap.remove( entry );
+    executionQueue.cancel( entry.getId() );
   }
 
   public List<CarteObjectEntry> getTransformationObjects() {
@@ -370,6 +378,21 @@ public class TransformationMap {
     this.slaveServerConfig = slaveServerConfig;
   }
 
+  /**
+   * @return the queue that decides when the transformations of this server are started
+   */
+  public ExecutionQueue getExecutionQueue() {
+    return executionQueue;
+  }
+
+  /**
+   * @param executionQueue
+   *          the queue that decides when the transformations of this server are started
+   */
+  public void setExecutionQueue( ExecutionQueue executionQueue ) {
+    this.executionQueue = executionQueue;
+  }
+
   /**
    * @return the hostServerSocketPortsMap
    */
@@ -402,6 +425,40 @@ public class TransformationMap {
     return slaveSequence;
   }
 
+  /**
+   * Get the queue handing out the input of a step of a clustered run, creating it the first time a step copy asks. The
+   * first request determines the domain of the input, later requests get chunks of that domain.
+   *
+   * @param clusteredRunId
+   *          the ID of the clustered run
+   * @param name
+   *          the name of the input, usually the step name
+   * @param start
+   *          the first position of the input
+   * @param end
+   *          the position right after the input
+   * @param minChunkSize
+   *          the minimum size of a chunk
+   * @param consumers
+   *          the number of readers of the input across the cluster
+   * @return the queue
+   */
+  public InputSplitQueue getInputSplitQueue( String clusteredRunId, String name, long start, long end,
+    long minChunkSize, int consumers ) {
+    return inputSplitQueues.computeIfAbsent( clusteredRunId + "/" + name,
+      k -> new InputSplitQueue( name, start, end, minChunkSize, consumers ) );
+  }
+
+  /**
+   * Remove the input split queues of a clustered run.
+   *
+   * @param clusteredRunId
+   *          the ID of the clustered run
+   */
+  public void removeInputSplitQueues( String clusteredRunId ) {
+    inputSplitQueues.keySet().removeIf( key -> key.startsWith( clusteredRunId + "/" ) );
+  }
+
   private static class TransData {
 
     private Trans trans;
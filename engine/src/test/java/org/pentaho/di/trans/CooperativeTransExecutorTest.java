@@ -0,0 +1,223 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.DirectRowSet;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepIOMetaInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+import org.pentaho.di.trans.step.StepMetaInterface;
+import org.pentaho.di.trans.step.errorhandling.StreamInterface;
+
+public class CooperativeTransExecutorTest {
+
+  private Trans trans;
+  private List<StepMetaDataCombi> steps;
+
+  @Before
+  public void setUp() {
+    steps = new ArrayList<StepMetaDataCombi>();
+    trans = mock( Trans.class );
+    when( trans.getSteps() ).thenReturn( steps );
+    when( trans.getLogChannel() ).thenReturn( mock( LogChannelInterface.class ) );
+
+    // The steps are added from start to finish
+    //
+    TransMeta transMeta = mock( TransMeta.class );
+    when( transMeta.findPrevious( any( StepMeta.class ), any( StepMeta.class ) ) ).thenAnswer( new Answer<Boolean>() {
+      @Override
+      public Boolean answer( InvocationOnMock invocation ) {
+        return indexOf( (StepMeta) invocation.getArguments()[1] ) < indexOf( (StepMeta) invocation.getArguments()[0] );
+      }
+    } );
+    when( trans.getTransMeta() ).thenReturn( transMeta );
+  }
+
+  @Test
+  public void testCreateExecutor() {
+    assertFalse( SingleThreadedTransExecutor.createExecutor( trans ) instanceof CooperativeTransExecutor );
+
+    when( trans.getVariable( Const.KETTLE_SINGLE_THREADED_SCHEDULER ) ).thenReturn( "Cooperative" );
+    assertTrue( SingleThreadedTransExecutor.createExecutor( trans ) instanceof CooperativeTransExecutor );
+  }
+
+  @Test
+  public void testLinearChainIsFused() throws Exception {
+    StepMetaDataCombi first = addStep( "first" );
+    StepMetaDataCombi second = addStep( "second" );
+    StepMetaDataCombi third = addStep( "third" );
+    RowSet input = connect( null, first );
+    connect( first, second );
+    connect( second, third );
+    RowSet output = connect( third, null );
+
+    CooperativeTransExecutor executor = new CooperativeTransExecutor( trans );
+    assertEquals( 1, executor.getNrChains() );
+
+    // The rows are handed over directly inside the chain, the input and output of the chain stay queues
+    //
+    assertTrue( first.step.getOutputRowSets().get( 0 ) instanceof DirectRowSet );
+    assertSame( first.step.getOutputRowSets().get( 0 ), second.step.getInputRowSets().get( 0 ) );
+    assertTrue( third.step.getInputRowSets().get( 0 ) instanceof DirectRowSet );
+    assertSame( input, first.step.getInputRowSets().get( 0 ) );
+    assertSame( output, third.step.getOutputRowSets().get( 0 ) );
+
+    for ( int batch = 0; batch < 3; batch++ ) {
+      for ( int i = 0; i < 100; i++ ) {
+        input.putRow( new RowMeta(), new Object[] { (long) i } );
+      }
+      assertTrue( executor.oneIteration() );
+      assertEquals( 100, output.size() );
+      for ( int i = 0; i < 100; i++ ) {
+        assertEquals( (long) i, output.getRow()[0] );
+      }
+    }
+    verify( third.step, times( 3 ) ).batchComplete();
+  }
+
+  @Test
+  public void testBranchesAreScheduledSeparately() throws Exception {
+    StepMetaDataCombi source = addStep( "source" );
+    StepMetaDataCombi left = addStep( "left" );
+    StepMetaDataCombi right = addStep( "right" );
+    StepMetaDataCombi merge = addStep( "merge" );
+    RowSet input = connect( null, source );
+    connect( source, left );
+    connect( source, right );
+    connect( left, merge );
+    connect( right, merge );
+    RowSet output = connect( merge, null );
+
+    CooperativeTransExecutor executor = new CooperativeTransExecutor( trans );
+    assertEquals( 4, executor.getNrChains() );
+    assertTrue( merge.step.getInputRowSets().get( 0 ) instanceof QueueRowSet );
+
+    for ( int i = 0; i < 1000; i++ ) {
+      input.putRow( new RowMeta(), new Object[] { (long) i } );
+    }
+    assertTrue( executor.oneIteration() );
+
+    // Every row is copied to both branches
+    //
+    assertEquals( 2000, output.size() );
+    verify( merge.step ).batchComplete();
+  }
+
+  @Test
+  public void testStepErrorEndsTheBatch() throws Exception {
+    StepMetaDataCombi first = addStep( "first" );
+    StepMetaDataCombi second = addStep( "second" );
+    RowSet input = connect( null, first );
+    connect( first, second );
+    when( second.step.getErrors() ).thenReturn( 1L );
+
+    CooperativeTransExecutor executor = new CooperativeTransExecutor( trans );
+    input.putRow( new RowMeta(), new Object[] { 1L } );
+    assertFalse( executor.oneIteration() );
+  }
+
+  private int indexOf( StepMeta stepMeta ) {
+    for ( int i = 0; i < steps.size(); i++ ) {
+      if ( steps.get( i ).stepMeta == stepMeta ) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Add a step that copies every row it reads to all its outputs.
+   */
+  private StepMetaDataCombi addStep( String name ) throws Exception {
+    final StepMetaDataCombi combi = new StepMetaDataCombi();
+    combi.stepname = name;
+    combi.copy = 0;
+    combi.stepMeta = mock( StepMeta.class );
+    combi.meta = mock( StepMetaInterface.class );
+    StepIOMetaInterface stepIOMeta = mock( StepIOMetaInterface.class );
+    when( stepIOMeta.getInfoStreams() ).thenReturn( new ArrayList<StreamInterface>() );
+    when( combi.meta.getStepIOMeta() ).thenReturn( stepIOMeta );
+    when( combi.stepMeta.getStepMetaInterface() ).thenReturn( combi.meta );
+
+    final List<RowSet> inputRowSets = new ArrayList<RowSet>();
+    final List<RowSet> outputRowSets = new ArrayList<RowSet>();
+    combi.step = mock( StepInterface.class );
+    when( combi.step.getInputRowSets() ).thenReturn( inputRowSets );
+    when( combi.step.getOutputRowSets() ).thenReturn( outputRowSets );
+    when( combi.step.processRow( any( StepMetaInterface.class ), any( StepDataInterface.class ) ) ).thenAnswer(
+      new Answer<Boolean>() {
+        @Override
+        public Boolean answer( InvocationOnMock invocation ) {
+          for ( RowSet rowSet : inputRowSets ) {
+            Object[] row = rowSet.getRow();
+            if ( row != null ) {
+              for ( RowSet outputRowSet : outputRowSets ) {
+                outputRowSet.putRow( rowSet.getRowMeta(), row );
+              }
+              return true;
+            }
+          }
+          return true;
+        }
+      } );
+    steps.add( combi );
+    return combi;
+  }
+
+  private RowSet connect( StepMetaDataCombi from, StepMetaDataCombi to ) {
+    RowSet rowSet = new QueueRowSet();
+    rowSet.setThreadNameFromToCopy( from == null ? "producer" : from.stepname, 0, to == null ? "collector"
+      : to.stepname, 0 );
+    if ( from != null ) {
+      from.step.getOutputRowSets().add( rowSet );
+    }
+    if ( to != null ) {
+      to.step.getInputRowSets().add( rowSet );
+    }
+    return rowSet;
+  }
+}
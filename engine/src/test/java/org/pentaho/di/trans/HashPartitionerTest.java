@@ -0,0 +1,223 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.loadsave.validator.EnumLoadSaveValidator;
+import org.pentaho.di.trans.steps.loadsave.validator.FieldLoadSaveValidator;
+
+public class HashPartitionerTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Test
+  public void testSerialization() throws KettleException {
+    List<String> attributes = Arrays.asList( "FieldNames", "HashFunction", "Consistent" );
+    Map<String, FieldLoadSaveValidator<?>> validators = new HashMap<String, FieldLoadSaveValidator<?>>();
+    validators.put( "HashFunction", new EnumLoadSaveValidator<PartitionHashFunction>( PartitionHashFunction.class ) );
+    LoadSaveTester<HashPartitioner> tester =
+      new LoadSaveTester<HashPartitioner>( HashPartitioner.class, attributes, new ArrayList<String>(),
+        new ArrayList<String>(), new HashMap<String, String>(), new HashMap<String, String>(), validators,
+        new HashMap<String, FieldLoadSaveValidator<?>>() );
+
+    tester.testSerialization();
+  }
+
+  @Test
+  public void binaryStringsGoWhereTheirStringsGo() throws KettleException {
+    RowMetaInterface normal = new RowMeta();
+    normal.addValueMeta( new ValueMetaString( "name" ) );
+
+    RowMetaInterface binary = new RowMeta();
+    binary.addValueMeta( createLazyUtf8String( "name" ) );
+
+    HashPartitioner normalPartitioner = createPartitioner( 7, "name" );
+    HashPartitioner binaryPartitioner = createPartitioner( 7, "name" );
+    for ( String name : new String[] { "a", "Kettle", "Grüße", "日本語のテキスト", "😀 smile", "" } ) {
+      assertEquals( name,
+        normalPartitioner.getPartition( normal, new Object[] { name } ),
+        binaryPartitioner.getPartition( binary, new Object[] { name.getBytes( StandardCharsets.UTF_8 ) } ) );
+    }
+  }
+
+  @Test
+  public void rowsOfStepsWithDifferentStorageShareAPartitioner() throws KettleException {
+    RowMetaInterface normal = new RowMeta();
+    normal.addValueMeta( new ValueMetaInteger( "id" ) );
+    normal.addValueMeta( new ValueMetaString( "name" ) );
+    RowMetaInterface binary = new RowMeta();
+    binary.addValueMeta( createLazyUtf8String( "name" ) );
+
+    HashPartitioner expected = createPartitioner( 7, "name" );
+    HashPartitioner partitioner = createPartitioner( 7, "name" );
+    for ( String name : new String[] { "a", "Kettle", "Grüße" } ) {
+      int partition = expected.getPartition( binary, new Object[] { name.getBytes( StandardCharsets.UTF_8 ) } );
+      assertEquals( name, partition,
+        partitioner.getPartition( binary, new Object[] { name.getBytes( StandardCharsets.UTF_8 ) } ) );
+      assertEquals( name, partition, partitioner.getPartition( normal, new Object[] { 1L, name } ) );
+
+      int[] partitions = new int[ 1 ];
+      partitioner.getPartitions( binary, new Object[][] { { name.getBytes( StandardCharsets.UTF_8 ) } }, 1,
+        partitions );
+      assertEquals( name, partition, partitions[ 0 ] );
+      partitioner.getPartitions( normal, new Object[][] { { 1L, name } }, 1, partitions );
+      assertEquals( name, partition, partitions[ 0 ] );
+    }
+  }
+
+  @Test
+  public void emptyStringsGoWhereNullsGo() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    HashPartitioner partitioner = createPartitioner( 101, "name" );
+
+    assertEquals( partitioner.getPartition( rowMeta, new Object[] { null } ),
+      partitioner.getPartition( rowMeta, new Object[] { "" } ) );
+  }
+
+  @Test
+  public void partitionsOnAllTheKeyFields() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "country" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    HashPartitioner partitioner = createPartitioner( 16, "country", "id" );
+
+    boolean[] used = new boolean[ 16 ];
+    for ( long id = 0; id < 1000; id++ ) {
+      used[ partitioner.getPartition( rowMeta, new Object[] { "BE", id } ) ] = true;
+    }
+    for ( boolean partitionUsed : used ) {
+      assertTrue( partitionUsed );
+    }
+  }
+
+  @Test
+  public void blocksArePartitionedLikeSingleRows() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+
+    for ( PartitionHashFunction hashFunction : PartitionHashFunction.values() ) {
+      HashPartitioner partitioner = createPartitioner( 5, "name", "id" );
+      partitioner.setHashFunction( hashFunction );
+      Object[][] rows = new Object[ 100 ][];
+      int[] expected = new int[ rows.length ];
+      for ( int i = 0; i < rows.length; i++ ) {
+        rows[ i ] = new Object[] { "name-" + ( i % 13 ), i % 2 == 0 ? null : (long) i };
+        expected[ i ] = partitioner.getPartition( rowMeta, rows[ i ] );
+      }
+
+      int[] partitions = new int[ rows.length ];
+      partitioner.getPartitions( rowMeta, rows, rows.length, partitions );
+      assertArrayEquals( expected, partitions );
+    }
+  }
+
+  @Test
+  public void onlyRowsOfTheAddedPartitionMove() throws KettleException {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    HashPartitioner four = createPartitioner( 4, "id" );
+    HashPartitioner five = createPartitioner( 5, "id" );
+
+    int moved = 0;
+    for ( long id = 0; id < 10000; id++ ) {
+      Object[] row = new Object[] { id };
+      int before = four.getPartition( rowMeta, row );
+      int after = five.getPartition( rowMeta, row );
+      if ( before != after ) {
+        assertEquals( 4, after );
+        moved++;
+      }
+    }
+    // About a fifth of the rows go to the new partition
+    //
+    assertTrue( String.valueOf( moved ), moved > 1700 && moved < 2300 );
+  }
+
+  @Test
+  public void jumpConsistentHashStaysInRange() {
+    for ( long key = -1000; key < 1000; key++ ) {
+      int bucket = HashPartitioner.jumpConsistentHash( key * 0x9E3779B97F4A7C15L, 3 );
+      assertTrue( bucket >= 0 && bucket < 3 );
+    }
+    assertEquals( 0, HashPartitioner.jumpConsistentHash( 42L, 1 ) );
+  }
+
+  @Test
+  public void hashFunctionsMatchTheReferenceValues() {
+    byte[] fox = "The quick brown fox jumps over the lazy dog".getBytes( StandardCharsets.UTF_8 );
+    assertEquals( 0x2e4ff723, PartitionHashFunction.MURMUR3.hashBytes( fox, 0, fox.length, 0 ) );
+    assertEquals( 0xe85ea4de, PartitionHashFunction.XXHASH.hashBytes( fox, 0, fox.length, 0 ) );
+    assertEquals( 0x02cc5d05, PartitionHashFunction.XXHASH.hashBytes( new byte[ 0 ], 0, 0, 0 ) );
+
+    byte[] littleEndian = new byte[] { 8, 7, 6, 5, 4, 3, 2, 1 };
+    for ( PartitionHashFunction hashFunction : PartitionHashFunction.values() ) {
+      assertEquals( hashFunction.hashBytes( littleEndian, 0, 8, 42 ),
+        hashFunction.hashLong( 0x0102030405060708L, 42 ) );
+    }
+  }
+
+  @Test
+  public void encodesStringsLikeTheJdk() {
+    byte[][] buffer = new byte[][] { new byte[ 1 ] };
+    String string = "abé€😀\uD800x";
+    int length = HashPartitioner.encodeUtf8( string, buffer );
+    assertArrayEquals( string.getBytes( StandardCharsets.UTF_8 ), Arrays.copyOf( buffer[ 0 ], length ) );
+  }
+
+  private ValueMetaInterface createLazyUtf8String( String name ) {
+    ValueMetaInterface storage = new ValueMetaString( name );
+    storage.setStringEncoding( "UTF-8" );
+    ValueMetaInterface lazy = new ValueMetaString( name );
+    lazy.setStringEncoding( "UTF-8" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    lazy.setStorageMetadata( storage );
+    return lazy;
+  }
+
+  private HashPartitioner createPartitioner( int nrPartitions, String... fieldNames ) {
+    HashPartitioner partitioner = new HashPartitioner();
+    partitioner.setNrPartitions( nrPartitions );
+    partitioner.setFieldNames( fieldNames );
+    return partitioner;
+  }
+}
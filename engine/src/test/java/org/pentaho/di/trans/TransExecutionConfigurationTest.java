@@ -27,6 +27,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.ClassRule;
@@ -44,6 +45,7 @@ import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.repository.RepositoriesMeta;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryMeta;
+import org.pentaho.di.trans.step.StepExecutionMode;
 
 import java.util.HashMap;
 import java.util.List;
@@ -189,4 +191,20 @@ public class TransExecutionConfigurationTest {
       assertEquals( "xml-copy", tec.getPassedBatchId(), tecCopy.getPassedBatchId() );
     }
   }
+
+  @Test
+  public void testStepExecutionModeXml() throws Exception {
+    TransExecutionConfiguration tec = new TransExecutionConfiguration();
+    assertNull( tec.getStepExecutionMode() );
+    assertNull( copyXml( tec ).getStepExecutionMode() );
+
+    tec.setStepExecutionMode( StepExecutionMode.POOLED );
+    assertEquals( StepExecutionMode.POOLED, copyXml( tec ).getStepExecutionMode() );
+    assertEquals( StepExecutionMode.POOLED, ( (TransExecutionConfiguration) tec.clone() ).getStepExecutionMode() );
+  }
+
+  private static TransExecutionConfiguration copyXml( TransExecutionConfiguration tec ) throws Exception {
+    Document doc = XMLHandler.loadXMLString( tec.getXML() );
+    return new TransExecutionConfiguration( XMLHandler.getSubNode( doc, TransExecutionConfiguration.XML_TAG ) );
+  }
 }
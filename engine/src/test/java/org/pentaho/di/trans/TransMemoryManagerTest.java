@@ -0,0 +1,89 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TransMemoryManagerTest {
+
+  private static final long MB = 1024L * 1024L;
+
+  @Test
+  public void testParseLimit() {
+    assertEquals( 0L, TransMemoryManager.parseLimit( null ) );
+    assertEquals( 0L, TransMemoryManager.parseLimit( "" ) );
+    assertEquals( 0L, TransMemoryManager.parseLimit( "lots" ) );
+    assertEquals( 512L * MB, TransMemoryManager.parseLimit( " 512 " ) );
+  }
+
+  @Test
+  public void testUnlimited() {
+    MemoryReservation memory = new TransMemoryManager( 0 ).createReservation( "step" );
+    assertFalse( memory.isLimited() );
+    assertTrue( memory.allocate( Long.MAX_VALUE / 2 ) );
+
+    memory = MemoryReservation.unlimited();
+    assertFalse( memory.isLimited() );
+    assertTrue( memory.allocate( Long.MAX_VALUE / 2 ) );
+  }
+
+  @Test
+  public void testReservationsShareTheLimit() {
+    TransMemoryManager manager = new TransMemoryManager( 3 * MB );
+    MemoryReservation first = manager.createReservation( "first" );
+    MemoryReservation second = manager.createReservation( "second" );
+    assertTrue( first.isLimited() );
+
+    // Memory is reserved in chunks
+    //
+    assertTrue( first.allocate( 100 ) );
+    assertEquals( MB, manager.getReserved() );
+
+    assertTrue( second.allocate( 2 * MB ) );
+    assertEquals( 3 * MB, manager.getReserved() );
+
+    // The limit is reached: the bytes are counted but refused
+    //
+    assertFalse( second.allocate( 1 ) );
+    assertEquals( 2 * MB + 1, second.getUsed() );
+
+    // The first reservation still has room in its chunk
+    //
+    assertTrue( first.allocate( 1000 ) );
+
+    second.releaseAll();
+    assertEquals( 0, second.getUsed() );
+    assertEquals( MB, manager.getReserved() );
+
+    first.release( 100 );
+    assertEquals( 1000, first.getUsed() );
+    assertEquals( 1000, manager.getReserved() );
+
+    first.releaseAll();
+    assertEquals( 0, manager.getReserved() );
+  }
+}
@@ -32,6 +32,7 @@ import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.ProgressMonitorListener;
+import org.pentaho.di.core.RowSetWaitStrategy;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
@@ -46,6 +47,7 @@ import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.metastore.DatabaseMetaStoreUtil;
 import org.pentaho.di.repository.ObjectRevision;
 import org.pentaho.di.repository.Repository;
@@ -83,6 +85,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -526,6 +529,44 @@ public class TransMetaTest {
     }
   }
 
+  @Test
+  public void testRingBufferRowSetSettingsXmlRoundTrip() throws Exception {
+    TransMeta transMeta = new TransMeta();
+    assertFalse( transMeta.isUsingRingBufferRowSets() );
+    assertEquals( RowSetWaitStrategy.PARK, transMeta.getRowSetWaitStrategy() );
+
+    transMeta.setUsingRingBufferRowSets( true );
+    transMeta.setRowSetWaitStrategy( RowSetWaitStrategy.YIELD );
+
+    Node transNode = XMLHandler.getSubNode( XMLHandler.loadXMLString( transMeta.getXML() ), TransMeta.XML_TAG );
+    TransMeta loaded = new TransMeta( transNode, null );
+
+    assertTrue( loaded.isUsingRingBufferRowSets() );
+    assertEquals( RowSetWaitStrategy.YIELD, loaded.getRowSetWaitStrategy() );
+  }
+
+  @Test
+  public void testStepFusionXmlRoundTrip() throws Exception {
+    TransMeta transMeta = new TransMeta();
+    assertFalse( transMeta.isUsingStepFusion() );
+
+    transMeta.setUsingStepFusion( true );
+
+    Node transNode = XMLHandler.getSubNode( XMLHandler.loadXMLString( transMeta.getXML() ), TransMeta.XML_TAG );
+    assertTrue( new TransMeta( transNode, null ).isUsingStepFusion() );
+  }
+
+  @Test
+  public void testMemoryLimitXmlRoundTrip() throws Exception {
+    TransMeta transMeta = new TransMeta();
+    assertNull( transMeta.getMemoryLimit() );
+
+    transMeta.setMemoryLimit( "${MEMORY_LIMIT}" );
+
+    Node transNode = XMLHandler.getSubNode( XMLHandler.loadXMLString( transMeta.getXML() ), TransMeta.XML_TAG );
+    assertEquals( "${MEMORY_LIMIT}", new TransMeta( transNode, null ).getMemoryLimit() );
+  }
+
   @Test
   public void testGetCacheVersion() throws Exception {
     TransMeta transMeta = new TransMeta( getClass().getResource( "one-step-trans.ktr" ).getPath() );
@@ -0,0 +1,86 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class InputSplitQueueTest {
+
+  @Test
+  public void testSplitsCoverTheDomain() {
+    InputSplitQueue queue = new InputSplitQueue( "input", 100, 10100, 10, 4 );
+
+    long next = 100;
+    InputSplit split = queue.nextSplit();
+    assertTrue( split.isFirst() );
+    while ( split != null ) {
+      assertEquals( next, split.getFrom() );
+      assertEquals( 100, split.getStart() );
+      assertEquals( 10100, split.getEnd() );
+      assertTrue( split.getSize() >= 10 || split.isLast() );
+      next = split.getTo();
+      split = queue.nextSplit();
+    }
+    assertEquals( 10100, next );
+    assertEquals( 0, queue.getRemaining() );
+    assertNull( queue.nextSplit() );
+  }
+
+  @Test
+  public void testSplitsGetSmaller() {
+    InputSplitQueue queue = new InputSplitQueue( "input", 0, 8000, 100, 2 );
+
+    InputSplit first = queue.nextSplit();
+    assertEquals( 2000, first.getSize() );
+    assertFalse( first.isLast() );
+
+    long previous = first.getSize();
+    for ( InputSplit split = queue.nextSplit(); split != null; split = queue.nextSplit() ) {
+      assertTrue( split.getSize() <= previous );
+      previous = split.getSize();
+    }
+    assertTrue( previous <= 100 );
+  }
+
+  @Test
+  public void testEmptyDomain() {
+    InputSplitQueue queue = new InputSplitQueue( "input", 5, 5, 1, 1 );
+    assertNull( queue.nextSplit() );
+    assertEquals( 0, queue.getNrSplits() );
+  }
+
+  @Test
+  public void testSmallDomainInOneSplit() {
+    InputSplitQueue queue = new InputSplitQueue( "input", 0, 3, 10, 8 );
+    InputSplit split = queue.nextSplit();
+    assertTrue( split.isFirst() );
+    assertTrue( split.isLast() );
+    assertEquals( 3, split.getSize() );
+    assertNull( queue.nextSplit() );
+  }
+}
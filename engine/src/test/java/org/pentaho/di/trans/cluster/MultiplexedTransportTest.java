@@ -0,0 +1,214 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.cluster;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.net.ServerSocket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.www.SocketRepository;
+
+public class MultiplexedTransportTest {
+
+  private MultiplexedTransport transport = MultiplexedTransport.getInstance();
+  private SocketRepository socketRepository;
+  private int port;
+  private MultiplexedEndpoint endpoint;
+  private MultiplexedConnection connection;
+  private RowMetaInterface rowMeta;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    try ( ServerSocket serverSocket = new ServerSocket( 0 ) ) {
+      port = serverSocket.getLocalPort();
+    }
+    socketRepository = new SocketRepository( mock( LogChannelInterface.class ) );
+    endpoint = transport.openEndpoint( port, socketRepository, "test" );
+    connection = transport.connect( "localhost", port, 5000 );
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    transport.releaseConnection( connection );
+    transport.releaseEndpoint( endpoint );
+    socketRepository.closeAll();
+  }
+
+  @Test
+  public void testEndpointAndConnectionAreShared() throws Exception {
+    MultiplexedEndpoint otherEndpoint = transport.openEndpoint( port, socketRepository, "test" );
+    MultiplexedConnection otherConnection = transport.connect( "localhost", port, 5000 );
+    try {
+      assertSame( endpoint, otherEndpoint );
+      assertSame( connection, otherConnection );
+    } finally {
+      transport.releaseConnection( otherConnection );
+      transport.releaseEndpoint( otherEndpoint );
+    }
+    assertFalse( connection.isFailed() );
+    assertFalse( endpoint.getServerSocket().isClosed() );
+  }
+
+  @Test
+  public void testTwoHopsOverOneConnection() throws Exception {
+    MultiplexedChannel receiverA = connection.openChannel( "A", MultiplexedTransport.INITIAL_CREDITS );
+    MultiplexedChannel receiverB = connection.openChannel( "B", MultiplexedTransport.INITIAL_CREDITS );
+    MultiplexedChannel senderB = endpoint.awaitChannel( "B", 5000 );
+    MultiplexedChannel senderA = endpoint.awaitChannel( "A", 5000 );
+    assertNotNull( senderA );
+    assertNotNull( senderB );
+    assertEquals( 2, connection.getNrChannels() );
+
+    sendRows( senderA, 0, 100, true );
+    sendRows( senderB, 1000, 10, false );
+    senderB.sendClose();
+    senderA.sendClose();
+
+    assertRows( receiverB, 1000, 10 );
+    assertRows( receiverA, 0, 100 );
+  }
+
+  @Test
+  public void testSenderWaitsWithoutCredits() throws Exception {
+    MultiplexedChannel receiver = connection.openChannel( "C", 1 );
+    MultiplexedChannel sender = endpoint.awaitChannel( "C", 5000 );
+    assertTrue( sender.awaitCredit( 5000 ) );
+    assertFalse( sender.awaitCredit( 100 ) );
+
+    byte[] meta = RowBlockWriter.writeMeta( rowMeta );
+    sender.sendMeta( meta, meta.length );
+    receiver.release( receiver.take( 5000 ) );
+    assertFalse( sender.awaitCredit( 100 ) );
+
+    RowBlockWriter writer = new RowBlockWriter( 1024, true );
+    writer.addRow( rowMeta, new Object[] { 1L, "one" } );
+    writer.finish();
+    sender.sendData( writer.getBlock(), writer.getBlockLength() );
+
+    // Reading the block hands the credit back
+    //
+    receiver.release( receiver.take( 5000 ) );
+    assertTrue( sender.awaitCredit( 5000 ) );
+  }
+
+  @Test
+  public void testUnknownChannelTimesOut() {
+    assertNull( endpoint.awaitChannel( "unknown", 100 ) );
+  }
+
+  @Test
+  public void testCompressedBlockIsSmaller() throws Exception {
+    RowBlockWriter compressed = new RowBlockWriter( 1024, true );
+    RowBlockWriter uncompressed = new RowBlockWriter( 1024, false );
+    for ( long i = 0; i < 100; i++ ) {
+      Object[] row = new Object[] { i, "the same name over and over again" };
+      compressed.addRow( rowMeta, row );
+      uncompressed.addRow( rowMeta, row );
+    }
+    compressed.finish();
+    uncompressed.finish();
+    assertEquals( uncompressed.size(), compressed.size() );
+    assertTrue( compressed.getBlockLength() < uncompressed.getBlockLength() );
+
+    RowBlockReader reader = new RowBlockReader();
+    assertEquals( 100, reader.open( compressed.getBlock(), compressed.getBlockLength() ) );
+    for ( long i = 0; i < 100; i++ ) {
+      assertArrayEquals( new Object[] { i, "the same name over and over again" }, reader.readRow( rowMeta ) );
+    }
+  }
+
+  private void sendRows( MultiplexedChannel channel, long first, int nrRows, boolean compressing ) throws Exception {
+    byte[] meta = RowBlockWriter.writeMeta( rowMeta );
+    channel.sendMeta( meta, meta.length );
+
+    RowBlockWriter writer = new RowBlockWriter( 1024, compressing );
+    for ( long i = first; i < first + nrRows; i++ ) {
+      writer.addRow( rowMeta, new Object[] { i, "name " + i } );
+      if ( writer.size() >= 1024 ) {
+        sendBlock( channel, writer );
+      }
+    }
+    if ( writer.getNrRows() > 0 ) {
+      sendBlock( channel, writer );
+    }
+  }
+
+  private void sendBlock( MultiplexedChannel channel, RowBlockWriter writer ) throws Exception {
+    writer.finish();
+    assertTrue( channel.awaitCredit( 5000 ) );
+    channel.sendData( writer.getBlock(), writer.getBlockLength() );
+    writer.reset();
+  }
+
+  /**
+   * Read the rows of a channel up to its close frame, handing back the buffers as the blocks are read.
+   */
+  private void assertRows( MultiplexedChannel channel, long first, int nrRows ) throws Exception {
+    RowBlockReader reader = new RowBlockReader();
+    RowMetaInterface receivedMeta = null;
+    long next = first;
+    MultiplexedChannel.Frame frame = channel.take( 5000 );
+    while ( frame != null && frame.getType() != MultiplexedConnection.FRAME_CLOSE ) {
+      if ( frame.getType() == MultiplexedConnection.FRAME_META ) {
+        receivedMeta = RowBlockReader.readMeta( frame.getData(), frame.getLength() );
+        assertEquals( rowMeta.size(), receivedMeta.size() );
+      } else {
+        int n = reader.open( frame.getData(), frame.getLength() );
+        for ( int i = 0; i < n; i++ ) {
+          assertArrayEquals( new Object[] { next, "name " + next }, reader.readRow( receivedMeta ) );
+          next++;
+        }
+      }
+      channel.release( frame );
+      frame = channel.take( 5000 );
+    }
+    assertNotNull( frame );
+    assertEquals( first + nrRows, next );
+  }
+}
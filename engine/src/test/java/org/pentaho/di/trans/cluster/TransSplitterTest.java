@@ -23,16 +23,26 @@
 package org.pentaho.di.trans.cluster;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.cluster.ClusterSchema;
+import org.pentaho.di.cluster.SlaveServer;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.KettleLogStore;
 import org.pentaho.di.core.logging.LogChannelInterface;
@@ -96,4 +106,62 @@ public class TransSplitterTest {
     }
 
   }
+
+  @Test
+  public void testMultiplexedHopsShareAPort() throws Exception {
+    TransSplitter transSplitter = createMultiplexingSplitter();
+    ClusterSchema clusterSchema = createClusterSchema();
+    SlaveServer slave1 = createSlaveServer( "slave1" );
+    SlaveServer slave2 = createSlaveServer( "slave2" );
+
+    int port = transSplitter.getRemoteStepPort( clusterSchema, false, slave1, "A", 0, slave2, "B", 0 );
+    assertEquals( port, transSplitter.getRemoteStepPort( clusterSchema, false, slave1, "A", 1, slave2, "B", 1 ) );
+    assertEquals( port, transSplitter.getRemoteStepPort( clusterSchema, false, slave1, "C", 0, slave2, "D", 0 ) );
+    assertNotEquals( port, transSplitter.getRemoteStepPort( clusterSchema, false, slave2, "A", 0, slave1, "B", 0 ) );
+  }
+
+  @Test
+  public void testEncryptedHopsGetAPortEach() throws Exception {
+    TransSplitter transSplitter = createMultiplexingSplitter();
+    ClusterSchema clusterSchema = createClusterSchema();
+    SlaveServer slave1 = createSlaveServer( "slave1" );
+    SlaveServer slave2 = createSlaveServer( "slave2" );
+
+    int port = transSplitter.getRemoteStepPort( clusterSchema, true, slave1, "A", 0, slave2, "B", 0 );
+    assertNotEquals( port, transSplitter.getRemoteStepPort( clusterSchema, true, slave1, "A", 1, slave2, "B", 1 ) );
+    assertNotEquals( port, transSplitter.getRemoteStepPort( clusterSchema, true, slave1, "C", 0, slave2, "D", 0 ) );
+    assertNotEquals( port, transSplitter.getRemoteStepPort( clusterSchema, false, slave1, "A", 0, slave2, "B", 0 ) );
+    assertEquals( port, transSplitter.getRemoteStepPort( clusterSchema, true, slave1, "A", 0, slave2, "B", 0 ) );
+  }
+
+  private TransSplitter createMultiplexingSplitter() {
+    TransSplitter transSplitter = new TransSplitter();
+    Whitebox.setInternalState( transSplitter, "originalTransformation", mock( TransMeta.class ) );
+    Whitebox.setInternalState( transSplitter, "multiplexingSocketStreams", true );
+    return transSplitter;
+  }
+
+  private ClusterSchema createClusterSchema() throws Exception {
+    final AtomicInteger nextPort = new AtomicInteger( 40000 );
+    SlaveServer master = mock( SlaveServer.class );
+    when( master.allocateServerSocket( anyString(), anyInt(), anyString(), anyString(), anyString(), anyString(),
+      anyString(), anyString(), anyString(), anyString() ) ).thenAnswer( new Answer<Integer>() {
+        @Override
+        public Integer answer( InvocationOnMock invocation ) {
+          return nextPort.getAndIncrement();
+        }
+      } );
+    ClusterSchema clusterSchema = mock( ClusterSchema.class );
+    when( clusterSchema.findMaster() ).thenReturn( master );
+    when( clusterSchema.getBasePort() ).thenReturn( "40000" );
+    return clusterSchema;
+  }
+
+  private SlaveServer createSlaveServer( String name ) {
+    SlaveServer slaveServer = mock( SlaveServer.class );
+    when( slaveServer.getName() ).thenReturn( name );
+    when( slaveServer.getHostname() ).thenReturn( name );
+    when( slaveServer.environmentSubstitute( name ) ).thenReturn( name );
+    return slaveServer;
+  }
 }
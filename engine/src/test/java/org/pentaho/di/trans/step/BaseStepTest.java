@@ -56,6 +56,7 @@ import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.ResultFile;
 import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RingBufferRowSet;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.SingleRowRowSet;
 import org.pentaho.di.core.exception.KettleException;
@@ -297,6 +298,107 @@ public class BaseStepTest {
     assertFalse( meta1 == meta2 );
   }
 
+  @Test
+  public void putRowsCopiesTheBlockToEveryOutputRowSet() throws Exception {
+    RowSet rs1 = new BlockingRowSet( 10 );
+    RowSet rs2 = new BlockingRowSet( 10 );
+
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setStopped( false );
+    baseStep.setRepartitioning( StepPartitioningMeta.PARTITIONING_METHOD_NONE );
+    baseStep.setOutputRowSets( Arrays.asList( rs1, rs2 ) );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    Object[][] rows = new Object[][] { { "a" }, { "b" }, { "c" }, null };
+
+    baseStep.putRows( rowMeta, rows, 3 );
+
+    assertEquals( 6, baseStep.getLinesWritten() );
+    assertEquals( 3, rs1.size() );
+    assertEquals( 3, rs2.size() );
+    for ( Object[] row : Arrays.copyOf( rows, 3 ) ) {
+      assertTrue( row == rs1.getRowImmediate() );
+      Object[] copy = rs2.getRowImmediate();
+      assertFalse( row == copy );
+      assertEquals( row[ 0 ], copy[ 0 ] );
+    }
+  }
+
+  @Test
+  public void getRowsReadsBlocksFromTheInputRowSet() throws Exception {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    RowSet rowSet = new RingBufferRowSet( 8 );
+    for ( long i = 0; i < 5; i++ ) {
+      rowSet.putRow( rowMeta, new Object[] { i } );
+    }
+    rowSet.setDone();
+    baseStep.setInputRowSets( new ArrayList<>( Arrays.asList( rowSet ) ) );
+
+    Object[][] rows = baseStep.getRows( 3 );
+    assertEquals( 3, rows.length );
+    assertEquals( 0L, rows[ 0 ][ 0 ] );
+    assertEquals( 2L, rows[ 2 ][ 0 ] );
+    rows = baseStep.getRows( 10 );
+    assertEquals( 2, rows.length );
+    assertEquals( 4L, rows[ 1 ][ 0 ] );
+    assertNull( baseStep.getRows( 10 ) );
+    assertEquals( 5, baseStep.getLinesRead() );
+  }
+
+  @Test
+  public void putRowsGoesRowByRowWhenPutRowIsOverridden() throws KettleException {
+    final List<Object[]> written = new ArrayList<>();
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans ) {
+        @Override
+        public void putRow( RowMetaInterface rowMeta, Object[] row ) {
+          written.add( row );
+        }
+      };
+    Object[][] rows = new Object[][] { { "a" }, { "b" } };
+
+    baseStep.putRows( mock( RowMetaInterface.class ), rows, 2 );
+
+    assertEquals( Arrays.asList( rows ), written );
+  }
+
+  @Test
+  public void statusCountersDontLoseUpdatesFromConcurrentThreads() throws Exception {
+    final BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    final int nrIncrements = 10000;
+    Thread[] threads = new Thread[ 4 ];
+    for ( int t = 0; t < threads.length; t++ ) {
+      threads[ t ] = new Thread( new Runnable() {
+        @Override
+        public void run() {
+          for ( int i = 0; i < nrIncrements; i++ ) {
+            baseStep.incrementLinesRead();
+            baseStep.incrementLinesOutput();
+            baseStep.addLinesWritten( 2 );
+          }
+        }
+      } );
+      threads[ t ].start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+
+    assertEquals( threads.length * nrIncrements, baseStep.getLinesRead() );
+    assertEquals( threads.length * nrIncrements, baseStep.getLinesOutput() );
+    assertEquals( 2L * threads.length * nrIncrements, baseStep.getLinesWritten() );
+    assertEquals( threads.length * nrIncrements - 1, baseStep.decrementLinesRead() );
+  }
+
   @Test
   public void testBuildLog() throws KettleValueException {
     BaseStep testObject = new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
@@ -394,6 +496,19 @@ public class BaseStepTest {
     verify( rowHandler, times( 1 ) ).putRow( rowMetaInterface, objects );
   }
 
+  @Test
+  public void putRowsWithRowHandler() throws KettleException {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface,
+        0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setRowHandler( rowHandler );
+
+    RowMetaInterface rowMetaInterface = mock( RowMetaInterface.class );
+    Object[][] rows = new Object[][] { { "foo" }, { "bar" } };
+    baseStep.putRows( rowMetaInterface, rows, 2 );
+    verify( rowHandler, times( 1 ) ).putRows( rowMetaInterface, rows, 2 );
+  }
+
   @Test
   public void putErrorWithRowHandler() throws KettleException {
     BaseStep baseStep =
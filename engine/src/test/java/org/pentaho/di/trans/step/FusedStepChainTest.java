@@ -0,0 +1,104 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.DirectRowSet;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMeta;
+
+public class FusedStepChainTest {
+
+  @Test
+  public void testRowsAreProcessedOnTheThreadOfTheFirstStep() throws Exception {
+    final DirectRowSet rowSet = new DirectRowSet();
+    final List<Object> consumed = new ArrayList<Object>();
+
+    // The first step writes 3 rows, the fused step has to process every row as soon as it's written
+    //
+    StepMetaDataCombi head = createCombi();
+    when( head.step.processRow( any( StepMetaInterface.class ), any( StepDataInterface.class ) ) ).thenAnswer(
+      new Answer<Boolean>() {
+        private long rowNr;
+
+        @Override
+        public Boolean answer( InvocationOnMock invocation ) {
+          if ( rowNr == 3 ) {
+            rowSet.setDone();
+            return false;
+          }
+          rowSet.putRow( new RowMeta(), new Object[] { rowNr++ } );
+          assertEquals( rowNr, consumed.size() );
+          return true;
+        }
+      } );
+
+    final StepMetaDataCombi fused = createCombi();
+    when( fused.step.processRow( any( StepMetaInterface.class ), any( StepDataInterface.class ) ) ).thenAnswer(
+      new Answer<Boolean>() {
+        @Override
+        public Boolean answer( InvocationOnMock invocation ) {
+          Object[] row = rowSet.getRow();
+          if ( row == null ) {
+            return !rowSet.isDone();
+          }
+          consumed.add( row[ 0 ] );
+          return true;
+        }
+      } );
+
+    FusedStepChain chain = new FusedStepChain( head );
+    chain.addStep( fused, rowSet );
+    assertEquals( 2, chain.getSteps().size() );
+    verify( fused.step ).setUsingThreadPriorityManagment( false );
+
+    chain.run();
+
+    assertEquals( 3, consumed.size() );
+    assertEquals( 2L, consumed.get( 2 ) );
+    verify( fused.step ).setRunning( true );
+    verify( fused.step ).dispose( fused.meta, fused.data );
+    verify( fused.step ).markStop();
+    verify( head.step ).markStop();
+  }
+
+  private StepMetaDataCombi createCombi() {
+    StepMetaDataCombi combi = new StepMetaDataCombi();
+    combi.meta = mock( StepMetaInterface.class );
+    combi.data = mock( StepDataInterface.class );
+    combi.step = mock( StepInterface.class );
+    when( combi.step.getLogChannel() ).thenReturn( mock( LogChannelInterface.class ) );
+    return combi;
+  }
+}
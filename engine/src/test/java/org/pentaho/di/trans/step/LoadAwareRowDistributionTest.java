@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.BlockingRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+public class LoadAwareRowDistributionTest {
+
+  private RowMetaInterface rowMeta;
+  private List<RowSet> rowSets;
+  private StepInterface step;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowSets = new ArrayList<>();
+    for ( int i = 0; i < 3; i++ ) {
+      rowSets.add( new BlockingRowSet( 100 ) );
+    }
+    step = mock( StepInterface.class );
+    when( step.getOutputRowSets() ).thenReturn( rowSets );
+  }
+
+  private void fill( RowSet rowSet, int nrRows ) {
+    for ( int i = 0; i < nrRows; i++ ) {
+      rowSet.putRow( rowMeta, new Object[] { (long) i } );
+    }
+  }
+
+  @Test
+  public void leastLoadedPicksTheEmptiestRowSet() throws Exception {
+    fill( rowSets.get( 0 ), 10 );
+    fill( rowSets.get( 2 ), 5 );
+
+    RowDistributionInterface distribution = new LeastLoadedRowDistribution();
+    for ( int i = 0; i < 7; i++ ) {
+      distribution.distributeRow( rowMeta, new Object[] { 1L }, step );
+    }
+
+    assertEquals( 10, rowSets.get( 0 ).size() );
+    assertEquals( 6, rowSets.get( 1 ).size() );
+    assertEquals( 6, rowSets.get( 2 ).size() );
+  }
+
+  @Test
+  public void powerOfTwoChoicesNeverPicksTheFullestOfTwo() throws Exception {
+    rowSets.remove( 2 );
+    fill( rowSets.get( 0 ), 10 );
+
+    RowDistributionInterface distribution = new PowerOfTwoChoicesRowDistribution();
+    for ( int i = 0; i < 10; i++ ) {
+      distribution.distributeRow( rowMeta, new Object[] { 1L }, step );
+    }
+
+    assertEquals( 10, rowSets.get( 0 ).size() );
+    assertEquals( 10, rowSets.get( 1 ).size() );
+  }
+
+  @Test
+  public void blocksSpillOverWhenTheTargetFillsUp() throws Exception {
+    rowSets.clear();
+    rowSets.add( new BlockingRowSet( 4 ) );
+    rowSets.add( new BlockingRowSet( 4 ) );
+    Object[][] rows = new Object[ 8 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = new Object[] { (long) i };
+    }
+
+    new LeastLoadedRowDistribution().distributeRows( rowMeta, rows, rows.length, step );
+
+    assertEquals( 4, rowSets.get( 0 ).size() );
+    assertEquals( 4, rowSets.get( 1 ).size() );
+  }
+
+  @Test
+  public void keepsTheRowMetaOfTheRowSet() throws Exception {
+    RowSet rowSet = rowSets.get( 0 );
+    rowSets.clear();
+    rowSets.add( rowSet );
+
+    new PowerOfTwoChoicesRowDistribution().distributeRow( rowMeta, new Object[] { 1L }, step );
+
+    assertTrue( rowSet.getRowMeta() != null );
+    assertEquals( 1, rowSet.size() );
+  }
+}
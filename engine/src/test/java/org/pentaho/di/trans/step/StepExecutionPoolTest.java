@@ -0,0 +1,236 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class StepExecutionPoolTest {
+
+  @Test
+  public void testGetExecutor() {
+    assertNull( StepExecutionPool.getExecutor( null ) );
+    assertNull( StepExecutionPool.getExecutor( StepExecutionMode.THREAD ) );
+
+    Executor pool = StepExecutionPool.getExecutor( StepExecutionMode.POOLED );
+    assertSame( pool, StepExecutionPool.getExecutor( StepExecutionMode.POOLED ) );
+    if ( !StepExecutionPool.isVirtualThreadsAvailable() ) {
+      assertSame( pool, StepExecutionPool.getExecutor( StepExecutionMode.VIRTUAL ) );
+    }
+  }
+
+  @Test
+  public void testCreateExecutor() {
+    assertNull( StepExecutionPool.createExecutor( null, 10 ) );
+    assertNull( StepExecutionPool.createExecutor( StepExecutionMode.THREAD, 10 ) );
+
+    Executor shared = StepExecutionPool.getExecutor( StepExecutionMode.POOLED );
+    ForkJoinPool pool = (ForkJoinPool) StepExecutionPool.createExecutor( StepExecutionMode.POOLED, 10 );
+    assertNotSame( shared, pool );
+    assertNotSame( pool, StepExecutionPool.createExecutor( StepExecutionMode.POOLED, 10 ) );
+
+    StepExecutionPool.shutdown( null );
+    StepExecutionPool.shutdown( shared );
+    assertFalse( ( (ForkJoinPool) shared ).isShutdown() );
+    StepExecutionPool.shutdown( pool );
+    assertTrue( pool.isShutdown() );
+  }
+
+  /**
+   * All the step copies of a transformation but the last wait for the last one: the pool of the transformation has to
+   * give every step copy a thread, whatever its size.
+   */
+  @Test( timeout = 60000 )
+  public void testEveryStepCopyOfATransformationGetsAThread() throws Exception {
+    int copies = Runtime.getRuntime().availableProcessors() * 2 + 2;
+    ForkJoinPool pool = (ForkJoinPool) StepExecutionPool.createExecutor( StepExecutionMode.POOLED, copies );
+    try {
+      final CountDownLatch last = new CountDownLatch( 1 );
+      final CountDownLatch done = new CountDownLatch( copies );
+      final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+      for ( int i = 0; i < copies - 1; i++ ) {
+        pool.execute( () -> {
+          try {
+            StepExecutionPool.block( () -> {
+              last.await();
+              return null;
+            } );
+          } catch ( Throwable e ) {
+            failures.add( e );
+          } finally {
+            done.countDown();
+          }
+        } );
+      }
+      pool.execute( () -> {
+        last.countDown();
+        done.countDown();
+      } );
+
+      assertTrue( done.await( 50, TimeUnit.SECONDS ) );
+      assertTrue( failures.toString(), failures.isEmpty() );
+    } finally {
+      StepExecutionPool.shutdown( pool );
+    }
+  }
+
+  @Test
+  public void testGetStepExecutionModeByCode() {
+    assertSame( StepExecutionMode.POOLED, StepExecutionMode.getStepExecutionModeByCode( "Pooled" ) );
+    assertSame( StepExecutionMode.VIRTUAL, StepExecutionMode.getStepExecutionModeByCode( " virtual " ) );
+    assertNull( StepExecutionMode.getStepExecutionModeByCode( "fibers" ) );
+    assertNull( StepExecutionMode.getStepExecutionModeByCode( null ) );
+  }
+
+  @Test
+  public void testBlockOutsideOfThePool() throws Exception {
+    assertFalse( StepExecutionPool.isWorkerThread() );
+    assertEquals( "row", StepExecutionPool.block( () -> "row" ) );
+  }
+
+  /**
+   * Start more consumers than the pool has workers before any of the producers: the consumers wait for rows that can
+   * only arrive if the pool runs the producers in the meantime.
+   */
+  @Test( timeout = 60000 )
+  public void testWaitingStepsDontStarveThePool() throws Exception {
+    Executor pool = StepExecutionPool.getExecutor( StepExecutionMode.POOLED );
+    int pairs = Runtime.getRuntime().availableProcessors() * 2 + 2;
+    final int rows = 1000;
+
+    final CountDownLatch done = new CountDownLatch( pairs );
+    final AtomicLong received = new AtomicLong();
+    final AtomicInteger notOnWorker = new AtomicInteger();
+    final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+    @SuppressWarnings( "unchecked" )
+    final BlockingQueue<Integer>[] queues = new BlockingQueue[pairs];
+    for ( int i = 0; i < pairs; i++ ) {
+      final BlockingQueue<Integer> queue = new ArrayBlockingQueue<Integer>( 10 );
+      queues[i] = queue;
+      pool.execute( StepExecutionPool.wrap( "consumer " + i, () -> {
+        try {
+          if ( !StepExecutionPool.isWorkerThread() ) {
+            notOnWorker.incrementAndGet();
+          }
+          int count = 0;
+          while ( count < rows ) {
+            if ( StepExecutionPool.block( () -> queue.poll( 10, TimeUnit.MILLISECONDS ) ) != null ) {
+              count++;
+            }
+          }
+          received.addAndGet( count );
+        } catch ( Throwable e ) {
+          failures.add( e );
+        } finally {
+          done.countDown();
+        }
+      } ) );
+    }
+    for ( int i = 0; i < pairs; i++ ) {
+      final BlockingQueue<Integer> queue = queues[i];
+      pool.execute( () -> {
+        try {
+          for ( int r = 0; r < rows; r++ ) {
+            final Integer row = r;
+            while ( !StepExecutionPool.block( () -> queue.offer( row, 10, TimeUnit.MILLISECONDS ) ) ) {
+              // try again
+            }
+          }
+        } catch ( Throwable e ) {
+          failures.add( e );
+        }
+      } );
+    }
+
+    assertTrue( done.await( 50, TimeUnit.SECONDS ) );
+    assertTrue( failures.toString(), failures.isEmpty() );
+    assertEquals( 0, notOnWorker.get() );
+    assertEquals( (long) pairs * rows, received.get() );
+  }
+
+  /**
+   * The pool stops adding threads for waiting tasks at its maximum size: the tasks above it wait for a thread to finish.
+   */
+  @Test( timeout = 60000 )
+  public void testCompensatingThreadsAreBounded() throws Exception {
+    ForkJoinPool pool = StepExecutionPool.createPool( 1, 3 );
+    try {
+      int tasks = 6;
+      final CountDownLatch done = new CountDownLatch( tasks );
+      final AtomicInteger maxPoolSize = new AtomicInteger();
+      final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+      final BlockingQueue<Integer> queue = new ArrayBlockingQueue<Integer>( tasks );
+      for ( int i = 0; i < tasks; i++ ) {
+        pool.execute( () -> {
+          try {
+            maxPoolSize.accumulateAndGet( pool.getPoolSize(), Math::max );
+            StepExecutionPool.block( () -> queue.take() );
+            maxPoolSize.accumulateAndGet( pool.getPoolSize(), Math::max );
+          } catch ( Throwable e ) {
+            failures.add( e );
+          } finally {
+            done.countDown();
+          }
+        } );
+      }
+      // Let the tasks that got a thread block, then feed them one by one
+      //
+      Thread.sleep( 200 );
+      for ( int i = 0; i < tasks; i++ ) {
+        queue.put( i );
+      }
+
+      assertTrue( done.await( 50, TimeUnit.SECONDS ) );
+      assertTrue( failures.toString(), failures.isEmpty() );
+      assertTrue( "Pool size " + maxPoolSize.get(), maxPoolSize.get() <= 3 );
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWrapRestoresTheThreadName() {
+    Thread thread = Thread.currentThread();
+    String name = thread.getName();
+    final String[] seen = new String[1];
+    StepExecutionPool.wrap( "step copy", () -> seen[0] = Thread.currentThread().getName() ).run();
+    assertEquals( "step copy", seen[0] );
+    assertEquals( name, thread.getName() );
+  }
+}
@@ -23,6 +23,8 @@
 package org.pentaho.di.trans.steps.calculator;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
@@ -244,6 +246,49 @@ public class CalculatorUnitTest {
     verify( data ).clearValuesMetaMapping();
   }
 
+  @Test
+  public void testCalculationsOnBlocksOfRows() throws KettleException {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "a" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "b" ) );
+
+    RowSet inputRowSet = smh.getMockInputRowSet( new Object[][] { { 2L, 3L }, { 4L, null } } );
+    inputRowSet.setRowMeta( inputRowMeta );
+
+    Calculator calculator = new Calculator( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
+    calculator.addRowSetToInputRowSets( inputRowSet );
+    calculator.setInputRowMeta( inputRowMeta );
+    calculator.setVariable( Const.KETTLE_COLUMNAR_ROW_BATCHES, "Y" );
+    CalculatorData data = new CalculatorData();
+    calculator.init( smh.initStepMetaInterface, data );
+    assertTrue( data.isColumnar() );
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( new CalculatorMetaFunction[] {
+      new CalculatorMetaFunction( "product", CalculatorMetaFunction.CALC_MULTIPLY, "a", "b", null,
+        ValueMetaInterface.TYPE_INTEGER, 0, 0, true, "", "", "", "" ),
+      new CalculatorMetaFunction( "sum", CalculatorMetaFunction.CALC_ADD, "product", "a", null,
+        ValueMetaInterface.TYPE_INTEGER, 0, 0, false, "", "", "", "" ),
+      new CalculatorMetaFunction( "square", CalculatorMetaFunction.CALC_SQUARE, "a", null, null,
+        ValueMetaInterface.TYPE_INTEGER, 0, 0, false, "", "", "", "" ) } );
+
+    final List<Object[]> output = new ArrayList<Object[]>();
+    calculator.addRowListener( new RowAdapter() {
+      @Override public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+        output.add( row );
+      }
+    } );
+    calculator.processRow( meta, data );
+    calculator.processRow( meta, data );
+
+    assertTrue( data.isColumnar() );
+    Assert.assertEquals( 2, output.size() );
+    assertEquals( 8L, output.get( 0 )[ 2 ] );
+    assertEquals( 4L, output.get( 0 )[ 3 ] );
+    assertNull( output.get( 1 )[ 2 ] );
+    assertEquals( 16L, output.get( 1 )[ 3 ] );
+  }
+
   @Test
   public void testRound1() throws KettleException {
     assertRound1( 1.0, 1.2 );
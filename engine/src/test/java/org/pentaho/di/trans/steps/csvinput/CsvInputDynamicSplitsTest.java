@@ -0,0 +1,196 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.cluster.ClusterSchema;
+import org.pentaho.di.cluster.SlaveServer;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.cluster.InputSplit;
+import org.pentaho.di.trans.cluster.InputSplitQueue;
+import org.pentaho.di.trans.step.RowAdapter;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+/**
+ * Reads several files with dynamic input splits: the step copies read the chunks the master of the cluster hands out
+ * until there are none left. Whatever the size of the chunks, every row has to be read exactly once: a chunk that
+ * starts in the middle of a row leaves it to the chunk before, the header rows of all the files are skipped.
+ */
+public class CsvInputDynamicSplitsTest extends CsvInputUnitTestBase {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final List<String> ALL_IDS = Arrays.asList( "1", "2", "3", "4", "5", "6", "7" );
+
+  private StepMockHelper<CsvInputMeta, StepDataInterface> stepMockHelper;
+  private String[] filenames;
+  private long totalFileSize;
+
+  @Before
+  public void setUp() throws Exception {
+    stepMockHelper = StepMockUtil.getStepMockHelper( CsvInputMeta.class, "CsvInputDynamicSplitsTest" );
+
+    // Unix and Windows new lines, the last row of the second file doesn't end with a new line
+    //
+    File[] files = new File[] {
+      createTestFile( "UTF-8", "id,name\n1,a\n2,bb\n3,ccc\n" ),
+      createTestFile( "UTF-8", "id,name\r\n4,dddd\r\n5,e\r\n6,ff" ),
+      createTestFile( "UTF-8", "id,name\n7,g\n" ) };
+    filenames = new String[ files.length ];
+    totalFileSize = 0L;
+    for ( int i = 0; i < files.length; i++ ) {
+      filenames[ i ] = files[ i ].getAbsolutePath();
+      totalFileSize += files[ i ].length();
+    }
+  }
+
+  @After
+  public void cleanUp() {
+    stepMockHelper.cleanUp();
+  }
+
+  @Test
+  public void everyRowIsReadOnceWhateverTheChunkSize() throws Exception {
+    for ( long chunkSize = 1; chunkSize <= totalFileSize; chunkSize++ ) {
+      List<String> ids = new ArrayList<>();
+      for ( List<String> copyIds : readWithDynamicSplits( chunkSize, 2 ) ) {
+        ids.addAll( copyIds );
+      }
+      Collections.sort( ids );
+      assertEquals( "Chunks of " + chunkSize + " bytes", ALL_IDS, ids );
+    }
+  }
+
+  @Test
+  public void copiesThatGetNoChunkReadNothing() throws Exception {
+    List<List<String>> ids = readWithDynamicSplits( totalFileSize, 3 );
+
+    assertEquals( ALL_IDS, ids.get( 0 ) );
+    assertTrue( ids.get( 1 ).isEmpty() );
+    assertTrue( ids.get( 2 ).isEmpty() );
+  }
+
+  /**
+   * Reads the files with step copies that take turns processing a row, the master hands out chunks of the given size.
+   *
+   * @return the ids read by every step copy
+   */
+  private List<List<String>> readWithDynamicSplits( final long chunkSize, int nrCopies ) throws Exception {
+    SlaveServer master = mock( SlaveServer.class );
+    when( master.clone() ).thenReturn( master );
+    when( master.getNextInputSplit( anyString(), anyString(), anyLong(), anyLong(), anyLong(), anyInt() ) )
+      .thenAnswer( new Answer<InputSplit>() {
+        private InputSplitQueue queue;
+
+        @Override
+        public InputSplit answer( InvocationOnMock invocation ) {
+          if ( queue == null ) {
+            // With a consumer per byte every chunk has the minimum size
+            //
+            long start = (Long) invocation.getArguments()[ 2 ];
+            long end = (Long) invocation.getArguments()[ 3 ];
+            queue = new InputSplitQueue( "CSV file input", start, end, chunkSize, (int) ( end - start ) + 1 );
+          }
+          return queue.nextSplit();
+        }
+      } );
+    ClusterSchema clusterSchema = mock( ClusterSchema.class );
+    when( clusterSchema.findMaster() ).thenReturn( master );
+    when( stepMockHelper.stepMeta.getClusterSchema() ).thenReturn( clusterSchema );
+
+    List<CsvInput> copies = new ArrayList<>();
+    List<CsvInputMeta> metas = new ArrayList<>();
+    List<CsvInputData> datas = new ArrayList<>();
+    List<List<String>> ids = new ArrayList<>();
+    for ( int copyNr = 0; copyNr < nrCopies; copyNr++ ) {
+      CsvInput csvInput = spy( new CsvInput( stepMockHelper.stepMeta, stepMockHelper.stepDataInterface, copyNr,
+        stepMockHelper.transMeta, stepMockHelper.trans ) );
+      doReturn( 2 ).when( csvInput ).getClusterSize();
+      doReturn( nrCopies ).when( csvInput ).getUniqueStepCountAcrossSlaves();
+      doReturn( copyNr ).when( csvInput ).getUniqueStepNrAcrossSlaves();
+
+      CsvInputMeta meta = createMeta( new File( filenames[ 0 ] ), createInputFileFields( "id", "name" ) );
+      meta.setHeaderPresent( true );
+      meta.setRunningInParallel( true );
+      meta.setLazyConversionActive( false );
+      CsvInputData data = new CsvInputData();
+      assertTrue( csvInput.init( meta, data ) );
+      data.filenames = filenames;
+      csvInput.setVariable( Const.KETTLE_CLUSTER_DYNAMIC_SPLITS, "Y" );
+      csvInput.setVariable( Const.INTERNAL_VARIABLE_CLUSTER_RUN_ID, "run" );
+
+      final List<String> copyIds = new ArrayList<>();
+      csvInput.addRowListener( new RowAdapter() {
+        @Override
+        public void rowWrittenEvent( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+          copyIds.add( (String) row[ 0 ] );
+        }
+      } );
+
+      copies.add( csvInput );
+      metas.add( meta );
+      datas.add( data );
+      ids.add( copyIds );
+    }
+
+    boolean[] done = new boolean[ nrCopies ];
+    int running = nrCopies;
+    while ( running > 0 ) {
+      for ( int copyNr = 0; copyNr < nrCopies; copyNr++ ) {
+        if ( !done[ copyNr ] && !copies.get( copyNr ).processRow( metas.get( copyNr ), datas.get( copyNr ) ) ) {
+          done[ copyNr ] = true;
+          running--;
+        }
+      }
+    }
+    for ( int copyNr = 0; copyNr < nrCopies; copyNr++ ) {
+      copies.get( copyNr ).dispose( metas.get( copyNr ), datas.get( copyNr ) );
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,75 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.databaselookup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.cache.CachePolicy;
+import org.pentaho.di.core.cache.CacheStatistics;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+public class BoundedCacheTest {
+
+  private DatabaseLookupData data;
+  private DatabaseLookupMeta meta;
+
+  @Before
+  public void setUp() {
+    data = new DatabaseLookupData();
+    data.lookupMeta = new RowMeta();
+    data.lookupMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    meta = new DatabaseLookupMeta();
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedRows() throws Exception {
+    BoundedCache cache = new BoundedCache( data, CachePolicy.LRU, 2, 0, 0 );
+    cache.storeRowInCache( meta, data.lookupMeta, new Object[] { 1L }, new Object[] { "one" } );
+    cache.storeRowInCache( meta, data.lookupMeta, new Object[] { 2L }, new Object[] { "two" } );
+    assertArrayEquals( new Object[] { "one" }, cache.getRowFromCache( data.lookupMeta, new Object[] { 1L } ) );
+    cache.storeRowInCache( meta, data.lookupMeta, new Object[] { 3L }, new Object[] { "three" } );
+
+    assertNull( cache.getRowFromCache( data.lookupMeta, new Object[] { 2L } ) );
+    assertArrayEquals( new Object[] { "three" }, cache.getRowFromCache( data.lookupMeta, new Object[] { 3L } ) );
+
+    CacheStatistics statistics = cache.getStatistics();
+    assertEquals( 2L, statistics.getHits() );
+    assertEquals( 1L, statistics.getMisses() );
+    assertEquals( 1L, statistics.getEvictions() );
+  }
+
+  @Test
+  public void remembersMisses() throws Exception {
+    BoundedCache cache = new BoundedCache( data, CachePolicy.TINY_LFU, 10, 1024 * 1024, 0 );
+    cache.storeMissInCache( meta, data.lookupMeta, new Object[] { 1L } );
+
+    assertSame( DatabaseLookupData.Cache.MISSING, cache.getRowFromCache( data.lookupMeta, new Object[] { 1L } ) );
+    assertEquals( 1L, cache.getStatistics().getNegativeHits() );
+  }
+}
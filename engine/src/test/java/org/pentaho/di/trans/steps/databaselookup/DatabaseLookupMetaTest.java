@@ -68,7 +68,8 @@ public class DatabaseLookupMetaTest implements InitializerInterface<StepMetaInte
         Arrays.asList( "schemaName", "tablename", "databaseMeta", "orderByClause", "cached",
             "cacheSize", "loadingAllDataInCache", "failingOnMultipleResults", "eatingRowOnLookupFailure",
             "streamKeyField1", "streamKeyField2", "keyCondition", "tableKeyField", "returnValueField",
-            "returnValueNewName", "returnValueDefault", "returnValueDefaultType" );
+            "returnValueNewName", "returnValueDefault", "returnValueDefaultType", "batchLookupSize", "cachePolicy",
+            "cacheMaxMemory", "cacheTimeToLive", "cachingMisses", "sharedCache" );
 
     Map<String, String> getterMap = new HashMap<String, String>();
     Map<String, String> setterMap = new HashMap<String, String>();
@@ -54,7 +54,12 @@ import java.sql.ResultSetMetaData;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
@@ -69,10 +74,15 @@ import org.mockito.internal.util.reflection.Whitebox;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseInterface;
 import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.database.MSSQLServerDatabaseMeta;
 import org.pentaho.di.core.database.MySQLDatabaseMeta;
+import org.pentaho.di.core.database.PostgreSQLDatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.row.RowMeta;
@@ -634,6 +644,358 @@ public class DatabaseLookupUTest {
     return rowMetaOutput;
   }
 
+  @Test
+  public void batchLookupSqlUsesInListForSingleKey() {
+    DatabaseLookup lookup = createBatchLookup( new String[] { ID_FIELD } );
+    DatabaseMeta dbMeta = new DatabaseMeta();
+    dbMeta.setDatabaseInterface( new PostgreSQLDatabaseMeta() );
+
+    assertEquals( "SELECT id, description FROM lookup_table WHERE id IN ( ?, ?, ? ) ORDER BY id",
+      lookup.getBatchLookupSql( dbMeta, 3 ) );
+  }
+
+  @Test
+  public void batchLookupSqlUsesRowValuesForMultipleKeys() {
+    DatabaseLookup lookup = createBatchLookup( new String[] { ID_FIELD, "version" } );
+    DatabaseMeta dbMeta = new DatabaseMeta();
+    dbMeta.setDatabaseInterface( new PostgreSQLDatabaseMeta() );
+
+    assertEquals( "SELECT id, version, description FROM lookup_table "
+      + "WHERE ( id, version ) IN ( ( ?, ? ), ( ?, ? ) ) ORDER BY id", lookup.getBatchLookupSql( dbMeta, 2 ) );
+  }
+
+  @Test
+  public void batchLookupSqlUsesConditionsWithoutRowValues() {
+    DatabaseLookup lookup = createBatchLookup( new String[] { ID_FIELD, "version" } );
+    DatabaseMeta dbMeta = new DatabaseMeta();
+    dbMeta.setDatabaseInterface( new MSSQLServerDatabaseMeta() );
+
+    assertEquals( "SELECT id, version, description FROM lookup_table "
+      + "WHERE ( id = ? AND version = ? ) OR ( id = ? AND version = ? ) ORDER BY id",
+      lookup.getBatchLookupSql( dbMeta, 2 ) );
+  }
+
+  @Test
+  public void batchLookupMapsResultsBackToTheInputRows() throws Exception {
+    FakeTable table = new FakeTable( ID_FIELD );
+    table.addRow( "one", 1L );
+    table.addRow( "two", 2L );
+    table.addRow( "three", 3L );
+    List<Object[]> output = new ArrayList<>();
+
+    DatabaseLookup lookup = runBatchLookup( new PostgreSQLDatabaseMeta(), table, false, output,
+      new Object[] { 1L }, new Object[] { 9L }, new Object[] { 2L }, new Object[] { 3L }, new Object[] { 8L } );
+
+    assertEquals( "SELECT id, description FROM lookup_table WHERE id IN ( ?, ?, ?, ? )", table.sql );
+    assertLookupResults( output, 1, "one", "none", "two", "three", "none" );
+    assertEquals( 9L, output.get( 1 )[ 0 ] );
+    assertEquals( 8L, output.get( 4 )[ 0 ] );
+
+    // A full block and the last row, padded with its last key to reuse the statement
+    //
+    assertEquals( Arrays.<List<Object>>asList( Arrays.<Object>asList( 1L, 9L, 2L, 3L ),
+      Arrays.<Object>asList( 8L, 8L, 8L, 8L ) ), table.queries );
+    assertEquals( 3, lookup.getLinesInput() );
+
+    // The keys without a match were not looked up one by one
+    //
+    Database db = ( (DatabaseLookupData) Whitebox.getInternalState( lookup, "data" ) ).db;
+    verify( db, times( 0 ) ).getLookup( anyBoolean() );
+  }
+
+  @Test
+  public void batchLookupQueriesDuplicateKeysOnce() throws Exception {
+    FakeTable table = new FakeTable( ID_FIELD );
+    table.addRow( "one", 1L );
+    table.addRow( "two", 2L );
+    List<Object[]> output = new ArrayList<>();
+
+    DatabaseLookup lookup = runBatchLookup( new PostgreSQLDatabaseMeta(), table, false, output,
+      new Object[] { 2L }, new Object[] { 1L }, new Object[] { 2L }, new Object[] { 2L } );
+
+    assertLookupResults( output, 1, "two", "one", "two", "two" );
+    assertEquals( Collections.singletonList( Arrays.<Object>asList( 2L, 1L, 1L, 1L ) ), table.queries );
+    assertEquals( 2, lookup.getLinesInput() );
+  }
+
+  @Test
+  public void batchLookupWithCompoundKeyWithoutRowValues() throws Exception {
+    FakeTable table = new FakeTable( ID_FIELD, "version" );
+    table.addRow( "one v1", 1L, 1L );
+    table.addRow( "one v2", 1L, 2L );
+    table.addRow( "two v2", 2L, 2L );
+    List<Object[]> output = new ArrayList<>();
+
+    runBatchLookup( new MSSQLServerDatabaseMeta(), table, false, output,
+      new Object[] { 1L, 1L }, new Object[] { 1L, 2L }, new Object[] { 2L, 1L }, new Object[] { 1L, 1L } );
+
+    assertEquals( "SELECT id, version, description FROM lookup_table WHERE ( id = ? AND version = ? ) "
+      + "OR ( id = ? AND version = ? ) OR ( id = ? AND version = ? ) OR ( id = ? AND version = ? )", table.sql );
+    assertLookupResults( output, 2, "one v1", "one v2", "none", "one v1" );
+    assertEquals( Collections.singletonList( Arrays.<Object>asList( 1L, 1L, 1L, 2L, 2L, 1L, 2L, 1L ) ),
+      table.queries );
+  }
+
+  @Test
+  public void batchLookupFailsOnMultipleResults() throws Exception {
+    FakeTable table = new FakeTable( ID_FIELD );
+    table.addRow( "one", 1L );
+    table.addRow( "uno", 1L );
+    List<Object[]> output = new ArrayList<>();
+
+    DatabaseLookup lookup = runBatchLookup( new PostgreSQLDatabaseMeta(), table, true, output,
+      new Object[] { 1L }, new Object[] { 2L } );
+
+    assertEquals( 1, lookup.getErrors() );
+    assertTrue( output.isEmpty() );
+  }
+
+  @Test
+  public void failedBatchLookupSendsOnlyTheFailingRowsToErrorHandling() throws Exception {
+    FakeTable table = new FakeTable( ID_FIELD );
+    table.addRow( "one", 1L );
+    table.addRow( "uno", 1L );
+    table.addRow( "two", 2L );
+    List<Object[]> output = new ArrayList<>();
+    List<Object[]> errors = new ArrayList<>();
+
+    DatabaseLookup lookup = runBatchLookup( new PostgreSQLDatabaseMeta(), table, true, output, errors,
+      new Object[] { 2L }, new Object[] { 1L }, new Object[] { 3L } );
+
+    // 1 has more than one match, 3 has none: both go to the error handling like in a lookup without batches
+    assertEquals( 0, lookup.getErrors() );
+    assertLookupResults( output, 1, "two" );
+    assertEquals( 2, errors.size() );
+    assertEquals( 1L, errors.get( 0 )[ 0 ] );
+    assertEquals( 3L, errors.get( 1 )[ 0 ] );
+  }
+
+  @Test
+  public void batchLookupKeepsTheFirstOfMultipleResults() throws Exception {
+    FakeTable table = new FakeTable( ID_FIELD );
+    table.addRow( "one", 1L );
+    table.addRow( "uno", 1L );
+    List<Object[]> output = new ArrayList<>();
+
+    DatabaseLookup lookup = runBatchLookup( new PostgreSQLDatabaseMeta(), table, false, output,
+      new Object[] { 1L }, new Object[] { 2L } );
+
+    assertEquals( 0, lookup.getErrors() );
+    assertLookupResults( output, 1, "one", "none" );
+  }
+
+  private DatabaseLookup runBatchLookup( DatabaseInterface databaseInterface, final FakeTable table,
+                                         boolean failOnMultipleResults, final List<Object[]> output,
+                                         Object[]... input ) throws Exception {
+    return runBatchLookup( databaseInterface, table, failOnMultipleResults, output, null, input );
+  }
+
+  /**
+   * Runs a lookup of the description in the table, in batches of 4 rows, for the given input rows. The rows sent to
+   * the error handling are added to the errors, no error handling if they are null.
+   */
+  private DatabaseLookup runBatchLookup( DatabaseInterface databaseInterface, final FakeTable table,
+                                         final boolean failOnMultipleResults, final List<Object[]> output,
+                                         final List<Object[]> errors, Object[]... input ) throws Exception {
+    DatabaseMeta dbMeta = new DatabaseMeta();
+    dbMeta.setDatabaseInterface( databaseInterface );
+
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.allocate( table.keyFields.length, 1 );
+    meta.setDatabaseMeta( dbMeta );
+    meta.setTablename( "lookup_table" );
+    RowMeta inputRowMeta = new RowMeta();
+    for ( int i = 0; i < table.keyFields.length; i++ ) {
+      meta.getTableKeyField()[ i ] = table.keyFields[ i ];
+      meta.getStreamKeyField1()[ i ] = table.keyFields[ i ];
+      meta.getKeyCondition()[ i ] = "=";
+      inputRowMeta.addValueMeta( new ValueMetaInteger( table.keyFields[ i ] ) );
+    }
+    meta.getReturnValueField()[ 0 ] = "description";
+    meta.getReturnValueNewName()[ 0 ] = "description";
+    meta.getReturnValueDefault()[ 0 ] = "none";
+    meta.getReturnValueDefaultType()[ 0 ] = ValueMetaInterface.TYPE_STRING;
+    meta.setBatchLookupSize( 4 );
+    meta.setFailingOnMultipleResults( failOnMultipleResults );
+
+    Database db = mock( Database.class );
+    when( db.getTableFields( anyString() ) ).thenReturn( table.getRowMeta() );
+    final PreparedStatement batchStatement = mock( PreparedStatement.class );
+    doAnswer( new Answer<PreparedStatement>() {
+      @Override public PreparedStatement answer( InvocationOnMock invocation ) {
+        table.sql = (String) invocation.getArguments()[ 0 ];
+        return batchStatement;
+      }
+    } ).when( db ).prepareSQL( anyString() );
+    doAnswer( new Answer<Object>() {
+      @Override public Object answer( InvocationOnMock invocation ) {
+        table.parameters.put( (Integer) invocation.getArguments()[ 3 ], invocation.getArguments()[ 2 ] );
+        return null;
+      }
+    } ).when( db ).setValue( eq( batchStatement ), any( ValueMetaInterface.class ), any(), anyInt() );
+    doAnswer( new Answer<List<RowMetaAndData>>() {
+      @Override public List<RowMetaAndData> answer( InvocationOnMock invocation ) {
+        return table.query();
+      }
+    } ).when( db ).getLookupRows( batchStatement );
+
+    // The lookups of single rows
+    //
+    doAnswer( new Answer<Object>() {
+      @Override public Object answer( InvocationOnMock invocation ) {
+        Object[] keys = (Object[]) invocation.getArguments()[ 1 ];
+        for ( int i = 0; i < keys.length; i++ ) {
+          table.parameters.put( i + 1, keys[ i ] );
+        }
+        return null;
+      }
+    } ).when( db ).setValuesLookup( any( RowMetaInterface.class ), any( Object[].class ) );
+    doAnswer( new Answer<Object[]>() {
+      @Override public Object[] answer( InvocationOnMock invocation ) throws KettleDatabaseException {
+        List<RowMetaAndData> found = table.query();
+        if ( found.size() > 1 && failOnMultipleResults ) {
+          throw new KettleDatabaseException( "Only 1 row was expected, " + found.size() + " were found" );
+        }
+        return found.isEmpty() ? null : new Object[] { found.get( 0 ).getData()[ table.keyFields.length ] };
+      }
+    } ).when( db ).getLookup( anyBoolean() );
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaString( "description" ) );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+
+    DatabaseLookup lookup = spyLookup( mockHelper, db, dbMeta );
+    final Iterator<Object[]> rows = Arrays.asList( input ).iterator();
+    doAnswer( new Answer<Object[]>() {
+      @Override public Object[] answer( InvocationOnMock invocation ) {
+        return rows.hasNext() ? rows.next() : null;
+      }
+    } ).when( lookup ).getRow();
+    doAnswer( new Answer<Object>() {
+      @Override public Object answer( InvocationOnMock invocation ) {
+        output.add( (Object[]) invocation.getArguments()[ 1 ] );
+        return null;
+      }
+    } ).when( lookup ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+    doReturn( inputRowMeta ).when( lookup ).getInputRowMeta();
+    if ( errors != null ) {
+      when( mockHelper.stepMeta.isDoingErrorHandling() ).thenReturn( true );
+      doAnswer( new Answer<Object>() {
+        @Override public Object answer( InvocationOnMock invocation ) {
+          errors.add( (Object[]) invocation.getArguments()[ 1 ] );
+          return null;
+        }
+      } ).when( lookup ).putError( any( RowMetaInterface.class ), any( Object[].class ), anyLong(), anyString(),
+        anyString(), anyString() );
+    }
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    assertTrue( lookup.init( meta, data ) );
+    while ( lookup.processRow( meta, data ) ) {
+      // keep on looking up
+    }
+    return lookup;
+  }
+
+  private static void assertLookupResults( List<Object[]> output, int nrKeys, String... descriptions ) {
+    assertEquals( descriptions.length, output.size() );
+    for ( int i = 0; i < descriptions.length; i++ ) {
+      assertEquals( "row " + i, descriptions[ i ], output.get( i )[ nrKeys ] );
+    }
+  }
+
+  /**
+   * The lookup table behind the mocked batch statement: returns the rows that have one of the keys set as parameters.
+   */
+  private static class FakeTable {
+    private final String[] keyFields;
+    private final List<Object[]> rows = new ArrayList<>();
+    private final Map<Integer, Object> parameters = new TreeMap<>();
+    private final List<List<Object>> queries = new ArrayList<>();
+    private String sql;
+
+    FakeTable( String... keyFields ) {
+      this.keyFields = keyFields;
+    }
+
+    void addRow( String description, Object... keys ) {
+      Object[] row = Arrays.copyOf( keys, keys.length + 1 );
+      row[ keys.length ] = description;
+      rows.add( row );
+    }
+
+    RowMetaInterface getRowMeta() {
+      RowMeta rowMeta = new RowMeta();
+      for ( String keyField : keyFields ) {
+        rowMeta.addValueMeta( new ValueMetaInteger( keyField ) );
+      }
+      rowMeta.addValueMeta( new ValueMetaString( "description" ) );
+      return rowMeta;
+    }
+
+    List<RowMetaAndData> query() {
+      List<Object> values = new ArrayList<>( parameters.values() );
+      parameters.clear();
+      queries.add( values );
+
+      Set<List<Object>> keys = new HashSet<>();
+      for ( int i = 0; i < values.size(); i += keyFields.length ) {
+        keys.add( values.subList( i, i + keyFields.length ) );
+      }
+      List<RowMetaAndData> result = new ArrayList<>();
+      for ( Object[] row : rows ) {
+        if ( keys.contains( Arrays.asList( row ).subList( 0, keyFields.length ) ) ) {
+          result.add( new RowMetaAndData( getRowMeta(), row ) );
+        }
+      }
+      return result;
+    }
+  }
+
+  @Test
+  public void sharedCacheSignatureHoldsTheCacheBounds() throws Exception {
+    DatabaseLookup lookup = createBatchLookup( new String[] { ID_FIELD } );
+    DatabaseLookupMeta meta = (DatabaseLookupMeta) Whitebox.getInternalState( lookup, "meta" );
+    DatabaseMeta dbMeta = new DatabaseMeta();
+    dbMeta.setDatabaseInterface( new PostgreSQLDatabaseMeta() );
+    meta.setDatabaseMeta( dbMeta );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setReturnValueDefault( new String[] { "" } );
+    meta.setReturnValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+    meta.setCacheSize( 1000 );
+
+    String signature = lookup.getSharedCacheSignature();
+    assertEquals( signature, lookup.getSharedCacheSignature() );
+
+    meta.setCachePolicy( "tinylfu" );
+    assertFalse( signature.equals( lookup.getSharedCacheSignature() ) );
+    signature = lookup.getSharedCacheSignature();
+
+    meta.setCacheSize( 2000 );
+    assertFalse( signature.equals( lookup.getSharedCacheSignature() ) );
+    signature = lookup.getSharedCacheSignature();
+
+    meta.setCacheMaxMemory( 64 );
+    assertFalse( signature.equals( lookup.getSharedCacheSignature() ) );
+    signature = lookup.getSharedCacheSignature();
+
+    meta.setCacheTimeToLive( 60 );
+    assertFalse( signature.equals( lookup.getSharedCacheSignature() ) );
+  }
+
+  private DatabaseLookup createBatchLookup( String[] keyFields ) {
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.setTablename( "lookup_table" );
+    meta.setTableKeyField( keyFields );
+    meta.setReturnValueField( new String[] { "description" } );
+    meta.setOrderByClause( ID_FIELD );
+
+    DatabaseLookup lookup =
+      new DatabaseLookup( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
+        mockHelper.trans );
+    Whitebox.setInternalState( lookup, "meta", meta );
+    return lookup;
+  }
+
   public class MockDatabaseLookup extends DatabaseLookup {
     public MockDatabaseLookup( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta, Trans trans ) {
       super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
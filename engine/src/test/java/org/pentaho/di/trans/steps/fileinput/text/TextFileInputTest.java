@@ -47,6 +47,8 @@ import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.TransTestingUtil;
+import org.pentaho.di.trans.cluster.DynamicInputSplits;
+import org.pentaho.di.trans.cluster.InputSplit;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.errorhandling.AbstractFileErrorHandler;
@@ -470,6 +472,55 @@ public class TextFileInputTest {
     deleteVfsFile( virtualFile );
   }
 
+  @Test
+  public void readsTheFilesHandedOutByTheMaster() throws Exception {
+    final String virtualFile1 = createVirtualFile( "dynamic-1.txt", "id\n", "1\n", "2\n" );
+    final String virtualFile2 = createVirtualFile( "dynamic-2.txt", "id\n", "3\n" );
+    final String virtualFile3 = createVirtualFile( "dynamic-3.txt", "id\n", "4\n", "5" );
+
+    TextFileInputMeta meta = createMetaObject( field( "id" ) );
+    meta.content.header = true;
+    meta.content.nrHeaderLines = 1;
+    TextFileInputData data = createDataObject( virtualFile1, ",", "id" );
+    data.files.addFile( KettleVFS.getFileObject( virtualFile2 ) );
+    data.files.addFile( KettleVFS.getFileObject( virtualFile3 ) );
+
+    // The last two files first, then the first one: every file has its header skipped
+    //
+    data.inputSplits = mock( DynamicInputSplits.class );
+    when( data.inputSplits.next() ).thenReturn( new InputSplit( 1, 3, 0, 3 ), new InputSplit( 0, 1, 0, 3 ), null );
+
+    TextFileInput input = StepMockUtil.getStep( TextFileInput.class, TextFileInputMeta.class, "test" );
+    List<Object[]> output = TransTestingUtil.execute( input, meta, data, 5, true );
+    TransTestingUtil.assertResult( new Object[] { "3" }, output.get( 0 ) );
+    TransTestingUtil.assertResult( new Object[] { "4" }, output.get( 1 ) );
+    TransTestingUtil.assertResult( new Object[] { "5" }, output.get( 2 ) );
+    TransTestingUtil.assertResult( new Object[] { "1" }, output.get( 3 ) );
+    TransTestingUtil.assertResult( new Object[] { "2" }, output.get( 4 ) );
+
+    deleteVfsFile( virtualFile1 );
+    deleteVfsFile( virtualFile2 );
+    deleteVfsFile( virtualFile3 );
+  }
+
+  @Test
+  public void readsNothingWhenTheMasterHandsOutNoFiles() throws Exception {
+    final String virtualFile = createVirtualFile( "dynamic-none.txt", "1\n", "2\n" );
+
+    TextFileInputMeta meta = createMetaObject( field( "id" ) );
+    TextFileInputData data = createDataObject( virtualFile, ",", "id" );
+
+    // The other slaves already took all the files
+    //
+    data.inputSplits = mock( DynamicInputSplits.class );
+    when( data.inputSplits.next() ).thenReturn( null );
+
+    TextFileInput input = StepMockUtil.getStep( TextFileInput.class, TextFileInputMeta.class, "test" );
+    TransTestingUtil.execute( input, meta, data, 0, true );
+
+    deleteVfsFile( virtualFile );
+  }
+
   private TextFileInputMeta createMetaObject( BaseFileField... fields ) {
     TextFileInputMeta meta = new TextFileInputMeta();
     meta.content.enclosure = "\"";
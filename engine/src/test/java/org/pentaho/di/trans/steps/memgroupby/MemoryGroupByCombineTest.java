@@ -0,0 +1,198 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMemoryManager;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupByCombineTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "testStep";
+  private static final int[] TYPES = {
+    MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL, MemoryGroupByMeta.TYPE_GROUP_MIN,
+    MemoryGroupByMeta.TYPE_GROUP_MAX, MemoryGroupByMeta.TYPE_GROUP_AVERAGE,
+    MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION, MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT_APPROX, };
+
+  private RowMeta rowMeta;
+  private MemoryGroupByMeta meta;
+  private StepMeta stepMeta;
+  private TransMeta transMeta;
+  private Map<String, Object[]> output;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    meta = new MemoryGroupByMeta();
+    meta.allocate( 1, TYPES.length );
+    meta.getGroupField()[0] = "key";
+    for ( int i = 0; i < TYPES.length; i++ ) {
+      meta.getAggregateField()[i] = "agg" + i;
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateType()[i] = TYPES[i];
+    }
+    meta.setCombiningCopies( true );
+
+    transMeta = mock( TransMeta.class );
+    stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+    output = new HashMap<>();
+  }
+
+  @Test
+  public void testCopiesAreMerged() throws Exception {
+    MemoryGroupByCombiner combiner = new MemoryGroupByCombiner( 2 );
+    MemoryGroupBy even = createStep( combiner );
+    MemoryGroupBy odd = createStep( combiner );
+
+    // Every copy gets half of the rows of every group
+    //
+    for ( long value = 0; value < 1000; value++ ) {
+      processRow( value % 2 == 0 ? even : odd, new Object[] { "key" + ( value % 10 ), value } );
+    }
+    processRow( even, null );
+    verify( even, never() ).putRow( (RowMetaInterface) any(), (Object[]) any() );
+    processRow( odd, null );
+
+    assertEquals( 10, output.size() );
+    for ( long key = 0; key < 10; key++ ) {
+      Object[] row = output.get( "key" + key );
+      double mean = key + 495.0;
+      double squares = 0;
+      for ( long value = key; value < 1000; value += 10 ) {
+        squares += ( value - mean ) * ( value - mean );
+      }
+      assertEquals( 100 * key + 49500L, row[1] );
+      assertEquals( 100L, row[2] );
+      assertEquals( key, row[3] );
+      assertEquals( 990 + key, row[4] );
+      assertEquals( key + 495L, row[5] );
+      assertEquals( Math.sqrt( squares / 100 ), (Double) row[6], 1e-9 );
+      assertEquals( 100L, row[7] );
+    }
+  }
+
+  @Test
+  public void testAlwaysGivingBackOneRowOnce() throws Exception {
+    meta.setAlwaysGivingBackOneRow( true );
+    MemoryGroupByCombiner combiner = new MemoryGroupByCombiner( 2 );
+    MemoryGroupBy first = createStep( combiner );
+    MemoryGroupBy second = createStep( combiner );
+
+    processRow( first, null );
+    processRow( second, null );
+
+    verify( first, never() ).putRow( (RowMetaInterface) any(), (Object[]) any() );
+    assertEquals( 1, output.size() );
+  }
+
+  @Test
+  public void testNoCombiningWithMemoryLimit() throws Exception {
+    Trans trans = mock( Trans.class );
+    doReturn( Arrays.asList( mock( StepInterface.class ), mock( StepInterface.class ) ) )
+      .when( trans ).findStepInterfaces( STEP_NAME );
+    when( trans.getExtensionDataMap() ).thenReturn( new HashMap<String, Object>() );
+
+    when( trans.getMemoryManager() ).thenReturn( new TransMemoryManager( 0L ) );
+    MemoryGroupByData data = new MemoryGroupByData();
+    assertTrue( new MemoryGroupBy( stepMeta, data, 0, transMeta, trans ).init( meta, data ) );
+    assertNotNull( data.combiner );
+
+    // The merged aggregates would not be accounted for in the memory budget
+    //
+    when( trans.getMemoryManager() ).thenReturn( new TransMemoryManager( 1000000L ) );
+    data = new MemoryGroupByData();
+    assertFalse( new MemoryGroupBy( stepMeta, data, 0, transMeta, trans ).init( meta, data ) );
+    assertNull( data.combiner );
+  }
+
+  @Test
+  public void testMergeableAggregates() {
+    assertTrue( MemoryGroupByMeta.isMergeable( MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT ) );
+    assertTrue( MemoryGroupByMeta.isMergeable( MemoryGroupByMeta.TYPE_GROUP_MEDIAN ) );
+    assertFalse( MemoryGroupByMeta.isMergeable( MemoryGroupByMeta.TYPE_GROUP_FIRST ) );
+    assertFalse( MemoryGroupByMeta.isMergeable( MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA ) );
+  }
+
+  private MemoryGroupBy createStep( MemoryGroupByCombiner combiner ) throws Exception {
+    MemoryGroupByData data = new MemoryGroupByData();
+    data.map = new HashMap<>();
+    data.combiner = combiner;
+
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+    doAnswer( invocation -> {
+      Object[] row = (Object[]) invocation.getArguments()[1];
+      output.put( (String) row[0], row );
+      return null;
+    } ).when( step ).putRow( (RowMetaInterface) any(), (Object[]) any() );
+    return step;
+  }
+
+  private void processRow( MemoryGroupBy step, Object[] row ) throws KettleException {
+    doReturn( row ).when( step ).getRow();
+    assertEquals( row != null, step.processRow( meta, (MemoryGroupByData) step.getStepDataInterface() ) );
+  }
+}
@@ -0,0 +1,199 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMemoryManager;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+public class MemoryGroupBySpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String STEP_NAME = "testStep";
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private MemoryGroupBy step;
+
+  private File directory;
+
+  private int maxSpillFiles;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Test
+  public void testAllGroupsFitInMemory() throws Exception {
+    MemoryGroupByData data = new MemoryGroupByData();
+    Map<String, Long> sums = runStep( data, 1000, 0L, false );
+
+    assertEquals( 1000, sums.size() );
+    assertSums( sums );
+  }
+
+  @Test
+  public void testSpillToDisk() throws Exception {
+    // Room for a few hundred groups: the partitions on disk need to be split up again
+    //
+    MemoryGroupByData data = new MemoryGroupByData();
+    Map<String, Long> sums = runStep( data, 10000, 20000L, false );
+
+    assertEquals( 10000, sums.size() );
+    assertSums( sums );
+    assertTrue( data.spilledPartitions.isEmpty() );
+    assertTrue( data.memory.getUsed() <= 20000L );
+  }
+
+  @Test
+  public void testFirstGroupIsAlwaysKept() throws Exception {
+    // Not even one group fits in the budget: it is kept anyway instead of spilling it over and over again
+    //
+    MemoryGroupByData data = new MemoryGroupByData();
+    Map<String, Long> sums = runStep( data, 1, 1L, false );
+
+    assertEquals( 1, sums.size() );
+    assertSums( sums );
+    verify( step, times( 3 ) ).addToAggregate( any( Object[].class ) );
+  }
+
+  @Test
+  public void testSpillAlwaysGivingBackOneRow() throws Exception {
+    // Only an empty input gives back the empty row, not a hash table that is empty after the spill
+    //
+    MemoryGroupByData data = new MemoryGroupByData();
+    Map<String, Long> sums = runStep( data, 1000, 2000L, true );
+
+    assertEquals( 1000, sums.size() );
+    assertSums( sums );
+
+    data = new MemoryGroupByData();
+    sums = runStep( data, 0, 2000L, true );
+    assertEquals( 1, sums.size() );
+    assertTrue( sums.containsKey( null ) );
+  }
+
+  @Test
+  public void testSpillToConfiguredDirectory() throws Exception {
+    directory = tempFolder.newFolder( "spill" );
+    MemoryGroupByData data = new MemoryGroupByData();
+    Map<String, Long> sums = runStep( data, 10000, 20000L, false );
+
+    assertEquals( 10000, sums.size() );
+    assertSums( sums );
+    assertTrue( maxSpillFiles > 0 );
+    assertEquals( 0, directory.list().length );
+  }
+
+  private static void assertSums( Map<String, Long> sums ) {
+    for ( Map.Entry<String, Long> entry : sums.entrySet() ) {
+      long key = Long.parseLong( entry.getKey().substring( 3 ) );
+      assertEquals( entry.getKey(), Long.valueOf( 3 * key ), entry.getValue() );
+    }
+  }
+
+  /**
+   * Sends every key 3 times with the key as value and collects the sum per key.
+   */
+  private Map<String, Long> runStep( MemoryGroupByData data, int keys, long limit, boolean alwaysGivingBackOneRow )
+    throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, 1 );
+    meta.getGroupField()[0] = "key";
+    meta.getAggregateField()[0] = "total";
+    meta.getSubjectField()[0] = "value";
+    meta.getAggregateType()[0] = MemoryGroupByMeta.TYPE_GROUP_SUM;
+    meta.setAlwaysGivingBackOneRow( alwaysGivingBackOneRow );
+    if ( directory != null ) {
+      meta.setDirectory( directory.getAbsolutePath() );
+      meta.setPrefix( "spill" );
+    }
+
+    data.map = new HashMap<>();
+    data.memory = new TransMemoryManager( limit ).createReservation( STEP_NAME );
+
+    TransMeta transMeta = mock( TransMeta.class );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+
+    step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+
+    final Map<String, Long> sums = new HashMap<>();
+    doAnswer( invocation -> {
+      Object[] row = (Object[]) invocation.getArguments()[1];
+      assertFalse( "Group returned twice: " + row[0], sums.containsKey( row[0] ) );
+      sums.put( (String) row[0], (Long) row[1] );
+      if ( directory != null ) {
+        maxSpillFiles = Math.max( maxSpillFiles, directory.list( ( dir, name ) -> name.startsWith( "spill" ) ).length );
+      }
+      return null;
+    } ).when( step ).putRow( (RowMetaInterface) any(), (Object[]) any() );
+
+    for ( int i = 0; i < 3; i++ ) {
+      for ( long key = 0; key < keys; key++ ) {
+        doReturn( new Object[] { "key" + key, key } ).when( step ).getRow();
+        assertTrue( step.processRow( meta, data ) );
+      }
+    }
+    doReturn( null ).when( step ).getRow();
+    assertFalse( step.processRow( meta, data ) );
+    return sums;
+  }
+}
@@ -0,0 +1,97 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RowLoserTreeTest {
+
+  private static final Comparator<Object[]> COMPARATOR = new Comparator<Object[]>() {
+    @Override
+    public int compare( Object[] o1, Object[] o2 ) {
+      return ( (Long) o1[0] ).compareTo( (Long) o2[0] );
+    }
+  };
+
+  @Test
+  public void testMergeRuns() {
+    for ( int nrRuns = 0; nrRuns < 20; nrRuns++ ) {
+      Random random = new Random( nrRuns );
+      List<List<Object[]>> runs = new ArrayList<>();
+      List<Long> expected = new ArrayList<>();
+      for ( int r = 0; r < nrRuns; r++ ) {
+        // some runs are empty
+        long[] values = new long[random.nextInt( 10 )];
+        for ( int i = 0; i < values.length; i++ ) {
+          values[i] = random.nextInt( 25 );
+          expected.add( values[i] );
+        }
+        Arrays.sort( values );
+        List<Object[]> run = new ArrayList<>();
+        for ( long value : values ) {
+          run.add( new Object[] { value, r } );
+        }
+        runs.add( run );
+      }
+      Object[][] heads = new Object[nrRuns][];
+      int[] positions = new int[nrRuns];
+      for ( int r = 0; r < nrRuns; r++ ) {
+        heads[r] = runs.get( r ).isEmpty() ? null : runs.get( r ).get( 0 );
+      }
+
+      List<Long> merged = new ArrayList<>();
+      Object[] previous = null;
+      RowLoserTree tree = new RowLoserTree( COMPARATOR, heads );
+      for ( int winner = tree.getWinner(); winner >= 0; winner = tree.getWinner() ) {
+        Object[] row = tree.getWinnerRow();
+        assertEquals( winner, row[1] );
+        if ( previous != null && previous[0].equals( row[0] ) ) {
+          // equal rows keep the order of the runs
+          assertTrue( (Integer) previous[1] <= (Integer) row[1] );
+        }
+        merged.add( (Long) row[0] );
+        previous = row;
+
+        List<Object[]> run = runs.get( winner );
+        positions[winner]++;
+        tree.replaceWinner( positions[winner] < run.size() ? run.get( positions[winner] ) : null );
+      }
+      assertNull( tree.getWinnerRow() );
+
+      Long[] sorted = expected.toArray( new Long[expected.size()] );
+      Arrays.sort( sorted );
+      assertArrayEquals( sorted, merged.toArray( new Long[merged.size()] ) );
+    }
+  }
+}
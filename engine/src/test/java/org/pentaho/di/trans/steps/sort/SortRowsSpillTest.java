@@ -0,0 +1,216 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+
+/**
+ * Runs the Sort rows step with a sort size that is much smaller than the number of rows, so that every test goes
+ * through the temporary files.
+ */
+public class SortRowsSpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final int NR_ROWS = 1000;
+  private static final int NR_KEYS = 250;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private StepMockHelper<SortRowsMeta, StepDataInterface> helper;
+  private SortRowsMeta meta;
+  private SortRowsData data;
+  private SortRows step;
+
+  @BeforeClass
+  public static void initKettle() throws Exception {
+    KettleEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    helper = StepMockUtil.getStepMockHelper( SortRowsMeta.class, "SortRowsSpillTest" );
+
+    meta = new SortRowsMeta();
+    meta.setDefault();
+    meta.allocate( 1 );
+    meta.getFieldName()[0] = "key";
+    meta.getAscending()[0] = true;
+    meta.getCaseSensitive()[0] = true;
+    meta.setDirectory( tempFolder.getRoot().getAbsolutePath() );
+    meta.setSortSize( "100" );
+    when( helper.stepMeta.getStepMetaInterface() ).thenReturn( meta );
+
+    data = new SortRowsData();
+  }
+
+  @After
+  public void cleanUp() {
+    helper.cleanUp();
+  }
+
+  @Test
+  public void testSpillToDisk() throws Exception {
+    List<Object[]> output = runStep( new String[0] );
+
+    assertSorted( output, NR_ROWS );
+    verify( step, times( 10 ) ).writeRun( any(), any() );
+  }
+
+  @Test
+  public void testMultiPassMerge() throws Exception {
+    // 10 temporary files merged 2 at a time until 2 are left for the final merge
+    //
+    List<Object[]> output = runStep( new String[] { Const.KETTLE_SORT_ROWS_MERGE_WIDTH, "2" } );
+
+    assertSorted( output, NR_ROWS );
+    verify( step, times( 10 ) ).writeRun( any(), any() );
+    verify( step, times( 8 ) ).mergeTempFiles( 2 );
+  }
+
+  @Test
+  public void testMultiPassMergeUniqueRows() throws Exception {
+    meta.setOnlyPassingUniqueRows( true );
+    List<Object[]> output = runStep( new String[] { Const.KETTLE_SORT_ROWS_MERGE_WIDTH, "3" } );
+
+    assertEquals( NR_KEYS, output.size() );
+    for ( int i = 0; i < NR_KEYS; i++ ) {
+      assertEquals( Long.valueOf( i ), output.get( i )[0] );
+    }
+    verify( step, times( 4 ) ).mergeTempFiles( 3 );
+  }
+
+  @Test
+  public void testCompressionProviders() throws Exception {
+    meta.setCompressFiles( true );
+    for ( String provider : new String[] { "GZip", "Snappy", "None" } ) {
+      data = new SortRowsData();
+      List<Object[]> output = runStep( new String[] { Const.KETTLE_SORT_ROWS_COMPRESSION, provider,
+        Const.KETTLE_SORT_ROWS_MERGE_WIDTH, "4" } );
+
+      assertNotNull( provider, data.compressionProvider );
+      assertEquals( provider, data.compressionProvider.getName() );
+      assertSorted( output, NR_ROWS );
+    }
+  }
+
+  @Test
+  public void testBackgroundRuns() throws Exception {
+    List<Object[]> output = runStep( new String[] { Const.KETTLE_SORT_ROWS_PARALLEL_RUNS, "2" } );
+
+    assertSorted( output, NR_ROWS );
+    assertTrue( data.pendingRuns.isEmpty() );
+    verify( step, times( 10 ) ).writeRun( any(), any() );
+  }
+
+  /**
+   * Checks that the keys are in ascending order and that every input row was passed exactly once.
+   */
+  private void assertSorted( List<Object[]> output, int expectedRows ) {
+    assertEquals( expectedRows, output.size() );
+    Set<Long> sequences = new HashSet<>();
+    long previousKey = Long.MIN_VALUE;
+    for ( Object[] row : output ) {
+      long key = (Long) row[0];
+      assertTrue( "Row out of order: " + key + " after " + previousKey, key >= previousKey );
+      assertTrue( "Row passed twice: " + row[1], sequences.add( (Long) row[1] ) );
+      previousKey = key;
+    }
+
+    // All temporary files are removed once the rows are passed on
+    //
+    String[] leftOver = tempFolder.getRoot().list();
+    assertEquals( 0, leftOver == null ? 0 : leftOver.length );
+  }
+
+  /**
+   * Sends NR_ROWS rows with NR_KEYS distinct keys in a shuffled order, every row has a unique sequence number.
+   */
+  private List<Object[]> runStep( String[] variables ) throws Exception {
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "seq" ) );
+
+    List<Object[]> input = new ArrayList<>();
+    for ( long i = 0; i < NR_ROWS; i++ ) {
+      input.add( new Object[] { ( i * 7919 ) % NR_KEYS, i } );
+    }
+    final Iterator<Object[]> rows = input.iterator();
+
+    step = new SortRows( helper.stepMeta, data, 0, helper.transMeta, helper.trans );
+    for ( int i = 0; i < variables.length; i += 2 ) {
+      step.setVariable( variables[i], variables[i + 1] );
+    }
+    assertTrue( step.init( meta, data ) );
+
+    step = spy( step );
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+    doAnswer( invocation -> rows.hasNext() ? rows.next() : null ).when( step ).getRow();
+
+    final List<Object[]> output = new ArrayList<>();
+    doAnswer( invocation -> {
+      output.add( (Object[]) invocation.getArguments()[1] );
+      return null;
+    } ).when( step ).putRow( (RowMetaInterface) any(), (Object[]) any() );
+
+    while ( step.processRow( meta, data ) ) {
+      // keep on reading
+    }
+    assertFalse( rows.hasNext() );
+    step.dispose( meta, data );
+    return output;
+  }
+}
@@ -238,4 +238,16 @@ public class StreamLookupTest {
   public void testMemoryPreservationWithBinaryStreams() throws KettleException {
     doTest( true, false, true );
   }
+
+  @Test
+  public void testOffHeapIndexWithNormalStreams() throws KettleException {
+    doReturn( true ).when( smh.processRowsStepMetaInterface ).isUsingOffHeapIndex();
+    doTest( true, false, false );
+  }
+
+  @Test
+  public void testOffHeapIndexWithBinaryStreams() throws KettleException {
+    doReturn( true ).when( smh.processRowsStepMetaInterface ).isUsingOffHeapIndex();
+    doTest( true, true, true );
+  }
 }
@@ -0,0 +1,102 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableinput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.database.DatabaseMeta;
+
+public class QueryRangeSplitterTest {
+
+  private DatabaseMeta databaseMeta;
+
+  @Before
+  public void setUp() {
+    databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.quoteField( anyString() ) ).thenAnswer( new Answer<String>() {
+      @Override
+      public String answer( InvocationOnMock invocation ) throws Throwable {
+        return "\"" + invocation.getArguments()[ 0 ] + "\"";
+      }
+    } );
+  }
+
+  @Test
+  public void rangesCoverAllRows() {
+    QueryRangeSplitter splitter = new QueryRangeSplitter( databaseMeta, "SELECT * FROM orders ORDER BY id", "id" );
+
+    assertEquals( "SELECT MIN(\"id\"), MAX(\"id\") FROM (SELECT * FROM orders) pdi_range",
+      splitter.getMinMaxQuery() );
+
+    List<String> ranges = splitter.getRangeQueries( BigDecimal.ONE, BigDecimal.valueOf( 100 ), 4, true );
+    String prefix = "SELECT * FROM (SELECT * FROM orders) pdi_range WHERE ";
+    assertEquals( 4, ranges.size() );
+    assertEquals( prefix + "\"id\" < 26 OR \"id\" IS NULL", ranges.get( 0 ) );
+    assertEquals( prefix + "\"id\" >= 26 AND \"id\" < 51", ranges.get( 1 ) );
+    assertEquals( prefix + "\"id\" >= 51 AND \"id\" < 76", ranges.get( 2 ) );
+    assertEquals( prefix + "\"id\" >= 76", ranges.get( 3 ) );
+  }
+
+  @Test
+  public void singleRangeQueries() {
+    QueryRangeSplitter splitter = new QueryRangeSplitter( databaseMeta, "SELECT * FROM orders", "id" );
+    String prefix = "SELECT * FROM (SELECT * FROM orders) pdi_range WHERE ";
+
+    assertEquals( prefix + "\"id\" < 10 OR \"id\" IS NULL", splitter.getRangeQuery( null, BigDecimal.TEN ) );
+    assertEquals( prefix + "\"id\" >= 1 AND \"id\" < 10", splitter.getRangeQuery( BigDecimal.ONE, BigDecimal.TEN ) );
+    assertEquals( prefix + "\"id\" >= 10", splitter.getRangeQuery( BigDecimal.TEN, null ) );
+    assertEquals( "SELECT * FROM orders", splitter.getRangeQuery( null, null ) );
+  }
+
+  @Test
+  public void narrowRangesAreNotSplitFurther() {
+    QueryRangeSplitter splitter = new QueryRangeSplitter( databaseMeta, "SELECT * FROM orders", "id" );
+
+    assertEquals( 3, splitter.getRangeQueries( BigDecimal.ONE, BigDecimal.valueOf( 3 ), 8, true ).size() );
+    assertEquals( "SELECT * FROM orders",
+      splitter.getRangeQueries( BigDecimal.TEN, BigDecimal.TEN, 8, true ).get( 0 ) );
+    assertEquals( 8, splitter.getRangeQueries( BigDecimal.ZERO, BigDecimal.ONE, 8, false ).size() );
+  }
+
+  @Test
+  public void tableNameOfSingleTableQueries() {
+    assertEquals( "orders", QueryRangeSplitter.getTableName( "SELECT * FROM orders" ) );
+    assertEquals( "orders",
+      QueryRangeSplitter.getTableName( "select id, total\nfrom sales.\"orders\" o where o.total > 0" ) );
+    assertEquals( "orders", QueryRangeSplitter.getTableName( "SELECT * FROM [dbo].[orders] ORDER BY id" ) );
+    assertNull( QueryRangeSplitter.getTableName( "SELECT * FROM orders o JOIN customers c ON o.cid = c.id" ) );
+    assertNull( QueryRangeSplitter.getTableName( "SELECT * FROM orders, customers" ) );
+    assertNull( QueryRangeSplitter.getTableName( "SELECT * FROM ( SELECT * FROM orders ) t" ) );
+  }
+}
@@ -68,6 +68,21 @@ public class TableInputMetaInjectionTest extends BaseMetadataInjectionTest<Table
         return meta.isCachedRowMetaActive();
       }
     } );
+    check( "PARALLEL_READ", new BooleanGetter() {
+      public boolean get() {
+        return meta.isParallelRead();
+      }
+    } );
+    check( "SPLIT_COLUMN", new StringGetter() {
+      public String get() {
+        return meta.getSplitColumn();
+      }
+    } );
+    check( "PARALLEL_CONNECTIONS", new StringGetter() {
+      public String get() {
+        return meta.getParallelConnections();
+      }
+    } );
     skipPropertyTest( "CONNECTIONNAME" );
   }
 }
@@ -23,21 +23,44 @@
 package org.pentaho.di.trans.steps.tableinput;
 
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.KettleLogStore;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.cluster.DynamicInputSplits;
+import org.pentaho.di.trans.cluster.InputSplit;
+import org.pentaho.di.trans.cluster.InputSplitQueue;
+import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.step.StepPartitioningMeta;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 
 import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -53,6 +76,11 @@ public class TableInputTest {
   TableInputData mockStepDataInterface;
   TableInput mockTableInput;
 
+  @BeforeClass
+  public static void initLogStore() {
+    KettleLogStore.init();
+  }
+
   @Before
   public void setUp() {
 
@@ -122,4 +150,186 @@ public class TableInputTest {
     verify( mockStepDataInterface.db, times( 0 ) ).cancelStatement( any( PreparedStatement.class ) );
     assertFalse( mockStepDataInterface.isCanceled );
   }
+
+  @Test
+  public void testCopiesSplitOnTheSameDomain() throws KettleException {
+    // The copies would each see a different range of the split column while rows are added
+    //
+    Trans trans = createParallelTrans( 3 );
+    List<TableInput> copies = Arrays.asList( createParallelCopy( trans, 0, 1L, 100L ),
+      createParallelCopy( trans, 1, 1L, 250L ), createParallelCopy( trans, 2, 50L, 400L ) );
+
+    List<String> ranges = new ArrayList<>();
+    for ( TableInput copy : copies ) {
+      List<String> copyRanges = copy.getCopyRangeQueries( new RowMeta(), new Object[ 0 ], 1 );
+      assertEquals( 1, copyRanges.size() );
+      ranges.addAll( copyRanges );
+    }
+
+    String prefix = "SELECT * FROM (SELECT * FROM orders) pdi_range WHERE ";
+    assertEquals( Arrays.asList( prefix + "\"id\" < 34 OR \"id\" IS NULL", prefix + "\"id\" >= 34 AND \"id\" < 67",
+      prefix + "\"id\" >= 67" ), ranges );
+    verifyMinMaxQueries( copies, 1, 0, 0 );
+  }
+
+  @Test
+  public void testCopiesShareTheRangesOfAllConnections() throws KettleException {
+    // 2 copies with 3 connections each, but only 4 distinct boundaries
+    //
+    Trans trans = createParallelTrans( 2 );
+    TableInput first = createParallelCopy( trans, 0, 0L, 3L );
+    TableInput second = createParallelCopy( trans, 1, 0L, 3L );
+
+    String prefix = "SELECT * FROM (SELECT * FROM orders) pdi_range WHERE ";
+    assertEquals( Arrays.asList( prefix + "\"id\" < 1 OR \"id\" IS NULL", prefix + "\"id\" >= 1 AND \"id\" < 2" ),
+      first.getCopyRangeQueries( new RowMeta(), new Object[ 0 ], 3 ) );
+    assertEquals( Arrays.asList( prefix + "\"id\" >= 2 AND \"id\" < 3", prefix + "\"id\" >= 3" ),
+      second.getCopyRangeQueries( new RowMeta(), new Object[ 0 ], 3 ) );
+  }
+
+  @Test
+  public void testOnlyTheFirstCopyReadsAnEmptyTable() throws KettleException {
+    // Rows are added after the first copy found the table empty
+    //
+    Trans trans = createParallelTrans( 2 );
+    TableInput first = createParallelCopy( trans, 0, null, null );
+    TableInput second = createParallelCopy( trans, 1, 1L, 100L );
+
+    assertEquals( Collections.singletonList( "SELECT * FROM orders" ),
+      first.getCopyRangeQueries( new RowMeta(), new Object[ 0 ], 1 ) );
+    assertTrue( second.getCopyRangeQueries( new RowMeta(), new Object[ 0 ], 1 ).isEmpty() );
+    verifyMinMaxQueries( Arrays.asList( first, second ), 1, 0 );
+  }
+
+  @Test
+  public void testOnlyTheFirstCopyReadsAnUnsplitQuery() throws KettleException {
+    Trans trans = createParallelTrans( 2 );
+    TableInput first = createParallelCopy( trans, 0, 1L, 100L );
+    TableInput second = createParallelCopy( trans, 1, 1L, 100L );
+    TableInputMeta meta = (TableInputMeta) Whitebox.getInternalState( first, "meta" );
+    meta.setRowLimit( "10" );
+
+    assertEquals( Collections.singletonList( "SELECT * FROM orders" ),
+      first.getCopyRangeQueries( new RowMeta(), new Object[ 0 ], 1 ) );
+    assertTrue( second.getCopyRangeQueries( new RowMeta(), new Object[ 0 ], 1 ).isEmpty() );
+    verifyMinMaxQueries( Arrays.asList( first, second ), 0, 0 );
+  }
+
+  @Test
+  public void testDynamicRangesReadOutsideOfTheDomainAtTheEdges() throws KettleException {
+    // Ids 1 to 10 handed out in chunks of 3
+    //
+    final InputSplitQueue queue = new InputSplitQueue( "orders", 1L, 11L, 3L, 100 );
+    DynamicInputSplits splits = mock( DynamicInputSplits.class );
+    when( splits.next() ).thenAnswer( new Answer<InputSplit>() {
+      @Override
+      public InputSplit answer( InvocationOnMock invocation ) {
+        return queue.nextSplit();
+      }
+    } );
+
+    ParallelRangeReader.QuerySource querySource = createDynamicQuerySource( splits );
+
+    String prefix = "SELECT * FROM (SELECT * FROM orders) pdi_range WHERE ";
+    assertEquals( prefix + "\"id\" < 4 OR \"id\" IS NULL", querySource.nextQuery() );
+    assertEquals( prefix + "\"id\" >= 4 AND \"id\" < 7", querySource.nextQuery() );
+    assertEquals( prefix + "\"id\" >= 7 AND \"id\" < 10", querySource.nextQuery() );
+    assertEquals( prefix + "\"id\" >= 10", querySource.nextQuery() );
+    assertNull( querySource.nextQuery() );
+  }
+
+  @Test
+  public void testASingleDynamicRangeReadsTheWholeQuery() throws KettleException {
+    // The domain of an empty table
+    //
+    DynamicInputSplits splits = mock( DynamicInputSplits.class );
+    when( splits.next() ).thenReturn( new InputSplit( 0L, 1L, 0L, 1L ), null );
+
+    ParallelRangeReader.QuerySource querySource = createDynamicQuerySource( splits );
+
+    assertEquals( "SELECT * FROM orders", querySource.nextQuery() );
+    assertNull( querySource.nextQuery() );
+  }
+
+  @Test
+  public void testNoDynamicRangesWhenTheOtherCopiesTookThemAll() throws KettleException {
+    DynamicInputSplits splits = mock( DynamicInputSplits.class );
+    when( splits.next() ).thenReturn( null );
+
+    assertNull( createDynamicQuerySource( splits ).nextQuery() );
+  }
+
+  private ParallelRangeReader.QuerySource createDynamicQuerySource( DynamicInputSplits splits )
+    throws KettleException {
+    TableInput step = createParallelCopy( createParallelTrans( 1 ), 0, 1L, 10L );
+    QueryRangeSplitter splitter = new QueryRangeSplitter( createQuotingDatabaseMeta(), "SELECT * FROM orders", "id" );
+    return step.getDynamicQuerySource( splits, splitter );
+  }
+
+  private Trans createParallelTrans( int copies ) {
+    Trans trans = mock( Trans.class );
+    when( trans.getExtensionDataMap() ).thenReturn( new HashMap<String, Object>() );
+    List<StepInterface> steps = new ArrayList<>();
+    for ( int i = 0; i < copies; i++ ) {
+      steps.add( mock( StepInterface.class ) );
+    }
+    when( trans.findStepInterfaces( "orders" ) ).thenReturn( steps );
+    return trans;
+  }
+
+  /**
+   * Creates a copy of a step reading the orders in parallel, split on the id column.
+   *
+   * @param min the minimum id this copy would find, null for an empty table
+   * @param max the maximum id this copy would find, null for an empty table
+   */
+  private TableInput createParallelCopy( Trans trans, int copyNr, Long min, Long max ) throws KettleException {
+    StepMeta stepMeta = mock( StepMeta.class );
+    TransMeta transMeta = mock( TransMeta.class );
+    when( stepMeta.getName() ).thenReturn( "orders" );
+    when( transMeta.findStep( anyString() ) ).thenReturn( stepMeta );
+    when( stepMeta.getTargetStepPartitioningMeta() ).thenReturn( mock( StepPartitioningMeta.class ) );
+
+    TableInputMeta meta = new TableInputMeta();
+    meta.setDatabaseMeta( createQuotingDatabaseMeta() );
+    meta.setSQL( "SELECT * FROM orders" );
+    meta.setRowLimit( "0" );
+    meta.setParallelRead( true );
+    meta.setSplitColumn( "id" );
+
+    TableInputData data = new TableInputData();
+    data.db = mock( Database.class );
+    ResultSet rs = mock( ResultSet.class );
+    when( data.db.openQuery( anyString(), any( RowMetaInterface.class ), any( Object[].class ), anyInt(),
+      anyBoolean() ) ).thenReturn( rs );
+    when( data.db.getRow( rs ) ).thenReturn( new Object[] { min, max } );
+    RowMeta minMaxMeta = new RowMeta();
+    minMaxMeta.addValueMeta( new ValueMetaInteger( "min" ) );
+    minMaxMeta.addValueMeta( new ValueMetaInteger( "max" ) );
+    when( data.db.getReturnRowMeta() ).thenReturn( minMaxMeta );
+
+    TableInput step = new TableInput( stepMeta, data, copyNr, transMeta, trans );
+    Whitebox.setInternalState( step, "meta", meta );
+    Whitebox.setInternalState( step, "data", data );
+    return step;
+  }
+
+  private DatabaseMeta createQuotingDatabaseMeta() {
+    DatabaseMeta databaseMeta = mock( DatabaseMeta.class );
+    when( databaseMeta.quoteField( anyString() ) ).thenAnswer( new Answer<String>() {
+      @Override
+      public String answer( InvocationOnMock invocation ) throws Throwable {
+        return "\"" + invocation.getArguments()[ 0 ] + "\"";
+      }
+    } );
+    return databaseMeta;
+  }
+
+  private void verifyMinMaxQueries( List<TableInput> copies, int... nrQueries ) throws KettleException {
+    for ( int i = 0; i < nrQueries.length; i++ ) {
+      TableInputData data = (TableInputData) Whitebox.getInternalState( copies.get( i ), "data" );
+      verify( data.db, times( nrQueries[ i ] ) ).openQuery( anyString(), any( RowMetaInterface.class ),
+        any( Object[].class ), anyInt(), anyBoolean() );
+    }
+  }
 }
@@ -0,0 +1,208 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.database.DatabaseMeta;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.step.BaseStep;
+
+public class TableOutputBatchWriterTest {
+  private static final String SQL = "INSERT INTO test(name) VALUES ( ? )";
+
+  private BaseStep step;
+  private Database db;
+  private PreparedStatement statement;
+  private RowMetaInterface rowMeta;
+
+  @Before
+  public void setUp() throws Exception {
+    step = mock( BaseStep.class );
+    when( step.getStepname() ).thenReturn( "Table output" );
+
+    statement = mock( PreparedStatement.class );
+    db = mock( Database.class );
+    when( db.prepareSQL( SQL ) ).thenReturn( statement );
+
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+  }
+
+  private TableOutputBatchWriter createWriter( int nrConnections, boolean doingErrorHandling ) throws Exception {
+    TableOutputBatchWriter writer =
+      spy( new TableOutputBatchWriter( step, mock( DatabaseMeta.class ), nrConnections, 2, doingErrorHandling ) );
+    doReturn( db ).when( writer ).createDatabase();
+    writer.open();
+    return writer;
+  }
+
+  private TableOutputBatchWriter.Batch createBatch( String... names ) {
+    TableOutputBatchWriter.Batch batch = new TableOutputBatchWriter.Batch( "test", SQL, rowMeta, names.length );
+    for ( String name : names ) {
+      Object[] row = new Object[] { name };
+      batch.addRow( row, row );
+    }
+    return batch;
+  }
+
+  @Test
+  public void testBatchesAreExecutedAndCommitted() throws Exception {
+    TableOutputBatchWriter writer = createWriter( 1, false );
+
+    TableOutputBatchWriter.Batch first = createBatch( "a", "b" );
+    TableOutputBatchWriter.Batch second = createBatch( "c" );
+    writer.write( first );
+    writer.write( second );
+
+    assertSame( first, writer.take() );
+    assertSame( second, writer.take() );
+    assertNull( writer.take() );
+    assertEquals( 0, writer.getNrPending() );
+    writer.close( false );
+
+    assertEquals( 2, first.getBatchedRows().size() );
+    assertNull( first.getBatchException() );
+    assertNull( first.getException() );
+    verify( db, times( 1 ) ).prepareSQL( SQL );
+    verify( statement, times( 3 ) ).addBatch();
+    verify( statement, times( 2 ) ).executeBatch();
+    verify( db, times( 2 ) ).commit();
+    verify( db ).disconnect();
+  }
+
+  @Test
+  public void testFailedBatchIsRolledBack() throws Exception {
+    BatchUpdateException bue = new BatchUpdateException( "duplicate key", new int[] { 1, -3 } );
+    when( statement.executeBatch() ).thenThrow( bue );
+    TableOutputBatchWriter writer = createWriter( 1, false );
+
+    writer.write( createBatch( "a", "b" ) );
+    TableOutputBatchWriter.Batch batch = writer.take();
+    writer.close( false );
+
+    assertNotNull( batch.getBatchException() );
+    assertEquals( 2, batch.getBatchException().getUpdateCounts().length );
+    assertEquals( 2, batch.getBatchedRows().size() );
+    verify( db ).rollback();
+    verify( db, never() ).commit();
+  }
+
+  @Test
+  public void testFailedBatchCommitsGoodRowsWithErrorHandling() throws Exception {
+    when( statement.executeBatch() ).thenThrow( new BatchUpdateException( "duplicate key", new int[] { 1, -3 } ) );
+    TableOutputBatchWriter writer = createWriter( 1, true );
+
+    writer.write( createBatch( "a", "b" ) );
+    assertNotNull( writer.take().getBatchException() );
+    writer.close( false );
+
+    verify( db ).commit( true );
+    verify( db, never() ).rollback();
+  }
+
+  @Test
+  public void testRowsThatCannotBeSetAreRejected() throws Exception {
+    doThrow( new KettleDatabaseException( "conversion error" ) )
+      .when( db ).setValues( any( RowMetaInterface.class ), any( Object[].class ), any( PreparedStatement.class ) );
+    TableOutputBatchWriter writer = createWriter( 1, false );
+
+    writer.write( createBatch( "a" ) );
+    TableOutputBatchWriter.Batch batch = writer.take();
+    writer.close( false );
+
+    assertEquals( 1, batch.getRejectedRows().size() );
+    assertEquals( 0, batch.getBatchedRows().size() );
+    verify( statement, never() ).executeBatch();
+  }
+
+  @Test
+  public void testUnexpectedErrorIsReportedWithTheBatch() throws Exception {
+    doThrow( new IllegalStateException( "driver bug" ) ).when( statement ).addBatch();
+    TableOutputBatchWriter writer = createWriter( 1, false );
+
+    writer.write( createBatch( "a" ) );
+    TableOutputBatchWriter.Batch batch = writer.take();
+    writer.close( false );
+
+    assertNotNull( batch.getException() );
+    verify( db ).rollback();
+    verify( db, never() ).commit();
+  }
+
+  @Test
+  public void testWriteFailsWhenTheStepIsStopped() throws Exception {
+    // Not opened: nothing takes the batches from the queue, which holds one batch per connection
+    TableOutputBatchWriter writer =
+      spy( new TableOutputBatchWriter( step, mock( DatabaseMeta.class ), 1, 2, false ) );
+
+    assertTrue( writer.write( createBatch( "a" ) ) );
+    when( step.isStopped() ).thenReturn( true );
+    assertFalse( writer.write( createBatch( "b" ) ) );
+    assertEquals( 1, writer.getNrPending() );
+  }
+
+  @Test
+  public void testParallelConnections() throws Exception {
+    TableOutputBatchWriter writer = createWriter( 3, false );
+
+    for ( int i = 0; i < 10; i++ ) {
+      writer.write( createBatch( "a", "b" ) );
+    }
+    int nrBatches = 0;
+    while ( writer.take() != null ) {
+      nrBatches++;
+    }
+    writer.close( true );
+
+    assertEquals( 10, nrBatches );
+    verify( db, times( 3 ) ).connect( anyString() );
+    verify( db, times( 3 ) ).rollback();
+    verify( db, times( 3 ) ).disconnect();
+    verify( statement, times( 10 ) ).executeBatch();
+  }
+}
@@ -0,0 +1,224 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.www.ExecutionQueue.Priority;
+import org.pentaho.di.www.ExecutionQueue.Ticket;
+
+public class ExecutionQueueTest {
+
+  private final List<String> started = new CopyOnWriteArrayList<String>();
+
+  private final ExecutionQueue.Admission start = ticket -> started.add( ticket.getId() );
+
+  @Test
+  public void testUnlimitedStartsEverything() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue();
+    for ( int i = 0; i < 10; i++ ) {
+      assertTrue( queue.submit( "id" + i, "trans", Priority.NORMAL, 100, start ).isAdmitted() );
+    }
+    assertEquals( 10, started.size() );
+    assertEquals( 10, queue.getNrRunning() );
+    assertEquals( 0, queue.getNrWaiting() );
+  }
+
+  @Test
+  public void testSlots() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue( 2, 0, 0 );
+    queue.submit( "a", "trans", Priority.NORMAL, -1, start );
+    queue.submit( "b", "trans", Priority.NORMAL, -1, start );
+    Ticket c = queue.submit( "c", "trans", Priority.NORMAL, -1, start );
+    assertFalse( c.isAdmitted() );
+    assertEquals( 1, queue.getPosition( "c" ) );
+    assertEquals( 0, queue.getPosition( "a" ) );
+
+    queue.release( "a" );
+    assertTrue( c.isAdmitted() );
+    awaitStarted( 3 );
+    assertEquals( "c", started.get( 2 ) );
+    assertEquals( 2, queue.getNrRunning() );
+  }
+
+  @Test
+  public void testMemoryBudget() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue( 0, 1000, 400 );
+    queue.submit( "a", "job", Priority.NORMAL, -1, start );
+    queue.submit( "b", "job", Priority.NORMAL, 500, start );
+    Ticket c = queue.submit( "c", "job", Priority.NORMAL, 200, start );
+    assertFalse( c.isAdmitted() );
+    assertEquals( 900, queue.getUsedMemoryMb() );
+
+    queue.release( "a" );
+    assertTrue( c.isAdmitted() );
+    assertEquals( 700, queue.getUsedMemoryMb() );
+  }
+
+  @Test
+  public void testTooBigRunsAlone() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue( 0, 1000, 0 );
+    queue.submit( "a", "job", Priority.NORMAL, 100, start );
+    Ticket big = queue.submit( "big", "job", Priority.NORMAL, 5000, start );
+    assertFalse( big.isAdmitted() );
+
+    queue.release( "a" );
+    assertTrue( big.isAdmitted() );
+  }
+
+  @Test
+  public void testHeadOfLineIsNotPassed() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue( 0, 1000, 0 );
+    queue.submit( "running", "job", Priority.NORMAL, 600, start );
+    Ticket big = queue.submit( "big", "job", Priority.NORMAL, 500, start );
+    Ticket small = queue.submit( "small", "job", Priority.NORMAL, 100, start );
+    assertFalse( big.isAdmitted() );
+    assertFalse( small.isAdmitted() );
+    assertEquals( 2, queue.getPosition( "small" ) );
+  }
+
+  @Test
+  public void testPriority() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue( 1, 1000, 0 );
+    queue.submit( "running", "trans", Priority.NORMAL, 600, start );
+    Ticket low = queue.submit( "low", "trans", Priority.LOW, 100, start );
+    Ticket normal = queue.submit( "normal", "trans", Priority.NORMAL, 100, start );
+    Ticket high = queue.submit( "high", "trans", Priority.HIGH, 100, start );
+    assertEquals( 1, queue.getPosition( "high" ) );
+    assertEquals( 2, queue.getPosition( "normal" ) );
+    assertEquals( 3, queue.getPosition( "low" ) );
+
+    queue.release( "running" );
+    assertTrue( high.isAdmitted() );
+    assertFalse( normal.isAdmitted() );
+    assertFalse( low.isAdmitted() );
+  }
+
+  @Test
+  public void testPriorityFromVariables() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue( 1, 0, 250 );
+    queue.submit( "running", "trans", Priority.NORMAL, -1, start );
+
+    Variables variables = new Variables();
+    variables.setVariable( Const.KETTLE_CARTE_EXECUTION_PRIORITY, "high" );
+    variables.setVariable( Const.KETTLE_CARTE_EXECUTION_MEMORY_MB, "300" );
+    Ticket ticket = queue.submit( "waiting", "trans", variables, start );
+    assertEquals( Priority.HIGH, ticket.getPriority() );
+    assertEquals( 300, ticket.getMemoryMb() );
+
+    ticket = queue.submit( "default", "trans", new Variables(), start );
+    assertEquals( Priority.NORMAL, ticket.getPriority() );
+    assertEquals( 250, ticket.getMemoryMb() );
+  }
+
+  @Test
+  public void testAwaitAdmission() throws Exception {
+    final ExecutionQueue queue = new ExecutionQueue( 1, 0, 0 );
+    queue.submit( "a", "trans", Priority.NORMAL, -1, null );
+    final Ticket b = queue.submit( "b", "trans", Priority.NORMAL, -1, null );
+    final Ticket c = queue.submit( "c", "trans", Priority.NORMAL, -1, null );
+
+    Thread releaser = new Thread( () -> {
+      queue.cancel( "c" );
+      queue.release( "a" );
+    } );
+    releaser.start();
+    assertTrue( queue.awaitAdmission( b ) );
+    assertFalse( queue.awaitAdmission( c ) );
+    assertTrue( c.isCancelled() );
+    releaser.join();
+    assertEquals( 0, queue.getNrWaiting() );
+  }
+
+  @Test
+  public void testSubmitAndWait() throws Exception {
+    final ExecutionQueue queue = new ExecutionQueue( 1, 0, 0 );
+    assertTrue( queue.submitAndWait( "a", "trans", new Variables() ).isAdmitted() );
+
+    Thread releaser = new Thread( () -> {
+      while ( queue.getNrWaiting() == 0 ) {
+        Thread.yield();
+      }
+      queue.cancel( "b" );
+    } );
+    releaser.start();
+    try {
+      queue.submitAndWait( "b", "trans", new Variables() );
+      fail( "A cancelled transformation should not be started" );
+    } catch ( KettleException e ) {
+      // Expected
+    }
+    releaser.join();
+    assertEquals( 1, queue.getNrRunning() );
+  }
+
+  @Test
+  public void testAdmitTakesASlotRightAway() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue( 1, 0, 100 );
+    queue.submit( "a", "trans", Priority.NORMAL, -1, start );
+
+    Ticket part = queue.admit( "part", "clustered", new Variables() );
+    assertTrue( part.isAdmitted() );
+    assertEquals( 2, queue.getNrRunning() );
+    assertEquals( 200, queue.getUsedMemoryMb() );
+
+    Ticket c = queue.submit( "c", "trans", Priority.HIGH, -1, start );
+    queue.release( "a" );
+    assertFalse( c.isAdmitted() );
+    queue.release( "part" );
+    assertTrue( c.isAdmitted() );
+  }
+
+  @Test
+  public void testFailedAdmissionIsReleased() throws Exception {
+    ExecutionQueue queue = new ExecutionQueue( 1, 0, 0 );
+    try {
+      queue.submit( "a", "trans", Priority.NORMAL, -1, ticket -> {
+        throw new KettleException( "Unable to start" );
+      } );
+      fail( "The exception of the admission should be passed on" );
+    } catch ( KettleException e ) {
+      // Expected
+    }
+    assertEquals( 0, queue.getNrRunning() );
+    assertTrue( queue.submit( "b", "trans", Priority.NORMAL, -1, start ).isAdmitted() );
+  }
+
+  private void awaitStarted( int nr ) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while ( started.size() < nr && System.currentTimeMillis() < deadline ) {
+      Thread.sleep( 10 );
+    }
+    assertEquals( nr, started.size() );
+  }
+}
@@ -0,0 +1,109 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.cache.CachePolicy;
+import org.pentaho.di.core.cache.LookupCache;
+import org.pentaho.di.core.cache.LookupCacheRegistry;
+
+public class LookupCacheServletTest {
+
+  private static final String CACHE_NAME = "LookupCacheServletTest:dim_customer[id]";
+
+  private LookupCacheServlet servlet;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+  private StringWriter out;
+  private LookupCacheRegistry.Entry entry;
+
+  @Before
+  public void setUp() throws Exception {
+    entry = LookupCacheRegistry.getInstance().attach( CACHE_NAME, "name", () ->
+      new LookupCache<String, String>( CachePolicy.LRU, 0, 0, 0, null ) );
+    entry.<String, String>getCache().put( "1", "John" );
+
+    servlet = new LookupCacheServlet();
+    servlet.setJettyMode( true );
+    request = mock( HttpServletRequest.class );
+    response = mock( HttpServletResponse.class );
+    out = new StringWriter();
+    when( request.getContextPath() ).thenReturn( LookupCacheServlet.CONTEXT_PATH );
+    when( request.getParameter( "xml" ) ).thenReturn( "Y" );
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+  }
+
+  @After
+  public void tearDown() {
+    LookupCacheRegistry.getInstance().remove( CACHE_NAME );
+  }
+
+  @Test
+  public void listsTheSharedCaches() throws Exception {
+    servlet.doGet( request, response );
+
+    String xml = out.toString();
+    assertTrue( xml.contains( "<name>" + CACHE_NAME + "</name>" ) );
+    assertTrue( xml.contains( "<entries>1</entries>" ) );
+  }
+
+  @Test
+  public void invalidatesTheCacheWithTheName() throws Exception {
+    when( request.getParameter( LookupCacheServlet.PARAM_ACTION ) ).thenReturn( LookupCacheServlet.ACTION_INVALIDATE );
+    when( request.getParameter( LookupCacheServlet.PARAM_NAME ) ).thenReturn( CACHE_NAME );
+
+    servlet.doGet( request, response );
+
+    WebResult result = WebResult.fromXMLString( out.toString() );
+    assertEquals( WebResult.STRING_OK, result.getResult() );
+    assertEquals( 1L, entry.getVersion() );
+    assertEquals( 0, entry.getCache().size() );
+  }
+
+  @Test
+  public void rejectsUnknownActions() throws Exception {
+    when( request.getParameter( LookupCacheServlet.PARAM_ACTION ) ).thenReturn( "flush" );
+
+    servlet.doGet( request, response );
+
+    WebResult result = WebResult.fromXMLString( out.toString() );
+    assertEquals( WebResult.STRING_ERROR, result.getResult() );
+    verify( response ).setStatus( HttpServletResponse.SC_BAD_REQUEST );
+    assertFalse( entry.getVersion() > 0 );
+  }
+}
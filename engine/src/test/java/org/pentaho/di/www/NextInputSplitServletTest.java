@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.www;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class NextInputSplitServletTest {
+
+  private TransformationMap transformationMap;
+  private NextInputSplitServlet servlet;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+
+  @Before
+  public void setUp() throws Exception {
+    transformationMap = new TransformationMap();
+    servlet = new NextInputSplitServlet( transformationMap );
+    servlet.setJettyMode( true );
+    request = mock( HttpServletRequest.class );
+    response = mock( HttpServletResponse.class );
+    when( request.getContextPath() ).thenReturn( NextInputSplitServlet.CONTEXT_PATH );
+    when( request.getParameter( NextInputSplitServlet.PARAM_ID ) ).thenReturn( "run-1" );
+    when( request.getParameter( NextInputSplitServlet.PARAM_NAME ) ).thenReturn( "CSV file input" );
+    when( request.getParameter( NextInputSplitServlet.PARAM_START ) ).thenReturn( "0" );
+    when( request.getParameter( NextInputSplitServlet.PARAM_END ) ).thenReturn( "1000" );
+    when( request.getParameter( NextInputSplitServlet.PARAM_CHUNK ) ).thenReturn( "100" );
+    when( request.getParameter( NextInputSplitServlet.PARAM_CONSUMERS ) ).thenReturn( "2" );
+  }
+
+  @Test
+  public void handsOutTheChunksInOrder() throws Exception {
+    String xml = nextSplit();
+    assertTrue( xml.contains( "<from>0</from>" ) );
+    assertTrue( xml.contains( "<to>250</to>" ) );
+    assertTrue( xml.contains( "<end>1000</end>" ) );
+
+    xml = nextSplit();
+    assertTrue( xml.contains( "<from>250</from>" ) );
+    assertTrue( xml.contains( "<to>438</to>" ) );
+  }
+
+  @Test
+  public void emptySplitWhenAllInputWasHandedOut() throws Exception {
+    String xml = nextSplit();
+    while ( xml.contains( "<from>" ) ) {
+      xml = nextSplit();
+    }
+    assertFalse( xml.contains( "<error>" ) );
+    assertTrue( transformationMap.getInputSplitQueue( "run-1", "CSV file input", 0, 1000, 100, 2 ).getNrSplits() > 1 );
+
+    transformationMap.removeInputSplitQueues( "run-1" );
+    assertTrue( nextSplit().contains( "<from>0</from>" ) );
+  }
+
+  @Test
+  public void missingParametersAreRejected() throws Exception {
+    when( request.getParameter( NextInputSplitServlet.PARAM_ID ) ).thenReturn( null );
+
+    String xml = nextSplit();
+    assertTrue( xml.contains( "<error>" ) );
+    verify( response ).setStatus( HttpServletResponse.SC_BAD_REQUEST );
+  }
+
+  private String nextSplit() throws Exception {
+    StringWriter out = new StringWriter();
+    when( response.getWriter() ).thenReturn( new PrintWriter( out ) );
+    servlet.doGet( request, response );
+    return out.toString();
+  }
+}
@@ -192,6 +192,23 @@ public class SlaveServerConfigTest {
     assertEquals( 0, parseJettyOptions.size() );
   }
 
+  @Test
+  public void testExecutionQueue() throws KettleXMLException {
+    Node configNode = getConfigNode( "<" + XML_TAG_SLAVE_CONFIG + "><execution_queue>"
+      + "<max_concurrent>4</max_concurrent><max_memory_mb>8192</max_memory_mb>"
+      + "<default_memory_mb>1024</default_memory_mb></execution_queue></" + XML_TAG_SLAVE_CONFIG + ">" );
+
+    SlaveServerConfig config = new SlaveServerConfig( null, configNode );
+    assertEquals( 4, config.getMaxConcurrentExecutions() );
+    assertEquals( 8192, config.getMaxExecutionMemoryMb() );
+    assertEquals( 1024, config.getDefaultExecutionMemoryMb() );
+
+    config = new SlaveServerConfig( null, getConfigNode( config.getXML() ) );
+    assertEquals( 4, config.getMaxConcurrentExecutions() );
+    assertEquals( 8192, config.getMaxExecutionMemoryMb() );
+    assertEquals( 1024, config.getDefaultExecutionMemoryMb() );
+  }
+
   @Test
   public void testParseJettyOption_NoOptionsNode() throws KettleXMLException {
     Node configNode = getConfigNode( getConfigWithNoOptionsNode() );
@@ -99,7 +99,7 @@ public class SlaveServerJobStatusTest {
   public void testSerialization() throws KettleException {
     // TODO Add Result
     List<String> attributes = Arrays.asList( "JobName", "Id", "StatusDescription", "ErrorDescription",
-      "LogDate", "LoggingString", "FirstLoggingLineNr", "LastLoggingLineNr" );
+      "LogDate", "LoggingString", "FirstLoggingLineNr", "LastLoggingLineNr", "QueuePosition", "QueueWaitTime" );
 
     Map<String, FieldLoadSaveValidator<?>> attributeMap = new HashMap<String, FieldLoadSaveValidator<?>>();
     attributeMap.put( "LoggingString", new LoggingStringLoadSaveValidator() );
@@ -96,7 +96,8 @@ public class SlaveServerTransStatusTest {
   public void testSerialization() throws KettleException {
     // TODO Add StepStatusList
     List<String> attributes = Arrays.asList( "TransName", "Id", "StatusDescription", "ErrorDescription",
-      "LogDate", "Paused", "FirstLoggingLineNr", "LastLoggingLineNr", "LoggingString" );
+      "LogDate", "Paused", "FirstLoggingLineNr", "LastLoggingLineNr", "LoggingString", "QueuePosition",
+      "QueueWaitTime" );
     Map<String, FieldLoadSaveValidator<?>> attributeMap = new HashMap<String, FieldLoadSaveValidator<?>>();
     attributeMap.put( "LoggingString", new LoggingStringLoadSaveValidator() );
 
@@ -25,15 +25,15 @@ package org.pentaho.di.trans.steps.combinationlookup;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.cache.CachePolicy;
+import org.pentaho.di.core.cache.CacheStatistics;
+import org.pentaho.di.core.cache.LookupCache;
 import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleConfigException;
 import org.pentaho.di.core.exception.KettleDatabaseException;
@@ -116,8 +116,7 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
 
     // try to find the row in the cache...
     //
-    Long tk = data.cache.get( new RowMetaAndData( rowMeta, row ) );
-    return tk;
+    return (Long) data.lookupCache.get( new RowMetaAndData( rowMeta, row ) );
   }
 
   /**
@@ -137,69 +136,8 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
       return;
     }
 
-    // store it in the cache if needed.
-    data.cache.put( new RowMetaAndData( rowMeta, row ), tk );
-
-    // check if the size is not too big...
-    // Allow for a buffer overrun of 20% and then remove those 20% in one go.
-    // Just to keep performance in track.
-    //
-    int tenPercent = meta.getCacheSize() / 10;
-    if ( meta.getCacheSize() > 0 && data.cache.size() > meta.getCacheSize() + tenPercent ) {
-      // Which cache entries do we delete here?
-      // We delete those with the lowest technical key...
-      // Those would arguably be the "oldest" dimension entries.
-      // Oh well... Nothing is going to be perfect here...
-      //
-      // Getting the lowest 20% requires some kind of sorting algorithm and I'm not sure we want to do that.
-      // Sorting is slow and even in the best case situation we need to do 2 passes over the cache entries...
-      //
-      // Perhaps we should get 20% random values and delete everything below the lowest but one TK.
-      //
-      List<RowMetaAndData> keys = new ArrayList<RowMetaAndData>( data.cache.keySet() );
-      int sizeBefore = keys.size();
-      List<Long> samples = new ArrayList<Long>();
-
-      // Take 10 sample technical keys....
-      int stepsize = keys.size() / 5;
-      if ( stepsize < 1 ) {
-        stepsize = 1; // make sure we have no endless loop
-      }
-      for ( int i = 0; i < keys.size(); i += stepsize ) {
-        RowMetaAndData key = keys.get( i );
-        Long value = data.cache.get( key );
-        if ( value != null ) {
-          samples.add( value );
-        }
-      }
-      // Sort these 5 elements...
-      Collections.sort( samples );
-
-      // What is the smallest?
-      // Take the second, not the fist in the list, otherwise we would be removing a single entry = not good.
-      if ( samples.size() > 1 ) {
-        data.smallestCacheKey = samples.get( 1 ).longValue();
-      } else { // except when there is only one sample
-        data.smallestCacheKey = samples.get( 0 ).longValue();
-      }
-
-      // Remove anything in the cache <= smallest.
-      // This makes it almost single pass...
-      // This algorithm is not 100% correct, but I guess it beats sorting the whole cache all the time.
-      //
-      for ( int i = 0; i < keys.size(); i++ ) {
-        RowMetaAndData key = keys.get( i );
-        Long value = data.cache.get( key );
-        if ( value != null ) {
-          if ( value.longValue() <= data.smallestCacheKey ) {
-            data.cache.remove( key ); // this one has to go.
-          }
-        }
-      }
-
-      int sizeAfter = data.cache.size();
-      logDetailed( "Reduced the lookup cache from " + sizeBefore + " to " + sizeAfter + " rows." );
-    }
+    // store it in the cache, the least recently used entries are evicted once it is full
+    data.lookupCache.put( new RowMetaAndData( rowMeta, row ), tk );
 
     if ( isRowLevel() ) {
       logRowlevel( "Cache store: key=" + rowMeta.getString( row ) + "    key=" + tk );
@@ -669,7 +607,8 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
       data.realSchemaName = environmentSubstitute( meta.getSchemaName() );
       data.realTableName = environmentSubstitute( meta.getTableName() );
 
-      data.cache = meta.getCacheSize() > 0 ? new HashMap<>( (int) ( meta.getCacheSize() * 1.5 ) ) : new HashMap<>();
+      data.lookupCache = new LookupCache<>( CachePolicy.LRU, Math.max( 0, meta.getCacheSize() ), 0L, 0L, null );
+      data.cache = data.lookupCache.asMap();
 
       data.db.setCommitSize( meta.getCommitSize() );
       return true;
@@ -703,6 +642,12 @@ public class CombinationLookup extends BaseDatabaseStep implements StepInterface
     super.dispose( smi, sdi );
   }
 
+  @Override
+  public CacheStatistics getLookupCacheStatistics() {
+    LookupCache<RowMetaAndData, Long> cache = data != null ? data.lookupCache : null;
+    return cache != null && meta.getCacheSize() >= 0 ? cache.getStatistics() : null;
+  }
+
   /**
    * Preload the cache
    *
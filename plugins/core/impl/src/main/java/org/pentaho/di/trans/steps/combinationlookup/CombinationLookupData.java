@@ -26,6 +26,7 @@ import java.sql.PreparedStatement;
 import java.util.Map;
 
 import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.cache.LookupCache;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseDatabaseStepData;
@@ -39,6 +40,13 @@ import org.pentaho.di.trans.step.StepDataInterface;
 public class CombinationLookupData extends BaseDatabaseStepData implements StepDataInterface {
   public int[] keynrs; // nrs in row of the keys
 
+  /** The technical keys of the combinations looked up or inserted, the least recently used ones are evicted */
+  public LookupCache<RowMetaAndData, Long> lookupCache;
+
+  /**
+   * @deprecated use {@link #lookupCache} instead, this is a map view of it
+   */
+  @Deprecated
   public Map<RowMetaAndData, Long> cache;
 
   public RowMetaInterface outputRowMeta;
@@ -53,6 +61,11 @@ public class CombinationLookupData extends BaseDatabaseStepData implements StepD
 
   public PreparedStatement prepStatementLookup;
   public PreparedStatement prepStatementInsert;
+
+  /**
+   * @deprecated no longer used, the cache evicts the least recently used entries instead of the lowest keys
+   */
+  @Deprecated
   public long smallestCacheKey;
 
   /**
@@ -3904,6 +3904,7 @@ public class TransGraph extends AbstractGraph implements XulEventHandler, Redraw
 
           trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
           trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
+          trans.setStepExecutionMode( executionConfiguration.getStepExecutionMode() );
 
           // Launch the step preparation in a different thread.
           // That way Spoon doesn't block anymore and that way we can follow the progress of the initialization
@@ -4021,6 +4022,7 @@ public class TransGraph extends AbstractGraph implements XulEventHandler, Redraw
         trans.setSafeModeEnabled( executionConfiguration.isSafeModeEnabled() );
         trans.setPreview( true );
         trans.setGatheringMetrics( executionConfiguration.isGatheringMetrics() );
+        trans.setStepExecutionMode( executionConfiguration.getStepExecutionMode() );
         trans.setMetaStore( spoon.getMetaStore() );
         trans.prepareExecution( args );
         trans.setRepository( spoon.rep );
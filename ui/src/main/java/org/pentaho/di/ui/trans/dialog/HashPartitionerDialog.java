@@ -0,0 +1,283 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2024 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.ui.trans.dialog;
+
+import java.util.Arrays;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CCombo;
+import org.eclipse.swt.events.ModifyEvent;
+import org.eclipse.swt.events.ModifyListener;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.ShellAdapter;
+import org.eclipse.swt.events.ShellEvent;
+import org.eclipse.swt.layout.FormAttachment;
+import org.eclipse.swt.layout.FormData;
+import org.eclipse.swt.layout.FormLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.TableItem;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.plugins.PartitionerPluginType;
+import org.pentaho.di.core.plugins.PluginInterface;
+import org.pentaho.di.core.plugins.PluginRegistry;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.HashPartitioner;
+import org.pentaho.di.trans.PartitionHashFunction;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.BaseStepMeta;
+import org.pentaho.di.trans.step.StepDialogInterface;
+import org.pentaho.di.trans.step.StepMeta;
+import org.pentaho.di.trans.step.StepPartitioningMeta;
+import org.pentaho.di.ui.core.dialog.ErrorDialog;
+import org.pentaho.di.ui.core.gui.GUIResource;
+import org.pentaho.di.ui.core.widget.ColumnInfo;
+import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.trans.step.BaseStepDialog;
+
+public class HashPartitionerDialog extends BaseStepDialog implements StepDialogInterface {
+  private static Class<?> PKG = TransDialog.class; // for i18n purposes, needed by Translator2!!
+
+  private StepPartitioningMeta partitioningMeta;
+  private HashPartitioner partitioner;
+
+  private Label wlHashFunction;
+  private CCombo wHashFunction;
+  private FormData fdlHashFunction, fdHashFunction;
+
+  private Label wlConsistent;
+  private Button wConsistent;
+  private FormData fdlConsistent, fdConsistent;
+
+  private Label wlFields;
+  private TableView wFields;
+  private FormData fdlFields, fdFields;
+
+  public HashPartitionerDialog( Shell parent, StepMeta stepMeta, StepPartitioningMeta partitioningMeta,
+                                TransMeta transMeta ) {
+    super( parent, (BaseStepMeta) stepMeta.getStepMetaInterface(), transMeta, partitioningMeta
+      .getPartitioner().getDescription() );
+    this.stepMeta = stepMeta;
+    this.partitioningMeta = partitioningMeta;
+    partitioner = (HashPartitioner) partitioningMeta.getPartitioner();
+  }
+
+  public String open() {
+    Shell parent = getParent();
+    Display display = parent.getDisplay();
+
+    shell = new Shell( parent, SWT.DIALOG_TRIM | SWT.RESIZE | SWT.MIN | SWT.MAX );
+    props.setLook( shell );
+    setShellImage( shell );
+
+    ModifyListener lsMod = new ModifyListener() {
+      public void modifyText( ModifyEvent e ) {
+        partitioningMeta.hasChanged( true );
+      }
+    };
+    changed = partitioningMeta.hasChanged();
+
+    FormLayout formLayout = new FormLayout();
+    formLayout.marginWidth = Const.FORM_MARGIN;
+    formLayout.marginHeight = Const.FORM_MARGIN;
+
+    shell.setLayout( formLayout );
+    shell.setText( partitioner.getDescription() );
+
+    int margin = Const.MARGIN;
+
+    int middle = props.getMiddlePct();
+
+    wlHashFunction = new Label( shell, SWT.RIGHT );
+    wlHashFunction.setText( "Hash function" );
+    props.setLook( wlHashFunction );
+    fdlHashFunction = new FormData();
+    fdlHashFunction.left = new FormAttachment( 0, 0 );
+    fdlHashFunction.right = new FormAttachment( middle, -margin );
+    fdlHashFunction.top = new FormAttachment( 0, margin );
+    wlHashFunction.setLayoutData( fdlHashFunction );
+    wHashFunction = new CCombo( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER | SWT.READ_ONLY );
+    wHashFunction.setItems( PartitionHashFunction.getDescriptions() );
+    props.setLook( wHashFunction );
+    wHashFunction.addModifyListener( lsMod );
+    fdHashFunction = new FormData();
+    fdHashFunction.left = new FormAttachment( middle, 0 );
+    fdHashFunction.top = new FormAttachment( 0, margin );
+    fdHashFunction.right = new FormAttachment( 100, 0 );
+    wHashFunction.setLayoutData( fdHashFunction );
+
+    wlConsistent = new Label( shell, SWT.RIGHT );
+    wlConsistent.setText( "Consistent hashing" );
+    wlConsistent.setToolTipText( "Only move the rows of the added partitions when partitions are added" );
+    props.setLook( wlConsistent );
+    fdlConsistent = new FormData();
+    fdlConsistent.left = new FormAttachment( 0, 0 );
+    fdlConsistent.right = new FormAttachment( middle, -margin );
+    fdlConsistent.top = new FormAttachment( wHashFunction, margin );
+    wlConsistent.setLayoutData( fdlConsistent );
+    wConsistent = new Button( shell, SWT.CHECK );
+    props.setLook( wConsistent );
+    fdConsistent = new FormData();
+    fdConsistent.left = new FormAttachment( middle, 0 );
+    fdConsistent.top = new FormAttachment( wHashFunction, margin );
+    fdConsistent.right = new FormAttachment( 100, 0 );
+    wConsistent.setLayoutData( fdConsistent );
+    wConsistent.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        partitioningMeta.hasChanged( true );
+      }
+    } );
+
+    wlFields = new Label( shell, SWT.NONE );
+    wlFields.setText( "Fields" );
+    props.setLook( wlFields );
+    fdlFields = new FormData();
+    fdlFields.left = new FormAttachment( 0, 0 );
+    fdlFields.top = new FormAttachment( wConsistent, margin );
+    wlFields.setLayoutData( fdlFields );
+
+    String[] fieldNames = new String[ 0 ];
+    try {
+      RowMetaInterface inputFields = transMeta.getPrevStepFields( stepMeta );
+      if ( inputFields != null ) {
+        fieldNames = inputFields.getFieldNames();
+        Arrays.sort( fieldNames );
+      }
+    } catch ( Exception e ) {
+      new ErrorDialog( shell, "Error", "Error obtaining list of input fields:", e );
+    }
+
+    ColumnInfo[] colinf =
+      new ColumnInfo[] { new ColumnInfo( "Fieldname", ColumnInfo.COLUMN_TYPE_CCOMBO, fieldNames, false ) };
+    wFields =
+      new TableView( transMeta, shell, SWT.BORDER | SWT.FULL_SELECTION | SWT.MULTI, colinf,
+        Math.max( 1, partitioner.getFieldNames().length ), lsMod, props );
+
+    // Some buttons
+    wOK = new Button( shell, SWT.PUSH );
+    wOK.setText( BaseMessages.getString( PKG, "System.Button.OK" ) );
+    wCancel = new Button( shell, SWT.PUSH );
+    wCancel.setText( BaseMessages.getString( PKG, "System.Button.Cancel" ) );
+    fdOK = new FormData();
+
+    setButtonPositions( new Button[] { wOK, wCancel }, margin, null );
+
+    fdFields = new FormData();
+    fdFields.left = new FormAttachment( 0, 0 );
+    fdFields.top = new FormAttachment( wlFields, margin );
+    fdFields.right = new FormAttachment( 100, 0 );
+    fdFields.bottom = new FormAttachment( wOK, -2 * margin );
+    wFields.setLayoutData( fdFields );
+
+    // Add listeners
+    lsCancel = new Listener() {
+      public void handleEvent( Event e ) {
+        cancel();
+      }
+    };
+    lsOK = new Listener() {
+      public void handleEvent( Event e ) {
+        ok();
+      }
+    };
+
+    wCancel.addListener( SWT.Selection, lsCancel );
+    wOK.addListener( SWT.Selection, lsOK );
+
+    lsDef = new SelectionAdapter() {
+      public void widgetDefaultSelected( SelectionEvent e ) {
+        ok();
+      }
+    };
+
+    // Detect X or ALT-F4 or something that kills this window...
+    shell.addShellListener( new ShellAdapter() {
+      public void shellClosed( ShellEvent e ) {
+        cancel();
+      }
+    } );
+
+    // Set the shell size, based upon previous time...
+    setSize();
+    getData();
+    partitioningMeta.hasChanged( changed );
+
+    shell.open();
+    while ( !shell.isDisposed() ) {
+      if ( !display.readAndDispatch() ) {
+        display.sleep();
+      }
+    }
+    return stepname;
+  }
+
+  /**
+   * Copy information from the meta-data input to the dialog fields.
+   */
+  public void getData() {
+    wHashFunction.setText( partitioner.getHashFunction().getDescription() );
+    wConsistent.setSelection( partitioner.isConsistent() );
+
+    String[] fieldNames = partitioner.getFieldNames();
+    for ( int i = 0; i < fieldNames.length; i++ ) {
+      TableItem item = wFields.table.getItem( i );
+      item.setText( 1, Const.NVL( fieldNames[ i ], "" ) );
+    }
+    wFields.setRowNums();
+    wFields.optWidth( true );
+  }
+
+  private void cancel() {
+    stepname = null;
+    partitioningMeta.hasChanged( changed );
+    dispose();
+  }
+
+  private void ok() {
+    int nrFields = wFields.nrNonEmpty();
+    String[] fieldNames = new String[ nrFields ];
+    for ( int i = 0; i < nrFields; i++ ) {
+      fieldNames[ i ] = wFields.getNonEmpty( i ).getText( 1 );
+    }
+    partitioner.setFieldNames( fieldNames );
+    partitioner.setHashFunction( PartitionHashFunction.getHashFunctionByDescription( wHashFunction.getText() ) );
+    partitioner.setConsistent( wConsistent.getSelection() );
+    dispose();
+  }
+
+  private void setShellImage( Shell shell ) {
+    PluginInterface plugin = PluginRegistry.getInstance().getPlugin( PartitionerPluginType.class, partitioner.getId() );
+    if ( !Utils.isEmpty( plugin.getDocumentationUrl() ) ) {
+      createHelpButton( shell, stepMeta, plugin );
+    }
+
+    shell.setImage( GUIResource.getInstance().getImageSpoon() );
+  }
+}
@@ -48,6 +48,7 @@ import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.TableItem;
 import org.eclipse.swt.widgets.Text;
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.cache.CachePolicy;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.database.DatabaseMeta;
@@ -87,6 +88,30 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
   private Text wCachesize;
   private FormData fdlCachesize, fdCachesize;
 
+  private Label wlCachePolicy;
+  private CCombo wCachePolicy;
+  private FormData fdlCachePolicy, fdCachePolicy;
+
+  private Label wlCacheMaxMemory;
+  private Text wCacheMaxMemory;
+  private FormData fdlCacheMaxMemory, fdCacheMaxMemory;
+
+  private Label wlCacheTimeToLive;
+  private Text wCacheTimeToLive;
+  private FormData fdlCacheTimeToLive, fdCacheTimeToLive;
+
+  private Label wlCacheMisses;
+  private Button wCacheMisses;
+  private FormData fdlCacheMisses, fdCacheMisses;
+
+  private Label wlSharedCache;
+  private Button wSharedCache;
+  private FormData fdlSharedCache, fdSharedCache;
+
+  private Label wlBatchSize;
+  private Text wBatchSize;
+  private FormData fdlBatchSize, fdBatchSize;
+
   private Label wlKey;
   private TableView wKey;
   private FormData fdlKey, fdKey;
@@ -333,12 +358,133 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
       }
     } );
 
+    // Cache : eviction policy
+    wlCachePolicy = new Label( shell, SWT.RIGHT );
+    wlCachePolicy.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.CachePolicy.Label" ) );
+    wlCachePolicy.setToolTipText( BaseMessages.getString( PKG, "DatabaseLookupDialog.CachePolicy.Tooltip" ) );
+    props.setLook( wlCachePolicy );
+    fdlCachePolicy = new FormData();
+    fdlCachePolicy.left = new FormAttachment( 0, 0 );
+    fdlCachePolicy.right = new FormAttachment( middle, -margin );
+    fdlCachePolicy.top = new FormAttachment( wCacheLoadAll, margin );
+    wlCachePolicy.setLayoutData( fdlCachePolicy );
+    wCachePolicy = new CCombo( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCachePolicy );
+    wCachePolicy.add( "" );
+    for ( CachePolicy policy : CachePolicy.values() ) {
+      wCachePolicy.add( policy.getCode() );
+    }
+    wCachePolicy.addModifyListener( lsMod );
+    fdCachePolicy = new FormData();
+    fdCachePolicy.left = new FormAttachment( middle, 0 );
+    fdCachePolicy.right = new FormAttachment( 100, 0 );
+    fdCachePolicy.top = new FormAttachment( wCacheLoadAll, margin );
+    wCachePolicy.setLayoutData( fdCachePolicy );
+
+    // Cache : maximum memory
+    wlCacheMaxMemory = new Label( shell, SWT.RIGHT );
+    wlCacheMaxMemory.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.CacheMaxMemory.Label" ) );
+    props.setLook( wlCacheMaxMemory );
+    fdlCacheMaxMemory = new FormData();
+    fdlCacheMaxMemory.left = new FormAttachment( 0, 0 );
+    fdlCacheMaxMemory.right = new FormAttachment( middle, -margin );
+    fdlCacheMaxMemory.top = new FormAttachment( wCachePolicy, margin );
+    wlCacheMaxMemory.setLayoutData( fdlCacheMaxMemory );
+    wCacheMaxMemory = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCacheMaxMemory );
+    wCacheMaxMemory.addModifyListener( lsMod );
+    fdCacheMaxMemory = new FormData();
+    fdCacheMaxMemory.left = new FormAttachment( middle, 0 );
+    fdCacheMaxMemory.right = new FormAttachment( 100, 0 );
+    fdCacheMaxMemory.top = new FormAttachment( wCachePolicy, margin );
+    wCacheMaxMemory.setLayoutData( fdCacheMaxMemory );
+
+    // Cache : time to live
+    wlCacheTimeToLive = new Label( shell, SWT.RIGHT );
+    wlCacheTimeToLive.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.CacheTimeToLive.Label" ) );
+    props.setLook( wlCacheTimeToLive );
+    fdlCacheTimeToLive = new FormData();
+    fdlCacheTimeToLive.left = new FormAttachment( 0, 0 );
+    fdlCacheTimeToLive.right = new FormAttachment( middle, -margin );
+    fdlCacheTimeToLive.top = new FormAttachment( wCacheMaxMemory, margin );
+    wlCacheTimeToLive.setLayoutData( fdlCacheTimeToLive );
+    wCacheTimeToLive = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCacheTimeToLive );
+    wCacheTimeToLive.addModifyListener( lsMod );
+    fdCacheTimeToLive = new FormData();
+    fdCacheTimeToLive.left = new FormAttachment( middle, 0 );
+    fdCacheTimeToLive.right = new FormAttachment( 100, 0 );
+    fdCacheTimeToLive.top = new FormAttachment( wCacheMaxMemory, margin );
+    wCacheTimeToLive.setLayoutData( fdCacheTimeToLive );
+
+    // Cache : remember misses?
+    wlCacheMisses = new Label( shell, SWT.RIGHT );
+    wlCacheMisses.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.CacheMisses.Label" ) );
+    props.setLook( wlCacheMisses );
+    fdlCacheMisses = new FormData();
+    fdlCacheMisses.left = new FormAttachment( 0, 0 );
+    fdlCacheMisses.right = new FormAttachment( middle, -margin );
+    fdlCacheMisses.top = new FormAttachment( wCacheTimeToLive, margin );
+    wlCacheMisses.setLayoutData( fdlCacheMisses );
+    wCacheMisses = new Button( shell, SWT.CHECK );
+    props.setLook( wCacheMisses );
+    fdCacheMisses = new FormData();
+    fdCacheMisses.left = new FormAttachment( middle, 0 );
+    fdCacheMisses.top = new FormAttachment( wCacheTimeToLive, margin );
+    wCacheMisses.setLayoutData( fdCacheMisses );
+    wCacheMisses.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
+    // Cache : share with other transformations?
+    wlSharedCache = new Label( shell, SWT.RIGHT );
+    wlSharedCache.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.SharedCache.Label" ) );
+    wlSharedCache.setToolTipText( BaseMessages.getString( PKG, "DatabaseLookupDialog.SharedCache.Tooltip" ) );
+    props.setLook( wlSharedCache );
+    fdlSharedCache = new FormData();
+    fdlSharedCache.left = new FormAttachment( 0, 0 );
+    fdlSharedCache.right = new FormAttachment( middle, -margin );
+    fdlSharedCache.top = new FormAttachment( wCacheMisses, margin );
+    wlSharedCache.setLayoutData( fdlSharedCache );
+    wSharedCache = new Button( shell, SWT.CHECK );
+    props.setLook( wSharedCache );
+    fdSharedCache = new FormData();
+    fdSharedCache.left = new FormAttachment( middle, 0 );
+    fdSharedCache.top = new FormAttachment( wCacheMisses, margin );
+    wSharedCache.setLayoutData( fdSharedCache );
+    wSharedCache.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
+    // Batch lookup size line
+    wlBatchSize = new Label( shell, SWT.RIGHT );
+    wlBatchSize.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.BatchSize.Label" ) );
+    wlBatchSize.setToolTipText( BaseMessages.getString( PKG, "DatabaseLookupDialog.BatchSize.Tooltip" ) );
+    props.setLook( wlBatchSize );
+    fdlBatchSize = new FormData();
+    fdlBatchSize.left = new FormAttachment( 0, 0 );
+    fdlBatchSize.right = new FormAttachment( middle, -margin );
+    fdlBatchSize.top = new FormAttachment( wSharedCache, margin );
+    wlBatchSize.setLayoutData( fdlBatchSize );
+    wBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wBatchSize );
+    wBatchSize.addModifyListener( lsMod );
+    fdBatchSize = new FormData();
+    fdBatchSize.left = new FormAttachment( middle, 0 );
+    fdBatchSize.right = new FormAttachment( 100, 0 );
+    fdBatchSize.top = new FormAttachment( wSharedCache, margin );
+    wBatchSize.setLayoutData( fdBatchSize );
+
     wlKey = new Label( shell, SWT.NONE );
     wlKey.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.Keys.Label" ) );
     props.setLook( wlKey );
     fdlKey = new FormData();
     fdlKey.left = new FormAttachment( 0, 0 );
-    fdlKey.top = new FormAttachment( wCacheLoadAll, margin );
+    fdlKey.top = new FormAttachment( wBatchSize, margin );
     wlKey.setLayoutData( fdlKey );
 
     int nrKeyCols = 4;
@@ -530,6 +676,9 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wTable.addSelectionListener( lsDef );
     wOrderBy.addSelectionListener( lsDef );
     wCachesize.addSelectionListener( lsDef );
+    wCacheMaxMemory.addSelectionListener( lsDef );
+    wCacheTimeToLive.addSelectionListener( lsDef );
+    wBatchSize.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -643,6 +792,21 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wlCachesize.setEnabled( wCache.getSelection() && !wCacheLoadAll.getSelection() );
     wCacheLoadAll.setEnabled( wCache.getSelection() );
     wlCacheLoadAll.setEnabled( wCache.getSelection() );
+
+    boolean onDemandCache = wCache.getSelection() && !wCacheLoadAll.getSelection();
+    wCachePolicy.setEnabled( onDemandCache );
+    wlCachePolicy.setEnabled( onDemandCache );
+    wCacheMaxMemory.setEnabled( onDemandCache );
+    wlCacheMaxMemory.setEnabled( onDemandCache );
+    wCacheTimeToLive.setEnabled( onDemandCache );
+    wlCacheTimeToLive.setEnabled( onDemandCache );
+    wCacheMisses.setEnabled( onDemandCache );
+    wlCacheMisses.setEnabled( onDemandCache );
+    wSharedCache.setEnabled( wCache.getSelection() );
+    wlSharedCache.setEnabled( wCache.getSelection() );
+    // There is nothing left to look up in batches when all data is loaded into the cache
+    wBatchSize.setEnabled( !( wCache.getSelection() && wCacheLoadAll.getSelection() ) );
+    wlBatchSize.setEnabled( !( wCache.getSelection() && wCacheLoadAll.getSelection() ) );
     wFailMultiple.setEnabled( !wCache.getSelection() );
     wlFailMultiple.setEnabled( !wCache.getSelection() );
   }
@@ -656,6 +820,12 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wCache.setSelection( input.isCached() );
     wCachesize.setText( "" + input.getCacheSize() );
     wCacheLoadAll.setSelection( input.isLoadingAllDataInCache() );
+    wCachePolicy.setText( Const.NVL( input.getCachePolicy(), "" ) );
+    wCacheMaxMemory.setText( "" + input.getCacheMaxMemory() );
+    wCacheTimeToLive.setText( "" + input.getCacheTimeToLive() );
+    wCacheMisses.setSelection( input.isCachingMisses() );
+    wSharedCache.setSelection( input.isSharedCache() );
+    wBatchSize.setText( "" + input.getBatchLookupSize() );
 
     if ( input.getStreamKeyField1() != null ) {
       for ( int i = 0; i < input.getStreamKeyField1().length; i++ ) {
@@ -740,6 +910,12 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     input.setCached( wCache.getSelection() );
     input.setCacheSize( Const.toInt( wCachesize.getText(), 0 ) );
     input.setLoadingAllDataInCache( wCacheLoadAll.getSelection() );
+    input.setCachePolicy( wCachePolicy.getText() );
+    input.setCacheMaxMemory( Const.toInt( wCacheMaxMemory.getText(), 0 ) );
+    input.setCacheTimeToLive( Const.toInt( wCacheTimeToLive.getText(), 0 ) );
+    input.setCachingMisses( wCacheMisses.getSelection() );
+    input.setSharedCache( wSharedCache.getSelection() );
+    input.setBatchLookupSize( Const.toInt( wBatchSize.getText(), 0 ) );
 
     logDebug( BaseMessages.getString( PKG, "DatabaseLookupDialog.Log.FoundKeys", String.valueOf( nrkeys ) ) );
     //CHECKSTYLE:Indentation:OFF
@@ -58,8 +58,12 @@ import org.pentaho.di.trans.step.StepDialogInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
 import org.pentaho.di.ui.core.dialog.ErrorDialog;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterFileDialogTextVar;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterOptions;
+import org.pentaho.di.ui.core.events.dialog.SelectionOperation;
 import org.pentaho.di.ui.core.widget.ColumnInfo;
 import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.core.widget.TextVar;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
 
 public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInterface {
@@ -77,6 +81,19 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
   private Button wAlwaysAddResult;
   private FormData fdlAlwaysAddResult, fdAlwaysAddResult;
 
+  private Label wlCombineCopies;
+  private Button wCombineCopies;
+  private FormData fdlCombineCopies, fdCombineCopies;
+
+  private Label wlSortDir;
+  private Button wbSortDir;
+  private TextVar wSortDir;
+  private FormData fdlSortDir, fdbSortDir, fdSortDir;
+
+  private Label wlPrefix;
+  private Text wPrefix;
+  private FormData fdlPrefix, fdPrefix;
+
   private Button wGet, wGetAgg;
   private FormData fdGet, fdGetAgg;
   private Listener lsGet, lsGetAgg;
@@ -168,12 +185,83 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     wAlwaysAddResult.setLayoutData( fdAlwaysAddResult );
     wAlwaysAddResult.addSelectionListener( lsSel );
 
+    // Merge the partial aggregates of the step copies
+    //
+    wlCombineCopies = new Label( shell, SWT.RIGHT );
+    wlCombineCopies.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.CombineCopies.Label" ) );
+    wlCombineCopies.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.CombineCopies.ToolTip" ) );
+    props.setLook( wlCombineCopies );
+    fdlCombineCopies = new FormData();
+    fdlCombineCopies.left = new FormAttachment( 0, 0 );
+    fdlCombineCopies.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlCombineCopies.right = new FormAttachment( middle, -margin );
+    wlCombineCopies.setLayoutData( fdlCombineCopies );
+    wCombineCopies = new Button( shell, SWT.CHECK );
+    wCombineCopies.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.CombineCopies.ToolTip" ) );
+    props.setLook( wCombineCopies );
+    fdCombineCopies = new FormData();
+    fdCombineCopies.left = new FormAttachment( middle, 0 );
+    fdCombineCopies.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdCombineCopies.right = new FormAttachment( 100, 0 );
+    wCombineCopies.setLayoutData( fdCombineCopies );
+    wCombineCopies.addSelectionListener( lsSel );
+
+    // Where to write the groups that don't fit in the memory budget
+    //
+    wlSortDir = new Label( shell, SWT.RIGHT );
+    wlSortDir.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.TempDir.Label" ) );
+    wlSortDir.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.TempDir.ToolTip" ) );
+    props.setLook( wlSortDir );
+    fdlSortDir = new FormData();
+    fdlSortDir.left = new FormAttachment( 0, 0 );
+    fdlSortDir.right = new FormAttachment( middle, -margin );
+    fdlSortDir.top = new FormAttachment( wCombineCopies, margin );
+    wlSortDir.setLayoutData( fdlSortDir );
+
+    wbSortDir = new Button( shell, SWT.PUSH | SWT.CENTER );
+    props.setLook( wbSortDir );
+    wbSortDir.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Browse.Button" ) );
+    fdbSortDir = new FormData();
+    fdbSortDir.right = new FormAttachment( 100, 0 );
+    fdbSortDir.top = new FormAttachment( wCombineCopies, margin );
+    wbSortDir.setLayoutData( fdbSortDir );
+
+    wSortDir = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wSortDir );
+    wSortDir.addModifyListener( lsMod );
+    fdSortDir = new FormData();
+    fdSortDir.left = new FormAttachment( middle, 0 );
+    fdSortDir.top = new FormAttachment( wCombineCopies, margin );
+    fdSortDir.right = new FormAttachment( wbSortDir, -margin );
+    wSortDir.setLayoutData( fdSortDir );
+
+    wbSortDir.addSelectionListener( new SelectionAdapterFileDialogTextVar( log, wSortDir, transMeta,
+      new SelectionAdapterOptions( SelectionOperation.FOLDER ) ) );
+
+    // Prefix line...
+    wlPrefix = new Label( shell, SWT.RIGHT );
+    wlPrefix.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FilePrefix.Label" ) );
+    props.setLook( wlPrefix );
+    fdlPrefix = new FormData();
+    fdlPrefix.left = new FormAttachment( 0, 0 );
+    fdlPrefix.right = new FormAttachment( middle, -margin );
+    fdlPrefix.top = new FormAttachment( wbSortDir, margin * 2 );
+    wlPrefix.setLayoutData( fdlPrefix );
+    wPrefix = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wPrefix );
+    wPrefix.addModifyListener( lsMod );
+    fdPrefix = new FormData();
+    fdPrefix.left = new FormAttachment( middle, 0 );
+    fdPrefix.top = new FormAttachment( wbSortDir, margin * 2 );
+    fdPrefix.right = new FormAttachment( 100, 0 );
+    wPrefix.setLayoutData( fdPrefix );
+
     wlGroup = new Label( shell, SWT.NONE );
     wlGroup.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Group.Label" ) );
     props.setLook( wlGroup );
     fdlGroup = new FormData();
     fdlGroup.left = new FormAttachment( 0, 0 );
-    fdlGroup.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlGroup.top = new FormAttachment( wPrefix, margin );
     wlGroup.setLayoutData( fdlGroup );
 
     int nrKeyCols = 1;
@@ -375,6 +463,9 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     logDebug( BaseMessages.getString( PKG, "MemoryGroupByDialog.Log.GettingKeyInfo" ) );
 
     wAlwaysAddResult.setSelection( input.isAlwaysGivingBackOneRow() );
+    wCombineCopies.setSelection( input.isCombiningCopies() );
+    wSortDir.setText( Const.NVL( input.getDirectory(), "" ) );
+    wPrefix.setText( Const.NVL( input.getPrefix(), "" ) );
 
     if ( input.getGroupField() != null ) {
       for ( int i = 0; i < input.getGroupField().length; i++ ) {
@@ -425,6 +516,9 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     int nrfields = wAgg.nrNonEmpty();
 
     input.setAlwaysGivingBackOneRow( wAlwaysAddResult.getSelection() );
+    input.setCombiningCopies( wCombineCopies.getSelection() );
+    input.setDirectory( wSortDir.getText() );
+    input.setPrefix( wPrefix.getText() );
 
     input.allocate( sizegroup, nrfields );
 
@@ -94,6 +94,18 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
   private TextVar wLimit;
   private FormData fdlLimit, fdLimit;
 
+  private Label wlParallelRead;
+  private Button wParallelRead;
+  private FormData fdlParallelRead, fdParallelRead;
+
+  private Label wlSplitColumn;
+  private TextVar wSplitColumn;
+  private FormData fdlSplitColumn, fdSplitColumn;
+
+  private Label wlParallelConnections;
+  private TextVar wParallelConnections;
+  private FormData fdlParallelConnections, fdParallelConnections;
+
   private Label wlEachRow;
   private Button wEachRow;
   private FormData fdlEachRow, fdEachRow;
@@ -206,6 +218,67 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     fdLimit.bottom = new FormAttachment( wOK, -2 * margin );
     wLimit.setLayoutData( fdLimit );
 
+    // Parallel read: connections per step copy
+    wlParallelConnections = new Label( shell, SWT.RIGHT );
+    wlParallelConnections.setText( BaseMessages.getString( PKG, "TableInputDialog.ParallelConnections" ) );
+    props.setLook( wlParallelConnections );
+    fdlParallelConnections = new FormData();
+    fdlParallelConnections.left = new FormAttachment( 0, 0 );
+    fdlParallelConnections.right = new FormAttachment( middle, -margin );
+    fdlParallelConnections.bottom = new FormAttachment( wLimit, -margin );
+    wlParallelConnections.setLayoutData( fdlParallelConnections );
+    wParallelConnections = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wParallelConnections );
+    wParallelConnections.addModifyListener( lsMod );
+    fdParallelConnections = new FormData();
+    fdParallelConnections.left = new FormAttachment( middle, 0 );
+    fdParallelConnections.right = new FormAttachment( 100, 0 );
+    fdParallelConnections.bottom = new FormAttachment( wLimit, -margin );
+    wParallelConnections.setLayoutData( fdParallelConnections );
+
+    // Parallel read: split column
+    wlSplitColumn = new Label( shell, SWT.RIGHT );
+    wlSplitColumn.setText( BaseMessages.getString( PKG, "TableInputDialog.SplitColumn" ) );
+    wlSplitColumn.setToolTipText( BaseMessages.getString( PKG, "TableInputDialog.SplitColumn.Tooltip" ) );
+    props.setLook( wlSplitColumn );
+    fdlSplitColumn = new FormData();
+    fdlSplitColumn.left = new FormAttachment( 0, 0 );
+    fdlSplitColumn.right = new FormAttachment( middle, -margin );
+    fdlSplitColumn.bottom = new FormAttachment( wParallelConnections, -margin );
+    wlSplitColumn.setLayoutData( fdlSplitColumn );
+    wSplitColumn = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wSplitColumn );
+    wSplitColumn.addModifyListener( lsMod );
+    fdSplitColumn = new FormData();
+    fdSplitColumn.left = new FormAttachment( middle, 0 );
+    fdSplitColumn.right = new FormAttachment( 100, 0 );
+    fdSplitColumn.bottom = new FormAttachment( wParallelConnections, -margin );
+    wSplitColumn.setLayoutData( fdSplitColumn );
+
+    // Parallel read?
+    wlParallelRead = new Label( shell, SWT.RIGHT );
+    wlParallelRead.setText( BaseMessages.getString( PKG, "TableInputDialog.ParallelRead" ) );
+    wlParallelRead.setToolTipText( BaseMessages.getString( PKG, "TableInputDialog.ParallelRead.Tooltip" ) );
+    props.setLook( wlParallelRead );
+    fdlParallelRead = new FormData();
+    fdlParallelRead.left = new FormAttachment( 0, 0 );
+    fdlParallelRead.right = new FormAttachment( middle, -margin );
+    fdlParallelRead.bottom = new FormAttachment( wSplitColumn, -margin );
+    wlParallelRead.setLayoutData( fdlParallelRead );
+    wParallelRead = new Button( shell, SWT.CHECK );
+    props.setLook( wParallelRead );
+    fdParallelRead = new FormData();
+    fdParallelRead.left = new FormAttachment( middle, 0 );
+    fdParallelRead.right = new FormAttachment( 100, 0 );
+    fdParallelRead.bottom = new FormAttachment( wSplitColumn, -margin );
+    wParallelRead.setLayoutData( fdParallelRead );
+    wParallelRead.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent arg0 ) {
+        input.setChanged();
+        setFlags();
+      }
+    } );
+
     // Execute for each row?
     wlEachRow = new Label( shell, SWT.RIGHT );
     wlEachRow.setText( BaseMessages.getString( PKG, "TableInputDialog.ExecuteForEachRow" ) );
@@ -213,14 +286,14 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     fdlEachRow = new FormData();
     fdlEachRow.left = new FormAttachment( 0, 0 );
     fdlEachRow.right = new FormAttachment( middle, -margin );
-    fdlEachRow.bottom = new FormAttachment( wLimit, -margin );
+    fdlEachRow.bottom = new FormAttachment( wParallelRead, -margin );
     wlEachRow.setLayoutData( fdlEachRow );
     wEachRow = new Button( shell, SWT.CHECK );
     props.setLook( wEachRow );
     fdEachRow = new FormData();
     fdEachRow.left = new FormAttachment( middle, 0 );
     fdEachRow.right = new FormAttachment( 100, 0 );
-    fdEachRow.bottom = new FormAttachment( wLimit, -margin );
+    fdEachRow.bottom = new FormAttachment( wParallelRead, -margin );
     wEachRow.setLayoutData( fdEachRow );
     SelectionAdapter lsSelMod = new SelectionAdapter() {
       public void widgetSelected( SelectionEvent arg0 ) {
@@ -228,6 +301,11 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
       }
     };
     wEachRow.addSelectionListener( lsSelMod );
+    wEachRow.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent arg0 ) {
+        setFlags();
+      }
+    } );
 
     // Read date from...
     wlDatefrom = new Label( shell, SWT.RIGHT );
@@ -513,6 +591,9 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     wVariables.setSelection( input.isVariableReplacementActive() );
     wLazyConversion.setSelection( input.isLazyConversionActive() );
     wCachedRowMeta.setSelection( input.isCachedRowMetaActive() );
+    wParallelRead.setSelection( input.isParallelRead() );
+    wSplitColumn.setText( Const.NVL( input.getSplitColumn(), "" ) );
+    wParallelConnections.setText( Const.NVL( input.getParallelConnections(), "" ) );
 
     setSQLToolTip();
     setFlags();
@@ -552,6 +633,9 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
     meta.setVariableReplacementActive( wVariables.getSelection() );
     meta.setLazyConversionActive( wLazyConversion.getSelection() );
     meta.setCachedRowMetaActive( wCachedRowMeta.getSelection() );
+    meta.setParallelRead( wParallelRead.getSelection() );
+    meta.setSplitColumn( wSplitColumn.getText() );
+    meta.setParallelConnections( wParallelConnections.getText() );
   }
 
   private void ok() {
@@ -667,6 +751,15 @@ public class TableInputDialog extends BaseStepDialog implements StepDialogInterf
       wPreview.setEnabled( true );
     }
 
+    // Ranges are only read in parallel when the query runs once
+    //
+    boolean parallel = !wEachRow.getSelection();
+    wParallelRead.setEnabled( parallel );
+    wlParallelRead.setEnabled( parallel );
+    wSplitColumn.setEnabled( parallel && wParallelRead.getSelection() );
+    wlSplitColumn.setEnabled( parallel && wParallelRead.getSelection() );
+    wParallelConnections.setEnabled( parallel && wParallelRead.getSelection() );
+    wlParallelConnections.setEnabled( parallel && wParallelRead.getSelection() );
   }
 
   /**
@@ -135,6 +135,14 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
   private Button wBatch;
   private FormData fdlBatch, fdBatch;
 
+  private Label wlPipelined;
+  private Button wPipelined;
+  private FormData fdlPipelined, fdPipelined;
+
+  private Label wlBatchWriters;
+  private TextVar wBatchWriters;
+  private FormData fdlBatchWriters, fdBatchWriters;
+
   private Label wlUsePart;
   private Button wUsePart;
   private FormData fdlUsePart, fdUsePart;
@@ -566,20 +574,64 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
       }
     } );
 
+    // Pipelined batch writes
+    wlPipelined = new Label( wMainComp, SWT.RIGHT );
+    wlPipelined.setText( BaseMessages.getString( PKG, "TableOutputDialog.Pipelined.Label" ) );
+    wlPipelined.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.Pipelined.Tooltip" ) );
+    props.setLook( wlPipelined );
+    fdlPipelined = new FormData();
+    fdlPipelined.left = new FormAttachment( 0, 0 );
+    fdlPipelined.top = new FormAttachment( wBatch, margin );
+    fdlPipelined.right = new FormAttachment( middle, -margin );
+    wlPipelined.setLayoutData( fdlPipelined );
+    wPipelined = new Button( wMainComp, SWT.CHECK );
+    props.setLook( wPipelined );
+    fdPipelined = new FormData();
+    fdPipelined.left = new FormAttachment( middle, 0 );
+    fdPipelined.top = new FormAttachment( wBatch, margin );
+    fdPipelined.right = new FormAttachment( 100, 0 );
+    wPipelined.setLayoutData( fdPipelined );
+    wPipelined.addSelectionListener( lsSelMod );
+
+    wPipelined.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent arg0 ) {
+        setFlags();
+      }
+    } );
+
+    // Number of batch writer connections
+    wlBatchWriters = new Label( wMainComp, SWT.RIGHT );
+    wlBatchWriters.setText( BaseMessages.getString( PKG, "TableOutputDialog.BatchWriters.Label" ) );
+    wlBatchWriters.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.BatchWriters.Tooltip" ) );
+    props.setLook( wlBatchWriters );
+    fdlBatchWriters = new FormData();
+    fdlBatchWriters.left = new FormAttachment( 0, 0 );
+    fdlBatchWriters.top = new FormAttachment( wPipelined, margin );
+    fdlBatchWriters.right = new FormAttachment( middle, -margin );
+    wlBatchWriters.setLayoutData( fdlBatchWriters );
+    wBatchWriters = new TextVar( transMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wBatchWriters );
+    wBatchWriters.addModifyListener( lsMod );
+    fdBatchWriters = new FormData();
+    fdBatchWriters.left = new FormAttachment( middle, 0 );
+    fdBatchWriters.top = new FormAttachment( wPipelined, margin );
+    fdBatchWriters.right = new FormAttachment( 100, 0 );
+    wBatchWriters.setLayoutData( fdBatchWriters );
+
     // NameInField
     wlNameInField = new Label( wMainComp, SWT.RIGHT );
     wlNameInField.setText( BaseMessages.getString( PKG, "TableOutputDialog.NameInField.Label" ) );
     props.setLook( wlNameInField );
     fdlNameInField = new FormData();
     fdlNameInField.left = new FormAttachment( 0, 0 );
-    fdlNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdlNameInField.top = new FormAttachment( wBatchWriters, margin * 5 );
     fdlNameInField.right = new FormAttachment( middle, -margin );
     wlNameInField.setLayoutData( fdlNameInField );
     wNameInField = new Button( wMainComp, SWT.CHECK );
     props.setLook( wNameInField );
     fdNameInField = new FormData();
     fdNameInField.left = new FormAttachment( middle, 0 );
-    fdNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdNameInField.top = new FormAttachment( wBatchWriters, margin * 5 );
     fdNameInField.right = new FormAttachment( 100, 0 );
     wNameInField.setLayoutData( fdNameInField );
     wNameInField.addSelectionListener( new SelectionAdapter() {
@@ -1244,6 +1296,13 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wlBatch.setEnabled( enableBatch );
     wBatch.setEnabled( enableBatch );
 
+    // Only batches can be written in the background
+    wlPipelined.setEnabled( useBatch );
+    wPipelined.setEnabled( useBatch );
+    boolean usePipelined = useBatch && wPipelined.getSelection();
+    wlBatchWriters.setEnabled( usePipelined );
+    wBatchWriters.setEnabled( usePipelined );
+
     boolean specifyFields = wSpecifyFields.getSelection();
     wFields.setEnabled( specifyFields );
     wGetFields.setEnabled( specifyFields );
@@ -1289,6 +1348,8 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wTruncate.setSelection( input.truncateTable() );
     wIgnore.setSelection( input.ignoreErrors() );
     wBatch.setSelection( input.useBatchUpdate() );
+    wPipelined.setSelection( input.isPipelinedBatchWrites() );
+    wBatchWriters.setText( Const.NVL( input.getBatchWriterConnections(), "1" ) );
 
     wCommit.setText( input.getCommitSize() );
 
@@ -1342,6 +1403,8 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     info.setTruncateTable( wTruncate.getSelection() );
     info.setIgnoreErrors( wIgnore.getSelection() );
     info.setUseBatchUpdate( wBatch.getSelection() );
+    info.setPipelinedBatchWrites( wPipelined.getSelection() );
+    info.setBatchWriterConnections( wBatchWriters.getText() );
     info.setPartitioningEnabled( wUsePart.getSelection() );
     info.setPartitioningField( wPartField.getText() );
     info.setPartitioningDaily( wPartDaily.getSelection() );